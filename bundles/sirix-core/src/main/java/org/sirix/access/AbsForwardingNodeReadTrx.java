@@ -9,6 +9,7 @@ import javax.xml.namespace.QName;
 
 import org.sirix.api.IItemList;
 import org.sirix.api.INodeReadTrx;
+import org.sirix.api.IPageReadTrx;
 import org.sirix.api.ISession;
 import org.sirix.exception.SirixException;
 import org.sirix.exception.SirixIOException;
@@ -73,6 +74,11 @@ public abstract class AbsForwardingNodeReadTrx extends ForwardingObject
     return delegate().getSession();
   }
 
+  @Override
+  public IPageReadTrx getPageTransaction() {
+    return delegate().getPageTransaction();
+  }
+
   @Override
   public IStructNode getStructuralNode() {
     return delegate().getStructuralNode();
@@ -1,5 +1,7 @@
 package org.sirix.access;
 
+import java.util.concurrent.Future;
+
 import javax.annotation.Nonnull;
 import javax.xml.namespace.QName;
 import javax.xml.stream.XMLEventReader;
@@ -30,6 +32,11 @@ public abstract class AbsForwardingNodeWriteTrx extends
     delegate().abort();
   }
 
+  @Override
+  public INodeWriteTrx lockSubtree() throws SirixException {
+    return delegate().lockSubtree();
+  }
+
   @Override
   public void close() throws SirixException {
     delegate().close();
@@ -40,6 +47,11 @@ public abstract class AbsForwardingNodeWriteTrx extends
     delegate().commit();
   }
 
+  @Override
+  public Future<Integer> commitAsync() throws SirixException {
+    return delegate().commitAsync();
+  }
+
   @Override
   public INodeWriteTrx moveSubtreeToLeftSibling(long pFromKey)
     throws SirixException {
@@ -42,6 +42,13 @@ public abstract class AbsForwardingPageReadTrx extends ForwardingObject
 		return delegate().getNode(pKey, pPage);
 	}
 
+	@Override
+	public void getNodes(@Nonnull long[] pKeys, @Nonnegative int pSize,
+			@Nonnull EPage pPage, @Nonnull INodeBase[] pNodes)
+			throws SirixIOException {
+		delegate().getNodes(pKeys, pSize, pPage, pNodes);
+	}
+
 	@Override
 	public RevisionRootPage getActualRevisionRootPage() throws SirixIOException {
 		return delegate().getActualRevisionRootPage();
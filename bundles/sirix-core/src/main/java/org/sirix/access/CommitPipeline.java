@@ -0,0 +1,274 @@
+/**
+ * Copyright (c) 2011, University of Konstanz, Distributed Systems Group
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the University of Konstanz nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sirix.access;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.sirix.exception.SirixException;
+import org.sirix.exception.SirixThreadedException;
+import org.sirix.io.IWriter;
+import org.sirix.io.bytepipe.IByteHandler;
+import org.sirix.page.NodePage;
+import org.sirix.page.PagePersistenter;
+import org.sirix.page.PageReference;
+import org.sirix.page.interfaces.IPage;
+
+import com.google.common.io.ByteArrayDataOutput;
+import com.google.common.io.ByteStreams;
+
+/**
+ * <h1>CommitPipeline</h1>
+ * 
+ * <p>
+ * Serializes and compresses {@link NodePage}s on a {@link ForkJoinPool} during
+ * a commit. Pages are added in the order the {@link PageWriteTrx} commits them
+ * (that is in postorder), and written in exactly this order, such that the
+ * offsets of all referenced pages are known once a page which references them
+ * is serialized. {@link NodePage}s don't reference other pages, thus they are
+ * handed to the pool immediately, whereas all other pages are serialized on
+ * the committing thread just before they are written.
+ * </p>
+ * 
+ * <p>
+ * The number of pages which are serialized but not written yet is bounded to
+ * keep the memory footprint of a commit independent of the number of modified
+ * pages.
+ * </p>
+ * 
+ * @author Johannes Lichtenberger, University of Konstanz
+ * 
+ */
+final class CommitPipeline {
+
+	/** Maximum number of pending pages per thread of the pool. */
+	private static final int PENDING_PER_THREAD = 16;
+
+	/** Pool to serialize node pages. */
+	private final ForkJoinPool mPool;
+
+	/** Writer to write serialized pages. */
+	private final IWriter mWriter;
+
+	/** Byte handler of each thread. */
+	private final ThreadLocal<IByteHandler> mByteHandler;
+
+	/** Pages in the order they have to be written. */
+	private final Deque<Entry> mPending;
+
+	/** Maximum number of pending pages. */
+	private final int mMaxPending;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param pPool
+	 *          pool to serialize node pages
+	 * @param pWriter
+	 *          writer to write serialized pages
+	 * @param pByteHandler
+	 *          byte handler of the storage, which is copied for each thread
+	 */
+	CommitPipeline(final @Nonnull ForkJoinPool pPool,
+			final @Nonnull IWriter pWriter, final @Nonnull IByteHandler pByteHandler) {
+		mPool = checkNotNull(pPool);
+		mWriter = checkNotNull(pWriter);
+		checkNotNull(pByteHandler);
+		mByteHandler = new ThreadLocal<IByteHandler>() {
+			@Override
+			protected IByteHandler initialValue() {
+				return pByteHandler.getInstance();
+			}
+		};
+		mPending = new ArrayDeque<>();
+		mMaxPending = mPool.getParallelism() * PENDING_PER_THREAD;
+	}
+
+	/**
+	 * Add a page, whose referenced pages have all been added before.
+	 * 
+	 * @param pReference
+	 *          reference to the page, which gets its key once the page has been
+	 *          written
+	 * @param pPage
+	 *          the page to write
+	 * @throws SirixException
+	 *           if writing pending pages fails
+	 */
+	void add(final @Nonnull PageReference pReference, final @Nonnull IPage pPage)
+			throws SirixException {
+		final Future<byte[]> serialized = pPage instanceof NodePage ? mPool
+				.submit(new Serializer(pPage)) : null;
+		mPending.add(new Entry(checkNotNull(pReference), pPage, serialized));
+		drain(mPending.size() > mMaxPending);
+	}
+
+	/**
+	 * Write all pending pages.
+	 * 
+	 * @throws SirixException
+	 *           if serializing or writing fails
+	 */
+	void finish() throws SirixException {
+		while (!mPending.isEmpty()) {
+			drain(true);
+		}
+	}
+
+	/**
+	 * Cancel all pending pages, used if the commit fails.
+	 */
+	void cancel() {
+		for (final Entry entry : mPending) {
+			if (entry.mSerialized != null) {
+				entry.mSerialized.cancel(false);
+			}
+		}
+		mPending.clear();
+	}
+
+	/**
+	 * Write pages from the head of the queue as long as they are available
+	 * without blocking.
+	 * 
+	 * @param pBlock
+	 *          determines if the first page should be written, even if it has to
+	 *          be awaited
+	 * @throws SirixException
+	 *           if serializing or writing fails
+	 */
+	private void drain(final boolean pBlock) throws SirixException {
+		boolean block = pBlock;
+		while (!mPending.isEmpty()) {
+			final Entry entry = mPending.peek();
+			if (!block && entry.mSerialized != null && !entry.mSerialized.isDone()) {
+				return;
+			}
+			block = false;
+			mPending.poll();
+			final byte[] bytes;
+			if (entry.mSerialized == null) {
+				bytes = serialize(entry.mPage, mByteHandler.get());
+			} else {
+				try {
+					bytes = entry.mSerialized.get();
+				} catch (final InterruptedException e) {
+					throw new SirixThreadedException(e);
+				} catch (final ExecutionException e) {
+					throw new SirixThreadedException(e);
+				}
+			}
+			mWriter.write(entry.mReference, bytes);
+			entry.mReference.setPage(null);
+		}
+	}
+
+	/**
+	 * Serialize a page and apply the byte handler.
+	 * 
+	 * @param pPage
+	 *          the page to serialize
+	 * @param pByteHandler
+	 *          the byte handler of the current thread
+	 * @return serialized page
+	 * @throws SirixException
+	 *           if the byte handler fails
+	 */
+	private static byte[] serialize(final @Nonnull IPage pPage,
+			final @Nonnull IByteHandler pByteHandler) throws SirixException {
+		final ByteArrayDataOutput output = ByteStreams.newDataOutput();
+		PagePersistenter.serializePage(output, pPage);
+		return pByteHandler.serialize(output.toByteArray());
+	}
+
+	/**
+	 * Serializes a page on the pool.
+	 */
+	private final class Serializer implements Callable<byte[]> {
+
+		/** The page to serialize. */
+		private final IPage mPage;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param pPage
+		 *          the page to serialize
+		 */
+		Serializer(final @Nonnull IPage pPage) {
+			mPage = pPage;
+		}
+
+		@Override
+		public byte[] call() throws SirixException {
+			return serialize(mPage, mByteHandler.get());
+		}
+	}
+
+	/**
+	 * Page which has to be written.
+	 */
+	private static final class Entry {
+
+		/** Reference to the page. */
+		final PageReference mReference;
+
+		/** The page. */
+		final IPage mPage;
+
+		/** Serialized page, if it is serialized on the pool. */
+		final Future<byte[]> mSerialized;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param pReference
+		 *          reference to the page
+		 * @param pPage
+		 *          the page
+		 * @param pSerialized
+		 *          serialized page, or {@code null} if the page is serialized
+		 *          on the committing thread
+		 */
+		Entry(final @Nonnull PageReference pReference, final @Nonnull IPage pPage,
+				final @Nullable Future<byte[]> pSerialized) {
+			mReference = pReference;
+			mPage = pPage;
+			mSerialized = pSerialized;
+		}
+	}
+}
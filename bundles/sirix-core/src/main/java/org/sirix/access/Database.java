@@ -29,11 +29,13 @@ package org.sirix.access;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.annotation.Nonnegative;
@@ -53,6 +55,7 @@ import org.sirix.utils.LogWrapper;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Objects;
+import com.google.common.base.Optional;
 import com.google.common.collect.BiMap;
 import com.google.common.collect.HashBiMap;
 import com.google.common.collect.Maps;
@@ -85,6 +88,9 @@ public final class Database implements IDatabase {
 	/** DatabaseConfiguration with fixed settings. */
 	private final DatabaseConfiguration mDBConfig;
 
+	/** Optional coordinator of the commits of all sessions. */
+	private volatile Optional<GroupCommit> mGroupCommit;
+
 	/**
 	 * Private constructor.
 	 * 
@@ -99,6 +105,7 @@ public final class Database implements IDatabase {
 		mDBConfig = checkNotNull(pDBConf);
 		mSessions = new ConcurrentHashMap<>();
 		mResources = Maps.synchronizedBiMap(HashBiMap.<Integer, String> create());
+		mGroupCommit = Optional.absent();
 	}
 
 	// //////////////////////////////////////////////////////////
@@ -353,6 +360,72 @@ public final class Database implements IDatabase {
 		return returnVal;
 	}
 
+	/**
+	 * Replace the configuration of a resource, for instance to enable additional
+	 * indexes. The resource must not be opened by a session.
+	 * 
+	 * @param pConfig
+	 *          the new {@link ResourceConfiguration}
+	 * @throws SirixIOException
+	 *           if the configuration can't be written
+	 * @throws IllegalStateException
+	 *           if a session on the resource is open
+	 */
+	synchronized void updateResourceConfig(
+			final @Nonnull ResourceConfiguration pConfig) throws SirixIOException {
+		checkState(!mSessions.containsKey(pConfig.mPath),
+				"The resource must not be opened by a session!");
+		ResourceConfiguration.serialize(pConfig);
+	}
+
+	@Override
+	public synchronized void setGroupCommit(final @Nonnegative long pWindow,
+			final @Nonnull TimeUnit pUnit, final @Nonnegative int pMaxCommits)
+			throws SirixIOException {
+		replaceGroupCommit(Optional.of(new GroupCommit(pWindow, pUnit,
+				pMaxCommits)));
+	}
+
+	@Override
+	public synchronized void disableGroupCommit() throws SirixIOException {
+		replaceGroupCommit(Optional.<GroupCommit> absent());
+	}
+
+	/**
+	 * Replace the coordinator of the commits and close the beacon writers of
+	 * the former one.
+	 * 
+	 * @param pGroupCommit
+	 *          the new {@link GroupCommit} instance, if group commit is enabled
+	 * @throws SirixIOException
+	 *           if a beacon writer can't be closed
+	 */
+	private void replaceGroupCommit(
+			final @Nonnull Optional<GroupCommit> pGroupCommit)
+			throws SirixIOException {
+		final Optional<GroupCommit> former = mGroupCommit;
+		mGroupCommit = pGroupCommit;
+		if (former.isPresent()) {
+			former.get().close();
+		}
+	}
+
+	@Override
+	public GroupCommitStats getGroupCommitStats() {
+		final Optional<GroupCommit> groupCommit = mGroupCommit;
+		return groupCommit.isPresent() ? groupCommit.get().getStats()
+				: new GroupCommitStats(0, 0, 0, 0, 0);
+	}
+
+	/**
+	 * Get the coordinator of the commits of all sessions.
+	 * 
+	 * @return {@link GroupCommit} instance, if group commit is enabled
+	 */
+	Optional<GroupCommit> getGroupCommit() {
+		return mGroupCommit;
+	}
+
 	@Override
 	public synchronized void close() throws SirixException {
 		// Close all sessions.
@@ -0,0 +1,177 @@
+/**
+ * Copyright (c) 2011, University of Konstanz, Distributed Systems Group
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the University of Konstanz nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sirix.access;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+
+import org.sirix.exception.SirixException;
+import org.sirix.exception.SirixIOException;
+import org.sirix.exception.SirixThreadedException;
+import org.sirix.io.IReader;
+import org.sirix.io.IStorage;
+import org.sirix.page.interfaces.IPage;
+
+/**
+ * <h1>FragmentPrefetcher</h1>
+ * 
+ * <p>
+ * Reads page fragments of several revisions concurrently. Readers of the
+ * storage in general aren't thread safe, thus the prefetcher maintains a pool
+ * of readers, which are borrowed for a single read.
+ * </p>
+ * 
+ * @author Johannes Lichtenberger, University of Konstanz
+ * 
+ */
+final class FragmentPrefetcher {
+
+	/** Executes the reads. */
+	private final ExecutorService mPool;
+
+	/** Storage to create readers. */
+	private final IStorage mStorage;
+
+	/** Idle readers. */
+	private final Queue<IReader> mReaders;
+
+	/** All readers, which have been created. */
+	private final Queue<IReader> mAllReaders;
+
+	/** Determines if the prefetcher is closed. */
+	private volatile boolean mClosed;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param pStorage
+	 *          storage to create readers
+	 * @param pThreads
+	 *          number of threads
+	 */
+	FragmentPrefetcher(final @Nonnull IStorage pStorage,
+			final @Nonnegative int pThreads) {
+		checkArgument(pThreads > 0, "pThreads must be > 0!");
+		mStorage = checkNotNull(pStorage);
+		mPool = Executors.newFixedThreadPool(pThreads);
+		mReaders = new ConcurrentLinkedQueue<>();
+		mAllReaders = new ConcurrentLinkedQueue<>();
+	}
+
+	/**
+	 * Asynchronously read the pages with the given keys.
+	 * 
+	 * @param pKeys
+	 *          the keys of the pages
+	 * @return futures of the pages, in the order of the keys
+	 */
+	List<Future<IPage>> prefetch(final @Nonnull long[] pKeys) {
+		final List<Future<IPage>> pages = new ArrayList<>(pKeys.length);
+		for (final long key : pKeys) {
+			pages.add(mPool.submit(new Callable<IPage>() {
+				@Override
+				public IPage call() throws SirixException {
+					return read(key);
+				}
+			}));
+		}
+		return pages;
+	}
+
+	/**
+	 * Wait for a page, which has been prefetched.
+	 * 
+	 * @param pPage
+	 *          future of the page
+	 * @return the page
+	 * @throws SirixIOException
+	 *           if reading the page failed
+	 */
+	static IPage get(final @Nonnull Future<IPage> pPage) throws SirixIOException {
+		try {
+			return pPage.get();
+		} catch (final InterruptedException e) {
+			throw new SirixIOException(new SirixThreadedException(e));
+		} catch (final ExecutionException e) {
+			throw new SirixIOException(e.getCause());
+		}
+	}
+
+	/**
+	 * Read a page with a pooled reader.
+	 * 
+	 * @param pKey
+	 *          the key of the page
+	 * @return the page
+	 * @throws SirixIOException
+	 *           if an I/O error occurs
+	 */
+	private IPage read(final long pKey) throws SirixIOException {
+		IReader reader = mReaders.poll();
+		if (reader == null) {
+			reader = mStorage.getReader();
+			mAllReaders.add(reader);
+		}
+		try {
+			return reader.read(pKey);
+		} finally {
+			mReaders.add(reader);
+		}
+	}
+
+	/**
+	 * Shut the pool down and close all readers.
+	 * 
+	 * @throws SirixIOException
+	 *           if closing a reader fails
+	 */
+	void close() throws SirixIOException {
+		if (!mClosed) {
+			mClosed = true;
+			mPool.shutdownNow();
+			for (final IReader reader : mAllReaders) {
+				reader.close();
+			}
+			mAllReaders.clear();
+			mReaders.clear();
+		}
+	}
+}
@@ -0,0 +1,476 @@
+/**
+ * Copyright (c) 2011, University of Konstanz, Distributed Systems Group
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the University of Konstanz nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sirix.access;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.sirix.exception.SirixIOException;
+import org.sirix.io.IStorage;
+import org.sirix.io.IWriter;
+
+import com.google.common.base.Objects;
+
+/**
+ * <h1>GroupCommit</h1>
+ * 
+ * <p>
+ * Coordinates the final step of the commits of all sessions of a
+ * {@link Database}, that is updating the beacon and forcing the data file to
+ * the device. A commit writes and flushes its pages and its uber page, while
+ * it holds the commit lock of its session, and {@link #submit(IStorage, long)
+ * submits} the uber page. Afterwards it releases the commit lock and
+ * {@link #await() awaits} the beacon update, such that further commits to the
+ * same storage are able to join the batch.
+ * </p>
+ * 
+ * <p>
+ * Commits are batched per storage. The first waiting committer of a storage
+ * becomes the leader. It waits until either the window elapsed or the
+ * maximum number of commits arrived and executes the batch with a single
+ * force and a single beacon update for the most recent uber page, as the
+ * uber pages of all commits of the batch have already been written. Batches
+ * of different storages are executed concurrently by their leaders. Commits,
+ * which arrive while a batch is executed, form the next batch.
+ * </p>
+ * 
+ * <p>
+ * Concurrent commits are merged onto the written, but not yet acknowledged
+ * uber page of their predecessor. Once a batch of a storage failed, all
+ * further commits to the storage therefore fail, too, until its session is
+ * closed and the storage is {@link #release(IStorage) released}.
+ * </p>
+ * 
+ * <p>
+ * The beacon of a storage is updated by a single writer, which is opened by
+ * the first batch of the storage and reused by all further batches until the
+ * storage is released or the group commit is {@link #close() closed}.
+ * </p>
+ * 
+ * @author Johannes Lichtenberger, University of Konstanz
+ * 
+ */
+final class GroupCommit {
+
+	/** Time to wait for further commits in nanoseconds. */
+	private final long mWindow;
+
+	/** Maximum number of commits in a batch. */
+	private final int mMaxCommits;
+
+	/** Guards the pending commits and the statistics. */
+	private final Lock mLock;
+
+	/** Signals new commits and finished batches. */
+	private final Condition mCondition;
+
+	/** Commits of each storage, which wait for the next batch. */
+	private final Map<IStorage, List<Request>> mPending;
+
+	/** Storages, whose leader collects or executes a batch. */
+	private final Set<IStorage> mLeading;
+
+	/** Writers, which update the beacons of the storages. */
+	private final Map<IStorage, IWriter> mWriters;
+
+	/** Determines if the beacon writers are closed after each batch. */
+	private boolean mClosed;
+
+	/** Failures of storages, whose batches have failed. */
+	private final Map<IStorage, SirixIOException> mFailures;
+
+	/** Commit submitted by the current thread, which is not awaited yet. */
+	private final ThreadLocal<Request> mSubmitted;
+
+	/** Start of the measurement in nanoseconds. */
+	private final long mStart;
+
+	/** Number of acknowledged commits. */
+	private long mCommits;
+
+	/** Number of executed batches. */
+	private long mBatches;
+
+	/** Sum of the latencies of all commits in nanoseconds. */
+	private long mTotalLatency;
+
+	/** Maximum latency of a commit in nanoseconds. */
+	private long mMaxLatency;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param pWindow
+	 *          time to wait for further commits, {@code 0} to only batch
+	 *          commits, which arrive while a batch is executed
+	 * @param pUnit
+	 *          unit of {@code pWindow}
+	 * @param pMaxCommits
+	 *          maximum number of commits in a batch
+	 */
+	GroupCommit(final @Nonnegative long pWindow, final @Nonnull TimeUnit pUnit,
+			final @Nonnegative int pMaxCommits) {
+		checkArgument(pWindow >= 0, "pWindow must be >= 0!");
+		checkArgument(pMaxCommits > 0, "pMaxCommits must be > 0!");
+		mWindow = pUnit.toNanos(pWindow);
+		mMaxCommits = pMaxCommits;
+		mLock = new ReentrantLock();
+		mCondition = mLock.newCondition();
+		mPending = new HashMap<>();
+		mLeading = new HashSet<>();
+		mWriters = new HashMap<>();
+		mFailures = new HashMap<>();
+		mSubmitted = new ThreadLocal<>();
+		mStart = System.nanoTime();
+	}
+
+	/**
+	 * Submit an uber page, which has been written and flushed, for the next
+	 * batch of its storage. Must be called in commit order, that is while the
+	 * commit lock of the session is held, and must be followed by
+	 * {@link #await()} of the same thread.
+	 * 
+	 * @param pStorage
+	 *          storage of the data file
+	 * @param pUberPageKey
+	 *          key of the uber page
+	 */
+	void submit(final @Nonnull IStorage pStorage, final long pUberPageKey) {
+		final Request request = new Request(checkNotNull(pStorage), pUberPageKey);
+		mLock.lock();
+		try {
+			final SirixIOException failure = mFailures.get(pStorage);
+			if (failure != null) {
+				request.mFailure = failure;
+				request.mDone = true;
+				mSubmitted.set(request);
+				return;
+			}
+			List<Request> pending = mPending.get(pStorage);
+			if (pending == null) {
+				pending = new ArrayList<>();
+				mPending.put(pStorage, pending);
+			}
+			pending.add(request);
+			if (pending.size() >= mMaxCommits) {
+				mCondition.signalAll();
+			}
+		} finally {
+			mLock.unlock();
+		}
+		mSubmitted.set(request);
+	}
+
+	/**
+	 * Wait until the batch of the commit submitted by the current thread has
+	 * been executed. Returns immediately if no commit is pending.
+	 * 
+	 * @throws SirixIOException
+	 *           if updating the beacon or forcing the data file fails
+	 */
+	void await() throws SirixIOException {
+		final Request request = mSubmitted.get();
+		if (request == null) {
+			return;
+		}
+		mSubmitted.remove();
+		mLock.lock();
+		try {
+			while (!request.mDone) {
+				if (mLeading.contains(request.mStorage)) {
+					mCondition.awaitUninterruptibly();
+				} else {
+					lead(request.mStorage);
+				}
+			}
+		} finally {
+			mLock.unlock();
+		}
+		if (request.mFailure != null) {
+			throw request.mFailure;
+		}
+	}
+
+	/**
+	 * Collect and execute a batch of a storage. Must be called with the lock
+	 * held.
+	 * 
+	 * @param pStorage
+	 *          the storage
+	 */
+	private void lead(final @Nonnull IStorage pStorage) {
+		mLeading.add(pStorage);
+		try {
+			final List<Request> pending = mPending.get(pStorage);
+			long remaining = mWindow;
+			while (remaining > 0 && pending.size() < mMaxCommits) {
+				try {
+					remaining = mCondition.awaitNanos(remaining);
+				} catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+					break;
+				}
+			}
+			final List<Request> batch = new ArrayList<>(pending.subList(0,
+					Math.min(pending.size(), mMaxCommits)));
+			pending.subList(0, batch.size()).clear();
+			if (pending.isEmpty()) {
+				mPending.remove(pStorage);
+			}
+			final SirixIOException failure = mFailures.get(pStorage);
+			if (failure == null) {
+				// Only the leader of the storage uses its writer.
+				final IWriter writer = mWriters.remove(pStorage);
+				IWriter usedWriter = null;
+				mLock.unlock();
+				try {
+					usedWriter = execute(pStorage, writer, batch);
+				} finally {
+					mLock.lock();
+					if (usedWriter != null) {
+						if (mClosed) {
+							close(usedWriter, batch);
+						} else {
+							mWriters.put(pStorage, usedWriter);
+						}
+					}
+				}
+				final SirixIOException batchFailure = batch.get(0).mFailure;
+				if (batchFailure != null) {
+					mFailures.put(pStorage, new SirixIOException(
+							"A former commit failed, the session must be reopened!",
+							batchFailure));
+				}
+			} else {
+				fail(batch, failure);
+			}
+
+			final long now = System.nanoTime();
+			for (final Request request : batch) {
+				final long latency = now - request.mStart;
+				mTotalLatency += latency;
+				mMaxLatency = Math.max(mMaxLatency, latency);
+				request.mDone = true;
+			}
+			mCommits += batch.size();
+			mBatches++;
+		} finally {
+			mLeading.remove(pStorage);
+			mCondition.signalAll();
+		}
+	}
+
+	/**
+	 * Execute a batch, that is force the data file and update the beacon to
+	 * the uber page of the last commit.
+	 * 
+	 * @param pStorage
+	 *          storage of the data file
+	 * @param pWriter
+	 *          beacon writer of the storage, or {@code null} to open it
+	 * @param pBatch
+	 *          the commits in commit order
+	 * @return the beacon writer, or {@code null} if it couldn't be opened
+	 */
+	private static IWriter execute(final @Nonnull IStorage pStorage,
+			final @Nullable IWriter pWriter, final @Nonnull List<Request> pBatch) {
+		IWriter writer = pWriter;
+		try {
+			if (writer == null) {
+				writer = pStorage.getWriter();
+			}
+			writer.writeBeacon(pBatch.get(pBatch.size() - 1).mUberPageKey);
+		} catch (final SirixIOException e) {
+			fail(pBatch, e);
+		} catch (final RuntimeException e) {
+			fail(pBatch, new SirixIOException(e));
+		}
+		return writer;
+	}
+
+	/**
+	 * Close a beacon writer.
+	 * 
+	 * @param pWriter
+	 *          the writer
+	 * @param pBatch
+	 *          the commits, which fail if the writer can't be closed
+	 */
+	private static void close(final @Nonnull IWriter pWriter,
+			final @Nonnull List<Request> pBatch) {
+		try {
+			pWriter.close();
+		} catch (final SirixIOException e) {
+			fail(pBatch, e);
+		}
+	}
+
+	/**
+	 * Mark commits as failed.
+	 * 
+	 * @param pRequests
+	 *          the commits
+	 * @param pFailure
+	 *          the cause
+	 */
+	private static void fail(final @Nonnull List<Request> pRequests,
+			final @Nonnull SirixIOException pFailure) {
+		for (final Request request : pRequests) {
+			request.mFailure = pFailure;
+		}
+	}
+
+	/**
+	 * Release a storage, whose session is closed, that is close its beacon
+	 * writer and forget the failure of a former batch. Waits until the batch of
+	 * the storage, which is executed, has finished.
+	 * 
+	 * @param pStorage
+	 *          the storage
+	 * @throws SirixIOException
+	 *           if the beacon writer can't be closed
+	 */
+	void release(final @Nonnull IStorage pStorage) throws SirixIOException {
+		checkNotNull(pStorage);
+		final IWriter writer;
+		mLock.lock();
+		try {
+			while (mLeading.contains(pStorage)) {
+				mCondition.awaitUninterruptibly();
+			}
+			mFailures.remove(pStorage);
+			writer = mWriters.remove(pStorage);
+		} finally {
+			mLock.unlock();
+		}
+		if (writer != null) {
+			writer.close();
+		}
+	}
+
+	/**
+	 * Close the beacon writers of all storages, once the group commit is
+	 * replaced or disabled. Batches, which are still pending, close their
+	 * writers afterwards.
+	 * 
+	 * @throws SirixIOException
+	 *           if a beacon writer can't be closed
+	 */
+	void close() throws SirixIOException {
+		final List<IWriter> writers;
+		mLock.lock();
+		try {
+			mClosed = true;
+			writers = new ArrayList<>(mWriters.values());
+			mWriters.clear();
+		} finally {
+			mLock.unlock();
+		}
+		SirixIOException failure = null;
+		for (final IWriter writer : writers) {
+			try {
+				writer.close();
+			} catch (final SirixIOException e) {
+				failure = e;
+			}
+		}
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	/**
+	 * Get a snapshot of the statistics.
+	 * 
+	 * @return {@link GroupCommitStats} snapshot
+	 */
+	GroupCommitStats getStats() {
+		mLock.lock();
+		try {
+			return new GroupCommitStats(mCommits, mBatches, mTotalLatency,
+					mMaxLatency, System.nanoTime() - mStart);
+		} finally {
+			mLock.unlock();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return Objects.toStringHelper(this).add("window", mWindow)
+				.add("maxCommits", mMaxCommits).toString();
+	}
+
+	/** A commit, which waits for its batch. */
+	private static final class Request {
+
+		/** Storage of the data file. */
+		private final IStorage mStorage;
+
+		/** Key of the uber page. */
+		private final long mUberPageKey;
+
+		/** Time the commit arrived in nanoseconds. */
+		private final long mStart;
+
+		/** Determines if the batch of the commit has been executed. */
+		private boolean mDone;
+
+		/** Failure, if the commit failed. */
+		private @Nullable
+		SirixIOException mFailure;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param pStorage
+		 *          storage of the data file
+		 * @param pUberPageKey
+		 *          key of the uber page
+		 */
+		private Request(final @Nonnull IStorage pStorage, final long pUberPageKey) {
+			mStorage = pStorage;
+			mUberPageKey = pUberPageKey;
+			mStart = System.nanoTime();
+		}
+	}
+}
@@ -0,0 +1,179 @@
+/**
+ * Copyright (c) 2011, University of Konstanz, Distributed Systems Group
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the University of Konstanz nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sirix.access;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.google.common.base.Objects;
+
+/**
+ * <h1>GroupCommitStats</h1>
+ * 
+ * <p>
+ * Immutable snapshot of the statistics of the group commits of a database,
+ * that is the number of commits and batches and the latencies from the
+ * arrival of a commit until its acknowledgement.
+ * </p>
+ * 
+ * @author Johannes Lichtenberger, University of Konstanz
+ * 
+ */
+public final class GroupCommitStats {
+
+	/** Number of acknowledged commits. */
+	private final long mCommits;
+
+	/** Number of executed batches. */
+	private final long mBatches;
+
+	/** Sum of the latencies of all commits in nanoseconds. */
+	private final long mTotalLatency;
+
+	/** Maximum latency of a commit in nanoseconds. */
+	private final long mMaxLatency;
+
+	/** Measured time in nanoseconds. */
+	private final long mElapsed;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param pCommits
+	 *          number of acknowledged commits
+	 * @param pBatches
+	 *          number of executed batches
+	 * @param pTotalLatency
+	 *          sum of the latencies of all commits in nanoseconds
+	 * @param pMaxLatency
+	 *          maximum latency of a commit in nanoseconds
+	 * @param pElapsed
+	 *          measured time in nanoseconds
+	 */
+	public GroupCommitStats(final @Nonnegative long pCommits,
+			final @Nonnegative long pBatches, final @Nonnegative long pTotalLatency,
+			final @Nonnegative long pMaxLatency, final @Nonnegative long pElapsed) {
+		checkArgument(pCommits >= 0 && pBatches >= 0 && pTotalLatency >= 0
+				&& pMaxLatency >= 0 && pElapsed >= 0, "Values must be >= 0!");
+		mCommits = pCommits;
+		mBatches = pBatches;
+		mTotalLatency = pTotalLatency;
+		mMaxLatency = pMaxLatency;
+		mElapsed = pElapsed;
+	}
+
+	/**
+	 * Get the number of acknowledged commits.
+	 * 
+	 * @return number of commits
+	 */
+	public long getCommitCount() {
+		return mCommits;
+	}
+
+	/**
+	 * Get the number of executed batches, that is the number of beacon updates
+	 * and forces of the data files.
+	 * 
+	 * @return number of batches
+	 */
+	public long getBatchCount() {
+		return mBatches;
+	}
+
+	/**
+	 * Get the average number of commits in a batch.
+	 * 
+	 * @return average batch size, {@code 0} if no batch has been executed
+	 */
+	public double getAverageBatchSize() {
+		return mBatches == 0 ? 0 : (double) mCommits / mBatches;
+	}
+
+	/**
+	 * Get the average latency of a commit.
+	 * 
+	 * @param pUnit
+	 *          unit of the latency
+	 * @return average latency, {@code 0} if no commit has been acknowledged
+	 */
+	public double getAverageLatency(final @Nonnull TimeUnit pUnit) {
+		return mCommits == 0 ? 0 : (double) mTotalLatency / mCommits
+				/ pUnit.toNanos(1);
+	}
+
+	/**
+	 * Get the maximum latency of a commit.
+	 * 
+	 * @param pUnit
+	 *          unit of the latency
+	 * @return maximum latency
+	 */
+	public long getMaxLatency(final @Nonnull TimeUnit pUnit) {
+		return pUnit.convert(mMaxLatency, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Get the throughput.
+	 * 
+	 * @return acknowledged commits per second
+	 */
+	public double getThroughput() {
+		return mElapsed == 0 ? 0 : mCommits * (double) TimeUnit.SECONDS.toNanos(1)
+				/ mElapsed;
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hashCode(mCommits, mBatches, mTotalLatency, mMaxLatency,
+				mElapsed);
+	}
+
+	@Override
+	public boolean equals(final @Nullable Object pObj) {
+		if (pObj instanceof GroupCommitStats) {
+			final GroupCommitStats other = (GroupCommitStats) pObj;
+			return mCommits == other.mCommits && mBatches == other.mBatches
+					&& mTotalLatency == other.mTotalLatency
+					&& mMaxLatency == other.mMaxLatency && mElapsed == other.mElapsed;
+		}
+		return false;
+	}
+
+	@Override
+	public String toString() {
+		return Objects.toStringHelper(this).add("commits", mCommits)
+				.add("batches", mBatches).add("totalLatency", mTotalLatency)
+				.add("maxLatency", mMaxLatency).add("elapsed", mElapsed).toString();
+	}
+}
@@ -0,0 +1,997 @@
+/**
+ * Copyright (c) 2011, University of Konstanz, Distributed Systems Group
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the University of Konstanz nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sirix.access;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.sirix.access.conf.DatabaseConfiguration;
+import org.sirix.access.conf.ResourceConfiguration;
+import org.sirix.access.conf.ResourceConfiguration.EIndexes;
+import org.sirix.access.conf.SessionConfiguration;
+import org.sirix.api.IAxis;
+import org.sirix.api.IDatabase;
+import org.sirix.api.IPageReadTrx;
+import org.sirix.api.ISession;
+import org.sirix.axis.DescendantAxis;
+import org.sirix.exception.SirixException;
+import org.sirix.exception.SirixThreadedException;
+import org.sirix.index.bulk.EIndexBuildPhase;
+import org.sirix.index.bulk.ExternalSorter;
+import org.sirix.index.bulk.IIndexBuildObserver;
+import org.sirix.index.cas.CASIndex;
+import org.sirix.index.cas.CASIndexDefinition;
+import org.sirix.index.path.PathReferences;
+import org.sirix.index.value.BPlusTree;
+import org.sirix.node.EKind;
+import org.sirix.node.ElementNode;
+import org.sirix.node.Postings;
+import org.sirix.node.TextReferences;
+import org.sirix.node.TextValue;
+import org.sirix.node.interfaces.INameNode;
+import org.sirix.node.interfaces.INode;
+import org.sirix.node.interfaces.INodeBase;
+import org.sirix.node.interfaces.IValNode;
+import org.sirix.page.EPage;
+import org.sirix.service.xml.xpath.types.Type;
+import org.sirix.settings.IConstants;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Maps;
+import com.google.common.primitives.Longs;
+
+/**
+ * <h1>IndexBuilder</h1>
+ * 
+ * <p>
+ * Builds the indexes of an existing resource in bulk, instead of inserting
+ * the nodes one by one. The last revision is scanned by parallel workers, each
+ * with its own {@link IPageReadTrx} over disjoint node key ranges of one node
+ * page. The extracted (key, node key) pairs are sorted externally with
+ * bounded memory (see {@link ExternalSorter}) and the index trees are bulk
+ * loaded bottom up, such that all indexes are committed in a single new
+ * revision. The path summary assigns the path nodes in document order, thus it
+ * is rebuilt by a sequential pass of the write transaction while the workers
+ * scan. In the meantime the resource can be read.
+ * </p>
+ * 
+ * <p>
+ * The indexes of an open session, which are already enabled, are rebuilt
+ * online. Additional indexes are enabled offline, that is the resource must
+ * not be opened by a session.
+ * </p>
+ * 
+ * @author Johannes Lichtenberger, University of Konstanz
+ * 
+ */
+public final class IndexBuilder {
+
+	/** Node keys, which are scanned by a worker at once, that is a node page. */
+	private static final int SCAN_CHUNK = IConstants.NDP_NODE_COUNT;
+
+	/** Number of nodes or entries between two progress reports. */
+	private static final int REPORT_INTERVAL = 1 << 14;
+
+	/** The session. */
+	private final Session mSession;
+
+	/** Indexes to build. */
+	private final Set<EIndexes> mIndexes;
+
+	/** Determines if the CAS indexes are built. */
+	private final boolean mCAS;
+
+	/** Number of scanning threads. */
+	private final int mThreads;
+
+	/** Maximum number of entries, which are sorted in main memory per run. */
+	private final int mRunSize;
+
+	/** Observers of the progress. */
+	private final Set<IIndexBuildObserver> mObservers;
+
+	/** Directory of the sorted runs. */
+	private final File mDirectory;
+
+	/** Number of scanned node keys. */
+	private long mScanned;
+
+	/**
+	 * Private constructor.
+	 * 
+	 * @param pBuilder
+	 *          {@link Builder} reference
+	 * @param pSession
+	 *          the session
+	 * @param pIndexes
+	 *          indexes to build
+	 * @param pCAS
+	 *          determines if the CAS indexes are built
+	 */
+	private IndexBuilder(final @Nonnull Builder pBuilder,
+			final @Nonnull Session pSession, final @Nonnull Set<EIndexes> pIndexes,
+			final boolean pCAS) {
+		mSession = pSession;
+		final ResourceConfiguration config = pSession.getResourceConfig();
+		mIndexes = EnumSet.noneOf(EIndexes.class);
+		mIndexes.addAll(pIndexes);
+		// The path class and CAS indexes reference the path nodes.
+		if (mIndexes.contains(EIndexes.PATH)
+				&& config.mIndexes.contains(EIndexes.PATH_CLASS)) {
+			mIndexes.add(EIndexes.PATH_CLASS);
+		}
+		mCAS = pCAS
+				|| (mIndexes.contains(EIndexes.PATH) && !config.mCASIndexes.isEmpty());
+		mThreads = pBuilder.mThreads;
+		mRunSize = pBuilder.mRunSize;
+		mObservers = pBuilder.mObservers;
+		mDirectory = new File(config.mPath,
+				ResourceConfiguration.Paths.TransactionLog.getFile().getName());
+	}
+
+	/**
+	 * Build the indexes.
+	 * 
+	 * @param pBuilder
+	 *          {@link Builder} reference
+	 * @return the revision, which contains the indexes
+	 * @throws SirixException
+	 *           if building the indexes fails
+	 * @throws IllegalStateException
+	 *           if an offline build is requested, while the resource is opened by
+	 *           a session
+	 */
+	public static int invoke(final @Nonnull Builder pBuilder)
+			throws SirixException {
+		checkNotNull(pBuilder);
+		if (pBuilder.mSession != null) {
+			final ResourceConfiguration config = pBuilder.mSession
+					.getResourceConfig();
+			final Set<EIndexes> indexes = pBuilder.mIndexes == null ? config.mIndexes
+					: pBuilder.mIndexes;
+			final boolean cas = pBuilder.mCAS == null ? !config.mCASIndexes
+					.isEmpty() : pBuilder.mCAS;
+			return new IndexBuilder(pBuilder, (Session) pBuilder.mSession, indexes,
+					cas).build();
+		}
+
+		// Offline: enable the indexes and build them.
+		final Database database = (Database) pBuilder.mDatabase;
+		final ResourceConfiguration oldConfig = ResourceConfiguration
+				.deserialize(new File(new File(database.getDatabaseConfig().getFile(),
+						DatabaseConfiguration.Paths.Data.getFile().getName()),
+						pBuilder.mResource));
+		final Set<EIndexes> indexes = pBuilder.mIndexes == null ? EnumSet
+				.noneOf(EIndexes.class) : pBuilder.mIndexes;
+		final Set<EIndexes> enabled = EnumSet.noneOf(EIndexes.class);
+		enabled.addAll(oldConfig.mIndexes);
+		enabled.addAll(indexes);
+		final ResourceConfiguration.Builder configBuilder = new ResourceConfiguration.Builder(
+				oldConfig).setIndexes(enabled);
+		for (final CASIndexDefinition definition : pBuilder.mCASIndexes) {
+			configBuilder.addCASIndex(definition.getPath(), definition.getType());
+		}
+		final ResourceConfiguration config = configBuilder.build().setID(
+				oldConfig.getID());
+		final boolean cas = !pBuilder.mCASIndexes.isEmpty();
+		checkState(!indexes.isEmpty() || cas, "No index to build!");
+
+		database.updateResourceConfig(config);
+		try {
+			final ISession session = database
+					.getSession(new SessionConfiguration.Builder(pBuilder.mResource)
+							.build());
+			try {
+				return new IndexBuilder(pBuilder, (Session) session, indexes, cas)
+						.build();
+			} finally {
+				session.close();
+			}
+		} catch (final SirixException | RuntimeException e) {
+			database.updateResourceConfig(oldConfig);
+			throw e;
+		}
+	}
+
+	/**
+	 * Build the indexes in a new revision.
+	 * 
+	 * @return the new revision
+	 * @throws SirixException
+	 *           if building the indexes fails
+	 */
+	private int build() throws SirixException {
+		final NodeWriteTrx wtx = (NodeWriteTrx) mSession.beginNodeWriteTrx();
+		final PageWriteTrx pageWtx = (PageWriteTrx) wtx.getPageTransaction();
+		final int lastRevision = mSession.getLastRevisionNumber();
+		final long maxNodeKey = pageWtx.getActualRevisionRootPage()
+				.getMaxNodeKey();
+		final boolean path = mIndexes.contains(EIndexes.PATH);
+		final boolean value = mIndexes.contains(EIndexes.VALUE);
+		final boolean pathClass = mIndexes.contains(EIndexes.PATH_CLASS);
+
+		final List<ExternalSorter> valueSorters = new ArrayList<>();
+		final List<ExternalSorter> pathSorters = new ArrayList<>();
+		final List<ExternalSorter> casSorters = new ArrayList<>();
+		final ExecutorService pool = Executors.newFixedThreadPool(mThreads);
+		boolean committed = false;
+		try {
+			// Scan the last revision in parallel. The path class and CAS entries are
+			// extracted by the path summary pass, if the path nodes change.
+			final AtomicLong nextChunk = new AtomicLong();
+			final List<Future<Void>> scans = new ArrayList<>();
+			for (int i = 0; i < mThreads; i++) {
+				final ScanTask task = new ScanTask(lastRevision, maxNodeKey,
+						nextChunk, value ? newSorter(valueSorters) : null,
+						pathClass && !path ? newSorter(pathSorters) : null, mCAS && !path
+								? newSorter(casSorters) : null);
+				scans.add(pool.submit(task));
+			}
+
+			long firstPathNodeKey = 1;
+			if (path) {
+				pageWtx.resetIndex(EPage.PATHSUMMARYPAGE);
+				firstPathNodeKey = pageWtx.getActualRevisionRootPage()
+						.getMaxPathNodeKey() + 1;
+				rebuildPathSummary(wtx, maxNodeKey,
+						pathClass ? newSorter(pathSorters) : null,
+						mCAS ? newSorter(casSorters) : null);
+			}
+			for (final Future<Void> scan : scans) {
+				get(scan);
+			}
+
+			final long total = size(valueSorters) + size(pathSorters)
+					+ size(casSorters);
+			long loaded = 0;
+			if (value) {
+				pageWtx.resetIndex(EPage.VALUEPAGE);
+				loaded = load(BPlusTree.getInstance(pageWtx), valueSorters, pageWtx,
+						true, loaded, total);
+			}
+			if (mCAS) {
+				pageWtx.resetIndex(EPage.CASPAGE);
+				loaded = load(BPlusTree.getInstance(pageWtx, EPage.CASPAGE),
+						casSorters, pageWtx, false, loaded, total);
+			}
+			if (pathClass) {
+				loaded = loadPathClass(pageWtx, pathSorters, firstPathNodeKey,
+						loaded, total);
+			}
+			fireProgress(EIndexBuildPhase.LOAD, total, total);
+
+			final int revision = wtx.getRevisionNumber();
+			wtx.commit();
+			committed = true;
+			for (final IIndexBuildObserver observer : mObservers) {
+				observer.buildDone(revision);
+			}
+			return revision;
+		} finally {
+			pool.shutdownNow();
+			for (final ExternalSorter sorter : valueSorters) {
+				sorter.close();
+			}
+			for (final ExternalSorter sorter : pathSorters) {
+				sorter.close();
+			}
+			for (final ExternalSorter sorter : casSorters) {
+				sorter.close();
+			}
+			if (!committed) {
+				wtx.abort();
+			}
+			wtx.close();
+		}
+	}
+
+	/**
+	 * Rebuild the path summary in document order and extract the entries of the
+	 * path class and CAS indexes.
+	 * 
+	 * @param pWtx
+	 *          the write transaction
+	 * @param pMaxNodeKey
+	 *          maximum node key, to report the progress
+	 * @param pPathClass
+	 *          sorter of the path class entries or {@code null}
+	 * @param pCAS
+	 *          sorter of the CAS entries or {@code null}
+	 * @throws SirixException
+	 *           if an I/O error occurs
+	 */
+	private void rebuildPathSummary(final @Nonnull NodeWriteTrx pWtx,
+			final long pMaxNodeKey, final @Nullable ExternalSorter pPathClass,
+			final @Nullable ExternalSorter pCAS) throws SirixException {
+		final EntryExtractor extractor = new EntryExtractor(
+				pWtx.getPageTransaction(), null, pPathClass, pCAS);
+		long nodes = 0;
+		pWtx.moveToDocumentRoot();
+		for (final IAxis axis = new DescendantAxis(pWtx); axis.hasNext();) {
+			axis.next();
+			final INode node = pWtx.getNode();
+			if (node.getKind() == EKind.ELEMENT) {
+				final long nodeKey = node.getNodeKey();
+				extractor.extract(pWtx.reassignPathNodeKey(), (INode) pWtx.getNode());
+				final ElementNode element = (ElementNode) pWtx.getNode();
+				for (int i = 0, count = element.getNamespaceCount(); i < count; i++) {
+					pWtx.moveToNamespace(i);
+					extractor.extract(pWtx.reassignPathNodeKey(),
+							(INode) pWtx.getNode());
+					pWtx.moveTo(nodeKey);
+				}
+				for (int i = 0, count = element.getAttributeCount(); i < count; i++) {
+					pWtx.moveToAttribute(i);
+					extractor.extract(pWtx.reassignPathNodeKey(),
+							(INode) pWtx.getNode());
+					pWtx.moveTo(nodeKey);
+				}
+				nodes += 1 + element.getNamespaceCount() + element.getAttributeCount();
+			} else {
+				extractor.extract(-1, node);
+				nodes++;
+			}
+			if (nodes % REPORT_INTERVAL == 0) {
+				fireProgress(EIndexBuildPhase.PATH_SUMMARY, nodes, pMaxNodeKey + 1);
+			}
+		}
+		fireProgress(EIndexBuildPhase.PATH_SUMMARY, pMaxNodeKey + 1,
+				pMaxNodeKey + 1);
+	}
+
+	/**
+	 * Bulk load a value or CAS index.
+	 * 
+	 * @param pTree
+	 *          the empty index
+	 * @param pSorters
+	 *          sorters of the entries
+	 * @param pPageWtx
+	 *          the page write transaction
+	 * @param pValue
+	 *          {@code true} for the value index, whose entries reference the
+	 *          parent instead of the path node
+	 * @param pLoaded
+	 *          number of entries loaded so far
+	 * @param pTotal
+	 *          total number of entries
+	 * @return number of entries loaded so far
+	 * @throws SirixException
+	 *           if an I/O error occurs
+	 */
+	private long load(final @Nonnull BPlusTree pTree,
+			final @Nonnull List<ExternalSorter> pSorters,
+			final @Nonnull PageWriteTrx pPageWtx, final boolean pValue,
+			final long pLoaded, final long pTotal) throws SirixException {
+		final GroupIterator groups = new GroupIterator(
+				ExternalSorter.merge(pSorters), pPageWtx, pValue, pLoaded, pTotal);
+		try {
+			pTree.bulkLoad(groups);
+		} catch (final IllegalStateException e) {
+			if (e.getCause() instanceof SirixException) {
+				throw (SirixException) e.getCause();
+			}
+			throw e;
+		}
+		return groups.mLoaded;
+	}
+
+	/**
+	 * Load the path class index. A record is written for each path node of the
+	 * path summary, even if it is empty, such that former records are replaced.
+	 * 
+	 * @param pPageWtx
+	 *          the page write transaction
+	 * @param pSorters
+	 *          sorters of the entries, whose keys are the path node keys
+	 * @param pFirstPathNodeKey
+	 *          key of the first path node
+	 * @param pLoaded
+	 *          number of entries loaded so far
+	 * @param pTotal
+	 *          total number of entries
+	 * @return number of entries loaded so far
+	 * @throws SirixException
+	 *           if an I/O error occurs
+	 */
+	private long loadPathClass(final @Nonnull PageWriteTrx pPageWtx,
+			final @Nonnull List<ExternalSorter> pSorters,
+			final long pFirstPathNodeKey, final long pLoaded, final long pTotal)
+			throws SirixException {
+		long loaded = pLoaded;
+		final Iterator<ExternalSorter.Entry> entries = ExternalSorter
+				.merge(pSorters);
+		ExternalSorter.Entry entry = entries.hasNext() ? entries.next() : null;
+		final long maxPathNodeKey = pPageWtx.getActualRevisionRootPage()
+				.getMaxPathNodeKey();
+		for (long pathNodeKey = pFirstPathNodeKey; pathNodeKey <= maxPathNodeKey; pathNodeKey++) {
+			final Postings nodeKeys = new Postings();
+			while (entry != null && Longs.fromByteArray(entry.getKey()) == pathNodeKey) {
+				nodeKeys.add(entry.getNodeKey());
+				entry = entries.hasNext() ? entries.next() : null;
+				if (++loaded % REPORT_INTERVAL == 0) {
+					fireProgress(EIndexBuildPhase.LOAD, loaded, pTotal);
+				}
+			}
+			pPageWtx.createNode(new PathReferences(pathNodeKey, nodeKeys),
+					EPage.PATHINDEXPAGE);
+		}
+		checkState(entry == null, "Entry of an unknown path node!");
+		return loaded;
+	}
+
+	/**
+	 * Create a new sorter.
+	 * 
+	 * @param pSorters
+	 *          the sorters of the index, the new one is added to
+	 * @return the new sorter
+	 */
+	private ExternalSorter newSorter(final @Nonnull List<ExternalSorter> pSorters) {
+		final ExternalSorter sorter = new ExternalSorter(mDirectory, mRunSize);
+		pSorters.add(sorter);
+		return sorter;
+	}
+
+	/**
+	 * Get the number of entries of sorters.
+	 * 
+	 * @param pSorters
+	 *          the sorters
+	 * @return number of entries
+	 */
+	private static long size(final @Nonnull List<ExternalSorter> pSorters) {
+		long size = 0;
+		for (final ExternalSorter sorter : pSorters) {
+			size += sorter.size();
+		}
+		return size;
+	}
+
+	/**
+	 * Wait for a worker.
+	 * 
+	 * @param pFuture
+	 *          the future of the worker
+	 * @throws SirixException
+	 *           if the worker failed
+	 */
+	private static void get(final @Nonnull Future<Void> pFuture)
+			throws SirixException {
+		try {
+			pFuture.get();
+		} catch (final InterruptedException e) {
+			throw new SirixThreadedException(e);
+		} catch (final ExecutionException e) {
+			if (e.getCause() instanceof SirixException) {
+				throw (SirixException) e.getCause();
+			}
+			throw new SirixThreadedException(e);
+		}
+	}
+
+	/**
+	 * Count scanned node keys and report the progress of the scan.
+	 * 
+	 * @param pScanned
+	 *          number of node keys, which have been scanned
+	 * @param pTotal
+	 *          total number of node keys
+	 */
+	private synchronized void scanned(final long pScanned, final long pTotal) {
+		mScanned += pScanned;
+		fireProgress(EIndexBuildPhase.SCAN, mScanned, pTotal);
+	}
+
+	/**
+	 * Report progress to the observers.
+	 * 
+	 * @param pPhase
+	 *          the phase
+	 * @param pDone
+	 *          units of work done so far
+	 * @param pTotal
+	 *          total units of work
+	 */
+	private synchronized void fireProgress(final @Nonnull EIndexBuildPhase pPhase,
+			final long pDone, final long pTotal) {
+		for (final IIndexBuildObserver observer : mObservers) {
+			observer.progress(pPhase, pDone, pTotal);
+		}
+	}
+
+	/**
+	 * Extracts the entries of a node.
+	 */
+	private static final class EntryExtractor {
+
+		/** Page transaction to read the parents and match the CAS definitions. */
+		private final IPageReadTrx mPageTrx;
+
+		/** CAS index to match the definitions. */
+		private final CASIndex mCASIndex;
+
+		/** Sorter of the value entries or {@code null}. */
+		private final ExternalSorter mValue;
+
+		/** Sorter of the path class entries or {@code null}. */
+		private final ExternalSorter mPathClass;
+
+		/** Sorter of the CAS entries or {@code null}. */
+		private final ExternalSorter mCAS;
+
+		/** Types of the matching CAS definitions of the path nodes. */
+		private final Map<Long, Set<Type>> mTypes;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param pPageTrx
+		 *          page transaction to read the parents and match the CAS
+		 *          definitions
+		 * @param pValue
+		 *          sorter of the value entries or {@code null}
+		 * @param pPathClass
+		 *          sorter of the path class entries or {@code null}
+		 * @param pCAS
+		 *          sorter of the CAS entries or {@code null}
+		 */
+		private EntryExtractor(final @Nonnull IPageReadTrx pPageTrx,
+				final @Nullable ExternalSorter pValue,
+				final @Nullable ExternalSorter pPathClass,
+				final @Nullable ExternalSorter pCAS) {
+			mPageTrx = pPageTrx;
+			mCASIndex = pCAS == null ? null : CASIndex.getInstance(pPageTrx,
+					pPageTrx.getSession());
+			mValue = pValue;
+			mPathClass = pPathClass;
+			mCAS = pCAS;
+			mTypes = new HashMap<>();
+		}
+
+		/**
+		 * Extract the entries of a node.
+		 * 
+		 * @param pPathNodeKey
+		 *          key of the path node of a name node, or {@code -1} to use the
+		 *          one stored in the node
+		 * @param pNode
+		 *          the node
+		 * @throws SirixException
+		 *           if an I/O error occurs
+		 */
+		private void extract(final long pPathNodeKey, final @Nonnull INode pNode)
+				throws SirixException {
+			final long nodeKey = pNode.getNodeKey();
+			if (pNode instanceof INameNode) {
+				final long pathNodeKey = pPathNodeKey == -1 ? ((INameNode) pNode)
+						.getPathNodeKey() : pPathNodeKey;
+				if (mPathClass != null) {
+					mPathClass.add(Longs.toByteArray(pathNodeKey), nodeKey, -1);
+				}
+				if (mCAS != null && pNode.getKind() == EKind.ATTRIBUTE) {
+					extractCAS(pathNodeKey, (IValNode) pNode, nodeKey);
+				}
+			} else if (pNode.getKind() == EKind.TEXT) {
+				if (mValue != null) {
+					// The path node of the parent is looked up during the load.
+					mValue.add(((IValNode) pNode).getRawValue(), nodeKey,
+							pNode.getParentKey());
+				}
+				if (mCAS != null) {
+					final Optional<? extends INodeBase> parent = mPageTrx.getNode(
+							pNode.getParentKey(), EPage.NODEPAGE);
+					if (parent.isPresent() && parent.get() instanceof ElementNode) {
+						extractCAS(((ElementNode) parent.get()).getPathNodeKey(),
+								(IValNode) pNode, nodeKey);
+					}
+				}
+			}
+		}
+
+		/**
+		 * Extract the CAS entries of a value.
+		 * 
+		 * @param pPathNodeKey
+		 *          key of the path node
+		 * @param pNode
+		 *          the text node or attribute
+		 * @param pNodeKey
+		 *          key of the node
+		 * @throws SirixException
+		 *           if an I/O error occurs
+		 */
+		private void extractCAS(final long pPathNodeKey,
+				final @Nonnull IValNode pNode, final long pNodeKey)
+				throws SirixException {
+			Set<Type> types = mTypes.get(pPathNodeKey);
+			if (types == null) {
+				types = EnumSet.noneOf(Type.class);
+				for (final CASIndexDefinition definition : mCASIndex
+						.getDefinitions(pPathNodeKey)) {
+					types.add(definition.getType());
+				}
+				mTypes.put(pPathNodeKey, types);
+			}
+			if (!types.isEmpty()) {
+				final String value = new String(pNode.getRawValue(),
+						IConstants.DEFAULT_ENCODING);
+				for (final Type type : types) {
+					final Optional<byte[]> key = CASIndex.getKey(pPathNodeKey, type,
+							value);
+					if (key.isPresent()) {
+						mCAS.add(key.get(), pNodeKey, pPathNodeKey);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Scans node pages of a revision.
+	 */
+	private final class ScanTask implements Callable<Void> {
+
+		/** The revision to scan. */
+		private final int mRevision;
+
+		/** Maximum node key of the revision. */
+		private final long mMaxNodeKey;
+
+		/** Next chunk to scan, shared by the workers. */
+		private final AtomicLong mNextChunk;
+
+		/** Sorter of the value entries or {@code null}. */
+		private final ExternalSorter mValue;
+
+		/** Sorter of the path class entries or {@code null}. */
+		private final ExternalSorter mPathClass;
+
+		/** Sorter of the CAS entries or {@code null}. */
+		private final ExternalSorter mCAS;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param pRevision
+		 *          the revision to scan
+		 * @param pMaxNodeKey
+		 *          maximum node key of the revision
+		 * @param pNextChunk
+		 *          next chunk to scan, shared by the workers
+		 * @param pValue
+		 *          sorter of the value entries or {@code null}
+		 * @param pPathClass
+		 *          sorter of the path class entries or {@code null}
+		 * @param pCAS
+		 *          sorter of the CAS entries or {@code null}
+		 */
+		private ScanTask(final @Nonnegative int pRevision, final long pMaxNodeKey,
+				final @Nonnull AtomicLong pNextChunk,
+				final @Nullable ExternalSorter pValue,
+				final @Nullable ExternalSorter pPathClass,
+				final @Nullable ExternalSorter pCAS) {
+			mRevision = pRevision;
+			mMaxNodeKey = pMaxNodeKey;
+			mNextChunk = pNextChunk;
+			mValue = pValue;
+			mPathClass = pPathClass;
+			mCAS = pCAS;
+		}
+
+		@Override
+		public Void call() throws SirixException {
+			if (mValue == null && mPathClass == null && mCAS == null) {
+				return null;
+			}
+			try (final IPageReadTrx pageRtx = mSession.beginPageReadTrx(mRevision)) {
+				final EntryExtractor extractor = new EntryExtractor(pageRtx, mValue,
+						mPathClass, mCAS);
+				for (long chunk = mNextChunk.getAndIncrement(); chunk * SCAN_CHUNK <= mMaxNodeKey; chunk = mNextChunk
+						.getAndIncrement()) {
+					final long from = chunk * SCAN_CHUNK;
+					final long to = Math.min(mMaxNodeKey + 1, from + SCAN_CHUNK);
+					for (long nodeKey = from; nodeKey < to; nodeKey++) {
+						final Optional<? extends INodeBase> node = pageRtx.getNode(
+								nodeKey, EPage.NODEPAGE);
+						if (node.isPresent() && node.get() instanceof INode) {
+							extractor.extract(-1, (INode) node.get());
+						}
+					}
+					scanned(to - from, mMaxNodeKey + 1);
+					if (Thread.currentThread().isInterrupted()) {
+						throw new SirixThreadedException(new InterruptedException());
+					}
+				}
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * Groups the sorted entries by key into the entries of a value or CAS index.
+	 */
+	private final class GroupIterator extends
+			AbstractIterator<Map.Entry<TextValue, TextReferences>> {
+
+		/** The sorted entries. */
+		private final Iterator<ExternalSorter.Entry> mEntries;
+
+		/** Page transaction to look up the path nodes of the parents. */
+		private final IPageReadTrx mPageTrx;
+
+		/** Determines if the entries reference the parents. */
+		private final boolean mParents;
+
+		/** Total number of entries. */
+		private final long mTotal;
+
+		/** Number of entries loaded so far. */
+		private long mLoaded;
+
+		/** First entry of the next group. */
+		private ExternalSorter.Entry mNext;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param pEntries
+		 *          the sorted entries
+		 * @param pPageTrx
+		 *          page transaction to look up the path nodes of the parents
+		 * @param pParents
+		 *          determines if the entries reference the parents
+		 * @param pLoaded
+		 *          number of entries loaded so far
+		 * @param pTotal
+		 *          total number of entries
+		 */
+		private GroupIterator(final @Nonnull Iterator<ExternalSorter.Entry> pEntries,
+				final @Nonnull IPageReadTrx pPageTrx, final boolean pParents,
+				final long pLoaded, final long pTotal) {
+			mEntries = pEntries;
+			mPageTrx = pPageTrx;
+			mParents = pParents;
+			mLoaded = pLoaded;
+			mTotal = pTotal;
+			mNext = pEntries.hasNext() ? pEntries.next() : null;
+		}
+
+		@Override
+		protected Map.Entry<TextValue, TextReferences> computeNext() {
+			if (mNext == null) {
+				return endOfData();
+			}
+			final ExternalSorter.Entry first = mNext;
+			final Postings nodeKeys = new Postings();
+			do {
+				nodeKeys.add(mNext.getNodeKey());
+				mNext = mEntries.hasNext() ? mEntries.next() : null;
+				if (++mLoaded % REPORT_INTERVAL == 0) {
+					fireProgress(EIndexBuildPhase.LOAD, mLoaded, mTotal);
+				}
+			} while (mNext != null && Arrays.equals(mNext.getKey(), first.getKey()));
+
+			long pathNodeKey = first.getRefKey();
+			if (mParents) {
+				try {
+					final Optional<? extends INodeBase> parent = mPageTrx.getNode(
+							first.getRefKey(), EPage.NODEPAGE);
+					pathNodeKey = parent.isPresent() && parent.get() instanceof INameNode
+							? ((INameNode) parent.get()).getPathNodeKey() : 0;
+				} catch (final SirixException e) {
+					throw new IllegalStateException(e);
+				}
+			}
+			return Maps.immutableEntry(new TextValue(first.getKey(),
+					first.getNodeKey(), pathNodeKey), new TextReferences(nodeKeys,
+					first.getNodeKey()));
+		}
+	}
+
+	/**
+	 * Builder to configure an index build.
+	 */
+	public static final class Builder {
+
+		/** Session for an online build or {@code null}. */
+		private final ISession mSession;
+
+		/** Database for an offline build or {@code null}. */
+		private final IDatabase mDatabase;
+
+		/** Resource for an offline build or {@code null}. */
+		private final String mResource;
+
+		/** Indexes to build or {@code null} for the default. */
+		private Set<EIndexes> mIndexes;
+
+		/** Determines if the CAS indexes are rebuilt or {@code null} for the default. */
+		private Boolean mCAS;
+
+		/** CAS indexes to add. */
+		private final List<CASIndexDefinition> mCASIndexes = new ArrayList<>();
+
+		/** Number of scanning threads. */
+		private int mThreads = Runtime.getRuntime().availableProcessors();
+
+		/** Maximum number of entries, which are sorted in main memory per run. */
+		private int mRunSize = 1 << 18;
+
+		/** Observers of the progress. */
+		private final Set<IIndexBuildObserver> mObservers = new HashSet<>();
+
+		/**
+		 * Constructor for an online build, which rebuilds the indexes enabled in
+		 * the configuration of the session (by default all of them).
+		 * 
+		 * @param pSession
+		 *          the session
+		 */
+		public Builder(final @Nonnull ISession pSession) {
+			mSession = checkNotNull(pSession);
+			mDatabase = null;
+			mResource = null;
+		}
+
+		/**
+		 * Constructor for an offline build, which enables additional indexes of a
+		 * resource and builds them. The resource must not be opened by a session.
+		 * 
+		 * @param pDatabase
+		 *          the database
+		 * @param pResource
+		 *          name of the resource
+		 */
+		public Builder(final @Nonnull IDatabase pDatabase,
+				final @Nonnull String pResource) {
+			mSession = null;
+			mDatabase = checkNotNull(pDatabase);
+			mResource = checkNotNull(pResource);
+		}
+
+		/**
+		 * Set the indexes to build. An online build only rebuilds enabled
+		 * indexes, whereas an offline build enables them.
+		 * 
+		 * @param pIndexes
+		 *          indexes to build
+		 * @return reference to the builder object
+		 * @throws IllegalArgumentException
+		 *           if an online build should build an index, which is not
+		 *           enabled
+		 */
+		public Builder setIndexes(final @Nonnull Set<EIndexes> pIndexes) {
+			checkArgument(mSession == null
+					|| mSession.getResourceConfig().mIndexes.containsAll(pIndexes),
+					"Only enabled indexes can be rebuilt online!");
+			mIndexes = EnumSet.noneOf(EIndexes.class);
+			mIndexes.addAll(pIndexes);
+			return this;
+		}
+
+		/**
+		 * Determines if an online build rebuilds the CAS indexes (by default if
+		 * any is defined). They are always rebuilt with the path summary.
+		 * 
+		 * @param pCAS
+		 *          rebuild the CAS indexes or not
+		 * @return reference to the builder object
+		 * @throws IllegalStateException
+		 *           if the build is offline
+		 */
+		public Builder buildCASIndexes(final boolean pCAS) {
+			checkState(mSession != null, "Only for online builds!");
+			mCAS = pCAS;
+			return this;
+		}
+
+		/**
+		 * Add a CAS index, which is built offline along with the CAS indexes
+		 * already defined.
+		 * 
+		 * @param pPath
+		 *          path pattern of the indexed nodes
+		 * @param pType
+		 *          the type of the values
+		 * @return reference to the builder object
+		 * @throws IllegalStateException
+		 *           if the build is online
+		 * @throws IllegalArgumentException
+		 *           if the pattern is malformed or the type is not supported
+		 */
+		public Builder addCASIndex(final @Nonnull String pPath,
+				final @Nonnull Type pType) {
+			checkState(mSession == null, "Only for offline builds!");
+			mCASIndexes.add(new CASIndexDefinition(pPath, pType));
+			return this;
+		}
+
+		/**
+		 * Set the number of scanning threads.
+		 * 
+		 * @param pThreads
+		 *          number of threads (default: number of processors)
+		 * @return reference to the builder object
+		 */
+		public Builder setThreads(final @Nonnegative int pThreads) {
+			checkArgument(pThreads > 0, "pThreads must be > 0!");
+			mThreads = pThreads;
+			return this;
+		}
+
+		/**
+		 * Set the maximum number of entries, which are sorted in main memory per
+		 * run and thread, before they are spilled to a temporary file.
+		 * 
+		 * @param pRunSize
+		 *          number of entries (default: 2^18)
+		 * @return reference to the builder object
+		 */
+		public Builder setRunSize(final @Nonnegative int pRunSize) {
+			checkArgument(pRunSize > 0, "pRunSize must be > 0!");
+			mRunSize = pRunSize;
+			return this;
+		}
+
+		/**
+		 * Add an observer of the progress.
+		 * 
+		 * @param pObserver
+		 *          the observer
+		 * @return reference to the builder object
+		 */
+		public Builder addObserver(final @Nonnull IIndexBuildObserver pObserver) {
+			mObservers.add(checkNotNull(pObserver));
+			return this;
+		}
+	}
+}
@@ -24,10 +24,19 @@
  * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
-
 package org.sirix.access;
 
-import java.util.concurrent.ConcurrentMap;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+
+import org.sirix.exception.SirixThreadedException;
 
 /**
  * <h1>LockManager</h1>
@@ -36,255 +45,180 @@ import java.util.concurrent.ConcurrentMap;
  * 
  * <p>
  * Each {@code Session} owns a <code>LockManager</code> which keeps track of all
- * <code>WriteTransaction</code> and their respective transaction root nodes. The <code>LockManager</code>
- * checks for a new <code>WriteTransaction</code> if the requested subtree is currently free for use.
+ * <code>WriteTransaction</code>s and their respective transaction root nodes.
+ * A transaction root node is locked exclusively, all its ancestors are locked
+ * with intention locks. The <code>LockManager</code> checks for a new lock if
+ * the requested subtree is currently free for use, that is neither the node
+ * nor one of its ancestors is exclusively locked and no node in the subtree
+ * is locked by another <code>WriteTransaction</code>. Locks are released once
+ * the transaction commits, aborts or closes.
  * </p>
  * 
+ * @author Johannes Lichtenberger, University of Konstanz
+ * 
  */
+final class LockManager {
+
+	/** Exclusively locked transaction root nodes mapped to their transaction. */
+	private final Map<Long, Long> mExclusive;
+
+	/**
+	 * Intention locked nodes mapped to their transactions and the number of
+	 * locks each transaction holds.
+	 */
+	private final Map<Long, Map<Long, Integer>> mIntention;
+
+	/**
+	 * Transactions mapped to their transaction root nodes and the ancestors of
+	 * each root node.
+	 */
+	private final Map<Long, Map<Long, long[]>> mRoots;
+
+	/** Constructor. */
+	LockManager() {
+		mExclusive = new HashMap<>();
+		mIntention = new HashMap<>();
+		mRoots = new HashMap<>();
+	}
+
+	/**
+	 * Lock the subtree rooted at a node for a transaction.
+	 * 
+	 * @param pTrxID
+	 *          ID of the transaction
+	 * @param pNodeKey
+	 *          key of the transaction root node
+	 * @param pAncestors
+	 *          keys of all ancestors of the transaction root node
+	 * @throws SirixThreadedException
+	 *           if the subtree or one of its ancestors is locked by another
+	 *           transaction
+	 */
+	synchronized void lock(final @Nonnegative long pTrxID,
+			final @Nonnegative long pNodeKey, final @Nonnull long[] pAncestors)
+			throws SirixThreadedException {
+		// Locked already or a descendant of one of the own root nodes.
+		if (isLocked(pTrxID, pNodeKey)) {
+			return;
+		}
+		for (final long ancestor : pAncestors) {
+			if (isLocked(pTrxID, ancestor)) {
+				return;
+			}
+		}
+		final Map<Long, Integer> intentions = mIntention.get(pNodeKey);
+		if (intentions != null) {
+			for (final long trxID : intentions.keySet()) {
+				if (trxID != pTrxID) {
+					throw new SirixThreadedException("The subtree of node ",
+							String.valueOf(pNodeKey),
+							" is locked by another write transaction!");
+				}
+			}
+		}
+
+		mExclusive.put(pNodeKey, pTrxID);
+		for (final long ancestor : pAncestors) {
+			Map<Long, Integer> counts = mIntention.get(ancestor);
+			if (counts == null) {
+				counts = new HashMap<>();
+				mIntention.put(ancestor, counts);
+			}
+			final Integer count = counts.get(pTrxID);
+			counts.put(pTrxID, count == null ? 1 : count + 1);
+		}
+		Map<Long, long[]> roots = mRoots.get(pTrxID);
+		if (roots == null) {
+			roots = new HashMap<>();
+			mRoots.put(pTrxID, roots);
+		}
+		roots.put(pNodeKey, pAncestors.clone());
+	}
+
+	/**
+	 * Determines if a node is exclusively locked by a transaction.
+	 * 
+	 * @param pTrxID
+	 *          ID of the transaction
+	 * @param pNodeKey
+	 *          key of the node
+	 * @return {@code true}, if the node is locked by the transaction,
+	 *         {@code false} if it isn't locked at all
+	 * @throws SirixThreadedException
+	 *           if the node is locked by another transaction
+	 */
+	private boolean isLocked(final long pTrxID, final long pNodeKey)
+			throws SirixThreadedException {
+		final Long owner = mExclusive.get(pNodeKey);
+		if (owner == null) {
+			return false;
+		}
+		if (owner != pTrxID) {
+			throw new SirixThreadedException("Node ", String.valueOf(pNodeKey),
+					" is locked by another write transaction!");
+		}
+		return true;
+	}
+
+	/**
+	 * Release all locks of a transaction.
+	 * 
+	 * @param pTrxID
+	 *          ID of the transaction
+	 */
+	synchronized void unlock(final @Nonnegative long pTrxID) {
+		final Map<Long, long[]> roots = mRoots.remove(pTrxID);
+		if (roots == null) {
+			return;
+		}
+		for (final Entry<Long, long[]> root : roots.entrySet()) {
+			mExclusive.remove(root.getKey());
+			for (final long ancestor : root.getValue()) {
+				final Map<Long, Integer> counts = mIntention.get(ancestor);
+				final int count = counts.get(pTrxID);
+				if (count == 1) {
+					counts.remove(pTrxID);
+					if (counts.isEmpty()) {
+						mIntention.remove(ancestor);
+					}
+				} else {
+					counts.put(pTrxID, count - 1);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Get the transaction root nodes of a transaction.
+	 * 
+	 * @param pTrxID
+	 *          ID of the transaction
+	 * @return keys of the transaction root nodes
+	 */
+	synchronized Set<Long> getRoots(final @Nonnegative long pTrxID) {
+		final Map<Long, long[]> roots = mRoots.get(pTrxID);
+		return roots == null ? Collections.<Long> emptySet() : new HashSet<>(
+				roots.keySet());
+	}
 
-//public class LockManager {
-  
-  // // Locked nodes and transactionRootNodes of a LockManager
-//  private final ConcurrentMap<Long, Integer> mLockedReadNodes;
-  
-//  public LockManager() {
-//    mLockedReadNodes
-//  }
-  // private final HashMap<SynchWriteTransaction, Set<Long>> transactionRootNodes;
-  // private static LockManager lock;
-  //
-  // /**
-  // * The LockManager with HashMaps of locked nodes and used transaction root
-  // * nodes
-  // */
-  // private LockManager() {
-  // this.lockedNodes = new HashMap<Long, Integer>(128);
-  // this.transactionRootNodes = new HashMap<SynchWriteTransaction, Set<Long>>(128);
-  // }
-  //
-  // public static LockManager getLockManager() {
-  // if (lock == null) {
-  // lock = new LockManager();
-  // }
-  //
-  // return lock;
-  // }
-  //
-  // /**
-  // *
-  // * @param nodekey
-  // * ID of nodekey that is to be locked
-  // * @param swtx
-  // * The corresponing SynchWriteTransaction
-  // */
-  // public synchronized void getWritePermission(long nodekey, SynchWriteTransaction swtx) {
-  // // lock parent node
-  // if (swtx.moveToParent()) {
-  // long current = nodekey;
-  // nodekey = swtx.getCurrentNode().getKey();
-  // swtx.moveTo(current);
-  // }
-  //
-  // // first write operation or after intermediate commit, there may be no
-  // // registered trn
-  // if (!this.transactionRootNodes.containsKey(swtx)) {
-  // // try to conquer the node - will throw exception if unsuccessfull
-  // conquer(swtx, nodekey);
-  // } else { // there is a registered trn for this session,
-  // // but are we within our conquered part of the tree?
-  // if (isInTransactionSubtree(swtx, nodekey)) {
-  // return;
-  // } else { // obviously we are not in the subtree
-  // conquer(swtx, nodekey);
-  // }
-  // }
-  // }
-  //
-  // /**
-  // *
-  // * @param swtx
-  // * The locks of the Trn(s) of this SynchWriteTransaction will be
-  // * released
-  // */
-  // public synchronized void releaseWritePermission(SynchWriteTransaction swtx) {
-  // Set<Long> hset = transactionRootNodes.get(swtx);
-  // if (hset == null || hset.isEmpty()) {
-  // return;
-  // }
-  // Long[] trns = null;
-  // trns = hset.toArray(new Long[0]);
-  // for (Long trn : trns) {
-  // unlockAncestors(swtx, trn);
-  // }
-  // transactionRootNodes.remove(swtx);
-  // }
-  //
-  // private void conquer(SynchWriteTransaction swtx, long nodeToConquer) {
-  //
-  // if (!isConquerable(swtx, nodeToConquer)) {
-  // throw new IllegalStateException();
-  // }
-  //
-  // lockAncestors(swtx, nodeToConquer);
-  // registerTransactionRootNodeKey(swtx, nodeToConquer);
-  //
-  // }
-  //
-  // /**
-  // * isConquerable determines whether a node can be captured
-  // *
-  // * @param NodeToConquer
-  // * @return common ancestor nodekey if available, throws exception if not
-  // */
-  // private boolean isConquerable(SynchWriteTransaction swtx, long NodeToConquer) {
-  // /*
-  // * (1)Node locked? (2) Yes:Do locks originate only from own swtx? (3)
-  // * Yes:Unlock corresponding trns and lock nodeToConquer -> TRUE (4) No:
-  // * Locking not possible: FALSE (5) No: Is there an ancestor of trn
-  // * registered as trn? (6) Yes: Locking not possible: FALSE (7) No: Lock
-  // * nodeToConquer TRUE
-  // */
-  //
-  // if (lockedNodes.containsKey(NodeToConquer)) { // (1)
-  // Set<Long> hset = transactionRootNodes.get(swtx); // own trns
-  //
-  // if (hset == null || hset.isEmpty()) {
-  // return false;
-  // }
-  //
-  // // Check if locks originate from own swtx (2)
-  // int ownLockCount = 0;
-  //
-  // Long[] trns = null;
-  // trns = hset.toArray(new Long[1]);
-  //
-  // for (Long trn : trns) {
-  // swtx.moveTo(trn);
-  // if (swtx.getCurrentNode().getKey() == NodeToConquer) {
-  // ownLockCount++;
-  // }
-  // while (swtx.moveTo(swtx.getCurrentNode().getParentKey())) {
-  // if (swtx.getCurrentNode().getKey() == NodeToConquer) {
-  // ownLockCount++;
-  // }
-  // }
-  // }
-  // if (ownLockCount == lockedNodes.get(NodeToConquer)) { // (3)
-  // return true;
-  // } else { // (4)
-  // return false;
-  // }
-  // }
-  //
-  // // (5)
-  // swtx.moveTo(NodeToConquer);
-  // Set<SynchWriteTransaction> keyset = transactionRootNodes.keySet(); // get
-  // // all
-  // // swtx
-  // while (swtx.moveToParent()) {
-  // Iterator iterate = keyset.iterator();
-  // long currentNodekey = swtx.getCurrentNode().getKey();
-  // while (iterate.hasNext()) {
-  // Set valueset = transactionRootNodes.get(iterate.next());
-  // if (valueset.contains(currentNodekey)) {
-  // return false; // (6)
-  // }
-  // }
-  // }
-  //
-  // return true; // (7)
-  // }
-  //
-  // /*
-  // * Increments the lock count of the nodekey <code>key</code> by 1. Creates
-  // * new entry in HashMap if the key is not present yet.
-  // *
-  // * @param key The key of the node to lock
-  // *
-  // * @return
-  // */
-  // private void lockKey(long key) {
-  // if (lockedNodes.containsKey(key)) {
-  // lockedNodes.put(key, lockedNodes.get(key) + 1);
-  // } else {
-  // lockedNodes.put(key, 1);
-  // }
-  // }
-  //
-  // /*
-  // * Decrements the lock count of the nodekey <code>key</code> by 1. Removes
-  // * the entry in HashMap if the lock count would become 0.
-  // *
-  // * @param key The key of the node to unlock
-  // */
-  // private void unlockKey(long key) {
-  // if (lockedNodes.containsKey(key)) {
-  // if (lockedNodes.get(key) > 1) {
-  // lockedNodes.put(key, lockedNodes.get(key) - 1);
-  // return;
-  // } else if (lockedNodes.get(key) == 1) {
-  // lockedNodes.remove(key);
-  // return;
-  // }
-  // }
-  // throw new IllegalStateException("Key not in hashmap: " + key);
-  // }
-  //
-  // /*
-  // * Adds a nodekey to the list of transation root nodes
-  // *
-  // * @param key Nodekey to add to the list
-  // */
-  // private void registerTransactionRootNodeKey(SynchWriteTransaction swtx, long key) {
-  // if (!this.transactionRootNodes.containsKey(swtx)) {
-  // this.transactionRootNodes.put(swtx, new HashSet<Long>());
-  // }
-  // this.transactionRootNodes.get(swtx).add(key);
-  // }
-  //
-  // /*
-  // * checks if a node is within a subtree of the same wtx
-  // */
-  // private boolean isInTransactionSubtree(SynchWriteTransaction swtx, long nodeKey) {
-  // long current = swtx.getCurrentNode().getKey();
-  // if (transactionRootNodes.get(swtx).contains(nodeKey)) { // node is a trn
-  // return true;
-  // }
-  // while (swtx.moveTo(swtx.getCurrentNode().getParentKey())) { // check
-  // // ancestors
-  // if (transactionRootNodes.get(swtx).contains(swtx.getCurrentNode().getKey())) {
-  // swtx.moveTo(current);
-  // return true;
-  // }
-  // }
-  // swtx.moveTo(current); // not in subtree
-  // return false;
-  // }
-  //
-  // /*
-  // * Locks nodeToLock and all its ancestors for the given session
-  // */
-  // private void lockAncestors(SynchWriteTransaction swtx, long nodeToLock) {
-  // long current = swtx.getCurrentNode().getKey();
-  // swtx.moveTo(nodeToLock);
-  // // lock trk and all its parents
-  // lockKey(nodeToLock);
-  // if (swtx.moveTo(swtx.getCurrentNode().getParentKey())) {
-  // lockKey(swtx.getCurrentNode().getKey());
-  // }
-  // swtx.moveTo(current);
-  // }
-  //
-  // /*
-  // * Unlocks nodeToUnlock and all its ancestors
-  // */
-  // private void unlockAncestors(SynchWriteTransaction swtx, long nodeToUnlock) {
-  // long current = swtx.getCurrentNode().getKey();
-  // swtx.moveTo(nodeToUnlock);
-  // unlockKey(swtx.getCurrentNode().getKey());
-  // while (swtx.moveTo(swtx.getCurrentNode().getParentKey())) {
-  // unlockKey(swtx.getCurrentNode().getKey());
-  // }
-  // swtx.moveTo(current);
-  // }
-//}
+	/**
+	 * Get the intention locked ancestors of the transaction root nodes of a
+	 * transaction.
+	 * 
+	 * @param pTrxID
+	 *          ID of the transaction
+	 * @return keys of the ancestors
+	 */
+	synchronized Set<Long> getAncestors(final @Nonnegative long pTrxID) {
+		final Set<Long> ancestors = new HashSet<>();
+		final Map<Long, long[]> roots = mRoots.get(pTrxID);
+		if (roots != null) {
+			for (final long[] keys : roots.values()) {
+				for (final long key : keys) {
+					ancestors.add(key);
+				}
+			}
+		}
+		return ancestors;
+	}
+}
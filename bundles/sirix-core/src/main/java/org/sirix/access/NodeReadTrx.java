@@ -381,6 +381,7 @@ final class NodeReadTrx implements INodeReadTrx {
 	 * 
 	 * @return current {@link IPageReadTrx}
 	 */
+	@Override
 	public IPageReadTrx getPageTransaction() {
 		assertNotClosed();
 		return mPageReadTrx;
@@ -28,15 +28,25 @@
 package org.sirix.access;
 
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
 
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
@@ -70,19 +80,23 @@ import org.sirix.exception.SirixException;
 import org.sirix.exception.SirixIOException;
 import org.sirix.exception.SirixThreadedException;
 import org.sirix.exception.SirixUsageException;
+import org.sirix.index.cas.CASIndex;
 import org.sirix.index.path.PathNode;
+import org.sirix.index.path.PathIndex;
 import org.sirix.index.path.PathSummary;
-import org.sirix.index.value.AVLTree;
+import org.sirix.index.value.BPlusTree;
 import org.sirix.node.AttributeNode;
 import org.sirix.node.DocumentRootNode;
 import org.sirix.node.EKind;
 import org.sirix.node.ElementNode;
 import org.sirix.node.NamespaceNode;
+import org.sirix.node.Postings;
 import org.sirix.node.TextNode;
 import org.sirix.node.TextReferences;
 import org.sirix.node.TextValue;
 import org.sirix.node.interfaces.INameNode;
 import org.sirix.node.interfaces.INode;
+import org.sirix.node.interfaces.INodeBase;
 import org.sirix.node.interfaces.IStructNode;
 import org.sirix.node.interfaces.IValNode;
 import org.sirix.page.EPage;
@@ -99,7 +113,7 @@ import org.sirix.utils.XMLToken;
 import com.google.common.base.Objects;
 import com.google.common.base.Optional;
 import com.google.common.hash.HashFunction;
-import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.Futures;
 
 /**
  * <h1>NodeWriteTrx</h1>
@@ -147,8 +161,8 @@ final class NodeWriteTrx extends AbsForwardingNodeReadTrx implements
 		SETNAME,
 	}
 
-	/** MD5 hash-function. */
-	private final HashFunction mHash = Hashing.md5();
+	/** Hash function of the resource. */
+	private final HashFunction mHash;
 
 	/** Prime for computing the hash. */
 	private static final int PRIME = 77081;
@@ -162,10 +176,25 @@ final class NodeWriteTrx extends AbsForwardingNodeReadTrx implements
 	/** Hash kind of Structure. */
 	private final EHashKind mHashKind;
 
+	/**
+	 * Determines if the rolling hash and descendant count updates of the
+	 * ancestors of inserted nodes are deferred.
+	 */
+	private final boolean mDeferHashes;
+
+	/** Deferred hash and descendant count updates of each ancestor. */
+	private final Map<Long, AncestorUpdate> mAncestorUpdates = new HashMap<>();
+
 	/** Scheduled executor service. */
 	private final ScheduledExecutorService mPool = Executors
 			.newScheduledThreadPool(Runtime.getRuntime().availableProcessors());
 
+	/** Single thread, which commits revisions in the background. */
+	private ExecutorService mCommitPool;
+
+	/** Outstanding asynchronous commit. */
+	private Optional<Future<Integer>> mAsyncCommit = Optional.absent();
+
 	/** {@link NodeReadTrx} reference. */
 	private final NodeReadTrx mNodeRtx;
 
@@ -181,12 +210,21 @@ final class NodeWriteTrx extends AbsForwardingNodeReadTrx implements
 	/** {@link PathSummary} instance. */
 	private PathSummary mPathSummary;
 
-	/** {@link AVLTree} instance. */
-	private AVLTree<TextValue, TextReferences> mAVLTree;
+	/** {@link BPlusTree} value index instance. */
+	private BPlusTree mValueIndex;
+
+	/** {@link PathIndex} path class index instance. */
+	private PathIndex mPathIndex;
+
+	/** {@link CASIndex} typed content and structure index instance. */
+	private CASIndex mCASIndex;
 
 	/** Indexes structures used during updates. */
 	private final Set<EIndexes> mIndexes;
 
+	/** Determines if CAS indexes are defined. */
+	private final boolean mHasCASIndexes;
+
 	/** {@link NodeFactory} to be able to create nodes. */
 	private NodeFactory mNodeFactory;
 
@@ -202,6 +240,15 @@ final class NodeWriteTrx extends AbsForwardingNodeReadTrx implements
 		NO
 	}
 
+	/** Deferred update of an ancestor. */
+	private static final class AncestorUpdate {
+		/** Summand of the hash. */
+		private long mHash;
+
+		/** Summand of the descendant count. */
+		private long mDescendantCount;
+	}
+
 	/**
 	 * Constructor.
 	 * 
@@ -246,7 +293,14 @@ final class NodeWriteTrx extends AbsForwardingNodeReadTrx implements
 			mPathSummary = PathSummary.getInstance(pPageWriteTrx, pSession);
 		}
 		if (mIndexes.contains(EIndexes.VALUE)) {
-			mAVLTree = AVLTree.<TextValue, TextReferences> getInstance(pPageWriteTrx);
+			mValueIndex = BPlusTree.getInstance(pPageWriteTrx);
+		}
+		if (mIndexes.contains(EIndexes.PATH_CLASS)) {
+			mPathIndex = PathIndex.getInstance(pPageWriteTrx);
+		}
+		mHasCASIndexes = !mNodeRtx.mSession.mResourceConfig.mCASIndexes.isEmpty();
+		if (mHasCASIndexes) {
+			mCASIndex = CASIndex.getInstance(pPageWriteTrx, pSession);
 		}
 
 		// Node factory.
@@ -266,6 +320,9 @@ final class NodeWriteTrx extends AbsForwardingNodeReadTrx implements
 		}
 
 		mHashKind = pSession.mResourceConfig.mHashKind;
+		mHash = pSession.mResourceConfig.mHashFunction.getFunction();
+		mDeferHashes = pSession.mSessionConfig.mDeferHashes
+				&& mHashKind == EHashKind.Rolling;
 
 		// Synchronize commit and other public methods if needed.
 		if (pMaxTime > 0) {
@@ -298,6 +355,29 @@ final class NodeWriteTrx extends AbsForwardingNodeReadTrx implements
 		}
 	}
 
+	@Override
+	public INodeWriteTrx lockSubtree() throws SirixException {
+		acquireLock();
+		try {
+			mNodeRtx.assertNotClosed();
+			final long nodeKey = getNode().getNodeKey();
+			final List<Long> ancestors = new ArrayList<>();
+			while (getNode().hasParent() && moveTo(getNode().getParentKey())) {
+				ancestors.add(getNode().getNodeKey());
+			}
+			moveTo(nodeKey);
+			final long[] ancestorKeys = new long[ancestors.size()];
+			for (int i = 0; i < ancestorKeys.length; i++) {
+				ancestorKeys[i] = ancestors.get(i);
+			}
+			mNodeRtx.mSession.mLockManager.lock(getTransactionID(), nodeKey,
+					ancestorKeys);
+			return this;
+		} finally {
+			unLock();
+		}
+	}
+
 	@Override
 	public INodeWriteTrx moveSubtreeToFirstChild(final @Nonnegative long pFromKey)
 			throws SirixException, IllegalArgumentException {
@@ -310,6 +390,7 @@ final class NodeWriteTrx extends AbsForwardingNodeReadTrx implements
 				throw new IllegalArgumentException(
 						"Can't move itself to right sibling of itself!");
 			}
+			applyAncestorUpdates();
 
 			@SuppressWarnings("unchecked")
 			final Optional<? extends INode> node = (Optional<? extends INode>) getPageTransaction()
@@ -384,6 +465,7 @@ final class NodeWriteTrx extends AbsForwardingNodeReadTrx implements
 				throw new IllegalArgumentException(
 						"Can't move itself to first child of itself!");
 			}
+			applyAncestorUpdates();
 
 			// Save: Every node in the "usual" node page is of type INode.
 			@SuppressWarnings("unchecked")
@@ -466,6 +548,11 @@ final class NodeWriteTrx extends AbsForwardingNodeReadTrx implements
 		assert pToNode != null;
 		assert pInsert != null;
 
+		// Values of text nodes are indexed under the path of their parent.
+		if (pFromNode.getKind() == EKind.TEXT) {
+			unindexCAS(pFromNode);
+		}
+
 		// Modify nodes where the subtree has been moved from.
 		// ==============================================================================
 		final IStructNode parent = (IStructNode) getPageTransaction()
@@ -570,6 +657,16 @@ final class NodeWriteTrx extends AbsForwardingNodeReadTrx implements
 		// Modify nodes where the subtree has been moved to.
 		// ==============================================================================
 		pInsert.processMove(pFromNode, pToNode, this);
+
+		// The moved text node might have been merged with a sibling.
+		if (pFromNode.getKind() == EKind.TEXT) {
+			final Optional<? extends INodeBase> moved = getPageTransaction().getNode(
+					pFromNode.getNodeKey(), EPage.NODEPAGE);
+			if (moved.isPresent() && moved.get() instanceof INode
+					&& ((INode) moved.get()).getKind() == EKind.TEXT) {
+				indexCAS((INode) moved.get());
+			}
+		}
 	}
 
 	/**
@@ -634,6 +731,7 @@ final class NodeWriteTrx extends AbsForwardingNodeReadTrx implements
 				adaptForInsert(node, EInsertPos.ASFIRSTCHILD, EPage.NODEPAGE);
 				mNodeRtx.setCurrentNode(node);
 				adaptHashesWithAdd();
+				indexPath(node);
 
 				return this;
 			} else {
@@ -691,6 +789,40 @@ final class NodeWriteTrx extends AbsForwardingNodeReadTrx implements
 		}
 	}
 
+	/**
+	 * Assign the path node of the current element, attribute or namespace anew,
+	 * while the {@link IndexBuilder} rebuilds the path summary in document
+	 * order, that is the path node of the parent has already been assigned.
+	 * 
+	 * @return the new path node key
+	 * @throws SirixException
+	 *           if an I/O error occurs
+	 * @throws IllegalStateException
+	 *           if the path summary is not enabled or the current node is no
+	 *           name node
+	 */
+	long reassignPathNodeKey() throws SirixException {
+		checkState(mIndexes.contains(EIndexes.PATH),
+				"The path summary is not enabled!");
+		acquireLock();
+		try {
+			checkState(mNodeRtx.getNode() instanceof INameNode,
+					"The current node is no name node!");
+			final INameNode node = (INameNode) mNodeRtx.getNode();
+			final QName qName = getQNameOfCurrentNode();
+			mNodeRtx.moveTo(node.getParentKey());
+			final long pathNodeKey = getPathNodeKey(qName, node.getKind());
+			final INameNode modified = (INameNode) getPageTransaction()
+					.prepareNodeForModification(node.getNodeKey(), EPage.NODEPAGE);
+			modified.setPathNodeKey(pathNodeKey);
+			getPageTransaction().finishNodeModification(modified, EPage.NODEPAGE);
+			mNodeRtx.setCurrentNode(modified);
+			return pathNodeKey;
+		} finally {
+			unLock();
+		}
+	}
+
 	@Override
 	public INodeWriteTrx insertElementAsLeftSibling(final @Nonnull QName pQName)
 			throws SirixException {
@@ -718,6 +850,7 @@ final class NodeWriteTrx extends AbsForwardingNodeReadTrx implements
 				adaptForInsert(node, EInsertPos.ASLEFTSIBLING, EPage.NODEPAGE);
 				mNodeRtx.setCurrentNode(node);
 				adaptHashesWithAdd();
+				indexPath(node);
 
 				return this;
 			} else {
@@ -756,6 +889,7 @@ final class NodeWriteTrx extends AbsForwardingNodeReadTrx implements
 				adaptForInsert(node, EInsertPos.ASRIGHTSIBLING, EPage.NODEPAGE);
 				mNodeRtx.setCurrentNode(node);
 				adaptHashesWithAdd();
+				indexPath(node);
 
 				return this;
 			} else {
@@ -798,6 +932,7 @@ final class NodeWriteTrx extends AbsForwardingNodeReadTrx implements
 				addParentHash(startNode);
 			}
 			moveTo(nodeKey);
+			applyAncestorUpdates();
 			mBulkInsert = false;
 		} finally {
 			unLock();
@@ -868,23 +1003,15 @@ final class NodeWriteTrx extends AbsForwardingNodeReadTrx implements
 			final IStructNode parent = mNodeRtx.getParent().get();
 			final long pathNodeKey = parent instanceof INameNode ? ((INameNode) parent)
 					.getPathNodeKey() : 0;
-			final IPageWriteTrx pageTrx = getPageTransaction();
-			final TextValue textVal = (TextValue) pageTrx.createNode(new TextValue(
-					pValue, pageTrx.getActualRevisionRootPage().getMaxValueNodeKey() + 1,
-					pathNodeKey), EPage.VALUEPAGE);
-			final Optional<TextReferences> textReferences = mAVLTree.get(textVal);
-			if (textReferences.isPresent()) {
-				final TextReferences references = textReferences.get();
-				references.setNodeKey(mNodeRtx.getNode().getNodeKey());
-				mAVLTree.index(textVal, references);
-			} else {
-				final TextReferences textRef = (TextReferences) pageTrx.createNode(
-						new TextReferences(new HashSet<Long>(), pageTrx
-								.getActualRevisionRootPage().getMaxValueNodeKey() + 1),
-						EPage.VALUEPAGE);
-				mAVLTree.index(textVal, textRef);
-			}
+			final long nodeKey = mNodeRtx.getNode().getNodeKey();
+			final TextValue textVal = new TextValue(pValue, nodeKey, pathNodeKey);
+			final Optional<TextReferences> textReferences = mValueIndex.get(textVal);
+			final TextReferences references = textReferences.isPresent() ? textReferences
+					.get() : new TextReferences(new Postings(), nodeKey);
+			references.setNodeKey(nodeKey);
+			mValueIndex.index(textVal, references);
 		}
+		indexCAS(mNodeRtx.getNode());
 	}
 
 	@Override
@@ -937,7 +1064,7 @@ final class NodeWriteTrx extends AbsForwardingNodeReadTrx implements
 				adaptHashesWithAdd();
 
 				// Index text value.
-				// indexText(value);
+				indexText(value);
 
 				return this;
 			} else {
@@ -1083,6 +1210,8 @@ final class NodeWriteTrx extends AbsForwardingNodeReadTrx implements
 
 				mNodeRtx.setCurrentNode(node);
 				adaptHashesWithAdd();
+				indexPath(node);
+				indexCAS(node);
 				if (pMove == EMove.TOPARENT) {
 					moveToParent();
 				}
@@ -1141,6 +1270,7 @@ final class NodeWriteTrx extends AbsForwardingNodeReadTrx implements
 
 				mNodeRtx.setCurrentNode(node);
 				adaptHashesWithAdd();
+				indexPath(node);
 				if (pMove == EMove.TOPARENT) {
 					moveToParent();
 				}
@@ -1179,11 +1309,21 @@ final class NodeWriteTrx extends AbsForwardingNodeReadTrx implements
 		checkAccessAndCommit();
 		acquireLock();
 		try {
+			// The hash and descendant count of the node must be up to date.
+			applyAncestorUpdates();
 			if (getNode().getKind() == EKind.DOCUMENT_ROOT) {
 				throw new SirixUsageException("Document root can not be removed.");
 			} else if (getNode() instanceof IStructNode) {
 				final IStructNode node = (IStructNode) mNodeRtx.getNode();
 
+				// Attributes and namespaces of the subtree root are not removed
+				// below, but must not be found through the path class index.
+				if (node.getKind() == EKind.ELEMENT) {
+					unindexNonStructuralPaths((ElementNode) node);
+				} else if (node.getKind() == EKind.TEXT) {
+					unindexCAS(node);
+				}
+
 				// Remove subtree.
 				for (final IAxis axis = new PostOrderAxis(this); axis.hasNext();) {
 					axis.next();
@@ -1193,6 +1333,8 @@ final class NodeWriteTrx extends AbsForwardingNodeReadTrx implements
 						final ElementNode element = (ElementNode) nodeToDelete;
 						removeName();
 						removeNonStructural(element);
+					} else if (nodeToDelete.getKind() == EKind.TEXT) {
+						unindexCAS(nodeToDelete);
 					}
 					getPageTransaction().removeNode(nodeToDelete, EPage.NODEPAGE);
 				}
@@ -1222,6 +1364,7 @@ final class NodeWriteTrx extends AbsForwardingNodeReadTrx implements
 				}
 			} else if (getNode().getKind() == EKind.ATTRIBUTE) {
 				final INode node = mNodeRtx.getNode();
+				unindexCAS(node);
 
 				final ElementNode parent = (ElementNode) getPageTransaction()
 						.prepareNodeForModification(node.getParentKey(), EPage.NODEPAGE);
@@ -1263,6 +1406,7 @@ final class NodeWriteTrx extends AbsForwardingNodeReadTrx implements
 		final int attCount = pElement.getAttributeCount();
 		for (int i = 0; i < attCount; i++) {
 			moveToAttribute(i);
+			unindexCAS(getNode());
 			removeName();
 			getPageTransaction().removeNode(getNode(), EPage.NODEPAGE);
 			moveToParent();
@@ -1291,6 +1435,7 @@ final class NodeWriteTrx extends AbsForwardingNodeReadTrx implements
 				.getActualRevisionRootPage().getNamePageReference().getPage());
 		page.removeName(node.getNameKey(), nodeKind);
 		page.removeName(node.getURIKey(), EKind.NAMESPACE);
+		unindexPath(node);
 
 		assert nodeKind != EKind.DOCUMENT_ROOT;
 		if (mIndexes.contains(EIndexes.PATH)
@@ -1399,6 +1544,7 @@ final class NodeWriteTrx extends AbsForwardingNodeReadTrx implements
 					page.removeName(oldUriKey, EKind.NAMESPACE);
 
 					// Set new keys for current node.
+					final long oldPathNodeKey = node.getPathNodeKey();
 					node = (INameNode) getPageTransaction().prepareNodeForModification(
 							node.getNodeKey(), EPage.NODEPAGE);
 					node.setNameKey(nameKey);
@@ -1406,6 +1552,8 @@ final class NodeWriteTrx extends AbsForwardingNodeReadTrx implements
 					node.setPathNodeKey(mIndexes.contains(EIndexes.PATH) ? mPathSummary
 							.getNode().getNodeKey() : 0);
 					getPageTransaction().finishNodeModification(node, EPage.NODEPAGE);
+					reindexPath(oldPathNodeKey, node);
+					reindexCASSubtree(oldPathNodeKey, node);
 
 					mNodeRtx.setCurrentNode(node);
 					adaptHashedWithUpdate(oldHash);
@@ -1753,8 +1901,10 @@ final class NodeWriteTrx extends AbsForwardingNodeReadTrx implements
 			final INameNode node = (INameNode) getPageTransaction()
 					.prepareNodeForModification(mNodeRtx.getNode().getNodeKey(),
 							EPage.NODEPAGE);
+			final long oldPathNodeKey = node.getPathNodeKey();
 			node.setPathNodeKey(mPathSummary.getPathNode().getNodeKey());
 			getPageTransaction().finishNodeModification(node, EPage.NODEPAGE);
+			reindexPath(oldPathNodeKey, node);
 		} else {
 			throw new IllegalStateException();
 		}
@@ -1795,8 +1945,238 @@ final class NodeWriteTrx extends AbsForwardingNodeReadTrx implements
 			throws SirixException {
 		final INameNode currNode = (INameNode) getPageTransaction()
 				.prepareNodeForModification(pNodeKey, EPage.NODEPAGE);
+		final long oldPathNodeKey = currNode.getPathNodeKey();
 		currNode.setPathNodeKey(mPathSummary.getNode().getNodeKey());
 		getPageTransaction().finishNodeModification(currNode, EPage.NODEPAGE);
+		reindexPath(oldPathNodeKey, currNode);
+	}
+
+	/**
+	 * Add a node to the path class index.
+	 * 
+	 * @param pNode
+	 *          the node, whose path node key is set
+	 * @throws SirixIOException
+	 *           if an I/O error occurs
+	 */
+	private void indexPath(final @Nonnull INameNode pNode)
+			throws SirixIOException {
+		if (mIndexes.contains(EIndexes.PATH_CLASS)) {
+			mPathIndex.index(pNode.getPathNodeKey(), pNode.getNodeKey());
+		}
+	}
+
+	/**
+	 * Remove a node from the path class index.
+	 * 
+	 * @param pNode
+	 *          the node, whose path node key is set
+	 * @throws SirixIOException
+	 *           if an I/O error occurs
+	 */
+	private void unindexPath(final @Nonnull INameNode pNode)
+			throws SirixIOException {
+		if (mIndexes.contains(EIndexes.PATH_CLASS)) {
+			mPathIndex.remove(pNode.getPathNodeKey(), pNode.getNodeKey());
+		}
+	}
+
+	/**
+	 * Move a node to another path in the path class and CAS indexes.
+	 * 
+	 * @param pOldPathNodeKey
+	 *          the path node key before the modification
+	 * @param pNode
+	 *          the node, whose new path node key is set
+	 * @throws SirixIOException
+	 *           if an I/O error occurs
+	 */
+	private void reindexPath(final @Nonnegative long pOldPathNodeKey,
+			final @Nonnull INameNode pNode) throws SirixIOException {
+		if (pOldPathNodeKey != pNode.getPathNodeKey()) {
+			if (mIndexes.contains(EIndexes.PATH_CLASS)) {
+				mPathIndex.remove(pOldPathNodeKey, pNode.getNodeKey());
+				mPathIndex.index(pNode.getPathNodeKey(), pNode.getNodeKey());
+			}
+			reindexCAS(pOldPathNodeKey, pNode);
+		}
+	}
+
+	/**
+	 * Add the value of a text node or an attribute to the CAS indexes, whose
+	 * definitions match the path class of the attribute or the parent element.
+	 * 
+	 * @param pNode
+	 *          the node
+	 * @throws SirixIOException
+	 *           if an I/O error occurs
+	 */
+	private void indexCAS(final @Nonnull INode pNode) throws SirixIOException {
+		if (mHasCASIndexes) {
+			final long pathNodeKey = getCASPathNodeKey(pNode);
+			if (pathNodeKey >= 0) {
+				mCASIndex.index(pathNodeKey, getCASValue(pNode), pNode.getNodeKey());
+			}
+		}
+	}
+
+	/**
+	 * Remove the value of a text node or an attribute from the CAS indexes.
+	 * 
+	 * @param pNode
+	 *          the node
+	 * @throws SirixIOException
+	 *           if an I/O error occurs
+	 */
+	private void unindexCAS(final @Nonnull INode pNode) throws SirixIOException {
+		if (mHasCASIndexes) {
+			final long pathNodeKey = getCASPathNodeKey(pNode);
+			if (pathNodeKey >= 0) {
+				mCASIndex.remove(pathNodeKey, getCASValue(pNode), pNode.getNodeKey());
+			}
+		}
+	}
+
+	/**
+	 * Move the values of an element's text children or of an attribute to the
+	 * current path class of the node in the CAS indexes. The definitions are
+	 * matched again, even if the path node key hasn't changed.
+	 * 
+	 * @param pOldPathNodeKey
+	 *          the path node key, under which the values are indexed
+	 * @param pNode
+	 *          the element or attribute
+	 * @throws SirixIOException
+	 *           if an I/O error occurs
+	 */
+	private void reindexCAS(final @Nonnegative long pOldPathNodeKey,
+			final @Nonnull INameNode pNode) throws SirixIOException {
+		if (!mHasCASIndexes) {
+			return;
+		}
+		if (pNode.getKind() == EKind.ATTRIBUTE) {
+			final String value = getCASValue(pNode);
+			mCASIndex.remove(pOldPathNodeKey, value, pNode.getNodeKey());
+			mCASIndex.index(pNode.getPathNodeKey(), value, pNode.getNodeKey());
+		} else if (pNode.getKind() == EKind.ELEMENT) {
+			long key = ((IStructNode) pNode).getFirstChildKey();
+			while (key != EFixed.NULL_NODE_KEY.getStandardProperty()) {
+				final IStructNode child = (IStructNode) getPageTransaction().getNode(
+						key, EPage.NODEPAGE).get();
+				if (child.getKind() == EKind.TEXT) {
+					final String value = getCASValue(child);
+					mCASIndex.remove(pOldPathNodeKey, value, key);
+					mCASIndex.index(pNode.getPathNodeKey(), value, key);
+				}
+				key = child.getRightSiblingKey();
+			}
+		}
+	}
+
+	/**
+	 * Match the CAS index definitions again for a renamed node and its subtree,
+	 * as path nodes are possibly renamed in place.
+	 * 
+	 * @param pOldPathNodeKey
+	 *          the path node key of the node before it has been renamed
+	 * @param pNode
+	 *          the renamed node
+	 * @throws SirixIOException
+	 *           if an I/O error occurs
+	 */
+	private void reindexCASSubtree(final @Nonnegative long pOldPathNodeKey,
+			final @Nonnull INameNode pNode) throws SirixIOException {
+		if (!mHasCASIndexes) {
+			return;
+		}
+		reindexCAS(pOldPathNodeKey, pNode);
+		if (pNode.getKind() != EKind.ELEMENT) {
+			return;
+		}
+		final Deque<Long> elements = new ArrayDeque<>();
+		elements.push(pNode.getNodeKey());
+		while (!elements.isEmpty()) {
+			final ElementNode element = (ElementNode) getPageTransaction().getNode(
+					elements.pop(), EPage.NODEPAGE).get();
+			if (element.getNodeKey() != pNode.getNodeKey()) {
+				reindexCAS(element.getPathNodeKey(), element);
+			}
+			for (final long attributeKey : element.getAttributeKeys()) {
+				final INameNode attribute = (INameNode) getPageTransaction().getNode(
+						attributeKey, EPage.NODEPAGE).get();
+				reindexCAS(attribute.getPathNodeKey(), attribute);
+			}
+			long key = element.getFirstChildKey();
+			while (key != EFixed.NULL_NODE_KEY.getStandardProperty()) {
+				final IStructNode child = (IStructNode) getPageTransaction().getNode(
+						key, EPage.NODEPAGE).get();
+				if (child.getKind() == EKind.ELEMENT) {
+					elements.push(key);
+				}
+				key = child.getRightSiblingKey();
+			}
+		}
+	}
+
+	/**
+	 * Get the path node key, under which the value of a text node or an
+	 * attribute is indexed in the CAS indexes.
+	 * 
+	 * @param pNode
+	 *          the node
+	 * @return the path node key of the attribute or of the parent element of a
+	 *         text node, {@code -1} otherwise
+	 * @throws SirixIOException
+	 *           if an I/O error occurs
+	 */
+	private long getCASPathNodeKey(final @Nonnull INode pNode)
+			throws SirixIOException {
+		if (pNode.getKind() == EKind.ATTRIBUTE) {
+			return ((INameNode) pNode).getPathNodeKey();
+		} else if (pNode.getKind() == EKind.TEXT) {
+			final Optional<? extends INodeBase> parent = getPageTransaction()
+					.getNode(pNode.getParentKey(), EPage.NODEPAGE);
+			if (parent.isPresent() && parent.get() instanceof ElementNode) {
+				return ((ElementNode) parent.get()).getPathNodeKey();
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Get the value of a text node or an attribute.
+	 * 
+	 * @param pNode
+	 *          the node
+	 * @return the value
+	 */
+	private static String getCASValue(final @Nonnull INode pNode) {
+		return new String(((IValNode) pNode).getRawValue(),
+				IConstants.DEFAULT_ENCODING);
+	}
+
+	/**
+	 * Remove the attributes and namespaces of an element from the path class
+	 * index.
+	 * 
+	 * @param pElement
+	 *          the element
+	 * @throws SirixIOException
+	 *           if an I/O error occurs
+	 */
+	private void unindexNonStructuralPaths(final @Nonnull ElementNode pElement)
+			throws SirixIOException {
+		if (mIndexes.contains(EIndexes.PATH_CLASS)) {
+			final List<Long> keys = new ArrayList<>(pElement.getAttributeKeys());
+			keys.addAll(pElement.getNamespaceKeys());
+			for (final long key : keys) {
+				final Optional<? extends INodeBase> node = getPageTransaction()
+						.getNode(key, EPage.NODEPAGE);
+				if (node.isPresent() && node.get() instanceof INameNode) {
+					unindexPath((INameNode) node.get());
+				}
+			}
+		}
 	}
 
 	@Override
@@ -1808,6 +2188,7 @@ final class NodeWriteTrx extends AbsForwardingNodeReadTrx implements
 				checkAccessAndCommit();
 				final long oldHash = mNodeRtx.getNode().hashCode();
 				final byte[] byteVal = getBytes(pValue);
+				unindexCAS(mNodeRtx.getNode());
 
 				final IValNode node = (IValNode) getPageTransaction()
 						.prepareNodeForModification(mNodeRtx.getNode().getNodeKey(),
@@ -1871,6 +2252,8 @@ final class NodeWriteTrx extends AbsForwardingNodeReadTrx implements
 		acquireLock();
 		try {
 			if (!isClosed()) {
+				awaitAsyncCommit();
+
 				// Make sure to commit all dirty data.
 				if (mModificationCount > 0) {
 					throw new SirixUsageException("Must commit/abort transaction first");
@@ -1880,7 +2263,7 @@ final class NodeWriteTrx extends AbsForwardingNodeReadTrx implements
 				mNodeRtx.close();
 
 				mPathSummary = null;
-				mAVLTree = null;
+				mValueIndex = null;
 				mNodeFactory = null;
 
 				// Shutdown pool.
@@ -1890,6 +2273,9 @@ final class NodeWriteTrx extends AbsForwardingNodeReadTrx implements
 				} catch (final InterruptedException e) {
 					throw new SirixThreadedException(e);
 				}
+				if (mCommitPool != null) {
+					mCommitPool.shutdown();
+				}
 			}
 		} finally {
 			unLock();
@@ -1901,14 +2287,23 @@ final class NodeWriteTrx extends AbsForwardingNodeReadTrx implements
 		acquireLock();
 		try {
 			mNodeRtx.assertNotClosed();
+			try {
+				awaitAsyncCommit();
+			} catch (final SirixException e) {
+				// Reported by the future of the asynchronous commit.
+			} finally {
+				mAsyncCommit = Optional.absent();
+			}
 
 			// Reset modification counter.
 			mModificationCount = 0L;
+			mAncestorUpdates.clear();
 
 			// Close current page transaction.
 			final long trxID = getTransactionID();
+			final Session session = mNodeRtx.mSession;
 			final int revNumber = getPageTransaction().getUberPage().isBootstrap() ? 0
-					: getRevisionNumber() - 1;
+					: session.getLastWrittenRevisionNumber();
 
 			mNodeRtx.getPageTransaction().clearCaches();
 			mNodeRtx.mSession.closeNodePageWriteTransaction(getTransactionID());
@@ -1923,6 +2318,7 @@ final class NodeWriteTrx extends AbsForwardingNodeReadTrx implements
 					(IPageWriteTrx) mNodeRtx.getPageTransaction());
 
 			reInstantiateIndexes();
+			session.mLockManager.unlock(trxID);
 		} finally {
 			unLock();
 		}
@@ -1931,18 +2327,47 @@ final class NodeWriteTrx extends AbsForwardingNodeReadTrx implements
 	@Override
 	public void commit() throws SirixException {
 		mNodeRtx.assertNotClosed();
+		awaitAsyncCommit();
+		final Session session = mNodeRtx.mSession;
+		if (session.isConcurrent()) {
+			// Write transactions share the commit file.
+			final UberPage uberPage;
+			session.mCommitLock.lock();
+			try {
+				uberPage = commitChanges();
+			} finally {
+				session.mCommitLock.unlock();
+			}
+			// Outside of the commit lock, such that the commits of other write
+			// transactions are able to join the batch. The revision is published
+			// only once its beacon update succeeded.
+			final Optional<GroupCommit> groupCommit = session.mDatabase
+					.getGroupCommit();
+			if (groupCommit.isPresent()) {
+				groupCommit.get().await();
+			}
+			session.publishUberPage(uberPage);
+		} else {
+			commitChanges();
+		}
 
-		// Assert that the DocumentNode has no more than one child node (the root
-		// node).
-		final long nodeKey = mNodeRtx.getNode().getNodeKey();
-		moveToDocumentRoot();
-		final DocumentRootNode document = (DocumentRootNode) mNodeRtx.getNode();
-		if (document.getChildCount() > 1) {
-			moveTo(nodeKey);
-			throw new IllegalStateException(
-					"DocumentRootNode may not have more than one child node!");
+		// Execute post-commit hooks.
+		for (final IPostCommitHook hook : mPostCommitHooks) {
+			hook.postCommit(this);
 		}
-		moveTo(nodeKey);
+	}
+
+	/**
+	 * Commit all modifications.
+	 * 
+	 * @return the committed {@link UberPage}
+	 * @throws SirixException
+	 *           if this revision couldn't be commited
+	 */
+	private UberPage commitChanges() throws SirixException {
+		final Session session = mNodeRtx.mSession;
+		applyAncestorUpdates();
+		checkDocumentRoot();
 
 		final File commitFile = mNodeRtx.mSession.mCommitFile;
 		try {
@@ -1959,7 +2384,6 @@ final class NodeWriteTrx extends AbsForwardingNodeReadTrx implements
 		// Reset modification counter.
 		mModificationCount = 0L;
 
-		final INodeWriteTrx trx = this;
 		// mPool.submit(new Callable<Void>() {
 		// @Override
 		// public Void call() throws SirixException {
@@ -1973,27 +2397,33 @@ final class NodeWriteTrx extends AbsForwardingNodeReadTrx implements
 		if (currUberPage.isBootstrap()) {
 			currUberPage.setIsBulkInserted(mBulkInsert);
 		}
-		final UberPage uberPage = getPageTransaction().commit(EMultipleWriteTrx.NO);
+		final long trxID = getTransactionID();
+		final UberPage uberPage;
+		if (session.isConcurrent()) {
+			// Merges the changes with the ones of other write transactions.
+			uberPage = session.commit(trxID, (PageWriteTrx) getPageTransaction());
+		} else {
+			uberPage = ((PageWriteTrx) getPageTransaction()).commitOnLastRevision();
+		}
 
 		// Optionally lock while assigning new instances.
 		acquireLock();
 		try {
-			// Remember succesfully committed uber page in session.
-			mNodeRtx.mSession.setLastCommittedUberPage(uberPage);
+			// Remember succesfully committed uber page in session, a concurrent
+			// one is published after the group commit.
+			if (!session.isConcurrent()) {
+				session.setLastCommittedUberPage(uberPage);
+			}
 
-			final long trxID = getTransactionID();
-			final int revNumber = getRevisionNumber();
+			final int revNumber = session.isConcurrent() ? uberPage
+					.getRevisionNumber() : getRevisionNumber();
 
 			reInstantiate(trxID, revNumber);
+			session.mLockManager.unlock(trxID);
 		} finally {
 			unLock();
 		}
 
-		// Execute post-commit hooks.
-		for (final IPostCommitHook hook : mPostCommitHooks) {
-			hook.postCommit(trx);
-		}
-
 		// Delete commit file which denotes that a commit must write the log in
 		// the data file.
 		try {
@@ -2011,6 +2441,142 @@ final class NodeWriteTrx extends AbsForwardingNodeReadTrx implements
 		// return null;
 		// }
 		// });
+		return uberPage;
+	}
+
+	@Override
+	public Future<Integer> commitAsync() throws SirixException {
+		mNodeRtx.assertNotClosed();
+		final Session session = mNodeRtx.mSession;
+		if (session.isConcurrent()) {
+			throw new SirixUsageException(
+					"Asynchronous commits are not supported for concurrent write transactions!");
+		}
+
+		// Only one revision is committed in the background at a time.
+		awaitAsyncCommit();
+		final int revision = getRevisionNumber();
+		final PageWriteTrx frozen = (PageWriteTrx) getPageTransaction();
+		if (frozen.getUberPage().isBootstrap()) {
+			// The first revision is committed synchronously.
+			commit();
+			return Futures.immediateFuture(revision);
+		}
+		applyAncestorUpdates();
+		checkDocumentRoot();
+
+		final File commitFile = session.mCommitFile;
+		try {
+			commitFile.createNewFile();
+		} catch (final IOException e) {
+			throw new SirixIOException(e.getCause());
+		}
+
+		// Execute pre-commit hooks.
+		for (final IPreCommitHook hook : mPreCommitHooks) {
+			hook.preCommit(this);
+		}
+
+		// Reset modification counter.
+		mModificationCount = 0L;
+
+		// Freeze the page transaction and continue with the next revision on a
+		// page transaction, which is layered on the frozen one.
+		acquireLock();
+		try {
+			final long trxID = getTransactionID();
+			frozen.closePrevious();
+			final IPageWriteTrx trx = session.createPageWriteTransaction(trxID,
+					session.getLastRevisionNumber(), revision, Optional.of(frozen));
+			final long nodeKey = getNode().getNodeKey();
+			mNodeRtx.setPageReadTransaction(null);
+			mNodeRtx.setPageReadTransaction(trx);
+			session.setNodePageWriteTransaction(trxID, trx);
+
+			mNodeFactory = null;
+			mNodeFactory = new NodeFactory(trx);
+
+			reInstantiateIndexes();
+
+			// Don't keep a node of the frozen page transaction.
+			moveTo(nodeKey);
+		} finally {
+			unLock();
+		}
+
+		if (mCommitPool == null) {
+			mCommitPool = Executors.newSingleThreadExecutor();
+		}
+		final List<IPostCommitHook> hooks = new ArrayList<>(mPostCommitHooks);
+		mAsyncCommit = Optional.of(mCommitPool.submit(new Callable<Integer>() {
+			@Override
+			public Integer call() throws SirixException {
+				// Publish the uber page once the revision is durable.
+				session.setLastCommittedUberPage(frozen.commitOnLastRevision());
+
+				// Execute post-commit hooks on the committed revision, as the write
+				// transaction is modified concurrently.
+				if (!hooks.isEmpty()) {
+					final INodeReadTrx rtx = session.beginNodeReadTrx(revision);
+					try {
+						for (final IPostCommitHook hook : hooks) {
+							hook.postCommit(rtx);
+						}
+					} finally {
+						rtx.close();
+					}
+				}
+
+				try {
+					Files.delete(commitFile.toPath());
+				} catch (final IOException e) {
+					throw new SirixIOException(e.getCause());
+				}
+				return revision;
+			}
+		}));
+		return mAsyncCommit.get();
+	}
+
+	/**
+	 * Wait until the revision, which is committed in the background, is durable.
+	 * 
+	 * @throws SirixException
+	 *           if the asynchronous commit failed
+	 */
+	private void awaitAsyncCommit() throws SirixException {
+		if (mAsyncCommit.isPresent()) {
+			try {
+				mAsyncCommit.get().get();
+			} catch (final InterruptedException e) {
+				throw new SirixThreadedException(e);
+			} catch (final ExecutionException e) {
+				if (e.getCause() instanceof SirixException) {
+					throw (SirixException) e.getCause();
+				}
+				throw new SirixThreadedException(e);
+			}
+			mAsyncCommit = Optional.absent();
+		}
+	}
+
+	/**
+	 * Assert that the document root node has no more than one child node (the
+	 * root node).
+	 * 
+	 * @throws SirixException
+	 *           if the cursor couldn't be moved
+	 */
+	private void checkDocumentRoot() throws SirixException {
+		final long nodeKey = mNodeRtx.getNode().getNodeKey();
+		moveToDocumentRoot();
+		final DocumentRootNode document = (DocumentRootNode) mNodeRtx.getNode();
+		if (document.getChildCount() > 1) {
+			moveTo(nodeKey);
+			throw new IllegalStateException(
+					"DocumentRootNode may not have more than one child node!");
+		}
+		moveTo(nodeKey);
 	}
 
 	/**
@@ -2056,10 +2622,23 @@ final class NodeWriteTrx extends AbsForwardingNodeReadTrx implements
 					mNodeRtx.getSession());
 		}
 
-		// Get a new avl tree instance.
+		// Get a new value index instance.
 		if (mIndexes.contains(EIndexes.VALUE)) {
-			mAVLTree = null;
-			mAVLTree = AVLTree.getInstance(getPageTransaction());
+			mValueIndex = null;
+			mValueIndex = BPlusTree.getInstance(getPageTransaction());
+		}
+
+		// Get a new path class index instance.
+		if (mIndexes.contains(EIndexes.PATH_CLASS)) {
+			mPathIndex = null;
+			mPathIndex = PathIndex.getInstance(getPageTransaction());
+		}
+
+		// Get a new CAS index instance.
+		if (mHasCASIndexes) {
+			mCASIndex = null;
+			mCASIndex = CASIndex.getInstance(getPageTransaction(),
+					mNodeRtx.getSession());
 		}
 	}
 
@@ -2307,6 +2886,7 @@ final class NodeWriteTrx extends AbsForwardingNodeReadTrx implements
 		// concatenated/merged.
 		if (concatenated) {
 			moveTo(pOldNode.getRightSiblingKey());
+			unindexCAS(mNodeRtx.getNode());
 			getPageTransaction().removeNode(mNodeRtx.getNode(), pPage);
 		}
 
@@ -2588,6 +3168,10 @@ final class NodeWriteTrx extends AbsForwardingNodeReadTrx implements
 		final long oldDescendantCount = getStructuralNode().getDescendantCount();
 		final long descendantCount = oldDescendantCount == 0 ? 1
 				: oldDescendantCount + 1;
+		if (mDeferHashes && startNode.getHash() == 0) {
+			deferredAdd(startNode, descendantCount);
+			return;
+		}
 		long hashToAdd = startNode.getHash() == 0 ? mHash.hashLong(
 				startNode.hashCode()).asLong() : startNode.getHash();
 		long newHash = 0;
@@ -2621,6 +3205,69 @@ final class NodeWriteTrx extends AbsForwardingNodeReadTrx implements
 		mNodeRtx.setCurrentNode(startNode);
 	}
 
+	/**
+	 * Adapting the structure with a rolling hash for a newly inserted node, whose
+	 * ancestors are updated in a deferred way. The summands of the hashes and
+	 * descendant counts are buffered for each ancestor.
+	 * 
+	 * @param pStartNode
+	 *          the inserted node
+	 * @param pDescendantCount
+	 *          the number of nodes to add to the descendant counts
+	 * @throws SirixIOException
+	 *           if an I/O error occurs
+	 */
+	private void deferredAdd(final @Nonnull INode pStartNode,
+			final @Nonnegative long pDescendantCount) throws SirixIOException {
+		long hashToAdd = mHash.hashLong(pStartNode.hashCode()).asLong();
+		final INode node = (INode) getPageTransaction().prepareNodeForModification(
+				pStartNode.getNodeKey(), EPage.NODEPAGE);
+		node.setHash(hashToAdd);
+		getPageTransaction().finishNodeModification(node, EPage.NODEPAGE);
+
+		final long descendantCount = pStartNode instanceof IStructNode ? pDescendantCount
+				: 0;
+		while (moveTo(mNodeRtx.getNode().getParentKey())) {
+			hashToAdd *= PRIME;
+			final long nodeKey = mNodeRtx.getNode().getNodeKey();
+			AncestorUpdate update = mAncestorUpdates.get(nodeKey);
+			if (update == null) {
+				update = new AncestorUpdate();
+				mAncestorUpdates.put(nodeKey, update);
+			}
+			update.mHash += hashToAdd;
+			update.mDescendantCount += descendantCount;
+		}
+		mNodeRtx.setCurrentNode(pStartNode);
+	}
+
+	/**
+	 * Apply the deferred hash and descendant count updates, once per ancestor.
+	 * 
+	 * @throws SirixIOException
+	 *           if an I/O error occurs
+	 */
+	private void applyAncestorUpdates() throws SirixIOException {
+		if (!mAncestorUpdates.isEmpty()) {
+			final long nodeKey = mNodeRtx.getNode().getNodeKey();
+			for (final Entry<Long, AncestorUpdate> entry : mAncestorUpdates
+					.entrySet()) {
+				final AncestorUpdate update = entry.getValue();
+				final INode node = (INode) getPageTransaction()
+						.prepareNodeForModification(entry.getKey(), EPage.NODEPAGE);
+				node.setHash(node.getHash() + update.mHash);
+				if (node instanceof IStructNode) {
+					final IStructNode structNode = (IStructNode) node;
+					structNode.setDescendantCount(structNode.getDescendantCount()
+							+ update.mDescendantCount);
+				}
+				getPageTransaction().finishNodeModification(node, EPage.NODEPAGE);
+			}
+			mAncestorUpdates.clear();
+			moveTo(nodeKey);
+		}
+	}
+
 	/**
 	 * Set new descendant count of ancestor after an add-operation.
 	 * 
@@ -2738,6 +3385,7 @@ final class NodeWriteTrx extends AbsForwardingNodeReadTrx implements
 		// rtx.getNode().acceptVisitor(new InsertSubtreeVisitor(rtx, this,
 		// pInsert));
 		rtx.close();
+		applyAncestorUpdates();
 	}
 
 	@Override
@@ -2970,10 +3618,10 @@ final class NodeWriteTrx extends AbsForwardingNodeReadTrx implements
 	}
 
 	@Override
-	public AVLTree<TextValue, TextReferences> getAVLTree() {
+	public BPlusTree getValueIndex() {
 		acquireLock();
 		try {
-			return mAVLTree;
+			return mValueIndex;
 		} finally {
 			unLock();
 		}
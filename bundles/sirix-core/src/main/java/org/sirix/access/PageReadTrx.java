@@ -31,10 +31,14 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Nonnegative;
@@ -45,7 +49,9 @@ import org.sirix.access.conf.ResourceConfiguration;
 import org.sirix.access.conf.ResourceConfiguration.EIndexes;
 import org.sirix.api.IPageReadTrx;
 import org.sirix.api.ISession;
+import org.sirix.cache.PageCacheKey;
 import org.sirix.cache.PageContainer;
+import org.sirix.cache.SharedPageCache;
 import org.sirix.cache.TransactionLogCache;
 import org.sirix.cache.TransactionLogPageCache;
 import org.sirix.exception.SirixException;
@@ -55,10 +61,12 @@ import org.sirix.node.DeletedNode;
 import org.sirix.node.EKind;
 import org.sirix.node.interfaces.INodeBase;
 import org.sirix.page.EPage;
+import org.sirix.page.CASPage;
 import org.sirix.page.IndirectPage;
 import org.sirix.page.NamePage;
 import org.sirix.page.NodePage;
 import org.sirix.page.PageReference;
+import org.sirix.page.PathIndexPage;
 import org.sirix.page.PathSummaryPage;
 import org.sirix.page.RevisionRootPage;
 import org.sirix.page.UberPage;
@@ -80,8 +88,9 @@ import com.google.common.cache.RemovalNotification;
  * 
  * <p>
  * Page reading transaction. The only thing shared amongst transactions is the
- * page cache. Everything else is exclusive to this transaction. It is required
- * that only a single thread has access to this transaction.
+ * optional {@link SharedPageCache} of reconstructed node pages. Everything else
+ * is exclusive to this transaction. It is required that only a single thread
+ * has access to this transaction.
  * </p>
  */
 final class PageReadTrx implements IPageReadTrx {
@@ -104,9 +113,21 @@ final class PageReadTrx implements IPageReadTrx {
 	/** Internal reference to value cache. */
 	private final LoadingCache<Long, PageContainer> mValueCache;
 
+	/** Internal reference to path index cache. */
+	private final LoadingCache<Long, PageContainer> mPathIndexCache;
+
+	/** Internal reference to CAS index cache. */
+	private final LoadingCache<Long, PageContainer> mCASCache;
+
 	/** Internal reference to page cache. */
 	private final LoadingCache<Long, IPage> mPageCache;
 
+	/**
+	 * Optional cache of reconstructed node pages, which is shared amongst all
+	 * read transactions of a session.
+	 */
+	private final Optional<SharedPageCache> mSharedCache;
+
 	/** {@link Session} reference. */
 	protected final Session mSession;
 
@@ -119,6 +140,9 @@ final class PageReadTrx implements IPageReadTrx {
 	/** Indexes to read. */
 	private final Set<EIndexes> mIndexes;
 
+	/** Determines if CAS indexes are defined for the resource. */
+	private final boolean mHasCASIndexes;
+
 	/**
 	 * Optional page transaction log, dependent on the fact, if the log hasn't
 	 * been completely transferred into the data file.
@@ -164,8 +188,43 @@ final class PageReadTrx implements IPageReadTrx {
 			final @Nonnull IReader pReader,
 			final @Nonnull Optional<TransactionLogPageCache> pPersistentCache)
 			throws SirixIOException {
+		this(pSession, pUberPage, pRevision, pReader, pPersistentCache, Optional
+				.<SharedPageCache> absent());
+	}
+
+	/**
+	 * Constructor with a shared page cache. Must only be used for read-only
+	 * transactions on a committed revision, as the reconstructed pages are handed
+	 * out to other transactions as well.
+	 * 
+	 * @param pSession
+	 *          current {@link Session} instance
+	 * @param pUberPage
+	 *          {@link UberPage} to start reading from
+	 * @param pRevision
+	 *          key of revision to read from uber page
+	 * @param pReader
+	 *          reader to read stored pages for this transaction
+	 * @param pPersistentCache
+	 *          optional persistent cache
+	 * @param pSharedCache
+	 *          optional page cache shared with other read transactions
+	 * @throws SirixIOException
+	 *           if reading of the persistent storage fails
+	 */
+	PageReadTrx(final @Nonnull Session pSession,
+			final @Nonnull UberPage pUberPage, @Nonnegative final int pRevision,
+			final @Nonnull IReader pReader,
+			final @Nonnull Optional<TransactionLogPageCache> pPersistentCache,
+			final @Nonnull Optional<SharedPageCache> pSharedCache)
+			throws SirixIOException {
 		checkArgument(pRevision >= 0, "Revision must be >= 0!");
 		mIndexes = pSession.mResourceConfig.mIndexes;
+		mHasCASIndexes = !pSession.mResourceConfig.mCASIndexes.isEmpty();
+		// Revision 0 of a bootstrapped resource isn't committed yet and therefore
+		// might still change.
+		mSharedCache = pUberPage.isBootstrap() ? Optional
+				.<SharedPageCache> absent() : checkNotNull(pSharedCache);
 
 		// Transaction logs which might have to be read because the data hasn't been
 		// commited to the data-file.
@@ -206,7 +265,7 @@ final class PageReadTrx implements IPageReadTrx {
 						final PageContainer container = mNodeLog.isPresent() ? mNodeLog
 								.get().get(pKey) : PageContainer.EMPTY_INSTANCE;
 						if (container.equals(PageContainer.EMPTY_INSTANCE)) {
-							return getNodeFromPage(pKey, EPage.NODEPAGE);
+							return loadNodeFromPage(pKey, EPage.NODEPAGE);
 						} else {
 							return container;
 						}
@@ -220,7 +279,7 @@ final class PageReadTrx implements IPageReadTrx {
 					final PageContainer container = mPathLog.isPresent() ? mPathLog.get()
 							.get(pKey) : PageContainer.EMPTY_INSTANCE;
 					if (container.equals(PageContainer.EMPTY_INSTANCE)) {
-						return getNodeFromPage(pKey, EPage.PATHSUMMARYPAGE);
+						return loadNodeFromPage(pKey, EPage.PATHSUMMARYPAGE);
 					} else {
 						return container;
 					}
@@ -233,9 +292,9 @@ final class PageReadTrx implements IPageReadTrx {
 			mValueCache = builder.build(new CacheLoader<Long, PageContainer>() {
 				public PageContainer load(final Long pKey) throws SirixException {
 					final PageContainer container = mValueLog.isPresent() ? mValueLog
-							.get().get(pKey) : null;
+							.get().get(pKey) : PageContainer.EMPTY_INSTANCE;
 					if (container.equals(PageContainer.EMPTY_INSTANCE)) {
-						return getNodeFromPage(pKey, EPage.VALUEPAGE);
+						return loadNodeFromPage(pKey, EPage.VALUEPAGE);
 					} else {
 						return container;
 					}
@@ -244,6 +303,24 @@ final class PageReadTrx implements IPageReadTrx {
 		} else {
 			mValueCache = null;
 		}
+		if (mIndexes.contains(EIndexes.PATH_CLASS)) {
+			mPathIndexCache = builder.build(new CacheLoader<Long, PageContainer>() {
+				public PageContainer load(final Long pKey) throws SirixException {
+					return loadNodeFromPage(pKey, EPage.PATHINDEXPAGE);
+				}
+			});
+		} else {
+			mPathIndexCache = null;
+		}
+		if (mHasCASIndexes) {
+			mCASCache = builder.build(new CacheLoader<Long, PageContainer>() {
+				public PageContainer load(final Long pKey) throws SirixException {
+					return loadNodeFromPage(pKey, EPage.CASPAGE);
+				}
+			});
+		} else {
+			mCASCache = null;
+		}
 
 		final CacheBuilder<Object, Object> pageCacheBuilder = CacheBuilder
 				.newBuilder();
@@ -311,31 +388,123 @@ final class PageReadTrx implements IPageReadTrx {
 		final long nodePageKey = nodePageKey(pNodeKey);
 		// final int nodePageOffset = nodePageOffset(pNodeKey);
 
-		PageContainer cont;
+		final PageContainer cont = getPageContainer(nodePageKey, pPage);
+		if (cont.equals(PageContainer.EMPTY_INSTANCE)) {
+			return Optional.<INodeBase> absent();
+		}
+
+		final INodeBase retVal = cont.getComplete().getNode(pNodeKey);
+		return Optional.fromNullable(checkItemIfDeleted(retVal));
+	}
+
+	@Override
+	public void getNodes(final @Nonnull long[] pKeys,
+			final @Nonnegative int pSize, final @Nonnull EPage pPage,
+			final @Nonnull INodeBase[] pNodes) throws SirixIOException {
+		checkArgument(pSize >= 0 && pSize <= pKeys.length
+				&& pSize <= pNodes.length, "pSize exceeds the arrays!");
+		checkNotNull(pPage);
+		assertNotClosed();
+
+		// Visit the keys ordered by page, which are usually ordered already.
+		long[] order = null;
+		long lastPageKey = Long.MIN_VALUE;
+		for (int i = 0; i < pSize; i++) {
+			final long pageKey = pKeys[i] < 0 ? -1 : nodePageKey(pKeys[i]);
+			if (pageKey < lastPageKey) {
+				order = sortByPage(pKeys, pSize);
+				break;
+			}
+			lastPageKey = pageKey;
+		}
+
+		lastPageKey = Long.MIN_VALUE;
+		PageContainer cont = PageContainer.EMPTY_INSTANCE;
+		final int indexBits = order == null ? 0 : indexBits(pSize);
+		for (int i = 0; i < pSize; i++) {
+			final int index = order == null ? i
+					: (int) (order[i] & ((1L << indexBits) - 1));
+			final long key = pKeys[index];
+			if (key < 0) {
+				pNodes[index] = null;
+				continue;
+			}
+			final long pageKey = nodePageKey(key);
+			if (pageKey != lastPageKey) {
+				cont = getPageContainer(pageKey, pPage);
+				lastPageKey = pageKey;
+			}
+			pNodes[index] = cont.equals(PageContainer.EMPTY_INSTANCE) ? null
+					: checkItemIfDeleted(cont.getComplete().getNode(key));
+		}
+	}
+
+	/**
+	 * Sort the indexes of keys by the keys of their pages.
+	 * 
+	 * @param pKeys
+	 *          the keys
+	 * @param pSize
+	 *          number of keys
+	 * @return the page key of each key shifted by {@link #indexBits(int)} and
+	 *         combined with the index of the key, in ascending order
+	 */
+	private long[] sortByPage(final @Nonnull long[] pKeys,
+			final @Nonnegative int pSize) {
+		final int indexBits = indexBits(pSize);
+		final long[] order = new long[pSize];
+		for (int i = 0; i < pSize; i++) {
+			final long pageKey = pKeys[i] < 0 ? 0 : nodePageKey(pKeys[i]) + 1;
+			order[i] = (pageKey << indexBits) | i;
+		}
+		Arrays.sort(order);
+		return order;
+	}
+
+	/**
+	 * Number of bits needed to encode an index into a batch.
+	 * 
+	 * @param pSize
+	 *          size of the batch
+	 * @return number of bits
+	 */
+	private static int indexBits(final @Nonnegative int pSize) {
+		return Math.max(1, 32 - Integer.numberOfLeadingZeros(pSize));
+	}
+
+	/**
+	 * Get the complete page, which stores a node, from the cache of the
+	 * respective kind of page.
+	 * 
+	 * @param pNodePageKey
+	 *          key of the node page
+	 * @param pPage
+	 *          kind of page
+	 * @return the page container, which is {@link PageContainer#EMPTY_INSTANCE},
+	 *         if the page does not exist
+	 * @throws SirixIOException
+	 *           if an I/O error occurs
+	 */
+	private PageContainer getPageContainer(final @Nonnegative long pNodePageKey,
+			final @Nonnull EPage pPage) throws SirixIOException {
 		try {
 			switch (pPage) {
 			case NODEPAGE:
-				cont = mNodeCache.get(nodePageKey);
-				break;
+				return mNodeCache.get(pNodePageKey);
 			case PATHSUMMARYPAGE:
-				cont = mPathCache.get(nodePageKey);
-				break;
+				return mPathCache.get(pNodePageKey);
 			case VALUEPAGE:
-				cont = mValueCache.get(nodePageKey);
-				break;
+				return mValueCache.get(pNodePageKey);
+			case PATHINDEXPAGE:
+				return mPathIndexCache.get(pNodePageKey);
+			case CASPAGE:
+				return mCASCache.get(pNodePageKey);
 			default:
 				throw new IllegalStateException();
 			}
 		} catch (final ExecutionException e) {
 			throw new SirixIOException(e);
 		}
-
-		if (cont.equals(PageContainer.EMPTY_INSTANCE)) {
-			return Optional.<INodeBase> absent();
-		}
-
-		final INodeBase retVal = cont.getComplete().getNode(pNodeKey);
-		return Optional.fromNullable(checkItemIfDeleted(retVal));
 	}
 
 	/**
@@ -376,6 +545,12 @@ final class PageReadTrx implements IPageReadTrx {
 		if (mIndexes.contains(EIndexes.VALUE)) {
 			mValueCache.invalidateAll();
 		}
+		if (mIndexes.contains(EIndexes.PATH_CLASS)) {
+			mPathIndexCache.invalidateAll();
+		}
+		if (mHasCASIndexes) {
+			mCASCache.invalidateAll();
+		}
 		mNodeCache.invalidateAll();
 		mPageCache.invalidateAll();
 		
@@ -423,10 +598,10 @@ final class PageReadTrx implements IPageReadTrx {
 	 */
 	final RevisionRootPage loadRevRoot(final @Nonnegative int pRevisionKey)
 			throws SirixIOException {
-		checkArgument(
-				pRevisionKey >= 0 && pRevisionKey <= mSession.getLastRevisionNumber(),
+		checkArgument(pRevisionKey >= 0
+				&& pRevisionKey <= mSession.getLastWrittenRevisionNumber(),
 				"%s must be >= 0 and <= last stored revision (%s)!", pRevisionKey,
-				mSession.getLastRevisionNumber());
+				mSession.getLastWrittenRevisionNumber());
 		assertNotClosed();
 
 		// The indirect page reference either fails horribly or returns a non null
@@ -510,6 +685,48 @@ final class PageReadTrx implements IPageReadTrx {
 		return (ValuePage) ref.getPage();
 	}
 
+	/**
+	 * Initialize PathIndexPage.
+	 * 
+	 * @throws SirixIOException
+	 *           if an I/O error occurs
+	 */
+	private final PathIndexPage getPathIndexPage(
+			final @Nonnull RevisionRootPage pPage) throws SirixIOException {
+		assertNotClosed();
+		final PageReference ref = pPage.getPathIndexPageReference();
+		if (ref.getPage() == null) {
+			try {
+				ref.setPage(mPageCache.get(ref.getKey()));
+			} catch (final ExecutionException e) {
+				throw new SirixIOException(e);
+			}
+		}
+		ref.setPageKind(EPage.PATHINDEXPAGE);
+		return (PathIndexPage) ref.getPage();
+	}
+
+	/**
+	 * Initialize CASPage.
+	 * 
+	 * @throws SirixIOException
+	 *           if an I/O error occurs
+	 */
+	private final CASPage getCASPage(final @Nonnull RevisionRootPage pPage)
+			throws SirixIOException {
+		assertNotClosed();
+		final PageReference ref = pPage.getCASPageReference();
+		if (ref.getPage() == null) {
+			try {
+				ref.setPage(mPageCache.get(ref.getKey()));
+			} catch (final ExecutionException e) {
+				throw new SirixIOException(e);
+			}
+		}
+		ref.setPageKind(EPage.CASPAGE);
+		return (CASPage) ref.getPage();
+	}
+
 	@Override
 	public final UberPage getUberPage() {
 		return mUberPage;
@@ -547,6 +764,7 @@ final class PageReadTrx implements IPageReadTrx {
 						keys.add(ref.getKey());
 					}
 				}
+				// Sliding snapshots need at most the fragments of the window.
 				if (refs.size() == revsToRestore
 						|| config.mRevisionKind == ERevisioning.FULL
 						|| (config.mRevisionKind == ERevisioning.DIFFERENTIAL && refs
@@ -569,17 +787,64 @@ final class PageReadTrx implements IPageReadTrx {
 
 		// Afterwards read the NodePages if they are not dereferences...
 		final NodePage[] pages = new NodePage[refs.size()];
+		final List<Future<IPage>> prefetched = prefetch(refs);
 		for (int i = 0; i < pages.length; i++) {
 			final PageReference ref = refs.get(i);
 			pages[i] = (NodePage) ref.getPage();
 			if (pages[i] == null) {
-				pages[i] = (NodePage) mPageReader.read(ref.getKey());
+				if (prefetched.isEmpty() || prefetched.get(i) == null) {
+					pages[i] = (NodePage) mPageReader.read(ref.getKey());
+				} else {
+					pages[i] = (NodePage) FragmentPrefetcher.get(prefetched.get(i));
+				}
 			}
 			ref.setPageKind(pPage);
 		}
 		return pages;
 	}
 
+	/**
+	 * Asynchronously read all fragments which have to be read from the storage
+	 * except for the most recent one, which is read by the current thread.
+	 * 
+	 * @param pRefs
+	 *          references to the fragments, the most recent one first
+	 * @return futures of the fragments (or {@code null} for fragments which
+	 *         aren't prefetched), or an empty list if nothing is prefetched
+	 */
+	private List<Future<IPage>> prefetch(final @Nonnull List<PageReference> pRefs) {
+		if (!mSession.mPrefetcher.isPresent()) {
+			return Collections.emptyList();
+		}
+		final List<Integer> indexes = new ArrayList<>(pRefs.size());
+		boolean first = true;
+		for (int i = 0; i < pRefs.size(); i++) {
+			final PageReference ref = pRefs.get(i);
+			if (ref.getPage() == null && ref.getKey() != IConstants.NULL_ID) {
+				if (first) {
+					first = false;
+				} else {
+					indexes.add(i);
+				}
+			}
+		}
+		if (indexes.isEmpty()) {
+			return Collections.emptyList();
+		}
+		final long[] keys = new long[indexes.size()];
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = pRefs.get(indexes.get(i)).getKey();
+		}
+		final List<Future<IPage>> futures = mSession.mPrefetcher.get().prefetch(
+				keys);
+		final List<Future<IPage>> prefetched = new ArrayList<>(
+				Collections.<Future<IPage>> nCopies(pRefs.size(), null));
+		for (int i = 0; i < keys.length; i++) {
+			prefetched.set(indexes.get(i), futures.get(i));
+		}
+		return prefetched;
+	}
+
 	/**
 	 * Get the page reference which points to the right subtree (usual nodes, path
 	 * summary nodes, value index nodes).
@@ -603,6 +868,12 @@ final class PageReadTrx implements IPageReadTrx {
 		case PATHSUMMARYPAGE:
 			ref = getPathSummaryPage(pRef).getIndirectPageReference();
 			break;
+		case PATHINDEXPAGE:
+			ref = getPathIndexPage(pRef).getIndirectPageReference();
+			break;
+		case CASPAGE:
+			ref = getCASPage(pRef).getIndirectPageReference();
+			break;
 		default:
 			new IllegalStateException(
 					"Only defined for node pages and path summary pages!");
@@ -730,6 +1001,33 @@ final class PageReadTrx implements IPageReadTrx {
 				.add("RevRootPage: ", mRootPage).toString();
 	}
 
+	/**
+	 * Load a reconstructed node page, either from the shared page cache if one is
+	 * available or directly from the persistent storage.
+	 * 
+	 * @param pNodePageKey
+	 *          key of node page
+	 * @param pPage
+	 *          kind of page
+	 * @return {@link PageContainer} holding the complete node page
+	 * @throws SirixIOException
+	 *           if an I/O error occurs
+	 */
+	private PageContainer loadNodeFromPage(final @Nonnegative long pNodePageKey,
+			final @Nonnull EPage pPage) throws SirixIOException {
+		if (mSharedCache.isPresent()) {
+			return mSharedCache.get().get(
+					new PageCacheKey(mRootPage.getRevision(), pPage, pNodePageKey),
+					new Callable<PageContainer>() {
+						@Override
+						public PageContainer call() throws SirixIOException {
+							return getNodeFromPage(pNodePageKey, pPage);
+						}
+					});
+		}
+		return getNodeFromPage(pNodePageKey, pPage);
+	}
+
 	@Override
 	public PageContainer getNodeFromPage(final @Nonnegative long pNodePageKey,
 			final @Nonnull EPage pPage) throws SirixIOException {
@@ -29,7 +29,15 @@ package org.sirix.access;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
-
+import static com.google.common.base.Preconditions.checkState;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 
@@ -46,16 +54,24 @@ import org.sirix.cache.TransactionLogCache;
 import org.sirix.cache.TransactionLogPageCache;
 import org.sirix.exception.SirixException;
 import org.sirix.exception.SirixIOException;
+import org.sirix.exception.SirixThreadedException;
+import org.sirix.exception.SirixUsageException;
 import org.sirix.io.IWriter;
 import org.sirix.node.DeletedNode;
+import org.sirix.node.DocumentRootNode;
 import org.sirix.node.EKind;
+import org.sirix.node.ElementNode;
 import org.sirix.node.delegates.NodeDelegate;
+import org.sirix.node.delegates.StructNodeDelegate;
+import org.sirix.node.interfaces.INameNode;
 import org.sirix.node.interfaces.INode;
 import org.sirix.node.interfaces.INodeBase;
+import org.sirix.node.interfaces.IStructNode;
 import org.sirix.page.EPage;
 import org.sirix.page.IndirectPage;
 import org.sirix.page.NamePage;
 import org.sirix.page.NodePage;
+import org.sirix.page.PagePersistenter;
 import org.sirix.page.PageReference;
 import org.sirix.page.RevisionRootPage;
 import org.sirix.page.UberPage;
@@ -65,7 +81,10 @@ import org.sirix.settings.ERevisioning;
 import org.sirix.settings.IConstants;
 import org.sirix.utils.NamePageHash;
 
+import com.google.common.base.Objects;
 import com.google.common.base.Optional;
+import com.google.common.io.ByteArrayDataOutput;
+import com.google.common.io.ByteStreams;
 
 /**
  * <h1>PageWriteTrx</h1>
@@ -90,6 +109,12 @@ final class PageWriteTrx extends AbsForwardingPageReadTrx implements
 	/** Cache to store value changes in this transaction log. */
 	private final ICache<Long, PageContainer> mValueLog;
 
+	/** Cache to store path index changes in this transaction log. */
+	private final ICache<Long, PageContainer> mPathIndexLog;
+
+	/** Cache to store CAS index changes in this transaction log. */
+	private final ICache<Long, PageContainer> mCASLog;
+
 	/** Last references to the Nodepage, needed for pre/postcondition check. */
 	private PageContainer mNodePageCon;
 
@@ -117,6 +142,30 @@ final class PageWriteTrx extends AbsForwardingPageReadTrx implements
 	/** Determines if transaction is closed. */
 	private boolean mIsClosed;
 
+	/** Maximum node key of the revision, this transaction is based on. */
+	private final long mBaseMaxNodeKey;
+
+	/** Keys of the node pages in the transaction logs of each page kind. */
+	private final Map<EPage, Set<Long>> mNodePageKeys;
+
+	/**
+	 * Frozen transaction, which is committed in the background and whose
+	 * transaction logs are read through until it's durable.
+	 */
+	private Optional<PageWriteTrx> mPrevious;
+
+	/**
+	 * Determines if this transaction has been layered on a frozen transaction,
+	 * thus it must be rebased onto the last committed revision.
+	 */
+	private final boolean mLayered;
+
+	/**
+	 * Pipeline to serialize pages in parallel during a commit, only present
+	 * while committing and if the session provides a commit pool.
+	 */
+	private Optional<CommitPipeline> mPipeline = Optional.absent();
+
 	/**
 	 * Standard constructor.
 	 * 
@@ -132,6 +181,9 @@ final class PageWriteTrx extends AbsForwardingPageReadTrx implements
 	 *          revision represent
 	 * @param pLastStoredRev
 	 *          last store revision
+	 * @param pPrevious
+	 *          optional frozen transaction, which is committed in the background
+	 *          and whose modifications are continued
 	 * @throws AbsTTException
 	 *           if an error occurs
 	 */
@@ -139,16 +191,25 @@ final class PageWriteTrx extends AbsForwardingPageReadTrx implements
 			final @Nonnull UberPage pUberPage, final @Nonnull IWriter pWriter,
 			final @Nonnegative long pId, final @Nonnegative int pRepresentRev,
 			final @Nonnegative int pLastStoredRev,
-			final @Nonnegative int pLastCommitedRev) throws SirixException {
+			final @Nonnegative int pLastCommitedRev,
+			final @Nonnull Optional<PageWriteTrx> pPrevious) throws SirixException {
 		final int revision = pUberPage.isBootstrap() ? 0 : pRepresentRev + 1;
+		// Concurrent write transactions use separate logs, as well as a
+		// transaction, which is layered on a frozen one.
+		final String log = (pSession.isConcurrent() ? "-" + pId : "")
+				+ (pPrevious.isPresent() ? "-async" : "");
 		mPageLog = new TransactionLogPageCache(pSession.mResourceConfig.mPath,
-				revision, "page");
+				revision, "page" + log, pSession.mResourceConfig.mTransactionLog);
 		mNodeLog = new TransactionLogCache(pSession.mResourceConfig.mPath,
-				revision, "node");
+				revision, "node" + log, pSession.mResourceConfig.mTransactionLog);
 		mPathLog = new TransactionLogCache(pSession.mResourceConfig.mPath,
-				revision, "path");
+				revision, "path" + log, pSession.mResourceConfig.mTransactionLog);
 		mValueLog = new TransactionLogCache(pSession.mResourceConfig.mPath,
-				revision, "value");
+				revision, "value" + log, pSession.mResourceConfig.mTransactionLog);
+		mPathIndexLog = new TransactionLogCache(pSession.mResourceConfig.mPath,
+				revision, "pathindex" + log, pSession.mResourceConfig.mTransactionLog);
+		mCASLog = new TransactionLogCache(pSession.mResourceConfig.mPath,
+				revision, "cas" + log, pSession.mResourceConfig.mTransactionLog);
 		mPageWriter = pWriter;
 		mTransactionID = pId;
 		mPageRtx = new PageReadTrx(pSession, pUberPage, pRepresentRev, pWriter,
@@ -157,7 +218,19 @@ final class PageWriteTrx extends AbsForwardingPageReadTrx implements
 		final RevisionRootPage lastCommitedRoot = preparePreviousRevisionRootPage(
 				pRepresentRev, pLastCommitedRev);
 		mNewRoot = preparePreviousRevisionRootPage(pRepresentRev, pLastStoredRev);
-		mNewRoot.setMaxNodeKey(lastCommitedRoot.getMaxNodeKey());
+		mBaseMaxNodeKey = lastCommitedRoot.getMaxNodeKey();
+		mNewRoot.setMaxNodeKey(mBaseMaxNodeKey);
+		if (pSession.isConcurrent()) {
+			// The node factory uses the key following the maximum node key.
+			mNewRoot.setMaxNodeKey(pSession.reserveNodeKey(mBaseMaxNodeKey) - 1);
+		}
+		mNodePageKeys = new EnumMap<>(EPage.class);
+		for (final EPage page : EnumSet.of(EPage.NODEPAGE, EPage.PATHSUMMARYPAGE,
+				EPage.VALUEPAGE, EPage.PATHINDEXPAGE, EPage.CASPAGE)) {
+			mNodePageKeys.put(page, new HashSet<Long>());
+		}
+		mPrevious = checkNotNull(pPrevious);
+		mLayered = pPrevious.isPresent();
 
 		final Set<EIndexes> indexes = pSession.getResourceConfig().mIndexes;
 		if (indexes.contains(EIndexes.PATH)) {
@@ -166,6 +239,35 @@ final class PageWriteTrx extends AbsForwardingPageReadTrx implements
 		if (indexes.contains(EIndexes.VALUE)) {
 			mNewRoot.setMaxValueNodeKey(lastCommitedRoot.getMaxValueNodeKey());
 		}
+		if (!pSession.getResourceConfig().mCASIndexes.isEmpty()) {
+			mNewRoot.setMaxCASNodeKey(lastCommitedRoot.getMaxCASNodeKey());
+		}
+		if (mLayered) {
+			// Continue with the keys and names of the frozen transaction.
+			final RevisionRootPage previousRoot = pPrevious.get().mNewRoot;
+			mNewRoot.setMaxNodeKey(previousRoot.getMaxNodeKey());
+			mNewRoot.setMaxPathNodeKey(previousRoot.getMaxPathNodeKey());
+			mNewRoot.setMaxValueNodeKey(previousRoot.getMaxValueNodeKey());
+			mNewRoot.setMaxCASNodeKey(previousRoot.getMaxCASNodeKey());
+			mNewRoot.getNamePageReference().setPage(
+					copy(previousRoot.getNamePageReference().getPage()));
+		}
+
+		// Create the empty trees of indexes, which have been enabled after the
+		// last revision has been committed (see IndexBuilder).
+		final long documentKey = EFixed.DOCUMENT_NODE_KEY.getStandardProperty();
+		if (indexes.contains(EIndexes.PATH)
+				&& !getNode(documentKey, EPage.PATHSUMMARYPAGE).isPresent()) {
+			resetIndex(EPage.PATHSUMMARYPAGE);
+		}
+		if (indexes.contains(EIndexes.VALUE)
+				&& !getNode(documentKey, EPage.VALUEPAGE).isPresent()) {
+			resetIndex(EPage.VALUEPAGE);
+		}
+		if (!pSession.getResourceConfig().mCASIndexes.isEmpty()
+				&& !getNode(documentKey, EPage.CASPAGE).isPresent()) {
+			resetIndex(EPage.CASPAGE);
+		}
 	}
 
 	@Override
@@ -208,7 +310,9 @@ final class PageWriteTrx extends AbsForwardingPageReadTrx implements
 		if (mNodePageCon == null
 				|| pNode == null
 				|| (mNodeLog.get(nodePageKey).equals(PageContainer.EMPTY_INSTANCE)
-						&& mPathLog.get(nodePageKey).equals(PageContainer.EMPTY_INSTANCE) && mValueLog
+						&& mPathLog.get(nodePageKey).equals(PageContainer.EMPTY_INSTANCE)
+						&& mValueLog.get(nodePageKey).equals(PageContainer.EMPTY_INSTANCE)
+						&& mPathIndexLog.get(nodePageKey).equals(PageContainer.EMPTY_INSTANCE) && mCASLog
 						.get(nodePageKey).equals(PageContainer.EMPTY_INSTANCE))) {
 			throw new IllegalStateException();
 		}
@@ -223,6 +327,12 @@ final class PageWriteTrx extends AbsForwardingPageReadTrx implements
 		case VALUEPAGE:
 			mValueLog.put(nodePageKey, mNodePageCon);
 			break;
+		case PATHINDEXPAGE:
+			mPathIndexLog.put(nodePageKey, mNodePageCon);
+			break;
+		case CASPAGE:
+			mCASLog.put(nodePageKey, mNodePageCon);
+			break;
 		default:
 			throw new IllegalStateException();
 		}
@@ -239,6 +349,9 @@ final class PageWriteTrx extends AbsForwardingPageReadTrx implements
 		case NODEPAGE:
 			mNewRoot.incrementMaxNodeKey();
 			nodeKey = mNewRoot.getMaxNodeKey();
+			if (mPageRtx.mSession.isConcurrent()) {
+				mNewRoot.setMaxNodeKey(mPageRtx.mSession.reserveNodeKey(nodeKey) - 1);
+			}
 			break;
 		case PATHSUMMARYPAGE:
 			mNewRoot.incrementMaxPathNodeKey();
@@ -248,6 +361,14 @@ final class PageWriteTrx extends AbsForwardingPageReadTrx implements
 			mNewRoot.incrementMaxValueNodeKey();
 			nodeKey = mNewRoot.getMaxValueNodeKey();
 			break;
+		case PATHINDEXPAGE:
+			// Addressed by the key of the path node.
+			nodeKey = pNode.getNodeKey();
+			break;
+		case CASPAGE:
+			mNewRoot.incrementMaxCASNodeKey();
+			nodeKey = mNewRoot.getMaxCASNodeKey();
+			break;
 		default:
 			throw new IllegalStateException();
 		}
@@ -282,7 +403,10 @@ final class PageWriteTrx extends AbsForwardingPageReadTrx implements
 		final long nodePageKey = mPageRtx.nodePageKey(pNodeKey);
 		// final int nodePageOffset = mPageRtx.nodePageOffset(pNodeKey);
 
-		final PageContainer pageCont = getPageContainer(pPage, nodePageKey);
+		PageContainer pageCont = getPageContainer(pPage, nodePageKey);
+		if (pageCont.equals(PageContainer.EMPTY_INSTANCE) && mPrevious.isPresent()) {
+			pageCont = mPrevious.get().getPageContainer(pPage, nodePageKey);
+		}
 		if (pageCont.equals(PageContainer.EMPTY_INSTANCE)) {
 			return mPageRtx.getNode(pNodeKey, pPage);
 		} else {
@@ -294,6 +418,18 @@ final class PageWriteTrx extends AbsForwardingPageReadTrx implements
 		}
 	}
 
+	@Override
+	public void getNodes(final @Nonnull long[] pKeys,
+			final @Nonnegative int pSize, final @Nonnull EPage pPage,
+			final @Nonnull INodeBase[] pNodes) throws SirixIOException {
+		checkArgument(pSize >= 0 && pSize <= pKeys.length
+				&& pSize <= pNodes.length, "pSize exceeds the arrays!");
+		// Modified nodes are looked up in the log one by one.
+		for (int i = 0; i < pSize; i++) {
+			pNodes[i] = pKeys[i] < 0 ? null : getNode(pKeys[i], pPage).orNull();
+		}
+	}
+
 	/**
 	 * Get the page container.
 	 * 
@@ -313,6 +449,10 @@ final class PageWriteTrx extends AbsForwardingPageReadTrx implements
 				return mPathLog.get(pNodePageKey);
 			case VALUEPAGE:
 				return mValueLog.get(pNodePageKey);
+			case PATHINDEXPAGE:
+				return mPathIndexLog.get(pNodePageKey);
+			case CASPAGE:
+				return mCASLog.get(pNodePageKey);
 			default:
 				throw new IllegalStateException();
 			}
@@ -339,6 +479,13 @@ final class PageWriteTrx extends AbsForwardingPageReadTrx implements
 			break;
 		case VALUEPAGE:
 			mValueLog.remove(pNodePageKey);
+			break;
+		case PATHINDEXPAGE:
+			mPathIndexLog.remove(pNodePageKey);
+			break;
+		case CASPAGE:
+			mCASLog.remove(pNodePageKey);
+			break;
 		default:
 			mPageLog.remove(pNodePageKey);
 		}
@@ -412,15 +559,20 @@ final class PageWriteTrx extends AbsForwardingPageReadTrx implements
 			// Recursively commit indirectely referenced pages and then
 			// write self.
 			page.commit(this);
-			mPageWriter.write(pReference);
+			if (mPipeline.isPresent()) {
+				// Written and removed from the reference in order by the pipeline.
+				mPipeline.get().add(pReference, page);
+			} else {
+				mPageWriter.write(pReference);
 
-			// Remove from transaction log.
-			// if (pReference.getPageKind() != null) {
-			// removePageContainer(pReference.getPageKind(), nodePageKey);
-			// }
+				// Remove from transaction log.
+				// if (pReference.getPageKind() != null) {
+				// removePageContainer(pReference.getPageKind(), nodePageKey);
+				// }
 
-			// Remove page reference.
-			pReference.setPage(null);
+				// Remove page reference.
+				pReference.setPage(null);
+			}
 
 			// Afterwards synchronize all logs since the changes must be
 			// written to the transaction log as well.
@@ -452,14 +604,42 @@ final class PageWriteTrx extends AbsForwardingPageReadTrx implements
 			uberPageReference.setPageKind(EPage.UBERPAGE);
 
 			// Recursively write indirectely referenced pages.
-			uberPage.commit(this);
+			final Session session = mPageRtx.mSession;
+			if (session.mCommitPool.isPresent()) {
+				mPipeline = Optional.of(new CommitPipeline(session.mCommitPool.get(),
+						mPageWriter, session.getByteHandler()));
+				try {
+					uberPage.commit(this);
+					mPipeline.get().finish();
+				} finally {
+					mPipeline.get().cancel();
+					mPipeline = Optional.absent();
+				}
+			} else {
+				uberPage.commit(this);
+			}
 
 			uberPageReference.setPage(uberPage);
-			mPageWriter.writeFirstReference(uberPageReference);
+			final Optional<GroupCommit> groupCommit = session.mDatabase
+					.getGroupCommit();
+			if (groupCommit.isPresent()) {
+				// The beacon is updated with the other commits to the data file.
+				mPageWriter.write(uberPageReference);
+				mPageWriter.flush();
+				groupCommit.get().submit(session.getStorage(),
+						uberPageReference.getKey());
+			} else {
+				mPageWriter.writeFirstReference(uberPageReference);
+			}
 			uberPageReference.setPage(null);
 
 			mPageRtx.mSession.waitForFinishedSync(mTransactionID);
 			mPageRtx.mSession.mCommitLock.unlock();
+			if (groupCommit.isPresent()
+					&& !mPageRtx.mSession.mCommitLock.isHeldByCurrentThread()) {
+				// Otherwise awaited as soon as the caller releases the commit lock.
+				groupCommit.get().await();
+			}
 			return uberPage;
 	}
 
@@ -473,7 +653,10 @@ final class PageWriteTrx extends AbsForwardingPageReadTrx implements
 			mPageLog.close();
 			mPathLog.close();
 			mValueLog.close();
+			mPathIndexLog.close();
+			mCASLog.close();
 			mPageWriter.close();
+			closePrevious();
 			mIsClosed = true;
 		}
 	}
@@ -525,7 +708,12 @@ final class PageWriteTrx extends AbsForwardingPageReadTrx implements
 			final PageReference reference = prepareLeafOfTree(
 					mPageRtx.getPageReference(mNewRoot, pPage), pNodePageKey, pPage);
 			final NodePage page = (NodePage) reference.getPage();
-			if (page == null) {
+			final PageContainer previous = mPrevious.isPresent() ? mPrevious.get()
+					.getPageContainer(pPage, pNodePageKey) : PageContainer.EMPTY_INSTANCE;
+			if (!previous.equals(PageContainer.EMPTY_INSTANCE)) {
+				// The frozen transaction must not be modified.
+				cont = copy(previous);
+			} else if (page == null) {
 				if (reference.getKey() == IConstants.NULL_ID) {
 					cont = new PageContainer(new NodePage(pNodePageKey,
 							IConstants.UBP_ROOT_REVISION_NUMBER));
@@ -550,9 +738,16 @@ final class PageWriteTrx extends AbsForwardingPageReadTrx implements
 			case VALUEPAGE:
 				mValueLog.put(pNodePageKey, cont);
 				break;
+			case PATHINDEXPAGE:
+				mPathIndexLog.put(pNodePageKey, cont);
+				break;
+			case CASPAGE:
+				mCASLog.put(pNodePageKey, cont);
+				break;
 			default:
 				throw new IllegalStateException("Page kind not known!");
 			}
+			mNodePageKeys.get(pPage).add(pNodePageKey);
 		}
 		mNodePageCon = cont;
 	}
@@ -653,6 +848,401 @@ final class PageWriteTrx extends AbsForwardingPageReadTrx implements
 		return mNewRoot;
 	}
 
+	/**
+	 * Get the number of the revision, this transaction is based on.
+	 * 
+	 * @return the revision number
+	 */
+	int getBaseRevisionNumber() {
+		return mPageRtx.getRevisionNumber();
+	}
+
+	/**
+	 * Merge the nodes modified by this transaction into a page transaction,
+	 * which is based on a more recent revision. Nodes in the locked subtrees as
+	 * well as new nodes replace the nodes of the more recent revision, which
+	 * must not have been modified by another transaction in the meantime. The
+	 * changes of the hashes and descendant counts of the ancestors of the locked
+	 * subtrees are added to the more recent revision. Without a page
+	 * transaction the modifications are only checked.
+	 * 
+	 * @param pLatest
+	 *          optional page transaction based on the last committed revision
+	 * @param pRoots
+	 *          keys of the roots of the locked subtrees
+	 * @param pAncestors
+	 *          keys of the ancestors of the locked subtrees
+	 * @throws SirixUsageException
+	 *           if a node outside of the locked subtrees has been modified
+	 * @throws SirixThreadedException
+	 *           if a node has been modified by another transaction
+	 * @throws SirixException
+	 *           if another error occurs
+	 */
+	void merge(final @Nonnull Optional<PageWriteTrx> pLatest,
+			final @Nonnull Set<Long> pRoots, final @Nonnull Set<Long> pAncestors)
+			throws SirixException {
+		final IPageReadTrx base = mPageRtx.mSession
+				.beginPageReadTrx(getBaseRevisionNumber());
+		try {
+			final Map<Long, Boolean> owned = new HashMap<>();
+			final Map<EKind, Set<Integer>> names = new EnumMap<>(EKind.class);
+			for (final long nodePageKey : mNodePageKeys.get(EPage.NODEPAGE)) {
+				final NodePage page = mNodeLog.get(nodePageKey).getModified();
+				for (int slot = page.nextSlot(0); slot >= 0; slot = page
+						.nextSlot(slot + 1)) {
+					final INode node = (INode) page.getNodeInSlot(slot);
+					final long key = node.getNodeKey();
+					final INode baseNode = (INode) base.getNode(key, EPage.NODEPAGE)
+							.orNull();
+					if (isSameNode(baseNode, node)) {
+						// Copied unchanged by the revisioning.
+						continue;
+					}
+					if (key > mBaseMaxNodeKey || isOwned(key, base, pRoots, owned)) {
+						if (pLatest.isPresent()) {
+							final PageWriteTrx latest = pLatest.get();
+							if (!isSameNode(baseNode,
+									(INode) latest.getNode(key, EPage.NODEPAGE).orNull())) {
+								throw new SirixThreadedException("Node ",
+										String.valueOf(key), " has been modified concurrently!");
+							}
+							latest.setNode(node, EPage.NODEPAGE);
+							addNames(node, names);
+							if (baseNode != null) {
+								addNames(baseNode, names);
+							}
+						}
+					} else if (pAncestors.contains(key) && baseNode != null
+							&& isHashUpdate(baseNode, node)) {
+						if (pLatest.isPresent()) {
+							final PageWriteTrx latest = pLatest.get();
+							if (!latest.getNode(key, EPage.NODEPAGE).isPresent()) {
+								throw new SirixThreadedException("Node ",
+										String.valueOf(key), " has been removed concurrently!");
+							}
+							final INode ancestor = (INode) latest.prepareNodeForModification(
+									key, EPage.NODEPAGE);
+							ancestor.setHash(ancestor.getHash() + node.getHash()
+									- baseNode.getHash());
+							if (ancestor instanceof IStructNode) {
+								final IStructNode structAncestor = (IStructNode) ancestor;
+								structAncestor.setDescendantCount(structAncestor
+										.getDescendantCount()
+										+ ((IStructNode) node).getDescendantCount()
+										- ((IStructNode) baseNode).getDescendantCount());
+							}
+							latest.finishNodeModification(ancestor, EPage.NODEPAGE);
+						}
+					} else {
+						throw new SirixUsageException("Node ", String.valueOf(key),
+								" has been modified outside of the locked subtrees!");
+					}
+				}
+			}
+
+			if (pLatest.isPresent()) {
+				final RevisionRootPage latestRoot = pLatest.get().mNewRoot;
+				latestRoot.setMaxNodeKey(Math.max(latestRoot.getMaxNodeKey(),
+						mNewRoot.getMaxNodeKey()));
+
+				// Add the changed number of occurences of the names.
+				final NamePage namePage = (NamePage) mNewRoot.getNamePageReference()
+						.getPage();
+				final NamePage latestNamePage = (NamePage) latestRoot
+						.getNamePageReference().getPage();
+				for (final Entry<EKind, Set<Integer>> entry : names.entrySet()) {
+					final EKind kind = entry.getKey();
+					for (final int nameKey : entry.getValue()) {
+						int delta = namePage.getCount(nameKey, kind)
+								- base.getNameCount(nameKey, kind);
+						for (; delta > 0; delta--) {
+							latestNamePage.setName(nameKey, namePage.getName(nameKey, kind),
+									kind);
+						}
+						for (; delta < 0; delta++) {
+							latestNamePage.removeName(nameKey, kind);
+						}
+					}
+				}
+			}
+		} finally {
+			base.close();
+		}
+	}
+
+	/**
+	 * Set a node, which replaces the node with the same key.
+	 * 
+	 * @param pNode
+	 *          the node to set
+	 * @param pPage
+	 *          the kind of page
+	 * @throws SirixIOException
+	 *           if an I/O error occurs
+	 */
+	private void setNode(final @Nonnull INodeBase pNode,
+			final @Nonnull EPage pPage) throws SirixIOException {
+		prepareNodePage(mPageRtx.nodePageKey(pNode.getNodeKey()), pPage);
+		mNodePageCon.getModified().setNode(pNode);
+		if (pNode instanceof DeletedNode) {
+			mNodePageCon.getComplete().setNode(pNode);
+		}
+		finishNodeModification(pNode, pPage);
+	}
+
+	/**
+	 * Commit all modifications. A transaction, which has been layered on a
+	 * frozen transaction, is based on a revision, which isn't the last committed
+	 * revision anymore, once the frozen transaction is durable. Thus its
+	 * modifications are rebased onto a new page transaction, which is based on
+	 * the last committed revision.
+	 * 
+	 * @return the committed {@link UberPage}
+	 * @throws SirixException
+	 *           if the revision couldn't be committed
+	 */
+	UberPage commitOnLastRevision() throws SirixException {
+		if (!mLayered) {
+			return commit(EMultipleWriteTrx.NO);
+		}
+		final Session session = mPageRtx.mSession;
+		final int lastRevision = session.getLastRevisionNumber();
+		final PageWriteTrx latest = (PageWriteTrx) session
+				.createPageWriteTransaction(mTransactionID, lastRevision,
+						lastRevision);
+		try {
+			// The own logs hold the complete state of the modified nodes.
+			for (final Entry<EPage, Set<Long>> entry : mNodePageKeys.entrySet()) {
+				final EPage pageKind = entry.getKey();
+				for (final long nodePageKey : entry.getValue()) {
+					final NodePage page = getPageContainer(pageKind, nodePageKey)
+							.getModified();
+					for (int slot = page.nextSlot(0); slot >= 0; slot = page
+							.nextSlot(slot + 1)) {
+						latest.setNode(page.getNodeInSlot(slot), pageKind);
+					}
+				}
+			}
+			final RevisionRootPage latestRoot = latest.mNewRoot;
+			latestRoot.setMaxNodeKey(mNewRoot.getMaxNodeKey());
+			latestRoot.setMaxPathNodeKey(mNewRoot.getMaxPathNodeKey());
+			latestRoot.setMaxValueNodeKey(mNewRoot.getMaxValueNodeKey());
+			latestRoot.setMaxCASNodeKey(mNewRoot.getMaxCASNodeKey());
+			latestRoot.getNamePageReference().setPage(
+					mNewRoot.getNamePageReference().getPage());
+			return latest.commit(EMultipleWriteTrx.NO);
+		} finally {
+			latest.close();
+		}
+	}
+
+	/**
+	 * Close the frozen transaction, this transaction has been layered on, once
+	 * it's durable and its logs are not needed anymore, that is before this
+	 * transaction is frozen in turn.
+	 * 
+	 * @throws SirixIOException
+	 *           if an I/O error occurs
+	 */
+	void closePrevious() throws SirixIOException {
+		if (mPrevious.isPresent()) {
+			mPrevious.get().close();
+			mPrevious = Optional.absent();
+		}
+	}
+
+	/**
+	 * Copy a page container of a frozen transaction. The copied complete page
+	 * includes the modified nodes, whereas the modified page is empty.
+	 * 
+	 * @param pContainer
+	 *          the {@link PageContainer} to copy
+	 * @return the copy
+	 */
+	private static PageContainer copy(final @Nonnull PageContainer pContainer) {
+		final NodePage complete = (NodePage) copy(pContainer.getComplete());
+		final NodePage modified = (NodePage) copy(pContainer.getModified());
+		for (int slot = modified.nextSlot(0); slot >= 0; slot = modified
+				.nextSlot(slot + 1)) {
+			complete.setNode(modified.getNodeInSlot(slot));
+		}
+		return new PageContainer(complete);
+	}
+
+	/**
+	 * Copy a page by serializing and deserializing it.
+	 * 
+	 * @param pPage
+	 *          the page to copy
+	 * @return the copy
+	 */
+	private static IPage copy(final @Nonnull IPage pPage) {
+		final ByteArrayDataOutput output = ByteStreams.newDataOutput();
+		PagePersistenter.serializePage(output, pPage);
+		return PagePersistenter.deserializePage(ByteStreams.newDataInput(output
+				.toByteArray()));
+	}
+
+	/**
+	 * Determines if a node is in one of the locked subtrees of the revision, a
+	 * transaction is based on.
+	 * 
+	 * @param pNodeKey
+	 *          key of the node
+	 * @param pBase
+	 *          page transaction on the base revision
+	 * @param pRoots
+	 *          keys of the roots of the locked subtrees
+	 * @param pOwned
+	 *          nodes, which have been checked before
+	 * @return {@code true}, if the node is in a locked subtree, {@code false}
+	 *         otherwise
+	 * @throws SirixIOException
+	 *           if an I/O error occurs
+	 */
+	private static boolean isOwned(final long pNodeKey,
+			final @Nonnull IPageReadTrx pBase, final @Nonnull Set<Long> pRoots,
+			final @Nonnull Map<Long, Boolean> pOwned) throws SirixIOException {
+		final List<Long> path = new ArrayList<>();
+		long key = pNodeKey;
+		Boolean owned = pOwned.get(key);
+		while (owned == null) {
+			path.add(key);
+			if (pRoots.contains(key)) {
+				owned = true;
+			} else {
+				final Optional<? extends INodeBase> node = pBase.getNode(key,
+						EPage.NODEPAGE);
+				if (node.isPresent()
+						&& ((INode) node.get()).getParentKey() != EFixed.NULL_NODE_KEY
+								.getStandardProperty()) {
+					key = ((INode) node.get()).getParentKey();
+					owned = pOwned.get(key);
+				} else {
+					owned = false;
+				}
+			}
+		}
+		for (final long pathKey : path) {
+			pOwned.put(pathKey, owned);
+		}
+		return owned;
+	}
+
+	/**
+	 * Determines if two versions of a node are equal. Besides
+	 * {@link Object#equals(Object)}, which doesn't compare the parent and
+	 * sibling keys for instance, all structural fields, the hash and the
+	 * descendant count are compared.
+	 * 
+	 * @param pFirst
+	 *          the first version, {@code null} if the node doesn't exist
+	 * @param pSecond
+	 *          the second version, {@code null} if the node doesn't exist
+	 * @return {@code true}, if both versions are equal or don't exist,
+	 *         {@code false} otherwise
+	 */
+	private static boolean isSameNode(final @Nullable INode pFirst,
+			final @Nullable INode pSecond) {
+		if (pFirst == null || pSecond == null) {
+			return pFirst == pSecond;
+		}
+		if (!Objects.equal(pFirst, pSecond) || !isHashUpdate(pFirst, pSecond)
+				|| pFirst.getHash() != pSecond.getHash()) {
+			return false;
+		}
+		return !(pFirst instanceof IStructNode)
+				|| ((IStructNode) pFirst).getDescendantCount() == ((IStructNode) pSecond)
+						.getDescendantCount();
+	}
+
+	/**
+	 * Determines if only the hash and the descendant count of a node differ.
+	 * 
+	 * @param pBase
+	 *          the node in the base revision
+	 * @param pNode
+	 *          the modified node
+	 * @return {@code true}, if only the hash and the descendant count differ,
+	 *         {@code false} otherwise
+	 */
+	private static boolean isHashUpdate(final @Nonnull INode pBase,
+			final @Nonnull INode pNode) {
+		if (pBase.getKind() != pNode.getKind()
+				|| pBase.getParentKey() != pNode.getParentKey()) {
+			return false;
+		}
+		if (pBase instanceof IStructNode) {
+			final IStructNode base = (IStructNode) pBase;
+			final IStructNode node = (IStructNode) pNode;
+			if (base.getFirstChildKey() != node.getFirstChildKey()
+					|| base.getLeftSiblingKey() != node.getLeftSiblingKey()
+					|| base.getRightSiblingKey() != node.getRightSiblingKey()
+					|| base.getChildCount() != node.getChildCount()) {
+				return false;
+			}
+		}
+		if (pBase instanceof INameNode) {
+			final INameNode base = (INameNode) pBase;
+			final INameNode node = (INameNode) pNode;
+			if (base.getNameKey() != node.getNameKey()
+					|| base.getURIKey() != node.getURIKey()) {
+				return false;
+			}
+		}
+		if (pBase instanceof ElementNode) {
+			final ElementNode base = (ElementNode) pBase;
+			final ElementNode node = (ElementNode) pNode;
+			if (base.getAttributeCount() != node.getAttributeCount()
+					|| base.getNamespaceCount() != node.getNamespaceCount()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Add the keys of the names of a node.
+	 * 
+	 * @param pNode
+	 *          the node
+	 * @param pNames
+	 *          the name keys of each kind
+	 */
+	private static void addNames(final @Nonnull INode pNode,
+			final @Nonnull Map<EKind, Set<Integer>> pNames) {
+		if (pNode instanceof INameNode) {
+			final INameNode node = (INameNode) pNode;
+			final EKind kind = node.getKind();
+			if (kind == EKind.ELEMENT || kind == EKind.ATTRIBUTE
+					|| kind == EKind.NAMESPACE) {
+				addName(kind, node.getNameKey(), pNames);
+			}
+			addName(EKind.NAMESPACE, node.getURIKey(), pNames);
+		}
+	}
+
+	/**
+	 * Add the key of a name.
+	 * 
+	 * @param pKind
+	 *          the kind of the name
+	 * @param pNameKey
+	 *          the key of the name
+	 * @param pNames
+	 *          the name keys of each kind
+	 */
+	private static void addName(final @Nonnull EKind pKind, final int pNameKey,
+			final @Nonnull Map<EKind, Set<Integer>> pNames) {
+		Set<Integer> keys = pNames.get(pKind);
+		if (keys == null) {
+			keys = new HashSet<>();
+			pNames.put(pKind, keys);
+		}
+		keys.add(pNameKey);
+	}
+
 	/**
 	 * Updating a container in this {@link PageWriteTrx}.
 	 * 
@@ -672,6 +1262,12 @@ final class PageWriteTrx extends AbsForwardingPageReadTrx implements
 		case VALUEPAGE:
 			container = mValueLog.get(nodePageKey);
 			break;
+		case PATHINDEXPAGE:
+			container = mPathIndexLog.get(nodePageKey);
+			break;
+		case CASPAGE:
+			container = mCASLog.get(nodePageKey);
+			break;
 		case NODEPAGE:
 			container = mNodeLog.get(nodePageKey);
 			break;
@@ -683,9 +1279,10 @@ final class PageWriteTrx extends AbsForwardingPageReadTrx implements
 		final NodePage modified = container.getModified();
 		final NodePage otherModified = pContainer.getModified();
 		synchronized (modified) {
-			for (final Entry<Long, INodeBase> entry : otherModified.entrySet()) {
-				if (modified.getNode(entry.getKey()) == null) {
-					modified.setNode(entry.getValue());
+			for (int slot = otherModified.nextSlot(0); slot >= 0; slot = otherModified
+					.nextSlot(slot + 1)) {
+				if (!modified.isSlotOccupied(slot)) {
+					modified.setNode(otherModified.getNodeInSlot(slot));
 				}
 			}
 		}
@@ -703,5 +1300,49 @@ final class PageWriteTrx extends AbsForwardingPageReadTrx implements
 		mNodeLog.clear();
 		mPathLog.clear();
 		mValueLog.clear();
+		mPathIndexLog.clear();
+		mCASLog.clear();
+	}
+
+	/**
+	 * Reset the document root of an index tree to an empty tree, such that the
+	 * index can be rebuilt in this revision. The nodes of the former tree are
+	 * not reused, as new nodes get keys above the maximum key, thus they are
+	 * simply unreachable in the new revision. If the tree doesn't exist yet,
+	 * because the index has not been enabled so far, the document root is
+	 * created.
+	 * 
+	 * @param pPage
+	 *          {@code PATHSUMMARYPAGE}, {@code VALUEPAGE} or {@code CASPAGE}
+	 * @throws SirixIOException
+	 *           if an I/O error occurs
+	 * @throws IllegalArgumentException
+	 *           if the page kind is not supported
+	 */
+	void resetIndex(final @Nonnull EPage pPage) throws SirixIOException {
+		checkArgument(pPage == EPage.PATHSUMMARYPAGE || pPage == EPage.VALUEPAGE
+				|| pPage == EPage.CASPAGE, "Not supported for the page kind!");
+		final long documentKey = EFixed.DOCUMENT_NODE_KEY.getStandardProperty();
+		final long nullKey = EFixed.NULL_NODE_KEY.getStandardProperty();
+		if (getNode(documentKey, pPage).isPresent()) {
+			final IStructNode document = (IStructNode) prepareNodeForModification(
+					documentKey, pPage);
+			document.setFirstChildKey(nullKey);
+			while (document.getChildCount() > 0) {
+				document.decrementChildCount();
+			}
+			document.setDescendantCount(0);
+			finishNodeModification(document, pPage);
+		} else {
+			final long maxKey = pPage == EPage.PATHSUMMARYPAGE ? mNewRoot
+					.getMaxPathNodeKey() : pPage == EPage.VALUEPAGE ? mNewRoot
+					.getMaxValueNodeKey() : mNewRoot.getMaxCASNodeKey();
+			checkState(maxKey == nullKey, "Index tree without document root!");
+			final NodeDelegate nodeDel = new NodeDelegate(documentKey, nullKey,
+					nullKey, 0);
+			final StructNodeDelegate structDel = new StructNodeDelegate(nodeDel,
+					nullKey, nullKey, nullKey, 0, 0);
+			createNode(new DocumentRootNode(nodeDel, structDel), pPage);
+		}
 	}
-}
\ No newline at end of file
+}
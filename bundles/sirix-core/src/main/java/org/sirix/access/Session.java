@@ -29,10 +29,12 @@ package org.sirix.access;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
 
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.EnumSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
@@ -40,11 +42,11 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.Future;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
 import javax.annotation.Nonnegative;
@@ -61,22 +63,30 @@ import org.sirix.api.IPageReadTrx;
 import org.sirix.api.IPageWriteTrx;
 import org.sirix.api.ISession;
 import org.sirix.cache.PageContainer;
+import org.sirix.cache.SharedPageCache;
 import org.sirix.cache.TransactionLogPageCache;
 import org.sirix.exception.SirixException;
 import org.sirix.exception.SirixIOException;
 import org.sirix.exception.SirixThreadedException;
 import org.sirix.exception.SirixUsageException;
+import org.sirix.index.cas.CASIndex;
+import org.sirix.index.path.PathIndex;
 import org.sirix.index.path.PathSummary;
 import org.sirix.io.EStorage;
 import org.sirix.io.IReader;
 import org.sirix.io.IStorage;
 import org.sirix.io.IWriter;
+import org.sirix.io.bytepipe.IByteHandler;
 import org.sirix.page.EPage;
+import org.sirix.page.PagePersistenter;
 import org.sirix.page.PageReference;
 import org.sirix.page.UberPage;
 
 import com.google.common.base.Objects;
 import com.google.common.base.Optional;
+import com.google.common.cache.CacheStats;
+import com.google.common.io.ByteArrayDataOutput;
+import com.google.common.io.ByteStreams;
 
 /**
  * <h1>Session</h1>
@@ -89,7 +99,7 @@ import com.google.common.base.Optional;
 public final class Session implements ISession {
 
 	/** Database for centralized closure of related Sessions. */
-	private final Database mDatabase;
+	final Database mDatabase;
 
 	/** Write semaphore to assure only one exclusive write transaction exists. */
 	private final Semaphore mWriteSemaphore;
@@ -100,6 +110,14 @@ public final class Session implements ISession {
 	/** Strong reference to uber page before the begin of a write transaction. */
 	private volatile UberPage mLastCommittedUberPage;
 
+	/**
+	 * Uber page of the last commit of a concurrent write transaction, which is
+	 * written, but whose beacon update might still be pending. Concurrent
+	 * commits are merged onto it, but it is not visible to readers until it has
+	 * been published.
+	 */
+	private volatile UberPage mLastWrittenUberPage;
+
 	/** Remember all running node transactions (both read and write). */
 	private final Map<Long, INodeReadTrx> mNodeTrxMap;
 
@@ -107,7 +125,7 @@ public final class Session implements ISession {
 	private final Map<Long, IPageReadTrx> mPageTrxMap;
 
 	/** Lock for blocking the commit. */
-	final Lock mCommitLock;
+	final ReentrantLock mCommitLock;
 
 	/** Session configuration. */
 	final ResourceConfiguration mResourceConfig;
@@ -124,6 +142,15 @@ public final class Session implements ISession {
 	/** abstract factory for all interaction to the storage. */
 	private final IStorage mFac;
 
+	/** Optional page cache shared by all read transactions. */
+	private final Optional<SharedPageCache> mPageCache;
+
+	/** Optional pool to serialize pages in parallel during a commit. */
+	final Optional<ForkJoinPool> mCommitPool;
+
+	/** Optional prefetcher to read fragments of several revisions in parallel. */
+	final Optional<FragmentPrefetcher> mPrefetcher;
+
 	/** Atomic counter for concurrent generation of node transaction id. */
 	private final AtomicLong mNodeTrxIDCounter;
 
@@ -136,6 +163,12 @@ public final class Session implements ISession {
 	/** File denoting that currently a version is commited. */
 	File mCommitFile;
 
+	/** Subtree locks of concurrent write transactions. */
+	final LockManager mLockManager;
+
+	/** Last node key reserved by a concurrent write transaction. */
+	private long mReservedNodeKey;
+
 	/**
 	 * Package private constructor.
 	 * 
@@ -147,7 +180,8 @@ public final class Session implements ISession {
 	 * @param pSessionConf
 	 *          {@link SessionConfiguration} for handling this specific session
 	 * @throws SirixException
-	 *           if sirix encounters an error
+	 *           if sirix encounters an error or the resource doesn't support
+	 *           concurrent write transactions, which are configured
 	 */
 	Session(@Nonnull final Database pDatabase,
 			@Nonnull final ResourceConfiguration pResourceConf,
@@ -155,6 +189,32 @@ public final class Session implements ISession {
 		mDatabase = checkNotNull(pDatabase);
 		mResourceConfig = checkNotNull(pResourceConf);
 		mSessionConfig = checkNotNull(pSessionConf);
+		if (isConcurrent()) {
+			// Only the node pages of concurrent transactions are merged on commit,
+			// not the path summary and the index pages. The default configuration
+			// of a resource includes the path summary.
+			final Set<EIndexes> indexes = EnumSet.noneOf(EIndexes.class);
+			indexes.addAll(mResourceConfig.mIndexes);
+			indexes.remove(EIndexes.NONE);
+			if (!indexes.isEmpty() || !mResourceConfig.mCASIndexes.isEmpty()) {
+				final StringBuilder names = new StringBuilder();
+				for (final EIndexes index : indexes) {
+					names.append(names.length() == 0 ? "" : ", ").append(index);
+				}
+				if (!mResourceConfig.mCASIndexes.isEmpty()) {
+					names.append(names.length() == 0 ? "" : ", ").append("CAS");
+				}
+				throw new SirixUsageException(
+						"Concurrent write transactions don't maintain indexes. Disable the",
+						names.toString(),
+						"indexes of the resource, that is create it with setIndexes(EnumSet.of(EIndexes.NONE)) and without CAS indexes!");
+			}
+			if (mResourceConfig.mHashKind == EHashKind.Postorder) {
+				// Only rolling hashes of ancestors may be merged.
+				throw new SirixUsageException(
+						"Concurrent write transactions require rolling hashes!");
+			}
+		}
 		mNodeTrxMap = new ConcurrentHashMap<>();
 		mPageTrxMap = new ConcurrentHashMap<>();
 		mNodePageTrxMap = new ConcurrentHashMap<>();
@@ -163,10 +223,17 @@ public final class Session implements ISession {
 		mNodeTrxIDCounter = new AtomicLong();
 		mPageTrxIDCounter = new AtomicLong();
 		mCommitLock = new ReentrantLock(false);
+		mLockManager = new LockManager();
 
 		// Init session members.
 		mWriteSemaphore = new Semaphore(pSessionConf.mWtxAllowed);
 		mReadSemaphore = new Semaphore(pSessionConf.mRtxAllowed);
+		mPageCache = pSessionConf.mPageCacheWeight > 0 ? Optional
+				.of(new SharedPageCache(pSessionConf.mPageCacheWeight)) : Optional
+				.<SharedPageCache> absent();
+		mCommitPool = pSessionConf.mCommitThreads > 0 ? Optional
+				.of(new ForkJoinPool(pSessionConf.mCommitThreads)) : Optional
+				.<ForkJoinPool> absent();
 
 		mFac = EStorage.getStorage(mResourceConfig);
 		if (mFac.exists()) {
@@ -189,7 +256,16 @@ public final class Session implements ISession {
 			if (indexes.contains(EIndexes.VALUE)) {
 				mLastCommittedUberPage.createValueTree();
 			}
+			if (indexes.contains(EIndexes.PATH_CLASS)) {
+				mLastCommittedUberPage.createPathIndexTree();
+			}
+			if (!pResourceConf.mCASIndexes.isEmpty()) {
+				mLastCommittedUberPage.createCASTree();
+			}
 		}
+		mPrefetcher = pSessionConf.mFragmentReadThreads > 0 ? Optional
+				.of(new FragmentPrefetcher(mFac, pSessionConf.mFragmentReadThreads))
+				: Optional.<FragmentPrefetcher> absent();
 		mClosed = false;
 	}
 
@@ -217,7 +293,8 @@ public final class Session implements ISession {
 		// Create new read transaction.
 		final INodeReadTrx rtx = new NodeReadTrx(this,
 				mNodeTrxIDCounter.incrementAndGet(), new PageReadTrx(this,
-						mLastCommittedUberPage, pRevisionKey, mFac.getReader(), log));
+						mLastCommittedUberPage, pRevisionKey, mFac.getReader(), log,
+						mPageCache));
 
 		// Remember transaction for debugging and safe close.
 		if (mNodeTrxMap.put(rtx.getTransactionID(), rtx) != null) {
@@ -238,24 +315,26 @@ public final class Session implements ISession {
 	 */
 	private Optional<TransactionLogPageCache> getLog(
 			final @Nonnegative int pRevision) throws SirixIOException {
-		commitFile(pRevision);
-		final Optional<TransactionLogPageCache> log = mCommitFile.exists() ? Optional
+		final Optional<TransactionLogPageCache> log = getCommitFile(pRevision)
+				.exists() ? Optional
 				.of(new TransactionLogPageCache(mResourceConfig.mPath, pRevision,
 						"page")) : Optional.<TransactionLogPageCache> absent();
 		return log;
 	}
 
 	/**
-	 * A commit file which is used by a {@link INodeWriteTrx} to denote if it's
-	 * currently commiting or not.
+	 * Get the commit file which is used by a {@link INodeWriteTrx} to denote if
+	 * it's currently commiting or not. Read transactions only check it, as the
+	 * commit file of a running write transaction must not change.
 	 * 
 	 * @param pRevision
 	 *          revision number
+	 * @return the commit file
 	 */
-	private void commitFile(final int pRevision) {
+	private File getCommitFile(final int pRevision) {
 		final int revision = mLastCommittedUberPage.isBootstrap() ? 0
 				: pRevision + 1;
-		mCommitFile = new File(mResourceConfig.mPath, new File(
+		return new File(mResourceConfig.mPath, new File(
 				ResourceConfiguration.Paths.TransactionLog.getFile(), new File(
 						new File(String.valueOf(revision)), ".commit").getPath()).getPath());
 	}
@@ -276,6 +355,14 @@ public final class Session implements ISession {
 		}
 		checkNotNull(pTimeUnit);
 
+		if (isConcurrent()) {
+			if (mLastCommittedUberPage.isBootstrap()
+					&& mWriteSemaphore.availablePermits() < mSessionConfig.mWtxAllowed) {
+				throw new SirixUsageException(
+						"Concurrent write transactions require a committed revision!");
+			}
+		}
+
 		// Make sure not to exceed available number of write transactions.
 		if (mWriteSemaphore.availablePermits() == 0) {
 			throw new IllegalStateException(
@@ -291,7 +378,7 @@ public final class Session implements ISession {
 		// trx).
 		final long currentTrxID = mNodeTrxIDCounter.incrementAndGet();
 		final int lastRev = mLastCommittedUberPage.getRevisionNumber();
-		commitFile(lastRev);
+		mCommitFile = getCommitFile(lastRev);
 		final IPageWriteTrx pageWtx = createPageWriteTransaction(currentTrxID,
 				lastRev, lastRev);
 
@@ -325,16 +412,60 @@ public final class Session implements ISession {
 	IPageWriteTrx createPageWriteTransaction(@Nonnegative final long pId,
 			@Nonnegative final int pRepresentRevision,
 			@Nonnegative final int pStoreRevision) throws SirixException {
+		return createPageWriteTransaction(pId, pRepresentRevision, pStoreRevision,
+				Optional.<PageWriteTrx> absent());
+	}
+
+	/**
+	 * Create a new {@link IPageWriteTrx}, which is optionally layered on a frozen
+	 * page transaction, that is committed in the background.
+	 * 
+	 * @param pId
+	 *          the transaction ID
+	 * @param pRepresentRevision
+	 *          the revision which is represented
+	 * @param pStoreRevision
+	 *          revisions
+	 * @param pPrevious
+	 *          optional frozen page transaction
+	 * @return a new {@link IPageWriteTrx} instance
+	 * @throws SirixException
+	 *           if an error occurs
+	 */
+	IPageWriteTrx createPageWriteTransaction(@Nonnegative final long pId,
+			@Nonnegative final int pRepresentRevision,
+			@Nonnegative final int pStoreRevision,
+			@Nonnull final Optional<PageWriteTrx> pPrevious) throws SirixException {
 		checkArgument(pId >= 0, "pId must be >= 0!");
 		checkArgument(pRepresentRevision >= 0, "pRepresentRevision must be >= 0!");
 		checkArgument(pStoreRevision >= 0, "pStoreRevision must be >= 0!");
 		final IWriter writer = mFac.getWriter();
-		final int lastCommitedRev = mLastCommittedUberPage
-				.getLastCommitedRevisionNumber() > 0 ? mLastCommittedUberPage
+		final UberPage lastUberPage = getLastWrittenUberPage();
+		final int lastCommitedRev = lastUberPage.getLastCommitedRevisionNumber() > 0 ? lastUberPage
 				.getLastCommitedRevisionNumber() : 0;
-		return new PageWriteTrx(this, new UberPage(mLastCommittedUberPage,
-				pStoreRevision + 1), writer, pId, pRepresentRevision, pStoreRevision,
-				lastCommitedRev);
+		// Concurrent write transactions must not share the pages of the
+		// committed uber page, as they modify the page references in place. The
+		// same holds for a transaction, which is layered on a frozen one.
+		final UberPage uberPage = (isConcurrent() || pPrevious.isPresent())
+				&& !lastUberPage.isBootstrap() ? copy(lastUberPage) : lastUberPage;
+		return new PageWriteTrx(this, new UberPage(uberPage, pStoreRevision + 1),
+				writer, pId, pRepresentRevision, pStoreRevision, lastCommitedRev,
+				pPrevious);
+	}
+
+	/**
+	 * Copy a committed {@link UberPage}, whose references only contain the keys
+	 * of the referenced pages.
+	 * 
+	 * @param pUberPage
+	 *          the committed {@link UberPage}
+	 * @return the copy
+	 */
+	private static UberPage copy(final @Nonnull UberPage pUberPage) {
+		final ByteArrayDataOutput output = ByteStreams.newDataOutput();
+		PagePersistenter.serializePage(output, pUberPage);
+		return (UberPage) PagePersistenter.deserializePage(ByteStreams
+				.newDataInput(output.toByteArray()));
 	}
 
 	@Override
@@ -361,12 +492,26 @@ public final class Session implements ISession {
 
 			// Immediately release all ressources.
 			mLastCommittedUberPage = null;
+			mLastWrittenUberPage = null;
 			mNodeTrxMap.clear();
 			mPageTrxMap.clear();
 			mNodePageTrxMap.clear();
+			if (mPageCache.isPresent()) {
+				mPageCache.get().clear();
+			}
+			if (mCommitPool.isPresent()) {
+				mCommitPool.get().shutdown();
+			}
+			if (mPrefetcher.isPresent()) {
+				mPrefetcher.get().close();
+			}
 
 			mDatabase.removeSession(mResourceConfig.mPath);
 
+			final Optional<GroupCommit> groupCommit = mDatabase.getGroupCommit();
+			if (groupCommit.isPresent()) {
+				groupCommit.get().release(mFac);
+			}
 			mFac.close();
 			mClosed = true;
 		}
@@ -445,6 +590,9 @@ public final class Session implements ISession {
 		// Remove from internal map.
 		removeFromPageMapping(pTransactionID);
 
+		// Release the subtree locks.
+		mLockManager.unlock(pTransactionID);
+
 		// Make new transactions available.
 		mWriteSemaphore.release();
 	}
@@ -593,6 +741,126 @@ public final class Session implements ISession {
 		}
 	}
 
+	/**
+	 * Determines if several write transactions may modify the resource
+	 * concurrently, that is each of them locks the subtrees it modifies and
+	 * their changes are merged during the commit.
+	 * 
+	 * @return {@code true}, if more than one write transaction is allowed,
+	 *         {@code false} otherwise
+	 */
+	boolean isConcurrent() {
+		return mSessionConfig.mWtxAllowed > 1;
+	}
+
+	/**
+	 * Reserve a node key for a concurrent write transaction, which is unique
+	 * among all write transactions of this session.
+	 * 
+	 * @param pMaxNodeKey
+	 *          maximum node key of the transaction
+	 * @return the reserved node key
+	 */
+	synchronized long reserveNodeKey(final long pMaxNodeKey) {
+		mReservedNodeKey = Math.max(mReservedNodeKey, pMaxNodeKey) + 1;
+		return mReservedNodeKey;
+	}
+
+	/**
+	 * Commit the changes of a concurrent write transaction. If another
+	 * transaction has committed in the meantime, the changes are merged into a
+	 * new page transaction based on the last committed revision, otherwise the
+	 * page transaction commits directly. In both cases all modified nodes must
+	 * be in a subtree locked by the transaction or must be ancestors of such a
+	 * subtree, whose hashes and descendant counts have changed.
+	 * 
+	 * @param pTransactionID
+	 *          ID of the write transaction
+	 * @param pPageWriteTrx
+	 *          page transaction of the write transaction
+	 * @return the committed {@link UberPage}
+	 * @throws SirixException
+	 *           if the changes conflict with the last committed revision or
+	 *           another error occurs
+	 */
+	UberPage commit(final @Nonnegative long pTransactionID,
+			final @Nonnull PageWriteTrx pPageWriteTrx) throws SirixException {
+		mCommitLock.lock();
+		try {
+			final UberPage lastUberPage = getLastWrittenUberPage();
+			final UberPage uberPage;
+			if (lastUberPage.isBootstrap()) {
+				// No other write transaction exists.
+				uberPage = pPageWriteTrx.commit(EMultipleWriteTrx.NO);
+			} else {
+				final Set<Long> roots = mLockManager.getRoots(pTransactionID);
+				final Set<Long> ancestors = mLockManager.getAncestors(pTransactionID);
+				final int lastRevision = lastUberPage.getRevisionNumber();
+				if (!pPageWriteTrx.getUberPage().isBootstrap()
+						&& pPageWriteTrx.getBaseRevisionNumber() == lastRevision) {
+					pPageWriteTrx.merge(Optional.<PageWriteTrx> absent(), roots,
+							ancestors);
+					uberPage = pPageWriteTrx.commit(EMultipleWriteTrx.NO);
+				} else {
+					final PageWriteTrx pageWtx = (PageWriteTrx) createPageWriteTransaction(
+							pTransactionID, lastRevision, lastRevision);
+					try {
+						pPageWriteTrx.merge(Optional.of(pageWtx), roots, ancestors);
+						uberPage = pageWtx.commit(EMultipleWriteTrx.NO);
+					} finally {
+						pageWtx.close();
+					}
+				}
+			}
+			// Published by the write transaction, once its beacon update succeeded.
+			mLastWrittenUberPage = uberPage;
+			return uberPage;
+		} finally {
+			mCommitLock.unlock();
+		}
+	}
+
+	/**
+	 * Get the {@link UberPage} new revisions are based on, that is the last
+	 * written one of a concurrent commit, whose beacon update might still be
+	 * pending, or the last committed one otherwise.
+	 * 
+	 * @return the {@link UberPage} of the latest revision
+	 */
+	private UberPage getLastWrittenUberPage() {
+		final UberPage written = mLastWrittenUberPage;
+		final UberPage committed = mLastCommittedUberPage;
+		return written != null
+				&& (written.getRevisionNumber() > committed.getRevisionNumber() || committed
+						.isBootstrap()) ? written : committed;
+	}
+
+	/**
+	 * Get the number of the revision new revisions are based on, which might
+	 * not be published yet.
+	 * 
+	 * @return the number of the last written revision
+	 */
+	int getLastWrittenRevisionNumber() {
+		return getLastWrittenUberPage().getRevisionNumber();
+	}
+
+	/**
+	 * Publish the {@link UberPage} of a concurrent commit after its beacon update
+	 * succeeded. The commits of a group commit batch return in any order,
+	 * therefore an older revision never replaces a newer one.
+	 * 
+	 * @param pPage
+	 *          the committed {@link UberPage}
+	 */
+	synchronized void publishUberPage(@Nonnull final UberPage pPage) {
+		checkNotNull(pPage);
+		if (pPage.getRevisionNumber() > mLastCommittedUberPage.getRevisionNumber()
+				|| mLastCommittedUberPage.isBootstrap()) {
+			mLastCommittedUberPage = pPage;
+		}
+	}
+
 	/**
 	 * Set last commited {@link UberPage}.
 	 * 
@@ -621,7 +889,7 @@ public final class Session implements ISession {
 
 		return PathSummary.getInstance(
 				new PageReadTrx(this, mLastCommittedUberPage, pRev, mFac.getReader(),
-						Optional.<TransactionLogPageCache> absent()), this);
+						Optional.<TransactionLogPageCache> absent(), mPageCache), this);
 	}
 
 	@Override
@@ -629,6 +897,38 @@ public final class Session implements ISession {
 		return openPathSummary(mLastCommittedUberPage.getRevisionNumber());
 	}
 
+	@Override
+	public PathIndex openPathIndex(@Nonnegative int pRev) throws SirixException {
+		checkState(mResourceConfig.mIndexes.contains(EIndexes.PATH_CLASS),
+				"The path class index is not enabled!");
+		assertAccess(pRev);
+
+		return PathIndex.getInstance(new PageReadTrx(this, mLastCommittedUberPage,
+				pRev, mFac.getReader(), Optional.<TransactionLogPageCache> absent(),
+				mPageCache));
+	}
+
+	@Override
+	public PathIndex openPathIndex() throws SirixException {
+		return openPathIndex(mLastCommittedUberPage.getRevisionNumber());
+	}
+
+	@Override
+	public CASIndex openCASIndex(@Nonnegative int pRev) throws SirixException {
+		checkState(!mResourceConfig.mCASIndexes.isEmpty(),
+				"No CAS index is defined!");
+		assertAccess(pRev);
+
+		return CASIndex.getInstance(new PageReadTrx(this, mLastCommittedUberPage,
+				pRev, mFac.getReader(), Optional.<TransactionLogPageCache> absent(),
+				mPageCache), this);
+	}
+
+	@Override
+	public CASIndex openCASIndex() throws SirixException {
+		return openCASIndex(mLastCommittedUberPage.getRevisionNumber());
+	}
+
 	@Override
 	public IPageReadTrx beginPageReadTrx() throws SirixException {
 		return beginPageReadTrx(mLastCommittedUberPage.getRevisionNumber());
@@ -638,7 +938,8 @@ public final class Session implements ISession {
 	public synchronized IPageReadTrx beginPageReadTrx(@Nonnegative int pRev)
 			throws SirixException {
 		return new PageReadTrx(this, mLastCommittedUberPage, pRev,
-				mFac.getReader(), Optional.<TransactionLogPageCache> absent());
+				mFac.getReader(), Optional.<TransactionLogPageCache> absent(),
+				mPageCache);
 	}
 
 	@Override
@@ -667,4 +968,28 @@ public final class Session implements ISession {
 	public IDatabase getDatabase() {
 		return mDatabase;
 	}
+
+	/**
+	 * Get the storage of the resource.
+	 * 
+	 * @return the {@link IStorage}
+	 */
+	IStorage getStorage() {
+		return mFac;
+	}
+
+	/**
+	 * Get the byte handler pipeline of the storage.
+	 * 
+	 * @return byte handler pipeline
+	 */
+	IByteHandler getByteHandler() {
+		return mFac.getByteHandler();
+	}
+
+	@Override
+	public CacheStats getPageCacheStats() {
+		return mPageCache.isPresent() ? mPageCache.get().getStats()
+				: new CacheStats(0, 0, 0, 0, 0, 0);
+	}
 }
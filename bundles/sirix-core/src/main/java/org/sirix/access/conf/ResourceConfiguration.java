@@ -28,6 +28,7 @@ package org.sirix.access.conf;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
 
 import java.io.File;
 import java.io.FileReader;
@@ -36,6 +37,7 @@ import java.io.IOException;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.Set;
@@ -43,13 +45,16 @@ import java.util.Set;
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 
+import org.sirix.access.EHashFunction;
 import org.sirix.access.EHashKind;
 import org.sirix.access.Session;
 import org.sirix.exception.SirixIOException;
+import org.sirix.index.cas.CASIndexDefinition;
 import org.sirix.io.EStorage;
 import org.sirix.io.bytepipe.ByteHandlePipeline;
 import org.sirix.io.bytepipe.DeflateCompressor;
 import org.sirix.io.bytepipe.IByteHandler;
+import org.sirix.service.xml.xpath.types.Type;
 import org.sirix.settings.ERevisioning;
 
 import com.google.common.base.Objects;
@@ -151,10 +156,28 @@ public final class ResourceConfiguration {
 		/** Value index. */
 		VALUE,
 
+		/**
+		 * Path class index, which maps the nodes of the path summary to the
+		 * document nodes on the path. Requires {@link #PATH}.
+		 */
+		PATH_CLASS,
+
 		/** No index. */
 		NONE
 	}
 
+	/** Persistent caches of the transaction logs. */
+	public enum ETransactionLog {
+		/** BerkeleyDB environment per log. */
+		BERKELEY,
+
+		/**
+		 * Append-only segment file per log with an in-memory offset table, see
+		 * {@link org.sirix.cache.SpillLogCache}.
+		 */
+		SPILL
+	}
+
 	// FIXED STANDARD FIELDS
 	/** Standard storage. */
 	public static final EStorage STORAGE = EStorage.File;
@@ -165,23 +188,44 @@ public final class ResourceConfiguration {
 	/** Type of hashing. */
 	public static final EHashKind HASHKIND = EHashKind.Rolling;
 
+	/** Hash function of new resources. */
+	public static final EHashFunction HASH_FUNCTION = EHashFunction.MURMUR3;
+
 	/** Versions to restore. */
 	public static final int VERSIONSTORESTORE = 3;
 
-	/** Indexes to use. */
+	/**
+	 * Indexes to use. Concurrent write transactions require
+	 * {@link EIndexes#NONE} instead.
+	 */
 	public static final Set<EIndexes> INDEXES = EnumSet.of(EIndexes.PATH);
+
+	/** Maximum number of bytes buffered during a commit (16 MiB). */
+	public static final long COMMIT_BATCH_SIZE = 16L * 1024L * 1024L;
+
+	/** Determines if the data is forced to the device on commit. */
+	public static final boolean SYNC_ON_COMMIT = false;
+
+	/** Persistent cache of the transaction logs. */
+	public static final ETransactionLog TRANSACTION_LOG = ETransactionLog.BERKELEY;
 	// END FIXED STANDARD FIELDS
 
 	// MEMBERS FOR FIXED FIELDS
 	/** Type of Storage (File, BerkeleyDB). */
 	public final EStorage mStorage;
 
-	/** Kind of revisioning (Full, Incremental, Differential). */
+	/**
+	 * Kind of revisioning (Full, Incremental, Differential, Sliding
+	 * Snapshot).
+	 */
 	public final ERevisioning mRevisionKind;
 
 	/** Kind of integrity hash (rolling, postorder). */
 	public final EHashKind mHashKind;
 
+	/** Hash function applied to the nodes. */
+	public final EHashFunction mHashFunction;
+
 	/** Number of revisions to restore a complete set of data. */
 	public final int mRevisionsToRestore;
 
@@ -200,6 +244,21 @@ public final class ResourceConfiguration {
 	/** Indexes to use. */
 	public final Set<EIndexes> mIndexes;
 
+	/**
+	 * Maximum number of bytes the storage buffers during a commit before they
+	 * are written ({@code 0} writes each page immediately).
+	 */
+	public final long mCommitBatchSize;
+
+	/** Determines if the data is forced to the device on commit. */
+	public final boolean mSyncOnCommit;
+
+	/** Typed content and structure (CAS) indexes, unmodifiable. */
+	public final List<CASIndexDefinition> mCASIndexes;
+
+	/** Persistent cache of the transaction logs. */
+	public final ETransactionLog mTransactionLog;
+
 	/** Unique ID. */
 	private long mID;
 
@@ -217,10 +276,16 @@ public final class ResourceConfiguration {
 		mByteHandler = pBuilder.mByteHandler;
 		mRevisionKind = pBuilder.mRevisionKind;
 		mHashKind = pBuilder.mHashKind;
+		mHashFunction = pBuilder.mHashFunction;
 		mRevisionsToRestore = pBuilder.mRevisionsToRestore;
 		mDBConfig = pBuilder.mDBConfig;
 		mCompression = pBuilder.mCompression;
 		mIndexes = pBuilder.mIndexes;
+		mCommitBatchSize = pBuilder.mCommitBatchSize;
+		mSyncOnCommit = pBuilder.mSyncOnCommit;
+		mCASIndexes = Collections.unmodifiableList(new ArrayList<>(
+				pBuilder.mCASIndexes));
+		mTransactionLog = pBuilder.mTransactionLog;
 		mPath = new File(new File(mDBConfig.getFile(),
 				DatabaseConfiguration.Paths.Data.getFile().getName()),
 				pBuilder.mResource);
@@ -250,8 +315,8 @@ public final class ResourceConfiguration {
 
 	@Override
 	public int hashCode() {
-		return Objects.hashCode(mStorage, mRevisionKind, mHashKind, mPath,
-				mDBConfig);
+		return Objects.hashCode(mStorage, mRevisionKind, mHashKind, mHashFunction,
+				mPath, mDBConfig);
 	}
 
 	@Override
@@ -264,6 +329,7 @@ public final class ResourceConfiguration {
 			return Objects.equal(mStorage, other.mStorage)
 					&& Objects.equal(mRevisionKind, other.mRevisionKind)
 					&& Objects.equal(mHashKind, other.mHashKind)
+					&& Objects.equal(mHashFunction, other.mHashFunction)
 					&& Objects.equal(mPath, other.mPath)
 					&& Objects.equal(mDBConfig, other.mDBConfig);
 		} else {
@@ -275,7 +341,8 @@ public final class ResourceConfiguration {
 	public String toString() {
 		return Objects.toStringHelper(this).add("Resource", mPath)
 				.add("Type", mStorage).add("Revision", mRevisionKind)
-				.add("HashKind", mHashKind).toString();
+				.add("HashKind", mHashKind).add("HashFunction", mHashFunction)
+				.toString();
 	}
 
 	/**
@@ -301,7 +368,9 @@ public final class ResourceConfiguration {
 	 */
 	private static final String[] JSONNAMES = { "revisioning",
 			"revisioningClass", "numbersOfRevisiontoRestore", "byteHandlerClasses",
-			"storageKind", "hashKind", "compression", "dbConfig", "ID" };
+			"storageKind", "hashKind", "compression", "dbConfig", "ID",
+			"commitBatchSize", "syncOnCommit", "casIndexes", "path", "type",
+			"transactionLog", "hashFunction" };
 
 	/**
 	 * Serialize the configuration.
@@ -346,6 +415,21 @@ public final class ResourceConfiguration {
 			jsonWriter.endArray();
 			// ID.
 			jsonWriter.name(JSONNAMES[8]).value(pConfig.mID);
+			// Commit settings.
+			jsonWriter.name(JSONNAMES[9]).value(pConfig.mCommitBatchSize);
+			jsonWriter.name(JSONNAMES[10]).value(pConfig.mSyncOnCommit);
+			// CAS indexes.
+			jsonWriter.name(JSONNAMES[11]);
+			jsonWriter.beginArray();
+			for (final CASIndexDefinition definition : pConfig.mCASIndexes) {
+				jsonWriter.beginObject();
+				jsonWriter.name(JSONNAMES[12]).value(definition.getPath());
+				jsonWriter.name(JSONNAMES[13]).value(definition.getType().name());
+				jsonWriter.endObject();
+			}
+			jsonWriter.endArray();
+			jsonWriter.name(JSONNAMES[14]).value(pConfig.mTransactionLog.name());
+			jsonWriter.name(JSONNAMES[15]).value(pConfig.mHashFunction.name());
 			jsonWriter.endObject();
 		} catch (final IOException e) {
 			throw new SirixIOException(e);
@@ -425,6 +509,41 @@ public final class ResourceConfiguration {
 			name = jsonReader.nextName();
 			assert name.equals(JSONNAMES[8]);
 			final int ID = jsonReader.nextInt();
+			// Optional settings, which are not available in older configurations.
+			long commitBatchSize = COMMIT_BATCH_SIZE;
+			boolean syncOnCommit = SYNC_ON_COMMIT;
+			final List<CASIndexDefinition> casIndexes = new ArrayList<>();
+			ETransactionLog transactionLog = TRANSACTION_LOG;
+			// Former versions hashed the nodes with MD5.
+			EHashFunction hashFunction = EHashFunction.MD5;
+			while (jsonReader.hasNext()) {
+				name = jsonReader.nextName();
+				if (name.equals(JSONNAMES[9])) {
+					commitBatchSize = jsonReader.nextLong();
+				} else if (name.equals(JSONNAMES[10])) {
+					syncOnCommit = jsonReader.nextBoolean();
+				} else if (name.equals(JSONNAMES[11])) {
+					jsonReader.beginArray();
+					while (jsonReader.hasNext()) {
+						jsonReader.beginObject();
+						name = jsonReader.nextName();
+						assert name.equals(JSONNAMES[12]);
+						final String path = jsonReader.nextString();
+						name = jsonReader.nextName();
+						assert name.equals(JSONNAMES[13]);
+						casIndexes.add(new CASIndexDefinition(path, Type
+								.valueOf(jsonReader.nextString())));
+						jsonReader.endObject();
+					}
+					jsonReader.endArray();
+				} else if (name.equals(JSONNAMES[14])) {
+					transactionLog = ETransactionLog.valueOf(jsonReader.nextString());
+				} else if (name.equals(JSONNAMES[15])) {
+					hashFunction = EHashFunction.valueOf(jsonReader.nextString());
+				} else {
+					jsonReader.skipValue();
+				}
+			}
 			jsonReader.endObject();
 			jsonReader.close();
 			fileReader.close();
@@ -438,11 +557,18 @@ public final class ResourceConfiguration {
 					pFile.getName(), dbConfig);
 			builder.setByteHandlerPipeline(pipeline);
 			builder.setHashKind(hashing);
+			builder.setHashFunction(hashFunction);
 			builder.setIndexes(indexes);
 			builder.setRevisionKind(revisioning);
 			builder.setRevisionsToRestore(revisionToRestore);
 			builder.setType(storage);
 			builder.useCompression(compression);
+			builder.setCommitBatchSize(commitBatchSize);
+			builder.syncOnCommit(syncOnCommit);
+			builder.setTransactionLog(transactionLog);
+			for (final CASIndexDefinition definition : casIndexes) {
+				builder.addCASIndex(definition.getPath(), definition.getType());
+			}
 
 			// Deserialized instance.
 			final ResourceConfiguration config = new ResourceConfiguration(builder);
@@ -468,6 +594,9 @@ public final class ResourceConfiguration {
 		/** Kind of integrity hash (rolling, postorder). */
 		private EHashKind mHashKind = HASHKIND;
 
+		/** Hash function applied to the nodes. */
+		private EHashFunction mHashFunction = HASH_FUNCTION;
+
 		/** Number of revisions to restore a complete set of data. */
 		private int mRevisionsToRestore = VERSIONSTORESTORE;
 
@@ -487,6 +616,18 @@ public final class ResourceConfiguration {
 		private ByteHandlePipeline mByteHandler = new ByteHandlePipeline(
 				new DeflateCompressor());
 
+		/** Maximum number of bytes buffered during a commit. */
+		private long mCommitBatchSize = COMMIT_BATCH_SIZE;
+
+		/** Determines if the data is forced to the device on commit. */
+		private boolean mSyncOnCommit = SYNC_ON_COMMIT;
+
+		/** Typed content and structure (CAS) indexes. */
+		private final List<CASIndexDefinition> mCASIndexes = new ArrayList<>();
+
+		/** Persistent cache of the transaction logs. */
+		private ETransactionLog mTransactionLog = TRANSACTION_LOG;
+
 		/**
 		 * Constructor, setting the mandatory fields.
 		 * 
@@ -501,6 +642,30 @@ public final class ResourceConfiguration {
 			mDBConfig = checkNotNull(pConfig);
 		}
 
+		/**
+		 * Constructor, initializing the builder with the settings of an existing
+		 * resource, for instance to enable additional indexes.
+		 * 
+		 * @param pConfig
+		 *          the {@link ResourceConfiguration} of the resource
+		 */
+		public Builder(final @Nonnull ResourceConfiguration pConfig) {
+			mResource = pConfig.mPath.getName();
+			mDBConfig = pConfig.mDBConfig;
+			mType = pConfig.mStorage;
+			mRevisionKind = pConfig.mRevisionKind;
+			mHashKind = pConfig.mHashKind;
+			mHashFunction = pConfig.mHashFunction;
+			mRevisionsToRestore = pConfig.mRevisionsToRestore;
+			mCompression = pConfig.mCompression;
+			mIndexes = pConfig.mIndexes;
+			mByteHandler = pConfig.mByteHandler;
+			mCommitBatchSize = pConfig.mCommitBatchSize;
+			mSyncOnCommit = pConfig.mSyncOnCommit;
+			mCASIndexes.addAll(pConfig.mCASIndexes);
+			mTransactionLog = pConfig.mTransactionLog;
+		}
+
 		/**
 		 * Set the storage type.
 		 * 
@@ -513,14 +678,34 @@ public final class ResourceConfiguration {
 			return this;
 		}
 
+		/**
+		 * Set the persistent cache of the transaction logs, to which a write
+		 * transaction evicts its modified pages.
+		 * 
+		 * @param pTransactionLog
+		 *          persistent cache to use
+		 * @return reference to the builder object
+		 */
+		public Builder setTransactionLog(
+				final @Nonnull ETransactionLog pTransactionLog) {
+			mTransactionLog = checkNotNull(pTransactionLog);
+			return this;
+		}
+
 		/**
 		 * Set the indexes to use.
 		 * 
 		 * @param pIndexes
 		 *          indexes to use
 		 * @return reference to the builder object
+		 * @throws IllegalArgumentException
+		 *           if the path class index is used without the path summary
 		 */
 		public Builder setIndexes(final @Nonnull Set<EIndexes> pIndexes) {
+			checkArgument(
+					!pIndexes.contains(EIndexes.PATH_CLASS)
+							|| pIndexes.contains(EIndexes.PATH),
+					"The path class index requires the path summary!");
 			mIndexes = checkNotNull(pIndexes);
 			return this;
 		}
@@ -549,6 +734,18 @@ public final class ResourceConfiguration {
 			return this;
 		}
 
+		/**
+		 * Set the hash function, which is applied to the nodes.
+		 * 
+		 * @param pHashFunction
+		 *          hash function to use
+		 * @return reference to the builder object
+		 */
+		public Builder setHashFunction(final @Nonnull EHashFunction pHashFunction) {
+			mHashFunction = checkNotNull(pHashFunction);
+			return this;
+		}
+
 		/**
 		 * Set the byte handler pipeline.
 		 * 
@@ -587,19 +784,77 @@ public final class ResourceConfiguration {
 			return this;
 		}
 
+		/**
+		 * Set the maximum number of bytes which are buffered during a commit
+		 * before they are written with a single write.
+		 * 
+		 * @param pCommitBatchSize
+		 *          maximum number of buffered bytes, {@code 0} to write each page
+		 *          immediately
+		 * @return reference to the builder object
+		 */
+		public Builder setCommitBatchSize(
+				final @Nonnegative long pCommitBatchSize) {
+			checkArgument(pCommitBatchSize >= 0, "pCommitBatchSize must be >= 0!");
+			mCommitBatchSize = pCommitBatchSize;
+			return this;
+		}
+
+		/**
+		 * Determines if the data should be forced to the device on commit, before
+		 * and after the new uber page is referenced.
+		 * 
+		 * @param pSync
+		 *          force the data to the device or not (default: no)
+		 * @return reference to the builder object
+		 */
+		public Builder syncOnCommit(final boolean pSync) {
+			mSyncOnCommit = pSync;
+			return this;
+		}
+
+		/**
+		 * Add a typed content and structure (CAS) index, which keeps the values of
+		 * the nodes on the matching path classes as ordered keys of the given
+		 * type. Requires the path summary.
+		 * 
+		 * @param pPath
+		 *          path pattern of the indexed nodes, for instance
+		 *          {@code //item/price} or {@code //item/@date}
+		 * @param pType
+		 *          {@link Type#DOUBLE}, {@link Type#INTEGER} or
+		 *          {@link Type#DATE_TIME}
+		 * @return reference to the builder object
+		 * @throws IllegalArgumentException
+		 *           if the pattern is malformed or the type is not supported
+		 */
+		public Builder addCASIndex(final @Nonnull String pPath,
+				final @Nonnull Type pType) {
+			final CASIndexDefinition definition = new CASIndexDefinition(pPath,
+					pType);
+			if (!mCASIndexes.contains(definition)) {
+				mCASIndexes.add(definition);
+			}
+			return this;
+		}
+
 		@Override
 		public String toString() {
 			return Objects.toStringHelper(this).add("Type", mType)
 					.add("RevisionKind", mRevisionKind).add("HashKind", mHashKind)
-					.toString();
+					.add("HashFunction", mHashFunction).toString();
 		}
 
 		/**
 		 * Building a new {@link ResourceConfiguration} with immutable fields.
 		 * 
 		 * @return a new {@link ResourceConfiguration} instance
+		 * @throws IllegalStateException
+		 *           if CAS indexes are used without the path summary
 		 */
 		public ResourceConfiguration build() {
+			checkState(mCASIndexes.isEmpty() || mIndexes.contains(EIndexes.PATH),
+					"CAS indexes require the path summary!");
 			return new ResourceConfiguration(this);
 		}
 	}
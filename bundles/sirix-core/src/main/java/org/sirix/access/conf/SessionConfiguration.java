@@ -67,6 +67,18 @@ public final class SessionConfiguration {
 
   /** Default User. */
   public static final String DEFAULT_USER = "ALL";
+
+  /** Maximum size of the shared page cache in bytes. */
+  public static final long PAGE_CACHE_WEIGHT = 64L * 1024L * 1024L;
+
+  /** Number of threads which serialize pages during a commit. */
+  public static final int COMMIT_THREADS = 0;
+
+  /** Number of threads which read page fragments of several revisions. */
+  public static final int FRAGMENT_READ_THREADS = 0;
+
+  /** Determines if ancestor hashes are maintained in a deferred way. */
+  public static final boolean DEFER_HASHES = false;
   // END STATIC STANDARD FIELDS
 
   // MEMBERS FOR FLEXIBLE FIELDS
@@ -81,6 +93,30 @@ public final class SessionConfiguration {
 
   /** User for this session. */
   public final String mUser;
+
+  /**
+   * Maximum size of the page cache shared by all read transactions in bytes,
+   * {@code 0} disables the shared cache.
+   */
+  public final long mPageCacheWeight;
+
+  /**
+   * Number of threads which serialize and compress pages during a commit,
+   * {@code 0} serializes all pages on the committing thread.
+   */
+  public final int mCommitThreads;
+
+  /**
+   * Number of threads which read the page fragments of several revisions
+   * concurrently, {@code 0} reads all fragments on the reading thread.
+   */
+  public final int mFragmentReadThreads;
+
+  /**
+   * Determines if the hash and descendant count updates of the ancestors of
+   * inserted nodes are buffered and applied once per ancestor.
+   */
+  public final boolean mDeferHashes;
   // END MEMBERS FOR FIXED FIELDS
 
   /** ResourceConfiguration for this ResourceConfig. */
@@ -98,12 +134,17 @@ public final class SessionConfiguration {
     mRtxAllowed = pBuilder.mRtxAllowed;
     mCommitThreshold = pBuilder.mCommitThreshold;
     mUser = pBuilder.mUser;
+    mPageCacheWeight = pBuilder.mPageCacheWeight;
+    mCommitThreads = pBuilder.mCommitThreads;
+    mFragmentReadThreads = pBuilder.mFragmentReadThreads;
+    mDeferHashes = pBuilder.mDeferHashes;
     mResource = pBuilder.mResource;
   }
 
   @Override
   public int hashCode() {
     return Objects.hashCode(mWtxAllowed, mRtxAllowed, mCommitThreshold, mUser,
+      mPageCacheWeight, mCommitThreads, mFragmentReadThreads, mDeferHashes,
       mResource);
   }
 
@@ -118,6 +159,10 @@ public final class SessionConfiguration {
         && Objects.equal(mRtxAllowed, other.mRtxAllowed)
         && Objects.equal(mCommitThreshold, other.mCommitThreshold)
         && Objects.equal(mUser, other.mUser)
+        && Objects.equal(mPageCacheWeight, other.mPageCacheWeight)
+        && Objects.equal(mCommitThreads, other.mCommitThreads)
+        && Objects.equal(mFragmentReadThreads, other.mFragmentReadThreads)
+        && Objects.equal(mDeferHashes, other.mDeferHashes)
         && Objects.equal(mResource, other.mResource);
     } else {
       return false;
@@ -128,7 +173,10 @@ public final class SessionConfiguration {
   public String toString() {
     return Objects.toStringHelper(this).add("Resource", mResource).add(
       "RtxAllowed", mRtxAllowed).add("WtxAllowed", mWtxAllowed).add(
-      "Commit threshold", mCommitThreshold).add("User", mUser).toString();
+      "Commit threshold", mCommitThreshold).add("User", mUser).add(
+      "Page cache weight", mPageCacheWeight).add("Commit threads",
+      mCommitThreads).add("Fragment read threads", mFragmentReadThreads).add(
+      "Defer hashes", mDeferHashes).toString();
   }
 
   /**
@@ -157,6 +205,19 @@ public final class SessionConfiguration {
     /** User for this session. */
     private String mUser = SessionConfiguration.DEFAULT_USER;
 
+    /** Maximum size of the shared page cache in bytes. */
+    private long mPageCacheWeight = SessionConfiguration.PAGE_CACHE_WEIGHT;
+
+    /** Number of threads which serialize pages during a commit. */
+    private int mCommitThreads = SessionConfiguration.COMMIT_THREADS;
+
+    /** Number of threads which read page fragments of several revisions. */
+    private int mFragmentReadThreads =
+      SessionConfiguration.FRAGMENT_READ_THREADS;
+
+    /** Determines if ancestor hashes are maintained in a deferred way. */
+    private boolean mDeferHashes = SessionConfiguration.DEFER_HASHES;
+
     /** Resource for the this session. */
     private final String mResource;
 
@@ -171,14 +232,17 @@ public final class SessionConfiguration {
     }
 
     /**
-     * Setter for field mWtxAllowed.
+     * Setter for field mWtxAllowed. More than one write transaction modify the
+     * resource concurrently, which requires a resource without path summary
+     * and value index (contrary to the default {@link ResourceConfiguration})
+     * and with rolling hashes. Otherwise opening the session fails.
      * 
      * @param pWtxAllowed
      *          new value for field
      * @return reference to the builder object
      */
     public Builder setWtxAllowed(@Nonnegative final int pWtxAllowed) {
-      checkArgument(pWtxAllowed < 1, "Value must be > 0!");
+      checkArgument(pWtxAllowed > 0, "Value must be > 0!");
       mWtxAllowed = pWtxAllowed;
       return this;
     }
@@ -221,6 +285,68 @@ public final class SessionConfiguration {
       return this;
     }
 
+    /**
+     * Setter for the maximum size of the page cache, which is shared by all
+     * read transactions of the session.
+     * 
+     * @param pPageCacheWeight
+     *          maximum size in bytes, {@code 0} disables the shared cache
+     * @return reference to the builder object
+     */
+    public Builder setPageCacheWeight(@Nonnegative final long pPageCacheWeight) {
+      checkArgument(pPageCacheWeight >= 0, "Value must be >= 0!");
+      mPageCacheWeight = pPageCacheWeight;
+      return this;
+    }
+
+    /**
+     * Setter for the number of threads, which serialize and compress pages in
+     * parallel during a commit.
+     * 
+     * @param pCommitThreads
+     *          number of threads, {@code 0} serializes all pages on the
+     *          committing thread
+     * @return reference to the builder object
+     */
+    public Builder setCommitThreads(@Nonnegative final int pCommitThreads) {
+      checkArgument(pCommitThreads >= 0, "Value must be >= 0!");
+      mCommitThreads = pCommitThreads;
+      return this;
+    }
+
+    /**
+     * Setter for the number of threads, which read the page fragments of
+     * several revisions concurrently, whenever a page has to be reconstructed
+     * from more than one fragment.
+     * 
+     * @param pFragmentReadThreads
+     *          number of threads, {@code 0} reads all fragments on the reading
+     *          thread
+     * @return reference to the builder object
+     */
+    public Builder setFragmentReadThreads(
+      @Nonnegative final int pFragmentReadThreads) {
+      checkArgument(pFragmentReadThreads >= 0, "Value must be >= 0!");
+      mFragmentReadThreads = pFragmentReadThreads;
+      return this;
+    }
+
+    /**
+     * Determines if the hash and descendant count updates of the ancestors of
+     * inserted nodes are buffered per node and applied once per ancestor,
+     * when a subtree has been inserted or before the transaction commits.
+     * Until then the hashes and descendant counts of the ancestors are not
+     * up to date.
+     * 
+     * @param pDeferHashes
+     *          {@code true}, if the updates should be deferred
+     * @return reference to the builder object
+     */
+    public Builder deferHashes(final boolean pDeferHashes) {
+      mDeferHashes = pDeferHashes;
+      return this;
+    }
+
     /**
      * Set key for cipher.
      * 
@@ -0,0 +1,81 @@
+/**
+ * Copyright (c) 2011, University of Konstanz, Distributed Systems Group
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the University of Konstanz nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sirix.api;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+
+import org.sirix.axis.batch.NodeBatch;
+
+/**
+ * <h1>IBatchAxis</h1>
+ * 
+ * <p>
+ * Axis, which produces the keys of its result nodes in batches instead of one
+ * at a time. The nodes are fetched through the page transaction, that is the
+ * cursor of the transaction is not moved while batches are produced.
+ * </p>
+ * 
+ * <p>
+ * Use {@link org.sirix.axis.batch.BatchAxisAdapter} to iterate over a batch
+ * axis one node at a time and {@link org.sirix.axis.batch.AxisBatchAdapter} to
+ * feed an {@link IAxis} into a batch axis.
+ * </p>
+ * 
+ * @author Johannes Lichtenberger, University of Konstanz
+ * 
+ */
+public interface IBatchAxis {
+
+  /**
+   * Clear the batch and fill it with the next result nodes, at most up to the
+   * limit of the batch. The keys are added in document order, and the nodes
+   * along with them, if they have been fetched anyway.
+   * 
+   * @param pBatch
+   *          the batch to fill
+   * @return {@code true}, if at least one node has been added, {@code false}
+   *         if the axis is exhausted
+   */
+  boolean nextBatch(@Nonnull NodeBatch pBatch);
+
+  /**
+   * Reset the axis to a given context node.
+   * 
+   * @param pNodeKey
+   *          key of the context node
+   */
+  void reset(@Nonnegative long pNodeKey);
+
+  /**
+   * Get the transaction the axis is bound to.
+   * 
+   * @return the transaction
+   */
+  INodeReadTrx getTransaction();
+}
@@ -27,9 +27,12 @@
 
 package org.sirix.api;
 
+import java.util.concurrent.TimeUnit;
+
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 
+import org.sirix.access.GroupCommitStats;
 import org.sirix.access.conf.DatabaseConfiguration;
 import org.sirix.access.conf.ResourceConfiguration;
 import org.sirix.access.conf.SessionConfiguration;
@@ -136,6 +139,46 @@ public interface IDatabase extends AutoCloseable {
 	 */
 	String getResourceName(@Nonnegative long pID);
 
+	/**
+	 * Enable group commit for all sessions of this database. Instead of writing
+	 * the beacon of each commit on its own, commits to the same data file
+	 * arriving within the window are batched up to the maximum number of
+	 * commits. They share a single force and beacon update and are
+	 * acknowledged together. Commits arriving while a batch is written form
+	 * the next batch, even if the window is {@code 0}. Replaces the statistics
+	 * of a previous setting and closes its beacon writers.
+	 * 
+	 * @param pWindow
+	 *          time the first commit of a batch waits for further commits
+	 * @param pUnit
+	 *          unit of {@code pWindow}
+	 * @param pMaxCommits
+	 *          maximum number of commits in a batch
+	 * @throws IllegalArgumentException
+	 *           if {@code pWindow < 0} or {@code pMaxCommits < 1}
+	 * @throws SirixIOException
+	 *           if a beacon writer of the previous setting can't be closed
+	 */
+	void setGroupCommit(@Nonnegative long pWindow, @Nonnull TimeUnit pUnit,
+			@Nonnegative int pMaxCommits) throws SirixIOException;
+
+	/**
+	 * Disable group commit, such that each session writes its beacon on its own.
+	 * 
+	 * @throws SirixIOException
+	 *           if a beacon writer of the previous setting can't be closed
+	 */
+	void disableGroupCommit() throws SirixIOException;
+
+	/**
+	 * Get the statistics of the group commits, that is the number of commits and
+	 * batches, the latencies and the throughput.
+	 * 
+	 * @return {@link GroupCommitStats} snapshot, all values are {@code 0} if
+	 *         group commit isn't enabled
+	 */
+	GroupCommitStats getGroupCommitStats();
+
 	/**
 	 * Get the resource-ID associated with the given resource name.
 	 * 
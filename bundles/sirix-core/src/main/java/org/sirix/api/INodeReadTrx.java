@@ -283,6 +283,14 @@ public interface INodeReadTrx extends INodeCursor {
    */
   ISession getSession();
 
+  /**
+   * Get the {@link IPageReadTrx} this instance reads from, for instance to open
+   * the index structures of the same revision.
+   * 
+   * @return page transaction
+   */
+  IPageReadTrx getPageTransaction();
+
   /**
    * Clone an instance, that is just create a new instance and move the new {@link INodeReadTrx} to the
    * current node.
@@ -28,6 +28,7 @@
 package org.sirix.api;
 
 import java.io.IOException;
+import java.util.concurrent.Future;
 
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
@@ -38,12 +39,11 @@ import javax.xml.stream.XMLStreamException;
 import org.sirix.access.EMove;
 import org.sirix.exception.SirixException;
 import org.sirix.exception.SirixIOException;
+import org.sirix.exception.SirixThreadedException;
 import org.sirix.exception.SirixUsageException;
 import org.sirix.index.path.PathSummary;
-import org.sirix.index.value.AVLTree;
+import org.sirix.index.value.BPlusTree;
 import org.sirix.node.TextNode;
-import org.sirix.node.TextReferences;
-import org.sirix.node.TextValue;
 import org.sirix.service.xml.shredder.EInsert;
 import org.sirix.service.xml.shredder.XMLShredder;
 
@@ -468,6 +468,23 @@ public interface INodeWriteTrx extends INodeReadTrx {
    */
   void setValue(@Nonnull String pValue) throws SirixException;
 
+  /**
+   * Lock the subtree rooted at the current node, such that other write
+   * transactions of the same session can't modify it. Only needed if the
+   * session allows more than one write transaction. A transaction may only
+   * modify nodes in the subtrees it has locked (besides updating the hashes
+   * and descendant counts of their ancestors). The locks are released after a
+   * commit or abort.
+   * 
+   * @return the transaction instance
+   * @throws SirixThreadedException
+   *           if the subtree, one of its ancestors or one of its descendants
+   *           is locked by another write transaction
+   * @throws SirixException
+   *           if anything else went wrong
+   */
+  INodeWriteTrx lockSubtree() throws SirixException;
+
   /**
    * Commit all modifications of the exclusive write transaction. Even commit
    * if there are no modification at all.
@@ -477,6 +494,23 @@ public interface INodeWriteTrx extends INodeReadTrx {
    */
   void commit() throws SirixException;
 
+  /**
+   * Commit all modifications of the exclusive write transaction in the
+   * background. The modifications are frozen and the transaction continues
+   * with the next revision right away. The committed revision is visible to
+   * new read transactions once it's durable. Only one revision is committed in
+   * the background at a time, that is a further commit waits for the
+   * outstanding one. Post-commit hooks are executed by the background thread
+   * on a read transaction of the committed revision.
+   * 
+   * @return a future holding the number of the committed revision
+   * @throws SirixUsageException
+   *           if the session allows more than one write transaction
+   * @throws SirixException
+   *           if the previous revision couldn't be commited
+   */
+  Future<Integer> commitAsync() throws SirixException;
+
   /**
    * Abort all modifications of the exclusive write transaction.
    * 
@@ -529,9 +563,10 @@ public interface INodeWriteTrx extends INodeReadTrx {
   PathSummary getPathSummary();
 
   /**
-   * Get the {@link AVLTree} associated with the current write transaction.
+   * Get the {@link BPlusTree} value index associated with the current write
+   * transaction.
    * 
-   * @return {@link AVLTree} instance
+   * @return {@link BPlusTree} instance
    */
-  AVLTree<TextValue, TextReferences> getAVLTree();
+  BPlusTree getValueIndex();
 }
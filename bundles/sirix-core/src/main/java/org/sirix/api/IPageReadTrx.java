@@ -44,6 +44,26 @@ public interface IPageReadTrx extends AutoCloseable {
   Optional<? extends INodeBase> getNode(@Nonnegative final long pKey,
     @Nonnull final EPage pPage) throws SirixIOException;
 
+  /**
+   * Get a batch of nodes from persistent storage. Nodes which are stored in
+   * the same page are fetched with a single page lookup, regardless of their
+   * position in the batch.
+   * 
+   * @param pKeys
+   *          the unique node-IDs, negative keys (of items) are skipped
+   * @param pSize
+   *          number of keys to fetch, starting with the first one
+   * @param pPage
+   *          the page from which to fetch the nodes
+   * @param pNodes
+   *          receives the node of each key at the same index, or {@code null},
+   *          if the node does not exist
+   * @throws SirixIOException
+   *           if an I/O error occured
+   */
+  void getNodes(@Nonnull long[] pKeys, @Nonnegative int pSize,
+    @Nonnull EPage pPage, @Nonnull INodeBase[] pNodes) throws SirixIOException;
+
   /**
    * Current reference to actual rev-root page.
    * 
@@ -34,8 +34,12 @@ import javax.annotation.Nonnull;
 
 import org.sirix.access.conf.ResourceConfiguration;
 import org.sirix.exception.SirixException;
+import org.sirix.index.cas.CASIndex;
+import org.sirix.index.path.PathIndex;
 import org.sirix.index.path.PathSummary;
 
+import com.google.common.cache.CacheStats;
+
 /**
  * <h1>ISession</h1>
  * 
@@ -153,6 +157,57 @@ public interface ISession extends AutoCloseable {
 	 */
 	PathSummary openPathSummary() throws SirixException;
 
+	/**
+	 * Open the path class index, which maps the nodes of the path summary to the
+	 * document nodes on the path.
+	 * 
+	 * @param pRev
+	 *          revision key to read from
+	 * @return {@link PathIndex} instance, which has to be closed
+	 * @throws SirixException
+	 *           if can't open path index
+	 * @throws IllegalStateException
+	 *           if the resource has been created without the path class index
+	 */
+	PathIndex openPathIndex(@Nonnegative int pRev) throws SirixException;
+
+	/**
+	 * Open the path class index of the most recent revision.
+	 * 
+	 * @return {@link PathIndex} instance, which has to be closed
+	 * @throws SirixException
+	 *           if can't open path index
+	 * @throws IllegalStateException
+	 *           if the resource has been created without the path class index
+	 */
+	PathIndex openPathIndex() throws SirixException;
+
+	/**
+	 * Open the typed content and structure (CAS) indexes, which are defined in
+	 * the {@link ResourceConfiguration}.
+	 * 
+	 * @param pRev
+	 *          revision key to read from
+	 * @return {@link CASIndex} instance, which has to be closed
+	 * @throws SirixException
+	 *           if can't open the CAS index
+	 * @throws IllegalStateException
+	 *           if no CAS index is defined for the resource
+	 */
+	CASIndex openCASIndex(@Nonnegative int pRev) throws SirixException;
+
+	/**
+	 * Open the typed content and structure (CAS) indexes of the most recent
+	 * revision.
+	 * 
+	 * @return {@link CASIndex} instance, which has to be closed
+	 * @throws SirixException
+	 *           if can't open the CAS index
+	 * @throws IllegalStateException
+	 *           if no CAS index is defined for the resource
+	 */
+	CASIndex openCASIndex() throws SirixException;
+
 	/**
 	 * Begin exclusive read/write transaction with auto commit.
 	 * 
@@ -225,4 +280,13 @@ public interface ISession extends AutoCloseable {
 	 * @return available number of {@link INodeWriteTrx}s
 	 */
 	int getAvailableNodeWriteTrx();
+
+	/**
+	 * Get the hit, miss and eviction counters of the page cache, which is shared
+	 * by all read transactions of this session.
+	 * 
+	 * @return {@link CacheStats} snapshot, all counters are {@code 0} if the
+	 *         shared cache is disabled
+	 */
+	CacheStats getPageCacheStats();
 }
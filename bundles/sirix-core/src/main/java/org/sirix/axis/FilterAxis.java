@@ -108,4 +108,13 @@ public final class FilterAxis extends AbsAxis {
   public IAxis getAxis() {
     return mAxis;
   }
+
+  /**
+   * Returns the tests, which are applied to each node of the inner axis.
+   * 
+   * @return the tests
+   */
+  public IFilter[] getFilters() {
+    return mAxisFilter.clone();
+  }
 }
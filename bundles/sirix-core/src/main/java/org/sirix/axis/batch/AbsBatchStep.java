@@ -0,0 +1,199 @@
+/**
+ * Copyright (c) 2011, University of Konstanz, Distributed Systems Group
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the University of Konstanz nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sirix.axis.batch;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.sirix.api.IBatchAxis;
+import org.sirix.api.INodeReadTrx;
+import org.sirix.api.IPageReadTrx;
+import org.sirix.exception.SirixIOException;
+import org.sirix.node.interfaces.INode;
+import org.sirix.node.interfaces.INodeBase;
+import org.sirix.page.EPage;
+
+/**
+ * <h1>AbsBatchStep</h1>
+ * 
+ * <p>
+ * Location step of a batch pipeline. Evaluates the step for each node of the
+ * batches produced by the input axis, or for the node the axis has been reset
+ * to, if there is no input axis. Traverses the structure through the page
+ * transaction, without moving the cursor.
+ * </p>
+ * 
+ * @author Johannes Lichtenberger, University of Konstanz
+ * 
+ */
+public abstract class AbsBatchStep implements IBatchAxis {
+
+	/** Transaction to operate with. */
+	private final INodeReadTrx mRtx;
+
+	/** Axis producing the context nodes, or {@code null}. */
+	private final IBatchAxis mInput;
+
+	/** Current batch of context nodes. */
+	private final NodeBatch mContexts;
+
+	/** Index of the next context node in the current batch. */
+	private int mContextIndex;
+
+	/** Key of the node the axis has been reset to. */
+	private long mStartKey;
+
+	/** Determines if the start node has been evaluated (without input axis). */
+	private boolean mStarted;
+
+	/** Determines if the step has more results for the current context node. */
+	private boolean mInContext;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param pRtx
+	 *          transaction to operate with
+	 * @param pInput
+	 *          axis producing the context nodes, or {@code null}, if the step
+	 *          is evaluated for the node the axis is reset to
+	 */
+	public AbsBatchStep(final @Nonnull INodeReadTrx pRtx,
+			final @Nullable IBatchAxis pInput) {
+		mRtx = checkNotNull(pRtx);
+		mInput = pInput;
+		mContexts = new NodeBatch();
+		mStartKey = pRtx.getNode().getNodeKey();
+	}
+
+	@Override
+	public final boolean nextBatch(final @Nonnull NodeBatch pBatch) {
+		pBatch.clear();
+		final IPageReadTrx pageRtx = mRtx.getPageTransaction();
+		try {
+			while (!pBatch.isFull()) {
+				if (mInContext) {
+					mInContext = step(pageRtx, pBatch);
+				} else if (mInput == null) {
+					if (mStarted) {
+						break;
+					}
+					mStarted = true;
+					mInContext = init(pageRtx, mStartKey, null);
+				} else {
+					if (mContextIndex == mContexts.size()) {
+						mContextIndex = 0;
+						mContexts.setLimit(pBatch.getLimit());
+						if (!mInput.nextBatch(mContexts)) {
+							break;
+						}
+					}
+					final int index = mContextIndex++;
+					mInContext = init(pageRtx, mContexts.getKey(index),
+							mContexts.getNode(index));
+				}
+			}
+		} catch (final SirixIOException e) {
+			throw new IllegalStateException(e);
+		}
+		return !pBatch.isEmpty();
+	}
+
+	@Override
+	public final void reset(final long pNodeKey) {
+		mStartKey = pNodeKey;
+		mStarted = false;
+		mInContext = false;
+		mContexts.clear();
+		mContextIndex = 0;
+		if (mInput != null) {
+			mInput.reset(pNodeKey);
+		}
+	}
+
+	@Override
+	public final INodeReadTrx getTransaction() {
+		return mRtx;
+	}
+
+	/**
+	 * Start the evaluation of the step for a context node.
+	 * 
+	 * @param pPageRtx
+	 *          page transaction to read nodes from
+	 * @param pContextKey
+	 *          key of the context node
+	 * @param pContext
+	 *          the context node, or {@code null}, if it has not been fetched
+	 * @return {@code true}, if the step might have results, {@code false}
+	 *         otherwise
+	 * @throws SirixIOException
+	 *           if an I/O error occurs
+	 */
+	protected abstract boolean init(@Nonnull IPageReadTrx pPageRtx,
+			long pContextKey, @Nullable INode pContext) throws SirixIOException;
+
+	/**
+	 * Add results of the step for the current context node until the batch is
+	 * full.
+	 * 
+	 * @param pPageRtx
+	 *          page transaction to read nodes from
+	 * @param pBatch
+	 *          the batch to add the results to
+	 * @return {@code true}, if the step has more results for the current
+	 *         context node, {@code false} otherwise
+	 * @throws SirixIOException
+	 *           if an I/O error occurs
+	 */
+	protected abstract boolean step(@Nonnull IPageReadTrx pPageRtx,
+			@Nonnull NodeBatch pBatch) throws SirixIOException;
+
+	/**
+	 * Get a node.
+	 * 
+	 * @param pPageRtx
+	 *          page transaction to read the node from
+	 * @param pKey
+	 *          key of the node
+	 * @return the node, or {@code null}, if the key denotes an item or the node
+	 *         does not exist
+	 * @throws SirixIOException
+	 *           if an I/O error occurs
+	 */
+	protected static final INode getNode(final @Nonnull IPageReadTrx pPageRtx,
+			final long pKey) throws SirixIOException {
+		if (pKey < 0) {
+			return null;
+		}
+		final INodeBase node = pPageRtx.getNode(pKey, EPage.NODEPAGE).orNull();
+		return node instanceof INode ? (INode) node : null;
+	}
+}
@@ -0,0 +1,85 @@
+/**
+ * Copyright (c) 2011, University of Konstanz, Distributed Systems Group
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the University of Konstanz nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sirix.axis.batch;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import javax.annotation.Nonnull;
+
+import org.sirix.api.IAxis;
+import org.sirix.api.IBatchAxis;
+import org.sirix.api.INodeReadTrx;
+
+/**
+ * <h1>AxisBatchAdapter</h1>
+ * 
+ * <p>
+ * Feeds the results of an {@link IAxis}, which is evaluated one node at a
+ * time, into a batch pipeline. As the axis moves the cursor to each result,
+ * the nodes are added to the batch right away.
+ * </p>
+ * 
+ * @author Johannes Lichtenberger, University of Konstanz
+ * 
+ */
+public final class AxisBatchAdapter implements IBatchAxis {
+
+  /** The adapted axis. */
+  private final IAxis mAxis;
+
+  /**
+   * Constructor.
+   * 
+   * @param pAxis
+   *          the axis to adapt
+   */
+  public AxisBatchAdapter(final @Nonnull IAxis pAxis) {
+    mAxis = checkNotNull(pAxis);
+  }
+
+  @Override
+  public boolean nextBatch(final @Nonnull NodeBatch pBatch) {
+    pBatch.clear();
+    final INodeReadTrx rtx = mAxis.getTransaction();
+    while (!pBatch.isFull() && mAxis.hasNext()) {
+      final long key = mAxis.next();
+      pBatch.add(key, key >= 0 ? rtx.getNode() : null);
+    }
+    return !pBatch.isEmpty();
+  }
+
+  @Override
+  public void reset(final long pNodeKey) {
+    mAxis.reset(pNodeKey);
+  }
+
+  @Override
+  public INodeReadTrx getTransaction() {
+    return mAxis.getTransaction();
+  }
+}
@@ -0,0 +1,122 @@
+/**
+ * Copyright (c) 2011, University of Konstanz, Distributed Systems Group
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the University of Konstanz nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sirix.axis.batch;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import javax.annotation.Nonnull;
+
+import org.sirix.api.IBatchAxis;
+import org.sirix.axis.AbsAxis;
+
+/**
+ * <h1>BatchAxisAdapter</h1>
+ * 
+ * <p>
+ * Iterates over the results of a batch pipeline one node at a time, that is
+ * it moves the cursor to each result like any other axis.
+ * </p>
+ * 
+ * <p>
+ * The first batch after a reset is small and each following one twice as
+ * large up to the capacity, such that a consumer, which only needs the first
+ * results, for instance a predicate, does not pay for a whole batch.
+ * </p>
+ * 
+ * @author Johannes Lichtenberger, University of Konstanz
+ * 
+ */
+public final class BatchAxisAdapter extends AbsAxis {
+
+  /** Limit of the first batch after a reset. */
+  public static final int FIRST_BATCH_LIMIT = 16;
+
+  /** The adapted batch axis. */
+  private final IBatchAxis mAxis;
+
+  /** Current batch. */
+  private final NodeBatch mBatch;
+
+  /** Index of the next key in the current batch. */
+  private int mIndex;
+
+  /**
+   * Constructor.
+   * 
+   * @param pAxis
+   *          the batch axis to adapt
+   */
+  public BatchAxisAdapter(final @Nonnull IBatchAxis pAxis) {
+    super(pAxis.getTransaction());
+    mAxis = checkNotNull(pAxis);
+    mBatch = new NodeBatch();
+    mBatch.setLimit(FIRST_BATCH_LIMIT);
+  }
+
+  @Override
+  public void reset(final long pNodeKey) {
+    super.reset(pNodeKey);
+    // Invoked by the super constructor, before the fields are initialized.
+    if (mAxis != null) {
+      mAxis.reset(pNodeKey);
+      mBatch.clear();
+      mBatch.setLimit(FIRST_BATCH_LIMIT);
+      mIndex = 0;
+    }
+  }
+
+  @Override
+  public boolean hasNext() {
+    if (!isHasNext()) {
+      return false;
+    }
+    if (isNext()) {
+      return true;
+    }
+    resetToLastKey();
+    if (mIndex == mBatch.size()) {
+      mIndex = 0;
+      if (!mAxis.nextBatch(mBatch)) {
+        resetToStartKey();
+        return false;
+      }
+      mBatch.setLimit(Math.min(2 * mBatch.getLimit(), mBatch.getCapacity()));
+    }
+    mKey = mBatch.getKey(mIndex++);
+    return true;
+  }
+
+  /**
+   * Returns the adapted batch axis.
+   * 
+   * @return the batch axis
+   */
+  public IBatchAxis getAxis() {
+    return mAxis;
+  }
+}
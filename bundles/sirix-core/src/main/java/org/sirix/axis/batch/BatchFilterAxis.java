@@ -0,0 +1,125 @@
+/**
+ * Copyright (c) 2011, University of Konstanz, Distributed Systems Group
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the University of Konstanz nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sirix.axis.batch;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Arrays;
+
+import javax.annotation.Nonnull;
+
+import org.sirix.api.IBatchAxis;
+import org.sirix.api.IBatchFilter;
+import org.sirix.api.IFilter;
+import org.sirix.api.INodeReadTrx;
+import org.sirix.exception.SirixIOException;
+
+/**
+ * <h1>BatchFilterAxis</h1>
+ * 
+ * <p>
+ * Batch version of the {@link org.sirix.axis.FilterAxis}. The nodes of each
+ * batch are fetched grouped by page and {@link IBatchFilter}s test all of them
+ * in one call. Other filters are applied to one node after the other, with the
+ * cursor moved to the node.
+ * </p>
+ * 
+ * @author Johannes Lichtenberger, University of Konstanz
+ * 
+ */
+public final class BatchFilterAxis implements IBatchAxis {
+
+	/** Axis to filter. */
+	private final IBatchAxis mInput;
+
+	/** Filters to apply. */
+	private final IFilter[] mFilters;
+
+	/** Whether each entry of the current batch matches. */
+	private boolean[] mMatches;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param pInput
+	 *          axis to filter
+	 * @param pFilters
+	 *          filters to apply to each node of the axis
+	 */
+	public BatchFilterAxis(final @Nonnull IBatchAxis pInput,
+			final @Nonnull IFilter... pFilters) {
+		mInput = checkNotNull(pInput);
+		mFilters = checkNotNull(pFilters).clone();
+		mMatches = new boolean[NodeBatch.DEFAULT_CAPACITY];
+	}
+
+	@Override
+	public boolean nextBatch(final @Nonnull NodeBatch pBatch) {
+		final INodeReadTrx rtx = mInput.getTransaction();
+		if (mMatches.length < pBatch.getCapacity()) {
+			mMatches = new boolean[pBatch.getCapacity()];
+		}
+		while (mInput.nextBatch(pBatch)) {
+			try {
+				pBatch.fetch(rtx.getPageTransaction());
+			} catch (final SirixIOException e) {
+				throw new IllegalStateException(e);
+			}
+			final int size = pBatch.size();
+			Arrays.fill(mMatches, 0, size, true);
+			for (final IFilter filter : mFilters) {
+				final boolean isBatchFilter = filter instanceof IBatchFilter;
+				if (isBatchFilter) {
+					((IBatchFilter) filter).filter(pBatch, mMatches);
+				}
+				for (int i = 0; i < size; i++) {
+					// Items are only tested with the cursor moved to them.
+					if (mMatches[i] && (!isBatchFilter || pBatch.getNode(i) == null)) {
+						rtx.moveTo(pBatch.getKey(i));
+						mMatches[i] = filter.filter();
+					}
+				}
+			}
+			pBatch.retain(mMatches);
+			if (!pBatch.isEmpty()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public void reset(final long pNodeKey) {
+		mInput.reset(pNodeKey);
+	}
+
+	@Override
+	public INodeReadTrx getTransaction() {
+		return mInput.getTransaction();
+	}
+}
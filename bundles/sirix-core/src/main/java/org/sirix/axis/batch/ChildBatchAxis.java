@@ -0,0 +1,97 @@
+/**
+ * Copyright (c) 2011, University of Konstanz, Distributed Systems Group
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the University of Konstanz nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sirix.axis.batch;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.sirix.api.IBatchAxis;
+import org.sirix.api.INodeReadTrx;
+import org.sirix.api.IPageReadTrx;
+import org.sirix.exception.SirixIOException;
+import org.sirix.node.interfaces.INode;
+import org.sirix.node.interfaces.IStructNode;
+import org.sirix.settings.EFixed;
+
+/**
+ * <h1>ChildBatchAxis</h1>
+ * 
+ * <p>
+ * Batch version of the {@link org.sirix.axis.ChildAxis}.
+ * </p>
+ * 
+ * @author Johannes Lichtenberger, University of Konstanz
+ * 
+ */
+public final class ChildBatchAxis extends AbsBatchStep {
+
+	/** Key of the next child. */
+	private long mNextKey;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param pRtx
+	 *          transaction to operate with
+	 * @param pInput
+	 *          axis producing the context nodes, or {@code null}, if the step
+	 *          is evaluated for the node the axis is reset to
+	 */
+	public ChildBatchAxis(final @Nonnull INodeReadTrx pRtx,
+			final @Nullable IBatchAxis pInput) {
+		super(pRtx, pInput);
+	}
+
+	@Override
+	protected boolean init(final @Nonnull IPageReadTrx pPageRtx,
+			final long pContextKey, final @Nullable INode pContext)
+			throws SirixIOException {
+		final INode context = pContext == null ? getNode(pPageRtx, pContextKey)
+				: pContext;
+		if (context instanceof IStructNode
+				&& ((IStructNode) context).hasFirstChild()) {
+			mNextKey = ((IStructNode) context).getFirstChildKey();
+			return true;
+		}
+		return false;
+	}
+
+	@Override
+	protected boolean step(final @Nonnull IPageReadTrx pPageRtx,
+			final @Nonnull NodeBatch pBatch) throws SirixIOException {
+		final long nullKey = EFixed.NULL_NODE_KEY.getStandardProperty();
+		while (mNextKey != nullKey && !pBatch.isFull()) {
+			final INode node = getNode(pPageRtx, mNextKey);
+			pBatch.add(mNextKey, node);
+			mNextKey = node instanceof IStructNode
+					&& ((IStructNode) node).hasRightSibling() ? ((IStructNode) node)
+					.getRightSiblingKey() : nullKey;
+		}
+		return mNextKey != nullKey;
+	}
+}
@@ -0,0 +1,148 @@
+/**
+ * Copyright (c) 2011, University of Konstanz, Distributed Systems Group
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the University of Konstanz nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sirix.axis.batch;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.sirix.api.IBatchAxis;
+import org.sirix.api.INodeReadTrx;
+import org.sirix.api.IPageReadTrx;
+import org.sirix.axis.EIncludeSelf;
+import org.sirix.exception.SirixIOException;
+import org.sirix.node.interfaces.INode;
+import org.sirix.node.interfaces.IStructNode;
+import org.sirix.settings.EFixed;
+
+/**
+ * <h1>DescendantBatchAxis</h1>
+ * 
+ * <p>
+ * Batch version of the {@link org.sirix.axis.DescendantAxis}, which visits the
+ * descendants of each context node in preorder.
+ * </p>
+ * 
+ * @author Johannes Lichtenberger, University of Konstanz
+ * 
+ */
+public final class DescendantBatchAxis extends AbsBatchStep {
+
+	/** Include the context node itself? */
+	private final EIncludeSelf mIncludeSelf;
+
+	/** Right siblings of the ancestors of the next node. */
+	private final Deque<Long> mRightSiblingKeyStack;
+
+	/** Key of the context node. */
+	private long mContextKey;
+
+	/** The context node, if it is the next node. */
+	private INode mContext;
+
+	/** Key of the next node. */
+	private long mNextKey;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param pRtx
+	 *          transaction to operate with
+	 * @param pInput
+	 *          axis producing the context nodes, or {@code null}, if the step
+	 *          is evaluated for the node the axis is reset to
+	 * @param pIncludeSelf
+	 *          determines if the context node is included
+	 */
+	public DescendantBatchAxis(final @Nonnull INodeReadTrx pRtx,
+			final @Nullable IBatchAxis pInput,
+			final @Nonnull EIncludeSelf pIncludeSelf) {
+		super(pRtx, pInput);
+		mIncludeSelf = checkNotNull(pIncludeSelf);
+		mRightSiblingKeyStack = new ArrayDeque<>();
+	}
+
+	@Override
+	protected boolean init(final @Nonnull IPageReadTrx pPageRtx,
+			final long pContextKey, final @Nullable INode pContext)
+			throws SirixIOException {
+		final long nullKey = EFixed.NULL_NODE_KEY.getStandardProperty();
+		mRightSiblingKeyStack.clear();
+		mContextKey = pContextKey;
+		mContext = pContext == null ? getNode(pPageRtx, pContextKey) : pContext;
+		if (mIncludeSelf == EIncludeSelf.YES) {
+			mNextKey = pContextKey;
+		} else {
+			mNextKey = mContext instanceof IStructNode ? ((IStructNode) mContext)
+					.getFirstChildKey() : nullKey;
+			mContext = null;
+		}
+		return mNextKey != nullKey;
+	}
+
+	@Override
+	protected boolean step(final @Nonnull IPageReadTrx pPageRtx,
+			final @Nonnull NodeBatch pBatch) throws SirixIOException {
+		final long nullKey = EFixed.NULL_NODE_KEY.getStandardProperty();
+		while (mNextKey != nullKey && !pBatch.isFull()) {
+			final INode node;
+			if (mContext == null) {
+				node = getNode(pPageRtx, mNextKey);
+			} else {
+				node = mContext;
+				mContext = null;
+			}
+			pBatch.add(mNextKey, node);
+
+			final boolean isContext = mNextKey == mContextKey;
+			final IStructNode structNode =
+					node instanceof IStructNode ? (IStructNode) node : null;
+			if (structNode != null && structNode.hasFirstChild()) {
+				// Always follow first child if there is one.
+				if (!isContext && structNode.hasRightSibling()) {
+					mRightSiblingKeyStack.push(structNode.getRightSiblingKey());
+				}
+				mNextKey = structNode.getFirstChildKey();
+			} else if (!isContext && structNode != null
+					&& structNode.hasRightSibling()) {
+				// Then follow right sibling if there is one.
+				mNextKey = structNode.getRightSiblingKey();
+			} else if (!mRightSiblingKeyStack.isEmpty()) {
+				// Then follow right sibling on stack.
+				mNextKey = mRightSiblingKeyStack.pop();
+			} else {
+				mNextKey = nullKey;
+			}
+		}
+		return mNextKey != nullKey;
+	}
+}
@@ -0,0 +1,251 @@
+/**
+ * Copyright (c) 2011, University of Konstanz, Distributed Systems Group
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the University of Konstanz nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sirix.axis.batch;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static com.google.common.base.Preconditions.checkState;
+
+import java.util.Arrays;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.sirix.api.IPageReadTrx;
+import org.sirix.exception.SirixIOException;
+import org.sirix.node.interfaces.INode;
+import org.sirix.node.interfaces.INodeBase;
+import org.sirix.page.EPage;
+
+/**
+ * <h1>NodeBatch</h1>
+ * 
+ * <p>
+ * Block of node keys, which is passed between the stages of a batch pipeline,
+ * along with the nodes, if they have been fetched. Items (negative keys) never
+ * have a node.
+ * </p>
+ * 
+ * <p>
+ * The limit restricts how many keys a stage adds to the batch. It is lower
+ * than the capacity, if a consumer probably only needs the first few results,
+ * for instance the existence check of a predicate.
+ * </p>
+ * 
+ * @author Johannes Lichtenberger, University of Konstanz
+ * 
+ */
+public final class NodeBatch {
+
+  /** Default capacity of a batch. */
+  public static final int DEFAULT_CAPACITY = 1024;
+
+  /** Node keys. */
+  private final long[] mKeys;
+
+  /** Nodes, {@code null} if not fetched. */
+  private final INodeBase[] mNodes;
+
+  /** Number of keys. */
+  private int mSize;
+
+  /** Maximum number of keys to add. */
+  private int mLimit;
+
+  /** Determines if all nodes have been fetched. */
+  private boolean mFetched;
+
+  /**
+   * Constructor.
+   */
+  public NodeBatch() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Constructor.
+   * 
+   * @param pCapacity
+   *          maximum number of keys
+   */
+  public NodeBatch(final @Nonnegative int pCapacity) {
+    checkArgument(pCapacity > 0, "pCapacity must be > 0!");
+    mKeys = new long[pCapacity];
+    mNodes = new INodeBase[pCapacity];
+    mLimit = pCapacity;
+    mFetched = true;
+  }
+
+  /**
+   * Add a key, if the batch is not full.
+   * 
+   * @param pKey
+   *          the node key
+   * @param pNode
+   *          the node or {@code null}, if it has not been fetched
+   */
+  public void add(final long pKey, final @Nullable INode pNode) {
+    checkState(mSize < mLimit, "The batch is full!");
+    mKeys[mSize] = pKey;
+    mNodes[mSize] = pNode;
+    mSize++;
+    if (pNode == null && pKey >= 0) {
+      mFetched = false;
+    }
+  }
+
+  /**
+   * Fetch the nodes, which have not been fetched yet, grouped by the pages
+   * they are stored in.
+   * 
+   * @param pPageRtx
+   *          the page transaction to read from
+   * @throws SirixIOException
+   *           if an I/O error occurs
+   */
+  public void fetch(final @Nonnull IPageReadTrx pPageRtx)
+    throws SirixIOException {
+    if (!mFetched) {
+      pPageRtx.getNodes(mKeys, mSize, EPage.NODEPAGE, mNodes);
+      mFetched = true;
+    }
+  }
+
+  /**
+   * Remove all entries, which do not match, and keep the order of the others.
+   * 
+   * @param pMatches
+   *          whether each entry matches
+   */
+  public void retain(final @Nonnull boolean[] pMatches) {
+    int size = 0;
+    for (int i = 0; i < mSize; i++) {
+      if (pMatches[i]) {
+        mKeys[size] = mKeys[i];
+        mNodes[size] = mNodes[i];
+        size++;
+      }
+    }
+    Arrays.fill(mNodes, size, mSize, null);
+    mSize = size;
+  }
+
+  /**
+   * Remove all entries.
+   */
+  public void clear() {
+    Arrays.fill(mNodes, 0, mSize, null);
+    mSize = 0;
+    mFetched = true;
+  }
+
+  /**
+   * Get the key of an entry.
+   * 
+   * @param pIndex
+   *          index of the entry
+   * @return the node key
+   */
+  public long getKey(final @Nonnegative int pIndex) {
+    checkElementIndex(pIndex, mSize);
+    return mKeys[pIndex];
+  }
+
+  /**
+   * Get the node of an entry.
+   * 
+   * @param pIndex
+   *          index of the entry
+   * @return the node or {@code null}, if it has not been fetched or the entry
+   *         is an item
+   */
+  public INode getNode(final @Nonnegative int pIndex) {
+    checkElementIndex(pIndex, mSize);
+    final INodeBase node = mNodes[pIndex];
+    return node instanceof INode ? (INode) node : null;
+  }
+
+  /**
+   * Get the number of entries.
+   * 
+   * @return number of entries
+   */
+  public int size() {
+    return mSize;
+  }
+
+  /**
+   * Determines if the batch is empty.
+   * 
+   * @return {@code true}, if the batch is empty, {@code false} otherwise
+   */
+  public boolean isEmpty() {
+    return mSize == 0;
+  }
+
+  /**
+   * Determines if the limit has been reached.
+   * 
+   * @return {@code true}, if no more keys can be added, {@code false}
+   *         otherwise
+   */
+  public boolean isFull() {
+    return mSize >= mLimit;
+  }
+
+  /**
+   * Get the maximum number of keys to add.
+   * 
+   * @return the limit
+   */
+  public int getLimit() {
+    return mLimit;
+  }
+
+  /**
+   * Set the maximum number of keys to add.
+   * 
+   * @param pLimit
+   *          the limit, at most the capacity
+   */
+  public void setLimit(final @Nonnegative int pLimit) {
+    checkArgument(pLimit > 0 && pLimit <= mKeys.length,
+      "pLimit must be > 0 and <= the capacity!");
+    mLimit = pLimit;
+  }
+
+  /**
+   * Get the maximum number of keys.
+   * 
+   * @return the capacity
+   */
+  public int getCapacity() {
+    return mKeys.length;
+  }
+}
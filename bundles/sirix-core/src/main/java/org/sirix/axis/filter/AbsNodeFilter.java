@@ -0,0 +1,86 @@
+/**
+ * Copyright (c) 2011, University of Konstanz, Distributed Systems Group
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the University of Konstanz nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sirix.axis.filter;
+
+import javax.annotation.Nonnull;
+
+import org.sirix.api.IBatchFilter;
+import org.sirix.api.INodeReadTrx;
+import org.sirix.axis.batch.NodeBatch;
+import org.sirix.node.interfaces.INode;
+
+/**
+ * <h1>AbsNodeFilter</h1>
+ * 
+ * <p>
+ * Filter, which only depends on the node itself and therefore can be applied
+ * to the nodes of a batch without moving the cursor of the transaction.
+ * </p>
+ * 
+ * @author Johannes Lichtenberger, University of Konstanz
+ * 
+ */
+public abstract class AbsNodeFilter extends AbsFilter implements IBatchFilter {
+
+  /**
+   * Bind filter to transaction.
+   * 
+   * @param pRtx
+   *          transaction to operate with
+   */
+  protected AbsNodeFilter(final INodeReadTrx pRtx) {
+    super(pRtx);
+  }
+
+  @Override
+  public final boolean filter() {
+    return filter(getTransaction().getNode());
+  }
+
+  @Override
+  public final void filter(final @Nonnull NodeBatch pBatch,
+    final @Nonnull boolean[] pMatches) {
+    for (int i = 0, size = pBatch.size(); i < size; i++) {
+      if (pMatches[i]) {
+        final INode node = pBatch.getNode(i);
+        if (node != null) {
+          pMatches[i] = filter(node);
+        }
+      }
+    }
+  }
+
+  /**
+   * Apply the filter to a node.
+   * 
+   * @param pNode
+   *          the node
+   * @return {@code true} if node passes filter, {@code false} otherwise
+   */
+  public abstract boolean filter(@Nonnull INode pNode);
+}
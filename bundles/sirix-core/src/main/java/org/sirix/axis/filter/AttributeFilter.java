@@ -27,8 +27,11 @@
 
 package org.sirix.axis.filter;
 
+import javax.annotation.Nonnull;
+
 import org.sirix.api.INodeReadTrx;
 import org.sirix.node.EKind;
+import org.sirix.node.interfaces.INode;
 
 /**
  * <h1>AttributeAxisTest</h1>
@@ -37,7 +40,7 @@ import org.sirix.node.EKind;
  * Only match ATTRIBUTE nodes.
  * </p>
  */
-public class AttributeFilter extends AbsFilter {
+public class AttributeFilter extends AbsNodeFilter {
 
   /**
    * Default constructor.
@@ -50,8 +53,8 @@ public class AttributeFilter extends AbsFilter {
   }
 
   @Override
-  public final boolean filter() {
-    return getTransaction().getNode().getKind() == EKind.ATTRIBUTE;
+  public final boolean filter(final @Nonnull INode pNode) {
+    return pNode.getKind() == EKind.ATTRIBUTE;
   }
 
 }
@@ -27,8 +27,11 @@
 
 package org.sirix.axis.filter;
 
+import javax.annotation.Nonnull;
+
 import org.sirix.api.INodeReadTrx;
 import org.sirix.node.EKind;
+import org.sirix.node.interfaces.INode;
 
 /**
  * <h1>NodeAxisTest</h1>
@@ -37,7 +40,7 @@ import org.sirix.node.EKind;
  * Only match comment nodes.
  * </p>
  */
-public class CommentFilter extends AbsFilter {
+public class CommentFilter extends AbsNodeFilter {
 
   /**
    * Default constructor.
@@ -50,8 +53,8 @@ public class CommentFilter extends AbsFilter {
   }
 
   @Override
-  public final boolean filter() {
-    return getTransaction().getNode().getKind() == EKind.COMMENT;
+  public final boolean filter(final @Nonnull INode pNode) {
+    return pNode.getKind() == EKind.COMMENT;
 
     // TODO: As soon as an comment node is implemented, use the second
     // version,
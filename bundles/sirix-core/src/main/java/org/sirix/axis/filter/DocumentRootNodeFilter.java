@@ -27,8 +27,11 @@
 
 package org.sirix.axis.filter;
 
+import javax.annotation.Nonnull;
+
 import org.sirix.api.INodeReadTrx;
 import org.sirix.node.EKind;
+import org.sirix.node.interfaces.INode;
 
 /**
  * <h1>NodeAxisTest</h1>
@@ -37,7 +40,7 @@ import org.sirix.node.EKind;
  * Only match ROOT nodes.
  * </p>
  */
-public class DocumentRootNodeFilter extends AbsFilter {
+public class DocumentRootNodeFilter extends AbsNodeFilter {
 
   /**
    * Default constructor.
@@ -50,8 +53,8 @@ public class DocumentRootNodeFilter extends AbsFilter {
   }
 
   @Override
-  public final boolean filter() {
-    return getTransaction().getNode().getKind() == EKind.DOCUMENT_ROOT;
+  public final boolean filter(final @Nonnull INode pNode) {
+    return pNode.getKind() == EKind.DOCUMENT_ROOT;
   }
 
 }
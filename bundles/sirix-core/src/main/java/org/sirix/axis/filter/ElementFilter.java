@@ -31,6 +31,7 @@ import javax.annotation.Nonnull;
 
 import org.sirix.api.INodeReadTrx;
 import org.sirix.node.EKind;
+import org.sirix.node.interfaces.INode;
 
 /**
  * <h1>NodeAxisTest</h1>
@@ -39,7 +40,7 @@ import org.sirix.node.EKind;
  * Only match ELEMENTnodes.
  * </p>
  */
-public class ElementFilter extends AbsFilter {
+public class ElementFilter extends AbsNodeFilter {
 
   /**
    * Default constructor.
@@ -52,7 +53,7 @@ public class ElementFilter extends AbsFilter {
   }
 
   @Override
-  public final boolean filter() {
-    return getTransaction().getNode().getKind() == EKind.ELEMENT;
+  public final boolean filter(final @Nonnull INode pNode) {
+    return pNode.getKind() == EKind.ELEMENT;
   }
 }
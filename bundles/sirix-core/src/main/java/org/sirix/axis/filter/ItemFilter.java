@@ -27,7 +27,10 @@
 
 package org.sirix.axis.filter;
 
+import javax.annotation.Nonnull;
+
 import org.sirix.api.INodeReadTrx;
+import org.sirix.node.interfaces.INode;
 
 /**
  * <h1>ItemFilter</h1>
@@ -36,7 +39,7 @@ import org.sirix.api.INodeReadTrx;
  * Match any item type (nodes and atomic values).
  * </p>
  */
-public class ItemFilter extends AbsFilter {
+public class ItemFilter extends AbsNodeFilter {
 
   /**
    * Default constructor.
@@ -49,7 +52,7 @@ public class ItemFilter extends AbsFilter {
   }
 
   @Override
-  public final boolean filter() {
+  public final boolean filter(final @Nonnull INode pNode) {
     // everything that is hold by an transaction is either a node or an
     // atomic value, so this yields true for all item kinds
     return true;
@@ -31,6 +31,7 @@ import javax.annotation.Nonnull;
 
 import org.sirix.api.INodeReadTrx;
 import org.sirix.node.interfaces.INameNode;
+import org.sirix.node.interfaces.INode;
 
 /**
  * <h1>NameAxisTest</h1>
@@ -39,7 +40,7 @@ import org.sirix.node.interfaces.INameNode;
  * Match local part of ELEMENT or ATTRIBUTE by key.
  * </p>
  */
-public class NameFilter extends AbsFilter {
+public class NameFilter extends AbsNodeFilter {
 
   /** Key of name to test. */
   private final int mLocalPartKey;
@@ -58,12 +59,21 @@ public class NameFilter extends AbsFilter {
   }
 
   @Override
-  public final boolean filter() {
+  public final boolean filter(final @Nonnull INode pNode) {
     boolean returnVal = false;
-    if (getTransaction().getNode() instanceof INameNode) {
-      final INameNode node = (INameNode)getTransaction().getNode();
+    if (pNode instanceof INameNode) {
+      final INameNode node = (INameNode)pNode;
       returnVal = (node.getNameKey() == mLocalPartKey);
     }
     return returnVal;
   }
+
+  /**
+   * Get the key of the name to test.
+   * 
+   * @return name key
+   */
+  public int getLocalPartKey() {
+    return mLocalPartKey;
+  }
 }
@@ -27,8 +27,11 @@
 
 package org.sirix.axis.filter;
 
+import javax.annotation.Nonnull;
+
 import org.sirix.api.INodeReadTrx;
 import org.sirix.node.EKind;
+import org.sirix.node.interfaces.INode;
 
 /**
  * <h1>NodeAxisTest</h1>
@@ -37,7 +40,7 @@ import org.sirix.node.EKind;
  * Only match ELEMENT and TEXT nodes.
  * </p>
  */
-public class NodeFilter extends AbsFilter {
+public class NodeFilter extends AbsNodeFilter {
 
   /**
    * Default constructor.
@@ -50,9 +53,8 @@ public class NodeFilter extends AbsFilter {
   }
 
   @Override
-  public final boolean filter() {
-    return (getTransaction().getNode().getKind() == EKind.ELEMENT || getTransaction().getNode()
-      .getKind() == EKind.TEXT);
+  public final boolean filter(final @Nonnull INode pNode) {
+    return (pNode.getKind() == EKind.ELEMENT || pNode.getKind() == EKind.TEXT);
   }
 
 }
@@ -27,7 +27,10 @@
 
 package org.sirix.axis.filter;
 
+import javax.annotation.Nonnull;
+
 import org.sirix.api.INodeReadTrx;
+import org.sirix.node.interfaces.INode;
 
 /**
  * <h1>NodeAxisTest</h1>
@@ -36,7 +39,7 @@ import org.sirix.api.INodeReadTrx;
  * Only match process instruction nodes.
  * </p>
  */
-public class PIFilter extends AbsFilter {
+public class PIFilter extends AbsNodeFilter {
 
   /**
    * Default constructor.
@@ -52,9 +55,9 @@ public class PIFilter extends AbsFilter {
    * {@inheritDoc}
    */
   @Override
-  public final boolean filter() {
+  public final boolean filter(final @Nonnull INode pNode) {
 
-    return getTransaction().getNode().getKind().getId() == 7;
+    return pNode.getKind().getId() == 7;
 
     // TODO: As soon as an PI-node is implemented, use the second version,
     // because this is much cleaner and more consistent to the other
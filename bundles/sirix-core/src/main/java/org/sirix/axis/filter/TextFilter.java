@@ -27,8 +27,11 @@
 
 package org.sirix.axis.filter;
 
+import javax.annotation.Nonnull;
+
 import org.sirix.api.INodeReadTrx;
 import org.sirix.node.EKind;
+import org.sirix.node.interfaces.INode;
 
 /**
  * <h1>FullTextLeafAxisTest</h1>
@@ -37,7 +40,7 @@ import org.sirix.node.EKind;
  * Only select nodes of kind FULLTEXT_LEAF.
  * </p>
  */
-public class TextFilter extends AbsFilter {
+public class TextFilter extends AbsNodeFilter {
 
   /**
    * Default constructor.
@@ -50,8 +53,8 @@ public class TextFilter extends AbsFilter {
   }
 
   @Override
-  public final boolean filter() {
-    return getTransaction().getNode().getKind() == EKind.TEXT;
+  public final boolean filter(final @Nonnull INode pNode) {
+    return pNode.getKind() == EKind.TEXT;
   }
 
 }
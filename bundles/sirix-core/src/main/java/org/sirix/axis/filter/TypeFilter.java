@@ -30,6 +30,7 @@ package org.sirix.axis.filter;
 import javax.annotation.Nonnull;
 
 import org.sirix.api.INodeReadTrx;
+import org.sirix.node.interfaces.INode;
 
 /**
  * <h1>TypeFilter</h1>
@@ -38,7 +39,7 @@ import org.sirix.api.INodeReadTrx;
  * Only match nodes with the specified value type.
  * </p>
  */
-public class TypeFilter extends AbsFilter {
+public class TypeFilter extends AbsNodeFilter {
 
   /** Type information. */
   private final int mType;
@@ -69,8 +70,8 @@ public class TypeFilter extends AbsFilter {
   }
 
   @Override
-  public final boolean filter() {
-    return getTransaction().getNode().getTypeKey() == mType;
+  public final boolean filter(final @Nonnull INode pNode) {
+    return pNode.getTypeKey() == mType;
   }
 
 }
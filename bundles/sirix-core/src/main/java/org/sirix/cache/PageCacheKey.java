@@ -0,0 +1,126 @@
+/**
+ * Copyright (c) 2011, University of Konstanz, Distributed Systems Group
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the University of Konstanz nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sirix.cache;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.sirix.page.EPage;
+
+import com.google.common.base.Objects;
+
+/**
+ * Key of a {@link SharedPageCache} entry. A reconstructed node page is
+ * uniquely identified by the revision it belongs to, the kind of page (node,
+ * path summary or value page) and the node page key.
+ * 
+ * @author Johannes Lichtenberger, University of Konstanz
+ * 
+ */
+public final class PageCacheKey {
+
+  /** Revision of the page. */
+  private final int mRevision;
+
+  /** Kind of page. */
+  private final EPage mPage;
+
+  /** Node page key. */
+  private final long mKey;
+
+  /**
+   * Constructor.
+   * 
+   * @param pRevision
+   *          revision the page belongs to
+   * @param pPage
+   *          kind of page
+   * @param pKey
+   *          node page key
+   */
+  public PageCacheKey(final @Nonnegative int pRevision,
+    final @Nonnull EPage pPage, final @Nonnegative long pKey) {
+    checkArgument(pRevision >= 0, "pRevision must be >= 0!");
+    checkArgument(pKey >= 0, "pKey must be >= 0!");
+    mRevision = pRevision;
+    mPage = checkNotNull(pPage);
+    mKey = pKey;
+  }
+
+  /**
+   * Get the revision.
+   * 
+   * @return the revision
+   */
+  public int getRevision() {
+    return mRevision;
+  }
+
+  /**
+   * Get the kind of page.
+   * 
+   * @return the kind of page
+   */
+  public EPage getPage() {
+    return mPage;
+  }
+
+  /**
+   * Get the node page key.
+   * 
+   * @return the node page key
+   */
+  public long getKey() {
+    return mKey;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hashCode(mRevision, mPage, mKey);
+  }
+
+  @Override
+  public boolean equals(final @Nullable Object pObj) {
+    if (pObj instanceof PageCacheKey) {
+      final PageCacheKey other = (PageCacheKey)pObj;
+      return mRevision == other.mRevision && mPage == other.mPage
+        && mKey == other.mKey;
+    }
+    return false;
+  }
+
+  @Override
+  public String toString() {
+    return Objects.toStringHelper(this).add("revision", mRevision).add(
+      "page", mPage).add("key", mKey).toString();
+  }
+}
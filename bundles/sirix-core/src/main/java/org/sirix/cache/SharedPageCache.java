@@ -0,0 +1,180 @@
+/**
+ * Copyright (c) 2011, University of Konstanz, Distributed Systems Group
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the University of Konstanz nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sirix.cache;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+
+import org.sirix.exception.SirixIOException;
+import org.sirix.page.NodePage;
+
+import com.google.common.base.Objects;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.Weigher;
+
+/**
+ * <h1>SharedPageCache</h1>
+ * 
+ * <p>
+ * Size-bounded cache of reconstructed {@link NodePage}s, which is shared
+ * amongst all read-only page transactions of a session. Committed revisions are
+ * immutable, thus a page which has been combined from its revision fragments
+ * once can be handed to every transaction which reads the same revision.
+ * </p>
+ * 
+ * <p>
+ * Entries are evicted based on an estimation of the memory footprint of the
+ * cached pages in bytes. Hits, misses and evictions are recorded.
+ * </p>
+ * 
+ * @author Johannes Lichtenberger, University of Konstanz
+ * 
+ */
+public final class SharedPageCache {
+
+  /** Estimated size of a page container including the empty modified page. */
+  static final int PAGE_WEIGHT = 256;
+
+  /** Estimated average size of a single node. */
+  static final int NODE_WEIGHT = 128;
+
+  /** {@link Cache} reference. */
+  private final Cache<PageCacheKey, PageContainer> mCache;
+
+  /** Maximum weight in bytes. */
+  private final long mMaxWeight;
+
+  /**
+   * Constructor.
+   * 
+   * @param pMaxWeight
+   *          maximum (estimated) size of all cached pages in bytes
+   */
+  public SharedPageCache(final @Nonnegative long pMaxWeight) {
+    checkArgument(pMaxWeight > 0, "pMaxWeight must be > 0!");
+    mMaxWeight = pMaxWeight;
+    mCache =
+      CacheBuilder.newBuilder().maximumWeight(pMaxWeight).weigher(
+        new Weigher<PageCacheKey, PageContainer>() {
+          @Override
+          public int weigh(final PageCacheKey pKey,
+            final PageContainer pContainer) {
+            return weight(pContainer);
+          }
+        }).recordStats().build();
+  }
+
+  /**
+   * Estimate the size of a {@link PageContainer} in bytes.
+   * 
+   * @param pContainer
+   *          the container to weigh
+   * @return the estimated size in bytes
+   */
+  static int weight(final @Nonnull PageContainer pContainer) {
+    final NodePage page = pContainer.getComplete();
+    return page == null ? PAGE_WEIGHT : PAGE_WEIGHT + page.size()
+      * NODE_WEIGHT;
+  }
+
+  /**
+   * Get a page from the cache, or load and cache it if it is not present. If
+   * several transactions request the same page concurrently, it is only loaded
+   * once.
+   * 
+   * @param pKey
+   *          key of the page
+   * @param pLoader
+   *          reconstructs the page if it is not cached
+   * @return the cached or loaded {@link PageContainer}
+   * @throws SirixIOException
+   *           if the page can't be loaded
+   */
+  public PageContainer get(final @Nonnull PageCacheKey pKey,
+    final @Nonnull Callable<PageContainer> pLoader) throws SirixIOException {
+    try {
+      return mCache.get(checkNotNull(pKey), checkNotNull(pLoader));
+    } catch (final ExecutionException e) {
+      if (e.getCause() instanceof SirixIOException) {
+        throw (SirixIOException)e.getCause();
+      }
+      throw new SirixIOException(e.getCause());
+    }
+  }
+
+  /**
+   * Get a page if it is cached.
+   * 
+   * @param pKey
+   *          key of the page
+   * @return the cached {@link PageContainer} or {@code null} if it isn't cached
+   */
+  public PageContainer getIfPresent(final @Nonnull PageCacheKey pKey) {
+    return mCache.getIfPresent(checkNotNull(pKey));
+  }
+
+  /**
+   * Get the hit, miss and eviction counters.
+   * 
+   * @return a snapshot of the cache statistics
+   */
+  public CacheStats getStats() {
+    return mCache.stats();
+  }
+
+  /**
+   * Get the number of cached pages.
+   * 
+   * @return number of cached pages
+   */
+  public long size() {
+    return mCache.size();
+  }
+
+  /**
+   * Remove all entries.
+   */
+  public void clear() {
+    mCache.invalidateAll();
+    mCache.cleanUp();
+  }
+
+  @Override
+  public String toString() {
+    return Objects.toStringHelper(this).add("maxWeight", mMaxWeight).add(
+      "size", mCache.size()).add("stats", mCache.stats()).toString();
+  }
+}
@@ -0,0 +1,352 @@
+/**
+ * Copyright (c) 2011, University of Konstanz, Distributed Systems Group
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the University of Konstanz nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sirix.cache;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+
+import org.sirix.access.conf.ResourceConfiguration;
+import org.sirix.exception.SirixIOException;
+import org.sirix.page.NodePage;
+import org.sirix.page.PagePersistenter;
+import org.sirix.page.interfaces.IPage;
+
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.ByteArrayDataInput;
+import com.google.common.io.ByteArrayDataOutput;
+import com.google.common.io.ByteStreams;
+
+/**
+ * <h1>SpillLogCache</h1>
+ * 
+ * <p>
+ * Persistent cache for the pages a write transaction evicts from its
+ * transaction log. Pages are appended to a single segment file with
+ * sequential, buffered writes, an in-memory table maps the keys to the offsets
+ * of their latest version and pages are reloaded with positional reads.
+ * Overwritten or removed pages are simply left in the file, which is truncated
+ * once the cache is cleared and deleted once it is closed. The file itself is
+ * only created once the first page is spilled.
+ * </p>
+ * 
+ * @author Johannes Lichtenberger, University of Konstanz
+ * 
+ * @param <V>
+ *          type of the spilled pages
+ */
+public final class SpillLogCache<V> implements ICache<Long, V> {
+
+	/** Serializes the spilled values. */
+	public interface ISerializer<V> {
+		/**
+		 * Serialize a value.
+		 * 
+		 * @param pOut
+		 *          output to write to
+		 * @param pValue
+		 *          value to serialize
+		 */
+		void serialize(@Nonnull ByteArrayDataOutput pOut, @Nonnull V pValue);
+
+		/**
+		 * Deserialize a value.
+		 * 
+		 * @param pIn
+		 *          input to read from
+		 * @return the value
+		 */
+		V deserialize(@Nonnull ByteArrayDataInput pIn);
+	}
+
+	/** Serializes {@link PageContainer}s. */
+	public static final ISerializer<PageContainer> PAGE_CONTAINERS = new ISerializer<PageContainer>() {
+		@Override
+		public void serialize(final @Nonnull ByteArrayDataOutput pOut,
+				final @Nonnull PageContainer pValue) {
+			PagePersistenter.serializePage(pOut, pValue.getComplete());
+			PagePersistenter.serializePage(pOut, pValue.getModified());
+		}
+
+		@Override
+		public PageContainer deserialize(final @Nonnull ByteArrayDataInput pIn) {
+			final NodePage complete = (NodePage) PagePersistenter.deserializePage(pIn);
+			final NodePage modified = (NodePage) PagePersistenter.deserializePage(pIn);
+			return new PageContainer(complete, modified);
+		}
+	};
+
+	/** Serializes {@link IPage}s. */
+	public static final ISerializer<IPage> PAGES = new ISerializer<IPage>() {
+		@Override
+		public void serialize(final @Nonnull ByteArrayDataOutput pOut,
+				final @Nonnull IPage pValue) {
+			PagePersistenter.serializePage(pOut, pValue);
+		}
+
+		@Override
+		public IPage deserialize(final @Nonnull ByteArrayDataInput pIn) {
+			return PagePersistenter.deserializePage(pIn);
+		}
+	};
+
+	/** Size of the write buffer (64 KiB). */
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	/** Size of the length prefix of each entry. */
+	private static final int HEADER_SIZE = 4;
+
+	/** The segment file. */
+	private final File mFile;
+
+	/** Serializes the values. */
+	private final ISerializer<V> mSerializer;
+
+	/** Offsets of the latest versions of the pages in the file. */
+	private final Map<Long, Long> mOffsets;
+
+	/** Buffer for the entries, which are appended next. */
+	private final ByteBuffer mBuffer;
+
+	/** Channel of the file, created once the first page is spilled. */
+	private FileChannel mChannel;
+
+	/** Offset in the file, at which the buffer is written. */
+	private long mEnd;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param pFile
+	 *          the resource path, the log is stored in its transaction log
+	 *          directory
+	 * @param pRevision
+	 *          revision number
+	 * @param pLogType
+	 *          type of log, used as the file name
+	 * @param pSerializer
+	 *          serializes the values
+	 */
+	public SpillLogCache(final @Nonnull File pFile,
+			final @Nonnegative int pRevision, final @Nonnull String pLogType,
+			final @Nonnull ISerializer<V> pSerializer) {
+		mFile = new File(new File(new File(checkNotNull(pFile),
+				ResourceConfiguration.Paths.TransactionLog.getFile().getName()),
+				Integer.toString(pRevision)), checkNotNull(pLogType) + ".spill");
+		// The revision directory also holds the commit file.
+		mFile.getParentFile().mkdirs();
+		mSerializer = checkNotNull(pSerializer);
+		mOffsets = new HashMap<>();
+		mBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+	}
+
+	/**
+	 * Get the segment file.
+	 * 
+	 * @return the segment file
+	 */
+	File getFile() {
+		return mFile;
+	}
+
+	@Override
+	public synchronized void put(final @Nonnull Long pKey,
+			final @Nonnull V pValue) {
+		final ByteArrayDataOutput out = ByteStreams.newDataOutput();
+		mSerializer.serialize(out, checkNotNull(pValue));
+		final byte[] bytes = out.toByteArray();
+		try {
+			if (mChannel == null) {
+				mChannel = new RandomAccessFile(mFile, "rw").getChannel();
+				mChannel.truncate(0);
+			}
+			if (mBuffer.remaining() < HEADER_SIZE + bytes.length) {
+				flush();
+			}
+			mOffsets.put(checkNotNull(pKey), mEnd + mBuffer.position());
+			if (mBuffer.remaining() < HEADER_SIZE + bytes.length) {
+				// Larger than the buffer.
+				final ByteBuffer entry = ByteBuffer.allocate(HEADER_SIZE
+						+ bytes.length);
+				entry.putInt(bytes.length).put(bytes).flip();
+				write(entry);
+			} else {
+				mBuffer.putInt(bytes.length).put(bytes);
+			}
+		} catch (final IOException e) {
+			throw new IllegalStateException(new SirixIOException(e));
+		}
+	}
+
+	@Override
+	public synchronized V get(final @Nonnull Long pKey) {
+		final Long offset = mOffsets.get(pKey);
+		if (offset == null) {
+			return null;
+		}
+		try {
+			if (offset >= mEnd) {
+				flush();
+			}
+			final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			read(header, offset);
+			final ByteBuffer entry = ByteBuffer.allocate(header.getInt(0));
+			read(entry, offset + HEADER_SIZE);
+			return mSerializer.deserialize(ByteStreams.newDataInput(entry.array()));
+		} catch (final IOException e) {
+			throw new IllegalStateException(new SirixIOException(e));
+		}
+	}
+
+	/**
+	 * Append the buffered entries to the file.
+	 * 
+	 * @throws IOException
+	 *           if an I/O error occurs
+	 */
+	private void flush() throws IOException {
+		mBuffer.flip();
+		write(mBuffer);
+		mBuffer.clear();
+	}
+
+	/**
+	 * Append bytes to the file.
+	 * 
+	 * @param pBuffer
+	 *          the bytes to append
+	 * @throws IOException
+	 *           if an I/O error occurs
+	 */
+	private void write(final @Nonnull ByteBuffer pBuffer) throws IOException {
+		while (pBuffer.hasRemaining()) {
+			mEnd += mChannel.write(pBuffer, mEnd);
+		}
+	}
+
+	/**
+	 * Fill a buffer with the bytes of the file at the given offset.
+	 * 
+	 * @param pBuffer
+	 *          buffer to fill
+	 * @param pOffset
+	 *          offset in the file
+	 * @throws IOException
+	 *           if an I/O error occurs or the end of the file is reached
+	 */
+	private void read(final @Nonnull ByteBuffer pBuffer, final long pOffset)
+			throws IOException {
+		long offset = pOffset;
+		while (pBuffer.hasRemaining()) {
+			final int read = mChannel.read(pBuffer, offset);
+			if (read < 0) {
+				throw new IOException("Unexpected end of the spill log!");
+			}
+			offset += read;
+		}
+	}
+
+	@Override
+	public synchronized void putAll(final @Nonnull Map<Long, V> pMap) {
+		for (final Entry<Long, V> entry : pMap.entrySet()) {
+			put(entry.getKey(), entry.getValue());
+		}
+	}
+
+	@Override
+	public synchronized ImmutableMap<Long, V> getAll(
+			final @Nonnull Iterable<? extends Long> pKeys) {
+		final ImmutableMap.Builder<Long, V> builder = new ImmutableMap.Builder<>();
+		for (final Long key : pKeys) {
+			final V value = get(key);
+			if (value != null) {
+				builder.put(key, value);
+			}
+		}
+		return builder.build();
+	}
+
+	@Override
+	public synchronized void remove(final @Nonnull Long pKey) {
+		mOffsets.remove(pKey);
+	}
+
+	@Override
+	public synchronized void clear() {
+		mOffsets.clear();
+		mBuffer.clear();
+		mEnd = 0;
+		if (mChannel != null) {
+			try {
+				mChannel.truncate(0);
+			} catch (final IOException e) {
+				throw new IllegalStateException(new SirixIOException(e));
+			}
+		}
+	}
+
+	@Override
+	public void toSecondCache() {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public synchronized void close() {
+		mOffsets.clear();
+		mBuffer.clear();
+		mEnd = 0;
+		if (mChannel != null) {
+			try {
+				mChannel.close();
+			} catch (final IOException e) {
+				throw new IllegalStateException(new SirixIOException(e));
+			} finally {
+				mChannel = null;
+				mFile.delete();
+			}
+		}
+	}
+
+	@Override
+	public synchronized String toString() {
+		return Objects.toStringHelper(this).add("file", mFile)
+				.add("entries", mOffsets.size()).add("size", mEnd + mBuffer.position())
+				.toString();
+	}
+}
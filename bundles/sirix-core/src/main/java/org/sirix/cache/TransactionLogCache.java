@@ -37,6 +37,7 @@ import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 
 import org.sirix.access.conf.DatabaseConfiguration;
+import org.sirix.access.conf.ResourceConfiguration.ETransactionLog;
 import org.sirix.exception.SirixIOException;
 
 import com.google.common.base.Objects;
@@ -56,7 +57,7 @@ public final class TransactionLogCache implements ICache<Long, PageContainer> {
 	private final LRUCache<Long, PageContainer> mFirstCache;
 
 	/** Persistend second cache. */
-	private final BerkeleyPersistenceCache mSecondCache;
+	private final ICache<Long, PageContainer> mSecondCache;
 
 	/** {@link ReadWriteLock} instance. */
 	private final ReadWriteLock mLock = new ReentrantReadWriteLock();
@@ -83,7 +84,35 @@ public final class TransactionLogCache implements ICache<Long, PageContainer> {
 	public TransactionLogCache(final @Nonnull File pFile,
 			final @Nonnegative int pRevision, final @Nonnull String pLogType)
 			throws SirixIOException {
-		mSecondCache = new BerkeleyPersistenceCache(pFile, pRevision, pLogType);
+		this(pFile, pRevision, pLogType, ETransactionLog.BERKELEY);
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param pFile
+	 *          the config for having a storage-place
+	 * @param pRevision
+	 *          revision number
+	 * @param pLogType
+	 *          type of log
+	 * @param pTransactionLog
+	 *          kind of the persistent second cache
+	 * @throws SirixIOException
+	 *           if a database error occurs
+	 */
+	public TransactionLogCache(final @Nonnull File pFile,
+			final @Nonnegative int pRevision, final @Nonnull String pLogType,
+			final @Nonnull ETransactionLog pTransactionLog)
+			throws SirixIOException {
+		switch (pTransactionLog) {
+		case SPILL:
+			mSecondCache = new SpillLogCache<>(pFile, pRevision, pLogType,
+					SpillLogCache.PAGE_CONTAINERS);
+			break;
+		default:
+			mSecondCache = new BerkeleyPersistenceCache(pFile, pRevision, pLogType);
+		}
 		mFirstCache = new LRUCache<>(mSecondCache);
 	}
 	
@@ -37,6 +37,7 @@ import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 
 import org.sirix.access.conf.DatabaseConfiguration;
+import org.sirix.access.conf.ResourceConfiguration.ETransactionLog;
 import org.sirix.exception.SirixIOException;
 import org.sirix.page.interfaces.IPage;
 
@@ -57,7 +58,7 @@ public final class TransactionLogPageCache implements ICache<Long, IPage> {
 	private final LRUCache<Long, IPage> mFirstCache;
 
 	/** Persistend second cache. */
-	private final BerkeleyPersistencePageCache mSecondCache;
+	private final ICache<Long, IPage> mSecondCache;
 
 	/** {@link ReadWriteLock} instance. */
 	private final ReadWriteLock mLock = new ReentrantReadWriteLock();
@@ -82,7 +83,35 @@ public final class TransactionLogPageCache implements ICache<Long, IPage> {
 	public TransactionLogPageCache(final @Nonnull File pFile,
 			final @Nonnegative int pRevision, final @Nonnull String pLogType)
 			throws SirixIOException {
-		mSecondCache = new BerkeleyPersistencePageCache(pFile, pRevision, pLogType);
+		this(pFile, pRevision, pLogType, ETransactionLog.BERKELEY);
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param pFile
+	 *          the config for having a storage-place
+	 * @param pRevision
+	 *          revision number
+	 * @param pLogType
+	 *          type of log
+	 * @param pTransactionLog
+	 *          kind of the persistent second cache
+	 * @throws SirixIOException
+	 *           if a database error occurs
+	 */
+	public TransactionLogPageCache(final @Nonnull File pFile,
+			final @Nonnegative int pRevision, final @Nonnull String pLogType,
+			final @Nonnull ETransactionLog pTransactionLog)
+			throws SirixIOException {
+		switch (pTransactionLog) {
+		case SPILL:
+			mSecondCache = new SpillLogCache<>(pFile, pRevision, pLogType,
+					SpillLogCache.PAGES);
+			break;
+		default:
+			mSecondCache = new BerkeleyPersistencePageCache(pFile, pRevision, pLogType);
+		}
 		mFirstCache = new LRUCache<>(mSecondCache);
 	}
 	
@@ -184,6 +213,8 @@ public final class TransactionLogPageCache implements ICache<Long, IPage> {
 	 * @return {@code true} if the persistent log exists, {@code false} otherwise
 	 */
 	public boolean isCreated() {
-		return mSecondCache.isCreated();
+		// The spill log is always created from scratch.
+		return !(mSecondCache instanceof BerkeleyPersistencePageCache)
+				|| ((BerkeleyPersistencePageCache) mSecondCache).isCreated();
 	}
 }
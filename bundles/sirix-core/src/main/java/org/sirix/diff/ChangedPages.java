@@ -0,0 +1,244 @@
+/**
+ * Copyright (c) 2011, University of Konstanz, Distributed Systems Group
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the University of Konstanz nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sirix.diff;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.sirix.api.INodeReadTrx;
+import org.sirix.api.IPageReadTrx;
+import org.sirix.exception.SirixIOException;
+import org.sirix.page.EPage;
+import org.sirix.page.PageReference;
+import org.sirix.page.interfaces.IPage;
+import org.sirix.settings.IConstants;
+
+/**
+ * <h1>ChangedPages</h1>
+ * 
+ * <p>
+ * Determines the nodes, which might have changed between two revisions, by
+ * comparing the indirect page trees of the revisions. As pages are copied on
+ * write, both revisions share every unmodified {@code NodePage} and every
+ * indirect page above unmodified pages, thus only subtrees of the indirect
+ * trees with different page references are traversed.
+ * </p>
+ * 
+ * @author Johannes Lichtenberger, University of Konstanz
+ * 
+ */
+final class ChangedPages {
+
+  /**
+   * Private constructor.
+   */
+  private ChangedPages() {
+    throw new AssertionError("May never be instantiated!");
+  }
+
+  /**
+   * Get the keys of the nodes on changed node pages, which differ between the
+   * revisions, and of their ancestors in both revisions.
+   * 
+   * @param pNewRtx
+   *          {@link INodeReadTrx} on new revision
+   * @param pOldRtx
+   *          {@link INodeReadTrx} on old revision
+   * @return keys of the changed nodes and their ancestors
+   * @throws SirixIOException
+   *           if an I/O error occurs
+   */
+  static Set<Long> nodeKeys(final @Nonnull INodeReadTrx pNewRtx,
+    final @Nonnull INodeReadTrx pOldRtx) throws SirixIOException {
+    final long newKey = pNewRtx.getNode().getNodeKey();
+    final long oldKey = pOldRtx.getNode().getNodeKey();
+    final Set<Long> newKeys = new HashSet<>();
+    final Set<Long> oldKeys = new HashSet<>();
+    for (final long pageKey : nodePageKeys(pNewRtx.getPageTransaction(),
+      pOldRtx.getPageTransaction())) {
+      final long firstKey = pageKey << IConstants.NDP_NODE_COUNT_EXPONENT;
+      for (long key = firstKey; key < firstKey + IConstants.NDP_NODE_COUNT; key++) {
+        final boolean inNew = pNewRtx.moveTo(key);
+        final boolean inOld = pOldRtx.moveTo(key);
+        if (inNew && inOld && pNewRtx.getNode().equals(pOldRtx.getNode())
+          && pNewRtx.getNode().getParentKey() == pOldRtx.getNode().getParentKey()) {
+          // Unchanged node on a changed page.
+          continue;
+        }
+        if (inNew) {
+          addAncestors(pNewRtx, newKeys);
+        }
+        if (inOld) {
+          addAncestors(pOldRtx, oldKeys);
+        }
+      }
+    }
+    pNewRtx.moveTo(newKey);
+    pOldRtx.moveTo(oldKey);
+    newKeys.addAll(oldKeys);
+    return newKeys;
+  }
+
+  /**
+   * Add the node the transaction is located at and its ancestors.
+   * 
+   * @param pRtx
+   *          {@link INodeReadTrx} instance
+   * @param pKeys
+   *          node keys of one revision
+   */
+  private static void addAncestors(final @Nonnull INodeReadTrx pRtx,
+    final @Nonnull Set<Long> pKeys) {
+    if (pKeys.add(pRtx.getNode().getNodeKey())) {
+      while (pRtx.moveToParent() && pKeys.add(pRtx.getNode().getNodeKey())) {
+        // Stop at ancestors, which have already been added.
+      }
+    }
+  }
+
+  /**
+   * Get the keys of the node pages, which differ between two revisions.
+   * 
+   * @param pNewTrx
+   *          {@link IPageReadTrx} on new revision
+   * @param pOldTrx
+   *          {@link IPageReadTrx} on old revision
+   * @return keys of the changed node pages in ascending order
+   * @throws SirixIOException
+   *           if an I/O error occurs
+   */
+  static List<Long> nodePageKeys(final @Nonnull IPageReadTrx pNewTrx,
+    final @Nonnull IPageReadTrx pOldTrx) throws SirixIOException {
+    final List<Long> pageKeys = new ArrayList<>();
+    collect(pNewTrx, pOldTrx, pNewTrx.getActualRevisionRootPage()
+      .getIndirectPageReference(), pOldTrx.getActualRevisionRootPage()
+      .getIndirectPageReference(), 0, 0, pNewTrx.getUberPage()
+      .getPageCountExp(EPage.NODEPAGE), pageKeys);
+    return pageKeys;
+  }
+
+  /**
+   * Collect the keys of the node pages, which differ in the subtrees of the
+   * indirect trees.
+   * 
+   * @param pNewTrx
+   *          {@link IPageReadTrx} on new revision
+   * @param pOldTrx
+   *          {@link IPageReadTrx} on old revision
+   * @param pNewRef
+   *          reference in the new revision
+   * @param pOldRef
+   *          reference in the old revision
+   * @param pLevel
+   *          level of the referenced pages
+   * @param pPageKey
+   *          key of the first node page in the subtrees
+   * @param pLevelPageCountExp
+   *          exponents of the page counts per level
+   * @param pPageKeys
+   *          keys of the changed node pages
+   * @throws SirixIOException
+   *           if an I/O error occurs
+   */
+  private static void collect(final @Nonnull IPageReadTrx pNewTrx,
+    final @Nonnull IPageReadTrx pOldTrx, final @Nullable PageReference pNewRef,
+    final @Nullable PageReference pOldRef, final @Nonnegative int pLevel,
+    final @Nonnegative long pPageKey, final @Nonnull int[] pLevelPageCountExp,
+    final @Nonnull List<Long> pPageKeys) throws SirixIOException {
+    final long newKey = key(pNewRef);
+    final long oldKey = key(pOldRef);
+    if ((newKey == oldKey && newKey != IConstants.NULL_ID)
+      || (isEmpty(pNewRef) && isEmpty(pOldRef))) {
+      // Shared or absent in both revisions.
+      return;
+    }
+    if (pLevel == pLevelPageCountExp.length) {
+      pPageKeys.add(pPageKey);
+      return;
+    }
+    final IPage newPage = page(pNewTrx, pNewRef);
+    final IPage oldPage = page(pOldTrx, pOldRef);
+    for (int offset = 0; offset < IConstants.INP_REFERENCE_COUNT; offset++) {
+      collect(pNewTrx, pOldTrx, newPage == null ? null : newPage
+        .getReference(offset), oldPage == null ? null : oldPage
+        .getReference(offset), pLevel + 1, pPageKey
+        + ((long)offset << pLevelPageCountExp[pLevel]), pLevelPageCountExp,
+        pPageKeys);
+    }
+  }
+
+  /**
+   * Get the key of the referenced page.
+   * 
+   * @param pRef
+   *          page reference
+   * @return the key or {@code IConstants.NULL_ID}, if the page is not
+   *         persisted
+   */
+  private static long key(final @Nullable PageReference pRef) {
+    return pRef == null ? IConstants.NULL_ID : pRef.getKey();
+  }
+
+  /**
+   * Determines if the reference doesn't point to a page.
+   * 
+   * @param pRef
+   *          page reference
+   * @return {@code true}, if no page is referenced, {@code false} otherwise
+   */
+  private static boolean isEmpty(final @Nullable PageReference pRef) {
+    return pRef == null
+      || (pRef.getKey() == IConstants.NULL_ID && pRef.getPage() == null);
+  }
+
+  /**
+   * Get the indirect page a reference points to.
+   * 
+   * @param pTrx
+   *          {@link IPageReadTrx} instance
+   * @param pRef
+   *          page reference
+   * @return the referenced page or {@code null}, if no page is referenced
+   * @throws SirixIOException
+   *           if an I/O error occurs
+   */
+  private static IPage page(final @Nonnull IPageReadTrx pTrx,
+    final @Nullable PageReference pRef) throws SirixIOException {
+    if (isEmpty(pRef)) {
+      return null;
+    }
+    final IPage page = pRef.getPage();
+    return page == null ? pTrx.getFromPageCache(pRef.getKey()) : page;
+  }
+}
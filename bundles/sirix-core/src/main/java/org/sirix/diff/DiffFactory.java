@@ -91,7 +91,20 @@ public final class DiffFactory {
     NO,
 
     /** Optimized diff. */
-    HASHED
+    HASHED,
+
+    /**
+     * Optimized diff, which skips subtrees with the same hash and number of
+     * descendants and compares large subtrees, which differ, in parallel.
+     */
+    PARALLEL,
+
+    /**
+     * Optimized diff, which only compares the nodes on node pages, which
+     * changed between the revisions, and their ancestors. The changed pages are
+     * found by comparing the page references of the indirect page trees.
+     */
+    PAGES
   }
 
   /** Determines the kind of diff to invoke. */
@@ -100,7 +113,12 @@ public final class DiffFactory {
     FULL {
       @Override
       void invoke(final Builder pBuilder) throws SirixException {
-        new FullDiff(pBuilder).diffMovement();
+        if (pBuilder.mKind == EDiffOptimized.PARALLEL
+          || pBuilder.mKind == EDiffOptimized.PAGES) {
+          new ParallelDiff(pBuilder, true).diff();
+        } else {
+          new FullDiff(pBuilder).diffMovement();
+        }
       }
     },
 
@@ -108,7 +126,12 @@ public final class DiffFactory {
     STRUCTURAL {
       @Override
       void invoke(final Builder pBuilder) throws SirixException {
-        new StructuralDiff(pBuilder).diffMovement();
+        if (pBuilder.mKind == EDiffOptimized.PARALLEL
+          || pBuilder.mKind == EDiffOptimized.PAGES) {
+          new ParallelDiff(pBuilder, false).diff();
+        } else {
+          new StructuralDiff(pBuilder).diffMovement();
+        }
       }
     };
 
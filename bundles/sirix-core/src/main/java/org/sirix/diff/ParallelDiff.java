@@ -0,0 +1,568 @@
+/**
+ * Copyright (c) 2011, University of Konstanz, Distributed Systems Group
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the University of Konstanz nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sirix.diff;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import com.google.common.base.Optional;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+
+import org.sirix.access.EHashKind;
+import org.sirix.api.INodeReadTrx;
+import org.sirix.diff.DiffFactory.Builder;
+import org.sirix.diff.DiffFactory.EDiff;
+import org.sirix.diff.DiffFactory.EDiffOptimized;
+import org.sirix.exception.SirixException;
+import org.sirix.node.EKind;
+import org.sirix.node.ElementNode;
+import org.sirix.node.interfaces.IStructNode;
+
+/**
+ * <h1>ParallelDiff</h1>
+ * 
+ * <p>
+ * Diff, which skips subtrees with the same node key, hash and descendant count
+ * in both revisions and compares the children of the remaining nodes by their
+ * node keys. For {@link EDiffOptimized#PAGES} subtrees without nodes on node
+ * pages, which changed between the revisions, are skipped instead (see
+ * {@link ChangedPages}). Large subtrees which differ are compared
+ * concurrently on cloned transactions on a fork/join pool. The encountered
+ * differences are buffered and fired in document order, once the whole diff is
+ * computed.
+ * </p>
+ * 
+ * <p>
+ * A child, which is only present in the new revision is {@code INSERTED}, a
+ * child, which is only present in the old revision is {@code DELETED}. If both
+ * are found at the same position the old child has been replaced by the new
+ * child. Moved children are deleted and inserted.
+ * </p>
+ * 
+ * @author Johannes Lichtenberger, University of Konstanz
+ * 
+ */
+final class ParallelDiff extends AbsDiffObservable {
+
+  /** Pool on which the subtrees are compared. */
+  private static final ForkJoinPool POOL = new ForkJoinPool();
+
+  /**
+   * Minimum number of descendants of a subtree in the new revision to compare
+   * it in a task of its own.
+   */
+  private static final int THRESHOLD = 512;
+
+  /** {@link Builder} reference. */
+  private final Builder mBuilder;
+
+  /** Determines if attributes and namespaces are compared. */
+  private final boolean mFull;
+
+  /** Determines if subtrees with the same hash are skipped. */
+  private final boolean mSkip;
+
+  /**
+   * Keys of the nodes on changed node pages and their ancestors, if subtrees
+   * are skipped based on the changed pages.
+   */
+  private Optional<Set<Long>> mChanged;
+
+  /**
+   * Constructor.
+   * 
+   * @param pBuilder
+   *          {@link Builder} reference
+   * @param pFull
+   *          determines if attributes and namespaces are compared
+   *          ({@code FullDiff}) or not ({@code StructuralDiff})
+   */
+  ParallelDiff(final @Nonnull Builder pBuilder, final boolean pFull) {
+    mBuilder = checkNotNull(pBuilder);
+    mFull = pFull;
+    mSkip = pBuilder.mHashKind != EHashKind.None;
+    mChanged = Optional.absent();
+    synchronized (pBuilder.mObservers) {
+      for (final IDiffObserver observer : pBuilder.mObservers) {
+        addObserver(observer);
+      }
+    }
+  }
+
+  /**
+   * Do the diff.
+   * 
+   * @throws SirixException
+   *           if setting up or closing transactions fails
+   */
+  void diff() throws SirixException {
+    final INodeReadTrx newRtx;
+    final INodeReadTrx oldRtx;
+    synchronized (mBuilder.mSession) {
+      newRtx = mBuilder.mSession.beginNodeReadTrx(mBuilder.mNewRev);
+      oldRtx = mBuilder.mSession.beginNodeReadTrx(mBuilder.mOldRev);
+    }
+    try {
+      final boolean movedNew = newRtx.moveTo(mBuilder.mNewStartKey);
+      final boolean movedOld = oldRtx.moveTo(mBuilder.mOldStartKey);
+      List<Event> events = new ArrayList<>();
+      if (movedNew && movedOld) {
+        if (mBuilder.mKind == EDiffOptimized.PAGES) {
+          mChanged = Optional.of(ChangedPages.nodeKeys(newRtx, oldRtx));
+        }
+        events =
+          POOL.invoke(new Task(newRtx, oldRtx, mBuilder.mNewDepth,
+            mBuilder.mOldDepth, false));
+      } else if (movedNew) {
+        subtree(EDiff.INSERTED, newRtx, oldRtx, mBuilder.mNewDepth,
+          mBuilder.mOldDepth, events);
+      } else if (movedOld) {
+        subtree(EDiff.DELETED, newRtx, oldRtx, mBuilder.mNewDepth,
+          mBuilder.mOldDepth, events);
+      }
+      fire(events);
+    } finally {
+      newRtx.close();
+      oldRtx.close();
+    }
+    done();
+  }
+
+  /**
+   * Fire the differences in document order, waiting for the tasks, which
+   * compare subtrees.
+   * 
+   * @param pEvents
+   *          buffered differences
+   */
+  private void fire(final @Nonnull List<Event> pEvents) {
+    for (final Event event : pEvents) {
+      if (event.mTask == null) {
+        fireDiff(event.mDiff, event.mNewNode, event.mOldNode, event.mDepth);
+      } else {
+        fire(event.mTask.join());
+      }
+    }
+  }
+
+  /**
+   * Compare the nodes the transactions are located at, which have the same node
+   * key, and their subtrees.
+   * 
+   * @param pNewRtx
+   *          {@link INodeReadTrx} on new revision
+   * @param pOldRtx
+   *          {@link INodeReadTrx} on old revision
+   * @param pNewDepth
+   *          depth of the node in the new revision
+   * @param pOldDepth
+   *          depth of the node in the old revision
+   * @param pEvents
+   *          buffered differences
+   */
+  private void compare(final @Nonnull INodeReadTrx pNewRtx,
+    final @Nonnull INodeReadTrx pOldRtx, final @Nonnegative int pNewDepth,
+    final @Nonnegative int pOldDepth, final @Nonnull List<Event> pEvents) {
+    final IStructNode newNode = pNewRtx.getStructuralNode();
+    final IStructNode oldNode = pOldRtx.getStructuralNode();
+    if (newNode.getKind() == EKind.DOCUMENT_ROOT
+      && oldNode.getKind() == EKind.DOCUMENT_ROOT) {
+      // The document root itself is never reported.
+      compareChildren(pNewRtx, pOldRtx, pNewDepth, pOldDepth, pEvents);
+    } else if (isSameSubtree(newNode, oldNode)) {
+      pEvents.add(new Event(EDiff.SAMEHASH, newNode, oldNode, new DiffDepth(
+        pNewDepth, pOldDepth)));
+    } else {
+      pEvents.add(new Event(checkNodes(pNewRtx, pOldRtx) ? EDiff.SAME
+        : EDiff.UPDATED, newNode, oldNode, new DiffDepth(pNewDepth, pOldDepth)));
+      if (newNode.hasFirstChild() || oldNode.hasFirstChild()) {
+        compareChildren(pNewRtx, pOldRtx, pNewDepth + 1, pOldDepth + 1,
+          pEvents);
+      }
+    }
+  }
+
+  /**
+   * Compare the children of the nodes the transactions are located at, which
+   * have the same node key.
+   * 
+   * @param pNewRtx
+   *          {@link INodeReadTrx} on new revision
+   * @param pOldRtx
+   *          {@link INodeReadTrx} on old revision
+   * @param pNewDepth
+   *          depth of the children in the new revision
+   * @param pOldDepth
+   *          depth of the children in the old revision
+   * @param pEvents
+   *          buffered differences
+   */
+  private void compareChildren(final @Nonnull INodeReadTrx pNewRtx,
+    final @Nonnull INodeReadTrx pOldRtx, final @Nonnegative int pNewDepth,
+    final @Nonnegative int pOldDepth, final @Nonnull List<Event> pEvents) {
+    final long newParentKey = pNewRtx.getNode().getNodeKey();
+    final long oldParentKey = pOldRtx.getNode().getNodeKey();
+    final List<Long> newKeys = children(pNewRtx);
+    final List<Long> oldKeys = children(pOldRtx);
+    final Set<Long> newSet = new HashSet<>(newKeys);
+    final Set<Long> oldSet = new HashSet<>(oldKeys);
+
+    int i = 0;
+    int j = 0;
+    while (i < newKeys.size() || j < oldKeys.size()) {
+      if (i < newKeys.size() && j < oldKeys.size()
+        && newKeys.get(i).equals(oldKeys.get(j))) {
+        pNewRtx.moveTo(newKeys.get(i++));
+        pOldRtx.moveTo(oldKeys.get(j++));
+        if (!isSameSubtree(pNewRtx.getStructuralNode(), pOldRtx
+          .getStructuralNode())
+          && pNewRtx.getStructuralNode().getDescendantCount() >= THRESHOLD) {
+          pEvents.add(new Event(fork(pNewRtx, pOldRtx, pNewDepth, pOldDepth)));
+        } else {
+          compare(pNewRtx, pOldRtx, pNewDepth, pOldDepth, pEvents);
+        }
+      } else if (i < newKeys.size() && !oldSet.contains(newKeys.get(i))) {
+        pNewRtx.moveTo(newKeys.get(i++));
+        if (j < oldKeys.size() && !newSet.contains(oldKeys.get(j))) {
+          pOldRtx.moveTo(oldKeys.get(j++));
+          subtree(EDiff.REPLACEDOLD, pNewRtx, pOldRtx, pNewDepth, pOldDepth,
+            pEvents);
+          subtree(EDiff.REPLACEDNEW, pNewRtx, pOldRtx, pNewDepth, pOldDepth,
+            pEvents);
+        } else {
+          pOldRtx.moveTo(oldParentKey);
+          subtree(EDiff.INSERTED, pNewRtx, pOldRtx, pNewDepth, pOldDepth,
+            pEvents);
+        }
+      } else {
+        // Either deleted or moved, in which case it is inserted later on.
+        assert j < oldKeys.size();
+        oldSet.remove(oldKeys.get(j));
+        pOldRtx.moveTo(oldKeys.get(j++));
+        pNewRtx.moveTo(newParentKey);
+        subtree(EDiff.DELETED, pNewRtx, pOldRtx, pNewDepth, pOldDepth, pEvents);
+      }
+    }
+    pNewRtx.moveTo(newParentKey);
+    pOldRtx.moveTo(oldParentKey);
+  }
+
+  /**
+   * Compare the subtrees the transactions are located at on clones of the
+   * transactions.
+   * 
+   * @param pNewRtx
+   *          {@link INodeReadTrx} on new revision
+   * @param pOldRtx
+   *          {@link INodeReadTrx} on old revision
+   * @param pNewDepth
+   *          depth of the node in the new revision
+   * @param pOldDepth
+   *          depth of the node in the old revision
+   * @return the forked task
+   */
+  private Task fork(final @Nonnull INodeReadTrx pNewRtx,
+    final @Nonnull INodeReadTrx pOldRtx, final @Nonnegative int pNewDepth,
+    final @Nonnegative int pOldDepth) {
+    try {
+      final Task task =
+        new Task(pNewRtx.cloneInstance(), pOldRtx.cloneInstance(), pNewDepth,
+          pOldDepth, true);
+      task.fork();
+      return task;
+    } catch (final SirixException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Buffer a difference for each node of the subtree, which is inserted
+   * (replaced by) in the new or deleted (replaced) in the old revision.
+   * 
+   * @param pDiff
+   *          kind of difference
+   * @param pNewRtx
+   *          {@link INodeReadTrx} on new revision
+   * @param pOldRtx
+   *          {@link INodeReadTrx} on old revision
+   * @param pNewDepth
+   *          depth in the new revision
+   * @param pOldDepth
+   *          depth in the old revision
+   * @param pEvents
+   *          buffered differences
+   */
+  private void subtree(final @Nonnull EDiff pDiff,
+    final @Nonnull INodeReadTrx pNewRtx, final @Nonnull INodeReadTrx pOldRtx,
+    final @Nonnegative int pNewDepth, final @Nonnegative int pOldDepth,
+    final @Nonnull List<Event> pEvents) {
+    final boolean isNew = pDiff == EDiff.INSERTED || pDiff == EDiff.REPLACEDNEW;
+    final INodeReadTrx rtx = isNew ? pNewRtx : pOldRtx;
+    if (rtx.getNode().getKind() == EKind.DOCUMENT_ROOT
+      && !rtx.moveToFirstChild()) {
+      return;
+    }
+    final long rootKey = rtx.getNode().getNodeKey();
+    int level = 0;
+    while (true) {
+      final DiffDepth depth =
+        isNew ? new DiffDepth(pNewDepth + level, pOldDepth) : new DiffDepth(
+          pNewDepth, pOldDepth + level);
+      pEvents.add(new Event(pDiff, pNewRtx.getStructuralNode(), pOldRtx
+        .getStructuralNode(), depth));
+      if (rtx.getStructuralNode().hasFirstChild()) {
+        rtx.moveToFirstChild();
+        level++;
+      } else {
+        while (!rtx.getStructuralNode().hasRightSibling()
+          && rtx.getNode().getNodeKey() != rootKey) {
+          rtx.moveToParent();
+          level--;
+        }
+        if (rtx.getNode().getNodeKey() == rootKey) {
+          break;
+        }
+        rtx.moveToRightSibling();
+      }
+    }
+  }
+
+  /**
+   * Determines if the subtrees rooted at the nodes are the same.
+   * 
+   * @param pNewNode
+   *          node in the new revision
+   * @param pOldNode
+   *          node in the old revision
+   * @return {@code true}, if the nodes have the same node key and either no
+   *         changed descendants or the same hash and number of descendants,
+   *         {@code false} otherwise
+   */
+  private boolean isSameSubtree(final @Nonnull IStructNode pNewNode,
+    final @Nonnull IStructNode pOldNode) {
+    if (mChanged.isPresent()) {
+      return pNewNode.getNodeKey() == pOldNode.getNodeKey()
+        && !mChanged.get().contains(pNewNode.getNodeKey());
+    }
+    return mSkip && pNewNode.getNodeKey() == pOldNode.getNodeKey()
+      && pNewNode.getHash() == pOldNode.getHash()
+      && pNewNode.getDescendantCount() == pOldNode.getDescendantCount();
+  }
+
+  /**
+   * Check if nodes are equal excluding subtrees.
+   * 
+   * @param pNewRtx
+   *          {@link INodeReadTrx} on new revision
+   * @param pOldRtx
+   *          {@link INodeReadTrx} on old revision
+   * @return {@code true} if nodes are "equal", otherwise {@code false}
+   */
+  private boolean checkNodes(final @Nonnull INodeReadTrx pNewRtx,
+    final @Nonnull INodeReadTrx pOldRtx) {
+    if (pNewRtx.getNode().getKind() != pOldRtx.getNode().getKind()) {
+      return false;
+    }
+    switch (pNewRtx.getNode().getKind()) {
+    case ELEMENT:
+      final ElementNode newElement = (ElementNode)pNewRtx.getNode();
+      final ElementNode oldElement = (ElementNode)pOldRtx.getNode();
+      return newElement.getNameKey() == oldElement.getNameKey()
+        && (!mFull || (newElement.getAttributeKeys().equals(
+          oldElement.getAttributeKeys()) && newElement.getNamespaceKeys()
+          .equals(oldElement.getNamespaceKeys())));
+    case TEXT:
+    case COMMENT:
+    case PROCESSING:
+      return pNewRtx.getValueOfCurrentNode().equals(
+        pOldRtx.getValueOfCurrentNode());
+    default:
+      return true;
+    }
+  }
+
+  /**
+   * Get the node keys of the children of the node the transaction is located
+   * at.
+   * 
+   * @param pRtx
+   *          {@link INodeReadTrx} instance
+   * @return node keys of the children
+   */
+  private static List<Long> children(final @Nonnull INodeReadTrx pRtx) {
+    final long parentKey = pRtx.getNode().getNodeKey();
+    final List<Long> keys =
+      new ArrayList<>((int)pRtx.getStructuralNode().getChildCount());
+    if (pRtx.moveToFirstChild()) {
+      do {
+        keys.add(pRtx.getNode().getNodeKey());
+      } while (pRtx.moveToRightSibling());
+    }
+    pRtx.moveTo(parentKey);
+    return keys;
+  }
+
+  /**
+   * Buffered difference or a task, which computes the differences of a
+   * subtree.
+   */
+  private static final class Event {
+
+    /** Kind of difference. */
+    private final EDiff mDiff;
+
+    /** Node in the new revision. */
+    private final IStructNode mNewNode;
+
+    /** Node in the old revision. */
+    private final IStructNode mOldNode;
+
+    /** Depth of the nodes. */
+    private final DiffDepth mDepth;
+
+    /** Task, which computes the differences of a subtree. */
+    private final Task mTask;
+
+    /**
+     * Constructor.
+     * 
+     * @param pDiff
+     *          kind of difference
+     * @param pNewNode
+     *          node in the new revision
+     * @param pOldNode
+     *          node in the old revision
+     * @param pDepth
+     *          depth of the nodes
+     */
+    private Event(final @Nonnull EDiff pDiff,
+      final @Nonnull IStructNode pNewNode,
+      final @Nonnull IStructNode pOldNode, final @Nonnull DiffDepth pDepth) {
+      mDiff = pDiff;
+      mNewNode = pNewNode;
+      mOldNode = pOldNode;
+      mDepth = pDepth;
+      mTask = null;
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param pTask
+     *          task, which computes the differences of a subtree
+     */
+    private Event(final @Nonnull Task pTask) {
+      mDiff = null;
+      mNewNode = null;
+      mOldNode = null;
+      mDepth = null;
+      mTask = pTask;
+    }
+  }
+
+  /**
+   * Compares the subtrees the transactions are located at.
+   */
+  private final class Task extends RecursiveTask<List<Event>> {
+
+    /** Generated serial version UID. */
+    private static final long serialVersionUID = 4437466473373939428L;
+
+    /** {@link INodeReadTrx} on new revision. */
+    private final INodeReadTrx mNewRtx;
+
+    /** {@link INodeReadTrx} on old revision. */
+    private final INodeReadTrx mOldRtx;
+
+    /** Depth of the node in the new revision. */
+    private final int mNewDepth;
+
+    /** Depth of the node in the old revision. */
+    private final int mOldDepth;
+
+    /** Determines if the transactions are closed afterwards. */
+    private final boolean mClose;
+
+    /**
+     * Constructor.
+     * 
+     * @param pNewRtx
+     *          {@link INodeReadTrx} on new revision
+     * @param pOldRtx
+     *          {@link INodeReadTrx} on old revision
+     * @param pNewDepth
+     *          depth of the node in the new revision
+     * @param pOldDepth
+     *          depth of the node in the old revision
+     * @param pClose
+     *          determines if the transactions are closed afterwards
+     */
+    private Task(final @Nonnull INodeReadTrx pNewRtx,
+      final @Nonnull INodeReadTrx pOldRtx, final @Nonnegative int pNewDepth,
+      final @Nonnegative int pOldDepth, final boolean pClose) {
+      mNewRtx = pNewRtx;
+      mOldRtx = pOldRtx;
+      mNewDepth = pNewDepth;
+      mOldDepth = pOldDepth;
+      mClose = pClose;
+    }
+
+    @Override
+    protected List<Event> compute() {
+      try {
+        final List<Event> events = new ArrayList<>();
+        if (mNewRtx.getNode().getNodeKey() == mOldRtx.getNode().getNodeKey()) {
+          compare(mNewRtx, mOldRtx, mNewDepth, mOldDepth, events);
+        } else {
+          subtree(EDiff.REPLACEDOLD, mNewRtx, mOldRtx, mNewDepth, mOldDepth,
+            events);
+          subtree(EDiff.REPLACEDNEW, mNewRtx, mOldRtx, mNewDepth, mOldDepth,
+            events);
+        }
+        return events;
+      } finally {
+        if (mClose) {
+          try {
+            mNewRtx.close();
+            mOldRtx.close();
+          } catch (final SirixException e) {
+            throw new IllegalStateException(e);
+          }
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,404 @@
+/**
+ * Copyright (c) 2011, University of Konstanz, Distributed Systems Group
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the University of Konstanz nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sirix.index.bulk;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.sirix.exception.SirixIOException;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.primitives.Longs;
+import com.google.common.primitives.UnsignedBytes;
+
+/**
+ * <h1>ExternalSorter</h1>
+ * 
+ * <p>
+ * Sorts the (key, node key) pairs, which are extracted for a bulk index build,
+ * with a bounded amount of main memory. The pairs are collected in a buffer of
+ * the run size, which is sorted and spilled to a temporary file (a run),
+ * whenever it is full. Afterwards the runs of one or more sorters, for
+ * instance of each scanning thread, are merged into a single stream ordered by
+ * the unsigned lexicographic order of the keys (the order of the index) and
+ * the node keys. A sorter must be used by a single thread.
+ * </p>
+ * 
+ * @author Johannes Lichtenberger, University of Konstanz
+ * 
+ */
+public final class ExternalSorter implements AutoCloseable {
+
+	/** Size of the I/O buffers of the runs. */
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	/** Directory of the runs. */
+	private final File mDirectory;
+
+	/** Maximum number of entries, which are sorted in main memory. */
+	private final int mRunSize;
+
+	/** Entries, which haven't been spilled. */
+	private final List<Entry> mBuffer;
+
+	/** Spilled runs. */
+	private final List<File> mRuns;
+
+	/** Number of entries. */
+	private long mSize;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param pDirectory
+	 *          directory of the temporary files
+	 * @param pRunSize
+	 *          maximum number of entries, which are sorted in main memory
+	 */
+	public ExternalSorter(final @Nonnull File pDirectory,
+			final @Nonnegative int pRunSize) {
+		checkArgument(pRunSize > 0, "pRunSize must be > 0!");
+		mDirectory = checkNotNull(pDirectory);
+		mRunSize = pRunSize;
+		mBuffer = new ArrayList<>(Math.min(pRunSize, 1 << 12));
+		mRuns = new ArrayList<>();
+	}
+
+	/**
+	 * Add an entry.
+	 * 
+	 * @param pKey
+	 *          the key
+	 * @param pNodeKey
+	 *          key of the indexed node
+	 * @param pRefKey
+	 *          key of a node, which is referenced by the entry, for instance
+	 *          the path node
+	 * @throws SirixIOException
+	 *           if spilling the run fails
+	 */
+	public void add(final @Nonnull byte[] pKey, final long pNodeKey,
+			final long pRefKey) throws SirixIOException {
+		mBuffer.add(new Entry(checkNotNull(pKey), pNodeKey, pRefKey));
+		mSize++;
+		if (mBuffer.size() == mRunSize) {
+			spill();
+		}
+	}
+
+	/**
+	 * Get the number of entries.
+	 * 
+	 * @return number of entries
+	 */
+	public long size() {
+		return mSize;
+	}
+
+	/**
+	 * Get the number of runs, which have been spilled so far.
+	 * 
+	 * @return number of runs
+	 */
+	public int getRunCount() {
+		return mRuns.size();
+	}
+
+	/**
+	 * Merge the entries of the sorters. The sorters must not be modified
+	 * afterwards.
+	 * 
+	 * @param pSorters
+	 *          the sorters
+	 * @return iterator over the entries in ascending order, which throws an
+	 *         {@link IllegalStateException} if reading a run fails
+	 * @throws SirixIOException
+	 *           if a run can't be opened
+	 */
+	public static Iterator<Entry> merge(
+			final @Nonnull Iterable<ExternalSorter> pSorters)
+			throws SirixIOException {
+		final List<Iterator<Entry>> runs = new ArrayList<>();
+		for (final ExternalSorter sorter : pSorters) {
+			Collections.sort(sorter.mBuffer);
+			runs.add(sorter.mBuffer.iterator());
+			for (final File run : sorter.mRuns) {
+				runs.add(new RunIterator(run));
+			}
+		}
+		return runs.size() == 1 ? runs.get(0) : new MergeIterator(runs);
+	}
+
+	/**
+	 * Delete the runs.
+	 */
+	@Override
+	public void close() {
+		mBuffer.clear();
+		for (final File run : mRuns) {
+			run.delete();
+		}
+		mRuns.clear();
+	}
+
+	/**
+	 * Sort the buffer and write it as a new run.
+	 * 
+	 * @throws SirixIOException
+	 *           if writing the run fails
+	 */
+	private void spill() throws SirixIOException {
+		Collections.sort(mBuffer);
+		try {
+			final File run = File.createTempFile("sort", ".run", mDirectory);
+			mRuns.add(run);
+			try (final DataOutputStream out = new DataOutputStream(
+					new BufferedOutputStream(new FileOutputStream(run), BUFFER_SIZE))) {
+				for (final Entry entry : mBuffer) {
+					out.writeInt(entry.mKey.length);
+					out.write(entry.mKey);
+					out.writeLong(entry.mNodeKey);
+					out.writeLong(entry.mRefKey);
+				}
+			}
+		} catch (final IOException e) {
+			throw new SirixIOException(e);
+		}
+		mBuffer.clear();
+	}
+
+	/**
+	 * An entry, ordered by key and node key.
+	 */
+	public static final class Entry implements Comparable<Entry> {
+
+		/** The key. */
+		private final byte[] mKey;
+
+		/** Key of the indexed node. */
+		private final long mNodeKey;
+
+		/** Key of a node, which is referenced by the entry. */
+		private final long mRefKey;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param pKey
+		 *          the key
+		 * @param pNodeKey
+		 *          key of the indexed node
+		 * @param pRefKey
+		 *          key of a node, which is referenced by the entry
+		 */
+		private Entry(final @Nonnull byte[] pKey, final long pNodeKey,
+				final long pRefKey) {
+			mKey = pKey;
+			mNodeKey = pNodeKey;
+			mRefKey = pRefKey;
+		}
+
+		/**
+		 * Get the key.
+		 * 
+		 * @return the key, which must not be modified
+		 */
+		public byte[] getKey() {
+			return mKey;
+		}
+
+		/**
+		 * Get the key of the indexed node.
+		 * 
+		 * @return the node key
+		 */
+		public long getNodeKey() {
+			return mNodeKey;
+		}
+
+		/**
+		 * Get the key of a node, which is referenced by the entry, for instance
+		 * the path node.
+		 * 
+		 * @return the referenced node key
+		 */
+		public long getRefKey() {
+			return mRefKey;
+		}
+
+		@Override
+		public int compareTo(final @Nullable Entry pOther) {
+			final int result = UnsignedBytes.lexicographicalComparator().compare(
+					mKey, pOther.mKey);
+			return result == 0 ? Longs.compare(mNodeKey, pOther.mNodeKey) : result;
+		}
+	}
+
+	/**
+	 * Reads the entries of a run.
+	 */
+	private static final class RunIterator extends AbstractIterator<Entry> {
+
+		/** Input of the run. */
+		private final DataInputStream mIn;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param pRun
+		 *          the run
+		 * @throws SirixIOException
+		 *           if the run can't be opened
+		 */
+		private RunIterator(final @Nonnull File pRun) throws SirixIOException {
+			try {
+				mIn = new DataInputStream(new BufferedInputStream(new FileInputStream(
+						pRun), BUFFER_SIZE));
+			} catch (final IOException e) {
+				throw new SirixIOException(e);
+			}
+		}
+
+		@Override
+		protected Entry computeNext() {
+			try {
+				final int length;
+				try {
+					length = mIn.readInt();
+				} catch (final EOFException e) {
+					mIn.close();
+					return endOfData();
+				}
+				final byte[] key = new byte[length];
+				mIn.readFully(key);
+				return new Entry(key, mIn.readLong(), mIn.readLong());
+			} catch (final IOException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+
+	/**
+	 * K-way merge of sorted iterators.
+	 */
+	private static final class MergeIterator implements Iterator<Entry> {
+
+		/** Heads of the iterators, which are not exhausted. */
+		private final PriorityQueue<Head> mHeads;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param pIterators
+		 *          the sorted iterators
+		 */
+		private MergeIterator(final @Nonnull List<Iterator<Entry>> pIterators) {
+			mHeads = new PriorityQueue<>(Math.max(1, pIterators.size()));
+			for (final Iterator<Entry> iterator : pIterators) {
+				if (iterator.hasNext()) {
+					mHeads.add(new Head(iterator.next(), iterator));
+				}
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return !mHeads.isEmpty();
+		}
+
+		@Override
+		public Entry next() {
+			final Head head = mHeads.poll();
+			if (head == null) {
+				throw new NoSuchElementException();
+			}
+			final Entry entry = head.mEntry;
+			if (head.mIterator.hasNext()) {
+				head.mEntry = head.mIterator.next();
+				mHeads.add(head);
+			}
+			return entry;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	/**
+	 * Current entry of an iterator, which is merged.
+	 */
+	private static final class Head implements Comparable<Head> {
+
+		/** Current entry. */
+		private Entry mEntry;
+
+		/** The iterator. */
+		private final Iterator<Entry> mIterator;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param pEntry
+		 *          current entry
+		 * @param pIterator
+		 *          the iterator
+		 */
+		private Head(final @Nonnull Entry pEntry,
+				final @Nonnull Iterator<Entry> pIterator) {
+			mEntry = pEntry;
+			mIterator = pIterator;
+		}
+
+		@Override
+		public int compareTo(final @Nullable Head pOther) {
+			return mEntry.compareTo(pOther.mEntry);
+		}
+	}
+}
@@ -0,0 +1,62 @@
+/**
+ * Copyright (c) 2011, University of Konstanz, Distributed Systems Group
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the University of Konstanz nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sirix.index.bulk;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+
+/**
+ * Interface for observers, which are listening for the progress of a bulk
+ * index build. The methods might be called from the scanning threads, but
+ * never concurrently.
+ * 
+ * @author Johannes Lichtenberger, University of Konstanz
+ * 
+ */
+public interface IIndexBuildObserver {
+	/**
+	 * Called whenever a phase makes progress.
+	 * 
+	 * @param pPhase
+	 *          the {@link EIndexBuildPhase}
+	 * @param pDone
+	 *          units of work done so far in the phase
+	 * @param pTotal
+	 *          total units of work of the phase
+	 */
+	void progress(@Nonnull final EIndexBuildPhase pPhase,
+			@Nonnegative final long pDone, @Nonnegative final long pTotal);
+
+	/**
+	 * Signals that the indexes have been built.
+	 * 
+	 * @param pRevision
+	 *          the revision, which contains the indexes
+	 */
+	void buildDone(@Nonnegative final int pRevision);
+}
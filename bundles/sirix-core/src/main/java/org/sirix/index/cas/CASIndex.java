@@ -0,0 +1,381 @@
+/**
+ * Copyright (c) 2011, University of Konstanz, Distributed Systems Group
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the University of Konstanz nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sirix.index.cas;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.sirix.api.IPageReadTrx;
+import org.sirix.api.IPageWriteTrx;
+import org.sirix.api.ISession;
+import org.sirix.exception.SirixIOException;
+import org.sirix.index.path.PathSummary;
+import org.sirix.index.value.BPlusTree;
+import org.sirix.node.Postings;
+import org.sirix.node.TextReferences;
+import org.sirix.node.TextValue;
+import org.sirix.page.EPage;
+import org.sirix.service.xml.xpath.types.Type;
+
+import com.google.common.base.Optional;
+
+/**
+ * <h1>CASIndex</h1>
+ * 
+ * <p>
+ * Content and structure (CAS) index, which maps typed values of the nodes on
+ * the path classes matching a {@link CASIndexDefinition} to the keys of the
+ * nodes. The keys are ordered by path class and value (see {@link CASKeys}),
+ * thus range predicates such as {@code price > 100} are answered by a range
+ * scan per path class. The entries are stored in a {@link BPlusTree} in the
+ * {@code CASPAGE} node pages, which is versioned just like the value index. The
+ * index is maintained by the node write transaction, whenever an indexed
+ * value or the path class of an indexed node changes.
+ * </p>
+ * 
+ * @author Johannes Lichtenberger, University of Konstanz
+ * 
+ */
+public final class CASIndex {
+
+	/** Page transaction to read (and write) the entries. */
+	private final IPageReadTrx mPageTrx;
+
+	/** The tree, which stores the entries. */
+	private final BPlusTree mTree;
+
+	/** The index definitions. */
+	private final List<CASIndexDefinition> mDefinitions;
+
+	/** Types of the index definitions. */
+	private final Set<Type> mTypes;
+
+	/** Path summary to match the definitions. */
+	private final PathSummary mPathSummary;
+
+	/**
+	 * Private constructor.
+	 * 
+	 * @param pPageTrx
+	 *          page transaction to read (and write) the entries
+	 * @param pSession
+	 *          {@link ISession} reference
+	 */
+	private CASIndex(final @Nonnull IPageReadTrx pPageTrx,
+			final @Nonnull ISession pSession) {
+		mPageTrx = checkNotNull(pPageTrx);
+		mDefinitions = pSession.getResourceConfig().mCASIndexes;
+		mTypes = EnumSet.noneOf(Type.class);
+		for (final CASIndexDefinition definition : mDefinitions) {
+			mTypes.add(definition.getType());
+		}
+		mTree = BPlusTree.getInstance(pPageTrx, EPage.CASPAGE);
+		mPathSummary = PathSummary.getInstance(pPageTrx, pSession);
+	}
+
+	/**
+	 * Get a new instance. Modifications are only permitted if the page
+	 * transaction is an {@link IPageWriteTrx}.
+	 * 
+	 * @param pPageTrx
+	 *          page transaction to read (and write) the entries
+	 * @param pSession
+	 *          {@link ISession} reference, which provides the definitions
+	 * @return new CAS index instance
+	 */
+	public static CASIndex getInstance(final @Nonnull IPageReadTrx pPageTrx,
+			final @Nonnull ISession pSession) {
+		return new CASIndex(pPageTrx, checkNotNull(pSession));
+	}
+
+	/**
+	 * Get the index definitions.
+	 * 
+	 * @return the definitions
+	 */
+	public List<CASIndexDefinition> getDefinitions() {
+		return mDefinitions;
+	}
+
+	/**
+	 * Get the definitions, which index the nodes of a path class.
+	 * 
+	 * @param pPathNodeKey
+	 *          key of the path node
+	 * @return the definitions
+	 */
+	public List<CASIndexDefinition> getDefinitions(
+			final @Nonnegative long pPathNodeKey) {
+		List<CASIndexDefinition> definitions = Collections.emptyList();
+		for (final CASIndexDefinition definition : mDefinitions) {
+			if (definition.matches(mPathSummary, pPathNodeKey)) {
+				if (definitions.isEmpty()) {
+					definitions = new ArrayList<>(1);
+				}
+				definitions.add(definition);
+			}
+		}
+		return definitions;
+	}
+
+	/**
+	 * Determines if a type is indexed for all of the given path classes.
+	 * 
+	 * @param pPathNodeKeys
+	 *          keys of the path nodes
+	 * @param pType
+	 *          the type
+	 * @return {@code true}, if the nodes of each path class are indexed with the
+	 *         type, {@code false} otherwise
+	 */
+	public boolean covers(final @Nonnull Iterable<Long> pPathNodeKeys,
+			final @Nonnull Type pType) {
+		checkNotNull(pType);
+		if (!mTypes.contains(pType)) {
+			return false;
+		}
+		for (final long pathNodeKey : pPathNodeKeys) {
+			boolean covered = false;
+			for (final CASIndexDefinition definition : getDefinitions(pathNodeKey)) {
+				covered |= definition.getType() == pType;
+			}
+			if (!covered) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Index the value of a node with the types of all definitions, which match
+	 * its path class.
+	 * 
+	 * @param pPathNodeKey
+	 *          key of the path node, that is of the element with the text value
+	 *          or the attribute
+	 * @param pValue
+	 *          the value
+	 * @param pNodeKey
+	 *          key of the node with the value
+	 * @throws SirixIOException
+	 *           if an I/O error occurs
+	 * @throws IllegalStateException
+	 *           if the index has been opened for reading only
+	 */
+	public void index(final @Nonnegative long pPathNodeKey,
+			final @Nonnull String pValue, final @Nonnegative long pNodeKey)
+			throws SirixIOException {
+		checkNotNull(pValue);
+		checkArgument(pNodeKey >= 0, "pNodeKey must be >= 0!");
+		final Set<Type> types = EnumSet.noneOf(Type.class);
+		for (final CASIndexDefinition definition : getDefinitions(pPathNodeKey)) {
+			types.add(definition.getType());
+		}
+		for (final Type type : types) {
+			final Optional<Long> value = CASKeys.cast(type, pValue);
+			if (value.isPresent()) {
+				final TextValue key = new TextValue(CASKeys.toKey(pPathNodeKey, type,
+						value.get()), pNodeKey, pPathNodeKey);
+				final Optional<TextReferences> references = mTree.get(key);
+				if (!references.isPresent()
+						|| !references.get().getPostings().contains(pNodeKey)) {
+					final Postings nodeKeys = new Postings();
+					nodeKeys.add(pNodeKey);
+					// Copy, as the references of the read node must not be modified.
+					mTree.index(key, new TextReferences(references.isPresent() ? Postings
+							.union(references.get().getPostings(), nodeKeys) : nodeKeys,
+							pNodeKey));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Get the key of a value, for instance to bulk load the index.
+	 * 
+	 * @param pPathNodeKey
+	 *          key of the path node
+	 * @param pType
+	 *          the type of the index definition
+	 * @param pValue
+	 *          the value
+	 * @return the key, if the value can be cast to the type
+	 */
+	public static Optional<byte[]> getKey(final @Nonnegative long pPathNodeKey,
+			final @Nonnull Type pType, final @Nonnull String pValue) {
+		final Optional<Long> value = CASKeys.cast(checkNotNull(pType),
+				checkNotNull(pValue));
+		return value.isPresent() ? Optional.of(CASKeys.toKey(pPathNodeKey, pType,
+				value.get())) : Optional.<byte[]> absent();
+	}
+
+	/**
+	 * Remove the value of a node. Tries all types of the definitions, such that
+	 * the path class doesn't need to match any longer.
+	 * 
+	 * @param pPathNodeKey
+	 *          key of the path node, under which the value has been indexed
+	 * @param pValue
+	 *          the indexed value
+	 * @param pNodeKey
+	 *          key of the node with the value
+	 * @throws SirixIOException
+	 *           if an I/O error occurs
+	 * @throws IllegalStateException
+	 *           if the index has been opened for reading only
+	 */
+	public void remove(final @Nonnegative long pPathNodeKey,
+			final @Nonnull String pValue, final @Nonnegative long pNodeKey)
+			throws SirixIOException {
+		checkNotNull(pValue);
+		for (final Type type : mTypes) {
+			final Optional<Long> value = CASKeys.cast(type, pValue);
+			if (value.isPresent()) {
+				final TextValue key = new TextValue(CASKeys.toKey(pPathNodeKey, type,
+						value.get()), pNodeKey, pPathNodeKey);
+				final Optional<TextReferences> references = mTree.get(key);
+				if (references.isPresent()
+						&& references.get().getPostings().contains(pNodeKey)) {
+					final Postings nodeKeys = Postings.union(references.get()
+							.getPostings(), new Postings());
+					nodeKeys.remove(pNodeKey);
+					mTree.index(key, new TextReferences(nodeKeys, pNodeKey));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Range scan on a path class. The nodes are returned in ascending node key
+	 * order.
+	 * 
+	 * @param pPathNodeKey
+	 *          key of the path node
+	 * @param pType
+	 *          the type of the index definition
+	 * @param pFrom
+	 *          lower bound or {@code null} if unbounded
+	 * @param pFromInclusive
+	 *          determines if the lower bound is inclusive
+	 * @param pTo
+	 *          upper bound or {@code null} if unbounded
+	 * @param pToInclusive
+	 *          determines if the upper bound is inclusive
+	 * @return keys of the nodes, whose value is in the range
+	 * @throws SirixIOException
+	 *           if an I/O error occurs
+	 * @throws IllegalArgumentException
+	 *           if a bound can't be cast to the type
+	 */
+	public Postings range(final @Nonnegative long pPathNodeKey,
+			final @Nonnull Type pType, final @Nullable String pFrom,
+			final boolean pFromInclusive, final @Nullable String pTo,
+			final boolean pToInclusive) throws SirixIOException {
+		return range(Collections.singleton(pPathNodeKey), pType, pFrom,
+				pFromInclusive, pTo, pToInclusive);
+	}
+
+	/**
+	 * Range scan on several path classes, for instance all path classes
+	 * matching a location path with a descendant step. The nodes are returned in
+	 * ascending node key order.
+	 * 
+	 * @param pPathNodeKeys
+	 *          keys of the path nodes
+	 * @param pType
+	 *          the type of the index definition
+	 * @param pFrom
+	 *          lower bound or {@code null} if unbounded
+	 * @param pFromInclusive
+	 *          determines if the lower bound is inclusive
+	 * @param pTo
+	 *          upper bound or {@code null} if unbounded
+	 * @param pToInclusive
+	 *          determines if the upper bound is inclusive
+	 * @return keys of the nodes, whose value is in the range
+	 * @throws SirixIOException
+	 *           if an I/O error occurs
+	 * @throws IllegalArgumentException
+	 *           if a bound can't be cast to the type
+	 */
+	public Postings range(final @Nonnull Iterable<Long> pPathNodeKeys,
+			final @Nonnull Type pType, final @Nullable String pFrom,
+			final boolean pFromInclusive, final @Nullable String pTo,
+			final boolean pToInclusive) throws SirixIOException {
+		checkNotNull(pPathNodeKeys);
+		checkArgument(CASKeys.isSupported(pType), "Type %s is not supported!",
+				pType.getStringRepr());
+		final Postings result = new Postings();
+		final CASKeys.Bound from = pFrom == null ? new CASKeys.Bound(
+				Long.MIN_VALUE, true) : CASKeys.lower(pType, pFrom, pFromInclusive)
+				.orNull();
+		final CASKeys.Bound to = pTo == null ? new CASKeys.Bound(Long.MAX_VALUE,
+				true) : CASKeys.upper(pType, pTo, pToInclusive).orNull();
+		if (from == null || to == null) {
+			return result;
+		}
+		for (final long pathNodeKey : pPathNodeKeys) {
+			for (final Iterator<Map.Entry<TextValue, TextReferences>> entries = mTree
+					.range(
+							new TextValue(CASKeys.toKey(pathNodeKey, pType, from.mValue), 0,
+									pathNodeKey),
+							from.mInclusive,
+							new TextValue(CASKeys.toKey(pathNodeKey, pType, to.mValue), 0,
+									pathNodeKey), to.mInclusive); entries.hasNext();) {
+				for (final Postings.Cursor cursor = entries.next().getValue()
+						.getPostings().cursor(); cursor.next();) {
+					result.add(cursor.key());
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Close the index and the underlying page transaction. Must not be called
+	 * on an index, which shares the page transaction of a node transaction.
+	 * 
+	 * @throws SirixIOException
+	 *           if closing the page transaction fails
+	 */
+	public void close() throws SirixIOException {
+		mPageTrx.close();
+	}
+}
@@ -0,0 +1,241 @@
+/**
+ * Copyright (c) 2011, University of Konstanz, Distributed Systems Group
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the University of Konstanz nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sirix.index.cas;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.sirix.index.path.PathNode;
+import org.sirix.index.path.PathSummary;
+import org.sirix.node.EKind;
+import org.sirix.service.xml.xpath.types.Type;
+
+import com.google.common.base.Objects;
+
+/**
+ * <h1>CASIndexDefinition</h1>
+ * 
+ * <p>
+ * Declares a content and structure (CAS) index, that is the path pattern of
+ * the indexed nodes and the type, to which their values are cast. The pattern
+ * consists of name steps, which are separated by {@code /} or {@code //}, for
+ * instance {@code //item/price} or {@code /site//item/@id}. A step may be the
+ * wildcard {@code *}, the last step may select an attribute. Elements are
+ * indexed by the values of their text children, attributes by their own
+ * value. Values, which can't be cast to the type, are not indexed.
+ * </p>
+ * 
+ * @author Johannes Lichtenberger, University of Konstanz
+ * 
+ */
+public final class CASIndexDefinition {
+
+	/** Wildcard name test. */
+	private static final String WILDCARD = "*";
+
+	/** The path pattern. */
+	private final String mPath;
+
+	/** The type of the keys. */
+	private final Type mType;
+
+	/** Names of the steps. */
+	private final List<String> mNames;
+
+	/** Determines for each step if it is a descendant step. */
+	private final List<Boolean> mDescendant;
+
+	/** Determines if the last step selects an attribute. */
+	private final boolean mAttribute;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param pPath
+	 *          the path pattern
+	 * @param pType
+	 *          the type of the keys, one of {@code xs:double},
+	 *          {@code xs:integer} or {@code xs:dateTime}
+	 * @throws IllegalArgumentException
+	 *           if the pattern is malformed or the type is not supported
+	 */
+	public CASIndexDefinition(final @Nonnull String pPath,
+			final @Nonnull Type pType) {
+		mPath = checkNotNull(pPath).trim();
+		mType = checkNotNull(pType);
+		checkArgument(CASKeys.isSupported(pType), "Type %s is not supported!",
+				pType.getStringRepr());
+		mNames = new ArrayList<>();
+		mDescendant = new ArrayList<>();
+		checkArgument(mPath.startsWith("/"), "The path must be absolute: %s",
+				mPath);
+		boolean attribute = false;
+		int pos = 0;
+		while (pos < mPath.length()) {
+			checkArgument(!attribute,
+					"Only the last step may select an attribute: %s", mPath);
+			final boolean descendant = mPath.startsWith("//", pos);
+			pos += descendant ? 2 : 1;
+			int end = mPath.indexOf('/', pos);
+			if (end == -1) {
+				end = mPath.length();
+			}
+			String name = mPath.substring(pos, end);
+			if (name.startsWith("@")) {
+				attribute = true;
+				name = name.substring(1);
+			}
+			checkArgument(!name.isEmpty() && name.indexOf('@') == -1
+					&& name.indexOf('[') == -1, "Malformed step in path: %s", mPath);
+			mNames.add(name);
+			mDescendant.add(descendant);
+			pos = end;
+		}
+		mAttribute = attribute;
+	}
+
+	/**
+	 * Get the path pattern.
+	 * 
+	 * @return the path pattern
+	 */
+	public String getPath() {
+		return mPath;
+	}
+
+	/**
+	 * Get the type of the keys.
+	 * 
+	 * @return the type
+	 */
+	public Type getType() {
+		return mType;
+	}
+
+	/**
+	 * Determines if the indexed nodes are attributes.
+	 * 
+	 * @return {@code true}, if attributes are indexed, {@code false} if elements
+	 *         are indexed
+	 */
+	public boolean isAttribute() {
+		return mAttribute;
+	}
+
+	/**
+	 * Determines if the nodes of a path class are indexed. The path summary is
+	 * moved.
+	 * 
+	 * @param pSummary
+	 *          the path summary
+	 * @param pPathNodeKey
+	 *          key of the path node
+	 * @return {@code true}, if the pattern matches the path, {@code false}
+	 *         otherwise
+	 */
+	public boolean matches(final @Nonnull PathSummary pSummary,
+			final @Nonnegative long pPathNodeKey) {
+		if (!pSummary.moveTo(pPathNodeKey) || pSummary.getPathNode() == null
+				|| pSummary.getPathNode().getPathKind() != (mAttribute ? EKind.ATTRIBUTE
+						: EKind.ELEMENT)) {
+			return false;
+		}
+
+		// Names from the path node up to the document root.
+		final List<String> path = new ArrayList<>();
+		do {
+			final PathNode node = pSummary.getPathNode();
+			path.add(pSummary.nameForKey(node.getNameKey()));
+		} while (pSummary.moveToParent() && pSummary.getPathNode() != null);
+
+		// matched[j] determines if the steps so far match the path up to the
+		// (j+1)-th name from the root, with the current step on that name.
+		final int length = path.size();
+		boolean[] matched = null;
+		for (int i = 0; i < mNames.size(); i++) {
+			final boolean[] next = new boolean[length];
+			boolean reachable = false;
+			for (int j = 0; j < length; j++) {
+				final boolean parentMatched;
+				if (i == 0) {
+					parentMatched = mDescendant.get(0) || j == 0;
+				} else if (mDescendant.get(i)) {
+					reachable |= j > 0 && matched[j - 1];
+					parentMatched = reachable;
+				} else {
+					parentMatched = j > 0 && matched[j - 1];
+				}
+				next[j] = parentMatched && nameMatches(i, path.get(length - 1 - j));
+			}
+			matched = next;
+		}
+		return matched[length - 1];
+	}
+
+	/**
+	 * Determines if the name test of a step matches a name.
+	 * 
+	 * @param pStep
+	 *          index of the step
+	 * @param pName
+	 *          the name
+	 * @return {@code true}, if the name matches, {@code false} otherwise
+	 */
+	private boolean nameMatches(final @Nonnegative int pStep,
+			final @Nullable String pName) {
+		final String name = mNames.get(pStep);
+		return WILDCARD.equals(name) || name.equals(pName);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hashCode(mPath, mType);
+	}
+
+	@Override
+	public boolean equals(final @Nullable Object pObj) {
+		if (pObj instanceof CASIndexDefinition) {
+			final CASIndexDefinition other = (CASIndexDefinition) pObj;
+			return mPath.equals(other.mPath) && mType == other.mType;
+		}
+		return false;
+	}
+
+	@Override
+	public String toString() {
+		return new StringBuilder(mPath).append(" as ")
+				.append(mType.getStringRepr()).toString();
+	}
+}
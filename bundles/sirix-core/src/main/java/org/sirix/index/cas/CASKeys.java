@@ -0,0 +1,386 @@
+/**
+ * Copyright (c) 2011, University of Konstanz, Distributed Systems Group
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the University of Konstanz nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sirix.index.cas;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.TimeZone;
+import java.util.regex.Pattern;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.xml.datatype.DatatypeConfigurationException;
+import javax.xml.datatype.DatatypeConstants;
+import javax.xml.datatype.DatatypeFactory;
+import javax.xml.datatype.XMLGregorianCalendar;
+
+import org.sirix.service.xml.xpath.types.Type;
+
+import com.google.common.base.Optional;
+
+/**
+ * <h1>CASKeys</h1>
+ * 
+ * <p>
+ * Order preserving encoding of typed values. A value is cast to a
+ * {@code long}, whose signed order is the order of the typed values, that is
+ * the value itself for {@code xs:integer}, the milliseconds since the epoch
+ * (UTC, if no timezone is given) for {@code xs:dateTime} and the IEEE bits with
+ * the magnitude of negative numbers inverted for {@code xs:double}. A key is
+ * the path node key, a type tag and the sign flipped value in big-endian byte
+ * order, thus the unsigned lexicographic order of the keys, which the B+-tree
+ * uses, groups the keys by path class and orders them by value.
+ * </p>
+ * 
+ * @author Johannes Lichtenberger, University of Konstanz
+ * 
+ */
+final class CASKeys {
+
+	/** Lexical space of {@code xs:double} (and its derived types). */
+	private static final Pattern DOUBLE = Pattern
+			.compile("[+-]?((\\d+(\\.\\d*)?)|(\\.\\d+))([eE][+-]?\\d+)?|[+-]?INF|NaN");
+
+	/** Lexical space of {@code xs:integer}. */
+	private static final Pattern INTEGER = Pattern.compile("[+-]?\\d+");
+
+	/** Timezone of {@code xs:dateTime} values without timezone. */
+	private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+	/** Factory to parse {@code xs:dateTime} values. */
+	private static final DatatypeFactory DATATYPE_FACTORY;
+
+	static {
+		try {
+			DATATYPE_FACTORY = DatatypeFactory.newInstance();
+		} catch (final DatatypeConfigurationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	/** Length of a key in bytes. */
+	static final int KEY_LENGTH = 17;
+
+	/**
+	 * Private constructor.
+	 */
+	private CASKeys() {
+		throw new AssertionError("May not be instantiated!");
+	}
+
+	/**
+	 * Determines if values can be indexed with the type.
+	 * 
+	 * @param pType
+	 *          the type
+	 * @return {@code true}, if the type is supported, {@code false} otherwise
+	 */
+	static boolean isSupported(final @Nonnull Type pType) {
+		return pType == Type.DOUBLE || pType == Type.INTEGER
+				|| pType == Type.DATE_TIME;
+	}
+
+	/**
+	 * Cast a value to its order preserving {@code long} representation.
+	 * 
+	 * @param pType
+	 *          the type
+	 * @param pValue
+	 *          the string value
+	 * @return the representation or {@code absent}, if the value can't be cast
+	 *         or is {@code NaN}
+	 */
+	static Optional<Long> cast(final @Nonnull Type pType,
+			final @Nonnull String pValue) {
+		final String value = pValue.trim();
+		try {
+			switch (pType) {
+			case DOUBLE:
+				if (!DOUBLE.matcher(value).matches()) {
+					return Optional.absent();
+				}
+				final double number = parseDouble(value);
+				return Double.isNaN(number) ? Optional.<Long> absent() : Optional
+						.of(sortable(number));
+			case INTEGER:
+				return INTEGER.matcher(value).matches() ? Optional.of(Long
+						.parseLong(value.startsWith("+") ? value.substring(1) : value))
+						: Optional.<Long> absent();
+			case DATE_TIME:
+				final XMLGregorianCalendar calendar = DATATYPE_FACTORY
+						.newXMLGregorianCalendar(value);
+				if (calendar.getXMLSchemaType() != DatatypeConstants.DATETIME) {
+					return Optional.absent();
+				}
+				return Optional.of(calendar.toGregorianCalendar(UTC, null, null)
+						.getTimeInMillis());
+			default:
+				throw new IllegalStateException("Type not supported: " + pType);
+			}
+		} catch (final IllegalArgumentException | IllegalStateException e) {
+			// Includes number format exceptions.
+			return Optional.absent();
+		}
+	}
+
+	/**
+	 * Get the lower bound of a range. A bound of an {@code xs:integer} range is
+	 * rounded to the next integer inside the range.
+	 * 
+	 * @param pType
+	 *          the type
+	 * @param pValue
+	 *          the string value of the bound
+	 * @param pInclusive
+	 *          determines if the bound is inclusive
+	 * @return the bound or {@code absent}, if no value satisfies it
+	 * @throws IllegalArgumentException
+	 *           if the bound can't be cast to the type
+	 */
+	static Optional<Bound> lower(final @Nonnull Type pType,
+			final @Nonnull String pValue, final boolean pInclusive) {
+		return bound(pType, pValue, pInclusive, true);
+	}
+
+	/**
+	 * Get the upper bound of a range. A bound of an {@code xs:integer} range is
+	 * rounded to the next integer inside the range.
+	 * 
+	 * @param pType
+	 *          the type
+	 * @param pValue
+	 *          the string value of the bound
+	 * @param pInclusive
+	 *          determines if the bound is inclusive
+	 * @return the bound or {@code absent}, if no value satisfies it
+	 * @throws IllegalArgumentException
+	 *           if the bound can't be cast to the type
+	 */
+	static Optional<Bound> upper(final @Nonnull Type pType,
+			final @Nonnull String pValue, final boolean pInclusive) {
+		return bound(pType, pValue, pInclusive, false);
+	}
+
+	/**
+	 * Get a bound of a range.
+	 * 
+	 * @param pType
+	 *          the type
+	 * @param pValue
+	 *          the string value of the bound
+	 * @param pInclusive
+	 *          determines if the bound is inclusive
+	 * @param pLower
+	 *          determines if it is the lower bound
+	 * @return the bound or {@code absent}, if no value satisfies it
+	 * @throws IllegalArgumentException
+	 *           if the bound can't be cast to the type
+	 */
+	private static Optional<Bound> bound(final @Nonnull Type pType,
+			final @Nonnull String pValue, final boolean pInclusive,
+			final boolean pLower) {
+		final String value = pValue.trim();
+		if (pType == Type.INTEGER && DOUBLE.matcher(value).matches()) {
+			// Decimal or double bounds of an integer range.
+			final double number = parseDouble(value);
+			if (Double.isNaN(number)) {
+				return Optional.absent();
+			}
+			if (Double.isInfinite(number)) {
+				if ((number > 0) == pLower) {
+					return Optional.absent();
+				}
+				return Optional.of(new Bound(pLower ? Long.MIN_VALUE
+						: Long.MAX_VALUE, true));
+			}
+			final BigDecimal decimal = new BigDecimal(value.startsWith("+") ? value
+					.substring(1) : value);
+			final BigDecimal rounded = decimal.setScale(0,
+					pLower ? RoundingMode.CEILING : RoundingMode.FLOOR);
+			final boolean inclusive = pInclusive || rounded.compareTo(decimal) != 0;
+			if (rounded.compareTo(BigDecimal.valueOf(Long.MAX_VALUE)) > 0) {
+				return pLower ? Optional.<Bound> absent() : Optional.of(new Bound(
+						Long.MAX_VALUE, true));
+			}
+			if (rounded.compareTo(BigDecimal.valueOf(Long.MIN_VALUE)) < 0) {
+				return pLower ? Optional.of(new Bound(Long.MIN_VALUE, true))
+						: Optional.<Bound> absent();
+			}
+			return Optional.of(new Bound(rounded.longValueExact(), inclusive));
+		}
+		if (pType == Type.DOUBLE && value.equals("NaN")) {
+			// No value compares to NaN.
+			return Optional.absent();
+		}
+		final Optional<Long> key = cast(pType, value);
+		if (!key.isPresent()) {
+			throw new IllegalArgumentException(new StringBuilder("Bound ")
+					.append(pValue).append(" can't be cast to ")
+					.append(pType.getStringRepr()).toString());
+		}
+		return Optional.of(new Bound(key.get(), pInclusive));
+	}
+
+	/**
+	 * Get the key of a value.
+	 * 
+	 * @param pPathNodeKey
+	 *          key of the path node
+	 * @param pType
+	 *          the type
+	 * @param pValue
+	 *          the order preserving representation of the value
+	 * @return the key
+	 */
+	static byte[] toKey(final @Nonnegative long pPathNodeKey,
+			final @Nonnull Type pType, final long pValue) {
+		final byte[] key = new byte[KEY_LENGTH];
+		putLong(key, 0, pPathNodeKey);
+		key[8] = tag(pType);
+		putLong(key, 9, pValue ^ Long.MIN_VALUE);
+		return key;
+	}
+
+	/**
+	 * Get the order preserving representation of a key.
+	 * 
+	 * @param pKey
+	 *          the key
+	 * @return the representation
+	 */
+	static long getValue(final @Nonnull byte[] pKey) {
+		long value = 0;
+		for (int i = 9; i < KEY_LENGTH; i++) {
+			value = (value << 8) | (pKey[i] & 0xFF);
+		}
+		return value ^ Long.MIN_VALUE;
+	}
+
+	/**
+	 * Get the {@code double} of an order preserving representation.
+	 * 
+	 * @param pValue
+	 *          the representation
+	 * @return the {@code double} value
+	 */
+	static double toDouble(final long pValue) {
+		return Double.longBitsToDouble(pValue >= 0 ? pValue : pValue
+				^ Long.MAX_VALUE);
+	}
+
+	/**
+	 * Get the order preserving representation of a {@code double}.
+	 * 
+	 * @param pValue
+	 *          the value, which must not be {@code NaN}
+	 * @return the representation
+	 */
+	private static long sortable(final double pValue) {
+		// Normalizes -0.0 to 0.0.
+		final long bits = Double.doubleToLongBits(pValue == 0 ? 0.0 : pValue);
+		return bits >= 0 ? bits : bits ^ Long.MAX_VALUE;
+	}
+
+	/**
+	 * Parse a value of the lexical space of {@code xs:double}.
+	 * 
+	 * @param pValue
+	 *          the value
+	 * @return the {@code double} value
+	 */
+	private static double parseDouble(final @Nonnull String pValue) {
+		if (pValue.endsWith("INF")) {
+			return pValue.startsWith("-") ? Double.NEGATIVE_INFINITY
+					: Double.POSITIVE_INFINITY;
+		}
+		return Double.parseDouble(pValue);
+	}
+
+	/**
+	 * Get the tag of a type, which separates the keys of different types on the
+	 * same path class.
+	 * 
+	 * @param pType
+	 *          the type
+	 * @return the tag
+	 */
+	private static byte tag(final @Nonnull Type pType) {
+		switch (pType) {
+		case DOUBLE:
+			return 0;
+		case INTEGER:
+			return 1;
+		case DATE_TIME:
+			return 2;
+		default:
+			throw new IllegalStateException("Type not supported: " + pType);
+		}
+	}
+
+	/**
+	 * Write a {@code long} in big-endian byte order.
+	 * 
+	 * @param pBytes
+	 *          the destination
+	 * @param pOffset
+	 *          offset of the first byte
+	 * @param pValue
+	 *          the value
+	 */
+	private static void putLong(final @Nonnull byte[] pBytes,
+			final @Nonnegative int pOffset, final long pValue) {
+		for (int i = 0; i < 8; i++) {
+			pBytes[pOffset + i] = (byte) (pValue >>> (56 - 8 * i));
+		}
+	}
+
+	/**
+	 * Bound of a range.
+	 */
+	static final class Bound {
+
+		/** Order preserving representation of the bound. */
+		final long mValue;
+
+		/** Determines if the bound is inclusive. */
+		final boolean mInclusive;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param pValue
+		 *          order preserving representation of the bound
+		 * @param pInclusive
+		 *          determines if the bound is inclusive
+		 */
+		Bound(final long pValue, final boolean pInclusive) {
+			mValue = pValue;
+			mInclusive = pInclusive;
+		}
+	}
+}
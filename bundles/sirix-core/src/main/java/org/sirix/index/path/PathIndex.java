@@ -0,0 +1,221 @@
+/**
+ * Copyright (c) 2011, University of Konstanz, Distributed Systems Group
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the University of Konstanz nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sirix.index.path;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+import com.google.common.base.Optional;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+
+import org.sirix.api.IPageReadTrx;
+import org.sirix.api.IPageWriteTrx;
+import org.sirix.exception.SirixIOException;
+import org.sirix.node.Postings;
+import org.sirix.node.interfaces.INodeBase;
+import org.sirix.page.EPage;
+
+/**
+ * <h1>PathIndex</h1>
+ * 
+ * <p>
+ * Path class index, which maps the key of each {@link PathNode} of the
+ * {@link PathSummary} to the keys of all document nodes on the path. The
+ * {@link PathReferences} are stored in the {@code PATHINDEXPAGE} node pages
+ * and are addressed directly by the path node key, thus a lookup only reads a
+ * single node page and the index is versioned just like the path summary.
+ * The index is maintained by the node write transaction, whenever the path
+ * node key of an element, attribute or namespace changes.
+ * </p>
+ * 
+ * @author Johannes Lichtenberger, University of Konstanz
+ * 
+ */
+public final class PathIndex {
+
+	/** Page transaction to read (and write) the records. */
+	private final IPageReadTrx mPageTrx;
+
+	/**
+	 * Private constructor.
+	 * 
+	 * @param pPageTrx
+	 *          page transaction to read (and write) the records
+	 */
+	private PathIndex(final @Nonnull IPageReadTrx pPageTrx) {
+		mPageTrx = checkNotNull(pPageTrx);
+	}
+
+	/**
+	 * Get a new instance. Modifications are only permitted if the page
+	 * transaction is an {@link IPageWriteTrx}.
+	 * 
+	 * @param pPageTrx
+	 *          page transaction to read (and write) the records
+	 * @return new path index instance
+	 */
+	public static PathIndex getInstance(final @Nonnull IPageReadTrx pPageTrx) {
+		return new PathIndex(pPageTrx);
+	}
+
+	/**
+	 * Get the keys of the document nodes on a path. The returned postings must
+	 * not be modified.
+	 * 
+	 * @param pPathNodeKey
+	 *          key of the path node
+	 * @return the node keys in ascending order, which is document order for
+	 *         nodes inserted in document order
+	 * @throws SirixIOException
+	 *           if an I/O error occurs
+	 */
+	public Postings get(final @Nonnegative long pPathNodeKey)
+			throws SirixIOException {
+		final Optional<PathReferences> references = getReferences(pPathNodeKey);
+		return references.isPresent() ? references.get().getPostings()
+				: new Postings();
+	}
+
+	/**
+	 * Get the keys of the document nodes on any of the given paths, for instance
+	 * all paths matching a location path with a descendant step.
+	 * 
+	 * @param pPathNodeKeys
+	 *          keys of the path nodes
+	 * @return new postings with the node keys in ascending order
+	 * @throws SirixIOException
+	 *           if an I/O error occurs
+	 */
+	public Postings get(final @Nonnull Iterable<Long> pPathNodeKeys)
+			throws SirixIOException {
+		Postings result = new Postings();
+		for (final long pathNodeKey : pPathNodeKeys) {
+			result = Postings.union(result, get(pathNodeKey));
+		}
+		return result;
+	}
+
+	/**
+	 * Add a document node to a path.
+	 * 
+	 * @param pPathNodeKey
+	 *          key of the path node
+	 * @param pNodeKey
+	 *          key of the document node
+	 * @throws SirixIOException
+	 *           if an I/O error occurs
+	 * @throws IllegalStateException
+	 *           if the index has been opened for reading only
+	 */
+	public void index(final @Nonnegative long pPathNodeKey,
+			final @Nonnegative long pNodeKey) throws SirixIOException {
+		checkArgument(pNodeKey >= 0, "pNodeKey must be >= 0!");
+		final IPageWriteTrx pageTrx = getPageWriteTrx();
+		if (getReferences(pPathNodeKey).isPresent()) {
+			final PathReferences references = (PathReferences) pageTrx
+					.prepareNodeForModification(pPathNodeKey, EPage.PATHINDEXPAGE);
+			references.getPostings().add(pNodeKey);
+			pageTrx.finishNodeModification(references, EPage.PATHINDEXPAGE);
+		} else {
+			final Postings nodeKeys = new Postings();
+			nodeKeys.add(pNodeKey);
+			pageTrx.createNode(new PathReferences(pPathNodeKey, nodeKeys),
+					EPage.PATHINDEXPAGE);
+		}
+	}
+
+	/**
+	 * Remove a document node from a path. The (possibly empty) record of the
+	 * path is kept.
+	 * 
+	 * @param pPathNodeKey
+	 *          key of the path node
+	 * @param pNodeKey
+	 *          key of the document node
+	 * @throws SirixIOException
+	 *           if an I/O error occurs
+	 * @throws IllegalStateException
+	 *           if the index has been opened for reading only
+	 */
+	public void remove(final @Nonnegative long pPathNodeKey,
+			final @Nonnegative long pNodeKey) throws SirixIOException {
+		final IPageWriteTrx pageTrx = getPageWriteTrx();
+		final Optional<PathReferences> references = getReferences(pPathNodeKey);
+		if (references.isPresent()
+				&& references.get().getPostings().contains(pNodeKey)) {
+			final PathReferences modified = (PathReferences) pageTrx
+					.prepareNodeForModification(pPathNodeKey, EPage.PATHINDEXPAGE);
+			modified.getPostings().remove(pNodeKey);
+			pageTrx.finishNodeModification(modified, EPage.PATHINDEXPAGE);
+		}
+	}
+
+	/**
+	 * Close the index and the underlying page transaction. Must not be called
+	 * on an index, which shares the page transaction of a node transaction.
+	 * 
+	 * @throws SirixIOException
+	 *           if closing the page transaction fails
+	 */
+	public void close() throws SirixIOException {
+		mPageTrx.close();
+	}
+
+	/**
+	 * Get the record of a path.
+	 * 
+	 * @param pPathNodeKey
+	 *          key of the path node
+	 * @return the record, if present
+	 * @throws SirixIOException
+	 *           if an I/O error occurs
+	 */
+	private Optional<PathReferences> getReferences(
+			final @Nonnegative long pPathNodeKey) throws SirixIOException {
+		checkArgument(pPathNodeKey >= 0, "pPathNodeKey must be >= 0!");
+		final Optional<? extends INodeBase> node = mPageTrx.getNode(pPathNodeKey,
+				EPage.PATHINDEXPAGE);
+		return node.isPresent() && node.get() instanceof PathReferences ? Optional
+				.of((PathReferences) node.get()) : Optional.<PathReferences> absent();
+	}
+
+	/**
+	 * Get the page transaction for modifications.
+	 * 
+	 * @return the page write transaction
+	 * @throws IllegalStateException
+	 *           if the index has been opened for reading only
+	 */
+	private IPageWriteTrx getPageWriteTrx() {
+		checkState(mPageTrx instanceof IPageWriteTrx,
+				"The path index has been opened for reading only!");
+		return (IPageWriteTrx) mPageTrx;
+	}
+}
@@ -0,0 +1,106 @@
+/**
+ * Copyright (c) 2011, University of Konstanz, Distributed Systems Group
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the University of Konstanz nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sirix.index.path;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import com.google.common.base.Objects;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+
+import org.sirix.node.EKind;
+import org.sirix.node.Postings;
+import org.sirix.node.interfaces.INodeBase;
+
+/**
+ * <h1>PathReferences</h1>
+ * 
+ * <p>
+ * Record of the {@link PathIndex}, which is stored in the
+ * {@code PATHINDEXPAGE} node pages. Its node key is the key of the
+ * {@link PathNode} and it holds the keys of all document nodes on the path.
+ * </p>
+ * 
+ * @author Johannes Lichtenberger, University of Konstanz
+ * 
+ */
+public final class PathReferences implements INodeBase {
+
+	/** Key of the path node. */
+	private final long mNodeKey;
+
+	/** Compressed keys of the document nodes. */
+	private final Postings mNodeKeys;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param pNodeKey
+	 *          key of the path node
+	 * @param pNodeKeys
+	 *          keys of the document nodes
+	 */
+	public PathReferences(final @Nonnegative long pNodeKey,
+			final @Nonnull Postings pNodeKeys) {
+		checkArgument(pNodeKey >= 0, "pNodeKey must be >= 0!");
+		mNodeKey = pNodeKey;
+		mNodeKeys = checkNotNull(pNodeKeys);
+	}
+
+	/**
+	 * Get the keys of the document nodes, which must not be modified unless the
+	 * record has been prepared for modification.
+	 * 
+	 * @return the postings
+	 */
+	public Postings getPostings() {
+		return mNodeKeys;
+	}
+
+	@Override
+	public long getNodeKey() {
+		return mNodeKey;
+	}
+
+	@Override
+	public EKind getKind() {
+		return EKind.PATH_REFERENCES;
+	}
+
+	@Override
+	public long getRevision() {
+		return -1; // Not needed over here
+	}
+
+	@Override
+	public String toString() {
+		return Objects.toStringHelper(this).add("nodeKey", mNodeKey)
+				.add("nodeKeys", mNodeKeys).toString();
+	}
+}
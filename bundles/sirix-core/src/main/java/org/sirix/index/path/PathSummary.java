@@ -324,6 +324,12 @@ public class PathSummary implements INodeReadTrx {
 		throw new UnsupportedOperationException();
 	}
 
+	@Override
+	public IPageReadTrx getPageTransaction() {
+		assertNotClosed();
+		return mPageReadTrx;
+	}
+
 	@Override
 	public synchronized INodeReadTrx cloneInstance() throws SirixException {
 		final INodeReadTrx rtx = getInstance(
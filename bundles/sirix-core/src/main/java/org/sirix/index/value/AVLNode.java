@@ -13,7 +13,9 @@ import org.sirix.node.delegates.NodeDelegate;
 import org.sirix.settings.EFixed;
 
 /**
- * AVLNode.
+ * AVLNode of the former AVL tree based value index. Superseded by the
+ * {@link BPlusTree}, it is only kept to read value pages, which have been
+ * written by former versions.
  */
 public class AVLNode<K extends Comparable<? super K>, V> extends
   AbsForwardingNode {
@@ -0,0 +1,412 @@
+/**
+ * Copyright (c) 2011, University of Konstanz, Distributed Systems Group
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the University of Konstanz nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sirix.index.value;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import com.google.common.base.Objects;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+
+import org.sirix.node.EKind;
+import org.sirix.node.TextReferences;
+import org.sirix.node.TextValue;
+import org.sirix.node.interfaces.INodeBase;
+import org.sirix.settings.EFixed;
+
+/**
+ * <h1>BPlusNode</h1>
+ * 
+ * <p>
+ * Wide node of the {@link BPlusTree} value index, which is stored as one
+ * record in the {@code VALUEPAGE} node pages. Leaf nodes hold the sorted
+ * {@link TextValue} keys together with their {@link TextReferences} and the
+ * key of their right neighbour leaf. Inner nodes hold the separator keys and
+ * one more child key than separators, whereas a separator is the smallest key
+ * of the subtree to its right.
+ * </p>
+ * 
+ * @author Johannes Lichtenberger, University of Konstanz
+ * 
+ */
+public final class BPlusNode implements INodeBase {
+
+	/** Unique node key. */
+	private final long mNodeKey;
+
+	/** Determines if the node is a leaf node. */
+	private final boolean mLeaf;
+
+	/** Sorted keys. */
+	private final List<TextValue> mKeys;
+
+	/** Values of a leaf node, parallel to the keys. */
+	private final List<TextReferences> mValues;
+
+	/** Child node keys of an inner node. */
+	private final List<Long> mChildren;
+
+	/** Key of the right neighbour leaf node. */
+	private long mNextKey;
+
+	/**
+	 * Constructor for leaf nodes.
+	 * 
+	 * @param pNodeKey
+	 *          unique node key
+	 * @param pKeys
+	 *          sorted keys
+	 * @param pValues
+	 *          values, parallel to the keys
+	 * @param pNextKey
+	 *          key of the right neighbour leaf node or
+	 *          {@link EFixed#NULL_NODE_KEY}
+	 */
+	public BPlusNode(final @Nonnegative long pNodeKey,
+			final @Nonnull List<TextValue> pKeys,
+			final @Nonnull List<TextReferences> pValues, final long pNextKey) {
+		checkArgument(pNodeKey >= 0, "pNodeKey must be >= 0!");
+		checkArgument(pKeys.size() == pValues.size(),
+				"keys and values must have the same size!");
+		mNodeKey = pNodeKey;
+		mLeaf = true;
+		mKeys = checkNotNull(pKeys);
+		mValues = checkNotNull(pValues);
+		mChildren = Collections.emptyList();
+		mNextKey = pNextKey;
+	}
+
+	/**
+	 * Constructor for inner nodes.
+	 * 
+	 * @param pNodeKey
+	 *          unique node key
+	 * @param pKeys
+	 *          sorted separator keys
+	 * @param pChildren
+	 *          child node keys, one more than separator keys
+	 */
+	public BPlusNode(final @Nonnegative long pNodeKey,
+			final @Nonnull List<TextValue> pKeys, final @Nonnull List<Long> pChildren) {
+		checkArgument(pNodeKey >= 0, "pNodeKey must be >= 0!");
+		checkArgument(pKeys.size() + 1 == pChildren.size(),
+				"an inner node must have one more child than keys!");
+		mNodeKey = pNodeKey;
+		mLeaf = false;
+		mKeys = checkNotNull(pKeys);
+		mValues = Collections.emptyList();
+		mChildren = checkNotNull(pChildren);
+		mNextKey = EFixed.NULL_NODE_KEY.getStandardProperty();
+	}
+
+	/**
+	 * Determines if the node is a leaf node.
+	 * 
+	 * @return {@code true}, if it is a leaf node, {@code false} otherwise
+	 */
+	public boolean isLeaf() {
+		return mLeaf;
+	}
+
+	/**
+	 * Get the number of keys.
+	 * 
+	 * @return number of keys
+	 */
+	public int size() {
+		return mKeys.size();
+	}
+
+	/**
+	 * Get the key at the given position.
+	 * 
+	 * @param pPos
+	 *          position of the key
+	 * @return the key
+	 */
+	public TextValue getKey(final @Nonnegative int pPos) {
+		return mKeys.get(pPos);
+	}
+
+	/**
+	 * Get the value at the given position of a leaf node.
+	 * 
+	 * @param pPos
+	 *          position of the value
+	 * @return the value
+	 */
+	public TextReferences getValue(final @Nonnegative int pPos) {
+		return mValues.get(pPos);
+	}
+
+	/**
+	 * Get the child node key at the given position of an inner node.
+	 * 
+	 * @param pPos
+	 *          position of the child
+	 * @return the child node key
+	 */
+	public long getChildKey(final @Nonnegative int pPos) {
+		return mChildren.get(pPos);
+	}
+
+	/**
+	 * Get the key of the right neighbour leaf node.
+	 * 
+	 * @return key of the right neighbour or {@link EFixed#NULL_NODE_KEY}
+	 */
+	public long getNextKey() {
+		return mNextKey;
+	}
+
+	/**
+	 * Get an unmodifiable view of the keys.
+	 * 
+	 * @return the keys
+	 */
+	public List<TextValue> getKeys() {
+		return Collections.unmodifiableList(mKeys);
+	}
+
+	/**
+	 * Get an unmodifiable view of the values of a leaf node.
+	 * 
+	 * @return the values
+	 */
+	public List<TextReferences> getValues() {
+		return Collections.unmodifiableList(mValues);
+	}
+
+	/**
+	 * Get an unmodifiable view of the child node keys of an inner node.
+	 * 
+	 * @return the child node keys
+	 */
+	public List<Long> getChildKeys() {
+		return Collections.unmodifiableList(mChildren);
+	}
+
+	/**
+	 * Binary search for a key.
+	 * 
+	 * @param pKey
+	 *          the key to search for
+	 * @return position of the key, if it is present, otherwise
+	 *         {@code (-(insertion point) - 1)}
+	 */
+	int search(final @Nonnull TextValue pKey) {
+		return Collections.binarySearch(mKeys, pKey);
+	}
+
+	/**
+	 * Get the position of the child of an inner node, whose subtree might
+	 * contain the key.
+	 * 
+	 * @param pKey
+	 *          the key to search for
+	 * @return position of the child
+	 */
+	int childIndex(final @Nonnull TextValue pKey) {
+		final int pos = search(pKey);
+		return pos >= 0 ? pos + 1 : -pos - 1;
+	}
+
+	/**
+	 * Get the number of bytes of an entry of a leaf node, that is of its key
+	 * and its serialized postings.
+	 * 
+	 * @param pKey
+	 *          the key
+	 * @param pValue
+	 *          the value
+	 * @return number of bytes
+	 */
+	static int getByteSize(final @Nonnull TextValue pKey,
+			final @Nonnull TextReferences pValue) {
+		return pKey.getValue().length + pValue.getPostings().getSerializedSize();
+	}
+
+	/**
+	 * Get the number of bytes of the entries of a leaf node, which is about the
+	 * size of its record.
+	 * 
+	 * @return number of bytes
+	 */
+	int getByteSize() {
+		assert mLeaf;
+		int size = 0;
+		for (int i = 0; i < mKeys.size(); i++) {
+			size += getByteSize(mKeys.get(i), mValues.get(i));
+		}
+		return size;
+	}
+
+	/**
+	 * Get the position, at which a leaf node is split into two parts with about
+	 * the same number of bytes. If the upper part would exceed the maximum
+	 * number of bytes, the position is moved up, such that the upper part holds
+	 * at least the last entry and otherwise fits.
+	 * 
+	 * @param pMaxBytes
+	 *          maximum number of bytes of the upper part
+	 * @return position of the first key of the upper part, which is at least
+	 *         {@code 1} and less than {@code size()}
+	 */
+	int getByteSplit(final @Nonnegative int pMaxBytes) {
+		assert mLeaf && mKeys.size() > 1;
+		final int size = mKeys.size();
+		final int[] bytes = new int[size];
+		int total = 0;
+		for (int i = 0; i < size; i++) {
+			bytes[i] = getByteSize(mKeys.get(i), mValues.get(i));
+			total += bytes[i];
+		}
+		int mid = size - 1;
+		for (int i = 0, lower = 0; i < size - 1; i++) {
+			lower += bytes[i];
+			if (2 * lower >= total) {
+				mid = i + 1;
+				break;
+			}
+		}
+		int upper = bytes[size - 1];
+		int fit = size - 1;
+		while (fit > 1 && upper + bytes[fit - 1] <= pMaxBytes) {
+			upper += bytes[--fit];
+		}
+		return Math.max(mid, fit);
+	}
+
+	/**
+	 * Insert a key/value pair into a leaf node.
+	 * 
+	 * @param pPos
+	 *          insertion point
+	 * @param pKey
+	 *          the key
+	 * @param pValue
+	 *          the value
+	 */
+	void insert(final @Nonnegative int pPos, final @Nonnull TextValue pKey,
+			final @Nonnull TextReferences pValue) {
+		assert mLeaf;
+		mKeys.add(pPos, checkNotNull(pKey));
+		mValues.add(pPos, checkNotNull(pValue));
+	}
+
+	/**
+	 * Replace the value at the given position of a leaf node.
+	 * 
+	 * @param pPos
+	 *          position of the value
+	 * @param pValue
+	 *          the new value
+	 */
+	void setValue(final @Nonnegative int pPos,
+			final @Nonnull TextReferences pValue) {
+		assert mLeaf;
+		mValues.set(pPos, checkNotNull(pValue));
+	}
+
+	/**
+	 * Insert a separator and the child node to its right into an inner node.
+	 * 
+	 * @param pPos
+	 *          position of the child, which has been split
+	 * @param pSeparator
+	 *          the separator key
+	 * @param pRightChildKey
+	 *          key of the new right child
+	 */
+	void insertChild(final @Nonnegative int pPos,
+			final @Nonnull TextValue pSeparator, final long pRightChildKey) {
+		assert !mLeaf;
+		mKeys.add(pPos, checkNotNull(pSeparator));
+		mChildren.add(pPos + 1, pRightChildKey);
+	}
+
+	/**
+	 * Split the node at the given position. The upper part is moved into a new
+	 * node. The key at the position before the split is the separator of both
+	 * nodes. It is moved up out of inner nodes, whereas it remains the first key
+	 * of a new leaf node.
+	 * 
+	 * @param pNodeKey
+	 *          node key of the new node
+	 * @param pPos
+	 *          position of the separator key
+	 * @return the new right node
+	 */
+	BPlusNode split(final @Nonnegative long pNodeKey,
+			final @Nonnegative int pPos) {
+		assert pPos > 0 && pPos < mKeys.size();
+		final int mid = pPos;
+		final BPlusNode right;
+		if (mLeaf) {
+			right = new BPlusNode(pNodeKey, new ArrayList<>(mKeys.subList(mid,
+					mKeys.size())), new ArrayList<>(mValues.subList(mid, mValues.size())),
+					mNextKey);
+			mValues.subList(mid, mValues.size()).clear();
+			mNextKey = pNodeKey;
+		} else {
+			right = new BPlusNode(pNodeKey, new ArrayList<>(mKeys.subList(mid + 1,
+					mKeys.size())), new ArrayList<>(mChildren.subList(mid + 1,
+					mChildren.size())));
+			mChildren.subList(mid + 1, mChildren.size()).clear();
+		}
+		mKeys.subList(mid, mKeys.size()).clear();
+		return right;
+	}
+
+	@Override
+	public long getNodeKey() {
+		return mNodeKey;
+	}
+
+	@Override
+	public EKind getKind() {
+		return EKind.BPLUS;
+	}
+
+	@Override
+	public long getRevision() {
+		return -1; // Not needed over here
+	}
+
+	@Override
+	public String toString() {
+		return Objects.toStringHelper(this).add("nodeKey", mNodeKey)
+				.add("leaf", mLeaf).add("keys", mKeys.size())
+				.add("nextKey", mNextKey).toString();
+	}
+}
@@ -0,0 +1,627 @@
+/**
+ * Copyright (c) 2011, University of Konstanz, Distributed Systems Group
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the University of Konstanz nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sirix.index.value;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+import com.google.common.base.Optional;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.sirix.api.IPageReadTrx;
+import org.sirix.api.IPageWriteTrx;
+import org.sirix.exception.SirixIOException;
+import org.sirix.node.DocumentRootNode;
+import org.sirix.node.EKind;
+import org.sirix.node.TextReferences;
+import org.sirix.node.TextValue;
+import org.sirix.node.interfaces.INodeBase;
+import org.sirix.node.interfaces.IStructNode;
+import org.sirix.page.EPage;
+import org.sirix.page.RevisionRootPage;
+import org.sirix.settings.EFixed;
+
+/**
+ * <h1>BPlusTree</h1>
+ * 
+ * <p>
+ * Value index, which maps {@link TextValue}s to the {@link TextReferences} of
+ * the text nodes holding the value. The index is a B+-tree of wide
+ * {@link BPlusNode}s, which are stored as records in the {@code VALUEPAGE}
+ * node pages. Modified nodes are therefore copied on write into the
+ * transaction log and versioned by the revision trees just like any other
+ * node, and lookups only have to read a few pages. The root is the first
+ * child of the document root node of the value tree. The same structure backs
+ * the typed CAS index, whose nodes are stored in the {@code CASPAGE} node
+ * pages.
+ * </p>
+ * 
+ * <p>
+ * Leaf nodes store the postings of their keys inline. Besides the number of
+ * keys a leaf node is therefore limited by the size of its keys and postings,
+ * such that a few frequent values don't blow up the record, which is copied
+ * on each modification of one of its keys.
+ * </p>
+ * 
+ * @author Johannes Lichtenberger, University of Konstanz
+ * 
+ */
+public final class BPlusTree implements
+		Iterable<Map.Entry<TextValue, TextReferences>> {
+
+	/** Default maximum number of keys of a node. */
+	public static final int NODE_CAPACITY = 128;
+
+	/** Default maximum number of bytes of the keys and postings of a leaf. */
+	public static final int LEAF_BYTES = 8192;
+
+	/** Page transaction to read (and write) the nodes. */
+	private final IPageReadTrx mPageTrx;
+
+	/** Maximum number of keys of a node. */
+	private final int mCapacity;
+
+	/** Maximum number of bytes of the keys and postings of a leaf node. */
+	private final int mLeafBytes;
+
+	/** Kind of the node pages, which store the nodes. */
+	private final EPage mPage;
+
+	/**
+	 * Private constructor.
+	 * 
+	 * @param pPageTrx
+	 *          page transaction to read (and write) the nodes
+	 * @param pPage
+	 *          kind of the node pages, which store the nodes
+	 * @param pCapacity
+	 *          maximum number of keys of a node
+	 * @param pLeafBytes
+	 *          maximum number of bytes of the keys and postings of a leaf node
+	 */
+	private BPlusTree(final @Nonnull IPageReadTrx pPageTrx,
+			final @Nonnull EPage pPage, final @Nonnegative int pCapacity,
+			final @Nonnegative int pLeafBytes) {
+		mPageTrx = checkNotNull(pPageTrx);
+		checkArgument(pPage == EPage.VALUEPAGE || pPage == EPage.CASPAGE,
+				"Only value and CAS pages are supported!");
+		checkArgument(pCapacity >= 3, "pCapacity must be >= 3!");
+		checkArgument(pLeafBytes > 0, "pLeafBytes must be > 0!");
+		mPage = pPage;
+		mCapacity = pCapacity;
+		mLeafBytes = pLeafBytes;
+	}
+
+	/**
+	 * Get a new instance. Modifications are only permitted if the page
+	 * transaction is an {@link IPageWriteTrx}.
+	 * 
+	 * @param pPageTrx
+	 *          page transaction to read (and write) the nodes
+	 * @return new tree instance
+	 */
+	public static BPlusTree getInstance(final @Nonnull IPageReadTrx pPageTrx) {
+		return new BPlusTree(pPageTrx, EPage.VALUEPAGE, NODE_CAPACITY,
+				LEAF_BYTES);
+	}
+
+	/**
+	 * Get a new instance, which stores its nodes in the given node pages.
+	 * Modifications are only permitted if the page transaction is an
+	 * {@link IPageWriteTrx}.
+	 * 
+	 * @param pPageTrx
+	 *          page transaction to read (and write) the nodes
+	 * @param pPage
+	 *          {@link EPage#VALUEPAGE} or {@link EPage#CASPAGE}
+	 * @return new tree instance
+	 */
+	public static BPlusTree getInstance(final @Nonnull IPageReadTrx pPageTrx,
+			final @Nonnull EPage pPage) {
+		return new BPlusTree(pPageTrx, pPage, NODE_CAPACITY, LEAF_BYTES);
+	}
+
+	/**
+	 * Get a new instance. Modifications are only permitted if the page
+	 * transaction is an {@link IPageWriteTrx}.
+	 * 
+	 * @param pPageTrx
+	 *          page transaction to read (and write) the nodes
+	 * @param pCapacity
+	 *          maximum number of keys of a node, which are created or modified
+	 * @return new tree instance
+	 */
+	public static BPlusTree getInstance(final @Nonnull IPageReadTrx pPageTrx,
+			final @Nonnegative int pCapacity) {
+		return new BPlusTree(pPageTrx, EPage.VALUEPAGE, pCapacity, LEAF_BYTES);
+	}
+
+	/**
+	 * Get a new instance. Modifications are only permitted if the page
+	 * transaction is an {@link IPageWriteTrx}.
+	 * 
+	 * @param pPageTrx
+	 *          page transaction to read (and write) the nodes
+	 * @param pCapacity
+	 *          maximum number of keys of a node, which are created or modified
+	 * @param pLeafBytes
+	 *          maximum number of bytes of the keys and postings of a leaf node,
+	 *          which is created or modified
+	 * @return new tree instance
+	 */
+	public static BPlusTree getInstance(final @Nonnull IPageReadTrx pPageTrx,
+			final @Nonnegative int pCapacity, final @Nonnegative int pLeafBytes) {
+		return new BPlusTree(pPageTrx, EPage.VALUEPAGE, pCapacity, pLeafBytes);
+	}
+
+	/**
+	 * Finds the specified key in the index and returns its value.
+	 * 
+	 * @param pKey
+	 *          key to be found
+	 * @return {@link Optional} reference
+	 * @throws SirixIOException
+	 *           if an I/O error occurs
+	 */
+	public Optional<TextReferences> get(final @Nonnull TextValue pKey)
+			throws SirixIOException {
+		checkNotNull(pKey);
+		final long rootKey = getRootKey();
+		if (rootKey == EFixed.NULL_NODE_KEY.getStandardProperty()) {
+			return Optional.absent();
+		}
+		BPlusNode node = getBPlusNode(rootKey);
+		while (!node.isLeaf()) {
+			node = getBPlusNode(node.getChildKey(node.childIndex(pKey)));
+		}
+		final int pos = node.search(pKey);
+		return pos >= 0 ? Optional.of(node.getValue(pos)) : Optional
+				.<TextReferences> absent();
+	}
+
+	/**
+	 * Indexes the key with the given value. If the key is already indexed, its
+	 * value is replaced.
+	 * 
+	 * @param pKey
+	 *          key to be indexed
+	 * @param pValue
+	 *          value of the key
+	 * @return the value
+	 * @throws SirixIOException
+	 *           if an I/O error occurs
+	 */
+	public TextReferences index(final @Nonnull TextValue pKey,
+			final @Nonnull TextReferences pValue) throws SirixIOException {
+		checkNotNull(pKey);
+		checkNotNull(pValue);
+		final IPageWriteTrx pageTrx = getPageWriteTrx();
+		final long rootKey = getRootKey();
+		if (rootKey == EFixed.NULL_NODE_KEY.getStandardProperty()) {
+			final BPlusNode leaf = new BPlusNode(nextNodeKey(),
+					Lists.newArrayList(pKey), Lists.newArrayList(pValue),
+					EFixed.NULL_NODE_KEY.getStandardProperty());
+			pageTrx.createNode(leaf, mPage);
+			setRootKey(leaf.getNodeKey());
+			return pValue;
+		}
+
+		// Descend to the leaf and remember the path.
+		final List<Long> path = new ArrayList<>();
+		final List<Integer> positions = new ArrayList<>();
+		long nodeKey = rootKey;
+		BPlusNode node = getBPlusNode(nodeKey);
+		while (!node.isLeaf()) {
+			final int child = node.childIndex(pKey);
+			path.add(nodeKey);
+			positions.add(child);
+			nodeKey = node.getChildKey(child);
+			node = getBPlusNode(nodeKey);
+		}
+
+		node = (BPlusNode) pageTrx.prepareNodeForModification(nodeKey,
+				mPage);
+		final int pos = node.search(pKey);
+		if (pos >= 0) {
+			node.setValue(pos, pValue);
+		} else {
+			node.insert(-pos - 1, pKey, pValue);
+		}
+
+		// Split overflowing nodes bottom up. The upper part, which is split off,
+		// always fits, whereas the remaining lower part is split again, as long
+		// as it overflows, which happens for leaf nodes with large postings.
+		while (isOverflowing(node)) {
+			final long firstKey = nextNodeKey();
+			final List<TextValue> separators = new ArrayList<>();
+			final List<BPlusNode> rights = new ArrayList<>();
+			do {
+				final int mid = splitPosition(node);
+				separators.add(node.getKey(mid));
+				rights.add(node.split(firstKey + rights.size(), mid));
+			} while (isOverflowing(node));
+			pageTrx.finishNodeModification(node, mPage);
+			for (final BPlusNode right : rights) {
+				pageTrx.createNode(right, mPage);
+			}
+			if (path.isEmpty()) {
+				// New root, which is split itself if it overflows.
+				final BPlusNode root = new BPlusNode(nextNodeKey(),
+						new ArrayList<TextValue>(), Lists.newArrayList(nodeKey));
+				pageTrx.createNode(root, mPage);
+				setRootKey(root.getNodeKey());
+				path.add(root.getNodeKey());
+				positions.add(0);
+			}
+			final int child = positions.remove(positions.size() - 1);
+			nodeKey = path.remove(path.size() - 1);
+			node = (BPlusNode) pageTrx.prepareNodeForModification(nodeKey,
+					mPage);
+			for (int i = 0; i < rights.size(); i++) {
+				node.insertChild(child, separators.get(i), rights.get(i).getNodeKey());
+			}
+		}
+		pageTrx.finishNodeModification(node, mPage);
+		return pValue;
+	}
+
+	/**
+	 * Determines if a node has to be split, that is if it exceeds the maximum
+	 * number of keys or if it is a leaf node with more than one key, which
+	 * exceeds the maximum number of bytes.
+	 * 
+	 * @param pNode
+	 *          the node
+	 * @return {@code true}, if the node overflows, {@code false} otherwise
+	 */
+	private boolean isOverflowing(final @Nonnull BPlusNode pNode) {
+		return pNode.size() > mCapacity
+				|| (pNode.isLeaf() && pNode.size() > 1 && pNode.getByteSize() > mLeafBytes);
+	}
+
+	/**
+	 * Get the position, at which an overflowing node is split, such that the
+	 * upper part doesn't overflow.
+	 * 
+	 * @param pNode
+	 *          the overflowing node
+	 * @return position of the separator key
+	 */
+	private int splitPosition(final @Nonnull BPlusNode pNode) {
+		final int mid = pNode.isLeaf() && pNode.getByteSize() > mLeafBytes ? pNode
+				.getByteSplit(mLeafBytes) : pNode.size() / 2;
+		return Math.max(mid, pNode.size() - mCapacity);
+	}
+
+	/**
+	 * Bulk load an empty index bottom up. Leaf nodes and inner nodes are
+	 * completely filled, either by keys or by bytes.
+	 * 
+	 * @param pEntries
+	 *          entries with strictly ascending keys
+	 * @throws SirixIOException
+	 *           if an I/O error occurs
+	 * @throws IllegalStateException
+	 *           if the index is not empty
+	 * @throws IllegalArgumentException
+	 *           if the keys are not strictly ascending
+	 */
+	public void bulkLoad(
+			final @Nonnull Iterator<Map.Entry<TextValue, TextReferences>> pEntries)
+			throws SirixIOException {
+		checkNotNull(pEntries);
+		final IPageWriteTrx pageTrx = getPageWriteTrx();
+		checkState(
+				getRootKey() == EFixed.NULL_NODE_KEY.getStandardProperty(),
+				"Bulk loading is only supported for an empty index!");
+		if (!pEntries.hasNext()) {
+			return;
+		}
+
+		// Leaf level. Leaves are created one after the other, such that the right
+		// neighbour of a leaf gets the next node key.
+		List<TextValue> separators = new ArrayList<>();
+		List<Long> nodes = new ArrayList<>();
+		List<TextValue> keys = new ArrayList<>(mCapacity + 1);
+		List<TextReferences> values = new ArrayList<>(mCapacity + 1);
+		int bytes = 0;
+		TextValue lastKey = null;
+		while (pEntries.hasNext()) {
+			final Map.Entry<TextValue, TextReferences> entry = pEntries.next();
+			final TextValue key = checkNotNull(entry.getKey());
+			final TextReferences value = checkNotNull(entry.getValue());
+			checkArgument(lastKey == null || lastKey.compareTo(key) < 0,
+					"Keys must be strictly ascending!");
+			lastKey = key;
+			final int entryBytes = BPlusNode.getByteSize(key, value);
+			if (keys.size() == mCapacity
+					|| (!keys.isEmpty() && bytes + entryBytes > mLeafBytes)) {
+				final long nodeKey = nextNodeKey();
+				pageTrx.createNode(new BPlusNode(nodeKey, keys, values, nodeKey + 1),
+						mPage);
+				separators.add(keys.get(0));
+				nodes.add(nodeKey);
+				keys = new ArrayList<>(mCapacity + 1);
+				values = new ArrayList<>(mCapacity + 1);
+				bytes = 0;
+			}
+			keys.add(key);
+			values.add(value);
+			bytes += entryBytes;
+		}
+		final long lastLeafKey = nextNodeKey();
+		pageTrx.createNode(new BPlusNode(lastLeafKey, keys, values,
+				EFixed.NULL_NODE_KEY.getStandardProperty()), mPage);
+		separators.add(keys.get(0));
+		nodes.add(lastLeafKey);
+
+		// Inner levels.
+		while (nodes.size() > 1) {
+			final List<TextValue> parentSeparators = new ArrayList<>();
+			final List<Long> parentNodes = new ArrayList<>();
+			for (int i = 0, size = nodes.size(); i < size;) {
+				int end = Math.min(size, i + mCapacity + 1);
+				if (size - end == 1) {
+					// Avoid an inner node with a single child.
+					end--;
+				}
+				final long nodeKey = nextNodeKey();
+				pageTrx.createNode(new BPlusNode(nodeKey, new ArrayList<>(separators
+						.subList(i + 1, end)), new ArrayList<>(nodes.subList(i, end))),
+						mPage);
+				parentSeparators.add(separators.get(i));
+				parentNodes.add(nodeKey);
+				i = end;
+			}
+			separators = parentSeparators;
+			nodes = parentNodes;
+		}
+		setRootKey(nodes.get(0));
+	}
+
+	/**
+	 * Range scan in ascending key order.
+	 * 
+	 * @param pFrom
+	 *          lower bound or {@code null} if unbounded
+	 * @param pFromInclusive
+	 *          determines if the lower bound is inclusive
+	 * @param pTo
+	 *          upper bound or {@code null} if unbounded
+	 * @param pToInclusive
+	 *          determines if the upper bound is inclusive
+	 * @return iterator over the entries in the range
+	 * @throws SirixIOException
+	 *           if an I/O error occurs
+	 */
+	public Iterator<Map.Entry<TextValue, TextReferences>> range(
+			final @Nullable TextValue pFrom, final boolean pFromInclusive,
+			final @Nullable TextValue pTo, final boolean pToInclusive)
+			throws SirixIOException {
+		final long rootKey = getRootKey();
+		if (rootKey == EFixed.NULL_NODE_KEY.getStandardProperty()) {
+			return Collections.emptyIterator();
+		}
+		BPlusNode node = getBPlusNode(rootKey);
+		while (!node.isLeaf()) {
+			node = getBPlusNode(node.getChildKey(pFrom == null ? 0 : node
+					.childIndex(pFrom)));
+		}
+		int pos = 0;
+		if (pFrom != null) {
+			pos = node.search(pFrom);
+			if (pos < 0) {
+				pos = -pos - 1;
+			} else if (!pFromInclusive) {
+				pos++;
+			}
+		}
+		return new RangeIterator(node, pos, pTo, pToInclusive);
+	}
+
+	/**
+	 * Scan of all entries in ascending key order.
+	 * 
+	 * @throws IllegalStateException
+	 *           if an I/O error occurs
+	 */
+	@Override
+	public Iterator<Map.Entry<TextValue, TextReferences>> iterator() {
+		try {
+			return range(null, true, null, true);
+		} catch (final SirixIOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Get the page write transaction.
+	 * 
+	 * @return the page write transaction
+	 * @throws IllegalStateException
+	 *           if the index has been opened for reading only
+	 */
+	private IPageWriteTrx getPageWriteTrx() {
+		checkState(mPageTrx instanceof IPageWriteTrx,
+				"The index has been opened for reading only!");
+		return (IPageWriteTrx) mPageTrx;
+	}
+
+	/**
+	 * Node key, which is assigned to the next created tree node.
+	 * 
+	 * @return the next node key
+	 * @throws SirixIOException
+	 *           if an I/O error occurs
+	 */
+	private long nextNodeKey() throws SirixIOException {
+		final RevisionRootPage root = mPageTrx.getActualRevisionRootPage();
+		return (mPage == EPage.CASPAGE ? root.getMaxCASNodeKey() : root
+				.getMaxValueNodeKey()) + 1;
+	}
+
+	/**
+	 * Get the key of the root node.
+	 * 
+	 * @return key of the root node or {@link EFixed#NULL_NODE_KEY} if the index
+	 *         is empty
+	 * @throws SirixIOException
+	 *           if an I/O error occurs
+	 */
+	private long getRootKey() throws SirixIOException {
+		final Optional<? extends INodeBase> document = mPageTrx.getNode(
+				EFixed.DOCUMENT_NODE_KEY.getStandardProperty(), mPage);
+		if (!document.isPresent()) {
+			throw new IllegalStateException(
+					"Node couldn't be fetched from persistent storage!");
+		}
+		return ((IStructNode) document.get()).getFirstChildKey();
+	}
+
+	/**
+	 * Set the key of the root node.
+	 * 
+	 * @param pRootKey
+	 *          key of the root node
+	 * @throws SirixIOException
+	 *           if an I/O error occurs
+	 */
+	private void setRootKey(final @Nonnegative long pRootKey)
+			throws SirixIOException {
+		final IPageWriteTrx pageTrx = getPageWriteTrx();
+		final DocumentRootNode document = (DocumentRootNode) pageTrx
+				.prepareNodeForModification(
+						EFixed.DOCUMENT_NODE_KEY.getStandardProperty(), mPage);
+		document.setFirstChildKey(pRootKey);
+		pageTrx.finishNodeModification(document, mPage);
+	}
+
+	/**
+	 * Get a node of the tree.
+	 * 
+	 * @param pNodeKey
+	 *          key of the node
+	 * @return the node
+	 * @throws SirixIOException
+	 *           if an I/O error occurs, the node is not available or the index
+	 *           has been written in the former AVL tree layout
+	 */
+	private BPlusNode getBPlusNode(final @Nonnegative long pNodeKey)
+			throws SirixIOException {
+		final Optional<? extends INodeBase> node = mPageTrx.getNode(pNodeKey,
+				mPage);
+		if (!node.isPresent()) {
+			throw new SirixIOException(new StringBuilder("B+-tree node ")
+					.append(pNodeKey).append(" couldn't be fetched!").toString());
+		}
+		if (node.get().getKind() != EKind.BPLUS) {
+			// Value indexes of former versions are AVL trees.
+			throw new SirixIOException(new StringBuilder("Node ").append(pNodeKey)
+					.append(" of the index is a ").append(node.get().getKind())
+					.append(" record instead of a B+-tree node. The index has been ")
+					.append("written in the former AVL tree layout and must be ")
+					.append("rebuilt with the IndexBuilder!").toString());
+		}
+		return (BPlusNode) node.get();
+	}
+
+	/**
+	 * Iterates over the leaf level from a start position up to an upper bound.
+	 */
+	private final class RangeIterator extends
+			AbstractIterator<Map.Entry<TextValue, TextReferences>> {
+
+		/** Current leaf node. */
+		private BPlusNode mLeaf;
+
+		/** Position in the current leaf node. */
+		private int mPos;
+
+		/** Upper bound or {@code null} if unbounded. */
+		private final TextValue mTo;
+
+		/** Determines if the upper bound is inclusive. */
+		private final boolean mToInclusive;
+
+		/**
+		 * Constructor.
+		 * 
+		 * @param pLeaf
+		 *          start leaf node
+		 * @param pPos
+		 *          start position
+		 * @param pTo
+		 *          upper bound or {@code null} if unbounded
+		 * @param pToInclusive
+		 *          determines if the upper bound is inclusive
+		 */
+		private RangeIterator(final @Nonnull BPlusNode pLeaf,
+				final @Nonnegative int pPos, final @Nullable TextValue pTo,
+				final boolean pToInclusive) {
+			mLeaf = pLeaf;
+			mPos = pPos;
+			mTo = pTo;
+			mToInclusive = pToInclusive;
+		}
+
+		@Override
+		protected Map.Entry<TextValue, TextReferences> computeNext() {
+			while (mPos >= mLeaf.size()) {
+				if (mLeaf.getNextKey() == EFixed.NULL_NODE_KEY.getStandardProperty()) {
+					return endOfData();
+				}
+				try {
+					mLeaf = getBPlusNode(mLeaf.getNextKey());
+				} catch (final SirixIOException e) {
+					throw new IllegalStateException(e);
+				}
+				mPos = 0;
+			}
+			final TextValue key = mLeaf.getKey(mPos);
+			if (mTo != null) {
+				final int c = key.compareTo(mTo);
+				if (c > 0 || (c == 0 && !mToInclusive)) {
+					return endOfData();
+				}
+			}
+			return Maps.immutableEntry(key, mLeaf.getValue(mPos++));
+		}
+	}
+}
@@ -0,0 +1,199 @@
+/**
+ * Copyright (c) 2011, University of Konstanz, Distributed Systems Group
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the University of Konstanz nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sirix.io;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.io.ByteArrayDataInput;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+
+/**
+ * <h1>ByteBufferDataInput</h1>
+ * 
+ * <p>
+ * {@link ByteArrayDataInput} view of the remaining bytes of a
+ * {@link ByteBuffer}, such that pages and node records are decoded straight
+ * from (possibly direct or memory mapped) buffers without copying them into an
+ * intermediate byte array. Reads advance the position of the buffer. As with
+ * the instances created by {@code ByteStreams#newDataInput(byte[])} reading
+ * past the limit throws an {@link IllegalStateException}.
+ * </p>
+ * 
+ * @author Johannes Lichtenberger, University of Konstanz
+ * 
+ */
+public final class ByteBufferDataInput implements ByteArrayDataInput {
+
+  /** Underlying buffer. */
+  private final ByteBuffer mBuffer;
+
+  /**
+   * Constructor.
+   * 
+   * @param pBuffer
+   *          the buffer to read from, its remaining bytes are read in big
+   *          endian byte order
+   */
+  public ByteBufferDataInput(final @Nonnull ByteBuffer pBuffer) {
+    mBuffer = checkNotNull(pBuffer).order() == ByteOrder.BIG_ENDIAN ? pBuffer
+      : pBuffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+  }
+
+  /**
+   * Get the underlying buffer.
+   * 
+   * @return the buffer
+   */
+  public ByteBuffer getBuffer() {
+    return mBuffer;
+  }
+
+  /**
+   * Make sure that the given number of bytes can be read.
+   * 
+   * @param pLength
+   *          number of bytes to read
+   * @throws IllegalStateException
+   *           if less bytes are remaining
+   */
+  private void require(final @Nonnegative int pLength) {
+    if (mBuffer.remaining() < pLength) {
+      throw new IllegalStateException(new EOFException());
+    }
+  }
+
+  @Override
+  public void readFully(final byte[] pBytes) {
+    readFully(pBytes, 0, pBytes.length);
+  }
+
+  @Override
+  public void readFully(final byte[] pBytes, final int pOffset,
+    final int pLength) {
+    require(pLength);
+    mBuffer.get(pBytes, pOffset, pLength);
+  }
+
+  @Override
+  public int skipBytes(final int pLength) {
+    final int skip = Math.max(0, Math.min(pLength, mBuffer.remaining()));
+    mBuffer.position(mBuffer.position() + skip);
+    return skip;
+  }
+
+  @Override
+  public boolean readBoolean() {
+    return readByte() != 0;
+  }
+
+  @Override
+  public byte readByte() {
+    require(1);
+    return mBuffer.get();
+  }
+
+  @Override
+  public int readUnsignedByte() {
+    return readByte() & 0xFF;
+  }
+
+  @Override
+  public short readShort() {
+    require(2);
+    return mBuffer.getShort();
+  }
+
+  @Override
+  public int readUnsignedShort() {
+    return readShort() & 0xFFFF;
+  }
+
+  @Override
+  public char readChar() {
+    require(2);
+    return mBuffer.getChar();
+  }
+
+  @Override
+  public int readInt() {
+    require(4);
+    return mBuffer.getInt();
+  }
+
+  @Override
+  public long readLong() {
+    require(8);
+    return mBuffer.getLong();
+  }
+
+  @Override
+  public float readFloat() {
+    require(4);
+    return mBuffer.getFloat();
+  }
+
+  @Override
+  public double readDouble() {
+    require(8);
+    return mBuffer.getDouble();
+  }
+
+  /**
+   * Not supported, as sirix never encodes lines.
+   * 
+   * @throws UnsupportedOperationException
+   *           always
+   */
+  @Override
+  public String readLine() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public String readUTF() {
+    require(2);
+    final int length = mBuffer.getShort(mBuffer.position()) & 0xFFFF;
+    require(2 + length);
+    final byte[] encoded = new byte[2 + length];
+    mBuffer.get(encoded);
+    try {
+      return new DataInputStream(new ByteArrayInputStream(encoded)).readUTF();
+    } catch (final IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -33,6 +33,7 @@ import org.sirix.exception.SirixIOException;
 import org.sirix.io.berkeley.BerkeleyStorage;
 import org.sirix.io.bytepipe.ByteHandlePipeline;
 import org.sirix.io.file.FileStorage;
+import org.sirix.io.mapped.MappedFileStorage;
 
 /**
  * Utility methods for the storage. Those methods included common deletion
@@ -48,7 +49,18 @@ public enum EStorage {
     public IStorage getInstance(
       final @Nonnull ResourceConfiguration pResourceConf) throws SirixIOException {
       return new FileStorage(pResourceConf.mPath, new ByteHandlePipeline(
-        pResourceConf.mByteHandler));
+        pResourceConf.mByteHandler), pResourceConf.mCommitBatchSize,
+        pResourceConf.mSyncOnCommit);
+    }
+  },
+
+  MappedFile {
+    @Override
+    public IStorage getInstance(
+      final @Nonnull ResourceConfiguration pResourceConf) throws SirixIOException {
+      return new MappedFileStorage(pResourceConf.mPath, new ByteHandlePipeline(
+        pResourceConf.mByteHandler), pResourceConf.mCommitBatchSize,
+        pResourceConf.mSyncOnCommit);
     }
   },
 
@@ -40,7 +40,10 @@ import org.sirix.io.bytepipe.IByteHandler;
 public interface IStorage {
 
   /**
-   * Getting a writer.
+   * Getting a writer. Several writers of the same storage may be open at the
+   * same time, but only one of them may write pages at a time. A session
+   * ensures this by serializing its commits. A writer appends each batch of
+   * pages at the then current end of the storage.
    * 
    * @return an {@link IWriter} instance
    * @throws SirixIOException
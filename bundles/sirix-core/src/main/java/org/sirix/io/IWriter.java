@@ -51,6 +51,21 @@ public interface IWriter extends IReader {
    */
   long write(@Nonnull final PageReference pageReference) throws SirixIOException;
 
+  /**
+   * Writing a page related to the reference, which has already been
+   * serialized and processed by the byte handler pipeline of the storage.
+   * 
+   * @param pageReference
+   *          that points to a page
+   * @param pSerializedPage
+   *          the serialized page
+   * @return the key of the page
+   * @throws SirixIOException
+   *           execption to be thrown if something bad happens
+   */
+  long write(@Nonnull final PageReference pageReference,
+    @Nonnull final byte[] pSerializedPage) throws SirixIOException;
+
   /**
    * Write Beacon for the first reference.
    * 
@@ -61,6 +76,26 @@ public interface IWriter extends IReader {
    */
   void writeFirstReference(@Nonnull final PageReference pageReference) throws SirixIOException;
 
+  /**
+   * Write all buffered pages to the storage without forcing them to the
+   * device.
+   * 
+   * @throws SirixIOException
+   *           exception if something bad happens
+   */
+  void flush() throws SirixIOException;
+
+  /**
+   * Write Beacon for a page, which has already been written and flushed,
+   * possibly by another writer of the same storage.
+   * 
+   * @param pKey
+   *          key of the page the beacon points to
+   * @throws SirixIOException
+   *           exception if something bad happens
+   */
+  void writeBeacon(long pKey) throws SirixIOException;
+
   /**
    * Closing the write access.
    * 
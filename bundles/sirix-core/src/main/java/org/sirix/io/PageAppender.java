@@ -0,0 +1,243 @@
+/**
+ * Copyright (c) 2011, University of Konstanz, Distributed Systems Group
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the University of Konstanz nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sirix.io;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+
+import org.sirix.exception.SirixIOException;
+
+import com.google.common.base.Objects;
+
+/**
+ * <h1>PageAppender</h1>
+ * 
+ * <p>
+ * Appends serialized pages to a data file. The offset of a page is known as
+ * soon as it is appended, but the bytes are buffered until either the batch
+ * exceeds the configured size, {@link #flush()} is called or the beacon is
+ * written. A flush writes the whole batch with a single gathering write.
+ * </p>
+ * 
+ * <p>
+ * Each new batch starts at the current end of the data file, thus pages
+ * written by another appender of the same file in the meantime are not
+ * overwritten. Appenders of the same data file however must not fill their
+ * batches at the same time.
+ * </p>
+ * 
+ * <p>
+ * {@link #writeBeacon(long)} flushes all pending pages (and optionally forces
+ * them to the device) before the beacon is updated, thus a crash during a
+ * commit never leaves a beacon which points to pages not yet written.
+ * </p>
+ * 
+ * @author Johannes Lichtenberger, University of Konstanz
+ * 
+ */
+public final class PageAppender {
+
+  /** Length of the length prefix of each page. */
+  private static final int LENGTH_PREFIX = 4;
+
+  /** Channel of the data file. */
+  private final FileChannel mChannel;
+
+  /** Maximum number of buffered bytes until the batch is flushed. */
+  private final long mMaxBatchSize;
+
+  /** Determines if the data file is forced to the device on a beacon update. */
+  private final boolean mSync;
+
+  /** Offset of the first page if the data file is empty. */
+  private final int mFirstBeacon;
+
+  /** Buffered pages. */
+  private final List<ByteBuffer> mBatch;
+
+  /** Number of buffered bytes. */
+  private long mBatchSize;
+
+  /** End of the flushed part of the data file. */
+  private long mFlushedEnd;
+
+  /**
+   * Constructor.
+   * 
+   * @param pChannel
+   *          channel of the data file, opened for writing
+   * @param pFirstBeacon
+   *          offset of the first page if the data file is empty
+   * @param pMaxBatchSize
+   *          maximum number of buffered bytes, {@code 0} to write each page
+   *          immediately
+   * @param pSync
+   *          determines if the data file should be forced to the device before
+   *          and after the beacon is written
+   * @throws SirixIOException
+   *           if the size of the data file can't be determined
+   */
+  public PageAppender(final @Nonnull FileChannel pChannel,
+    final @Nonnegative int pFirstBeacon, final @Nonnegative long pMaxBatchSize,
+    final boolean pSync) throws SirixIOException {
+    checkArgument(pFirstBeacon >= 0, "pFirstBeacon must be >= 0!");
+    checkArgument(pMaxBatchSize >= 0, "pMaxBatchSize must be >= 0!");
+    mChannel = checkNotNull(pChannel);
+    mFirstBeacon = pFirstBeacon;
+    mMaxBatchSize = pMaxBatchSize;
+    mSync = pSync;
+    mBatch = new ArrayList<>();
+    mFlushedEnd = end();
+  }
+
+  /**
+   * Get the current end of the data file.
+   * 
+   * @return end of the data file, or the offset of the first page if no page
+   *         has been written so far
+   * @throws SirixIOException
+   *           if the size of the data file can't be determined
+   */
+  private long end() throws SirixIOException {
+    try {
+      return Math.max(mChannel.size(), mFirstBeacon);
+    } catch (final IOException e) {
+      throw new SirixIOException(e);
+    }
+  }
+
+  /**
+   * Append a page.
+   * 
+   * @param pPage
+   *          the serialized page, that is after all byte handlers have been
+   *          applied
+   * @return offset of the page in the data file
+   * @throws SirixIOException
+   *           if an I/O error occurs
+   */
+  public long append(final @Nonnull byte[] pPage) throws SirixIOException {
+    if (mBatch.isEmpty()) {
+      mFlushedEnd = end();
+    }
+    final long offset = mFlushedEnd + mBatchSize;
+    final ByteBuffer buffer = ByteBuffer.allocate(pPage.length + LENGTH_PREFIX);
+    buffer.putInt(pPage.length);
+    buffer.put(pPage);
+    buffer.flip();
+    mBatch.add(buffer);
+    mBatchSize += buffer.limit();
+    if (mBatchSize >= mMaxBatchSize) {
+      flush();
+    }
+    return offset;
+  }
+
+  /**
+   * Determines if the page at the given offset is not flushed yet.
+   * 
+   * @param pOffset
+   *          offset of the page
+   * @return {@code true}, if the page is still buffered, {@code false}
+   *         otherwise
+   */
+  public boolean isPending(final long pOffset) {
+    return pOffset >= mFlushedEnd && mBatchSize > 0;
+  }
+
+  /**
+   * Write all buffered pages with a single gathering write.
+   * 
+   * @throws SirixIOException
+   *           if an I/O error occurs
+   */
+  public void flush() throws SirixIOException {
+    if (mBatch.isEmpty()) {
+      return;
+    }
+    final ByteBuffer[] buffers = mBatch.toArray(new ByteBuffer[mBatch.size()]);
+    try {
+      mChannel.position(mFlushedEnd);
+      long remaining = mBatchSize;
+      while (remaining > 0) {
+        remaining -= mChannel.write(buffers);
+      }
+    } catch (final IOException e) {
+      throw new SirixIOException(e);
+    }
+    mFlushedEnd += mBatchSize;
+    mBatchSize = 0;
+    mBatch.clear();
+  }
+
+  /**
+   * Flush all buffered pages and afterwards write the beacon, that is the
+   * offset of the uber page at the start of the data file.
+   * 
+   * @param pKey
+   *          offset of the uber page
+   * @throws SirixIOException
+   *           if an I/O error occurs
+   */
+  public void writeBeacon(final long pKey) throws SirixIOException {
+    flush();
+    try {
+      if (mSync) {
+        mChannel.force(false);
+      }
+      final ByteBuffer buffer = ByteBuffer.allocate(8);
+      buffer.putLong(pKey);
+      buffer.flip();
+      long position = 0;
+      while (buffer.hasRemaining()) {
+        position += mChannel.write(buffer, position);
+      }
+      if (mSync) {
+        mChannel.force(false);
+      }
+    } catch (final IOException e) {
+      throw new SirixIOException(e);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return Objects.toStringHelper(this).add("flushedEnd", mFlushedEnd)
+      .add("batchSize", mBatchSize).add("maxBatchSize", mMaxBatchSize)
+      .add("sync", mSync).toString();
+  }
+}
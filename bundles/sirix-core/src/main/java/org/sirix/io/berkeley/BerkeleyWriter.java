@@ -114,12 +114,34 @@ public final class BerkeleyWriter implements IWriter {
     final IPage page = pageReference.getPage();
 
     final DatabaseEntry valueEntry = new DatabaseEntry();
+    mPageBinding.objectToEntry(page, valueEntry);
+    return put(pageReference, valueEntry);
+  }
+
+  @Override
+  public long write(final @Nonnull PageReference pPageReference,
+    final @Nonnull byte[] pSerializedPage) throws SirixIOException {
+    return put(pPageReference, new DatabaseEntry(pSerializedPage));
+  }
+
+  /**
+   * Put a serialized page into the database.
+   * 
+   * @param pageReference
+   *          reference to the page
+   * @param valueEntry
+   *          the serialized page
+   * @return the key of the page
+   * @throws SirixIOException
+   *           if the page couldn't be written
+   */
+  private long put(final @Nonnull PageReference pageReference,
+    final @Nonnull DatabaseEntry valueEntry) throws SirixIOException {
     final DatabaseEntry keyEntry = new DatabaseEntry();
 
     // TODO make this better
     mNodepagekey++;
 
-    mPageBinding.objectToEntry(page, valueEntry);
     TupleBinding.getPrimitiveBinding(Long.class).objectToEntry(mNodepagekey,
       keyEntry);
 
@@ -184,20 +206,28 @@ public final class BerkeleyWriter implements IWriter {
   public void writeFirstReference(@Nonnull final PageReference pPageReference)
     throws SirixIOException {
     write(pPageReference);
+    writeBeacon(pPageReference.getKey());
+  }
 
+  @Override
+  public void flush() {
+    // Pages are written through the database transaction.
+  }
+
+  @Override
+  public void writeBeacon(final long pKey) throws SirixIOException {
     final DatabaseEntry keyEntry = new DatabaseEntry();
     TupleBinding.getPrimitiveBinding(Long.class).objectToEntry(-1l, keyEntry);
 
     final DatabaseEntry valueEntry = new DatabaseEntry();
-    TupleBinding.getPrimitiveBinding(Long.class).objectToEntry(
-      pPageReference.getKey(), valueEntry);
+    TupleBinding.getPrimitiveBinding(Long.class).objectToEntry(pKey,
+      valueEntry);
 
     try {
       mDatabase.put(mTxn, keyEntry, valueEntry);
     } catch (final DatabaseException exc) {
       throw new SirixIOException(exc);
     }
-
   }
 
   @Override
@@ -3,6 +3,7 @@
  */
 package org.sirix.io.bytepipe;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -69,6 +70,16 @@ public final class ByteHandlePipeline implements IByteHandler {
     return pipeData;
   }
 
+  @Override
+  public ByteBuffer deserialize(final @Nonnull ByteBuffer pToDeserialize)
+    throws SirixIOException {
+    ByteBuffer pipeData = pToDeserialize;
+    for (int i = mParts.size() - 1; i >= 0; i--) {
+      pipeData = mParts.get(i).deserialize(pipeData);
+    }
+    return pipeData;
+  }
+
   /**
    * Get byte handler components.
    * 
@@ -80,7 +91,7 @@ public final class ByteHandlePipeline implements IByteHandler {
 
   @Override
   public IByteHandler getInstance() {
-    return new ByteHandlePipeline();
+    return new ByteHandlePipeline(this);
   }
 
 }
@@ -4,6 +4,8 @@
 package org.sirix.io.bytepipe;
 
 import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.zip.DataFormatException;
 import java.util.zip.Deflater;
 import java.util.zip.Inflater;
@@ -28,6 +30,12 @@ public class DeflateCompressor implements IByteHandler {
 
   private final ByteArrayOutputStream mOut;
 
+  /** Reused input array, if a buffer is not backed by an accessible array. */
+  private byte[] mInput;
+
+  /** Reused array, which holds the inflated bytes. */
+  private byte[] mInflated;
+
   /**
    * Constructor.
    */
@@ -36,6 +44,8 @@ public class DeflateCompressor implements IByteHandler {
     mDecompressor = new Inflater();
     mTmp = new byte[32767];
     mOut = new ByteArrayOutputStream();
+    mInput = new byte[0];
+    mInflated = new byte[32768];
   }
 
   @Override
@@ -72,7 +82,45 @@ public class DeflateCompressor implements IByteHandler {
     final byte[] result = mOut.toByteArray();
     return result;
   }
-  
+
+  @Override
+  public ByteBuffer deserialize(@Nonnull final ByteBuffer pToDeserialize)
+    throws SirixIOException {
+    mDecompressor.reset();
+    final int length = pToDeserialize.remaining();
+    if (pToDeserialize.hasArray()) {
+      mDecompressor.setInput(pToDeserialize.array(), pToDeserialize
+        .arrayOffset()
+        + pToDeserialize.position(), length);
+      pToDeserialize.position(pToDeserialize.limit());
+    } else {
+      // The inflater is not able to read from direct buffers.
+      if (mInput.length < length) {
+        mInput = new byte[Math.max(length, mInput.length << 1)];
+      }
+      pToDeserialize.get(mInput, 0, length);
+      mDecompressor.setInput(mInput, 0, length);
+    }
+    int count = 0;
+    try {
+      while (!mDecompressor.finished()) {
+        if (count == mInflated.length) {
+          mInflated = Arrays.copyOf(mInflated, mInflated.length << 1);
+        }
+        final int inflated =
+          mDecompressor.inflate(mInflated, count, mInflated.length - count);
+        if (inflated == 0 && !mDecompressor.finished()
+          && (mDecompressor.needsInput() || mDecompressor.needsDictionary())) {
+          throw new SirixIOException("Truncated deflate stream!");
+        }
+        count += inflated;
+      }
+    } catch (final DataFormatException e) {
+      throw new SirixIOException(e);
+    }
+    return ByteBuffer.wrap(mInflated, 0, count);
+  }
+
   @Override
   public IByteHandler getInstance() {
     return new DeflateCompressor();
@@ -3,6 +3,7 @@
  */
 package org.sirix.io.bytepipe;
 
+import java.nio.ByteBuffer;
 import java.security.GeneralSecurityException;
 import java.security.InvalidKeyException;
 import java.security.Key;
@@ -35,6 +36,11 @@ public class Encryptor implements IByteHandler {
   /** Key for access data. */
   private final Key mKey;
 
+  /** Reused buffers for the decryption iterations. */
+  private final ByteBuffer[] mBuffers = new ByteBuffer[] {
+    ByteBuffer.allocate(0), ByteBuffer.allocate(0)
+  };
+
   /** 128bit key. */
   private static final byte[] KEYVALUE = new byte[] {
     'k', 'k', 'k', 'k', 'k', 'k', 'k', 'k', 'k', 'k', 'k', 'k', 'k', 'k', 'k',
@@ -94,7 +100,32 @@ public class Encryptor implements IByteHandler {
       throw new SirixIOException(e);
     }
   }
-  
+
+  @Override
+  public ByteBuffer deserialize(@Nonnull final ByteBuffer pToDeserialize)
+    throws SirixIOException {
+    try {
+      mCipher.init(Cipher.DECRYPT_MODE, mKey);
+
+      ByteBuffer toDecrypt = pToDeserialize;
+      for (int i = 0; i < ITERATIONS; i++) {
+        final int size = mCipher.getOutputSize(toDecrypt.remaining());
+        ByteBuffer decValue = mBuffers[i & 1];
+        if (decValue.capacity() < size) {
+          decValue = ByteBuffer.allocate(size);
+          mBuffers[i & 1] = decValue;
+        }
+        decValue.clear();
+        mCipher.doFinal(toDecrypt, decValue);
+        decValue.flip();
+        toDecrypt = decValue;
+      }
+      return toDecrypt;
+    } catch (final GeneralSecurityException e) {
+      throw new SirixIOException(e);
+    }
+  }
+
   @Override
   public IByteHandler getInstance() {
     return new Encryptor();
@@ -1,5 +1,7 @@
 package org.sirix.io.bytepipe;
 
+import java.nio.ByteBuffer;
+
 import javax.annotation.Nonnull;
 
 import org.sirix.exception.SirixIOException;
@@ -35,7 +37,22 @@ public interface IByteHandler {
    */
   byte[] deserialize(@Nonnull byte[] pToDeserialize)
     throws SirixIOException;
-  
+
+  /**
+   * Method to deserialize the remaining bytes of a buffer, which are consumed.
+   * The returned buffer might be owned by the handler and reused, that is its
+   * content is only valid until the next invocation of this method.
+   * 
+   * @param pToDeserialize
+   *          to deserialize
+   * @return buffer, whose remaining bytes are the result of the
+   *         deserialization
+   * @throws SirixIOException
+   *           if a byte handling exception occurs
+   */
+  ByteBuffer deserialize(@Nonnull ByteBuffer pToDeserialize)
+    throws SirixIOException;
+
   /**
    * Method to retrieve a new instance.
    * 
@@ -1,6 +1,7 @@
 package org.sirix.io.bytepipe;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import javax.annotation.Nonnull;
 
@@ -15,6 +16,12 @@ import org.xerial.snappy.Snappy;
  */
 public class SnappyCompressor implements IByteHandler {
 
+  /** Reused input array, if a buffer is not backed by an accessible array. */
+  private byte[] mInput = new byte[0];
+
+  /** Reused array, which holds the uncompressed bytes. */
+  private byte[] mUncompressed = new byte[0];
+
   @Override
   public byte[] serialize(final @Nonnull byte[] pToSerialize)
     throws SirixIOException {
@@ -39,6 +46,38 @@ public class SnappyCompressor implements IByteHandler {
     return uncompressed;
   }
 
+  @Override
+  public ByteBuffer deserialize(final @Nonnull ByteBuffer pToDeserialize)
+    throws SirixIOException {
+    final int length = pToDeserialize.remaining();
+    final byte[] input;
+    final int offset;
+    if (pToDeserialize.hasArray()) {
+      input = pToDeserialize.array();
+      offset = pToDeserialize.arrayOffset() + pToDeserialize.position();
+      pToDeserialize.position(pToDeserialize.limit());
+    } else {
+      if (mInput.length < length) {
+        mInput = new byte[length];
+      }
+      pToDeserialize.get(mInput, 0, length);
+      input = mInput;
+      offset = 0;
+    }
+    try {
+      final int uncompressedLength =
+        Snappy.uncompressedLength(input, offset, length);
+      if (mUncompressed.length < uncompressedLength) {
+        mUncompressed = new byte[uncompressedLength];
+      }
+      final int count =
+        Snappy.uncompress(input, offset, length, mUncompressed, 0);
+      return ByteBuffer.wrap(mUncompressed, 0, count);
+    } catch (final IOException e) {
+      throw new SirixIOException(e);
+    }
+  }
+
   @Override
   public IByteHandler getInstance() {
     return new SnappyCompressor();
@@ -29,13 +29,13 @@ package org.sirix.io.file;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
-import com.google.common.io.ByteArrayDataInput;
-import com.google.common.io.ByteStreams;
-
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 
+import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 
 import org.sirix.exception.SirixIOException;
@@ -71,6 +71,9 @@ public final class FileReader implements IReader {
   /** Inflater to decompress. */
   final IByteHandler mByteHandler;
 
+  /** Reused buffer, which holds the bytes of the page read last. */
+  private ByteBuffer mBuffer;
+
   /**
    * Constructor.
    * 
@@ -88,6 +91,7 @@ public final class FileReader implements IReader {
 
       mFile = new RandomAccessFile(pConcreteStorage, "r");
       mByteHandler = checkNotNull(pHandler);
+      mBuffer = ByteBuffer.allocate(1 << 15);
     } catch (final IOException e) {
       throw new SirixIOException(e);
     }
@@ -106,22 +110,50 @@ public final class FileReader implements IReader {
   public IPage read(final long pKey) throws SirixIOException {
     try {
       // Read page from file.
-      mFile.seek(pKey);
-      final int dataLength = mFile.readInt();
-      final byte[] page = new byte[dataLength];
-      mFile.read(page);
-
-      // Perform byte operations.
-      final ByteArrayDataInput input =
-        ByteStreams.newDataInput(mByteHandler.deserialize(page));
-      
-      // Return reader required to instantiate and deserialize page.
-      return PagePersistenter.deserializePage(input);
+      mBuffer.clear();
+      mBuffer.limit(OTHER_BEACON);
+      readFully(pKey);
+      final int dataLength = mBuffer.getInt(0);
+      if (mBuffer.capacity() < dataLength) {
+        mBuffer =
+          ByteBuffer.allocate(Math.max(dataLength, mBuffer.capacity() << 1));
+      }
+      mBuffer.clear();
+      mBuffer.limit(dataLength);
+      readFully(pKey + OTHER_BEACON);
+      mBuffer.flip();
+
+      // Perform byte operations and deserialize the page straight from the
+      // resulting buffer.
+      return PagePersistenter.deserializePage(mByteHandler
+        .deserialize(mBuffer));
     } catch (final IOException e) {
       throw new SirixIOException(e);
     }
   }
 
+  /**
+   * Positional read, which fills the remaining bytes of the reused buffer.
+   * 
+   * @param pPosition
+   *          offset in the file
+   * @throws IOException
+   *           if an I/O error occurs or the end of the file is reached
+   */
+  private void readFully(final @Nonnegative long pPosition)
+    throws IOException {
+    final FileChannel channel = mFile.getChannel();
+    long position = pPosition;
+    while (mBuffer.hasRemaining()) {
+      final int read = channel.read(mBuffer, position);
+      if (read == -1) {
+        throw new IOException(new StringBuilder("Unexpected end of file at ")
+          .append(position).append("!").toString());
+      }
+      position += read;
+    }
+  }
+
   @Override
   public PageReference readFirstReference() throws SirixIOException {
     final PageReference uberPageReference = new PageReference();
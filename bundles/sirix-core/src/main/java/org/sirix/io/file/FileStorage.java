@@ -27,10 +27,12 @@
 
 package org.sirix.io.file;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.io.File;
 
+import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 
 import org.sirix.access.conf.ResourceConfiguration;
@@ -58,16 +60,46 @@ public final class FileStorage implements IStorage {
   /** Byte handler pipeline. */
   private final ByteHandlePipeline mByteHandler;
 
+  /** Maximum number of bytes a writer buffers. */
+  private final long mBatchSize;
+
+  /** Determines if writers force the data file to the device on commit. */
+  private final boolean mSync;
+
   /**
-   * Constructor.
+   * Constructor using the default batch size and no forced writes.
    * 
    * @param pFile
    *          the location of the database
+   * @param pByteHandler
+   *          byte handler pipeline
    */
   public FileStorage(final @Nonnull File pFile,
     final @Nonnull ByteHandlePipeline pByteHandler) {
+    this(pFile, pByteHandler, ResourceConfiguration.COMMIT_BATCH_SIZE,
+      ResourceConfiguration.SYNC_ON_COMMIT);
+  }
+
+  /**
+   * Constructor.
+   * 
+   * @param pFile
+   *          the location of the database
+   * @param pByteHandler
+   *          byte handler pipeline
+   * @param pBatchSize
+   *          maximum number of bytes a writer buffers
+   * @param pSync
+   *          determines if writers force the data file to the device on commit
+   */
+  public FileStorage(final @Nonnull File pFile,
+    final @Nonnull ByteHandlePipeline pByteHandler,
+    final @Nonnegative long pBatchSize, final boolean pSync) {
+    checkArgument(pBatchSize >= 0, "pBatchSize must be >= 0!");
     mFile = checkNotNull(pFile);
     mByteHandler = checkNotNull(pByteHandler);
+    mBatchSize = pBatchSize;
+    mSync = pSync;
   }
 
   @Override
@@ -79,7 +111,7 @@ public final class FileStorage implements IStorage {
   @Override
   public IWriter getWriter() throws SirixIOException {
     return new FileWriter(getConcreteStorage(), new ByteHandlePipeline(
-      mByteHandler));
+      mByteHandler), mBatchSize, mSync);
   }
 
   @Override
@@ -27,6 +27,8 @@
 
 package org.sirix.io.file;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
 import com.google.common.io.ByteArrayDataOutput;
 import com.google.common.io.ByteStreams;
 
@@ -34,12 +36,14 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
-import java.nio.ByteBuffer;
 
+import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 
+import org.sirix.access.conf.ResourceConfiguration;
 import org.sirix.exception.SirixIOException;
 import org.sirix.io.IWriter;
+import org.sirix.io.PageAppender;
 import org.sirix.io.bytepipe.IByteHandler;
 import org.sirix.page.PagePersistenter;
 import org.sirix.page.PageReference;
@@ -47,6 +51,8 @@ import org.sirix.page.interfaces.IPage;
 
 /**
  * File Writer for providing read/write access for file as a Sirix backend.
+ * Pages are appended in batches through a {@link PageAppender}, such that a
+ * commit results in a few large writes instead of one write per page.
  * 
  * @author Marc Kramis, Seabix
  * @author Sebastian Graf, University of Konstanz
@@ -57,24 +63,55 @@ public final class FileWriter implements IWriter {
   /** Random access to work on. */
   private final RandomAccessFile mFile;
 
+  /** Appends pages in batches. */
+  private final PageAppender mAppender;
+
   /** {@link FileReader} reference for this writer. */
   private final FileReader mReader;
 
   /**
-   * Constructor.
-   * 
+   * Constructor using the default batch size and no forced writes.
    * 
    * @param pStorage
    *          the concrete storage
+   * @param pHandler
+   *          byte handler
    * @throws SirixIOException
    *           if an I/O error occurs
    */
   public FileWriter(final @Nonnull File pStorage, final @Nonnull IByteHandler pHandler) throws SirixIOException {
+    this(pStorage, pHandler, ResourceConfiguration.COMMIT_BATCH_SIZE,
+      ResourceConfiguration.SYNC_ON_COMMIT);
+  }
+
+  /**
+   * Constructor.
+   * 
+   * @param pStorage
+   *          the concrete storage
+   * @param pHandler
+   *          byte handler
+   * @param pBatchSize
+   *          maximum number of bytes buffered until they are written,
+   *          {@code 0} to write each page immediately
+   * @param pSync
+   *          determines if the data file is forced to the device when the
+   *          first reference is written
+   * @throws SirixIOException
+   *           if an I/O error occurs
+   */
+  public FileWriter(final @Nonnull File pStorage,
+    final @Nonnull IByteHandler pHandler, final @Nonnegative long pBatchSize,
+    final boolean pSync) throws SirixIOException {
+    checkArgument(pBatchSize >= 0, "pBatchSize must be >= 0!");
     try {
       mFile = new RandomAccessFile(pStorage, "rw");
     } catch (final FileNotFoundException fileExc) {
       throw new SirixIOException(fileExc);
     }
+    mAppender =
+      new PageAppender(mFile.getChannel(), FileReader.FIRST_BEACON,
+        pBatchSize, pSync);
     mReader = new FileReader(pStorage, pHandler);
   }
 
@@ -96,61 +133,63 @@ public final class FileWriter implements IWriter {
     PagePersistenter.serializePage(output, page);
 
     // Perform byte operations.
-    try {
-      final byte[] decryptedPage =
-        mReader.mByteHandler.serialize(output.toByteArray());
-
-      final byte[] writtenPage =
-        new byte[decryptedPage.length + FileReader.OTHER_BEACON];
-      final ByteBuffer buffer = ByteBuffer.allocate(writtenPage.length);
-      buffer.putInt(decryptedPage.length);
-      buffer.put(decryptedPage);
-      buffer.position(0);
-      buffer.get(writtenPage, 0, writtenPage.length);
-
-      // Getting actual offset and appending to the end of the current
-      // file
-      final long fileSize = mFile.length();
-      final long offset = fileSize == 0 ? FileReader.FIRST_BEACON : fileSize;
-      mFile.seek(offset);
-      mFile.write(writtenPage);
-
-      // Remember page coordinates.
-      pPageReference.setKey(offset);
-      return offset;
-    } catch (final IOException e) {
-      throw new SirixIOException(e);
-    }
+    final byte[] decryptedPage =
+      mReader.mByteHandler.serialize(output.toByteArray());
+
+    return write(pPageReference, decryptedPage);
+  }
+
+  @Override
+  public long write(final @Nonnull PageReference pPageReference,
+    final @Nonnull byte[] pSerializedPage) throws SirixIOException {
+    // Append to the end of the current file.
+    final long offset = mAppender.append(pSerializedPage);
+
+    // Remember page coordinates.
+    pPageReference.setKey(offset);
+    return offset;
   }
 
   @Override
   public void close() throws SirixIOException {
     try {
-      if (mFile != null) {
-        mFile.close();
-      }
-      if (mReader != null) {
-        mReader.close();
+      mAppender.flush();
+    } finally {
+      try {
+        if (mFile != null) {
+          mFile.close();
+        }
+        if (mReader != null) {
+          mReader.close();
+        }
+      } catch (final IOException e) {
+        throw new SirixIOException(e);
       }
-    } catch (final IOException e) {
-      throw new SirixIOException(e);
     }
   }
 
   @Override
   public void writeFirstReference(@Nonnull final PageReference pPageReference)
     throws SirixIOException {
-    try {
-      write(pPageReference);
-      mFile.seek(0);
-      mFile.writeLong(pPageReference.getKey());
-    } catch (final IOException exc) {
-      throw new SirixIOException(exc);
-    }
+    write(pPageReference);
+    mAppender.writeBeacon(pPageReference.getKey());
+  }
+
+  @Override
+  public void flush() throws SirixIOException {
+    mAppender.flush();
+  }
+
+  @Override
+  public void writeBeacon(final long pKey) throws SirixIOException {
+    mAppender.writeBeacon(pKey);
   }
 
   @Override
   public IPage read(final long pKey) throws SirixIOException {
+    if (mAppender.isPending(pKey)) {
+      mAppender.flush();
+    }
     return mReader.read(pKey);
   }
 
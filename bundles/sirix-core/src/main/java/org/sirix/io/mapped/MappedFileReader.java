@@ -0,0 +1,105 @@
+/**
+ * Copyright (c) 2011, University of Konstanz, Distributed Systems Group
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the University of Konstanz nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sirix.io.mapped;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import javax.annotation.Nonnull;
+
+import org.sirix.exception.SirixIOException;
+import org.sirix.io.IReader;
+import org.sirix.io.bytepipe.IByteHandler;
+import org.sirix.page.PagePersistenter;
+import org.sirix.page.PageReference;
+import org.sirix.page.UberPage;
+import org.sirix.page.interfaces.IPage;
+
+/**
+ * Memory mapped file reader. Used for read transactions to provide read only
+ * access on the mapping shared by all readers of a {@link MappedFileStorage}.
+ * 
+ * @author Johannes Lichtenberger, University of Konstanz
+ * 
+ */
+public final class MappedFileReader implements IReader {
+
+  /** Storage which holds the mapping. */
+  private final MappedFileStorage mStorage;
+
+  /** Inflater to decompress. */
+  final IByteHandler mByteHandler;
+
+  /**
+   * Constructor.
+   * 
+   * @param pStorage
+   *          storage which holds the mapping
+   * @param pHandler
+   *          byte handler
+   */
+  MappedFileReader(final @Nonnull MappedFileStorage pStorage,
+    final @Nonnull IByteHandler pHandler) {
+    mStorage = checkNotNull(pStorage);
+    mByteHandler = checkNotNull(pHandler);
+  }
+
+  /**
+   * Read page from storage.
+   * 
+   * @param pKey
+   *          key of page reference to read
+   * @return the deserialized page
+   * @throws SirixIOException
+   *           if there was an error during reading.
+   */
+  @Override
+  public IPage read(final long pKey) throws SirixIOException {
+    // Read page from mapped file.
+    final int dataLength = mStorage.readInt(pKey);
+
+    // Perform byte operations on a view of the mapping and deserialize the
+    // page straight from the resulting buffer.
+    return PagePersistenter.deserializePage(mByteHandler.deserialize(mStorage
+      .slice(pKey + MappedFileStorage.OTHER_BEACON, dataLength)));
+  }
+
+  @Override
+  public PageReference readFirstReference() throws SirixIOException {
+    final PageReference uberPageReference = new PageReference();
+    // Read primary beacon.
+    uberPageReference.setKey(mStorage.readLong(0));
+    final UberPage page = (UberPage)read(uberPageReference.getKey());
+    uberPageReference.setPage(page);
+    return uberPageReference;
+  }
+
+  @Override
+  public void close() {
+    // Nothing to do, the mapping is owned by the storage.
+  }
+}
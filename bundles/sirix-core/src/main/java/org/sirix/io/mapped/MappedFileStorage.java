@@ -0,0 +1,363 @@
+/**
+ * Copyright (c) 2011, University of Konstanz, Distributed Systems Group
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the University of Konstanz nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sirix.io.mapped;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+
+import org.sirix.access.conf.ResourceConfiguration;
+import org.sirix.exception.SirixIOException;
+import org.sirix.io.IReader;
+import org.sirix.io.IStorage;
+import org.sirix.io.IWriter;
+import org.sirix.io.bytepipe.ByteHandlePipeline;
+import org.sirix.io.bytepipe.IByteHandler;
+import org.sirix.io.file.FileStorage;
+
+/**
+ * <h1>MappedFileStorage</h1>
+ * 
+ * <p>
+ * Factory to provide memory mapped file access as a backend. The data file has
+ * the same layout as the one of the {@link FileStorage}, thus resources can be
+ * switched between both backends.
+ * </p>
+ * 
+ * <p>
+ * The data file is mapped in segments of {@link #SEGMENT_SIZE} bytes. The
+ * mapping is shared by all {@link IReader}s of this storage. Reads are
+ * positional and don't modify shared state, thus no locks are involved unless a
+ * read exceeds the currently mapped region, because a writer appended pages in
+ * the meantime.
+ * </p>
+ * 
+ * @author Johannes Lichtenberger, University of Konstanz
+ * 
+ */
+public final class MappedFileStorage implements IStorage {
+
+  /** File name. */
+  private static final String FILENAME = "tt.tnk";
+
+  /** Beacon of first references. */
+  static final int FIRST_BEACON = 12;
+
+  /** Beacon of the other references. */
+  static final int OTHER_BEACON = 4;
+
+  /** 2^SEGMENT_SIZE_EXPONENT = SEGMENT_SIZE. */
+  static final int SEGMENT_SIZE_EXPONENT = 26;
+
+  /** Size of a single mapped segment in bytes. */
+  static final long SEGMENT_SIZE = 1L << SEGMENT_SIZE_EXPONENT;
+
+  /** Location of the resource. */
+  private final File mFile;
+
+  /** Byte handler pipeline. */
+  private final ByteHandlePipeline mByteHandler;
+
+  /** Maximum number of bytes a writer buffers. */
+  private final long mBatchSize;
+
+  /** Determines if writers force the data file to the device on commit. */
+  private final boolean mSync;
+
+  /** Random access file, only used to obtain the channel. */
+  private RandomAccessFile mDataFile;
+
+  /** Read only channel used for mapping the data file. */
+  private FileChannel mChannel;
+
+  /** Mapped segments, replaced as a whole if the mapping grows. */
+  private volatile MappedByteBuffer[] mSegments;
+
+  /** Number of mapped bytes. */
+  private volatile long mMappedSize;
+
+  /**
+   * Constructor using the default batch size and no forced writes.
+   * 
+   * @param pFile
+   *          the location of the resource
+   * @param pByteHandler
+   *          byte handler pipeline
+   */
+  public MappedFileStorage(final @Nonnull File pFile,
+    final @Nonnull ByteHandlePipeline pByteHandler) {
+    this(pFile, pByteHandler, ResourceConfiguration.COMMIT_BATCH_SIZE,
+      ResourceConfiguration.SYNC_ON_COMMIT);
+  }
+
+  /**
+   * Constructor.
+   * 
+   * @param pFile
+   *          the location of the resource
+   * @param pByteHandler
+   *          byte handler pipeline
+   * @param pBatchSize
+   *          maximum number of bytes a writer buffers
+   * @param pSync
+   *          determines if writers force the data file to the device on commit
+   */
+  public MappedFileStorage(final @Nonnull File pFile,
+    final @Nonnull ByteHandlePipeline pByteHandler,
+    final @Nonnegative long pBatchSize, final boolean pSync) {
+    checkArgument(pBatchSize >= 0, "pBatchSize must be >= 0!");
+    mFile = checkNotNull(pFile);
+    mByteHandler = checkNotNull(pByteHandler);
+    mBatchSize = pBatchSize;
+    mSync = pSync;
+    mSegments = new MappedByteBuffer[0];
+  }
+
+  @Override
+  public IReader getReader() throws SirixIOException {
+    open();
+    return new MappedFileReader(this, new ByteHandlePipeline(mByteHandler));
+  }
+
+  @Override
+  public IWriter getWriter() throws SirixIOException {
+    open();
+    return new MappedFileWriter(this, getConcreteStorage(),
+      new ByteHandlePipeline(mByteHandler), mBatchSize, mSync);
+  }
+
+  /**
+   * Open the read only channel if it isn't opened yet.
+   * 
+   * @throws SirixIOException
+   *           if an I/O error occurs
+   */
+  private synchronized void open() throws SirixIOException {
+    if (mChannel == null) {
+      try {
+        final File file = getConcreteStorage();
+        if (!file.exists()) {
+          file.getParentFile().mkdirs();
+          file.createNewFile();
+        }
+        mDataFile = new RandomAccessFile(file, "r");
+        mChannel = mDataFile.getChannel();
+      } catch (final IOException e) {
+        throw new SirixIOException(e);
+      }
+    }
+  }
+
+  @Override
+  public synchronized void close() throws SirixIOException {
+    try {
+      if (mDataFile != null) {
+        mDataFile.close();
+      }
+    } catch (final IOException e) {
+      throw new SirixIOException(e);
+    } finally {
+      // Mapped buffers are released once they are garbage collected.
+      mSegments = new MappedByteBuffer[0];
+      mMappedSize = 0;
+      mChannel = null;
+      mDataFile = null;
+    }
+  }
+
+  /**
+   * Getting concrete storage for this file.
+   * 
+   * @return the concrete storage for this database
+   */
+  private File getConcreteStorage() {
+    return new File(mFile, new StringBuilder(ResourceConfiguration.Paths.Data
+      .getFile().getName()).append(File.separator).append(FILENAME).toString());
+  }
+
+  @Override
+  public boolean exists() throws SirixIOException {
+    final File file = getConcreteStorage();
+    final boolean returnVal = file.length() > 0;
+    return returnVal;
+  }
+
+  @Override
+  public IByteHandler getByteHandler() {
+    return mByteHandler;
+  }
+
+  /**
+   * Make sure that all bytes up to {@code pEnd} are mapped.
+   * 
+   * @param pEnd
+   *          exclusive end offset
+   * @throws SirixIOException
+   *           if the data file is smaller or an I/O error occurs
+   */
+  private synchronized void ensureMapped(final @Nonnegative long pEnd)
+    throws SirixIOException {
+    if (pEnd <= mMappedSize) {
+      return;
+    }
+    if (mChannel == null) {
+      throw new SirixIOException("Storage is already closed!");
+    }
+    try {
+      final long size = mChannel.size();
+      if (pEnd > size) {
+        throw new SirixIOException(new StringBuilder("Offset ").append(pEnd)
+          .append(" exceeds the size of the data file (").append(size).append(
+            ")!").toString());
+      }
+      final MappedByteBuffer[] oldSegments = mSegments;
+      final int count = (int)((size + SEGMENT_SIZE - 1) >>> SEGMENT_SIZE_EXPONENT);
+      final MappedByteBuffer[] segments = new MappedByteBuffer[count];
+      for (int i = 0; i < count; i++) {
+        if (i < oldSegments.length && oldSegments[i].capacity() == SEGMENT_SIZE) {
+          // Reuse completely mapped segments.
+          segments[i] = oldSegments[i];
+        } else {
+          final long start = (long)i << SEGMENT_SIZE_EXPONENT;
+          segments[i] =
+            mChannel.map(MapMode.READ_ONLY, start, Math.min(SEGMENT_SIZE, size
+              - start));
+        }
+      }
+      mSegments = segments;
+      mMappedSize = size;
+    } catch (final IOException e) {
+      throw new SirixIOException(e);
+    }
+  }
+
+  /**
+   * Positional read of bytes from the mapped data file.
+   * 
+   * @param pPosition
+   *          offset in the data file
+   * @param pDest
+   *          destination array, which is filled completely
+   * @throws SirixIOException
+   *           if an I/O error occurs
+   */
+  void read(final @Nonnegative long pPosition, final @Nonnull byte[] pDest)
+    throws SirixIOException {
+    checkArgument(pPosition >= 0, "pPosition must be >= 0!");
+    final long end = pPosition + pDest.length;
+    if (end > mMappedSize) {
+      ensureMapped(end);
+    }
+    final MappedByteBuffer[] segments = mSegments;
+    long position = pPosition;
+    int offset = 0;
+    while (offset < pDest.length) {
+      final ByteBuffer segment =
+        segments[(int)(position >>> SEGMENT_SIZE_EXPONENT)].duplicate();
+      segment.position((int)(position & (SEGMENT_SIZE - 1)));
+      final int length = Math.min(pDest.length - offset, segment.remaining());
+      segment.get(pDest, offset, length);
+      offset += length;
+      position += length;
+    }
+  }
+
+  /**
+   * Get a read only view of a range of the mapped data file. Ranges inside
+   * one segment are not copied, ranges spanning two segments are copied into
+   * a new buffer.
+   * 
+   * @param pPosition
+   *          offset in the data file
+   * @param pLength
+   *          length of the range
+   * @return buffer, whose remaining bytes are the bytes of the range
+   * @throws SirixIOException
+   *           if an I/O error occurs
+   */
+  ByteBuffer slice(final @Nonnegative long pPosition,
+    final @Nonnegative int pLength) throws SirixIOException {
+    checkArgument(pPosition >= 0, "pPosition must be >= 0!");
+    checkArgument(pLength >= 0, "pLength must be >= 0!");
+    final long end = pPosition + pLength;
+    if (end > mMappedSize) {
+      ensureMapped(end);
+    }
+    final int offset = (int)(pPosition & (SEGMENT_SIZE - 1));
+    if (offset + pLength > SEGMENT_SIZE) {
+      final byte[] bytes = new byte[pLength];
+      read(pPosition, bytes);
+      return ByteBuffer.wrap(bytes);
+    }
+    final ByteBuffer segment =
+      mSegments[(int)(pPosition >>> SEGMENT_SIZE_EXPONENT)].asReadOnlyBuffer();
+    segment.limit(offset + pLength);
+    segment.position(offset);
+    return segment.slice();
+  }
+
+  /**
+   * Positional read of an {@code int} from the mapped data file.
+   * 
+   * @param pPosition
+   *          offset in the data file
+   * @return the {@code int} value
+   * @throws SirixIOException
+   *           if an I/O error occurs
+   */
+  int readInt(final @Nonnegative long pPosition) throws SirixIOException {
+    final byte[] bytes = new byte[4];
+    read(pPosition, bytes);
+    return ByteBuffer.wrap(bytes).getInt();
+  }
+
+  /**
+   * Positional read of a {@code long} from the mapped data file.
+   * 
+   * @param pPosition
+   *          offset in the data file
+   * @return the {@code long} value
+   * @throws SirixIOException
+   *           if an I/O error occurs
+   */
+  long readLong(final @Nonnegative long pPosition) throws SirixIOException {
+    final byte[] bytes = new byte[8];
+    read(pPosition, bytes);
+    return ByteBuffer.wrap(bytes).getLong();
+  }
+}
@@ -0,0 +1,181 @@
+/**
+ * Copyright (c) 2011, University of Konstanz, Distributed Systems Group
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the University of Konstanz nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sirix.io.mapped;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.io.ByteArrayDataOutput;
+import com.google.common.io.ByteStreams;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+
+import org.sirix.exception.SirixIOException;
+import org.sirix.io.IWriter;
+import org.sirix.io.PageAppender;
+import org.sirix.io.bytepipe.IByteHandler;
+import org.sirix.page.PagePersistenter;
+import org.sirix.page.PageReference;
+import org.sirix.page.interfaces.IPage;
+
+/**
+ * Writer for the memory mapped file backend. Pages are appended through a
+ * {@link PageAppender} with channel writes, such that the shared read only
+ * mapping of the {@link MappedFileStorage} is never invalidated. The end of
+ * the data file is tracked by the appender instead of querying the file length
+ * for every page.
+ * 
+ * @author Johannes Lichtenberger, University of Konstanz
+ * 
+ */
+public final class MappedFileWriter implements IWriter {
+
+  /** Random access file, only used to obtain the channel. */
+  private final RandomAccessFile mFile;
+
+  /** Appends pages in batches. */
+  private final PageAppender mAppender;
+
+  /** {@link MappedFileReader} reference for this writer. */
+  private final MappedFileReader mReader;
+
+  /**
+   * Constructor.
+   * 
+   * @param pStorage
+   *          storage which holds the mapping
+   * @param pConcreteStorage
+   *          the concrete data file
+   * @param pHandler
+   *          byte handler
+   * @param pBatchSize
+   *          maximum number of bytes buffered until they are written
+   * @param pSync
+   *          determines if the data file is forced to the device when the
+   *          first reference is written
+   * @throws SirixIOException
+   *           if an I/O error occurs
+   */
+  MappedFileWriter(final @Nonnull MappedFileStorage pStorage,
+    final @Nonnull File pConcreteStorage, final @Nonnull IByteHandler pHandler,
+    final @Nonnegative long pBatchSize, final boolean pSync)
+    throws SirixIOException {
+    try {
+      mFile = new RandomAccessFile(checkNotNull(pConcreteStorage), "rw");
+    } catch (final IOException e) {
+      throw new SirixIOException(e);
+    }
+    mAppender =
+      new PageAppender(mFile.getChannel(), MappedFileStorage.FIRST_BEACON,
+        pBatchSize, pSync);
+    mReader = new MappedFileReader(pStorage, pHandler);
+  }
+
+  /**
+   * Write page contained in page reference to storage.
+   * 
+   * @param pPageReference
+   *          page reference to write
+   * @throws SirixIOException
+   *           due to errors during writing.
+   */
+  @Override
+  public long write(final @Nonnull PageReference pPageReference)
+    throws SirixIOException {
+    // Serialise page.
+    final IPage page = pPageReference.getPage();
+    assert page != null;
+    final ByteArrayDataOutput output = ByteStreams.newDataOutput();
+    PagePersistenter.serializePage(output, page);
+
+    // Perform byte operations.
+    return write(pPageReference, mReader.mByteHandler.serialize(output
+      .toByteArray()));
+  }
+
+  @Override
+  public long write(final @Nonnull PageReference pPageReference,
+    final @Nonnull byte[] pSerializedPage) throws SirixIOException {
+    // Append to the end of the data file.
+    final long offset = mAppender.append(pSerializedPage);
+
+    // Remember page coordinates.
+    pPageReference.setKey(offset);
+    return offset;
+  }
+
+  @Override
+  public void close() throws SirixIOException {
+    try {
+      mAppender.flush();
+    } finally {
+      try {
+        mFile.close();
+      } catch (final IOException e) {
+        throw new SirixIOException(e);
+      } finally {
+        mReader.close();
+      }
+    }
+  }
+
+  @Override
+  public void writeFirstReference(final @Nonnull PageReference pPageReference)
+    throws SirixIOException {
+    write(pPageReference);
+    mAppender.writeBeacon(pPageReference.getKey());
+  }
+
+  @Override
+  public void flush() throws SirixIOException {
+    mAppender.flush();
+  }
+
+  @Override
+  public void writeBeacon(final long pKey) throws SirixIOException {
+    mAppender.writeBeacon(pKey);
+  }
+
+  @Override
+  public IPage read(final long pKey) throws SirixIOException {
+    if (mAppender.isPending(pKey)) {
+      mAppender.flush();
+    }
+    return mReader.read(pKey);
+  }
+
+  @Override
+  public PageReference readFirstReference() throws SirixIOException {
+    return mReader.readFirstReference();
+  }
+
+}
@@ -26,6 +26,7 @@
  */
 package org.sirix.node;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -35,7 +36,13 @@ import java.util.Set;
 
 import javax.annotation.Nonnull;
 
+import static org.sirix.node.ERecordFormat.getLong;
+import static org.sirix.node.ERecordFormat.putLong;
+
 import org.sirix.index.path.PathNode;
+import org.sirix.index.path.PathReferences;
+import org.sirix.index.value.BPlusNode;
+import org.sirix.io.ByteBufferDataInput;
 import org.sirix.index.value.AVLNode;
 import org.sirix.node.delegates.NameNodeDelegate;
 import org.sirix.node.delegates.NodeDelegate;
@@ -64,32 +71,35 @@ public enum EKind implements IKind {
 	/** Node kind is element. */
 	ELEMENT((byte) 1, ElementNode.class) {
 		@Override
-		public INodeBase deserialize(final @Nonnull ByteArrayDataInput pSource) {
+		public INodeBase deserialize(final @Nonnull ByteArrayDataInput pSource,
+				final @Nonnull ERecordFormat pFormat) {
 			// Node delegate.
-			final NodeDelegate nodeDel = deserializeNodeDelegate(pSource);
+			final NodeDelegate nodeDel = deserializeNodeDelegate(pSource, pFormat);
 
 			// Struct delegate.
 			final StructNodeDelegate structDel = deserializeStructDel(nodeDel,
-					pSource);
+					pSource, pFormat);
 
 			// Name delegate.
-			final NameNodeDelegate nameDel = deserializeNameDelegate(nodeDel, pSource);
+			final NameNodeDelegate nameDel = deserializeNameDelegate(nodeDel,
+					pSource, pFormat);
 
 			// Attributes.
-			int attrCount = pSource.readInt();
+			final long currKey = nodeDel.getNodeKey();
+			int attrCount = pFormat.readInt(pSource);
 			final List<Long> attrKeys = new ArrayList<>(attrCount);
 			final BiMap<Integer, Long> attrs = HashBiMap.<Integer, Long> create();
 			for (int i = 0; i < attrCount; i++) {
-				final long nodeKey = pSource.readLong();
+				final long nodeKey = pFormat.readKey(pSource, currKey);
 				attrKeys.add(nodeKey);
 				attrs.put(pSource.readInt(), nodeKey);
 			}
 
 			// Namespaces.
-			int nsCount = pSource.readInt();
+			int nsCount = pFormat.readInt(pSource);
 			final List<Long> namespKeys = new ArrayList<>(nsCount);
 			for (int i = 0; i < nsCount; i++) {
-				namespKeys.add(pSource.readLong());
+				namespKeys.add(pFormat.readKey(pSource, currKey));
 			}
 
 			return new ElementNode(nodeDel, structDel, nameDel, attrKeys, attrs,
@@ -98,19 +108,21 @@ public enum EKind implements IKind {
 
 		@Override
 		public void serialize(final @Nonnull ByteArrayDataOutput pSink,
-				final @Nonnull INodeBase pToSerialize) {
+				final @Nonnull INodeBase pToSerialize,
+				final @Nonnull ERecordFormat pFormat) {
 			final ElementNode node = (ElementNode) pToSerialize;
-			serializeDelegate(node.getNodeDelegate(), pSink);
-			serializeStrucDelegate(node.getStructNodeDelegate(), pSink);
-			serializeNameDelegate(node.getNameNodeDelegate(), pSink);
-			pSink.writeInt(node.getAttributeCount());
+			serializeDelegate(node.getNodeDelegate(), pSink, pFormat);
+			serializeStrucDelegate(node.getStructNodeDelegate(), pSink, pFormat);
+			serializeNameDelegate(node.getNameNodeDelegate(), pSink, pFormat);
+			final long currKey = node.getNodeKey();
+			pFormat.writeInt(pSink, node.getAttributeCount());
 			for (int i = 0, attCount = node.getAttributeCount(); i < attCount; i++) {
-				pSink.writeLong(node.getAttributeKey(i));
+				pFormat.writeKey(pSink, currKey, node.getAttributeKey(i));
 				pSink.writeInt(node.getNameKey());
 			}
-			pSink.writeInt(node.getNamespaceCount());
+			pFormat.writeInt(pSink, node.getNamespaceCount());
 			for (int i = 0, nspCount = node.getNamespaceCount(); i < nspCount; i++) {
-				pSink.writeLong(node.getNamespaceKey(i));
+				pFormat.writeKey(pSink, currKey, node.getNamespaceKey(i));
 			}
 		}
 	},
@@ -118,17 +130,19 @@ public enum EKind implements IKind {
 	/** Node kind is attribute. */
 	ATTRIBUTE((byte) 2, AttributeNode.class) {
 		@Override
-		public INodeBase deserialize(final @Nonnull ByteArrayDataInput pSource) {
+		public INodeBase deserialize(final @Nonnull ByteArrayDataInput pSource,
+				final @Nonnull ERecordFormat pFormat) {
 			// Node delegate.
-			final NodeDelegate nodeDel = deserializeNodeDelegate(pSource);
+			final NodeDelegate nodeDel = deserializeNodeDelegate(pSource, pFormat);
 
 			// Name delegate.
-			final NameNodeDelegate nameDel = deserializeNameDelegate(nodeDel, pSource);
+			final NameNodeDelegate nameDel = deserializeNameDelegate(nodeDel,
+					pSource, pFormat);
 
 			// Val delegate.
 			final boolean isCompressed = pSource.readByte() == (byte) 1 ? true
 					: false;
-			final byte[] vals = new byte[pSource.readInt()];
+			final byte[] vals = new byte[pFormat.readInt(pSource)];
 			pSource.readFully(vals, 0, vals.length);
 			final ValNodeDelegate valDel = new ValNodeDelegate(nodeDel, vals,
 					isCompressed);
@@ -139,47 +153,52 @@ public enum EKind implements IKind {
 
 		@Override
 		public void serialize(final @Nonnull ByteArrayDataOutput pSink,
-				final @Nonnull INodeBase pToSerialize) {
+				final @Nonnull INodeBase pToSerialize,
+				final @Nonnull ERecordFormat pFormat) {
 			AttributeNode node = (AttributeNode) pToSerialize;
-			serializeDelegate(node.getNodeDelegate(), pSink);
-			serializeNameDelegate(node.getNameNodeDelegate(), pSink);
-			serializeValDelegate(node.getValNodeDelegate(), pSink);
+			serializeDelegate(node.getNodeDelegate(), pSink, pFormat);
+			serializeNameDelegate(node.getNameNodeDelegate(), pSink, pFormat);
+			serializeValDelegate(node.getValNodeDelegate(), pSink, pFormat);
 		}
 	},
 
 	/** Node kind is namespace. */
 	NAMESPACE((byte) 13, NamespaceNode.class) {
 		@Override
-		public INodeBase deserialize(final @Nonnull ByteArrayDataInput pSource) {
+		public INodeBase deserialize(final @Nonnull ByteArrayDataInput pSource,
+				final @Nonnull ERecordFormat pFormat) {
 			// Node delegate.
-			final NodeDelegate nodeDel = deserializeNodeDelegate(pSource);
+			final NodeDelegate nodeDel = deserializeNodeDelegate(pSource, pFormat);
 
 			// Name delegate.
-			final NameNodeDelegate nameDel = deserializeNameDelegate(nodeDel, pSource);
+			final NameNodeDelegate nameDel = deserializeNameDelegate(nodeDel,
+					pSource, pFormat);
 
 			return new NamespaceNode(nodeDel, nameDel);
 		}
 
 		@Override
 		public void serialize(final @Nonnull ByteArrayDataOutput pSink,
-				final @Nonnull INodeBase pToSerialize) {
+				final @Nonnull INodeBase pToSerialize,
+				final @Nonnull ERecordFormat pFormat) {
 			NamespaceNode node = (NamespaceNode) pToSerialize;
-			serializeDelegate(node.getNodeDelegate(), pSink);
-			serializeNameDelegate(node.getNameNodeDelegate(), pSink);
+			serializeDelegate(node.getNodeDelegate(), pSink, pFormat);
+			serializeNameDelegate(node.getNameNodeDelegate(), pSink, pFormat);
 		}
 	},
 
 	/** Node kind is text. */
 	TEXT((byte) 3, TextNode.class) {
 		@Override
-		public INodeBase deserialize(final @Nonnull ByteArrayDataInput pSource) {
+		public INodeBase deserialize(final @Nonnull ByteArrayDataInput pSource,
+				final @Nonnull ERecordFormat pFormat) {
 			// Node delegate.
-			final NodeDelegate nodeDel = deserializeNodeDelegate(pSource);
+			final NodeDelegate nodeDel = deserializeNodeDelegate(pSource, pFormat);
 
 			// Val delegate.
 			final boolean isCompressed = pSource.readByte() == (byte) 1 ? true
 					: false;
-			final byte[] vals = new byte[pSource.readInt()];
+			final byte[] vals = new byte[pFormat.readInt(pSource)];
 			pSource.readFully(vals, 0, vals.length);
 			final ValNodeDelegate valDel = new ValNodeDelegate(nodeDel, vals,
 					isCompressed);
@@ -187,8 +206,8 @@ public enum EKind implements IKind {
 			// Struct delegate.
 			final long nodeKey = nodeDel.getNodeKey();
 			final StructNodeDelegate structDel = new StructNodeDelegate(nodeDel,
-					EFixed.NULL_NODE_KEY.getStandardProperty(), nodeKey
-							- getLong(pSource), nodeKey - getLong(pSource), 0L, 0L);
+					EFixed.NULL_NODE_KEY.getStandardProperty(), pFormat.readDelta(
+							pSource, nodeKey), pFormat.readDelta(pSource, nodeKey), 0L, 0L);
 
 			// Returning an instance.
 			return new TextNode(nodeDel, valDel, structDel);
@@ -196,27 +215,30 @@ public enum EKind implements IKind {
 
 		@Override
 		public void serialize(final @Nonnull ByteArrayDataOutput pSink,
-				final @Nonnull INodeBase pToSerialize) {
+				final @Nonnull INodeBase pToSerialize,
+				final @Nonnull ERecordFormat pFormat) {
 			TextNode node = (TextNode) pToSerialize;
-			serializeDelegate(node.getNodeDelegate(), pSink);
-			serializeValDelegate(node.getValNodeDelegate(), pSink);
+			serializeDelegate(node.getNodeDelegate(), pSink, pFormat);
+			serializeValDelegate(node.getValNodeDelegate(), pSink, pFormat);
 			final StructNodeDelegate del = node.getStructNodeDelegate();
 			final long nodeKey = node.getNodeKey();
-			putLong(pSink, nodeKey - del.getRightSiblingKey());
-			putLong(pSink, nodeKey - del.getLeftSiblingKey());
+			pFormat.writeDelta(pSink, nodeKey, del.getRightSiblingKey());
+			pFormat.writeDelta(pSink, nodeKey, del.getLeftSiblingKey());
 		}
 	},
 
 	/** Node kind is processing instruction. */
 	PROCESSING((byte) 7, null) {
 		@Override
-		public INodeBase deserialize(final @Nonnull ByteArrayDataInput pSource) {
+		public INodeBase deserialize(final @Nonnull ByteArrayDataInput pSource,
+				final @Nonnull ERecordFormat pFormat) {
 			throw new UnsupportedOperationException();
 		}
 
 		@Override
 		public void serialize(final @Nonnull ByteArrayDataOutput pSink,
-				final @Nonnull INodeBase pToSerialize) {
+				final @Nonnull INodeBase pToSerialize,
+				final @Nonnull ERecordFormat pFormat) {
 			throw new UnsupportedOperationException();
 		}
 	},
@@ -224,13 +246,15 @@ public enum EKind implements IKind {
 	/** Node kind is comment. */
 	COMMENT((byte) 8, null) {
 		@Override
-		public INodeBase deserialize(final @Nonnull ByteArrayDataInput pSource) {
+		public INodeBase deserialize(final @Nonnull ByteArrayDataInput pSource,
+				final @Nonnull ERecordFormat pFormat) {
 			throw new UnsupportedOperationException();
 		}
 
 		@Override
 		public void serialize(final @Nonnull ByteArrayDataOutput pSink,
-				final @Nonnull INodeBase pToSerialize) {
+				final @Nonnull INodeBase pToSerialize,
+				final @Nonnull ERecordFormat pFormat) {
 			throw new UnsupportedOperationException();
 		}
 	},
@@ -239,7 +263,8 @@ public enum EKind implements IKind {
 	// Virtualize document root node?
 	DOCUMENT_ROOT((byte) 9, DocumentRootNode.class) {
 		@Override
-		public INodeBase deserialize(final @Nonnull ByteArrayDataInput pSource) {
+		public INodeBase deserialize(final @Nonnull ByteArrayDataInput pSource,
+				final @Nonnull ERecordFormat pFormat) {
 			final NodeDelegate nodeDel = new NodeDelegate(
 					EFixed.DOCUMENT_NODE_KEY.getStandardProperty(),
 					EFixed.NULL_NODE_KEY.getStandardProperty(), pSource.readLong(),
@@ -247,32 +272,35 @@ public enum EKind implements IKind {
 			final StructNodeDelegate structDel = new StructNodeDelegate(nodeDel,
 					getLong(pSource), EFixed.NULL_NODE_KEY.getStandardProperty(),
 					EFixed.NULL_NODE_KEY.getStandardProperty(),
-					pSource.readByte() == ((byte) 0) ? 0 : 1, pSource.readLong());
+					pSource.readByte() == ((byte) 0) ? 0 : 1, pFormat.readLong(pSource));
 			return new DocumentRootNode(nodeDel, structDel);
 		}
 
 		@Override
 		public void serialize(final @Nonnull ByteArrayDataOutput pSink,
-				final @Nonnull INodeBase pToSerialize) {
+				final @Nonnull INodeBase pToSerialize,
+				final @Nonnull ERecordFormat pFormat) {
 			DocumentRootNode node = (DocumentRootNode) pToSerialize;
 			pSink.writeLong(node.getHash());
 			putLong(pSink, node.getRevision());
 			putLong(pSink, node.getFirstChildKey());
 			pSink.writeByte(node.hasFirstChild() ? (byte) 1 : (byte) 0);
-			pSink.writeLong(node.getDescendantCount());
+			pFormat.writeLong(pSink, node.getDescendantCount());
 		}
 	},
 
 	/** Whitespace text. */
 	WHITESPACE((byte) 4, null) {
 		@Override
-		public INodeBase deserialize(final @Nonnull ByteArrayDataInput pSource) {
+		public INodeBase deserialize(final @Nonnull ByteArrayDataInput pSource,
+				final @Nonnull ERecordFormat pFormat) {
 			throw new UnsupportedOperationException();
 		}
 
 		@Override
 		public void serialize(final @Nonnull ByteArrayDataOutput pSink,
-				final @Nonnull INodeBase pToSerialize) {
+				final @Nonnull INodeBase pToSerialize,
+				final @Nonnull ERecordFormat pFormat) {
 			throw new UnsupportedOperationException();
 		}
 	},
@@ -280,14 +308,16 @@ public enum EKind implements IKind {
 	/** Node kind is deleted node. */
 	DELETE((byte) 5, DeletedNode.class) {
 		@Override
-		public INodeBase deserialize(final @Nonnull ByteArrayDataInput pSource) {
+		public INodeBase deserialize(final @Nonnull ByteArrayDataInput pSource,
+				final @Nonnull ERecordFormat pFormat) {
 			final NodeDelegate delegate = new NodeDelegate(getLong(pSource), 0, 0, 0);
 			return new DeletedNode(delegate);
 		}
 
 		@Override
 		public void serialize(final @Nonnull ByteArrayDataOutput pSink,
-				final @Nonnull INodeBase pToSerialize) {
+				final @Nonnull INodeBase pToSerialize,
+				final @Nonnull ERecordFormat pFormat) {
 			DeletedNode node = (DeletedNode) pToSerialize;
 			putLong(pSink, node.getNodeKey());
 		}
@@ -296,13 +326,15 @@ public enum EKind implements IKind {
 	/** NullNode to support the Null Object pattern. */
 	NULL((byte) 6, NullNode.class) {
 		@Override
-		public INodeBase deserialize(final @Nonnull ByteArrayDataInput pSource) {
+		public INodeBase deserialize(final @Nonnull ByteArrayDataInput pSource,
+				final @Nonnull ERecordFormat pFormat) {
 			throw new UnsupportedOperationException();
 		}
 
 		@Override
 		public void serialize(final @Nonnull ByteArrayDataOutput pSink,
-				final @Nonnull INodeBase pToSerialize) {
+				final @Nonnull INodeBase pToSerialize,
+				final @Nonnull ERecordFormat pFormat) {
 			throw new UnsupportedOperationException();
 		}
 	},
@@ -310,14 +342,16 @@ public enum EKind implements IKind {
 	/** Dumb node for testing. */
 	DUMB((byte) 20, DumbNode.class) {
 		@Override
-		public INodeBase deserialize(final @Nonnull ByteArrayDataInput pSource) {
+		public INodeBase deserialize(final @Nonnull ByteArrayDataInput pSource,
+				final @Nonnull ERecordFormat pFormat) {
 			final long nodeKey = getLong(pSource);
 			return new DumbNode(nodeKey);
 		}
 
 		@Override
 		public void serialize(final @Nonnull ByteArrayDataOutput pSink,
-				final @Nonnull INodeBase pToSerialize) {
+				final @Nonnull INodeBase pToSerialize,
+				final @Nonnull ERecordFormat pFormat) {
 			putLong(pSink, pToSerialize.getNodeKey());
 		}
 	},
@@ -325,13 +359,15 @@ public enum EKind implements IKind {
 	/** AtomicKind. */
 	ATOMIC((byte) 15, AtomicValue.class) {
 		@Override
-		public INodeBase deserialize(final @Nonnull ByteArrayDataInput pSource) {
+		public INodeBase deserialize(final @Nonnull ByteArrayDataInput pSource,
+				final @Nonnull ERecordFormat pFormat) {
 			throw new UnsupportedOperationException();
 		}
 
 		@Override
 		public void serialize(final @Nonnull ByteArrayDataOutput pSink,
-				final @Nonnull INodeBase pToSerialize) {
+				final @Nonnull INodeBase pToSerialize,
+				final @Nonnull ERecordFormat pFormat) {
 			throw new UnsupportedOperationException();
 		}
 	},
@@ -339,49 +375,54 @@ public enum EKind implements IKind {
 	/** Node kind is path node. */
 	PATH((byte) 16, PathNode.class) {
 		@Override
-		public INodeBase deserialize(final @Nonnull ByteArrayDataInput pSource) {
+		public INodeBase deserialize(final @Nonnull ByteArrayDataInput pSource,
+				final @Nonnull ERecordFormat pFormat) {
 			// Node delegate.
-			final NodeDelegate nodeDel = deserializeNodeDelegate(pSource);
+			final NodeDelegate nodeDel = deserializeNodeDelegate(pSource, pFormat);
 
 			// Struct delegate.
 			final StructNodeDelegate structDel = deserializeStructDel(nodeDel,
-					pSource);
+					pSource, pFormat);
 
 			// Name delegate.
-			final NameNodeDelegate nameDel = deserializeNameDelegate(nodeDel, pSource);
+			final NameNodeDelegate nameDel = deserializeNameDelegate(nodeDel,
+					pSource, pFormat);
 
 			return new PathNode(nodeDel, structDel, nameDel, EKind.getKind(pSource
-					.readByte()), pSource.readInt(), pSource.readInt());
+					.readByte()), pFormat.readInt(pSource), pFormat.readInt(pSource));
 		}
 
 		@Override
 		public void serialize(final @Nonnull ByteArrayDataOutput pSink,
-				final @Nonnull INodeBase pToSerialize) {
+				final @Nonnull INodeBase pToSerialize,
+				final @Nonnull ERecordFormat pFormat) {
 			final PathNode node = (PathNode) pToSerialize;
-			serializeDelegate(node.getNodeDelegate(), pSink);
-			serializeStrucDelegate(node.getStructNodeDelegate(), pSink);
-			serializeNameDelegate(node.getNameNodeDelegate(), pSink);
+			serializeDelegate(node.getNodeDelegate(), pSink, pFormat);
+			serializeStrucDelegate(node.getStructNodeDelegate(), pSink, pFormat);
+			serializeNameDelegate(node.getNameNodeDelegate(), pSink, pFormat);
 			pSink.writeByte(node.getPathKind().getId());
-			pSink.writeInt(node.getReferences());
-			pSink.writeInt(node.getLevel());
+			pFormat.writeInt(pSink, node.getReferences());
+			pFormat.writeInt(pSink, node.getLevel());
 		};
 	},
 
 	/** Node kind is an AVL node. */
 	AVL((byte) 17, AVLNode.class) {
 		@Override
-		public INodeBase deserialize(final @Nonnull ByteArrayDataInput pSource) {
-			final int size = pSource.readInt();
+		public INodeBase deserialize(final @Nonnull ByteArrayDataInput pSource,
+				final @Nonnull ERecordFormat pFormat) {
+			final int size = pFormat.readInt(pSource);
 			final byte[] value = new byte[size];
 			pSource.readFully(value, 0, size);
 			final long valueNodeKey = getLong(pSource);
-			final Set<Long> nodeKeys = new HashSet<>(pSource.readInt());
-			for (final long nodeKey : nodeKeys) {
-				nodeKeys.add(nodeKey);
+			final int keys = pFormat.readInt(pSource);
+			final Set<Long> nodeKeys = new HashSet<>(keys);
+			for (int i = 0; i < keys; i++) {
+				nodeKeys.add(pFormat.readLong(pSource));
 			}
 			final long referencesNodeKey = getLong(pSource);
 			// Node delegate.
-			final NodeDelegate nodeDel = deserializeNodeDelegate(pSource);
+			final NodeDelegate nodeDel = deserializeNodeDelegate(pSource, pFormat);
 			final long leftChild = getLong(pSource);
 			final long rightChild = getLong(pSource);
 			final long pathNodeKey = getLong(pSource);
@@ -397,22 +438,23 @@ public enum EKind implements IKind {
 
 		@Override
 		public void serialize(final @Nonnull ByteArrayDataOutput pSink,
-				final @Nonnull INodeBase pToSerialize) {
+				final @Nonnull INodeBase pToSerialize,
+				final @Nonnull ERecordFormat pFormat) {
 			@SuppressWarnings("unchecked")
 			final AVLNode<TextValue, TextReferences> node = (AVLNode<TextValue, TextReferences>) pToSerialize;
 			final TextValue key = node.getKey();
 			final byte[] textValue = key.getValue();
-			pSink.writeInt(textValue.length);
+			pFormat.writeInt(pSink, textValue.length);
 			pSink.write(textValue);
 			putLong(pSink, key.getNodeKey());
 			final TextReferences value = node.getValue();
 			final Set<Long> nodeKeys = value.getNodeKeys();
-			pSink.writeInt(nodeKeys.size());
+			pFormat.writeInt(pSink, nodeKeys.size());
 			for (final long nodeKey : nodeKeys) {
-				pSink.writeLong(nodeKey);
+				pFormat.writeLong(pSink, nodeKey);
 			}
 			putLong(pSink, value.getNodeKey());
-			serializeDelegate(node.getNodeDelegate(), pSink);
+			serializeDelegate(node.getNodeDelegate(), pSink, pFormat);
 			putLong(pSink, node.getLeftChildKey());
 			putLong(pSink, node.getRightChildKey());
 			putLong(pSink, key.getPathNodeKey());
@@ -423,22 +465,24 @@ public enum EKind implements IKind {
 	/** Node is a text value. */
 	TEXT_VALUE((byte) 18, TextValue.class) {
 		@Override
-		public INodeBase deserialize(final @Nonnull ByteArrayDataInput pSource) {
+		public INodeBase deserialize(final @Nonnull ByteArrayDataInput pSource,
+				final @Nonnull ERecordFormat pFormat) {
 			final long nodeKey = getLong(pSource);
 			final long pathNodeKey = getLong(pSource);
-			final byte[] value = new byte[pSource.readInt()];
+			final byte[] value = new byte[pFormat.readInt(pSource)];
 			pSource.readFully(value);
 			return new TextValue(value, nodeKey, pathNodeKey);
 		}
 
 		@Override
 		public void serialize(final @Nonnull ByteArrayDataOutput pSink,
-				final @Nonnull INodeBase pToSerialize) {
+				final @Nonnull INodeBase pToSerialize,
+				final @Nonnull ERecordFormat pFormat) {
 			final TextValue node = (TextValue) pToSerialize;
 			putLong(pSink, node.getNodeKey());
 			putLong(pSink, node.getPathNodeKey());
 			final byte[] value = node.getValue();
-			pSink.writeInt(value.length);
+			pFormat.writeInt(pSink, value.length);
 			pSink.write(value);
 		}
 	},
@@ -446,37 +490,117 @@ public enum EKind implements IKind {
 	/** Node includes text node references. */
 	TEXT_REFERENCES((byte) 19, TextReferences.class) {
 		@Override
-		public INodeBase deserialize(final @Nonnull ByteArrayDataInput pSource) {
-			final long nodeKey = pSource.readLong();
-			final int size = pSource.readInt();
-			final Set<Long> nodeKeys = new HashSet<>(size);
+		public INodeBase deserialize(final @Nonnull ByteArrayDataInput pSource,
+				final @Nonnull ERecordFormat pFormat) {
+			final long nodeKey = pFormat.readLong(pSource);
+			final int size = pFormat.readInt(pSource);
+			final Postings nodeKeys = new Postings();
 			for (int i = 0; i < size; i++) {
-				nodeKeys.add(pSource.readLong());
+				nodeKeys.add(pFormat.readLong(pSource));
 			}
 			return new TextReferences(nodeKeys, nodeKey);
 		}
 
 		@Override
 		public void serialize(final @Nonnull ByteArrayDataOutput pSink,
-				final @Nonnull INodeBase pToSerialize) {
+				final @Nonnull INodeBase pToSerialize,
+				final @Nonnull ERecordFormat pFormat) {
 			final TextReferences node = (TextReferences) pToSerialize;
-			pSink.writeLong(node.getNodeKey());
-			final Set<Long> nodeKeys = node.getNodeKeys();
-			pSink.writeInt(nodeKeys.size());
-			for (final long key : nodeKeys) {
-				pSink.writeLong(key);
+			pFormat.writeLong(pSink, node.getNodeKey());
+			final Postings nodeKeys = node.getPostings();
+			pFormat.writeInt(pSink, nodeKeys.size());
+			for (final long key : nodeKeys.toArray()) {
+				pFormat.writeLong(pSink, key);
+			}
+		}
+	},
+	/** Node is a node of the value index B+-tree. */
+	BPLUS((byte) 22, BPlusNode.class) {
+		@Override
+		public INodeBase deserialize(final @Nonnull ByteArrayDataInput pSource,
+				final @Nonnull ERecordFormat pFormat) {
+			final long nodeKey = getLong(pSource);
+			final boolean leaf = pSource.readBoolean();
+			final int size = pFormat.readInt(pSource);
+			final List<TextValue> keys = new ArrayList<>(size + 1);
+			for (int i = 0; i < size; i++) {
+				final byte[] value = new byte[pFormat.readInt(pSource)];
+				pSource.readFully(value);
+				keys.add(new TextValue(value, nodeKey, getLong(pSource)));
+			}
+			if (leaf) {
+				final List<TextReferences> values = new ArrayList<>(size + 1);
+				for (int i = 0; i < size; i++) {
+					values.add(new TextReferences(Postings.deserialize(pSource), nodeKey));
+				}
+				return new BPlusNode(nodeKey, keys, values, pFormat.readDelta(pSource,
+						nodeKey));
+			}
+			final List<Long> children = new ArrayList<>(size + 2);
+			for (int i = 0; i <= size; i++) {
+				children.add(pFormat.readDelta(pSource, nodeKey));
+			}
+			return new BPlusNode(nodeKey, keys, children);
+		}
+
+		@Override
+		public void serialize(final @Nonnull ByteArrayDataOutput pSink,
+				final @Nonnull INodeBase pToSerialize,
+				final @Nonnull ERecordFormat pFormat) {
+			final BPlusNode node = (BPlusNode) pToSerialize;
+			final long nodeKey = node.getNodeKey();
+			putLong(pSink, nodeKey);
+			pSink.writeBoolean(node.isLeaf());
+			pFormat.writeInt(pSink, node.size());
+			for (final TextValue key : node.getKeys()) {
+				final byte[] value = key.getValue();
+				pFormat.writeInt(pSink, value.length);
+				pSink.write(value);
+				putLong(pSink, key.getPathNodeKey());
 			}
+			if (node.isLeaf()) {
+				for (final TextReferences value : node.getValues()) {
+					value.getPostings().serialize(pSink);
+				}
+				pFormat.writeDelta(pSink, nodeKey, node.getNextKey());
+			} else {
+				for (final long child : node.getChildKeys()) {
+					pFormat.writeDelta(pSink, nodeKey, child);
+				}
+			}
+		}
+	},
+
+	/** Node holds the document node keys of a path of the path index. */
+	PATH_REFERENCES((byte) 23, PathReferences.class) {
+		@Override
+		public INodeBase deserialize(final @Nonnull ByteArrayDataInput pSource,
+				final @Nonnull ERecordFormat pFormat) {
+			final long nodeKey = getLong(pSource);
+			return new PathReferences(nodeKey, Postings.deserialize(pSource));
+		}
+
+		@Override
+		public void serialize(final @Nonnull ByteArrayDataOutput pSink,
+				final @Nonnull INodeBase pToSerialize,
+				final @Nonnull ERecordFormat pFormat) {
+			final PathReferences node = (PathReferences) pToSerialize;
+			putLong(pSink, node.getNodeKey());
+			node.getPostings().serialize(pSink);
 		}
 	},
+
 	UNKOWN((byte) 21, null) {
 		@Override
-		public INodeBase deserialize(final @Nonnull ByteArrayDataInput pSource) {
+		public INodeBase deserialize(final @Nonnull ByteArrayDataInput pSource,
+				final @Nonnull ERecordFormat pFormat) {
 			throw new UnsupportedOperationException();
 		}
 
 		@Override
 		public void serialize(final @Nonnull ByteArrayDataOutput pSink,
-				final @Nonnull INodeBase pToSerialize) {
+				final @Nonnull INodeBase pToSerialize,
+				final @Nonnull ERecordFormat pFormat) {
 			throw new UnsupportedOperationException();
 		}
 	};
@@ -545,20 +669,60 @@ public enum EKind implements IKind {
 		return INSTANCEFORCLASS.get(pClass);
 	}
 
+	/**
+	 * Deserializing a node in the {@link ERecordFormat#CURRENT} format.
+	 * 
+	 * @param pSource
+	 *          input source
+	 * @return a {@link INodeBase} instance
+	 */
+	@Override
+	public INodeBase deserialize(final @Nonnull ByteArrayDataInput pSource) {
+		return deserialize(pSource, ERecordFormat.CURRENT);
+	}
+
+	/**
+	 * Deserializing a node directly from the remaining bytes of a buffer.
+	 * 
+	 * @param pSource
+	 *          buffer to read from
+	 * @param pFormat
+	 *          format of the record
+	 * @return a {@link INodeBase} instance
+	 */
+	public INodeBase deserialize(final @Nonnull ByteBuffer pSource,
+			final @Nonnull ERecordFormat pFormat) {
+		return deserialize(new ByteBufferDataInput(pSource), pFormat);
+	}
+
+	/**
+	 * Serializing a node in the {@link ERecordFormat#CURRENT} format.
+	 * 
+	 * @param pSink
+	 *          where the data should be serialized to
+	 * @param pToSerialize
+	 *          the node to serialize
+	 */
+	@Override
+	public void serialize(final @Nonnull ByteArrayDataOutput pSink,
+			final @Nonnull INodeBase pToSerialize) {
+		serialize(pSink, pToSerialize, ERecordFormat.CURRENT);
+	}
+
 	/**
 	 * Deserialize node delegate.
 	 * 
-	 * @param pUsePCR
-	 *          determines if PCR is saved (for attributes, namespaces and
-	 *          elements) or not
 	 * @param pSource
 	 *          source to read from
+	 * @param pFormat
+	 *          format of the record
 	 * @return {@link NodeDelegate} instance
 	 */
 	private static final NodeDelegate deserializeNodeDelegate(
-			final @Nonnull ByteArrayDataInput pSource) {
+			final @Nonnull ByteArrayDataInput pSource,
+			final @Nonnull ERecordFormat pFormat) {
 		final long nodeKey = getLong(pSource);
-		final long parentKey = nodeKey - getLong(pSource);
+		final long parentKey = pFormat.readDelta(pSource, nodeKey);
 		final long hash = pSource.readLong();
 		final long revision = getLong(pSource);
 		return new NodeDelegate(nodeKey, parentKey, hash, revision);
@@ -571,11 +735,14 @@ public enum EKind implements IKind {
 	 *          to be serialize
 	 * @param pSink
 	 *          to serialize to
+	 * @param pFormat
+	 *          format of the record
 	 */
 	private static final void serializeDelegate(final @Nonnull NodeDelegate pDel,
-			final @Nonnull ByteArrayDataOutput pSink) {
+			final @Nonnull ByteArrayDataOutput pSink,
+			final @Nonnull ERecordFormat pFormat) {
 		putLong(pSink, pDel.getNodeKey());
-		putLong(pSink, pDel.getNodeKey() - pDel.getParentKey());
+		pFormat.writeDelta(pSink, pDel.getNodeKey(), pDel.getParentKey());
 		pSink.writeLong(pDel.getHash());
 		putLong(pSink, pDel.getRevision());
 	}
@@ -587,13 +754,17 @@ public enum EKind implements IKind {
 	 *          to be serialize
 	 * @param pSink
 	 *          to serialize to
+	 * @param pFormat
+	 *          format of the record
 	 */
 	private static final void serializeStrucDelegate(
 			final @Nonnull StructNodeDelegate pDel,
-			final @Nonnull ByteArrayDataOutput pSink) {
-		putLong(pSink, pDel.getNodeKey() - pDel.getRightSiblingKey());
-		putLong(pSink, pDel.getNodeKey() - pDel.getLeftSiblingKey());
-		putLong(pSink, pDel.getNodeKey() - pDel.getFirstChildKey());
+			final @Nonnull ByteArrayDataOutput pSink,
+			final @Nonnull ERecordFormat pFormat) {
+		final long nodeKey = pDel.getNodeKey();
+		pFormat.writeDelta(pSink, nodeKey, pDel.getRightSiblingKey());
+		pFormat.writeDelta(pSink, nodeKey, pDel.getLeftSiblingKey());
+		pFormat.writeDelta(pSink, nodeKey, pDel.getFirstChildKey());
 		putLong(pSink, pDel.getChildCount());
 		putLong(pSink, pDel.getDescendantCount() - pDel.getChildCount());
 	}
@@ -605,15 +776,18 @@ public enum EKind implements IKind {
 	 *          node delegate
 	 * @param pSource
 	 *          input source
+	 * @param pFormat
+	 *          format of the record
 	 * @return {@link StructNodeDelegate} instance
 	 */
 	private static final StructNodeDelegate deserializeStructDel(
 			final @Nonnull NodeDelegate pDel,
-			final @Nonnull ByteArrayDataInput pSource) {
+			final @Nonnull ByteArrayDataInput pSource,
+			final @Nonnull ERecordFormat pFormat) {
 		final long currKey = pDel.getNodeKey();
-		final long rightSibl = currKey - getLong(pSource);
-		final long leftSibl = currKey - getLong(pSource);
-		final long firstChild = currKey - getLong(pSource);
+		final long rightSibl = pFormat.readDelta(pSource, currKey);
+		final long leftSibl = pFormat.readDelta(pSource, currKey);
+		final long firstChild = pFormat.readDelta(pSource, currKey);
 		final long childCount = getLong(pSource);
 		final long descendantCount = getLong(pSource) + childCount;
 		return new StructNodeDelegate(pDel, firstChild, rightSibl, leftSibl,
@@ -627,13 +801,16 @@ public enum EKind implements IKind {
 	 *          {@link NodeDelegate} instance
 	 * @param pSource
 	 *          source to read from
+	 * @param pFormat
+	 *          format of the record
 	 * @return {@link NameNodeDelegate} instance
 	 */
 	private static final NameNodeDelegate deserializeNameDelegate(
 			final @Nonnull NodeDelegate pNodeDel,
-			final @Nonnull ByteArrayDataInput pSource) {
+			final @Nonnull ByteArrayDataInput pSource,
+			final @Nonnull ERecordFormat pFormat) {
 		int nameKey = pSource.readInt();
-		final int uriKey = pSource.readInt();
+		final int uriKey = pFormat.readInt(pSource);
 		nameKey += uriKey;
 		return new NameNodeDelegate(pNodeDel, nameKey, uriKey, getLong(pSource));
 	}
@@ -645,12 +822,15 @@ public enum EKind implements IKind {
 	 *          {@link NameNodeDelegate} instance
 	 * @param pSink
 	 *          to serialize to
+	 * @param pFormat
+	 *          format of the record
 	 */
 	private static final void serializeNameDelegate(
 			final @Nonnull NameNodeDelegate pDel,
-			final @Nonnull ByteArrayDataOutput pSink) {
+			final @Nonnull ByteArrayDataOutput pSink,
+			final @Nonnull ERecordFormat pFormat) {
 		pSink.writeInt(pDel.getNameKey() - pDel.getURIKey());
-		pSink.writeInt(pDel.getURIKey());
+		pFormat.writeInt(pSink, pDel.getURIKey());
 		putLong(pSink, pDel.getPathNodeKey());
 	}
 
@@ -661,51 +841,47 @@ public enum EKind implements IKind {
 	 *          to be serialized
 	 * @param pSink
 	 *          to serialize to
+	 * @param pFormat
+	 *          format of the record
 	 */
 	private static final void serializeValDelegate(
 			final @Nonnull ValNodeDelegate pDel,
-			final @Nonnull ByteArrayDataOutput pSink) {
+			final @Nonnull ByteArrayDataOutput pSink,
+			final @Nonnull ERecordFormat pFormat) {
 		final boolean isCompressed = pDel.isCompressed();
 		pSink.writeByte(isCompressed ? (byte) 1 : (byte) 0);
 		final byte[] value = isCompressed ? pDel.getCompressed() : pDel
 				.getRawValue();
-		pSink.writeInt(value.length);
+		pFormat.writeInt(pSink, value.length);
 		pSink.write(value);
 	}
 
 	/**
-	 * Store a compressed long value.
+	 * Deserializing a node.
 	 * 
-	 * @param pOutput
-	 *          {@link ByteArrayDataOutput} reference
-	 * @param value
-	 *          long value
+	 * @param pSource
+	 *          input source
+	 * @param pFormat
+	 *          format of the record
+	 * @return a {@link INodeBase} instance
 	 */
-	private static final void putLong(final @Nonnull ByteArrayDataOutput pOutput,
-			long value) {
-		while ((value & ~0x7F) != 0) {
-			pOutput.write(((byte) ((value & 0x7f) | 0x80)));
-			value >>>= 7;
-		}
-		pOutput.write((byte) value);
-	}
+	public abstract INodeBase deserialize(
+			final @Nonnull ByteArrayDataInput pSource,
+			final @Nonnull ERecordFormat pFormat);
 
 	/**
-	 * Get a compressed long value.
+	 * Serializing a node.
 	 * 
-	 * @param pInput
-	 *          {@link ByteArrayDataInput} reference
-	 * @return long value
+	 * @param pSink
+	 *          where the data should be serialized to
+	 * @param pToSerialize
+	 *          the node to serialize
+	 * @param pFormat
+	 *          format of the record
 	 */
-	private static final long getLong(final @Nonnull ByteArrayDataInput pInput) {
-		byte singleByte = pInput.readByte();
-		long value = singleByte & 0x7F;
-		for (int shift = 7; (singleByte & 0x80) != 0; shift += 7) {
-			singleByte = pInput.readByte();
-			value |= (singleByte & 0x7FL) << shift;
-		}
-		return value;
-	}
+	public abstract void serialize(final @Nonnull ByteArrayDataOutput pSink,
+			final @Nonnull INodeBase pToSerialize,
+			final @Nonnull ERecordFormat pFormat);
 
 	/**
 	 * Simple DumbNode just for testing the {@link NodePage}s.
@@ -0,0 +1,389 @@
+/**
+ * Copyright (c) 2011, University of Konstanz, Distributed Systems Group
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the University of Konstanz nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sirix.node;
+
+import com.google.common.io.ByteArrayDataInput;
+import com.google.common.io.ByteArrayDataOutput;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+
+import org.sirix.settings.EFixed;
+
+/**
+ * <h1>ERecordFormat</h1>
+ * 
+ * <p>
+ * Versions of the node record format, that is how the fields of a node are
+ * encoded by {@link EKind}. Nodes are always written in the {@link #CURRENT}
+ * format, but records of all formats can be read.
+ * </p>
+ * 
+ * <p>
+ * Hashes and name keys are hash values and therefore always stored with a
+ * fixed width.
+ * </p>
+ * 
+ * @author Johannes Lichtenberger, University of Konstanz
+ * 
+ */
+public enum ERecordFormat {
+
+	/**
+	 * Former format, which stores structural keys as unsigned variable length
+	 * deltas to the node key and all other keys, counts and lengths with a fixed
+	 * width.
+	 */
+	FIXED((byte) 0) {
+		@Override
+		public long readDelta(final @Nonnull ByteArrayDataInput pSource,
+				final long pNodeKey) {
+			return pNodeKey - getLong(pSource);
+		}
+
+		@Override
+		public void writeDelta(final @Nonnull ByteArrayDataOutput pSink,
+				final long pNodeKey, final long pKey) {
+			putLong(pSink, pNodeKey - pKey);
+		}
+
+		@Override
+		public long readKey(final @Nonnull ByteArrayDataInput pSource,
+				final long pNodeKey) {
+			return pSource.readLong();
+		}
+
+		@Override
+		public void writeKey(final @Nonnull ByteArrayDataOutput pSink,
+				final long pNodeKey, final long pKey) {
+			pSink.writeLong(pKey);
+		}
+
+		@Override
+		public int readInt(final @Nonnull ByteArrayDataInput pSource) {
+			return pSource.readInt();
+		}
+
+		@Override
+		public void writeInt(final @Nonnull ByteArrayDataOutput pSink,
+				final int pValue) {
+			pSink.writeInt(pValue);
+		}
+
+		@Override
+		public long readLong(final @Nonnull ByteArrayDataInput pSource) {
+			return pSource.readLong();
+		}
+
+		@Override
+		public void writeLong(final @Nonnull ByteArrayDataOutput pSink,
+				final long pValue) {
+			pSink.writeLong(pValue);
+		}
+	},
+
+	/**
+	 * Stores all keys as zig-zag encoded variable length deltas to the node key
+	 * and all counts and lengths as variable length values. Structural keys use
+	 * the delta {@code 0}, which never denotes a valid key, for
+	 * {@link EFixed#NULL_NODE_KEY}, such that leafs and last siblings don't pay
+	 * for the distance of their node key to the {@code null} key.
+	 */
+	VARINT((byte) 1) {
+		@Override
+		public long readDelta(final @Nonnull ByteArrayDataInput pSource,
+				final long pNodeKey) {
+			final long delta = getZigZagLong(pSource);
+			return delta == 0 ? EFixed.NULL_NODE_KEY.getStandardProperty()
+					: pNodeKey - delta;
+		}
+
+		@Override
+		public void writeDelta(final @Nonnull ByteArrayDataOutput pSink,
+				final long pNodeKey, final long pKey) {
+			assert pKey != pNodeKey : "A node must not reference itself!";
+			putZigZagLong(pSink,
+					pKey == EFixed.NULL_NODE_KEY.getStandardProperty() ? 0 : pNodeKey
+							- pKey);
+		}
+
+		@Override
+		public long readKey(final @Nonnull ByteArrayDataInput pSource,
+				final long pNodeKey) {
+			return pNodeKey + getZigZagLong(pSource);
+		}
+
+		@Override
+		public void writeKey(final @Nonnull ByteArrayDataOutput pSink,
+				final long pNodeKey, final long pKey) {
+			putZigZagLong(pSink, pKey - pNodeKey);
+		}
+
+		@Override
+		public int readInt(final @Nonnull ByteArrayDataInput pSource) {
+			return (int) getZigZagLong(pSource);
+		}
+
+		@Override
+		public void writeInt(final @Nonnull ByteArrayDataOutput pSink,
+				final int pValue) {
+			putZigZagLong(pSink, pValue);
+		}
+
+		@Override
+		public long readLong(final @Nonnull ByteArrayDataInput pSource) {
+			return getZigZagLong(pSource);
+		}
+
+		@Override
+		public void writeLong(final @Nonnull ByteArrayDataOutput pSink,
+				final long pValue) {
+			putZigZagLong(pSink, pValue);
+		}
+	};
+
+	/** The format in which nodes are written. */
+	public static final ERecordFormat CURRENT = VARINT;
+
+	/** Mapping of identifiers -> formats. */
+	private static final Map<Byte, ERecordFormat> INSTANCEFORID = new HashMap<>();
+
+	static {
+		for (final ERecordFormat format : values()) {
+			INSTANCEFORID.put(format.mId, format);
+		}
+	}
+
+	/** Unique identifier. */
+	private final byte mId;
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param pId
+	 *          unique identifier
+	 */
+	private ERecordFormat(final byte pId) {
+		mId = pId;
+	}
+
+	/**
+	 * Get the unique identifier.
+	 * 
+	 * @return the identifier
+	 */
+	public byte getId() {
+		return mId;
+	}
+
+	/**
+	 * Get the format with the given identifier.
+	 * 
+	 * @param pId
+	 *          the identifier
+	 * @return the format
+	 * @throws IllegalStateException
+	 *           if no such format exists
+	 */
+	public static ERecordFormat getFormat(final byte pId) {
+		final ERecordFormat format = INSTANCEFORID.get(pId);
+		if (format == null) {
+			throw new IllegalStateException("Unknown record format: " + pId);
+		}
+		return format;
+	}
+
+	/**
+	 * Read a structural key (parent, sibling or child key) of a node.
+	 * 
+	 * @param pSource
+	 *          source to read from
+	 * @param pNodeKey
+	 *          key of the node
+	 * @return the key
+	 */
+	public abstract long readDelta(final @Nonnull ByteArrayDataInput pSource,
+			final long pNodeKey);
+
+	/**
+	 * Write a structural key (parent, sibling or child key) of a node.
+	 * 
+	 * @param pSink
+	 *          sink to write to
+	 * @param pNodeKey
+	 *          key of the node
+	 * @param pKey
+	 *          the key to write
+	 */
+	public abstract void writeDelta(final @Nonnull ByteArrayDataOutput pSink,
+			final long pNodeKey, final long pKey);
+
+	/**
+	 * Read a key of a node, which references another node (for instance an
+	 * attribute or namespace key).
+	 * 
+	 * @param pSource
+	 *          source to read from
+	 * @param pNodeKey
+	 *          key of the node
+	 * @return the key
+	 */
+	public abstract long readKey(final @Nonnull ByteArrayDataInput pSource,
+			final long pNodeKey);
+
+	/**
+	 * Write a key of a node, which references another node (for instance an
+	 * attribute or namespace key).
+	 * 
+	 * @param pSink
+	 *          sink to write to
+	 * @param pNodeKey
+	 *          key of the node
+	 * @param pKey
+	 *          the key to write
+	 */
+	public abstract void writeKey(final @Nonnull ByteArrayDataOutput pSink,
+			final long pNodeKey, final long pKey);
+
+	/**
+	 * Read an {@code int} value, for instance a count or a length.
+	 * 
+	 * @param pSource
+	 *          source to read from
+	 * @return the value
+	 */
+	public abstract int readInt(final @Nonnull ByteArrayDataInput pSource);
+
+	/**
+	 * Write an {@code int} value, for instance a count or a length.
+	 * 
+	 * @param pSink
+	 *          sink to write to
+	 * @param pValue
+	 *          the value
+	 */
+	public abstract void writeInt(final @Nonnull ByteArrayDataOutput pSink,
+			final int pValue);
+
+	/**
+	 * Read a {@code long} value.
+	 * 
+	 * @param pSource
+	 *          source to read from
+	 * @return the value
+	 */
+	public abstract long readLong(final @Nonnull ByteArrayDataInput pSource);
+
+	/**
+	 * Write a {@code long} value.
+	 * 
+	 * @param pSink
+	 *          sink to write to
+	 * @param pValue
+	 *          the value
+	 */
+	public abstract void writeLong(final @Nonnull ByteArrayDataOutput pSink,
+			final long pValue);
+
+	/**
+	 * Store an unsigned variable length long value.
+	 * 
+	 * @param pOutput
+	 *          {@link ByteArrayDataOutput} reference
+	 * @param value
+	 *          long value
+	 */
+	static void putLong(final @Nonnull ByteArrayDataOutput pOutput, long value) {
+		while ((value & ~0x7F) != 0) {
+			pOutput.write(((byte) ((value & 0x7f) | 0x80)));
+			value >>>= 7;
+		}
+		pOutput.write((byte) value);
+	}
+
+	/**
+	 * Get the number of bytes of an unsigned variable length long value.
+	 * 
+	 * @param value
+	 *          long value
+	 * @return number of bytes
+	 */
+	static int sizeOfLong(long value) {
+		int size = 1;
+		while ((value & ~0x7F) != 0) {
+			size++;
+			value >>>= 7;
+		}
+		return size;
+	}
+
+	/**
+	 * Get an unsigned variable length long value.
+	 * 
+	 * @param pInput
+	 *          {@link ByteArrayDataInput} reference
+	 * @return long value
+	 */
+	static long getLong(final @Nonnull ByteArrayDataInput pInput) {
+		byte singleByte = pInput.readByte();
+		long value = singleByte & 0x7F;
+		for (int shift = 7; (singleByte & 0x80) != 0; shift += 7) {
+			singleByte = pInput.readByte();
+			value |= (singleByte & 0x7FL) << shift;
+		}
+		return value;
+	}
+
+	/**
+	 * Store a zig-zag encoded variable length long value, such that values with
+	 * a small magnitude take few bytes regardless of their sign.
+	 * 
+	 * @param pOutput
+	 *          {@link ByteArrayDataOutput} reference
+	 * @param pValue
+	 *          long value
+	 */
+	static void putZigZagLong(final @Nonnull ByteArrayDataOutput pOutput,
+			final long pValue) {
+		putLong(pOutput, (pValue << 1) ^ (pValue >> 63));
+	}
+
+	/**
+	 * Get a zig-zag encoded variable length long value.
+	 * 
+	 * @param pInput
+	 *          {@link ByteArrayDataInput} reference
+	 * @return long value
+	 */
+	static long getZigZagLong(final @Nonnull ByteArrayDataInput pInput) {
+		final long value = getLong(pInput);
+		return (value >>> 1) ^ -(value & 1);
+	}
+}
@@ -0,0 +1,661 @@
+/**
+ * Copyright (c) 2011, University of Konstanz, Distributed Systems Group
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the University of Konstanz nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sirix.node;
+
+import static org.sirix.node.ERecordFormat.getLong;
+import static org.sirix.node.ERecordFormat.putLong;
+import static org.sirix.node.ERecordFormat.sizeOfLong;
+import com.google.common.io.ByteArrayDataInput;
+import com.google.common.io.ByteArrayDataOutput;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.NoSuchElementException;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * <h1>Postings</h1>
+ * 
+ * <p>
+ * Compressed sorted set of node keys. The keys are stored in blocks of at most
+ * {@link #BLOCK_SIZE} keys. Each block holds its first key and the varint
+ * encoded deltas of its remaining keys. The first and last keys of the
+ * blocks are kept uncompressed to locate blocks by binary search, which is
+ * used by {@link Cursor#advance(long)} to skip whole blocks during
+ * intersections. Appending ascending keys, which is the usual case as node
+ * keys are assigned in ascending order, only appends to the last block.
+ * </p>
+ * 
+ * <p>
+ * Instances are not thread safe.
+ * </p>
+ * 
+ * @author Johannes Lichtenberger, University of Konstanz
+ * 
+ */
+public final class Postings {
+
+	/** Maximum number of keys of a block. */
+	static final int BLOCK_SIZE = 128;
+
+	/** Number of blocks. */
+	private int mBlocks;
+
+	/** Number of keys. */
+	private int mSize;
+
+	/** First key of each block. */
+	private long[] mFirstKeys;
+
+	/** Last key of each block. */
+	private long[] mLastKeys;
+
+	/** Number of keys of each block. */
+	private int[] mCounts;
+
+	/** Varint encoded deltas of each block. */
+	private byte[][] mData;
+
+	/** Number of used bytes of the deltas of each block. */
+	private int[] mLengths;
+
+	/**
+	 * Constructor, creating empty postings.
+	 */
+	public Postings() {
+		this(1);
+	}
+
+	/**
+	 * Constructor, creating empty postings.
+	 * 
+	 * @param pBlocks
+	 *          initial block capacity
+	 */
+	private Postings(final @Nonnegative int pBlocks) {
+		final int blocks = Math.max(1, pBlocks);
+		mFirstKeys = new long[blocks];
+		mLastKeys = new long[blocks];
+		mCounts = new int[blocks];
+		mData = new byte[blocks][];
+		mLengths = new int[blocks];
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param pNodeKeys
+	 *          node keys to add
+	 */
+	public Postings(final @Nonnull Collection<Long> pNodeKeys) {
+		this(pNodeKeys.size() / BLOCK_SIZE + 1);
+		final long[] keys = new long[pNodeKeys.size()];
+		int i = 0;
+		for (final long key : pNodeKeys) {
+			keys[i++] = key;
+		}
+		Arrays.sort(keys);
+		for (final long key : keys) {
+			add(key);
+		}
+	}
+
+	/**
+	 * Get the number of keys.
+	 * 
+	 * @return number of keys
+	 */
+	public int size() {
+		return mSize;
+	}
+
+	/**
+	 * Determines if no key is stored.
+	 * 
+	 * @return {@code true}, if no key is stored, {@code false} otherwise
+	 */
+	public boolean isEmpty() {
+		return mSize == 0;
+	}
+
+	/**
+	 * Add a node key.
+	 * 
+	 * @param pKey
+	 *          the node key
+	 * @return {@code true}, if the key has been added, {@code false} if it is
+	 *         already present
+	 */
+	public boolean add(final long pKey) {
+		if (mBlocks == 0 || pKey > mLastKeys[mBlocks - 1]) {
+			// Append.
+			final int last = mBlocks - 1;
+			if (mBlocks == 0 || mCounts[last] == BLOCK_SIZE) {
+				insertBlock(mBlocks, new long[] { pKey }, 1);
+			} else {
+				writeVarint(last, pKey - mLastKeys[last]);
+				mLastKeys[last] = pKey;
+				mCounts[last]++;
+			}
+			mSize++;
+			return true;
+		}
+
+		final int block = Math.max(0, findBlock(pKey));
+		final long[] keys = decode(block, 1);
+		final int count = mCounts[block];
+		int pos = Arrays.binarySearch(keys, 0, count, pKey);
+		if (pos >= 0) {
+			return false;
+		}
+		pos = -pos - 1;
+		System.arraycopy(keys, pos, keys, pos + 1, count - pos);
+		keys[pos] = pKey;
+		if (count == BLOCK_SIZE) {
+			final int half = (count + 1) / 2;
+			encode(block, keys, 0, half);
+			insertBlock(block + 1, Arrays.copyOfRange(keys, half, count + 1), count
+					+ 1 - half);
+		} else {
+			encode(block, keys, 0, count + 1);
+		}
+		mSize++;
+		return true;
+	}
+
+	/**
+	 * Remove a node key. Only the block of the key is decoded and encoded again.
+	 * 
+	 * @param pKey
+	 *          the node key
+	 * @return {@code true}, if the key has been removed, {@code false} if it is
+	 *         not present
+	 */
+	public boolean remove(final long pKey) {
+		final int block = findBlock(pKey);
+		if (block < 0 || pKey > mLastKeys[block]) {
+			return false;
+		}
+		final long[] keys = decode(block, 0);
+		final int count = mCounts[block];
+		final int pos = Arrays.binarySearch(keys, 0, count, pKey);
+		if (pos < 0) {
+			return false;
+		}
+		if (count == 1) {
+			removeBlock(block);
+		} else {
+			System.arraycopy(keys, pos + 1, keys, pos, count - pos - 1);
+			encode(block, keys, 0, count - 1);
+		}
+		mSize--;
+		return true;
+	}
+
+	/**
+	 * Determines if a node key is present.
+	 * 
+	 * @param pKey
+	 *          the node key
+	 * @return {@code true}, if it is present, {@code false} otherwise
+	 */
+	public boolean contains(final long pKey) {
+		final int block = findBlock(pKey);
+		if (block < 0 || pKey > mLastKeys[block]) {
+			return false;
+		}
+		final Cursor cursor = new Cursor();
+		cursor.mBlock = block;
+		return cursor.advance(pKey) && cursor.key() == pKey;
+	}
+
+	/**
+	 * Get a cursor positioned before the first key.
+	 * 
+	 * @return new cursor
+	 */
+	public Cursor cursor() {
+		return new Cursor();
+	}
+
+	/**
+	 * Get all keys in ascending order.
+	 * 
+	 * @return the keys
+	 */
+	public long[] toArray() {
+		final long[] keys = new long[mSize];
+		final Cursor cursor = new Cursor();
+		for (int i = 0; cursor.next(); i++) {
+			keys[i] = cursor.key();
+		}
+		return keys;
+	}
+
+	/**
+	 * Union of two postings.
+	 * 
+	 * @param pFirst
+	 *          first postings
+	 * @param pSecond
+	 *          second postings
+	 * @return new postings with the keys of both postings
+	 */
+	public static Postings union(final @Nonnull Postings pFirst,
+			final @Nonnull Postings pSecond) {
+		final Postings result = new Postings((pFirst.mSize + pSecond.mSize)
+				/ BLOCK_SIZE + 1);
+		final Cursor first = pFirst.cursor();
+		final Cursor second = pSecond.cursor();
+		boolean hasFirst = first.next();
+		boolean hasSecond = second.next();
+		while (hasFirst || hasSecond) {
+			if (!hasSecond || (hasFirst && first.key() < second.key())) {
+				result.add(first.key());
+				hasFirst = first.next();
+			} else if (!hasFirst || second.key() < first.key()) {
+				result.add(second.key());
+				hasSecond = second.next();
+			} else {
+				result.add(first.key());
+				hasFirst = first.next();
+				hasSecond = second.next();
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Intersection of two postings. Blocks of one postings, whose keys are all
+	 * smaller than the current key of the other postings, are skipped without
+	 * decoding them.
+	 * 
+	 * @param pFirst
+	 *          first postings
+	 * @param pSecond
+	 *          second postings
+	 * @return new postings with the keys present in both postings
+	 */
+	public static Postings intersection(final @Nonnull Postings pFirst,
+			final @Nonnull Postings pSecond) {
+		final Postings result = new Postings(Math.min(pFirst.mSize,
+				pSecond.mSize)
+				/ BLOCK_SIZE + 1);
+		final Cursor first = pFirst.cursor();
+		final Cursor second = pSecond.cursor();
+		if (!first.next() || !second.next()) {
+			return result;
+		}
+		while (true) {
+			if (first.key() == second.key()) {
+				result.add(first.key());
+				if (!first.next() || !second.next()) {
+					return result;
+				}
+			} else if (first.key() < second.key()) {
+				if (!first.advance(second.key())) {
+					return result;
+				}
+			} else if (!second.advance(first.key())) {
+				return result;
+			}
+		}
+	}
+
+	/**
+	 * Get the number of bytes of the serialized postings.
+	 * 
+	 * @return number of bytes
+	 */
+	public int getSerializedSize() {
+		int size = sizeOfLong(mBlocks);
+		for (int block = 0; block < mBlocks; block++) {
+			size += sizeOfLong(mFirstKeys[block])
+					+ sizeOfLong(mLastKeys[block] - mFirstKeys[block])
+					+ sizeOfLong(mCounts[block]) + sizeOfLong(mLengths[block])
+					+ mLengths[block];
+		}
+		return size;
+	}
+
+	/**
+	 * Serialize the postings. The blocks are written as they are.
+	 * 
+	 * @param pSink
+	 *          the output
+	 */
+	void serialize(final @Nonnull ByteArrayDataOutput pSink) {
+		putLong(pSink, mBlocks);
+		for (int block = 0; block < mBlocks; block++) {
+			putLong(pSink, mFirstKeys[block]);
+			putLong(pSink, mLastKeys[block] - mFirstKeys[block]);
+			putLong(pSink, mCounts[block]);
+			putLong(pSink, mLengths[block]);
+			pSink.write(mData[block], 0, mLengths[block]);
+		}
+	}
+
+	/**
+	 * Deserialize postings.
+	 * 
+	 * @param pSource
+	 *          the input
+	 * @return the postings
+	 */
+	static Postings deserialize(final @Nonnull ByteArrayDataInput pSource) {
+		final int blocks = (int) getLong(pSource);
+		final Postings postings = new Postings(blocks);
+		for (int block = 0; block < blocks; block++) {
+			postings.mFirstKeys[block] = getLong(pSource);
+			postings.mLastKeys[block] = postings.mFirstKeys[block]
+					+ getLong(pSource);
+			postings.mCounts[block] = (int) getLong(pSource);
+			postings.mLengths[block] = (int) getLong(pSource);
+			postings.mData[block] = new byte[postings.mLengths[block]];
+			pSource.readFully(postings.mData[block]);
+			postings.mSize += postings.mCounts[block];
+		}
+		postings.mBlocks = blocks;
+		return postings;
+	}
+
+	/**
+	 * Find the last block, whose first key is less than or equal to the given
+	 * key.
+	 * 
+	 * @param pKey
+	 *          the key
+	 * @return the block or {@code -1}, if the key is smaller than all keys
+	 */
+	private int findBlock(final long pKey) {
+		final int pos = Arrays.binarySearch(mFirstKeys, 0, mBlocks, pKey);
+		return pos >= 0 ? pos : -pos - 2;
+	}
+
+	/**
+	 * Decode the keys of a block.
+	 * 
+	 * @param pBlock
+	 *          the block
+	 * @param pSpare
+	 *          number of additional array slots
+	 * @return the keys
+	 */
+	private long[] decode(final @Nonnegative int pBlock,
+			final @Nonnegative int pSpare) {
+		final long[] keys = new long[mCounts[pBlock] + pSpare];
+		final Cursor cursor = new Cursor();
+		cursor.mBlock = pBlock;
+		for (int i = 0; i < mCounts[pBlock]; i++) {
+			cursor.next();
+			keys[i] = cursor.key();
+		}
+		return keys;
+	}
+
+	/**
+	 * Encode the keys of a block.
+	 * 
+	 * @param pBlock
+	 *          the block
+	 * @param pKeys
+	 *          ascending keys
+	 * @param pFrom
+	 *          index of the first key
+	 * @param pCount
+	 *          number of keys
+	 */
+	private void encode(final @Nonnegative int pBlock,
+			final @Nonnull long[] pKeys, final @Nonnegative int pFrom,
+			final @Nonnegative int pCount) {
+		mFirstKeys[pBlock] = pKeys[pFrom];
+		mLastKeys[pBlock] = pKeys[pFrom + pCount - 1];
+		mCounts[pBlock] = pCount;
+		mLengths[pBlock] = 0;
+		for (int i = pFrom + 1; i < pFrom + pCount; i++) {
+			writeVarint(pBlock, pKeys[i] - pKeys[i - 1]);
+		}
+	}
+
+	/**
+	 * Insert a new block.
+	 * 
+	 * @param pBlock
+	 *          position of the new block
+	 * @param pKeys
+	 *          ascending keys of the block
+	 * @param pCount
+	 *          number of keys
+	 */
+	private void insertBlock(final @Nonnegative int pBlock,
+			final @Nonnull long[] pKeys, final @Nonnegative int pCount) {
+		if (mBlocks == mFirstKeys.length) {
+			final int capacity = mBlocks << 1;
+			mFirstKeys = Arrays.copyOf(mFirstKeys, capacity);
+			mLastKeys = Arrays.copyOf(mLastKeys, capacity);
+			mCounts = Arrays.copyOf(mCounts, capacity);
+			mData = Arrays.copyOf(mData, capacity);
+			mLengths = Arrays.copyOf(mLengths, capacity);
+		}
+		final int moved = mBlocks - pBlock;
+		System.arraycopy(mFirstKeys, pBlock, mFirstKeys, pBlock + 1, moved);
+		System.arraycopy(mLastKeys, pBlock, mLastKeys, pBlock + 1, moved);
+		System.arraycopy(mCounts, pBlock, mCounts, pBlock + 1, moved);
+		System.arraycopy(mData, pBlock, mData, pBlock + 1, moved);
+		System.arraycopy(mLengths, pBlock, mLengths, pBlock + 1, moved);
+		mData[pBlock] = new byte[16];
+		mBlocks++;
+		encode(pBlock, pKeys, 0, pCount);
+	}
+
+	/**
+	 * Remove a block.
+	 * 
+	 * @param pBlock
+	 *          position of the block
+	 */
+	private void removeBlock(final @Nonnegative int pBlock) {
+		final int moved = mBlocks - pBlock - 1;
+		System.arraycopy(mFirstKeys, pBlock + 1, mFirstKeys, pBlock, moved);
+		System.arraycopy(mLastKeys, pBlock + 1, mLastKeys, pBlock, moved);
+		System.arraycopy(mCounts, pBlock + 1, mCounts, pBlock, moved);
+		System.arraycopy(mData, pBlock + 1, mData, pBlock, moved);
+		System.arraycopy(mLengths, pBlock + 1, mLengths, pBlock, moved);
+		mBlocks--;
+		mData[mBlocks] = null;
+	}
+
+	/**
+	 * Append an unsigned varint to the deltas of a block.
+	 * 
+	 * @param pBlock
+	 *          the block
+	 * @param pValue
+	 *          the value
+	 */
+	private void writeVarint(final @Nonnegative int pBlock, long pValue) {
+		byte[] data = mData[pBlock];
+		int length = mLengths[pBlock];
+		if (data.length - length < 10) {
+			data = Arrays.copyOf(data, (data.length << 1) + 10);
+			mData[pBlock] = data;
+		}
+		while ((pValue & ~0x7FL) != 0) {
+			data[length++] = (byte) ((pValue & 0x7F) | 0x80);
+			pValue >>>= 7;
+		}
+		data[length++] = (byte) pValue;
+		mLengths[pBlock] = length;
+	}
+
+	@Override
+	public boolean equals(final @Nullable Object pObj) {
+		if (pObj instanceof Postings) {
+			final Postings other = (Postings) pObj;
+			if (other.mSize != mSize) {
+				return false;
+			}
+			final Cursor first = cursor();
+			final Cursor second = other.cursor();
+			while (first.next()) {
+				second.next();
+				if (first.key() != second.key()) {
+					return false;
+				}
+			}
+			return true;
+		}
+		return false;
+	}
+
+	@Override
+	public int hashCode() {
+		int hash = 1;
+		for (final Cursor cursor = cursor(); cursor.next();) {
+			hash = 31 * hash + (int) (cursor.key() ^ (cursor.key() >>> 32));
+		}
+		return hash;
+	}
+
+	@Override
+	public String toString() {
+		return Arrays.toString(toArray());
+	}
+
+	/**
+	 * Forward cursor over the keys in ascending order.
+	 */
+	public final class Cursor {
+
+		/** Current block. */
+		private int mBlock;
+
+		/** Index of the current key in the current block or {@code -1}. */
+		private int mIndex = -1;
+
+		/** Offset of the next delta in the current block. */
+		private int mOffset;
+
+		/** Current key. */
+		private long mKey;
+
+		/**
+		 * Private constructor.
+		 */
+		private Cursor() {
+		}
+
+		/**
+		 * Move to the next key.
+		 * 
+		 * @return {@code true}, if the cursor has been moved, {@code false} if no
+		 *         more keys are available
+		 */
+		public boolean next() {
+			while (mBlock < mBlocks) {
+				if (mIndex == -1) {
+					mIndex = 0;
+					mOffset = 0;
+					mKey = mFirstKeys[mBlock];
+					return true;
+				}
+				if (mIndex + 1 < mCounts[mBlock]) {
+					final byte[] data = mData[mBlock];
+					long delta = 0;
+					int shift = 0;
+					byte b;
+					do {
+						b = data[mOffset++];
+						delta |= (long) (b & 0x7F) << shift;
+						shift += 7;
+					} while (b < 0);
+					mKey += delta;
+					mIndex++;
+					return true;
+				}
+				mBlock++;
+				mIndex = -1;
+			}
+			return false;
+		}
+
+		/**
+		 * Move to the first key, which is greater than or equal to the target,
+		 * unless the current key already is. Blocks, whose last key is smaller
+		 * than the target, are skipped without decoding them.
+		 * 
+		 * @param pTarget
+		 *          the target key
+		 * @return {@code true}, if the cursor is positioned on such a key,
+		 *         {@code false} if no more keys are available
+		 */
+		public boolean advance(final long pTarget) {
+			if (mIndex >= 0 && mKey >= pTarget) {
+				return true;
+			}
+			if (mBlock < mBlocks && mLastKeys[mBlock] < pTarget) {
+				// Binary search for the first block, whose last key is not smaller.
+				int low = mBlock + 1;
+				int high = mBlocks;
+				while (low < high) {
+					final int mid = (low + high) >>> 1;
+					if (mLastKeys[mid] < pTarget) {
+						low = mid + 1;
+					} else {
+						high = mid;
+					}
+				}
+				mBlock = low;
+				mIndex = -1;
+			}
+			while (next()) {
+				if (mKey >= pTarget) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * Get the current key.
+		 * 
+		 * @return the current key
+		 * @throws NoSuchElementException
+		 *           if the cursor is not positioned on a key
+		 */
+		public long key() {
+			if (mIndex < 0 || mBlock >= mBlocks) {
+				throw new NoSuchElementException();
+			}
+			return mKey;
+		}
+	}
+}
@@ -4,6 +4,7 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.Set;
 
 import javax.annotation.Nonnegative;
@@ -21,8 +22,8 @@ import com.google.common.base.Objects.ToStringHelper;
  * 
  */
 public class TextReferences implements INodeBase {
-	/** A {@link Set} of node-keys. */
-	private final Set<Long> mNodeKeys;
+	/** Compressed node-keys. */
+	private final Postings mNodeKeys;
 
 	/** Node-ID. */
 	private final long mNodeKey;
@@ -36,7 +37,19 @@ public class TextReferences implements INodeBase {
 	 *          node key of this node
 	 */
 	public TextReferences(final @Nonnull Set<Long> pNodeKeys, final long pNodeKey) {
-		mNodeKeys = Collections.synchronizedSet(checkNotNull(pNodeKeys));
+		this(new Postings(checkNotNull(pNodeKeys)), pNodeKey);
+	}
+
+	/**
+	 * Constructor.
+	 * 
+	 * @param pNodeKeys
+	 *          {@link Postings} of unique node-keys
+	 * @param pNodeKey
+	 *          node key of this node
+	 */
+	public TextReferences(final @Nonnull Postings pNodeKeys, final long pNodeKey) {
+		mNodeKeys = checkNotNull(pNodeKeys);
 		checkArgument(pNodeKey >= 0, "pNodeKey must be >= 0!");
 		mNodeKey = pNodeKey;
 	}
@@ -48,17 +61,34 @@ public class TextReferences implements INodeBase {
 	 *          node key to lookup
 	 * @return {@code true} if it is indexed, {@code false} otherwise
 	 */
-	public boolean getNodeKey(final @Nonnegative long pNodeKey) {
+	public synchronized boolean getNodeKey(final @Nonnegative long pNodeKey) {
 		return mNodeKeys.contains(pNodeKey);
 	}
 
 	/**
-	 * Get an unmodifiable set view.
+	 * Get an unmodifiable set copy. Prefer {@link #getPostings()}, which does
+	 * not box the keys.
 	 * 
 	 * @return set of all keys
 	 */
-	public Set<Long> getNodeKeys() {
-		return Collections.unmodifiableSet(mNodeKeys);
+	public synchronized Set<Long> getNodeKeys() {
+		final Set<Long> nodeKeys = new LinkedHashSet<>(mNodeKeys.size());
+		for (final Postings.Cursor cursor = mNodeKeys.cursor(); cursor.next();) {
+			nodeKeys.add(cursor.key());
+		}
+		return Collections.unmodifiableSet(nodeKeys);
+	}
+
+	/**
+	 * Get the compressed node-keys, which may be combined with the node-keys of
+	 * other values through {@link Postings#union(Postings, Postings)} and
+	 * {@link Postings#intersection(Postings, Postings)}. The postings must not
+	 * be modified.
+	 * 
+	 * @return the postings
+	 */
+	public Postings getPostings() {
+		return mNodeKeys;
 	}
 
 	/**
@@ -67,7 +97,7 @@ public class TextReferences implements INodeBase {
 	 * @param pNodeKey
 	 *          node key to set
 	 */
-	public void setNodeKey(final @Nonnegative long pNodeKey) {
+	public synchronized void setNodeKey(final @Nonnegative long pNodeKey) {
 		mNodeKeys.add(pNodeKey);
 	}
 
@@ -85,7 +115,7 @@ public class TextReferences implements INodeBase {
 	public String toString() {
 		final ToStringHelper helper = Objects.toStringHelper(this).add(
 				"this nodeKey", mNodeKey);
-		for (final long nodeKey : mNodeKeys) {
+		for (final long nodeKey : mNodeKeys.toArray()) {
 			helper.add("referenced node key", nodeKey);
 		}
 		return helper.toString();
@@ -3,6 +3,9 @@ package org.sirix.node;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import com.google.common.base.Objects;
+import com.google.common.primitives.UnsignedBytes;
+
+import java.util.Arrays;
 
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
@@ -56,18 +59,24 @@ public class TextValue implements Comparable<INodeBase>, INodeBase {
 	@Override
 	public int compareTo(final @Nullable INodeBase pOther) {
 		final TextValue value = (TextValue) pOther;
-		return mValue.toString().compareTo(value.toString());
+		return UnsignedBytes.lexicographicalComparator().compare(mValue,
+				value.mValue);
 	}
 
 	@Override
 	public boolean equals(final @Nullable Object pObj) {
 		if (pObj instanceof TextValue) {
 			final TextValue otherValue = (TextValue) pObj;
-			return otherValue.mValue.equals(mValue);
+			return Arrays.equals(otherValue.mValue, mValue);
 		}
 		return false;
 	}
 
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(mValue);
+	}
+
 	@Override
 	public long getNodeKey() {
 		return mNodeKey;
@@ -90,7 +99,7 @@ public class TextValue implements Comparable<INodeBase>, INodeBase {
 	@Override
 	public String toString() {
 		return Objects.toStringHelper(this).add("nodeKey", mNodeKey)
-				.add("value", mValue.toString()).toString();
+				.add("value", new String(mValue)).toString();
 	}
 
 	@Override
@@ -29,6 +29,7 @@ package org.sirix.node.delegates;
 import static com.google.common.base.Preconditions.checkNotNull;
 import com.google.common.base.Objects;
 
+import java.util.Arrays;
 import java.util.zip.Deflater;
 
 import javax.annotation.Nonnull;
@@ -124,7 +125,7 @@ public class ValNodeDelegate extends AbsForwardingNode implements IValNode {
 
   @Override
   public int hashCode() {
-    return Objects.hashCode(mDelegate, mVal);
+    return Objects.hashCode(mDelegate, Arrays.hashCode(mVal));
   }
 
   @Override
@@ -132,7 +133,7 @@ public class ValNodeDelegate extends AbsForwardingNode implements IValNode {
     if (pObj instanceof ValNodeDelegate) {
       final ValNodeDelegate other = (ValNodeDelegate)pObj;
       return Objects.equal(mDelegate, other.mDelegate)
-        && Objects.equal(mVal, other.mVal);
+        && Arrays.equals(mVal, other.mVal);
     }
     return false;
   }
@@ -29,11 +29,13 @@ package org.sirix.page;
 import com.google.common.io.ByteArrayDataInput;
 import com.google.common.io.ByteArrayDataOutput;
 
+import java.nio.ByteBuffer;
 import java.util.HashMap;
 import java.util.Map;
 
 import javax.annotation.Nonnull;
 
+import org.sirix.io.ByteBufferDataInput;
 import org.sirix.page.interfaces.IPage;
 
 /**
@@ -208,6 +210,54 @@ public enum EPage {
     IPage getInstance(@Nonnull final IPage pPage) {
       return new ValuePage(pPage.getRevision());
     }
+  },
+
+  /**
+   * {@link PathIndexPage}.
+   */
+  PATHINDEXPAGE((byte)8, PathIndexPage.class) {
+    @Override
+    @Nonnull
+    IPage deserializePage(@Nonnull final ByteArrayDataInput pSource) {
+      return new PathIndexPage(pSource);
+    }
+
+    @Override
+    void
+      serializePage(@Nonnull final ByteArrayDataOutput pSink, @Nonnull final IPage pPage) {
+      pSink.writeByte(PATHINDEXPAGE.mId);
+      pPage.serialize(pSink);
+    }
+
+    @Override
+    public @Nonnull
+    IPage getInstance(@Nonnull final IPage pPage) {
+      return new PathIndexPage(pPage.getRevision());
+    }
+  },
+
+  /**
+   * {@link CASPage}.
+   */
+  CASPAGE((byte)9, CASPage.class) {
+    @Override
+    @Nonnull
+    IPage deserializePage(@Nonnull final ByteArrayDataInput pSource) {
+      return new CASPage(pSource);
+    }
+
+    @Override
+    void
+      serializePage(@Nonnull final ByteArrayDataOutput pSink, @Nonnull final IPage pPage) {
+      pSink.writeByte(CASPAGE.mId);
+      pPage.serialize(pSink);
+    }
+
+    @Override
+    public @Nonnull
+    IPage getInstance(@Nonnull final IPage pPage) {
+      return new CASPage(pPage.getRevision());
+    }
   };
 
   /** Mapping of keys -> page */
@@ -263,6 +313,17 @@ public enum EPage {
    */
   abstract IPage deserializePage(@Nonnull final ByteArrayDataInput pSource);
 
+  /**
+   * Deserialize page directly from the remaining bytes of a buffer.
+   * 
+   * @param pSource
+   *          buffer to read from
+   * @return page instance implementing the {@link IPage} interface
+   */
+  IPage deserializePage(@Nonnull final ByteBuffer pSource) {
+    return deserializePage(new ByteBufferDataInput(pSource));
+  }
+
   /**
    * Public method to get the related page based on the identifier.
    * 
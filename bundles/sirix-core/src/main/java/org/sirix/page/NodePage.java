@@ -32,38 +32,105 @@ import com.google.common.base.Objects;
 import com.google.common.base.Objects.ToStringHelper;
 import com.google.common.io.ByteArrayDataInput;
 import com.google.common.io.ByteArrayDataOutput;
+import com.google.common.io.ByteStreams;
 
+import java.nio.ByteBuffer;
+import java.util.AbstractCollection;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Map.Entry;
-import java.util.Set;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 import org.sirix.api.IPageWriteTrx;
 import org.sirix.exception.SirixException;
 import org.sirix.node.EKind;
+import org.sirix.node.ERecordFormat;
 import org.sirix.node.interfaces.INodeBase;
 import org.sirix.page.delegates.PageDelegate;
 import org.sirix.page.interfaces.IPage;
+import org.sirix.settings.IConstants;
 
 /**
  * <h1>NodePage</h1>
  * 
  * <p>
- * A node page stores a set of nodes.
+ * A node page stores a set of nodes. Nodes are stored in an array which is
+ * indexed by the slot of a node, that is the lower
+ * {@link IConstants#NDP_NODE_COUNT_EXPONENT} bits of its node key. A bitmap
+ * denotes the occupied slots, such that iterating over all nodes only visits
+ * the present ones.
+ * </p>
+ * 
+ * <p>
+ * Pages are serialized with a table of record offsets in front of the node
+ * records. A deserialized page keeps the raw records and decodes a node only
+ * on first access, such that point lookups don't pay for decoding all nodes
+ * of the page. Pages in the former format, which simply lists all node
+ * records, are still readable and are decoded eagerly.
+ * </p>
+ * 
+ * <p>
+ * Nodes are written in the {@link ERecordFormat#CURRENT} record format, whose
+ * identifier is stored in the page header. Pages with records in an older
+ * format remain readable.
  * </p>
  */
 public class NodePage implements IPage {
 
+	/** Number of bits per bitmap word. */
+	private static final int WORD_EXPONENT = 6;
+
+	/**
+	 * Marker of the format with a record offset table and records in the
+	 * {@link ERecordFormat#FIXED} format, which is written in place of the
+	 * revision of former pages. Revisions are never negative.
+	 */
+	private static final int SLOTTED_FORMAT = -1;
+
+	/**
+	 * Marker of the format with a record offset table, which is followed by the
+	 * identifier of the record format.
+	 */
+	private static final int VERSIONED_FORMAT = -2;
+
 	/** Key of node page. This is the base key of all contained nodes. */
 	private final long mNodePageKey;
 
-	/** Nodes. */
-	private final Map<Long, INodeBase> mNodes;
+	/**
+	 * Nodes, indexed by slot. Slots which are occupied but still {@code null}
+	 * are decoded from {@link #mRecords} on first access, which might happen
+	 * concurrently if the page is shared between transactions.
+	 */
+	private final AtomicReferenceArray<INodeBase> mNodes;
+
+	/** Serialized node records, or {@code null} if all nodes are decoded. */
+	@Nullable
+	private final byte[] mRecords;
+
+	/** Offset of the record of each slot in {@link #mRecords}. */
+	@Nullable
+	private final int[] mOffsets;
+
+	/**
+	 * Fragments, which hold the records of slots taken over without decoding
+	 * them, indexed by slot, or {@code null} if no slot has been taken over.
+	 */
+	@Nullable
+	private NodePage[] mFragments;
+
+	/** Format of the records in {@link #mRecords}. */
+	private final ERecordFormat mFormat;
+
+	/** Bitmap of occupied slots. */
+	private final long[] mSlots;
+
+	/** Number of occupied slots. */
+	private int mSize;
 
 	/** {@link PageDelegate} reference. */
 	private final int mRevision;
@@ -85,7 +152,11 @@ public class NodePage implements IPage {
 		checkArgument(pRevision >= 0, "pRevision must not be negative!");
 		mRevision = pRevision;
 		mNodePageKey = pNodePageKey;
-		mNodes = new HashMap<>();
+		mNodes = new AtomicReferenceArray<>(IConstants.NDP_NODE_COUNT);
+		mSlots = new long[IConstants.NDP_NODE_COUNT >> WORD_EXPONENT];
+		mRecords = null;
+		mOffsets = null;
+		mFormat = ERecordFormat.CURRENT;
 		mIsDirty = true;
 	}
 
@@ -96,15 +167,38 @@ public class NodePage implements IPage {
 	 *          input bytes to read page from
 	 */
 	protected NodePage(final @Nonnull ByteArrayDataInput pIn) {
-		mRevision = pIn.readInt();
-		mNodePageKey = pIn.readLong();
-		final int size = pIn.readInt();
-		mNodes = new HashMap<>(size);
-		for (int offset = 0; offset < size; offset++) {
-			final byte id = pIn.readByte();
-			final EKind enumKind = EKind.getKind(id);
-			final INodeBase node = enumKind.deserialize(pIn);
-			mNodes.put(node.getNodeKey(), node);
+		mNodes = new AtomicReferenceArray<>(IConstants.NDP_NODE_COUNT);
+		mSlots = new long[IConstants.NDP_NODE_COUNT >> WORD_EXPONENT];
+		final int format = pIn.readInt();
+		if (format == SLOTTED_FORMAT || format == VERSIONED_FORMAT) {
+			mFormat = format == SLOTTED_FORMAT ? ERecordFormat.FIXED
+					: ERecordFormat.getFormat(pIn.readByte());
+			mRevision = pIn.readInt();
+			mNodePageKey = pIn.readLong();
+			for (int i = 0; i < mSlots.length; i++) {
+				mSlots[i] = pIn.readLong();
+				mSize += Long.bitCount(mSlots[i]);
+			}
+			mOffsets = new int[IConstants.NDP_NODE_COUNT];
+			for (int slot = nextSlot(0); slot >= 0; slot = nextSlot(slot + 1)) {
+				mOffsets[slot] = pIn.readInt();
+			}
+			mRecords = new byte[pIn.readInt()];
+			pIn.readFully(mRecords);
+		} else {
+			// Former format: the revision followed by all node records.
+			mFormat = ERecordFormat.FIXED;
+			mRevision = format;
+			mNodePageKey = pIn.readLong();
+			mRecords = null;
+			mOffsets = null;
+			final int size = pIn.readInt();
+			for (int offset = 0; offset < size; offset++) {
+				final byte id = pIn.readByte();
+				final EKind enumKind = EKind.getKind(id);
+				final INodeBase node = enumKind.deserialize(pIn, mFormat);
+				setNode(node);
+			}
 		}
 	}
 
@@ -117,6 +211,17 @@ public class NodePage implements IPage {
 		return mNodePageKey;
 	}
 
+	/**
+	 * Get the slot of a node.
+	 * 
+	 * @param pKey
+	 *          node key
+	 * @return slot of the node in a node page
+	 */
+	public static int slot(final long pKey) {
+		return (int) (pKey & (IConstants.NDP_NODE_COUNT - 1));
+	}
+
 	/**
 	 * Get node with the specified node key.
 	 * 
@@ -126,7 +231,138 @@ public class NodePage implements IPage {
 	 */
 	public INodeBase getNode(final @Nonnegative long pKey) {
 		checkArgument(pKey >= 0, "pKey must not be negative!");
-		return mNodes.get(pKey);
+		final INodeBase node = getNodeInSlot(slot(pKey));
+		return node != null && node.getNodeKey() == pKey ? node : null;
+	}
+
+	/**
+	 * Get the node in the given slot.
+	 * 
+	 * @param pSlot
+	 *          the slot
+	 * @return node in the given slot, or {@code null} if the slot is empty
+	 */
+	public INodeBase getNodeInSlot(final @Nonnegative int pSlot) {
+		final INodeBase node = mNodes.get(pSlot);
+		if (node == null && isSlotOccupied(pSlot)) {
+			return decode(pSlot);
+		}
+		return node;
+	}
+
+	/**
+	 * Decode the node record of a slot. The record of a slot, which has been
+	 * taken over from a fragment, is decoded by the fragment, such that all
+	 * pages share the decoded node. If another thread decodes the same record
+	 * concurrently, the node which is stored first wins.
+	 * 
+	 * @param pSlot
+	 *          the slot
+	 * @return the decoded node
+	 */
+	private INodeBase decode(final @Nonnegative int pSlot) {
+		final NodePage holder = holder(pSlot);
+		final INodeBase node;
+		if (holder == this) {
+			final ByteBuffer record = ByteBuffer.wrap(mRecords, mOffsets[pSlot],
+					mRecords.length - mOffsets[pSlot]);
+			node = EKind.getKind(record.get()).deserialize(record, mFormat);
+		} else {
+			node = holder.getNodeInSlot(pSlot);
+		}
+		if (mNodes.compareAndSet(pSlot, null, node)) {
+			return node;
+		}
+		return mNodes.get(pSlot);
+	}
+
+	/**
+	 * Determines if the node in the given slot has not been decoded yet.
+	 * 
+	 * @param pSlot
+	 *          the slot
+	 * @return {@code true}, if the slot is occupied by a raw node record,
+	 *         {@code false} otherwise
+	 */
+	private boolean isEncoded(final @Nonnegative int pSlot) {
+		return mNodes.get(pSlot) == null && isSlotOccupied(pSlot);
+	}
+
+	/**
+	 * Get the page, which holds the record of an encoded slot.
+	 * 
+	 * @param pSlot
+	 *          the encoded slot
+	 * @return the fragment the slot has been taken over from, or this page
+	 */
+	private NodePage holder(final @Nonnegative int pSlot) {
+		if (mFragments != null && mFragments[pSlot] != null) {
+			return mFragments[pSlot];
+		}
+		return this;
+	}
+
+	/**
+	 * Get the end of the record of an encoded slot, which is the start of the
+	 * record of the next slot, that has been deserialized. Slots, which have
+	 * been occupied afterwards, don't have a record.
+	 * 
+	 * @param pSlot
+	 *          the encoded slot
+	 * @return the end offset of the record
+	 */
+	private int recordEnd(final @Nonnegative int pSlot) {
+		for (int slot = nextSlot(pSlot + 1); slot >= 0; slot = nextSlot(slot + 1)) {
+			if (mOffsets[slot] > mOffsets[pSlot]) {
+				return mOffsets[slot];
+			}
+		}
+		return mRecords.length;
+	}
+
+	/**
+	 * Determines if the given slot is occupied.
+	 * 
+	 * @param pSlot
+	 *          the slot
+	 * @return {@code true}, if a node is stored in the slot, {@code false}
+	 *         otherwise
+	 */
+	public boolean isSlotOccupied(final @Nonnegative int pSlot) {
+		return (mSlots[pSlot >>> WORD_EXPONENT] & (1L << pSlot)) != 0;
+	}
+
+	/**
+	 * Get the next occupied slot.
+	 * 
+	 * @param pFromSlot
+	 *          the slot to start with (inclusive)
+	 * @return the next occupied slot, or {@code -1} if there is none
+	 */
+	public int nextSlot(final @Nonnegative int pFromSlot) {
+		int index = pFromSlot >>> WORD_EXPONENT;
+		if (index >= mSlots.length) {
+			return -1;
+		}
+		long word = mSlots[index] & (-1L << pFromSlot);
+		while (true) {
+			if (word != 0) {
+				return (index << WORD_EXPONENT) + Long.numberOfTrailingZeros(word);
+			}
+			if (++index == mSlots.length) {
+				return -1;
+			}
+			word = mSlots[index];
+		}
+	}
+
+	/**
+	 * Number of nodes stored in the page.
+	 * 
+	 * @return number of nodes
+	 */
+	public int size() {
+		return mSize;
 	}
 
 	/**
@@ -138,18 +374,102 @@ public class NodePage implements IPage {
 	 *          node to store at given nodeOffset
 	 */
 	public void setNode(final @Nonnull INodeBase pNode) {
-		mNodes.put(pNode.getNodeKey(), checkNotNull(pNode));
+		final int slot = slot(checkNotNull(pNode).getNodeKey());
+		occupy(slot);
+		mNodes.set(slot, pNode);
+	}
+
+	/**
+	 * Take over the node in a slot of another page with the same node page key,
+	 * that is a fragment of another revision. A record, which hasn't been
+	 * decoded yet, is neither decoded nor copied, but decoded from the fragment
+	 * on first access and copied from the fragment on serialization.
+	 * 
+	 * @param pFragment
+	 *          the fragment
+	 * @param pSlot
+	 *          the occupied slot of the fragment
+	 */
+	public void copySlot(final @Nonnull NodePage pFragment,
+			final @Nonnegative int pSlot) {
+		checkArgument(pFragment.mNodePageKey == mNodePageKey,
+				"pFragment must have the same node page key!");
+		checkArgument(pFragment.isSlotOccupied(pSlot),
+				"pSlot must be occupied in pFragment!");
+		final INodeBase node = pFragment.mNodes.get(pSlot);
+		if (node != null) {
+			setNode(node);
+		} else {
+			occupy(pSlot);
+			if (mFragments == null) {
+				mFragments = new NodePage[IConstants.NDP_NODE_COUNT];
+			}
+			mFragments[pSlot] = pFragment.holder(pSlot);
+			mNodes.set(pSlot, null);
+		}
+	}
+
+	/**
+	 * Mark a slot as occupied.
+	 * 
+	 * @param pSlot
+	 *          the slot
+	 */
+	private void occupy(final @Nonnegative int pSlot) {
+		if (!isSlotOccupied(pSlot)) {
+			mSlots[pSlot >>> WORD_EXPONENT] |= 1L << pSlot;
+			mSize++;
+		}
+	}
+
+	/**
+	 * Number of nodes, which have been set or decoded.
+	 * 
+	 * @return number of decoded nodes
+	 */
+	public int decodedSize() {
+		int size = 0;
+		for (int slot = nextSlot(0); slot >= 0; slot = nextSlot(slot + 1)) {
+			if (mNodes.get(slot) != null) {
+				size++;
+			}
+		}
+		return size;
 	}
 
 	@Override
 	public void serialize(final @Nonnull ByteArrayDataOutput pOut) {
+		pOut.writeInt(VERSIONED_FORMAT);
+		pOut.writeByte(ERecordFormat.CURRENT.getId());
 		pOut.writeInt(mRevision);
 		pOut.writeLong(mNodePageKey);
-		pOut.writeInt(mNodes.size());
-		for (final INodeBase node : mNodes.values()) {
-			final byte id = node.getKind().getId();
-			pOut.writeByte(id);
-			EKind.getKind(node.getClass()).serialize(pOut, node);
+		for (final long word : mSlots) {
+			pOut.writeLong(word);
+		}
+
+		// Records which haven't been decoded are copied unchanged, if they are
+		// in the current format.
+		final byte[][] records = new byte[mSize][];
+		int i = 0;
+		int offset = 0;
+		for (int slot = nextSlot(0); slot >= 0; slot = nextSlot(slot + 1)) {
+			final NodePage holder = holder(slot);
+			if (isEncoded(slot) && holder.mFormat == ERecordFormat.CURRENT) {
+				records[i] = Arrays.copyOfRange(holder.mRecords,
+						holder.mOffsets[slot], holder.recordEnd(slot));
+			} else {
+				final INodeBase node = getNodeInSlot(slot);
+				final ByteArrayDataOutput record = ByteStreams.newDataOutput();
+				record.writeByte(node.getKind().getId());
+				EKind.getKind(node.getClass()).serialize(record, node);
+				records[i] = record.toByteArray();
+			}
+			pOut.writeInt(offset);
+			offset += records[i++].length;
+		}
+		pOut.writeInt(offset);
+		for (final byte[] record : records) {
+			pOut.write(record);
 		}
 	}
 
@@ -157,33 +477,36 @@ public class NodePage implements IPage {
 	public final String toString() {
 		final ToStringHelper helper = Objects.toStringHelper(this)
 				.add("revision", mRevision).add("pagekey", mNodePageKey)
-				.add("nodes", mNodes.toString());
-		for (final INodeBase node : mNodes.values()) {
+				.add("size", mSize);
+		for (final INodeBase node : values()) {
 			helper.add("node", node);
 		}
 		return helper.toString();
 	}
 
-	/**
-	 * Entry set of all nodes in the page.
-	 * 
-	 * @return an entry set
-	 */
-	public final Set<Entry<Long, INodeBase>> entrySet() {
-		return Collections.unmodifiableSet(mNodes.entrySet());
-	}
-
 	@Override
 	public int hashCode() {
-		return Objects.hashCode(mNodePageKey, mNodes);
+		int result = Objects.hashCode(mNodePageKey);
+		for (final INodeBase node : values()) {
+			result = 31 * result + node.hashCode();
+		}
+		return result;
 	}
 
 	@Override
-	public boolean equals(final Object pObj) {
+	public boolean equals(final @Nullable Object pObj) {
 		if (pObj instanceof NodePage) {
 			final NodePage other = (NodePage) pObj;
-			return Objects.equal(mNodePageKey, other.mNodePageKey)
-					&& Objects.equal(mNodes, other.mNodes);
+			if (mNodePageKey != other.mNodePageKey
+					|| !Arrays.equals(mSlots, other.mSlots)) {
+				return false;
+			}
+			for (int slot = nextSlot(0); slot >= 0; slot = nextSlot(slot + 1)) {
+				if (!Objects.equal(getNodeInSlot(slot), other.getNodeInSlot(slot))) {
+					return false;
+				}
+			}
+			return true;
 		}
 		return false;
 	}
@@ -204,12 +527,44 @@ public class NodePage implements IPage {
 	}
 
 	/**
-	 * All available nodes.
+	 * All available nodes in slot order.
 	 * 
-	 * @return a collection view of all nodes
+	 * @return an unmodifiable collection view of all nodes
 	 */
 	public Collection<INodeBase> values() {
-		return Collections.unmodifiableCollection(mNodes.values());
+		return new AbstractCollection<INodeBase>() {
+			@Override
+			public Iterator<INodeBase> iterator() {
+				return new Iterator<INodeBase>() {
+					private int mNext = nextSlot(0);
+
+					@Override
+					public boolean hasNext() {
+						return mNext >= 0;
+					}
+
+					@Override
+					public INodeBase next() {
+						if (mNext < 0) {
+							throw new NoSuchElementException();
+						}
+						final INodeBase node = getNodeInSlot(mNext);
+						mNext = nextSlot(mNext + 1);
+						return node;
+					}
+
+					@Override
+					public void remove() {
+						throw new UnsupportedOperationException();
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return mSize;
+			}
+		};
 	}
 
 	@Override
@@ -30,6 +30,8 @@ package org.sirix.page;
 import com.google.common.io.ByteArrayDataInput;
 import com.google.common.io.ByteArrayDataOutput;
 
+import java.nio.ByteBuffer;
+
 import javax.annotation.Nonnull;
 
 import org.sirix.page.interfaces.IPage;
@@ -54,6 +56,20 @@ public final class PagePersistenter {
     return EPage.getKind(pSource.readByte()).deserializePage(pSource);
   }
 
+  /**
+   * Deserialize page directly from the remaining bytes of a buffer, which are
+   * consumed. The buffer might be reused afterwards, as pages do not keep
+   * references to it.
+   * 
+   * @param pSource
+   *          buffer to read from
+   * @return the created {@link IPage}
+   */
+  public static @Nonnull
+  IPage deserializePage(@Nonnull final ByteBuffer pSource) {
+    return EPage.getKind(pSource.get()).deserializePage(pSource);
+  }
+
   /**
    * Serialize page.
    * 
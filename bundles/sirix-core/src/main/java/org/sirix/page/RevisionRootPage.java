@@ -44,8 +44,8 @@ import com.google.common.io.ByteArrayDataOutput;
  * <h1>RevisionRootPage</h1>
  * 
  * <p>
- * Revision root page holds a reference to the name page as well as the static
- * node page tree.
+ * Revision root page holds a reference to the name page, the index pages as
+ * well as the static node page tree.
  * </p>
  */
 public final class RevisionRootPage extends AbsForwardingPage {
@@ -62,6 +62,12 @@ public final class RevisionRootPage extends AbsForwardingPage {
 	/** Offset of indirect page reference. */
 	private static final int INDIRECT_REFERENCE_OFFSET = 3;
 
+	/** Offset of path index page reference. */
+	private static final int PATH_INDEX_REFERENCE_OFFSET = 4;
+
+	/** Offset of CAS page reference. */
+	private static final int CAS_REFERENCE_OFFSET = 5;
+
 	/** Last allocated node key. */
 	private long mMaxNodeKey;
 
@@ -71,6 +77,9 @@ public final class RevisionRootPage extends AbsForwardingPage {
 	/** Last allocated value node key. */
 	private long mMaxValueNodeKey;
 
+	/** Last allocated CAS node key. */
+	private long mMaxCASNodeKey;
+
 	/** Timestamp of revision. */
 	private long mRevisionTimestamp;
 
@@ -81,16 +90,21 @@ public final class RevisionRootPage extends AbsForwardingPage {
 	 * Create revision root page.
 	 */
 	public RevisionRootPage() {
-		mDelegate = new PageDelegate(4, IConstants.UBP_ROOT_REVISION_NUMBER);
+		mDelegate = new PageDelegate(6, IConstants.UBP_ROOT_REVISION_NUMBER);
 		getReference(NAME_REFERENCE_OFFSET).setPage(
 				new NamePage(IConstants.UBP_ROOT_REVISION_NUMBER));
 		getReference(PATH_SUMMARY_REFERENCE_OFFSET).setPage(
 				new PathSummaryPage(IConstants.UBP_ROOT_REVISION_NUMBER));
 		getReference(VALUE_REFERENCE_OFFSET).setPage(
 				new ValuePage(IConstants.UBP_ROOT_REVISION_NUMBER));
+		getReference(PATH_INDEX_REFERENCE_OFFSET).setPage(
+				new PathIndexPage(IConstants.UBP_ROOT_REVISION_NUMBER));
+		getReference(CAS_REFERENCE_OFFSET).setPage(
+				new CASPage(IConstants.UBP_ROOT_REVISION_NUMBER));
 		mMaxNodeKey = -1L;
 		mMaxPathNodeKey = -1L;
 		mMaxValueNodeKey = -1L;
+		mMaxCASNodeKey = -1L;
 	}
 
 	/**
@@ -100,10 +114,11 @@ public final class RevisionRootPage extends AbsForwardingPage {
 	 *          input stream
 	 */
 	protected RevisionRootPage(final @Nonnull ByteArrayDataInput pIn) {
-		mDelegate = new PageDelegate(4, pIn);
+		mDelegate = new PageDelegate(6, pIn);
 		mMaxNodeKey = pIn.readLong();
 		mMaxPathNodeKey = pIn.readLong();
 		mMaxValueNodeKey = pIn.readLong();
+		mMaxCASNodeKey = pIn.readLong();
 		mRevisionTimestamp = pIn.readLong();
 	}
 
@@ -122,6 +137,7 @@ public final class RevisionRootPage extends AbsForwardingPage {
 		mMaxNodeKey = pCommittedRevisionRootPage.mMaxNodeKey;
 		mMaxPathNodeKey = pCommittedRevisionRootPage.mMaxPathNodeKey;
 		mMaxValueNodeKey = pCommittedRevisionRootPage.mMaxValueNodeKey;
+		mMaxCASNodeKey = pCommittedRevisionRootPage.mMaxCASNodeKey;
 		mRevisionTimestamp = pCommittedRevisionRootPage.mRevisionTimestamp;
 	}
 
@@ -143,6 +159,24 @@ public final class RevisionRootPage extends AbsForwardingPage {
 		return getReference(VALUE_REFERENCE_OFFSET);
 	}
 
+	/**
+	 * Get path index page reference.
+	 * 
+	 * @return path index page reference
+	 */
+	public PageReference getPathIndexPageReference() {
+		return getReference(PATH_INDEX_REFERENCE_OFFSET);
+	}
+
+	/**
+	 * Get CAS page reference.
+	 * 
+	 * @return CAS page reference
+	 */
+	public PageReference getCASPageReference() {
+		return getReference(CAS_REFERENCE_OFFSET);
+	}
+
 	/**
 	 * Get name page reference.
 	 * 
@@ -197,6 +231,15 @@ public final class RevisionRootPage extends AbsForwardingPage {
 		return mMaxValueNodeKey;
 	}
 
+	/**
+	 * Get last allocated CAS node key.
+	 * 
+	 * @return last allocated CAS node key
+	 */
+	public long getMaxCASNodeKey() {
+		return mMaxCASNodeKey;
+	}
+
 	/**
 	 * Increment number of nodes by one while allocating another key.
 	 */
@@ -218,6 +261,13 @@ public final class RevisionRootPage extends AbsForwardingPage {
 		mMaxValueNodeKey += 1;
 	}
 
+	/**
+	 * Increment number of CAS nodes by one while allocating another key.
+	 */
+	public void incrementMaxCASNodeKey() {
+		mMaxCASNodeKey += 1;
+	}
+
 	/**
 	 * Set the maximum node key in the revision.
 	 * 
@@ -248,6 +298,16 @@ public final class RevisionRootPage extends AbsForwardingPage {
 		mMaxValueNodeKey = pMaxNodeKey;
 	}
 
+	/**
+	 * Set the maximum CAS node key in the revision.
+	 * 
+	 * @param pMaxNodeKey
+	 *          new maximum node key
+	 */
+	public void setMaxCASNodeKey(final @Nonnegative long pMaxNodeKey) {
+		mMaxCASNodeKey = pMaxNodeKey;
+	}
+
 	@Override
 	public void serialize(final @Nonnull ByteArrayDataOutput pOut) {
 		mRevisionTimestamp = System.currentTimeMillis();
@@ -255,6 +315,7 @@ public final class RevisionRootPage extends AbsForwardingPage {
 		pOut.writeLong(mMaxNodeKey);
 		pOut.writeLong(mMaxPathNodeKey);
 		pOut.writeLong(mMaxValueNodeKey);
+		pOut.writeLong(mMaxCASNodeKey);
 		pOut.writeLong(mRevisionTimestamp);
 	}
 
@@ -131,6 +131,26 @@ public final class UberPage extends AbsForwardingPage {
 		mRootPage.incrementMaxPathNodeKey();
 	}
 
+	/**
+	 * Initialize path index tree. The records are addressed by the keys of the
+	 * path summary nodes, thus no key is allocated.
+	 */
+	public void createPathIndexTree() {
+		final PageReference reference = mRootPage.getPathIndexPageReference()
+				.getPage().getReference(INDIRECT_REFERENCE_OFFSET);
+		createTree(reference, EPage.PATHINDEXPAGE);
+	}
+
+	/**
+	 * Initialize CAS index tree.
+	 */
+	public void createCASTree() {
+		final PageReference reference = mRootPage.getCASPageReference().getPage()
+				.getReference(INDIRECT_REFERENCE_OFFSET);
+		createTree(reference, EPage.CASPAGE);
+		mRootPage.incrementMaxCASNodeKey();
+	}
+
 	/**
 	 * Determines if first (revision 0) has been solely bulk inserted.
 	 */
@@ -311,9 +331,11 @@ public final class UberPage extends AbsForwardingPage {
 		int[] inpLevelPageCountExp = new int[0];
 		switch (pPage) {
 		case PATHSUMMARYPAGE:
+		case PATHINDEXPAGE:
 			inpLevelPageCountExp = IConstants.PATHINP_LEVEL_PAGE_COUNT_EXPONENT;
 			break;
 		case VALUEPAGE:
+		case CASPAGE:
 		case NODEPAGE:
 			inpLevelPageCountExp = IConstants.INP_LEVEL_PAGE_COUNT_EXPONENT;
 			break;
@@ -27,7 +27,13 @@
 
 package org.sirix.service.xml.xpath;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
 import org.sirix.api.IAxis;
+import org.sirix.api.IBatchAxis;
 import org.sirix.axis.AncestorAxis;
 import org.sirix.axis.ChildAxis;
 import org.sirix.axis.DescendantAxis;
@@ -38,8 +44,19 @@ import org.sirix.axis.NestedAxis;
 import org.sirix.axis.ParentAxis;
 import org.sirix.axis.PrecedingAxis;
 import org.sirix.axis.PrecedingSiblingAxis;
+import org.sirix.axis.batch.AxisBatchAdapter;
+import org.sirix.axis.batch.BatchAxisAdapter;
+import org.sirix.axis.batch.BatchFilterAxis;
+import org.sirix.axis.batch.ChildBatchAxis;
+import org.sirix.axis.batch.DescendantBatchAxis;
+import org.sirix.index.path.PathSummary;
 import org.sirix.service.xml.xpath.expr.UnionAxis;
+import org.sirix.service.xml.xpath.filter.DocumentNodeAxis;
 import org.sirix.service.xml.xpath.filter.DupFilterAxis;
+import org.sirix.service.xml.xpath.rewrite.IndexRewriter;
+import org.sirix.service.xml.xpath.rewrite.PathPattern;
+
+import com.google.common.base.Optional;
 
 /**
  * <h1>ExpresseionSingle</h1>
@@ -67,11 +84,46 @@ public class ExpressionSingle {
   /** Current duplicate state. */
   private DupState mDup;
 
+  /** Rewriting stage, or {@code null} if the expression is not rewritten. */
+  private final IndexRewriter mRewriter;
+
+  /** Steps of an absolute location path, or {@code null}. */
+  private PathPattern mPattern;
+
+  /** All added axis, as they are nested. */
+  private final List<IAxis> mAxes;
+
+  /** Execution chain using an index, or {@code null}. */
+  private IAxis mRewritten;
+
+  /** Determines if steps are evaluated over batches. */
+  private final boolean mBatch;
+
+  /** Execution chain evaluating leading steps over batches, or {@code null}. */
+  private IAxis mBatched;
+
   /**
    * Constructor. Initializes the internal state.
    */
   public ExpressionSingle() {
+    this(null, false);
+  }
 
+  /**
+   * Constructor. Initializes the internal state.
+   * 
+   * @param pRewriter
+   *          rewriting stage, which answers an absolute location path through
+   *          the indexes, or {@code null}
+   * @param pBatch
+   *          determines if child and descendant steps, which directly follow
+   *          the first axis, are evaluated over batches of node keys
+   */
+  public ExpressionSingle(final @Nullable IndexRewriter pRewriter, final boolean pBatch) {
+
+    mRewriter = pRewriter;
+    mBatch = pBatch;
+    mAxes = new ArrayList<>();
     mNumber = 0;
 
     mOrd = OrdState.MAX1;
@@ -90,10 +142,21 @@ public class ExpressionSingle {
    */
   public void add(final IAxis pAx) {
     IAxis axis = pAx;
+      if (mRewriter != null) {
+        if (mNumber == 0) {
+          mPattern = axis instanceof DocumentNodeAxis ? new PathPattern(axis.getTransaction()) : null;
+        } else if (mPattern != null) {
+          mPattern.add(axis);
+        }
+        mRewritten = null;
+      }
+      mBatched = null;
+
       if (isDupOrd(axis)) {
         axis = new DupFilterAxis(axis.getTransaction(), axis);
         DupState.nodup = true;
       }
+      mAxes.add(axis);
 
       switch (mNumber) {
       case 0:
@@ -112,15 +175,91 @@ public class ExpressionSingle {
 
   /**
    * Returns a chain to execute the query. If there is only one axis added,
-   * the chain was not build yet, so only this axis is returned.
+   * the chain was not build yet, so only this axis is returned. If the chain
+   * starts with an absolute location path, which can be answered through the
+   * indexes, the steps of the path are replaced by the index lookup.
    * 
    * @return The query execution chain
    */
   public IAxis getExpr() {
 
+    if (mPattern != null && mPattern.isRewritable()) {
+      if (mRewritten == null) {
+        final Optional<IAxis> rewritten = mRewriter.rewrite(mPattern);
+        if (rewritten.isPresent()) {
+          IAxis expr = rewritten.get();
+          for (final IAxis axis : mAxes.subList(mPattern.getLength(), mAxes.size())) {
+            expr = new NestedAxis(expr, axis);
+          }
+          mRewritten = expr;
+        } else {
+          mPattern = null;
+        }
+      }
+      if (mRewritten != null) {
+        return mRewritten;
+      }
+    }
+    if (mBatch && mNumber > 1) {
+      if (mBatched == null) {
+        mBatched = batch();
+      }
+      return mBatched;
+    }
     return (mNumber == 1) ? mFirstAxis : mExpr;
   }
 
+  /**
+   * Build an execution chain, which evaluates the child and descendant steps
+   * following the first axis over batches of node keys, and nests the
+   * remaining axis as usual.
+   * 
+   * @return the execution chain, or the nested chain, if no step is evaluated
+   *         over batches
+   */
+  private IAxis batch() {
+    int steps = 0;
+    for (final IAxis axis : mAxes.subList(1, mAxes.size())) {
+      if (!isBatchStep(axis)) {
+        break;
+      }
+      steps++;
+    }
+    final IAxis first = mAxes.get(0);
+    if (steps == 0 || first.getTransaction() == null || first.getTransaction() instanceof PathSummary) {
+      return mExpr;
+    }
+    IBatchAxis batch = new AxisBatchAdapter(first);
+    for (final IAxis axis : mAxes.subList(1, steps + 1)) {
+      final IAxis step = axis instanceof FilterAxis ? ((FilterAxis)axis).getAxis() : axis;
+      batch =
+        step instanceof ChildAxis ? new ChildBatchAxis(step.getTransaction(), batch) : new DescendantBatchAxis(
+          step.getTransaction(), batch, step.isSelfIncluded());
+      if (axis instanceof FilterAxis) {
+        batch = new BatchFilterAxis(batch, ((FilterAxis)axis).getFilters());
+      }
+    }
+    IAxis expr = new BatchAxisAdapter(batch);
+    for (final IAxis axis : mAxes.subList(steps + 1, mAxes.size())) {
+      expr = new NestedAxis(expr, axis);
+    }
+    return expr;
+  }
+
+  /**
+   * Determines if an axis is a child or descendant step, which can be evaluated
+   * over batches.
+   * 
+   * @param pAxis
+   *          the axis
+   * @return {@code true}, if the axis can be evaluated over batches
+   */
+  private static boolean isBatchStep(final IAxis pAxis) {
+    final IAxis axis = pAxis instanceof FilterAxis ? ((FilterAxis)pAxis).getAxis() : pAxis;
+    return (axis.getClass() == ChildAxis.class || axis.getClass() == DescendantAxis.class)
+      && axis.getTransaction() == pAxis.getTransaction();
+  }
+
   /**
    * Returns the number of axis in this expression.
    * 
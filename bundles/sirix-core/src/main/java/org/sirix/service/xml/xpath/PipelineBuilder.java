@@ -69,6 +69,7 @@ import org.sirix.service.xml.xpath.operators.IDivOpAxis;
 import org.sirix.service.xml.xpath.operators.ModOpAxis;
 import org.sirix.service.xml.xpath.operators.MulOpAxis;
 import org.sirix.service.xml.xpath.operators.SubOpAxis;
+import org.sirix.service.xml.xpath.rewrite.IndexRewriter;
 
 /**
  * <h1>PipeBuilder</h1>
@@ -84,12 +85,16 @@ public final class PipelineBuilder {
   /** Maps a variable name to the item that the variable holds. */
   private final Map<String, IAxis> mVarRefMap;
 
+  /** Rewrites absolute location paths to use the indexes. */
+  private final IndexRewriter mRewriter;
+
   /**
    * Constructor.
    */
   public PipelineBuilder() {
     mExprStack = new Stack<Stack<ExpressionSingle>>();
     mVarRefMap = new HashMap<String, IAxis>();
+    mRewriter = new IndexRewriter();
   }
 
   /**
@@ -192,7 +197,7 @@ public final class PipelineBuilder {
     // expression, therefore a new expression chain is build and added to
     // the
     // stack.
-    getPipeStack().push(new ExpressionSingle());
+    getPipeStack().push(new ExpressionSingle(mRewriter, true));
   }
 
   /**
@@ -810,6 +815,16 @@ public final class PipelineBuilder {
 
   }
 
+  /**
+   * Describes the plans chosen for the absolute location paths of the query,
+   * one line per path.
+   * 
+   * @return the plans
+   */
+  public String explain() {
+    return mRewriter.explain();
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -87,6 +87,9 @@ public final class XPathAxis extends AbsAxis {
   /** Axis holding the consecutive query execution plans of the query. */
   private IAxis mPipeline;
 
+  /** Description of the plans chosen for the location paths. */
+  private final String mExplain;
+
   /**
    * <p>
    * Constructor initializing internal state.
@@ -112,6 +115,18 @@ public final class XPathAxis extends AbsAxis {
     final XPathParser parser = new XPathParser(pRtx, checkNotNull(pQuery));
     parser.parseQuery();
     mPipeline = parser.getQueryPipeline();
+    mExplain = parser.explain();
+  }
+
+  /**
+   * Describes the plans chosen for the absolute location paths of the query,
+   * that is if they are answered through the path summary, the value index or
+   * by navigation.
+   * 
+   * @return the plans, one line per path
+   */
+  public String explain() {
+    return mExplain;
   }
 
   @Override
@@ -203,6 +203,24 @@ public abstract class AbsComparator extends AbsAxis {
     return mComp;
   }
 
+  /**
+   * Get the first operand of the comparison.
+   * 
+   * @return first operand
+   */
+  public final IAxis getOperandOne() {
+    return mOperand1;
+  }
+
+  /**
+   * Get the second operand of the comparison.
+   * 
+   * @return second operand
+   */
+  public final IAxis getOperandTwo() {
+    return mOperand2;
+  }
+
   /**
    * Factory method to implement the comparator.
    * 
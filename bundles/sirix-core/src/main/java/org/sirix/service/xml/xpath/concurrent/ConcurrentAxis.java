@@ -29,18 +29,12 @@ package org.sirix.service.xml.xpath.concurrent;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 
 import org.sirix.api.IAxis;
 import org.sirix.api.INodeReadTrx;
 import org.sirix.axis.AbsAxis;
-import org.sirix.settings.EFixed;
 
 /**
  * <h1>ConcurrentAxis</h1>
@@ -48,9 +42,12 @@ import org.sirix.settings.EFixed;
  * Realizes in combination with the <code>ConurrentAxisHelper</code> the concurrent evaluation of pipeline
  * steps. The given axis is uncoupled from the main thread by embedding it in a Runnable that uses its one
  * transaction and stores all the results to a queue. The ConcurrentAxis gets the computed results from that
- * queue one by one on every hasNext() call and sets the main-transaction to it. As soon as the end of the
- * computed result sequence is reached (marked by the NULL_NODE_KEY), the ConcurrentAxis returns
- * <code>false</code>.
+ * queue in batches and sets the main-transaction to one result on every hasNext() call. As soon as the end of
+ * the computed result sequence is reached, the ConcurrentAxis returns <code>false</code>.
+ * </p>
+ * <p>
+ * The producers of all concurrent axis are evaluated by a shared, bounded {@link ConcurrentExecutor}. A
+ * producer is cancelled, when the axis is reset or closed.
  * </p>
  * <p>
  * This framework is working according to the producer-consumer-principle, where the ConcurrentAxisHelper and
@@ -65,27 +62,24 @@ public class ConcurrentAxis extends AbsAxis {
    */
   private final IAxis mProducer;
 
-  /**
-   * Queue that stores result keys already computed by the producer. End of
-   * the result sequence is marked by the NULL_NODE_KEY.
-   */
-  private final BlockingQueue<Long> mResults;
-
-  /** Capacity of the mResults queue. */
-  private final int M_CAPACITY = 200;
+  /** Executor evaluating the producer. */
+  private final ConcurrentExecutor mExecutor;
 
   /** Has axis already been called? */
   private boolean mFirst;
 
   /** Runnable in which the producer is running. */
-  private Runnable task;
+  private ConcurrentAxisHelper mTask;
+
+  /** Current batch of results. */
+  private long[] mBatch;
+
+  /** Index of the next result in the current batch. */
+  private int mIndex;
 
   /** Is axis already finished and has no results left? */
   private boolean mFinished;
 
-  /** Executor Service holding the execution plan for future tasks. */
-  public final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor();
-
   /**
    * Constructor. Initializes the internal state.
    * 
@@ -96,12 +90,27 @@ public class ConcurrentAxis extends AbsAxis {
    */
   public ConcurrentAxis(final @Nonnull INodeReadTrx pRtx,
     final @Nonnull IAxis pChildAxis) {
+    this(pRtx, pChildAxis, ConcurrentExecutor.getInstance());
+  }
+
+  /**
+   * Constructor. Initializes the internal state.
+   * 
+   * @param pRtx
+   *          exclusive (immutable) trx to iterate with
+   * @param pChildAxis
+   *          producer axis
+   * @param pExecutor
+   *          executor evaluating the producer
+   */
+  public ConcurrentAxis(final @Nonnull INodeReadTrx pRtx,
+    final @Nonnull IAxis pChildAxis, final @Nonnull ConcurrentExecutor pExecutor) {
     super(pRtx);
-    mResults = new ArrayBlockingQueue<>(M_CAPACITY);
-    mFirst = true;
     mProducer = checkNotNull(pChildAxis);
-    task = new ConcurrentAxisHelper(mProducer, mResults);
+    mExecutor = checkNotNull(pExecutor);
+    mFirst = true;
     mFinished = false;
+    mBatch = ConcurrentAxisHelper.END;
   }
 
   @Override
@@ -110,16 +119,16 @@ public class ConcurrentAxis extends AbsAxis {
     mFirst = true;
     mFinished = false;
 
+    // Invoked by the super constructor, before the fields are initialized.
+    if (mTask != null) {
+      mTask.cancel();
+      mTask = null;
+    }
     if (mProducer != null) {
       mProducer.reset(nodeKey);
     }
-    if (mResults != null) {
-      mResults.clear();
-    }
-
-    if (task != null) {
-      task = new ConcurrentAxisHelper(mProducer, mResults);
-    }
+    mBatch = ConcurrentAxisHelper.END;
+    mIndex = 0;
   }
 
   @Override
@@ -133,7 +142,8 @@ public class ConcurrentAxis extends AbsAxis {
     // Start producer on first call.
     if (mFirst) {
       mFirst = false;
-      EXECUTOR.submit(task);
+      mTask = new ConcurrentAxisHelper(mProducer);
+      mExecutor.execute(mTask);
     }
 
     if (mFinished) {
@@ -141,26 +151,36 @@ public class ConcurrentAxis extends AbsAxis {
       return false;
     }
 
-    long result = EFixed.NULL_NODE_KEY.getStandardProperty();
-
-    try {
-      // Get result from producer as soon as it is available.
-      result = mResults.take();
-    } catch (final InterruptedException e) {
-      e.printStackTrace();
+    if (mIndex == mBatch.length) {
+      // Get results from producer as soon as they are available.
+      mBatch = mTask.take();
+      mIndex = 0;
     }
 
-    // NULL_NODE_KEY marks end of the sequence computed by the producer.
-    if (result != EFixed.NULL_NODE_KEY.getStandardProperty()) {
-      mKey = result;
+    if (mIndex < mBatch.length) {
+      mKey = mBatch[mIndex++];
       return true;
     }
 
     mFinished = true;
+    mTask = null;
     resetToStartKey();
     return false;
   }
 
+  /**
+   * Cancel the producer. The axis has no results left until it is reset.
+   */
+  public synchronized void close() {
+    if (mTask != null) {
+      mTask.cancel();
+      mTask = null;
+    }
+    mFirst = false;
+    mFinished = true;
+    resetToStartKey();
+  }
+
   /**
    * Determines if axis has more results to deliver or not.
    * 
@@ -29,12 +29,17 @@ package org.sirix.service.xml.xpath.concurrent;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.annotation.Nonnull;
 
 import org.sirix.api.IAxis;
-import org.sirix.settings.EFixed;
+import org.sirix.exception.SirixThreadedException;
 
 /**
  * <h1>ConcurrentAxisHelper</h1>
@@ -44,57 +49,185 @@ import org.sirix.settings.EFixed;
  * producer-consumer-relationship between the ConcurrentAxis and this one.
  * </p>
  * <p>
- * This axis should only be used and instantiated by the ConcurrentAxis. Find more information on how to use
+ * The results are handed over in batches of primitive keys. The queue holds a few batches only, such that a
+ * producer, which is faster than its consumer, waits (back-pressure). If the producer has not been started
+ * by the {@link ConcurrentExecutor} yet, when the consumer needs results, the consumer evaluates the axis
+ * itself. A producer is cancelled between two results.
+ * </p>
+ * <p>
+ * This axis should only be used and instantiated by the concurrent axis. Find more information on how to use
  * this framework in the ConcurrentAxis documentation.
  * </p>
  */
-public class ConcurrentAxisHelper implements Runnable {
+public final class ConcurrentAxisHelper implements Runnable {
+
+  /** Marks the end of the results. */
+  static final long[] END = new long[0];
+
+  /** Number of keys in a batch. */
+  static final int BATCH_SIZE = 256;
+
+  /** Number of batches in the queue. */
+  private static final int CAPACITY = 4;
+
+  /** Waiting for space in the queue is interrupted to check for cancellation. */
+  private static final long OFFER_TIMEOUT = 10;
+
+  /** Producer has neither been started nor taken by the consumer. */
+  private static final int NEW = 0;
+
+  /** Producer is running in the executor. */
+  private static final int RUNNING = 1;
+
+  /** Producer is evaluated by the consumer. */
+  private static final int TAKEN = 2;
 
   /** {@link IAxis} that computes the results. */
   private final IAxis mAxis;
 
-  /**
-   * Queue that stores result keys already computed by this axis. End of the
-   * result sequence is marked by the NULL_NODE_KEY. This is used for
-   * communication with the consumer.
-   */
-  private BlockingQueue<Long> mResults;
+  /** Batches of results. This is used for communication with the consumer. */
+  private final BlockingQueue<long[]> mResults;
+
+  /** State of the producer. */
+  private final AtomicInteger mState;
+
+  /** Released when the producer does not touch the axis anymore. */
+  private final CountDownLatch mDone;
+
+  /** Determines if the producer has been cancelled. */
+  private volatile boolean mCancelled;
+
+  /** Exception thrown by the axis. */
+  private volatile RuntimeException mFailure;
 
   /**
-   * Bind axis step to transaction. Make sure to create a new ReadTransaction
-   * instead of using the parameter rtx. Because of concurrency every axis has
-   * to have it's own transaction.
+   * Constructor. The axis must be bound to a transaction exclusive to this producer, as it is evaluated in
+   * another thread.
    * 
-   * @param rtx
-   *          Transaction to operate with.
+   * @param pAxis
+   *          the axis to evaluate
    */
-  public ConcurrentAxisHelper(@Nonnull final IAxis pAxis, @Nonnull final BlockingQueue<Long> pResults) {
+  public ConcurrentAxisHelper(final @Nonnull IAxis pAxis) {
     mAxis = checkNotNull(pAxis);
-    mResults = checkNotNull(pResults);
+    mResults = new ArrayBlockingQueue<>(CAPACITY);
+    mState = new AtomicInteger(NEW);
+    mDone = new CountDownLatch(1);
   }
 
   @Override
   public void run() {
-    // Compute all results of the given axis and store the results in the
-    // queue.
-    while (mAxis.hasNext()) {
-      final long nodeKey = mAxis.next();
-      try {
-        // Store result in queue as soon as there is space left.
-        mResults.put(nodeKey);
-        // Wait until next thread arrives and exchange blocking queue.
-      } catch (final InterruptedException mExp) {
-        mExp.printStackTrace();
+    if (!mState.compareAndSet(NEW, RUNNING)) {
+      // Taken by the consumer or cancelled.
+      return;
+    }
+    try {
+      long[] batch;
+      while ((batch = produce()) != END && put(batch)) {
+        // Produce the next batch.
       }
+    } catch (final RuntimeException e) {
+      mFailure = e;
+    } finally {
+      put(END);
+      mDone.countDown();
+    }
+  }
+
+  /**
+   * Compute the next batch of results.
+   * 
+   * @return the batch, or {@link #END}, if there are no more results or the producer has been cancelled
+   */
+  private long[] produce() {
+    final long[] batch = new long[BATCH_SIZE];
+    int size = 0;
+    while (size < BATCH_SIZE && !mCancelled && mAxis.hasNext()) {
+      batch[size++] = mAxis.next();
     }
+    if (size == 0) {
+      return END;
+    }
+    return size == BATCH_SIZE ? batch : Arrays.copyOf(batch, size);
+  }
 
+  /**
+   * Store a batch in the queue as soon as there is space left.
+   * 
+   * @param pBatch
+   *          the batch
+   * @return {@code true}, if the batch has been stored, {@code false}, if the producer has been cancelled
+   */
+  private boolean put(final @Nonnull long[] pBatch) {
     try {
-      // Mark end of result sequence by the NULL_NODE_KEY.
-      mResults.put(EFixed.NULL_NODE_KEY.getStandardProperty());
-    } catch (final InterruptedException mExp) {
-      mExp.printStackTrace();
+      while (!mCancelled) {
+        if (mResults.offer(pBatch, OFFER_TIMEOUT, TimeUnit.MILLISECONDS)) {
+          return true;
+        }
+      }
+    } catch (final InterruptedException e) {
+      mCancelled = true;
+      Thread.currentThread().interrupt();
     }
+    return false;
+  }
 
+  /**
+   * Get the next batch of results. Waits for the producer, if it is running, or computes the batch, if it
+   * has not been started yet.
+   * 
+   * @return the batch, or {@link #END}, if there are no more results
+   * @throws IllegalStateException
+   *           if the consumer is interrupted while waiting
+   * @throws RuntimeException
+   *           if the axis has thrown it
+   */
+  long[] take() {
+    if (mState.get() == TAKEN) {
+      return produce();
+    }
+    long[] batch = mResults.poll();
+    if (batch == null) {
+      if (mState.compareAndSet(NEW, TAKEN)) {
+        mDone.countDown();
+        return produce();
+      }
+      try {
+        batch = mResults.take();
+      } catch (final InterruptedException e) {
+        cancel();
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException(new SirixThreadedException(e));
+      }
+    }
+    if (batch == END && mFailure != null) {
+      throw mFailure;
+    }
+    return batch;
   }
 
+  /**
+   * Cancel the producer and wait until it does not touch the axis anymore, such that the axis can be reset.
+   */
+  void cancel() {
+    mCancelled = true;
+    if (mState.compareAndSet(NEW, TAKEN)) {
+      mDone.countDown();
+    }
+    boolean interrupted = false;
+    while (true) {
+      // Wake up a producer waiting for space.
+      mResults.clear();
+      try {
+        if (mDone.await(OFFER_TIMEOUT, TimeUnit.MILLISECONDS)) {
+          break;
+        }
+      } catch (final InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    mResults.clear();
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
 }
@@ -160,11 +160,22 @@ public class ConcurrentExceptAxis extends AbsAxis {
 
     }
     // no results left
+    // Cancel the producer of the operand, which has results left.
+    close();
     resetToStartKey();
     return false;
 
   }
 
+  /**
+   * Cancel the producers of both operands. The axis has no results left until
+   * it is reset.
+   */
+  public synchronized void close() {
+    mOp1.close();
+    mOp2.close();
+  }
+
   /**
    * @return the next result of the axis. If the axis has no next result, the
    *         null node key is returned.
@@ -0,0 +1,131 @@
+/**
+ * Copyright (c) 2011, University of Konstanz, Distributed Systems Group
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the University of Konstanz nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sirix.service.xml.xpath.concurrent;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * <h1>ConcurrentExecutor</h1>
+ * <p>
+ * Bounded pool of threads, which evaluate the producers of concurrent axis. All
+ * concurrent axis share one instance by default, such that the number of
+ * threads does not grow with the number of axis in a query.
+ * </p>
+ * <p>
+ * As the pool is bounded, a producer might wait for a free thread, while its
+ * consumer needs the results. In this case the consumer takes the producer
+ * back from the pool and evaluates it itself (see {@link ConcurrentAxisHelper}),
+ * thus nested concurrent axis can't deadlock.
+ * </p>
+ * 
+ * @author Johannes Lichtenberger, University of Konstanz
+ * 
+ */
+public final class ConcurrentExecutor {
+
+  /** Lazily created default instance. */
+  private static final class Default {
+    /** The instance with a thread per processor. */
+    private static final ConcurrentExecutor INSTANCE = new ConcurrentExecutor(
+        Runtime.getRuntime().availableProcessors());
+  }
+
+  /** The threads. */
+  private final ExecutorService mPool;
+
+  /** Number of threads. */
+  private final int mThreads;
+
+  /**
+   * Constructor.
+   * 
+   * @param pThreads
+   *          number of threads
+   */
+  public ConcurrentExecutor(final @Nonnegative int pThreads) {
+    checkArgument(pThreads > 0, "pThreads must be > 0!");
+    mThreads = pThreads;
+    mPool = Executors.newFixedThreadPool(pThreads, new ThreadFactoryBuilder()
+        .setDaemon(true).setNameFormat("sirix-xpath-%d").build());
+  }
+
+  /**
+   * Get the instance shared by all concurrent axis, which are not bound to
+   * another executor.
+   * 
+   * @return the shared instance
+   */
+  public static ConcurrentExecutor getInstance() {
+    return Default.INSTANCE;
+  }
+
+  /**
+   * Schedule a producer.
+   * 
+   * @param pProducer
+   *          the producer
+   */
+  void execute(final @Nonnull ConcurrentAxisHelper pProducer) {
+    checkNotNull(pProducer);
+    try {
+      mPool.execute(pProducer);
+    } catch (final RejectedExecutionException e) {
+      // Shut down, the consumer evaluates the producer itself.
+    }
+  }
+
+  /**
+   * Get the number of threads.
+   * 
+   * @return number of threads
+   */
+  public int getThreads() {
+    return mThreads;
+  }
+
+  /**
+   * Shut the pool down. Producers, which are scheduled afterwards, are
+   * evaluated by their consumers.
+   */
+  public void shutdown() {
+    checkState(this != Default.INSTANCE,
+        "The shared instance must not be shut down!");
+    mPool.shutdown();
+  }
+}
@@ -0,0 +1,269 @@
+/**
+ * Copyright (c) 2011, University of Konstanz, Distributed Systems Group
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the University of Konstanz nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sirix.service.xml.xpath.concurrent;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+
+import org.sirix.api.IAxis;
+import org.sirix.api.INodeReadTrx;
+import org.sirix.axis.AbsAxis;
+import org.sirix.exception.SirixException;
+
+/**
+ * <h1>ConcurrentSubtreeAxis</h1>
+ * <p>
+ * Partitions the descendants of the context node into the subtrees of its children and evaluates an axis
+ * for each subtree in parallel, each with a read transaction cloned from the transaction of this axis. The
+ * results of the subtrees are returned one subtree after the other, that is in document order, if the axis
+ * returns the nodes of a subtree in document order.
+ * </p>
+ * <p>
+ * At most as many subtrees as the {@link ConcurrentExecutor} has threads are evaluated ahead of the
+ * consumer. The producers are cancelled, when the axis is reset or closed.
+ * </p>
+ * <h2>User Example</h2>
+ * 
+ * <pre>
+ * // descendant::item
+ * new ConcurrentSubtreeAxis(rtx, new ConcurrentSubtreeAxis.IAxisFactory() {
+ *   public IAxis create(final INodeReadTrx pRtx) {
+ *     return new FilterAxis(new DescendantAxis(pRtx, EIncludeSelf.YES), new NameFilter(pRtx, &quot;item&quot;));
+ *   }
+ * });
+ * </pre>
+ * 
+ * @author Johannes Lichtenberger, University of Konstanz
+ * 
+ */
+public final class ConcurrentSubtreeAxis extends AbsAxis {
+
+  /**
+   * Creates the axis, which is evaluated for each subtree.
+   */
+  public interface IAxisFactory {
+    /**
+     * Create an axis bound to a transaction. The axis is reset to the root of a subtree and must only
+     * return nodes of the subtree.
+     * 
+     * @param pRtx
+     *          the transaction exclusive to the axis
+     * @return the axis
+     */
+    IAxis create(@Nonnull INodeReadTrx pRtx);
+  }
+
+  /** A subtree, which is evaluated by a producer. */
+  private static final class Partition {
+    /** Transaction exclusive to the producer. */
+    private final INodeReadTrx mRtx;
+
+    /** The producer. */
+    private final ConcurrentAxisHelper mTask;
+
+    /**
+     * Constructor.
+     * 
+     * @param pRtx
+     *          transaction exclusive to the producer
+     * @param pTask
+     *          the producer
+     */
+    private Partition(final @Nonnull INodeReadTrx pRtx, final @Nonnull ConcurrentAxisHelper pTask) {
+      mRtx = pRtx;
+      mTask = pTask;
+    }
+  }
+
+  /** Creates the axis of each subtree. */
+  private final IAxisFactory mFactory;
+
+  /** Executor evaluating the producers. */
+  private final ConcurrentExecutor mExecutor;
+
+  /** Keys of the roots of the subtrees, which have not been scheduled yet. */
+  private final Deque<Long> mRoots;
+
+  /** Scheduled subtrees, in document order. */
+  private final Deque<Partition> mPartitions;
+
+  /** Has axis already been called? */
+  private boolean mFirst;
+
+  /** Current batch of results. */
+  private long[] mBatch;
+
+  /** Index of the next result in the current batch. */
+  private int mIndex;
+
+  /**
+   * Constructor.
+   * 
+   * @param pRtx
+   *          transaction to operate with, which is cloned for each subtree
+   * @param pFactory
+   *          creates the axis of each subtree
+   */
+  public ConcurrentSubtreeAxis(final @Nonnull INodeReadTrx pRtx, final @Nonnull IAxisFactory pFactory) {
+    this(pRtx, pFactory, ConcurrentExecutor.getInstance());
+  }
+
+  /**
+   * Constructor.
+   * 
+   * @param pRtx
+   *          transaction to operate with, which is cloned for each subtree
+   * @param pFactory
+   *          creates the axis of each subtree
+   * @param pExecutor
+   *          executor evaluating the producers
+   */
+  public ConcurrentSubtreeAxis(final @Nonnull INodeReadTrx pRtx, final @Nonnull IAxisFactory pFactory,
+    final @Nonnull ConcurrentExecutor pExecutor) {
+    super(pRtx);
+    mFactory = checkNotNull(pFactory);
+    mExecutor = checkNotNull(pExecutor);
+    mRoots = new ArrayDeque<>();
+    mPartitions = new ArrayDeque<>();
+    mFirst = true;
+    mBatch = ConcurrentAxisHelper.END;
+  }
+
+  @Override
+  public synchronized void reset(final @Nonnegative long pNodeKey) {
+    super.reset(pNodeKey);
+    // Invoked by the super constructor, before the fields are initialized.
+    if (mPartitions != null) {
+      cancel();
+    }
+    mFirst = true;
+  }
+
+  @Override
+  public synchronized boolean hasNext() {
+    if (!isHasNext()) {
+      return false;
+    }
+    if (isNext()) {
+      return true;
+    }
+
+    resetToLastKey();
+
+    if (mFirst) {
+      mFirst = false;
+      final INodeReadTrx rtx = getTransaction();
+      if (rtx.moveToFirstChild()) {
+        do {
+          mRoots.add(rtx.getNode().getNodeKey());
+        } while (rtx.moveToRightSibling());
+      }
+      resetToLastKey();
+      schedule();
+    }
+
+    while (mIndex == mBatch.length) {
+      final Partition partition = mPartitions.peek();
+      if (partition == null) {
+        resetToStartKey();
+        return false;
+      }
+      mBatch = partition.mTask.take();
+      mIndex = 0;
+      if (mBatch == ConcurrentAxisHelper.END) {
+        mPartitions.poll();
+        closeTransaction(partition);
+        schedule();
+      }
+    }
+
+    mKey = mBatch[mIndex++];
+    return true;
+  }
+
+  /**
+   * Cancel all producers and close their transactions. The axis has no results left until it is reset.
+   */
+  public synchronized void close() {
+    cancel();
+    resetToStartKey();
+  }
+
+  /**
+   * Cancel all producers and close their transactions.
+   */
+  private void cancel() {
+    for (final Partition partition : mPartitions) {
+      partition.mTask.cancel();
+      closeTransaction(partition);
+    }
+    mPartitions.clear();
+    mRoots.clear();
+    mBatch = ConcurrentAxisHelper.END;
+    mIndex = 0;
+    mFirst = false;
+  }
+
+  /**
+   * Schedule subtrees, until as many are evaluated ahead as the executor has threads.
+   */
+  private void schedule() {
+    while (mPartitions.size() < mExecutor.getThreads() && !mRoots.isEmpty()) {
+      final INodeReadTrx rtx;
+      try {
+        rtx = getTransaction().cloneInstance();
+      } catch (final SirixException e) {
+        throw new IllegalStateException(e);
+      }
+      final IAxis axis = mFactory.create(rtx);
+      axis.reset(mRoots.poll());
+      final Partition partition = new Partition(rtx, new ConcurrentAxisHelper(axis));
+      mPartitions.add(partition);
+      mExecutor.execute(partition.mTask);
+    }
+  }
+
+  /**
+   * Close the transaction of a subtree.
+   * 
+   * @param pPartition
+   *          the subtree
+   */
+  private static void closeTransaction(final @Nonnull Partition pPartition) {
+    try {
+      pPartition.mRtx.close();
+    } catch (final SirixException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -154,11 +154,21 @@ public class ConcurrentUnionAxis extends AbsAxis {
 
     }
     // no results left
+    close();
     resetToStartKey();
     return false;
 
   }
 
+  /**
+   * Cancel the producers of both operands. The axis has no results left until
+   * it is reset.
+   */
+  public synchronized void close() {
+    mOp1.close();
+    mOp2.close();
+  }
+
   /**
    * Get next result from axis.
    * 
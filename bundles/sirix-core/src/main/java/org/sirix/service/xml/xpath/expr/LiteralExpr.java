@@ -60,4 +60,13 @@ public class LiteralExpr extends AbsExpression {
     mKey = mLiteralKey;
   }
 
+  /**
+   * Get the item key of the literal.
+   * 
+   * @return item key
+   */
+  public long getLiteralKey() {
+    return mLiteralKey;
+  }
+
 }
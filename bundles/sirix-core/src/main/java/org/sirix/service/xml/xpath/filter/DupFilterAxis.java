@@ -127,4 +127,13 @@ public class DupFilterAxis extends AbsAxis {
     }
   }
 
+  /**
+   * Get the sequence, which may contain duplicates.
+   * 
+   * @return the filtered axis
+   */
+  public IAxis getAxis() {
+    return mAxis;
+  }
+
 }
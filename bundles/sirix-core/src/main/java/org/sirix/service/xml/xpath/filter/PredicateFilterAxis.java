@@ -123,4 +123,13 @@ public class PredicateFilterAxis extends AbsAxis {
     }
   }
 
+  /**
+   * Get the predicate expression.
+   * 
+   * @return predicate expression
+   */
+  public IAxis getPredicate() {
+    return mPredicate;
+  }
+
 }
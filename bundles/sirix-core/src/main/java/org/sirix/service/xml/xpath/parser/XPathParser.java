@@ -2183,6 +2183,15 @@ public final class XPathParser {
     return mPipeBuilder.getPipeline();
   }
 
+  /**
+   * Describes the plans chosen for the absolute location paths of the query.
+   * 
+   * @return the plans, one line per path
+   */
+  public String explain() {
+    return mPipeBuilder.explain();
+  }
+
   /**
    * Returns the read transaction.
    * 
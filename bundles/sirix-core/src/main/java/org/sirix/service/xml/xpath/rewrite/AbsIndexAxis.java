@@ -0,0 +1,157 @@
+/**
+ * Copyright (c) 2011, University of Konstanz, Distributed Systems Group
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the University of Konstanz nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sirix.service.xml.xpath.rewrite;
+
+import javax.annotation.Nonnull;
+
+import org.sirix.api.INodeReadTrx;
+import org.sirix.axis.AbsAxis;
+import org.sirix.node.EKind;
+import org.sirix.node.interfaces.INode;
+import org.sirix.node.interfaces.IStructNode;
+import org.sirix.settings.EFixed;
+
+/**
+ * <h1>AbsIndexAxis</h1>
+ * <p>
+ * Traverses the document in document order, but only descends into the
+ * subtrees of nodes which might contain results. Subclasses determine the
+ * results and the subtrees to descend into from an index. The result does not
+ * depend on the context node, as the axis answers absolute location paths.
+ * </p>
+ * 
+ * @author Johannes Lichtenberger, University of Konstanz
+ * 
+ */
+abstract class AbsIndexAxis extends AbsAxis {
+
+  /** Determines if it's the first call to hasNext(). */
+  private boolean mFirst;
+
+  /** Key of the next node to visit. */
+  private long mNextKey;
+
+  /**
+   * Constructor.
+   * 
+   * @param pRtx
+   *          {@link INodeReadTrx} to iterate with
+   */
+  AbsIndexAxis(final @Nonnull INodeReadTrx pRtx) {
+    super(pRtx);
+  }
+
+  @Override
+  public final void reset(final long pNodeKey) {
+    super.reset(pNodeKey);
+    mFirst = true;
+  }
+
+  @Override
+  public final boolean hasNext() {
+    if (!isHasNext()) {
+      return false;
+    }
+    if (isNext()) {
+      return true;
+    }
+    resetToLastKey();
+
+    final INodeReadTrx rtx = getTransaction();
+    if (mFirst) {
+      mFirst = false;
+      init();
+      rtx.moveToDocumentRoot();
+      mNextKey = rtx.getStructuralNode().getFirstChildKey();
+    }
+
+    final long nullKey = EFixed.NULL_NODE_KEY.getStandardProperty();
+    while (mNextKey != nullKey) {
+      rtx.moveTo(mNextKey);
+      final INode node = rtx.getNode();
+      final boolean isElement = node.getKind() == EKind.ELEMENT;
+      final boolean isResult = isElement && isResult(node);
+      mNextKey = nextKey(isElement && isAncestor(node));
+      if (isResult) {
+        mKey = node.getNodeKey();
+        return true;
+      }
+    }
+
+    resetToStartKey();
+    return false;
+  }
+
+  /**
+   * Get the key of the node following the current node in document order,
+   * skipping its subtree if requested.
+   * 
+   * @param pDescend
+   *          determines if the subtree of the current node is visited
+   * @return next key or the null node key, if the document has been traversed
+   */
+  private long nextKey(final boolean pDescend) {
+    final INodeReadTrx rtx = getTransaction();
+    IStructNode node = rtx.getStructuralNode();
+    if (pDescend && node.hasFirstChild()) {
+      return node.getFirstChildKey();
+    }
+    while (!node.hasRightSibling()) {
+      if (!rtx.moveToParent() || rtx.getNode().getKind() == EKind.DOCUMENT_ROOT) {
+        return EFixed.NULL_NODE_KEY.getStandardProperty();
+      }
+      node = rtx.getStructuralNode();
+    }
+    return node.getRightSiblingKey();
+  }
+
+  /**
+   * Initialize the index lookup. Called once, before the first node is
+   * visited.
+   */
+  abstract void init();
+
+  /**
+   * Determines if an element is a result.
+   * 
+   * @param pNode
+   *          the element
+   * @return {@code true}, if the element is a result, {@code false} otherwise
+   */
+  abstract boolean isResult(final @Nonnull INode pNode);
+
+  /**
+   * Determines if the subtree of an element might contain results.
+   * 
+   * @param pNode
+   *          the element
+   * @return {@code true}, if the subtree has to be visited, {@code false}
+   *         otherwise
+   */
+  abstract boolean isAncestor(final @Nonnull INode pNode);
+}
@@ -0,0 +1,140 @@
+/**
+ * Copyright (c) 2011, University of Konstanz, Distributed Systems Group
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the University of Konstanz nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sirix.service.xml.xpath.rewrite;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.annotation.Nonnull;
+
+import org.sirix.api.INodeReadTrx;
+import org.sirix.exception.SirixIOException;
+import org.sirix.index.cas.CASIndex;
+import org.sirix.node.EKind;
+import org.sirix.node.Postings;
+import org.sirix.node.interfaces.INode;
+import org.sirix.service.xml.xpath.types.Type;
+
+/**
+ * <h1>CASIndexAxis</h1>
+ * <p>
+ * Returns the elements of the given path classes, which have a text child with
+ * a value in the given range, in document order. The text nodes are looked up
+ * by a range scan in the CAS index. Only the ancestors of the resulting
+ * elements are visited to restore document order.
+ * </p>
+ * 
+ * @author Johannes Lichtenberger, University of Konstanz
+ * 
+ */
+public final class CASIndexAxis extends AbsIndexAxis {
+
+  /** The CAS index. */
+  private final CASIndex mIndex;
+
+  /** Type of the index definitions to scan. */
+  private final Type mType;
+
+  /** The range of the text values. */
+  private final TextRange mRange;
+
+  /** Keys of the path nodes, whose elements are returned. */
+  private final Set<Long> mPathNodeKeys;
+
+  /** Keys of the resulting elements, {@code null} before the lookup. */
+  private Postings mResults;
+
+  /** Keys of the ancestors of the resulting elements. */
+  private Set<Long> mAncestors;
+
+  /**
+   * Constructor.
+   * 
+   * @param pRtx
+   *          {@link INodeReadTrx} to iterate with
+   * @param pIndex
+   *          the CAS index
+   * @param pType
+   *          type of the index definitions to scan
+   * @param pRange
+   *          the range of the text values
+   * @param pPathNodeKeys
+   *          keys of the path nodes, whose elements are returned
+   */
+  public CASIndexAxis(final @Nonnull INodeReadTrx pRtx,
+    final @Nonnull CASIndex pIndex, final @Nonnull Type pType,
+    final @Nonnull TextRange pRange, final @Nonnull Set<Long> pPathNodeKeys) {
+    super(pRtx);
+    mIndex = checkNotNull(pIndex);
+    mType = checkNotNull(pType);
+    mRange = checkNotNull(pRange);
+    mPathNodeKeys = checkNotNull(pPathNodeKeys);
+  }
+
+  @Override
+  void init() {
+    if (mResults != null) {
+      return;
+    }
+    final Postings textKeys;
+    try {
+      textKeys =
+        mIndex.range(mPathNodeKeys, mType, mRange.getFrom(), mRange
+          .isFromInclusive(), mRange.getTo(), mRange.isToInclusive());
+    } catch (final SirixIOException e) {
+      throw new IllegalStateException(e);
+    }
+    mResults = new Postings();
+    mAncestors = new HashSet<>();
+
+    // The index is maintained on updates, thus the parents are the results.
+    final INodeReadTrx rtx = getTransaction();
+    for (final Postings.Cursor cursor = textKeys.cursor(); cursor.next();) {
+      if (rtx.moveTo(cursor.key()) && rtx.moveToParent()
+        && rtx.getNode().getKind() == EKind.ELEMENT) {
+        mResults.add(rtx.getNode().getNodeKey());
+        while (rtx.moveToParent() && rtx.getNode().getKind() == EKind.ELEMENT
+          && mAncestors.add(rtx.getNode().getNodeKey())) {
+          // Collect the ancestors up to the first one already collected.
+        }
+      }
+    }
+  }
+
+  @Override
+  boolean isResult(final @Nonnull INode pNode) {
+    return mResults.contains(pNode.getNodeKey());
+  }
+
+  @Override
+  boolean isAncestor(final @Nonnull INode pNode) {
+    return mAncestors.contains(pNode.getNodeKey());
+  }
+}
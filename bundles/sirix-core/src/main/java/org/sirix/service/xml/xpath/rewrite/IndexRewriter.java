@@ -0,0 +1,212 @@
+/**
+ * Copyright (c) 2011, University of Konstanz, Distributed Systems Group
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the University of Konstanz nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sirix.service.xml.xpath.rewrite;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.Nonnull;
+
+import org.sirix.access.conf.ResourceConfiguration.EIndexes;
+import org.sirix.api.IAxis;
+import org.sirix.api.INodeReadTrx;
+import org.sirix.index.cas.CASIndex;
+import org.sirix.index.path.PathSummary;
+import org.sirix.index.value.BPlusTree;
+import org.sirix.node.EKind;
+import org.sirix.service.xml.xpath.types.Type;
+
+import com.google.common.base.Optional;
+
+/**
+ * <h1>IndexRewriter</h1>
+ * <p>
+ * Query rewriting stage of the {@link org.sirix.service.xml.xpath.PipelineBuilder}. Answers the steps
+ * recorded in a {@link PathPattern} by matching them against the path summary and, for a text equality
+ * predicate, by a lookup in the value index or, for a numeric text comparison, by a range scan in the
+ * CAS index. Falls back to the navigational axis chain if the indexes are not
+ * enabled for the resource. Every decision is recorded for {@link #explain()}.
+ * </p>
+ * 
+ * @author Johannes Lichtenberger, University of Konstanz
+ * 
+ */
+public final class IndexRewriter {
+
+  /** Chosen plans. */
+  private final List<EQueryPlan> mPlans;
+
+  /** Descriptions of the chosen plans. */
+  private final List<String> mDescriptions;
+
+  /**
+   * Constructor.
+   */
+  public IndexRewriter() {
+    mPlans = new ArrayList<>();
+    mDescriptions = new ArrayList<>();
+  }
+
+  /**
+   * Rewrite the steps of a pattern.
+   * 
+   * @param pPattern
+   *          the pattern
+   * @return an axis replacing the first {@link PathPattern#getLength()} axis
+   *         of the expression, or {@code absent}, if the steps are evaluated
+   *         navigationally
+   */
+  public Optional<IAxis> rewrite(final @Nonnull PathPattern pPattern) {
+    checkNotNull(pPattern);
+    final INodeReadTrx rtx = pPattern.getTransaction();
+    if (rtx instanceof PathSummary) {
+      return navigation(pPattern, "path summary itself is queried");
+    }
+    final Set<EIndexes> indexes = rtx.getSession().getResourceConfig().mIndexes;
+    if (!indexes.contains(EIndexes.PATH)) {
+      return navigation(pPattern, "path summary not enabled");
+    }
+
+    final PathSummary summary = PathSummary.getInstance(rtx.getPageTransaction(), rtx.getSession());
+    final Set<Long> pathNodeKeys = pPattern.match(summary);
+    final Optional<byte[]> value = pPattern.getValue();
+    if (value.isPresent() && indexes.contains(EIndexes.VALUE)) {
+      describe(pPattern, EQueryPlan.VALUE_INDEX, pathNodeKeys);
+      return Optional.<IAxis> of(new ValueIndexAxis(rtx, BPlusTree.getInstance(rtx.getPageTransaction()),
+        value.get(), pathNodeKeys));
+    }
+    final Optional<TextRange> range = pPattern.getRange();
+    if (range.isPresent() && !rtx.getSession().getResourceConfig().mCASIndexes.isEmpty()) {
+      // General comparisons with a numeric literal compare as xs:double, an
+      // index of another type might miss values.
+      final CASIndex index = CASIndex.getInstance(rtx.getPageTransaction(), rtx.getSession());
+      if (index.covers(pathNodeKeys, Type.DOUBLE)) {
+        describe(pPattern, EQueryPlan.CAS_INDEX, pathNodeKeys);
+        return Optional.<IAxis> of(new CASIndexAxis(rtx, index, Type.DOUBLE, range.get(), pathNodeKeys));
+      }
+    }
+    if (value.isPresent() || range.isPresent()) {
+      // Without a matching index only the path is rewritten, the predicate is
+      // evaluated navigationally.
+      pPattern.dropValue();
+    }
+    describe(pPattern, EQueryPlan.PATH_SUMMARY, pathNodeKeys);
+    return Optional.<IAxis> of(new PathSummaryAxis(rtx, pathNodeKeys, ancestors(summary, pathNodeKeys)));
+  }
+
+  /**
+   * Record an index based plan.
+   * 
+   * @param pPattern
+   *          the pattern
+   * @param pPlan
+   *          the plan
+   * @param pPathNodeKeys
+   *          keys of the matching path nodes
+   */
+  private void describe(final @Nonnull PathPattern pPattern, final @Nonnull EQueryPlan pPlan,
+    final @Nonnull Set<Long> pPathNodeKeys) {
+    mPlans.add(pPlan);
+    final StringBuilder builder =
+      new StringBuilder(pPattern.toString()).append(" => ").append(pPlan).append(" pathNodeKeys=").append(
+        pPathNodeKeys);
+    if (pPattern.getSize() > pPattern.getLength()) {
+      builder.append(", then ").append(pPattern.getSize() - pPattern.getLength()).append(
+        " navigational step(s)");
+    }
+    mDescriptions.add(builder.toString());
+  }
+
+  /**
+   * Record a navigational plan.
+   * 
+   * @param pPattern
+   *          the pattern
+   * @param pReason
+   *          the reason
+   * @return {@code absent}
+   */
+  private Optional<IAxis> navigation(final @Nonnull PathPattern pPattern, final @Nonnull String pReason) {
+    mPlans.add(EQueryPlan.NAVIGATION);
+    mDescriptions.add(new StringBuilder(pPattern.toString()).append(" => ").append(EQueryPlan.NAVIGATION)
+      .append(" (").append(pReason).append(')').toString());
+    return Optional.absent();
+  }
+
+  /**
+   * Get the keys of the proper ancestors of path nodes.
+   * 
+   * @param pSummary
+   *          the path summary
+   * @param pPathNodeKeys
+   *          keys of the path nodes
+   * @return keys of the ancestors
+   */
+  private static Set<Long> ancestors(final @Nonnull PathSummary pSummary, final @Nonnull Set<Long> pPathNodeKeys) {
+    final Set<Long> ancestors = new HashSet<>();
+    for (final long key : pPathNodeKeys) {
+      pSummary.moveTo(key);
+      while (pSummary.moveToParent() && pSummary.getNode().getKind() != EKind.DOCUMENT_ROOT
+        && ancestors.add(pSummary.getNode().getNodeKey())) {
+        // Collect the ancestors up to the first one already collected.
+      }
+    }
+    return ancestors;
+  }
+
+  /**
+   * Get the plans chosen so far, in the order the location paths have been
+   * rewritten.
+   * 
+   * @return the plans
+   */
+  public List<EQueryPlan> getPlans() {
+    return Collections.unmodifiableList(mPlans);
+  }
+
+  /**
+   * Describe the plans chosen so far, one line per location path.
+   * 
+   * @return the description
+   */
+  public String explain() {
+    final StringBuilder builder = new StringBuilder();
+    for (final String description : mDescriptions) {
+      if (builder.length() > 0) {
+        builder.append('\n');
+      }
+      builder.append(description);
+    }
+    return builder.toString();
+  }
+}
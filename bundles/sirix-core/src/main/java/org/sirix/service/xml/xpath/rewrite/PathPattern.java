@@ -0,0 +1,438 @@
+/**
+ * Copyright (c) 2011, University of Konstanz, Distributed Systems Group
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the University of Konstanz nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sirix.service.xml.xpath.rewrite;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.annotation.Nonnull;
+
+import org.sirix.api.IAxis;
+import org.sirix.api.IFilter;
+import org.sirix.api.INodeReadTrx;
+import org.sirix.axis.ChildAxis;
+import org.sirix.axis.DescendantAxis;
+import org.sirix.axis.EIncludeSelf;
+import org.sirix.axis.FilterAxis;
+import org.sirix.axis.filter.NameFilter;
+import org.sirix.axis.filter.TextFilter;
+import org.sirix.index.path.PathNode;
+import org.sirix.index.path.PathSummary;
+import org.sirix.node.EKind;
+import org.sirix.service.xml.xpath.AtomicValue;
+import org.sirix.service.xml.xpath.comparators.AbsComparator;
+import org.sirix.service.xml.xpath.comparators.CompKind;
+import org.sirix.service.xml.xpath.comparators.GeneralComp;
+import org.sirix.service.xml.xpath.expr.LiteralExpr;
+import org.sirix.service.xml.xpath.filter.DupFilterAxis;
+import org.sirix.service.xml.xpath.filter.PredicateFilterAxis;
+import org.sirix.service.xml.xpath.types.Type;
+import org.sirix.settings.IConstants;
+
+import com.google.common.base.Optional;
+
+/**
+ * <h1>PathPattern</h1>
+ * <p>
+ * Records the steps of an absolute location path while the parser adds them
+ * to an expression, as long as they are of the form {@code /name},
+ * {@code //name}, {@code child::name} or {@code descendant::name}, optionally
+ * followed by a {@code [text()='value']} or a numeric
+ * {@code [text() op literal]} predicate on the last step. The longest such
+ * prefix is answered by the {@link IndexRewriter}, all following
+ * steps are evaluated navigationally.
+ * </p>
+ * 
+ * @author Johannes Lichtenberger, University of Konstanz
+ * 
+ */
+public final class PathPattern {
+
+  /** Transaction the path is evaluated with. */
+  private final INodeReadTrx mRtx;
+
+  /** Name keys of the recorded steps. */
+  private final List<Integer> mNameKeys;
+
+  /** Determines for each recorded step if it is a descendant step. */
+  private final List<Boolean> mDescendant;
+
+  /** Value of the text equality predicate on the last step or {@code null}. */
+  private byte[] mValue;
+
+  /** Range of the numeric comparison on the last step or {@code null}. */
+  private TextRange mRange;
+
+  /** Determines if a {@code //} has been added, but not yet its step. */
+  private boolean mPendingDescendant;
+
+  /** Determines if no more steps are recorded. */
+  private boolean mFrozen;
+
+  /** Number of axis added, including the document node axis. */
+  private int mSize;
+
+  /** Number of axis covered by the recorded steps. */
+  private int mLength;
+
+  /** Number of axis covered by the recorded steps without the predicate. */
+  private int mPathLength;
+
+  /**
+   * Constructor, called with the transaction of the document node axis which
+   * starts the location path.
+   * 
+   * @param pRtx
+   *          {@link INodeReadTrx} the path is evaluated with
+   */
+  public PathPattern(final @Nonnull INodeReadTrx pRtx) {
+    mRtx = checkNotNull(pRtx);
+    mNameKeys = new ArrayList<>();
+    mDescendant = new ArrayList<>();
+    mSize = 1;
+    mLength = 1;
+    mPathLength = 1;
+  }
+
+  /**
+   * Record the next axis added to the expression.
+   * 
+   * @param pAxis
+   *          the axis
+   */
+  public void add(final @Nonnull IAxis pAxis) {
+    mSize++;
+    if (mFrozen) {
+      return;
+    }
+    if (mValue == null && mRange == null) {
+      if (pAxis instanceof FilterAxis) {
+        final FilterAxis axis = (FilterAxis)pAxis;
+        final IFilter[] filters = axis.getFilters();
+        final IAxis inner = axis.getAxis();
+        if (filters.length == 1 && filters[0] instanceof NameFilter
+          && (inner instanceof ChildAxis || (inner instanceof DescendantAxis && inner
+            .isSelfIncluded() == EIncludeSelf.NO))) {
+          mNameKeys.add(((NameFilter)filters[0]).getLocalPartKey());
+          mDescendant.add(mPendingDescendant || inner instanceof DescendantAxis);
+          mPendingDescendant = false;
+          mLength = mSize;
+          mPathLength = mSize;
+          return;
+        }
+      } else if (pAxis instanceof DescendantAxis && !mPendingDescendant
+        && pAxis.isSelfIncluded() == EIncludeSelf.YES) {
+        // Abbreviated "//", which belongs to the next step.
+        mPendingDescendant = true;
+        return;
+      } else if (pAxis instanceof PredicateFilterAxis && !mPendingDescendant && !mNameKeys.isEmpty()) {
+        final Optional<byte[]> value = textEquality(((PredicateFilterAxis)pAxis).getPredicate());
+        if (value.isPresent()) {
+          mValue = value.get();
+          mLength = mSize;
+          return;
+        }
+        final Optional<TextRange> range = textRange(((PredicateFilterAxis)pAxis).getPredicate());
+        if (range.isPresent()) {
+          mRange = range.get();
+          mLength = mSize;
+          return;
+        }
+      }
+    }
+    mFrozen = true;
+  }
+
+  /**
+   * Determines if the predicate is of the form {@code text()='value'} or
+   * {@code 'value'=text()} and returns the value.
+   * 
+   * @param pPredicate
+   *          the predicate
+   * @return the string value, if the predicate is a text equality predicate
+   */
+  private Optional<byte[]> textEquality(final @Nonnull IAxis pPredicate) {
+    final IAxis predicate = unwrap(pPredicate);
+    if (predicate instanceof GeneralComp && ((AbsComparator)predicate).getCompKind() == CompKind.EQ) {
+      final AbsComparator comp = (AbsComparator)predicate;
+      final IAxis first = unwrap(comp.getOperandOne());
+      final IAxis second = unwrap(comp.getOperandTwo());
+      if (isTextStep(first)) {
+        return stringLiteral(second);
+      } else if (isTextStep(second)) {
+        return stringLiteral(first);
+      }
+    }
+    return Optional.absent();
+  }
+
+  /**
+   * Determines if the predicate is a general comparison of the form
+   * {@code text() op literal} or {@code literal op text()} with a numeric
+   * literal, which compares the values as {@code xs:double}, and returns the
+   * selected range.
+   * 
+   * @param pPredicate
+   *          the predicate
+   * @return the range, if the predicate is a numeric text comparison
+   */
+  private Optional<TextRange> textRange(final @Nonnull IAxis pPredicate) {
+    final IAxis predicate = unwrap(pPredicate);
+    if (predicate instanceof GeneralComp) {
+      final AbsComparator comp = (AbsComparator)predicate;
+      final IAxis first = unwrap(comp.getOperandOne());
+      final IAxis second = unwrap(comp.getOperandTwo());
+      if (isTextStep(first)) {
+        final Optional<String> literal = numericLiteral(second);
+        if (literal.isPresent()) {
+          return TextRange.of(comp.getCompKind(), literal.get(), false);
+        }
+      } else if (isTextStep(second)) {
+        final Optional<String> literal = numericLiteral(first);
+        if (literal.isPresent()) {
+          return TextRange.of(comp.getCompKind(), literal.get(), true);
+        }
+      }
+    }
+    return Optional.absent();
+  }
+
+  /**
+   * Determines if the axis is the {@code text()} step.
+   * 
+   * @param pAxis
+   *          the axis
+   * @return {@code true}, if it is a {@code text()} step, {@code false}
+   *         otherwise
+   */
+  private static boolean isTextStep(final @Nonnull IAxis pAxis) {
+    if (pAxis instanceof FilterAxis) {
+      final FilterAxis axis = (FilterAxis)pAxis;
+      final IFilter[] filters = axis.getFilters();
+      return axis.getAxis() instanceof ChildAxis && filters.length == 1 && filters[0] instanceof TextFilter;
+    }
+    return false;
+  }
+
+  /**
+   * Get the value of a string literal.
+   * 
+   * @param pAxis
+   *          the axis
+   * @return the value, if the axis is a string literal
+   */
+  private Optional<byte[]> stringLiteral(final @Nonnull IAxis pAxis) {
+    if (pAxis instanceof LiteralExpr) {
+      final Optional<AtomicValue> item = mRtx.getItemList().getItem(((LiteralExpr)pAxis).getLiteralKey());
+      if (item.isPresent() && item.get().getTypeKey() == mRtx.keyForName("xs:string")) {
+        return Optional.of(item.get().getRawValue());
+      }
+    }
+    return Optional.absent();
+  }
+
+  /**
+   * Get the value of a numeric literal.
+   * 
+   * @param pAxis
+   *          the axis
+   * @return the value, if the axis is a numeric literal
+   */
+  private Optional<String> numericLiteral(final @Nonnull IAxis pAxis) {
+    if (pAxis instanceof LiteralExpr) {
+      final Optional<AtomicValue> item = mRtx.getItemList().getItem(((LiteralExpr)pAxis).getLiteralKey());
+      if (item.isPresent() && Type.getType(item.get().getTypeKey()).isNumericType()) {
+        return Optional.of(new String(item.get().getRawValue(), IConstants.DEFAULT_ENCODING));
+      }
+    }
+    return Optional.absent();
+  }
+
+  /**
+   * Remove duplicate filters, which the expression builder wraps around axis.
+   * 
+   * @param pAxis
+   *          the axis
+   * @return the wrapped axis
+   */
+  private static IAxis unwrap(final @Nonnull IAxis pAxis) {
+    IAxis axis = pAxis;
+    while (axis instanceof DupFilterAxis) {
+      axis = ((DupFilterAxis)axis).getAxis();
+    }
+    return axis;
+  }
+
+  /**
+   * Determines if the pattern covers at least one step.
+   * 
+   * @return {@code true}, if at least one step is recorded
+   */
+  public boolean isRewritable() {
+    return !mNameKeys.isEmpty();
+  }
+
+  /**
+   * Get the number of axis covered by the pattern, including the document
+   * node axis.
+   * 
+   * @return number of axis
+   */
+  public int getLength() {
+    return mLength;
+  }
+
+  /**
+   * Get the number of axis added to the expression, including the document
+   * node axis.
+   * 
+   * @return number of axis
+   */
+  public int getSize() {
+    return mSize;
+  }
+
+  /**
+   * Get the transaction the path is evaluated with.
+   * 
+   * @return {@link INodeReadTrx} instance
+   */
+  public INodeReadTrx getTransaction() {
+    return mRtx;
+  }
+
+  /**
+   * Get the value of the text equality predicate on the last step.
+   * 
+   * @return the value, if present
+   */
+  public Optional<byte[]> getValue() {
+    return Optional.fromNullable(mValue);
+  }
+
+  /**
+   * Get the range of the numeric text comparison on the last step.
+   * 
+   * @return the range, if present
+   */
+  public Optional<TextRange> getRange() {
+    return Optional.fromNullable(mRange);
+  }
+
+  /**
+   * Exclude the text equality or comparison predicate from the pattern, such
+   * that it is evaluated navigationally.
+   */
+  public void dropValue() {
+    mValue = null;
+    mRange = null;
+    mLength = mPathLength;
+  }
+
+  /**
+   * Match the pattern against the path summary.
+   * 
+   * @param pSummary
+   *          the path summary
+   * @return keys of the path nodes, whose element nodes are selected by the
+   *         pattern
+   */
+  public Set<Long> match(final @Nonnull PathSummary pSummary) {
+    // Load the element path nodes. The path summary is small compared to the
+    // document.
+    final Map<Long, Long> parents = new HashMap<>();
+    final Map<Long, Integer> names = new HashMap<>();
+    pSummary.moveToDocumentRoot();
+    final long root = pSummary.getNode().getNodeKey();
+    boolean hasNext = pSummary.moveToFirstChild();
+    while (hasNext) {
+      final PathNode node = pSummary.getPathNode();
+      if (node.getPathKind() == EKind.ELEMENT) {
+        parents.put(node.getNodeKey(), node.getParentKey());
+        names.put(node.getNodeKey(), node.getNameKey());
+      }
+      if (pSummary.moveToFirstChild()) {
+        continue;
+      }
+      hasNext = false;
+      do {
+        if (pSummary.moveToRightSibling()) {
+          hasNext = true;
+          break;
+        }
+      } while (pSummary.moveToParent() && pSummary.getNode().getNodeKey() != root);
+    }
+
+    Set<Long> current = Collections.singleton(root);
+    for (int i = 0; i < mNameKeys.size(); i++) {
+      final int nameKey = mNameKeys.get(i);
+      final boolean descendant = mDescendant.get(i);
+      final Set<Long> next = new TreeSet<>();
+      for (final Map.Entry<Long, Integer> entry : names.entrySet()) {
+        if (entry.getValue() != nameKey) {
+          continue;
+        }
+        long key = parents.get(entry.getKey());
+        if (descendant) {
+          while (!current.contains(key) && parents.containsKey(key)) {
+            key = parents.get(key);
+          }
+        }
+        if (current.contains(key)) {
+          next.add(entry.getKey());
+        }
+      }
+      current = next;
+    }
+    return current;
+  }
+
+  @Override
+  public String toString() {
+    final StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < mNameKeys.size(); i++) {
+      // The name is only stored, if an element with this name exists.
+      final String name = mRtx.getPageTransaction().getName(mNameKeys.get(i), EKind.ELEMENT);
+      builder.append(mDescendant.get(i) ? "//" : "/").append(name == null ? "Q{" + mNameKeys.get(i) + "}" : name);
+    }
+    if (mValue != null) {
+      builder.append("[text()='").append(new String(mValue, IConstants.DEFAULT_ENCODING)).append("']");
+    }
+    if (mRange != null) {
+      builder.append(mRange);
+    }
+    return builder.toString();
+  }
+}
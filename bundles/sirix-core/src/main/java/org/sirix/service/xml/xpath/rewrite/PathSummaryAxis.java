@@ -0,0 +1,89 @@
+/**
+ * Copyright (c) 2011, University of Konstanz, Distributed Systems Group
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the University of Konstanz nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sirix.service.xml.xpath.rewrite;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Set;
+
+import javax.annotation.Nonnull;
+
+import org.sirix.api.INodeReadTrx;
+import org.sirix.node.interfaces.INameNode;
+import org.sirix.node.interfaces.INode;
+
+/**
+ * <h1>PathSummaryAxis</h1>
+ * <p>
+ * Returns the elements of the given path classes of the path summary in
+ * document order. Only subtrees of elements, whose path class is an ancestor of
+ * one of the given path classes, are visited.
+ * </p>
+ * 
+ * @author Johannes Lichtenberger, University of Konstanz
+ * 
+ */
+public final class PathSummaryAxis extends AbsIndexAxis {
+
+  /** Keys of the path nodes, whose elements are returned. */
+  private final Set<Long> mPathNodeKeys;
+
+  /** Keys of the path nodes, which are ancestors of the returned ones. */
+  private final Set<Long> mAncestorKeys;
+
+  /**
+   * Constructor.
+   * 
+   * @param pRtx
+   *          {@link INodeReadTrx} to iterate with
+   * @param pPathNodeKeys
+   *          keys of the path nodes, whose elements are returned
+   * @param pAncestorKeys
+   *          keys of the path nodes, which are ancestors of the returned ones
+   */
+  public PathSummaryAxis(final @Nonnull INodeReadTrx pRtx, final @Nonnull Set<Long> pPathNodeKeys,
+    final @Nonnull Set<Long> pAncestorKeys) {
+    super(pRtx);
+    mPathNodeKeys = checkNotNull(pPathNodeKeys);
+    mAncestorKeys = checkNotNull(pAncestorKeys);
+  }
+
+  @Override
+  void init() {
+  }
+
+  @Override
+  boolean isResult(final @Nonnull INode pNode) {
+    return mPathNodeKeys.contains(((INameNode)pNode).getPathNodeKey());
+  }
+
+  @Override
+  boolean isAncestor(final @Nonnull INode pNode) {
+    return mAncestorKeys.contains(((INameNode)pNode).getPathNodeKey());
+  }
+}
@@ -0,0 +1,171 @@
+/**
+ * Copyright (c) 2011, University of Konstanz, Distributed Systems Group
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the University of Konstanz nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sirix.service.xml.xpath.rewrite;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.sirix.service.xml.xpath.comparators.CompKind;
+
+import com.google.common.base.Optional;
+
+/**
+ * <h1>TextRange</h1>
+ * <p>
+ * Range of numeric values, which a {@code [text() op literal]} predicate
+ * selects. The bounds are the string values of the literal, such that they are
+ * cast to the type of the index, which answers the predicate.
+ * </p>
+ * 
+ * @author Johannes Lichtenberger, University of Konstanz
+ * 
+ */
+public final class TextRange {
+
+  /** Comparison with the text step as first operand. */
+  private final CompKind mKind;
+
+  /** String value of the literal. */
+  private final String mLiteral;
+
+  /**
+   * Private constructor.
+   * 
+   * @param pKind
+   *          comparison with the text step as first operand
+   * @param pLiteral
+   *          string value of the literal
+   */
+  private TextRange(final @Nonnull CompKind pKind,
+    final @Nonnull String pLiteral) {
+    mKind = pKind;
+    mLiteral = pLiteral;
+  }
+
+  /**
+   * Get the range of a comparison between the text step and a literal.
+   * 
+   * @param pKind
+   *          the comparison
+   * @param pLiteral
+   *          string value of the literal
+   * @param pSwapped
+   *          determines if the literal is the first operand
+   * @return the range or {@code absent}, if the comparison doesn't select a
+   *         single range
+   */
+  public static Optional<TextRange> of(final @Nonnull CompKind pKind,
+    final @Nonnull String pLiteral, final boolean pSwapped) {
+    checkNotNull(pLiteral);
+    switch (checkNotNull(pKind)) {
+    case EQ:
+      return Optional.of(new TextRange(pKind, pLiteral));
+    case LT:
+      return Optional.of(new TextRange(pSwapped ? CompKind.GT : CompKind.LT,
+        pLiteral));
+    case LE:
+      return Optional.of(new TextRange(pSwapped ? CompKind.GE : CompKind.LE,
+        pLiteral));
+    case GT:
+      return Optional.of(new TextRange(pSwapped ? CompKind.LT : CompKind.GT,
+        pLiteral));
+    case GE:
+      return Optional.of(new TextRange(pSwapped ? CompKind.LE : CompKind.GE,
+        pLiteral));
+    default:
+      return Optional.absent();
+    }
+  }
+
+  /**
+   * Get the lower bound.
+   * 
+   * @return the lower bound or {@code null}, if unbounded
+   */
+  @Nullable
+  public String getFrom() {
+    return mKind == CompKind.EQ || mKind == CompKind.GT
+      || mKind == CompKind.GE ? mLiteral : null;
+  }
+
+  /**
+   * Determines if the lower bound is inclusive.
+   * 
+   * @return {@code true}, if the lower bound is inclusive, {@code false}
+   *         otherwise
+   */
+  public boolean isFromInclusive() {
+    return mKind != CompKind.GT;
+  }
+
+  /**
+   * Get the upper bound.
+   * 
+   * @return the upper bound or {@code null}, if unbounded
+   */
+  @Nullable
+  public String getTo() {
+    return mKind == CompKind.EQ || mKind == CompKind.LT
+      || mKind == CompKind.LE ? mLiteral : null;
+  }
+
+  /**
+   * Determines if the upper bound is inclusive.
+   * 
+   * @return {@code true}, if the upper bound is inclusive, {@code false}
+   *         otherwise
+   */
+  public boolean isToInclusive() {
+    return mKind != CompKind.LT;
+  }
+
+  @Override
+  public String toString() {
+    final String operator;
+    switch (mKind) {
+    case EQ:
+      operator = "=";
+      break;
+    case LT:
+      operator = "<";
+      break;
+    case LE:
+      operator = "<=";
+      break;
+    case GT:
+      operator = ">";
+      break;
+    default:
+      operator = ">=";
+    }
+    return new StringBuilder("[text() ").append(operator).append(' ')
+      .append(mLiteral).append(']').toString();
+  }
+}
@@ -0,0 +1,143 @@
+/**
+ * Copyright (c) 2011, University of Konstanz, Distributed Systems Group
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the University of Konstanz nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sirix.service.xml.xpath.rewrite;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.annotation.Nonnull;
+
+import org.sirix.api.INodeReadTrx;
+import org.sirix.exception.SirixIOException;
+import org.sirix.index.value.BPlusTree;
+import org.sirix.node.EKind;
+import org.sirix.node.Postings;
+import org.sirix.node.TextReferences;
+import org.sirix.node.TextValue;
+import org.sirix.node.interfaces.INameNode;
+import org.sirix.node.interfaces.INode;
+import org.sirix.node.interfaces.IValNode;
+import org.sirix.utils.TypedValue;
+
+import com.google.common.base.Optional;
+
+/**
+ * <h1>ValueIndexAxis</h1>
+ * <p>
+ * Returns the elements of the given path classes, which have a text child with
+ * the given value, in document order. The text nodes are looked up in the value
+ * index. Only the ancestors of the resulting elements are visited to restore
+ * document order.
+ * </p>
+ * 
+ * @author Johannes Lichtenberger, University of Konstanz
+ * 
+ */
+public final class ValueIndexAxis extends AbsIndexAxis {
+
+  /** The value index. */
+  private final BPlusTree mIndex;
+
+  /** The text value. */
+  private final byte[] mValue;
+
+  /** Keys of the path nodes, whose elements are returned. */
+  private final Set<Long> mPathNodeKeys;
+
+  /** Keys of the resulting elements, {@code null} before the lookup. */
+  private Postings mResults;
+
+  /** Keys of the ancestors of the resulting elements. */
+  private Set<Long> mAncestors;
+
+  /**
+   * Constructor.
+   * 
+   * @param pRtx
+   *          {@link INodeReadTrx} to iterate with
+   * @param pIndex
+   *          the value index
+   * @param pValue
+   *          the text value
+   * @param pPathNodeKeys
+   *          keys of the path nodes, whose elements are returned
+   */
+  public ValueIndexAxis(final @Nonnull INodeReadTrx pRtx, final @Nonnull BPlusTree pIndex,
+    final @Nonnull byte[] pValue, final @Nonnull Set<Long> pPathNodeKeys) {
+    super(pRtx);
+    mIndex = checkNotNull(pIndex);
+    mValue = checkNotNull(pValue);
+    mPathNodeKeys = checkNotNull(pPathNodeKeys);
+  }
+
+  @Override
+  void init() {
+    if (mResults != null) {
+      return;
+    }
+    final Optional<TextReferences> references;
+    try {
+      references = mIndex.get(new TextValue(mValue, 0, 0));
+    } catch (final SirixIOException e) {
+      throw new IllegalStateException(e);
+    }
+    mResults = new Postings();
+    mAncestors = new HashSet<>();
+    if (!references.isPresent()) {
+      return;
+    }
+
+    // The index is not cleaned on deletes and updates, thus the text nodes are
+    // checked.
+    final INodeReadTrx rtx = getTransaction();
+    for (final Postings.Cursor cursor = references.get().getPostings().cursor(); cursor.next();) {
+      if (rtx.moveTo(cursor.key()) && rtx.getNode().getKind() == EKind.TEXT
+        && TypedValue.equals(((IValNode)rtx.getNode()).getRawValue(), mValue) && rtx.moveToParent()
+        && rtx.getNode().getKind() == EKind.ELEMENT
+        && mPathNodeKeys.contains(((INameNode)rtx.getNode()).getPathNodeKey())) {
+        mResults.add(rtx.getNode().getNodeKey());
+        while (rtx.moveToParent() && rtx.getNode().getKind() == EKind.ELEMENT
+          && mAncestors.add(rtx.getNode().getNodeKey())) {
+          // Collect the ancestors up to the first one already collected.
+        }
+      }
+    }
+  }
+
+  @Override
+  boolean isResult(final @Nonnull INode pNode) {
+    return mResults.contains(pNode.getNodeKey());
+  }
+
+  @Override
+  boolean isAncestor(final @Nonnull INode pNode) {
+    return mAncestors.contains(pNode.getNodeKey());
+  }
+}
@@ -27,13 +27,10 @@
 
 package org.sirix.settings;
 
-import java.util.Map.Entry;
-
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 
 import org.sirix.cache.PageContainer;
-import org.sirix.node.interfaces.INodeBase;
 import org.sirix.page.NodePage;
 
 /**
@@ -68,9 +65,10 @@ public enum ERevisioning {
           new NodePage(nodePageKey, pPages[0].getRevision() + 1)
         };
 
-      for (final INodeBase nodes : pPages[0].values()) {
-        returnVal[0].setNode(nodes);
-        returnVal[1].setNode(nodes);
+      final NodePage page = pPages[0];
+      for (int slot = page.nextSlot(0); slot >= 0; slot = page.nextSlot(slot + 1)) {
+        returnVal[0].copySlot(page, slot);
+        returnVal[1].copySlot(page, slot);
       }
 
       final PageContainer cont = new PageContainer(returnVal[0], returnVal[1]);
@@ -96,12 +94,14 @@ public enum ERevisioning {
       assert latest.getNodePageKey() == nodePageKey;
       assert fullDump.getNodePageKey() == nodePageKey;
 
-      for (final INodeBase node : fullDump.values()) {
-        returnVal.setNode(node);
+      for (int slot = fullDump.nextSlot(0); slot >= 0; slot =
+        fullDump.nextSlot(slot + 1)) {
+        returnVal.copySlot(fullDump, slot);
       }
 
-      for (final INodeBase node : latest.values()) {
-        returnVal.setNode(node);
+      for (int slot = latest.nextSlot(0); slot >= 0; slot =
+        latest.nextSlot(slot + 1)) {
+        returnVal.copySlot(latest, slot);
       }
       return returnVal;
     }
@@ -120,19 +120,23 @@ public enum ERevisioning {
       final NodePage latest = pPages[0];
       NodePage fullDump = pPages.length == 1 ? pPages[0] : pPages[1];
       
-      for (final INodeBase node : fullDump.values()) {
-        returnVal[0].setNode(node);
+      final boolean fullDumpRevision =
+        (latest.getRevision() + 1) % pRevToRestore == 0;
+      for (int slot = fullDump.nextSlot(0); slot >= 0; slot =
+        fullDump.nextSlot(slot + 1)) {
+        returnVal[0].copySlot(fullDump, slot);
 
-        if ((latest.getRevision() + 1) % pRevToRestore == 0) {
+        if (fullDumpRevision) {
           // Fulldump.
-          returnVal[1].setNode(node);
+          returnVal[1].copySlot(fullDump, slot);
         }
       }
 
       // iterate through all nodes
-      for (final INodeBase node : latest.values()) {
-        returnVal[0].setNode(node);
-        returnVal[1].setNode(node);
+      for (int slot = latest.nextSlot(0); slot >= 0; slot =
+        latest.nextSlot(slot + 1)) {
+        returnVal[0].copySlot(latest, slot);
+        returnVal[1].copySlot(latest, slot);
       }
 
       final PageContainer cont = new PageContainer(returnVal[0], returnVal[1]);
@@ -155,10 +159,10 @@ public enum ERevisioning {
 
       for (final NodePage page : pPages) {
         assert page.getNodePageKey() == nodePageKey;
-        for (final Entry<Long, INodeBase> node : page.entrySet()) {
-          final long nodeKey = node.getKey();
-          if (returnVal.getNode(nodeKey) == null) {
-            returnVal.setNode(node.getValue());
+        for (int slot = page.nextSlot(0); slot >= 0; slot =
+          page.nextSlot(slot + 1)) {
+          if (!returnVal.isSlotOccupied(slot)) {
+            returnVal.copySlot(page, slot);
           }
         }
 
@@ -180,18 +184,84 @@ public enum ERevisioning {
           new NodePage(nodePageKey, pPages[0].getRevision() + 1)
         };
 
+      final boolean fullDumpRevision =
+        returnVal[0].getRevision() % pRevToRestore == 0;
       for (final NodePage page : pPages) {
         assert page.getNodePageKey() == nodePageKey;
 
-        for (final Entry<Long, INodeBase> node : page.entrySet()) {
+        for (int slot = page.nextSlot(0); slot >= 0; slot =
+          page.nextSlot(slot + 1)) {
           // Caching the complete page.
-          final long nodeKey = node.getKey();
-          if (node != null && returnVal[0].getNode(nodeKey) == null) {
-            returnVal[0].setNode(node.getValue());
+          if (!returnVal[0].isSlotOccupied(slot)) {
+            returnVal[0].copySlot(page, slot);
+
+            if (fullDumpRevision && !returnVal[1].isSlotOccupied(slot)) {
+              returnVal[1].copySlot(page, slot);
+            }
+          }
+        }
+      }
+
+      final PageContainer cont = new PageContainer(returnVal[0], returnVal[1]);
+      return cont;
+    }
+  },
+
+  /**
+   * Sliding snapshot. A page is always reconstructed from the fragments of at
+   * most the last {@code pRevToRestore} revisions in which it has been
+   * modified. Nodes of the oldest fragment of this window, which haven't been
+   * changed in between, are written forward into the new fragment, as the
+   * oldest fragment falls out of the window. Thus the read costs are bounded
+   * and no full dumps are written at all.
+   */
+  SLIDING_SNAPSHOT {
+    @Override
+    public NodePage combineNodePages(@Nonnull final NodePage[] pPages,
+      @Nonnegative final int pRevToRestore) {
+      assert pPages.length <= pRevToRestore;
+      final long nodePageKey = pPages[0].getNodePageKey();
+      final NodePage returnVal =
+        new NodePage(nodePageKey, pPages[0].getRevision());
+
+      for (final NodePage page : pPages) {
+        assert page.getNodePageKey() == nodePageKey;
+        for (int slot = page.nextSlot(0); slot >= 0; slot =
+          page.nextSlot(slot + 1)) {
+          if (!returnVal.isSlotOccupied(slot)) {
+            returnVal.copySlot(page, slot);
+          }
+        }
+      }
+
+      return returnVal;
+    }
+
+    @Override
+    public PageContainer combineNodePagesForModification(
+      @Nonnull final NodePage[] pPages, @Nonnegative final int pRevToRestore) {
+      assert pPages.length <= pRevToRestore;
+      final long nodePageKey = pPages[0].getNodePageKey();
+      final NodePage[] returnVal =
+        {
+          new NodePage(nodePageKey, pPages[0].getRevision() + 1),
+          new NodePage(nodePageKey, pPages[0].getRevision() + 1)
+        };
+
+      // The oldest fragment falls out of the window with the next fragment.
+      final int outOfWindow =
+        pPages.length == pRevToRestore ? pPages.length - 1 : -1;
+      for (int i = 0; i < pPages.length; i++) {
+        final NodePage page = pPages[i];
+        assert page.getNodePageKey() == nodePageKey;
+        for (int slot = page.nextSlot(0); slot >= 0; slot =
+          page.nextSlot(slot + 1)) {
+          if (!returnVal[0].isSlotOccupied(slot)) {
+            returnVal[0].copySlot(page, slot);
 
-            if (returnVal[1].getNode(node.getKey()) == null
-              && returnVal[0].getRevision() % pRevToRestore == 0) {
-              returnVal[1].setNode(node.getValue());
+            if (i == outOfWindow) {
+              // Write forward.
+              returnVal[1].copySlot(page, slot);
             }
           }
         }
@@ -0,0 +1,257 @@
+/**
+ * Copyright (c) 2011, University of Konstanz, Distributed Systems Group
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the University of Konstanz nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sirix.access;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import javax.xml.namespace.QName;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sirix.TestHelper;
+import org.sirix.TestHelper.PATHS;
+import org.sirix.access.conf.ResourceConfiguration;
+import org.sirix.access.conf.SessionConfiguration;
+import org.sirix.api.IDatabase;
+import org.sirix.api.INodeReadTrx;
+import org.sirix.api.INodeWriteTrx;
+import org.sirix.api.IPostCommitHook;
+import org.sirix.api.ISession;
+import org.sirix.exception.SirixException;
+import org.sirix.exception.SirixIOException;
+import org.sirix.node.interfaces.IStructNode;
+import org.sirix.service.xml.serialize.XMLSerializer.XMLSerializerBuilder;
+import org.sirix.utils.DocumentCreater;
+
+/**
+ * Test asynchronous commits, which persist a frozen revision in the
+ * background.
+ * 
+ * @author Johannes Lichtenberger, University of Konstanz
+ * 
+ */
+public class AsyncCommitTest {
+
+  /** Resource, which is committed asynchronously. */
+  private static final String ASYNC = "async";
+
+  /** Session on the resource, which is committed synchronously. */
+  private ISession mSession;
+
+  /** Session on the resource, which is committed asynchronously. */
+  private ISession mAsyncSession;
+
+  @Before
+  public void setUp() throws SirixException {
+    TestHelper.deleteEverything();
+    final IDatabase database = TestHelper.getDatabase(PATHS.PATH1.getFile());
+    database.createResource(new ResourceConfiguration.Builder(ASYNC,
+      PATHS.PATH1.getConfig()).build());
+    mSession =
+      database.getSession(new SessionConfiguration.Builder(
+        TestHelper.RESOURCE).build());
+    mAsyncSession =
+      database.getSession(new SessionConfiguration.Builder(ASYNC).build());
+  }
+
+  @After
+  public void tearDown() throws SirixException {
+    TestHelper.closeEverything();
+  }
+
+  @Test
+  public void testCommitAsync() throws Exception {
+    final INodeWriteTrx wtx = mSession.beginNodeWriteTrx();
+    final INodeWriteTrx asyncWtx = mAsyncSession.beginNodeWriteTrx();
+    DocumentCreater.create(wtx);
+    DocumentCreater.create(asyncWtx);
+    wtx.commit();
+    // The first revision is committed synchronously.
+    assertEquals(0, asyncWtx.commitAsync().get().intValue());
+
+    modify(wtx, 1);
+    wtx.commit();
+    modify(asyncWtx, 1);
+    final Future<Integer> first = asyncWtx.commitAsync();
+    assertEquals(2, asyncWtx.getRevisionNumber());
+
+    // Modifies nodes of the frozen revision.
+    modify(wtx, 2);
+    wtx.commit();
+    modify(asyncWtx, 2);
+    final Future<Integer> second = asyncWtx.commitAsync();
+    assertEquals(1, first.get().intValue());
+
+    modify(wtx, 3);
+    wtx.commit();
+    modify(asyncWtx, 3);
+    asyncWtx.commit();
+    assertEquals(2, second.get().intValue());
+    wtx.close();
+    asyncWtx.close();
+
+    assertEquals(3, mAsyncSession.getLastRevisionNumber());
+    for (int revision = 0; revision <= 3; revision++) {
+      assertEquals(serialize(mSession, revision), serialize(mAsyncSession,
+        revision));
+      final INodeReadTrx rtx = mSession.beginNodeReadTrx(revision);
+      final INodeReadTrx asyncRtx = mAsyncSession.beginNodeReadTrx(revision);
+      assertTrue(asyncRtx.moveTo(1));
+      rtx.moveTo(1);
+      assertEquals(rtx.getNode().getHash(), asyncRtx.getNode().getHash());
+      assertEquals(((IStructNode) rtx.getNode()).getDescendantCount(),
+        ((IStructNode) asyncRtx.getNode()).getDescendantCount());
+      rtx.close();
+      asyncRtx.close();
+    }
+  }
+
+  @Test
+  public void testPostCommitHook() throws Exception {
+    final INodeWriteTrx wtx = mAsyncSession.beginNodeWriteTrx();
+    final List<Integer> revisions =
+      Collections.synchronizedList(new ArrayList<Integer>());
+    final List<Boolean> writeTrxs =
+      Collections.synchronizedList(new ArrayList<Boolean>());
+    wtx.addPostCommitHook(new IPostCommitHook() {
+      @Override
+      public void postCommit(final INodeReadTrx pRtx) {
+        try {
+          revisions.add(pRtx.getRevisionNumber());
+        } catch (final SirixIOException e) {
+          revisions.add(-1);
+        }
+        writeTrxs.add(pRtx instanceof INodeWriteTrx);
+      }
+    });
+    DocumentCreater.create(wtx);
+    wtx.commit();
+    modify(wtx, 1);
+    final Future<Integer> future = wtx.commitAsync();
+    // The hook doesn't see the cursor of the write transaction.
+    modify(wtx, 2);
+    assertEquals(1, future.get().intValue());
+    wtx.commit();
+    wtx.close();
+    assertEquals(3, revisions.size());
+    assertEquals(Integer.valueOf(1), revisions.get(1));
+    assertFalse(writeTrxs.get(1));
+  }
+
+  @Test
+  public void testAbort() throws SirixException, InterruptedException,
+    ExecutionException {
+    final INodeWriteTrx wtx = mAsyncSession.beginNodeWriteTrx();
+    DocumentCreater.create(wtx);
+    wtx.commit();
+    modify(wtx, 1);
+    final Future<Integer> future = wtx.commitAsync();
+    modify(wtx, 2);
+    wtx.abort();
+    assertTrue(future.isDone());
+    assertEquals(1, future.get().intValue());
+    assertEquals(1, wtx.getRevisionNumber() - 1);
+    // The aborted modification is discarded, the committed one is kept.
+    wtx.moveTo(1);
+    wtx.moveToFirstChild();
+    assertEquals(new QName("x"), wtx.getQNameOfCurrentNode());
+    wtx.moveTo(4);
+    assertEquals("oops1", wtx.getValueOfCurrentNode());
+    wtx.close();
+
+    final INodeReadTrx rtx = mAsyncSession.beginNodeReadTrx();
+    assertEquals(1, rtx.getRevisionNumber());
+    assertTrue(rtx.moveTo(1));
+    assertTrue(rtx.moveToFirstChild());
+    assertEquals(new QName("x"), rtx.getQNameOfCurrentNode());
+    assertTrue(rtx.moveToFirstChild());
+    assertEquals("one", rtx.getValueOfCurrentNode());
+    assertFalse(rtx.moveToRightSibling());
+    rtx.close();
+  }
+
+  /**
+   * Modify the document, which has been created by {@link DocumentCreater}.
+   * 
+   * @param pWtx
+   *          the write transaction
+   * @param pStep
+   *          the modification step
+   * @throws SirixException
+   *           if the modification fails
+   */
+  private static void modify(final INodeWriteTrx pWtx, final int pStep)
+    throws SirixException {
+    pWtx.moveTo(1);
+    switch (pStep) {
+    case 1:
+      pWtx.insertElementAsFirstChild(new QName("x"));
+      pWtx.insertTextAsFirstChild("one");
+      break;
+    case 2:
+      pWtx.insertElementAsFirstChild(new QName("y"));
+      pWtx.moveTo(4);
+      pWtx.setValue("changed");
+      break;
+    default:
+      pWtx.moveToFirstChild();
+      pWtx.moveToRightSibling();
+      pWtx.remove();
+      pWtx.moveTo(4);
+      pWtx.setValue("again");
+    }
+  }
+
+  /**
+   * Serialize a revision.
+   * 
+   * @param pSession
+   *          the session
+   * @param pRevision
+   *          the revision
+   * @return the serialized revision
+   * @throws Exception
+   *           if the serialization fails
+   */
+  private static String serialize(final ISession pSession, final int pRevision)
+    throws Exception {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    new XMLSerializerBuilder(pSession, out, pRevision).build().call();
+    return out.toString();
+  }
+}
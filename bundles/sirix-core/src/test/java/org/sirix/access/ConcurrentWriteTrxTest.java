@@ -0,0 +1,218 @@
+/**
+ * Copyright (c) 2011, University of Konstanz, Distributed Systems Group
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the University of Konstanz nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sirix.access;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.EnumSet;
+
+import javax.xml.namespace.QName;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sirix.TestHelper;
+import org.sirix.TestHelper.PATHS;
+import org.sirix.access.conf.ResourceConfiguration;
+import org.sirix.access.conf.ResourceConfiguration.EIndexes;
+import org.sirix.access.conf.SessionConfiguration;
+import org.sirix.api.IDatabase;
+import org.sirix.api.INodeReadTrx;
+import org.sirix.api.INodeWriteTrx;
+import org.sirix.api.ISession;
+import org.sirix.exception.SirixException;
+import org.sirix.exception.SirixThreadedException;
+import org.sirix.exception.SirixUsageException;
+import org.sirix.node.interfaces.IStructNode;
+
+/**
+ * Test concurrent write transactions, which lock disjoint subtrees.
+ * 
+ * @author Johannes Lichtenberger, University of Konstanz
+ * 
+ */
+public class ConcurrentWriteTrxTest {
+
+  /** Resource, which is modified concurrently. */
+  private static final String CONCURRENT = "concurrent";
+
+  /** Session on the concurrently modified resource. */
+  private ISession mSession;
+
+  @Before
+  public void setUp() throws SirixException {
+    TestHelper.deleteEverything();
+    final IDatabase database = TestHelper.getDatabase(PATHS.PATH1.getFile());
+    database.createResource(new ResourceConfiguration.Builder(CONCURRENT,
+      PATHS.PATH1.getConfig()).setIndexes(EnumSet.of(EIndexes.NONE)).build());
+    mSession =
+      database.getSession(new SessionConfiguration.Builder(CONCURRENT)
+        .setWtxAllowed(4).build());
+    final INodeWriteTrx wtx = mSession.beginNodeWriteTrx();
+    createDocument(wtx);
+    wtx.close();
+  }
+
+  @After
+  public void tearDown() throws SirixException {
+    TestHelper.closeEverything();
+  }
+
+  @Test
+  public void testMerge() throws SirixException {
+    final INodeWriteTrx first = mSession.beginNodeWriteTrx();
+    final INodeWriteTrx second = mSession.beginNodeWriteTrx();
+    first.moveTo(2);
+    first.lockSubtree();
+    second.moveTo(3);
+    second.lockSubtree();
+    first.insertElementAsFirstChild(new QName("x"));
+    second.insertElementAsFirstChild(new QName("y"));
+    second.insertTextAsFirstChild("text");
+    // Hashes of the root element before and after the modifications.
+    first.moveTo(1);
+    second.moveTo(1);
+    final long firstHash = first.getNode().getHash();
+    final long secondHash = second.getNode().getHash();
+    final INodeReadTrx base = mSession.beginNodeReadTrx();
+    base.moveTo(1);
+    final long baseHash = base.getNode().getHash();
+    base.close();
+    first.commit();
+    second.commit();
+    first.close();
+    second.close();
+
+    final INodeReadTrx rtx = mSession.beginNodeReadTrx();
+    assertEquals(2, rtx.getRevisionNumber());
+    assertTrue(rtx.moveTo(2));
+    assertTrue(rtx.moveToFirstChild());
+    assertEquals(new QName("x"), rtx.getQNameOfCurrentNode());
+    assertTrue(rtx.moveTo(3));
+    assertTrue(rtx.moveToFirstChild());
+    assertEquals(new QName("y"), rtx.getQNameOfCurrentNode());
+    assertTrue(rtx.moveToFirstChild());
+    assertEquals("text", rtx.getValueOfCurrentNode());
+    rtx.moveTo(1);
+    assertEquals(6, ((IStructNode) rtx.getNode()).getDescendantCount());
+    assertEquals(firstHash + secondHash - baseHash, rtx.getNode().getHash());
+    rtx.close();
+  }
+
+  @Test
+  public void testDefaultConfiguration() throws SirixException {
+    final IDatabase database = TestHelper.getDatabase(PATHS.PATH1.getFile());
+    database.createResource(new ResourceConfiguration.Builder("default",
+      PATHS.PATH1.getConfig()).build());
+    try {
+      // The default configuration includes the path summary.
+      database.getSession(new SessionConfiguration.Builder("default")
+        .setWtxAllowed(2).build());
+      fail();
+    } catch (final SirixUsageException e) {
+      assertTrue(e.getMessage().contains("Disable the PATH indexes"));
+    }
+    final ISession session =
+      database.getSession(new SessionConfiguration.Builder("default").build());
+    final INodeWriteTrx wtx = session.beginNodeWriteTrx();
+    createDocument(wtx);
+    wtx.close();
+    session.close();
+  }
+
+  @Test
+  public void testLockConflict() throws SirixException {
+    final INodeWriteTrx first = mSession.beginNodeWriteTrx();
+    final INodeWriteTrx second = mSession.beginNodeWriteTrx();
+    first.moveTo(2);
+    first.lockSubtree();
+    second.moveTo(1);
+    try {
+      second.lockSubtree();
+      fail();
+    } catch (final SirixThreadedException e) {
+      // Expected.
+    }
+    first.abort();
+    second.lockSubtree();
+    first.moveTo(2);
+    try {
+      first.lockSubtree();
+      fail();
+    } catch (final SirixThreadedException e) {
+      // Expected.
+    }
+    first.close();
+    second.close();
+  }
+
+  @Test
+  public void testModificationOutsideLock() throws SirixException {
+    final INodeWriteTrx wtx = mSession.beginNodeWriteTrx();
+    final INodeWriteTrx other = mSession.beginNodeWriteTrx();
+    wtx.moveTo(2);
+    wtx.lockSubtree();
+    wtx.moveTo(3);
+    wtx.insertElementAsFirstChild(new QName("x"));
+    try {
+      wtx.commit();
+      fail();
+    } catch (final SirixUsageException e) {
+      // Expected.
+    }
+    wtx.abort();
+    wtx.close();
+    other.close();
+
+    final INodeReadTrx rtx = mSession.beginNodeReadTrx();
+    assertEquals(0, rtx.getRevisionNumber());
+    rtx.moveTo(3);
+    assertFalse(rtx.moveToFirstChild());
+    rtx.close();
+  }
+
+  /**
+   * Create and commit the document {@code <r><a/><b/><c/></r>}.
+   * 
+   * @param pWtx
+   *          {@link INodeWriteTrx} instance
+   * @throws SirixException
+   *           if anything went wrong
+   */
+  private static void createDocument(final INodeWriteTrx pWtx)
+    throws SirixException {
+    pWtx.insertElementAsFirstChild(new QName("r"));
+    pWtx.insertElementAsFirstChild(new QName("a"));
+    pWtx.insertElementAsRightSibling(new QName("b"));
+    pWtx.insertElementAsRightSibling(new QName("c"));
+    pWtx.commit();
+  }
+}
@@ -0,0 +1,185 @@
+/**
+ * Copyright (c) 2011, University of Konstanz, Distributed Systems Group
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the University of Konstanz nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sirix.access;
+
+import javax.xml.namespace.QName;
+
+import org.perfidix.annotation.AfterBenchClass;
+import org.perfidix.annotation.BeforeBenchClass;
+import org.perfidix.annotation.Bench;
+import org.sirix.TestHelper;
+import org.sirix.TestHelper.PATHS;
+import org.sirix.access.conf.ResourceConfiguration;
+import org.sirix.access.conf.SessionConfiguration;
+import org.sirix.api.IDatabase;
+import org.sirix.api.INodeReadTrx;
+import org.sirix.api.INodeWriteTrx;
+import org.sirix.api.ISession;
+import org.sirix.exception.SirixException;
+import org.sirix.settings.ERevisioning;
+
+/**
+ * Benchmarks cold reads of incrementally versioned resources, which require
+ * 3, 8 or 16 page fragments to reconstruct a node page, with sequential and
+ * with concurrent fragment reads.
+ * 
+ * @author Johannes Lichtenberger, University of Konstanz
+ * 
+ */
+public class FragmentPrefetchBench {
+
+  /** Number of elements. */
+  private static final int ELEMENTS = 20000;
+
+  /** Every n-th element is renamed in each revision. */
+  private static final int STEP = 64;
+
+  /** Number of threads which read fragments concurrently. */
+  private static final int THREADS = 4;
+
+  /** Database. */
+  private static IDatabase mDatabase;
+
+  @BeforeBenchClass
+  public static void setUp() throws SirixException {
+    TestHelper.deleteEverything();
+    mDatabase = TestHelper.getDatabase(PATHS.PATH1.getFile());
+    for (final int revisions : new int[] {
+      3, 8, 16
+    }) {
+      create(revisions);
+    }
+  }
+
+  @AfterBenchClass
+  public static void tearDown() throws SirixException {
+    TestHelper.closeEverything();
+    TestHelper.deleteEverything();
+  }
+
+  @Bench
+  public void benchIncremental3Sequential() throws SirixException {
+    read(3, 0);
+  }
+
+  @Bench
+  public void benchIncremental3Concurrent() throws SirixException {
+    read(3, THREADS);
+  }
+
+  @Bench
+  public void benchIncremental8Sequential() throws SirixException {
+    read(8, 0);
+  }
+
+  @Bench
+  public void benchIncremental8Concurrent() throws SirixException {
+    read(8, THREADS);
+  }
+
+  @Bench
+  public void benchIncremental16Sequential() throws SirixException {
+    read(16, 0);
+  }
+
+  @Bench
+  public void benchIncremental16Concurrent() throws SirixException {
+    read(16, THREADS);
+  }
+
+  /**
+   * Create a resource with the given number of revisions to restore and
+   * exactly as many revisions, such that each node page of the most recent
+   * revision consists of that many fragments.
+   * 
+   * @param pRevisions
+   *          number of revisions to restore
+   * @throws SirixException
+   *           if anything fails
+   */
+  private static void create(final int pRevisions) throws SirixException {
+    final String resource = resource(pRevisions);
+    mDatabase.createResource(new ResourceConfiguration.Builder(resource,
+      PATHS.PATH1.getConfig()).setRevisionKind(ERevisioning.INCREMENTAL)
+      .setRevisionsToRestore(pRevisions).build());
+    final ISession session =
+      mDatabase.getSession(new SessionConfiguration.Builder(resource).build());
+    final INodeWriteTrx wtx = session.beginNodeWriteTrx();
+    wtx.insertElementAsFirstChild(new QName("root"));
+    wtx.insertElementAsFirstChild(new QName("e"));
+    for (int i = 1; i < ELEMENTS; i++) {
+      wtx.insertElementAsRightSibling(new QName("e"));
+    }
+    wtx.commit();
+    for (int revision = 1; revision < pRevisions; revision++) {
+      for (long key = 2 + revision; key < ELEMENTS + 2; key += STEP) {
+        wtx.moveTo(key);
+        wtx.setQName(new QName("e" + revision));
+      }
+      wtx.commit();
+    }
+    wtx.close();
+    session.close();
+  }
+
+  /**
+   * Read all nodes of the most recent revision with a new session, such that
+   * no page is cached.
+   * 
+   * @param pRevisions
+   *          number of revisions to restore
+   * @param pThreads
+   *          number of threads which read fragments concurrently
+   * @throws SirixException
+   *           if anything fails
+   */
+  private static void read(final int pRevisions, final int pThreads)
+    throws SirixException {
+    final ISession session =
+      mDatabase.getSession(new SessionConfiguration.Builder(
+        resource(pRevisions)).setPageCacheWeight(0).setFragmentReadThreads(
+        pThreads).build());
+    final INodeReadTrx rtx = session.beginNodeReadTrx();
+    for (long key = 1; key < ELEMENTS + 2; key++) {
+      rtx.moveTo(key);
+    }
+    rtx.close();
+    session.close();
+  }
+
+  /**
+   * Name of the resource.
+   * 
+   * @param pRevisions
+   *          number of revisions to restore
+   * @return name of the resource
+   */
+  private static String resource(final int pRevisions) {
+    return "incremental" + pRevisions;
+  }
+}
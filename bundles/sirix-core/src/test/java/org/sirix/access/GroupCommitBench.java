@@ -0,0 +1,162 @@
+/**
+ * Copyright (c) 2011, University of Konstanz, Distributed Systems Group
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the University of Konstanz nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sirix.access;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.namespace.QName;
+
+import org.perfidix.annotation.AfterBenchClass;
+import org.perfidix.annotation.BeforeBenchClass;
+import org.perfidix.annotation.Bench;
+import org.sirix.TestHelper;
+import org.sirix.TestHelper.PATHS;
+import org.sirix.access.conf.ResourceConfiguration;
+import org.sirix.access.conf.SessionConfiguration;
+import org.sirix.api.IDatabase;
+import org.sirix.api.INodeWriteTrx;
+import org.sirix.api.ISession;
+import org.sirix.exception.SirixException;
+
+/**
+ * Benchmarks many small commits of concurrently modified resources of one
+ * database, which force their data to the device, without group commit and
+ * with group commits of different windows.
+ * 
+ * @author Johannes Lichtenberger, University of Konstanz
+ * 
+ */
+public class GroupCommitBench {
+
+  /** Number of resources, each modified by its own thread. */
+  private static final int RESOURCES = 8;
+
+  /** Number of commits per resource. */
+  private static final int COMMITS = 100;
+
+  /** Database. */
+  private static IDatabase mDatabase;
+
+  /** Executes the commits of each resource. */
+  private static ExecutorService mPool;
+
+  @BeforeBenchClass
+  public static void setUp() throws SirixException {
+    TestHelper.deleteEverything();
+    mDatabase = TestHelper.getDatabase(PATHS.PATH1.getFile());
+    for (int i = 0; i < RESOURCES; i++) {
+      mDatabase.createResource(new ResourceConfiguration.Builder(resource(i),
+        PATHS.PATH1.getConfig()).syncOnCommit(true).build());
+    }
+    mPool = Executors.newFixedThreadPool(RESOURCES);
+  }
+
+  @AfterBenchClass
+  public static void tearDown() throws SirixException {
+    mPool.shutdown();
+    TestHelper.closeEverything();
+    TestHelper.deleteEverything();
+  }
+
+  @Bench
+  public void benchSingleCommits() throws Exception {
+    mDatabase.disableGroupCommit();
+    commit();
+  }
+
+  @Bench
+  public void benchGroupCommit() throws Exception {
+    mDatabase.setGroupCommit(0, TimeUnit.MILLISECONDS, RESOURCES);
+    commit();
+  }
+
+  @Bench
+  public void benchGroupCommitWindow1ms() throws Exception {
+    mDatabase.setGroupCommit(1, TimeUnit.MILLISECONDS, RESOURCES);
+    commit();
+  }
+
+  /**
+   * Commit each resource {@link #COMMITS} times, each commit inserts a single
+   * element.
+   * 
+   * @throws SirixException
+   *           if a commit fails
+   * @throws InterruptedException
+   *           if interrupted while waiting for the commits
+   * @throws ExecutionException
+   *           if a commit fails
+   */
+  private static void commit() throws SirixException, InterruptedException,
+    ExecutionException {
+    final List<Future<Void>> futures = new ArrayList<>();
+    for (int i = 0; i < RESOURCES; i++) {
+      final ISession session =
+        mDatabase.getSession(new SessionConfiguration.Builder(resource(i))
+          .build());
+      futures.add(mPool.submit(new Callable<Void>() {
+        @Override
+        public Void call() throws SirixException {
+          final INodeWriteTrx wtx = session.beginNodeWriteTrx();
+          wtx.moveToDocumentRoot();
+          if (!wtx.moveToFirstChild()) {
+            wtx.insertElementAsFirstChild(new QName("root"));
+          }
+          for (int commit = 0; commit < COMMITS; commit++) {
+            wtx.insertElementAsFirstChild(new QName("e"));
+            wtx.moveToParent();
+            wtx.commit();
+          }
+          wtx.close();
+          return null;
+        }
+      }));
+    }
+    for (final Future<Void> future : futures) {
+      future.get();
+    }
+  }
+
+  /**
+   * Name of the resource.
+   * 
+   * @param pIndex
+   *          index of the resource
+   * @return name of the resource
+   */
+  private static String resource(final int pIndex) {
+    return "commits" + pIndex;
+  }
+}
@@ -0,0 +1,416 @@
+/**
+ * Copyright (c) 2011, University of Konstanz, Distributed Systems Group
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the University of Konstanz nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sirix.access;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.namespace.QName;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sirix.TestHelper;
+import org.sirix.TestHelper.PATHS;
+import org.sirix.access.conf.ResourceConfiguration;
+import org.sirix.access.conf.ResourceConfiguration.EIndexes;
+import org.sirix.access.conf.SessionConfiguration;
+import org.sirix.api.IDatabase;
+import org.sirix.api.INodeReadTrx;
+import org.sirix.api.INodeWriteTrx;
+import org.sirix.api.ISession;
+import org.sirix.exception.SirixException;
+import org.sirix.exception.SirixIOException;
+import org.sirix.io.IReader;
+import org.sirix.io.IStorage;
+import org.sirix.io.IWriter;
+import org.sirix.io.bytepipe.IByteHandler;
+import org.sirix.page.PageReference;
+import org.sirix.page.interfaces.IPage;
+import org.sirix.node.interfaces.IStructNode;
+
+/**
+ * Test the group commit of the sessions of a database.
+ * 
+ * @author Johannes Lichtenberger, University of Konstanz
+ * 
+ */
+public class GroupCommitTest {
+
+  /** Number of resources, which are modified concurrently. */
+  private static final int RESOURCES = 4;
+
+  /** Number of commits per resource. */
+  private static final int COMMITS = 20;
+
+  /** Resource, which is modified by concurrent write transactions. */
+  private static final String SHARED = "shared";
+
+  /** {@link IDatabase} instance. */
+  private IDatabase mDatabase;
+
+  @Before
+  public void setUp() throws SirixException {
+    TestHelper.deleteEverything();
+    mDatabase = TestHelper.getDatabase(PATHS.PATH1.getFile());
+    for (int i = 0; i < RESOURCES; i++) {
+      mDatabase.createResource(new ResourceConfiguration.Builder("group" + i,
+        PATHS.PATH1.getConfig()).build());
+    }
+  }
+
+  @After
+  public void tearDown() throws SirixException {
+    TestHelper.closeEverything();
+  }
+
+  @Test
+  public void testGroupCommit() throws Exception {
+    mDatabase.setGroupCommit(5, TimeUnit.MILLISECONDS, RESOURCES);
+    commit();
+    final GroupCommitStats stats = mDatabase.getGroupCommitStats();
+    assertEquals(RESOURCES * COMMITS, stats.getCommitCount());
+    assertTrue(stats.getBatchCount() > 0);
+    assertTrue(stats.getBatchCount() <= stats.getCommitCount());
+    assertTrue(stats.getAverageBatchSize() >= 1);
+    assertTrue(stats.getAverageLatency(TimeUnit.NANOSECONDS) > 0);
+    assertTrue(stats.getMaxLatency(TimeUnit.NANOSECONDS) >= stats
+      .getAverageLatency(TimeUnit.NANOSECONDS));
+    assertTrue(stats.getThroughput() > 0);
+
+    // Every beacon has been written, even if the database is reopened.
+    TestHelper.closeEverything();
+    mDatabase = TestHelper.getDatabase(PATHS.PATH1.getFile());
+    verify();
+  }
+
+  @Test
+  public void testSharedBatches() throws Exception {
+    mDatabase.createResource(new ResourceConfiguration.Builder(SHARED,
+      PATHS.PATH1.getConfig()).setIndexes(EnumSet.of(EIndexes.NONE)).build());
+    final ISession session =
+      mDatabase.getSession(new SessionConfiguration.Builder(SHARED)
+        .setWtxAllowed(RESOURCES).build());
+    final INodeWriteTrx wtx = session.beginNodeWriteTrx();
+    wtx.insertElementAsFirstChild(new QName("root"));
+    for (int i = 0; i < RESOURCES; i++) {
+      wtx.insertElementAsFirstChild(new QName("c" + i));
+      wtx.moveToParent();
+    }
+    wtx.commit();
+    wtx.close();
+
+    mDatabase.setGroupCommit(5, TimeUnit.MILLISECONDS, RESOURCES);
+    final ExecutorService pool = Executors.newFixedThreadPool(RESOURCES);
+    final List<Future<Void>> futures = new ArrayList<>();
+    for (int i = 0; i < RESOURCES; i++) {
+      final INodeWriteTrx writer = session.beginNodeWriteTrx();
+      // Node key of the i-th child of the root element.
+      final long key = i + 2;
+      futures.add(pool.submit(new Callable<Void>() {
+        @Override
+        public Void call() throws SirixException {
+          for (int commit = 0; commit < COMMITS; commit++) {
+            writer.moveTo(key);
+            writer.lockSubtree();
+            writer.insertElementAsFirstChild(new QName("e" + commit));
+            writer.commit();
+          }
+          writer.close();
+          return null;
+        }
+      }));
+    }
+    for (final Future<Void> future : futures) {
+      future.get();
+    }
+    pool.shutdown();
+
+    // Commits of the write transactions share beacon updates and forces.
+    final GroupCommitStats stats = mDatabase.getGroupCommitStats();
+    assertEquals(RESOURCES * COMMITS, stats.getCommitCount());
+    assertTrue(stats.getBatchCount() < stats.getCommitCount());
+
+    TestHelper.closeEverything();
+    mDatabase = TestHelper.getDatabase(PATHS.PATH1.getFile());
+    final INodeReadTrx rtx =
+      mDatabase.getSession(new SessionConfiguration.Builder(SHARED).build())
+        .beginNodeReadTrx();
+    assertEquals(RESOURCES * COMMITS, rtx.getRevisionNumber());
+    for (int i = 0; i < RESOURCES; i++) {
+      assertTrue(rtx.moveTo(i + 2));
+      assertEquals(COMMITS, ((IStructNode) rtx.getNode()).getChildCount());
+    }
+    rtx.close();
+  }
+
+  @Test
+  public void testFailedBatch() throws SirixException {
+    final BeaconStorage storage = new BeaconStorage();
+    storage.mFail = true;
+    final GroupCommit groupCommit =
+      new GroupCommit(0, TimeUnit.MILLISECONDS, RESOURCES);
+    groupCommit.submit(storage, 1);
+    try {
+      groupCommit.await();
+      fail("The beacon update must fail!");
+    } catch (final SirixIOException e) {
+      assertEquals(1, storage.mWriters);
+    }
+
+    // Further commits are based on the failed one and fail without a beacon
+    // update.
+    groupCommit.submit(storage, 2);
+    try {
+      groupCommit.await();
+      fail("The storage must be poisoned!");
+    } catch (final SirixIOException e) {
+      assertEquals(1, storage.mWriters);
+    }
+
+    // Reopening the session releases the storage.
+    groupCommit.release(storage);
+    groupCommit.submit(storage, 3);
+    try {
+      groupCommit.await();
+      fail("The beacon update must fail!");
+    } catch (final SirixIOException e) {
+      assertEquals(2, storage.mWriters);
+    }
+  }
+
+  @Test
+  public void testBeaconWriter() throws SirixException {
+    final BeaconStorage storage = new BeaconStorage();
+    final GroupCommit groupCommit =
+      new GroupCommit(0, TimeUnit.MILLISECONDS, RESOURCES);
+    for (int i = 0; i < COMMITS; i++) {
+      groupCommit.submit(storage, i);
+      groupCommit.await();
+    }
+
+    // All batches share a single writer.
+    assertEquals(1, storage.mWriters);
+    assertEquals(COMMITS, storage.mBeacons.size());
+    assertFalse(storage.mBeacons.get(0).mClosed);
+
+    // The writer is closed once the session releases the storage.
+    groupCommit.release(storage);
+    assertTrue(storage.mBeacons.get(0).mClosed);
+    groupCommit.submit(storage, COMMITS);
+    groupCommit.await();
+    assertEquals(2, storage.mWriters);
+
+    // Writers, which are used after the group commit is closed, are closed
+    // after each batch.
+    groupCommit.close();
+    assertTrue(storage.mBeacons.get(COMMITS).mClosed);
+    groupCommit.submit(storage, COMMITS + 1);
+    groupCommit.await();
+    assertEquals(3, storage.mWriters);
+    assertTrue(storage.mBeacons.get(COMMITS + 1).mClosed);
+  }
+
+  @Test
+  public void testWithoutGroupCommit() throws Exception {
+    commit();
+    assertEquals(new GroupCommitStats(0, 0, 0, 0, 0), mDatabase
+      .getGroupCommitStats());
+    verify();
+  }
+
+  /**
+   * Commit each resource {@link #COMMITS} times concurrently.
+   * 
+   * @throws Exception
+   *           if any commit fails
+   */
+  private void commit() throws Exception {
+    final ExecutorService pool = Executors.newFixedThreadPool(RESOURCES);
+    final List<Future<Void>> futures = new ArrayList<>();
+    for (int i = 0; i < RESOURCES; i++) {
+      final ISession session =
+        mDatabase.getSession(new SessionConfiguration.Builder("group" + i)
+          .build());
+      futures.add(pool.submit(new Callable<Void>() {
+        @Override
+        public Void call() throws SirixException {
+          final INodeWriteTrx wtx = session.beginNodeWriteTrx();
+          wtx.insertElementAsFirstChild(new QName("root"));
+          for (int commit = 0; commit < COMMITS; commit++) {
+            wtx.insertElementAsFirstChild(new QName("e" + commit));
+            wtx.moveToParent();
+            wtx.commit();
+          }
+          wtx.close();
+          return null;
+        }
+      }));
+    }
+    for (final Future<Void> future : futures) {
+      future.get();
+    }
+    pool.shutdown();
+  }
+
+  /**
+   * Verify the last revision of each resource.
+   * 
+   * @throws SirixException
+   *           if anything went wrong
+   */
+  private void verify() throws SirixException {
+    for (int i = 0; i < RESOURCES; i++) {
+      final ISession session =
+        mDatabase.getSession(new SessionConfiguration.Builder("group" + i)
+          .build());
+      final INodeReadTrx rtx = session.beginNodeReadTrx();
+      assertEquals(COMMITS - 1, rtx.getRevisionNumber());
+      assertTrue(rtx.moveTo(1));
+      assertTrue(rtx.moveToFirstChild());
+      assertEquals(new QName("e" + (COMMITS - 1)), rtx
+        .getQNameOfCurrentNode());
+      rtx.close();
+      session.close();
+    }
+  }
+
+  /** Storage, which records the beacon updates of its writers. */
+  private static final class BeaconStorage implements IStorage {
+
+    /** Determines if writers can't be opened. */
+    private boolean mFail;
+
+    /** Number of requested writers. */
+    private int mWriters;
+
+    /** Writers of the beacon updates in order. */
+    private final List<BeaconWriter> mBeacons = new ArrayList<>();
+
+    @Override
+    public IWriter getWriter() throws SirixIOException {
+      mWriters++;
+      if (mFail) {
+        throw new SirixIOException("Storage is not writable!");
+      }
+      return new BeaconWriter(this);
+    }
+
+    @Override
+    public IReader getReader() throws SirixIOException {
+      throw new SirixIOException("Storage is not readable!");
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public boolean exists() {
+      return true;
+    }
+
+    @Override
+    public IByteHandler getByteHandler() {
+      return null;
+    }
+  }
+
+  /** Writer, which only updates the beacon. */
+  private static final class BeaconWriter implements IWriter {
+
+    /** Storage of the writer. */
+    private final BeaconStorage mStorage;
+
+    /** Determines if the writer is closed. */
+    private boolean mClosed;
+
+    /**
+     * Constructor.
+     * 
+     * @param pStorage
+     *          storage of the writer
+     */
+    private BeaconWriter(final BeaconStorage pStorage) {
+      mStorage = pStorage;
+    }
+
+    @Override
+    public void writeBeacon(final long pKey) {
+      assertFalse(mClosed);
+      mStorage.mBeacons.add(this);
+    }
+
+    @Override
+    public void close() {
+      mClosed = true;
+    }
+
+    @Override
+    public long write(final PageReference pPageReference) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public long write(final PageReference pPageReference,
+      final byte[] pSerializedPage) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void writeFirstReference(final PageReference pPageReference) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void flush() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public PageReference readFirstReference() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public IPage read(final long pKey) {
+      throw new UnsupportedOperationException();
+    }
+  }
+}
@@ -51,6 +51,7 @@ public class HashTest {
 
   private final static String NAME1 = "a";
   private final static String NAME2 = "b";
+  private final static String RESOURCE = "hashed";
 
   @Before
   public void setUp() throws SirixException {
@@ -94,6 +95,72 @@ public class HashTest {
       testSetter(wtx);
   }
 
+  @Test
+  public void testRollingDeferred() throws SirixException {
+      final INodeWriteTrx eager = createWtx(PATHS.PATH1, EHashFunction.MURMUR3, false);
+      final INodeWriteTrx deferred = createWtx(PATHS.PATH2, EHashFunction.MURMUR3, true);
+      modify(eager);
+      modify(deferred);
+      eager.commit();
+      deferred.commit();
+      assertEquals(eager.getMaxNodeKey(), deferred.getMaxNodeKey());
+      for (long key = 0; key <= eager.getMaxNodeKey(); key++) {
+        assertEquals(eager.moveTo(key), deferred.moveTo(key));
+        assertEquals(eager.getNode().getHash(), deferred.getNode().getHash());
+        if (eager.getNode() instanceof IStructNode) {
+          assertEquals(((IStructNode)eager.getNode()).getDescendantCount(),
+            ((IStructNode)deferred.getNode()).getDescendantCount());
+        }
+      }
+  }
+
+  @Test
+  public void testHashFunction() throws SirixException {
+      final INodeWriteTrx md5 = createWtx(PATHS.PATH1, EHashFunction.MD5, false);
+      final INodeWriteTrx murmur = createWtx(PATHS.PATH2, EHashFunction.MURMUR3, false);
+      modify(md5);
+      modify(murmur);
+      md5.moveTo(EFixed.DOCUMENT_NODE_KEY.getStandardProperty());
+      md5.moveToFirstChild();
+      murmur.moveTo(EFixed.DOCUMENT_NODE_KEY.getStandardProperty());
+      murmur.moveToFirstChild();
+      assertFalse(md5.getNode().getHash() == murmur.getNode().getHash());
+      assertEquals(EHashFunction.MD5,
+        md5.getSession().getResourceConfig().mHashFunction);
+  }
+
+  /**
+   * Inserts, renames, moves and removes nodes.
+   * 
+   * @param wtx
+   * @throws SirixException
+   */
+  @Ignore
+  private void modify(final INodeWriteTrx wtx) throws SirixException {
+      wtx.insertElementAsFirstChild(new QName(NAME1));
+      final long rootKey = wtx.getNode().getNodeKey();
+      wtx.insertElementAsFirstChild(new QName(NAME2));
+      wtx.insertAttribute(new QName(NAME1), NAME2);
+      wtx.moveTo(wtx.getNode().getParentKey());
+      final long movedKey = wtx.getNode().getNodeKey();
+      wtx.insertTextAsFirstChild(NAME1);
+      wtx.insertElementAsRightSibling(new QName(NAME1));
+      wtx.insertElementAsFirstChild(new QName(NAME2));
+      wtx.setQName(new QName(NAME1));
+      wtx.moveTo(rootKey);
+      wtx.insertElementAsFirstChild(new QName(NAME2));
+      final long removedKey = wtx.getNode().getNodeKey();
+      wtx.insertElementAsFirstChild(new QName(NAME1));
+      wtx.moveTo(rootKey);
+      wtx.insertTextAsFirstChild(NAME2);
+      wtx.moveToParent();
+      wtx.moveSubtreeToFirstChild(movedKey);
+      wtx.moveTo(removedKey);
+      wtx.remove();
+      wtx.moveTo(rootKey);
+      wtx.insertElementAsFirstChild(new QName(NAME1));
+  }
+
   /**
    * Inserting nodes and removing them.
    * 
@@ -238,6 +305,17 @@ public class HashTest {
       return wTrx;
   }
 
+  private INodeWriteTrx createWtx(final PATHS path, final EHashFunction function,
+    final boolean deferHashes) throws SirixException {
+      final IDatabase database = TestHelper.getDatabase(path.getFile());
+      database.createResource(new ResourceConfiguration.Builder(RESOURCE, path.getConfig())
+          .setHashFunction(function).build());
+      final ISession session =
+          database.getSession(new SessionConfiguration.Builder(RESOURCE).deferHashes(
+            deferHashes).build());
+      return session.beginNodeWriteTrx();
+  }
+
   @After
   public void tearDown() throws SirixException {
       TestHelper.closeEverything();
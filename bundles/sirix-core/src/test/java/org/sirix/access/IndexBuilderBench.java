@@ -0,0 +1,138 @@
+/**
+ * Copyright (c) 2011, University of Konstanz, Distributed Systems Group
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the University of Konstanz nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sirix.access;
+
+import java.util.EnumSet;
+
+import javax.xml.namespace.QName;
+
+import org.perfidix.annotation.AfterBenchClass;
+import org.perfidix.annotation.BeforeBenchClass;
+import org.perfidix.annotation.Bench;
+import org.sirix.TestHelper;
+import org.sirix.TestHelper.PATHS;
+import org.sirix.access.conf.ResourceConfiguration;
+import org.sirix.access.conf.ResourceConfiguration.EIndexes;
+import org.sirix.access.conf.SessionConfiguration;
+import org.sirix.api.IDatabase;
+import org.sirix.api.INodeWriteTrx;
+import org.sirix.api.ISession;
+import org.sirix.exception.SirixException;
+
+/**
+ * Benchmarks building the path summary and the value index of a resource in
+ * bulk with one and with several scanning threads against maintaining them
+ * incrementally while the resource is shredded.
+ * 
+ * @author Johannes Lichtenberger, University of Konstanz
+ * 
+ */
+public class IndexBuilderBench {
+
+  /** Number of elements. */
+  private static final int ELEMENTS = 50000;
+
+  /** Number of threads which scan the resource concurrently. */
+  private static final int THREADS = 4;
+
+  /** Indexes to build. */
+  private static final EnumSet<EIndexes> INDEXES = EnumSet.of(EIndexes.PATH,
+    EIndexes.VALUE);
+
+  /** Database. */
+  private static IDatabase mDatabase;
+
+  /** Session on the resource, whose indexes are rebuilt. */
+  private static ISession mSession;
+
+  /** Number of resources created incrementally so far. */
+  private static int mResources;
+
+  @BeforeBenchClass
+  public static void setUp() throws SirixException {
+    TestHelper.deleteEverything();
+    mDatabase = TestHelper.getDatabase(PATHS.PATH1.getFile());
+    mSession = create("bulk");
+  }
+
+  @AfterBenchClass
+  public static void tearDown() throws SirixException {
+    mSession.close();
+    TestHelper.closeEverything();
+    TestHelper.deleteEverything();
+  }
+
+  @Bench
+  public void benchIncremental() throws SirixException {
+    create("incremental" + mResources++).close();
+  }
+
+  @Bench
+  public void benchBulkSequential() throws SirixException {
+    IndexBuilder.invoke(new IndexBuilder.Builder(mSession).setThreads(1));
+  }
+
+  @Bench
+  public void benchBulkConcurrent() throws SirixException {
+    IndexBuilder.invoke(new IndexBuilder.Builder(mSession)
+      .setThreads(THREADS));
+  }
+
+  /**
+   * Create an indexed resource and shred a flat document into it.
+   * 
+   * @param pResource
+   *          name of the resource
+   * @return a session on the resource
+   * @throws SirixException
+   *           if anything fails
+   */
+  private static ISession create(final String pResource)
+    throws SirixException {
+    mDatabase.createResource(new ResourceConfiguration.Builder(pResource,
+      PATHS.PATH1.getConfig()).setIndexes(INDEXES).build());
+    final ISession session =
+      mDatabase.getSession(new SessionConfiguration.Builder(pResource).build());
+    final INodeWriteTrx wtx = session.beginNodeWriteTrx();
+    wtx.insertElementAsFirstChild(new QName("root"));
+    for (int i = 0; i < ELEMENTS; i++) {
+      if (i == 0) {
+        wtx.insertElementAsFirstChild(new QName("e"));
+      } else {
+        wtx.insertElementAsRightSibling(new QName("e"));
+      }
+      wtx.insertAttribute(new QName("id"), Integer.toString(i));
+      wtx.moveToParent();
+      wtx.insertTextAsFirstChild("value" + i % 1000);
+      wtx.moveToParent();
+    }
+    wtx.commit();
+    wtx.close();
+    return session;
+  }
+}
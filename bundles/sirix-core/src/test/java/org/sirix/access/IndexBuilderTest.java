@@ -0,0 +1,408 @@
+/**
+ * Copyright (c) 2011, University of Konstanz, Distributed Systems Group
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the University of Konstanz nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sirix.access;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import javax.xml.namespace.QName;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sirix.TestHelper;
+import org.sirix.TestHelper.PATHS;
+import org.sirix.access.conf.ResourceConfiguration;
+import org.sirix.access.conf.ResourceConfiguration.EIndexes;
+import org.sirix.access.conf.SessionConfiguration;
+import org.sirix.api.IDatabase;
+import org.sirix.api.INodeReadTrx;
+import org.sirix.api.INodeWriteTrx;
+import org.sirix.api.IPageReadTrx;
+import org.sirix.api.ISession;
+import org.sirix.axis.DescendantAxis;
+import org.sirix.exception.SirixException;
+import org.sirix.index.bulk.EIndexBuildPhase;
+import org.sirix.index.bulk.IIndexBuildObserver;
+import org.sirix.index.cas.CASIndex;
+import org.sirix.index.path.PathIndex;
+import org.sirix.index.value.BPlusTree;
+import org.sirix.node.EKind;
+import org.sirix.node.TextReferences;
+import org.sirix.node.TextValue;
+import org.sirix.node.interfaces.INameNode;
+import org.sirix.service.xml.xpath.types.Type;
+
+/**
+ * Test the {@link IndexBuilder} by comparing the bulk built indexes with
+ * indexes, which are maintained incrementally.
+ * 
+ * @author Johannes Lichtenberger, University of Konstanz
+ * 
+ */
+public class IndexBuilderTest {
+
+  /** Name of the resource, whose indexes are maintained incrementally. */
+  private static final String INDEXED = "incremental";
+
+  /** Name of the resource, whose indexes are built in bulk. */
+  private static final String BULK = "bulk";
+
+  /** The database. */
+  private IDatabase mDatabase;
+
+  @Before
+  public void setUp() throws SirixException {
+    TestHelper.deleteEverything();
+    mDatabase = TestHelper.getDatabase(PATHS.PATH1.getFile());
+    mDatabase.createResource(new ResourceConfiguration.Builder(INDEXED,
+      PATHS.PATH1.getConfig()).setIndexes(
+      EnumSet.of(EIndexes.PATH, EIndexes.VALUE, EIndexes.PATH_CLASS))
+      .addCASIndex("//item/price", Type.DOUBLE).build());
+    mDatabase.createResource(new ResourceConfiguration.Builder(BULK,
+      PATHS.PATH1.getConfig()).setIndexes(EnumSet.of(EIndexes.VALUE))
+      .build());
+    for (final String resource : new String[] {
+      INDEXED, BULK
+    }) {
+      final ISession session = open(resource);
+      final INodeWriteTrx wtx = session.beginNodeWriteTrx();
+      build(wtx, 0, 300);
+      wtx.commit();
+      wtx.close();
+      session.close();
+    }
+  }
+
+  @After
+  public void tearDown() throws SirixException {
+    TestHelper.closeEverything();
+  }
+
+  @Test
+  public void testOffline() throws SirixException {
+    final Observer observer = new Observer();
+    final int revision =
+      IndexBuilder.invoke(new IndexBuilder.Builder(mDatabase, BULK)
+        .setIndexes(
+          EnumSet.of(EIndexes.PATH, EIndexes.VALUE, EIndexes.PATH_CLASS))
+        .addCASIndex("//item/price", Type.DOUBLE).setThreads(3).setRunSize(16)
+        .addObserver(observer));
+    assertEquals(1, revision);
+    assertEquals(revision, observer.mRevision);
+    for (final EIndexBuildPhase phase : EIndexBuildPhase.values()) {
+      assertTrue(phase.toString(), observer.mDone.containsKey(phase));
+      assertEquals(phase.toString(), observer.mTotal.get(phase), observer.mDone
+        .get(phase));
+    }
+
+    final ISession indexed = open(INDEXED);
+    final ISession bulk = open(BULK);
+    assertTrue(bulk.getResourceConfig().mIndexes.contains(EIndexes.PATH_CLASS));
+    assertEquals(1, bulk.getResourceConfig().mCASIndexes.size());
+    assertEquals(texts(bulk, 1), values(bulk, 1));
+    assertEquals(values(indexed, 0), values(bulk, 1));
+    assertEquals(paths(indexed, 0), paths(bulk, 1));
+    assertEquals(prices(indexed, 0), prices(bulk, 1));
+
+    // The resource is opened by a session.
+    try {
+      IndexBuilder.invoke(new IndexBuilder.Builder(mDatabase, BULK)
+        .setIndexes(EnumSet.of(EIndexes.VALUE)));
+      fail();
+    } catch (final IllegalStateException e) {
+    }
+    indexed.close();
+    bulk.close();
+  }
+
+  @Test
+  public void testOnline() throws SirixException {
+    final ISession session = open(INDEXED);
+    INodeWriteTrx wtx = session.beginNodeWriteTrx();
+    wtx.moveToDocumentRoot();
+    wtx.moveToFirstChild();
+    wtx.moveToFirstChild();
+    wtx.remove();
+    wtx.moveToDocumentRoot();
+    wtx.moveToFirstChild();
+    wtx.moveToFirstChild();
+    wtx.moveToFirstChild();
+    wtx.moveToFirstChild();
+    wtx.setValue("0.5");
+    wtx.commit();
+    wtx.close();
+    final Map<String, String> values = values(session, 1);
+    final Map<Long, String> paths = paths(session, 1);
+    final String prices = prices(session, 1);
+
+    assertEquals(2, IndexBuilder.invoke(new IndexBuilder.Builder(session)
+      .setThreads(2).setRunSize(8)));
+    // The removed and former values are not indexed anymore.
+    assertEquals(texts(session, 1), values(session, 2));
+    assertEquals(paths, paths(session, 2));
+    assertEquals(prices, prices(session, 2));
+
+    // The former revision is not affected.
+    assertEquals(values, values(session, 1));
+    assertEquals(paths, paths(session, 1));
+
+    // The rebuilt indexes are maintained incrementally.
+    wtx = session.beginNodeWriteTrx();
+    build(wtx, 300, 20);
+    wtx.commit();
+    wtx.close();
+    assertEquals(4, IndexBuilder.invoke(new IndexBuilder.Builder(session)
+      .setIndexes(EnumSet.of(EIndexes.VALUE)).buildCASIndexes(true)));
+    assertEquals(texts(session, 3), values(session, 3));
+    assertEquals(values(session, 3), values(session, 4));
+    assertEquals(prices(session, 3), prices(session, 4));
+    assertEquals(paths(session, 3), paths(session, 4));
+    session.close();
+  }
+
+  /**
+   * Open a session.
+   * 
+   * @param pResource
+   *          name of the resource
+   * @return the session
+   */
+  private ISession open(final String pResource) throws SirixException {
+    return mDatabase.getSession(new SessionConfiguration.Builder(pResource)
+      .build());
+  }
+
+  /**
+   * Get the entries of the value index.
+   * 
+   * @param pSession
+   *          the session
+   * @param pRevision
+   *          the revision
+   * @return the values and the keys of their nodes in ascending order
+   */
+  private static Map<String, String> values(final ISession pSession,
+    final int pRevision) throws SirixException {
+    final Map<String, String> values = new TreeMap<>();
+    final IPageReadTrx pageRtx = pSession.beginPageReadTrx(pRevision);
+    for (final Iterator<Map.Entry<TextValue, TextReferences>> entries =
+      BPlusTree.getInstance(pageRtx).iterator(); entries.hasNext();) {
+      final Map.Entry<TextValue, TextReferences> entry = entries.next();
+      values.put(new String(entry.getKey().getValue()), Arrays.toString(entry
+        .getValue().getPostings().toArray()));
+    }
+    pageRtx.close();
+    return values;
+  }
+
+  /**
+   * Get the values of the text nodes of a document.
+   * 
+   * @param pSession
+   *          the session
+   * @param pRevision
+   *          the revision
+   * @return the values and the keys of their nodes in ascending order
+   */
+  private static Map<String, String> texts(final ISession pSession,
+    final int pRevision) throws SirixException {
+    final Map<String, Set<Long>> texts = new TreeMap<>();
+    final INodeReadTrx rtx = pSession.beginNodeReadTrx(pRevision);
+    for (final DescendantAxis axis = new DescendantAxis(rtx); axis.hasNext();) {
+      axis.next();
+      if (rtx.getNode().getKind() == EKind.TEXT) {
+        final String value = rtx.getValueOfCurrentNode();
+        if (!texts.containsKey(value)) {
+          texts.put(value, new TreeSet<Long>());
+        }
+        texts.get(value).add(rtx.getNode().getNodeKey());
+      }
+    }
+    rtx.close();
+    final Map<String, String> values = new TreeMap<>();
+    for (final Map.Entry<String, Set<Long>> entry : texts.entrySet()) {
+      values.put(entry.getKey(), entry.getValue().toString());
+    }
+    return values;
+  }
+
+  /**
+   * Get the entries of the path class index, which don't depend on the keys
+   * of the path nodes.
+   * 
+   * @param pSession
+   *          the session
+   * @param pRevision
+   *          the revision
+   * @return the keys of the nodes on the path of each name node
+   */
+  private static Map<Long, String> paths(final ISession pSession,
+    final int pRevision) throws SirixException {
+    final Map<Long, String> paths = new TreeMap<>();
+    final INodeReadTrx rtx = pSession.beginNodeReadTrx(pRevision);
+    final PathIndex index = pSession.openPathIndex(pRevision);
+    for (final DescendantAxis axis = new DescendantAxis(rtx); axis.hasNext();) {
+      axis.next();
+      if (rtx.getNode().getKind() == EKind.ELEMENT) {
+        final long key = rtx.getNode().getNodeKey();
+        paths.put(key, Arrays.toString(index.get(
+          ((INameNode)rtx.getNode()).getPathNodeKey()).toArray()));
+        for (int i = 0; rtx.moveToAttribute(i); i++) {
+          paths.put(rtx.getNode().getNodeKey(), Arrays.toString(index.get(
+            ((INameNode)rtx.getNode()).getPathNodeKey()).toArray()));
+          rtx.moveTo(key);
+        }
+        for (int i = 0; rtx.moveToNamespace(i); i++) {
+          paths.put(rtx.getNode().getNodeKey(), Arrays.toString(index.get(
+            ((INameNode)rtx.getNode()).getPathNodeKey()).toArray()));
+          rtx.moveTo(key);
+        }
+      }
+    }
+    index.close();
+    rtx.close();
+    return paths;
+  }
+
+  /**
+   * Get the entries of the CAS index on the prices.
+   * 
+   * @param pSession
+   *          the session
+   * @param pRevision
+   *          the revision
+   * @return keys of the indexed text nodes in ascending order
+   */
+  private static String prices(final ISession pSession, final int pRevision)
+    throws SirixException {
+    final Set<Long> pathNodeKeys = new TreeSet<>();
+    final INodeReadTrx rtx = pSession.beginNodeReadTrx(pRevision);
+    for (final DescendantAxis axis = new DescendantAxis(rtx); axis.hasNext();) {
+      axis.next();
+      if (rtx.getNode().getKind() == EKind.ELEMENT
+        && rtx.getQNameOfCurrentNode().getLocalPart().equals("price")) {
+        pathNodeKeys.add(((INameNode)rtx.getNode()).getPathNodeKey());
+      }
+    }
+    rtx.close();
+    final CASIndex index = pSession.openCASIndex(pRevision);
+    final String prices =
+      Arrays.toString(index.range(pathNodeKeys, Type.DOUBLE, null, true, null,
+        true).toArray());
+    index.close();
+    assertTrue(prices.length() > 2);
+    return prices;
+  }
+
+  /**
+   * Build a document with items, which have an id, a price and a name. Some
+   * prices are not below an item.
+   * 
+   * @param pWtx
+   *          {@link INodeWriteTrx} to build with
+   * @param pFrom
+   *          first item id
+   * @param pCount
+   *          number of items
+   */
+  private static void build(final INodeWriteTrx pWtx, final int pFrom,
+    final int pCount) throws SirixException {
+    pWtx.moveToDocumentRoot();
+    if (pWtx.moveToFirstChild()) {
+      pWtx.moveToDocumentRoot();
+    } else {
+      pWtx.insertElementAsFirstChild(new QName("r"));
+      pWtx.insertNamespace(new QName("urn:test", "", "t"));
+      pWtx.moveToParent();
+    }
+    pWtx.moveToDocumentRoot();
+    pWtx.moveToFirstChild();
+    final long root = pWtx.getNode().getNodeKey();
+    for (int i = pFrom; i < pFrom + pCount; i++) {
+      pWtx.moveTo(root);
+      pWtx.insertElementAsFirstChild(new QName("item"));
+      pWtx.insertAttribute(new QName("id"), String.valueOf(i));
+      pWtx.moveToParent();
+      pWtx.insertElementAsFirstChild(new QName("price"));
+      pWtx.insertTextAsFirstChild(i % 10 == 9 ? "n/a" : String
+        .valueOf(i * 1.5));
+      pWtx.moveToParent();
+      pWtx.insertElementAsRightSibling(new QName("urn:test", "name", "t"));
+      pWtx.insertTextAsFirstChild("name" + i % 7);
+      if (i % 7 == 0) {
+        pWtx.moveTo(root);
+        pWtx.insertElementAsFirstChild(new QName("other"));
+        pWtx.insertElementAsFirstChild(new QName("price"));
+        pWtx.insertTextAsFirstChild(String.valueOf(i));
+      }
+    }
+  }
+
+  /**
+   * Records the progress.
+   */
+  private static final class Observer implements IIndexBuildObserver {
+
+    /** Last reported progress. */
+    private final Map<EIndexBuildPhase, Long> mDone = new EnumMap<>(
+      EIndexBuildPhase.class);
+
+    /** Reported totals. */
+    private final Map<EIndexBuildPhase, Long> mTotal = new EnumMap<>(
+      EIndexBuildPhase.class);
+
+    /** The built revision. */
+    private int mRevision = -1;
+
+    @Override
+    public void progress(final EIndexBuildPhase pPhase, final long pDone,
+      final long pTotal) {
+      final Long done = mDone.get(pPhase);
+      assertTrue(done == null || done <= pDone);
+      assertTrue(pDone <= pTotal);
+      mDone.put(pPhase, pDone);
+      mTotal.put(pPhase, pTotal);
+    }
+
+    @Override
+    public void buildDone(final int pRevision) {
+      mRevision = pRevision;
+    }
+  }
+}
@@ -27,195 +27,99 @@
 
 package org.sirix.access;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.sirix.exception.SirixThreadedException;
+
+/**
+ * Test the {@link LockManager}. The nodes form the tree
+ * {@code 0(1(4, 5, 6), 2(7, 8, 9), 3(10, 11, 12))}.
+ * 
+ * @author Johannes Lichtenberger, University of Konstanz
+ * 
+ */
 public class LockManagerTest {
 
-  // private static Long[] nodes;
-  //
-  // private Holder holder;
-  //
-  // @After
-  // public void tearDown() throws AbsTTException {
-  // holder.close();
-  // TestHelper.closeEverything();
-  // }
-  //
-  // @Before
-  // public void setUp() throws AbsTTException {
-  // TestHelper.deleteEverything();
-  //
-  // holder = Holder.generateWtx();
-  // final IWriteTransaction wtx = holder.getWtx();
-  //
-  // nodes = new Long[13];
-  // nodes[0] = Long.valueOf("0");
-  //
-  // wtx.insertElementAsFirstChild(new QName("1"));
-  // nodes[1] = wtx.getItem().getKey();
-  //
-  // wtx.insertElementAsRightSibling(new QName("2"));
-  // nodes[2] = wtx.getItem().getKey();
-  // wtx.insertElementAsRightSibling(new QName("3"));
-  // nodes[3] = wtx.getItem().getKey();
-  // wtx.moveToLeftSibling();
-  // wtx.moveToLeftSibling();
-  //
-  // wtx.insertElementAsFirstChild(new QName("4"));
-  // nodes[4] = wtx.getItem().getKey();
-  //
-  // wtx.insertElementAsRightSibling(new QName("5"));
-  // nodes[5] = wtx.getItem().getKey();
-  // wtx.insertElementAsRightSibling(new QName("6"));
-  // nodes[6] = wtx.getItem().getKey();
-  // wtx.moveToParent();
-  // wtx.moveToRightSibling();
-  //
-  // wtx.insertElementAsFirstChild(new QName("7"));
-  // nodes[7] = wtx.getItem().getKey();
-  // wtx.insertElementAsRightSibling(new QName("8"));
-  // nodes[8] = wtx.getItem().getKey();
-  // wtx.insertElementAsRightSibling(new QName("9"));
-  // nodes[9] = wtx.getItem().getKey();
-  // wtx.moveToParent();
-  // wtx.moveToRightSibling();
-  //
-  // wtx.insertElementAsFirstChild(new QName("10"));
-  // nodes[10] = wtx.getItem().getKey();
-  // wtx.insertElementAsRightSibling(new QName("11"));
-  // nodes[11] = wtx.getItem().getKey();
-  // wtx.insertElementAsRightSibling(new QName("12"));
-  // nodes[12] = wtx.getItem().getKey();
-  // wtx.commit();
-  // wtx.close();
-  // }
-  //
-  // @Ignore
-  // @Test
-  // /**
-  // * Simply locking an available subtree without interference
-  // */
-  // public void basicLockingTest() throws AbsTTException {
-  // final IWriteTransaction wtx = holder.getWtx();
-  // LockManager lock = LockManager.getLockManager();
-  // try {
-  // lock.getWritePermission(wtx.getItem().getKey(), (SynchWriteTransaction)wtx);
-  // } catch (Exception e) {
-  // TestCase.fail();
-  // }
-  // wtx.close();
-  // }
-  //
-  // @Ignore
-  // @Test
-  // /**
-  // * Locking an available subtree with other wtx holding locks on different subtrees
-  // */
-  // public void permitLockingInFreeSubtreeTest() throws AbsTTException {
-  // final IWriteTransaction wtx = holder.getWtx();
-  // final IWriteTransaction wtx2 = holder.getSession().beginWriteTransaction();
-  //
-  // LockManager lock = LockManager.getLockManager();
-  // try {
-  // lock.getWritePermission(nodes[4], (SynchWriteTransaction)wtx);
-  // lock.getWritePermission(nodes[7], (SynchWriteTransaction)wtx2);
-  // } catch (Exception e) {
-  // TestCase.fail();
-  // }
-  // }
-  //
-  // @Ignore
-  // @Test
-  // /**
-  // * Trying to lock a subtree blocked by a foreign transaction root node has to fail
-  // */
-  // public void denyLockingOnForeignTrnTest() throws AbsTTException {
-  // final IWriteTransaction wtx = holder.getWtx();
-  // final IWriteTransaction wtx2 = holder.getSession().beginWriteTransaction();
-  //
-  // LockManager lock = LockManager.getLockManager();
-  // lock.getWritePermission(wtx.getItem().getKey(), (SynchWriteTransaction)wtx);
-  // try {
-  // lock.getWritePermission(wtx2.getItem().getKey(), (SynchWriteTransaction)wtx2);
-  // TestCase.fail();
-  // } catch (Exception e) {
-  // TestCase.assertTrue(true); // has to fail
-  // }
-  // }
-  //
-  // @Ignore
-  // @Test
-  // /**
-  // * Trying to lock a subtree which is part of a blocked subtree (has parent which is trn
-  // * of a foreign transaction) has to fail
-  // */
-  // public void denyLockingUnderForeignTrnTest() throws AbsTTException {
-  // final IWriteTransaction wtx = holder.getWtx();
-  // final IWriteTransaction wtx2 = holder.getSession().beginWriteTransaction();
-  // ;
-  // LockManager lock = LockManager.getLockManager();
-  // lock.getWritePermission(nodes[1], (SynchWriteTransaction)wtx);
-  // try {
-  // lock.getWritePermission(nodes[4], (SynchWriteTransaction)wtx2);
-  // TestCase.fail();
-  // } catch (Exception e) {
-  // TestCase.assertTrue(true); // has to fail
-  // }
-  // }
-  //
-  // @Ignore
-  // @Test
-  // /**
-  // * Trying to lock a subtree which would contain a blocked subtree (has ancestor which is trn
-  // * of a foreign transaction) has to fail
-  // */
-  // public void denyLockingAboveForeignTrnTest() throws AbsTTException {
-  // final IWriteTransaction wtx = holder.getWtx();
-  // final IWriteTransaction wtx2 = holder.getSession().beginWriteTransaction();
-  // LockManager lock = LockManager.getLockManager();
-  // lock.getWritePermission(nodes[4], (SynchWriteTransaction)wtx);
-  // try {
-  // lock.getWritePermission(nodes[1], (SynchWriteTransaction)wtx2);
-  // TestCase.fail();
-  // } catch (Exception e) {
-  // TestCase.assertTrue(true); // has to fail
-  // }
-  // }
-  //
-  // @Ignore
-  // @Test
-  // /**
-  // * Locking a subtree which would contain one or more subtrees previously locked by the same
-  // * transaction is permitted
-  // */
-  // public void permitLockingAboveMultipleOwnTrnTest() throws AbsTTException {
-  // final IWriteTransaction wtx = holder.getWtx();
-  // LockManager lock = LockManager.getLockManager();
-  // lock.getWritePermission(nodes[4], (SynchWriteTransaction)wtx);
-  // lock.getWritePermission(nodes[7], (SynchWriteTransaction)wtx);
-  // lock.getWritePermission(nodes[10], (SynchWriteTransaction)wtx);
-  // try {
-  // lock.getWritePermission(nodes[0], (SynchWriteTransaction)wtx);
-  // } catch (Exception e) {
-  // TestCase.fail();
-  // }
-  // }
-  //
-  // @Ignore
-  // @Test
-  // /**
-  // * Locking a subtree which has been blocked and afterwards released by a foreign
-  // * transaction is possible
-  // */
-  // public void conquerReleasedSubtreeTest() throws AbsTTException {
-  // final IWriteTransaction wtx = holder.getWtx();
-  // final IWriteTransaction wtx2 = holder.getSession().beginWriteTransaction();
-  // LockManager lock = LockManager.getLockManager();
-  // lock.getWritePermission(nodes[1], (SynchWriteTransaction)wtx);
-  // lock.releaseWritePermission((SynchWriteTransaction)wtx);
-  // try {
-  // lock.getWritePermission(nodes[1], (SynchWriteTransaction)wtx2);
-  // } catch (Exception e) {
-  // TestCase.fail();
-  // }
-  // }
+  /** Ancestors of the nodes. */
+  private static final long[][] ANCESTORS = { {}, { 0 }, { 0 }, { 0 },
+    { 1, 0 }, { 1, 0 }, { 1, 0 }, { 2, 0 }, { 2, 0 }, { 2, 0 }, { 3, 0 },
+    { 3, 0 }, { 3, 0 } };
+
+  /** {@link LockManager} instance. */
+  private LockManager mLockManager;
+
+  @Before
+  public void setUp() {
+    mLockManager = new LockManager();
+  }
+
+  @Test
+  public void testDisjointSubtrees() throws SirixThreadedException {
+    lock(1, 4);
+    lock(2, 7);
+    lock(2, 10);
+    assertEquals(new HashSet<>(Arrays.asList(4L)), mLockManager.getRoots(1));
+    assertEquals(new HashSet<>(Arrays.asList(7L, 10L)),
+      mLockManager.getRoots(2));
+    assertEquals(new HashSet<>(Arrays.asList(0L, 2L, 3L)),
+      mLockManager.getAncestors(2));
+  }
+
+  @Test
+  public void testLockedSubtree() throws SirixThreadedException {
+    lock(1, 1);
+    assertDenied(2, 1);
+    assertDenied(2, 4);
+    assertDenied(2, 0);
+    lock(2, 2);
+  }
+
+  @Test
+  public void testIntentionLock() throws SirixThreadedException {
+    lock(1, 4);
+    assertDenied(2, 1);
+    assertDenied(2, 0);
+    lock(2, 5);
+  }
+
+  @Test
+  public void testOwnSubtrees() throws SirixThreadedException {
+    lock(1, 4);
+    lock(1, 7);
+    lock(1, 0);
+    lock(1, 10);
+    assertTrue(mLockManager.getRoots(1).contains(0L));
+    assertDenied(2, 12);
+  }
+
+  @Test
+  public void testUnlock() throws SirixThreadedException {
+    lock(1, 1);
+    lock(1, 7);
+    mLockManager.unlock(1);
+    assertTrue(mLockManager.getRoots(1).isEmpty());
+    lock(2, 0);
+    assertDenied(1, 4);
+  }
+
+  private void lock(final long pTrxID, final int pNodeKey)
+    throws SirixThreadedException {
+    mLockManager.lock(pTrxID, pNodeKey, ANCESTORS[pNodeKey]);
+  }
 
+  private void assertDenied(final long pTrxID, final int pNodeKey) {
+    try {
+      lock(pTrxID, pNodeKey);
+      fail();
+    } catch (final SirixThreadedException e) {
+      // Expected.
+    }
+  }
 }
@@ -0,0 +1,124 @@
+/**
+ * Copyright (c) 2011, University of Konstanz, Distributed Systems Group
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the University of Konstanz nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sirix.access;
+
+import static org.junit.Assert.assertEquals;
+
+import javax.xml.namespace.QName;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sirix.TestHelper;
+import org.sirix.TestHelper.PATHS;
+import org.sirix.access.conf.ResourceConfiguration;
+import org.sirix.access.conf.SessionConfiguration;
+import org.sirix.api.IAxis;
+import org.sirix.api.IDatabase;
+import org.sirix.api.INodeReadTrx;
+import org.sirix.api.INodeWriteTrx;
+import org.sirix.api.ISession;
+import org.sirix.axis.DescendantAxis;
+import org.sirix.exception.SirixException;
+
+/**
+ * Test commits, which serialize pages in parallel.
+ * 
+ * @author Johannes Lichtenberger, University of Konstanz
+ * 
+ */
+public class ParallelCommitTest {
+
+  /** Number of inserted elements per revision. */
+  private static final int ELEMENTS = 5000;
+
+  /** Database. */
+  private IDatabase mDatabase;
+
+  @Before
+  public void setUp() throws SirixException {
+    TestHelper.deleteEverything();
+    mDatabase = TestHelper.getDatabase(PATHS.PATH1.getFile());
+    mDatabase.createResource(new ResourceConfiguration.Builder(
+      TestHelper.RESOURCE, PATHS.PATH1.getConfig()).build());
+  }
+
+  @After
+  public void tearDown() throws SirixException {
+    TestHelper.closeEverything();
+  }
+
+  @Test
+  public void testParallelCommit() throws SirixException {
+    ISession session =
+      mDatabase.getSession(new SessionConfiguration.Builder(TestHelper.RESOURCE)
+        .setCommitThreads(4).build());
+    final INodeWriteTrx wtx = session.beginNodeWriteTrx();
+    wtx.insertElementAsFirstChild(new QName("root"));
+    insert(wtx);
+    wtx.commit();
+    wtx.moveTo(1);
+    insert(wtx);
+    wtx.commit();
+    wtx.close();
+    session.close();
+
+    // Read with a session which doesn't use a commit pool.
+    session =
+      mDatabase.getSession(new SessionConfiguration.Builder(TestHelper.RESOURCE)
+        .build());
+    final INodeReadTrx rtx = session.beginNodeReadTrx();
+    assertEquals(1, rtx.getRevisionNumber());
+    final IAxis axis = new DescendantAxis(rtx);
+    int count = 0;
+    while (axis.hasNext()) {
+      axis.next();
+      count++;
+    }
+    assertEquals(2 * ELEMENTS + 1, count);
+    rtx.moveTo(ELEMENTS + 1);
+    assertEquals(new QName("e" + (ELEMENTS - 1)), rtx.getQNameOfCurrentNode());
+    rtx.close();
+    session.close();
+  }
+
+  /**
+   * Insert {@link #ELEMENTS} elements below the current node.
+   * 
+   * @param pWtx
+   *          write transaction
+   * @throws SirixException
+   *           if inserting fails
+   */
+  private static void insert(final INodeWriteTrx pWtx) throws SirixException {
+    pWtx.insertElementAsFirstChild(new QName("e0"));
+    for (int i = 1; i < ELEMENTS; i++) {
+      pWtx.insertElementAsRightSibling(new QName("e" + i));
+    }
+  }
+}
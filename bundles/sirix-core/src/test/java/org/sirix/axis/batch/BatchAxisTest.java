@@ -0,0 +1,220 @@
+/**
+ * Copyright (c) 2011, University of Konstanz, Distributed Systems Group
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the University of Konstanz nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sirix.axis.batch;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sirix.Holder;
+import org.sirix.TestHelper;
+import org.sirix.api.IAxis;
+import org.sirix.api.IBatchAxis;
+import org.sirix.api.INodeReadTrx;
+import org.sirix.api.IPageReadTrx;
+import org.sirix.axis.AbsAxisTest;
+import org.sirix.axis.ChildAxis;
+import org.sirix.axis.DescendantAxis;
+import org.sirix.axis.EIncludeSelf;
+import org.sirix.axis.FilterAxis;
+import org.sirix.axis.NestedAxis;
+import org.sirix.axis.filter.NameFilter;
+import org.sirix.axis.filter.TextFilter;
+import org.sirix.axis.filter.ValueFilter;
+import org.sirix.exception.SirixException;
+import org.sirix.node.interfaces.INodeBase;
+import org.sirix.page.EPage;
+import org.sirix.service.xml.xpath.XPathAxis;
+
+/**
+ * Test the batch pipeline against the axis, which evaluate one node at a time.
+ * 
+ * @author Johannes Lichtenberger, University of Konstanz
+ * 
+ */
+public class BatchAxisTest {
+
+  private Holder holder;
+
+  @Before
+  public void setUp() throws SirixException {
+    TestHelper.deleteEverything();
+    TestHelper.createTestDocument();
+    holder = Holder.generateRtx();
+  }
+
+  @After
+  public void tearDown() throws SirixException {
+    holder.close();
+    TestHelper.closeEverything();
+  }
+
+  @Test
+  public void testChild() throws SirixException {
+    final INodeReadTrx rtx = holder.getRtx();
+
+    rtx.moveTo(1L);
+    AbsAxisTest.testIAxisConventions(new BatchAxisAdapter(new ChildBatchAxis(
+      rtx, null)), new long[] {
+      4L, 5L, 8L, 9L, 13L
+    });
+
+    rtx.moveTo(13L);
+    AbsAxisTest.testIAxisConventions(new BatchAxisAdapter(new ChildBatchAxis(
+      rtx, null)), new long[] {});
+  }
+
+  @Test
+  public void testDescendant() throws SirixException {
+    final INodeReadTrx rtx = holder.getRtx();
+    for (final long key : new long[] {
+      0L, 1L, 5L, 9L, 13L
+    }) {
+      for (final EIncludeSelf self : EIncludeSelf.values()) {
+        rtx.moveTo(key);
+        final long[] expected = keys(new DescendantAxis(rtx, self));
+        rtx.moveTo(key);
+        AbsAxisTest.testIAxisConventions(new BatchAxisAdapter(
+          new DescendantBatchAxis(rtx, null, self)), expected);
+        // Batches, which are smaller than the results of one context node.
+        rtx.moveTo(key);
+        assertArrayEquals(expected, keys(new DescendantBatchAxis(rtx, null,
+          self), 2));
+      }
+    }
+  }
+
+  @Test
+  public void testPipeline() throws SirixException {
+    final INodeReadTrx rtx = holder.getRtx();
+
+    // child::*/descendant-or-self::c
+    rtx.moveTo(1L);
+    final long[] expected =
+      keys(new NestedAxis(new ChildAxis(rtx), new FilterAxis(
+        new DescendantAxis(rtx, EIncludeSelf.YES), new NameFilter(rtx, "c"))));
+    assertArrayEquals(new long[] {
+      7L, 11L
+    }, expected);
+    final IBatchAxis pipeline =
+      new BatchFilterAxis(new DescendantBatchAxis(rtx, new AxisBatchAdapter(
+        new ChildAxis(rtx)), EIncludeSelf.YES), new NameFilter(rtx, "c"));
+    rtx.moveTo(1L);
+    AbsAxisTest.testIAxisConventions(new BatchAxisAdapter(pipeline), expected);
+    for (int capacity = 1; capacity < 4; capacity++) {
+      pipeline.reset(1L);
+      assertArrayEquals(expected, keys(pipeline, capacity));
+    }
+
+    // Batch filter followed by a filter, which moves the cursor.
+    rtx.moveTo(0L);
+    AbsAxisTest.testIAxisConventions(new BatchAxisAdapter(new BatchFilterAxis(
+      new DescendantBatchAxis(rtx, null, EIncludeSelf.NO), new TextFilter(rtx),
+      new ValueFilter(rtx, "bar"))), new long[] {
+      12L
+    });
+
+    // Reset to another context node.
+    final IBatchAxis children = new ChildBatchAxis(rtx, null);
+    children.reset(5L);
+    assertArrayEquals(new long[] {
+      6L, 7L
+    }, keys(children, 16));
+    children.reset(9L);
+    assertArrayEquals(new long[] {
+      11L, 12L
+    }, keys(children, 1));
+    assertFalse(children.nextBatch(new NodeBatch()));
+  }
+
+  @Test
+  public void testXPath() throws SirixException {
+    final INodeReadTrx rtx = holder.getRtx();
+    rtx.moveTo(0L);
+    assertArrayEquals(new long[] {
+      7L, 11L
+    }, keys(new XPathAxis(rtx, "/p:a/b/c")));
+    rtx.moveTo(0L);
+    assertArrayEquals(new long[] {
+      6L, 12L
+    }, keys(new XPathAxis(rtx, "//b/text()")));
+    rtx.moveTo(0L);
+    assertArrayEquals(new long[] {
+      9L
+    }, keys(new XPathAxis(rtx, "//b[c and text() = 'bar']")));
+    assertEquals(0L, rtx.getNode().getNodeKey());
+  }
+
+  @Test
+  public void testGetNodes() throws SirixException {
+    final IPageReadTrx pageRtx = holder.getRtx().getPageTransaction();
+    final long[] keys = {
+      12L, 3L, -2L, 0L, 100L, 7L, 7L
+    };
+    final INodeBase[] nodes = new INodeBase[keys.length];
+    pageRtx.getNodes(keys, keys.length, EPage.NODEPAGE, nodes);
+    for (int i = 0; i < keys.length; i++) {
+      final INodeBase expected =
+        keys[i] < 0 ? null : pageRtx.getNode(keys[i], EPage.NODEPAGE).orNull();
+      assertEquals(expected, nodes[i]);
+    }
+  }
+
+  private static long[] keys(final IAxis pAxis) {
+    final List<Long> keys = new ArrayList<>();
+    while (pAxis.hasNext()) {
+      keys.add(pAxis.next());
+    }
+    return toArray(keys);
+  }
+
+  private static long[] keys(final IBatchAxis pAxis, final int pCapacity) {
+    final List<Long> keys = new ArrayList<>();
+    final NodeBatch batch = new NodeBatch(pCapacity);
+    while (pAxis.nextBatch(batch)) {
+      for (int i = 0; i < batch.size(); i++) {
+        keys.add(batch.getKey(i));
+      }
+    }
+    return toArray(keys);
+  }
+
+  private static long[] toArray(final List<Long> pKeys) {
+    final long[] keys = new long[pKeys.size()];
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = pKeys.get(i);
+    }
+    return keys;
+  }
+}
@@ -0,0 +1,131 @@
+/**
+ * Copyright (c) 2011, University of Konstanz, Distributed Systems Group
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the University of Konstanz nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sirix.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sirix.Holder;
+import org.sirix.TestHelper;
+import org.sirix.api.INodeReadTrx;
+import org.sirix.exception.SirixException;
+import org.sirix.page.EPage;
+import org.sirix.page.NodePage;
+
+/**
+ * Test the {@link SharedPageCache}.
+ * 
+ * @author Johannes Lichtenberger, University of Konstanz
+ * 
+ */
+public class SharedPageCacheTest {
+
+  /** {@link Holder} reference. */
+  private Holder holder;
+
+  @Before
+  public void setUp() throws SirixException {
+    TestHelper.deleteEverything();
+    TestHelper.createTestDocument();
+    holder = Holder.generateSession();
+  }
+
+  @After
+  public void tearDown() throws SirixException {
+    holder.close();
+    TestHelper.closeEverything();
+  }
+
+  @Test
+  public void testLoadOnce() throws SirixException {
+    final SharedPageCache cache = new SharedPageCache(1024 * 1024);
+    final AtomicInteger loads = new AtomicInteger();
+    final Callable<PageContainer> loader = new Callable<PageContainer>() {
+      @Override
+      public PageContainer call() {
+        loads.incrementAndGet();
+        return new PageContainer(new NodePage(0, 1));
+      }
+    };
+    final PageCacheKey key = new PageCacheKey(1, EPage.NODEPAGE, 0);
+    final PageContainer first = cache.get(key, loader);
+    final PageContainer second = cache.get(key, loader);
+    assertSame(first, second);
+    assertEquals(1, loads.get());
+    assertEquals(1, cache.getStats().hitCount());
+    assertEquals(1, cache.getStats().missCount());
+
+    // Other revision, other page.
+    assertNull(cache.getIfPresent(new PageCacheKey(2, EPage.NODEPAGE, 0)));
+    assertNull(cache.getIfPresent(new PageCacheKey(1, EPage.PATHSUMMARYPAGE,
+      0)));
+  }
+
+  @Test
+  public void testEviction() throws SirixException {
+    final int weight = SharedPageCache.weight(new PageContainer(new NodePage(
+      0, 0)));
+    final SharedPageCache cache = new SharedPageCache(weight * 4);
+    for (int i = 0; i < 100; i++) {
+      final int key = i;
+      cache.get(new PageCacheKey(0, EPage.NODEPAGE, key),
+        new Callable<PageContainer>() {
+          @Override
+          public PageContainer call() {
+            return new PageContainer(new NodePage(key, 0));
+          }
+        });
+    }
+    assertTrue(cache.size() <= 4);
+    assertTrue(cache.getStats().evictionCount() >= 96);
+  }
+
+  @Test
+  public void testSharedBetweenTransactions() throws SirixException {
+    final INodeReadTrx firstRtx = holder.getSession().beginNodeReadTrx();
+    firstRtx.moveTo(5L);
+    final long misses =
+      holder.getSession().getPageCacheStats().missCount();
+    firstRtx.close();
+
+    final INodeReadTrx secondRtx = holder.getSession().beginNodeReadTrx();
+    secondRtx.moveTo(5L);
+    assertEquals(5L, secondRtx.getNode().getNodeKey());
+    assertEquals(misses, holder.getSession().getPageCacheStats().missCount());
+    assertTrue(holder.getSession().getPageCacheStats().hitCount() > 0);
+    secondRtx.close();
+  }
+}
@@ -0,0 +1,179 @@
+/**
+ * Copyright (c) 2011, University of Konstanz, Distributed Systems Group
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the University of Konstanz nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sirix.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Arrays;
+
+import javax.xml.namespace.QName;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sirix.TestHelper;
+import org.sirix.TestHelper.PATHS;
+import org.sirix.access.conf.DatabaseConfiguration;
+import org.sirix.access.conf.ResourceConfiguration;
+import org.sirix.access.conf.ResourceConfiguration.ETransactionLog;
+import org.sirix.access.conf.SessionConfiguration;
+import org.sirix.api.IDatabase;
+import org.sirix.api.INodeReadTrx;
+import org.sirix.api.INodeWriteTrx;
+import org.sirix.api.ISession;
+import org.sirix.exception.SirixException;
+import org.sirix.node.DeletedNode;
+import org.sirix.node.delegates.NodeDelegate;
+import org.sirix.page.NodePage;
+
+/**
+ * Test the {@link SpillLogCache}.
+ * 
+ * @author Johannes Lichtenberger, University of Konstanz
+ * 
+ */
+public class SpillLogCacheTest {
+
+  /** Resource, which uses the spill log. */
+  private static final String RESOURCE = "spill";
+
+  /** Resource path. */
+  private File mResource;
+
+  @Before
+  public void setUp() throws SirixException {
+    TestHelper.deleteEverything();
+    mResource =
+      new File(new File(PATHS.PATH1.getFile(), DatabaseConfiguration.Paths.Data
+        .getFile().getName()), TestHelper.RESOURCE);
+  }
+
+  @After
+  public void tearDown() throws SirixException {
+    TestHelper.closeEverything();
+  }
+
+  @Test
+  public void testCache() throws SirixException {
+    final SpillLogCache<PageContainer> cache =
+      new SpillLogCache<>(mResource, 1, "log", SpillLogCache.PAGE_CONTAINERS);
+    assertNull(cache.get(0L));
+    assertFalse(cache.getFile().exists());
+    CacheTestHelper.setUp(cache);
+    assertPages(cache);
+
+    // Overwrite and remove pages.
+    final NodePage page = new NodePage(0, 1);
+    cache.put(0L, new PageContainer(page));
+    assertEquals(page, cache.get(0L).getComplete());
+    cache.remove(1L);
+    assertNull(cache.get(1L));
+    assertEquals(2, cache.getAll(Arrays.asList(0L, 1L, 2L)).size());
+
+    cache.clear();
+    assertNull(cache.get(0L));
+    assertEquals(0, cache.getFile().length());
+    CacheTestHelper.setUp(cache);
+    assertPages(cache);
+
+    cache.close();
+    assertFalse(cache.getFile().exists());
+  }
+
+  @Test
+  public void testRespill() throws SirixException {
+    final SpillLogCache<PageContainer> cache =
+      new SpillLogCache<>(mResource, 1, "log", SpillLogCache.PAGE_CONTAINERS);
+    final NodePage page = new NodePage(0, 1);
+    page.setNode(new DeletedNode(new NodeDelegate(0, 0, 0, 1)));
+    page.setNode(new DeletedNode(new NodeDelegate(2, 0, 0, 1)));
+    cache.put(0L, new PageContainer(page));
+    // Pushes the first page to the spill log.
+    cache.put(1L, new PageContainer(new NodePage(1, 1)));
+
+    // Occupies a slot between the encoded records of the reloaded page.
+    final NodePage reloaded = cache.get(0L).getComplete();
+    reloaded.setNode(new DeletedNode(new NodeDelegate(1, 0, 0, 1)));
+    cache.put(0L, new PageContainer(reloaded));
+    cache.put(1L, new PageContainer(new NodePage(1, 1)));
+
+    page.setNode(new DeletedNode(new NodeDelegate(1, 0, 0, 1)));
+    final NodePage respilled = cache.get(0L).getComplete();
+    assertEquals(page, respilled);
+    for (long key = 0; key < 3; key++) {
+      assertEquals(key, respilled.getNode(key).getNodeKey());
+    }
+    cache.close();
+  }
+
+  @Test
+  public void testTransactionLog() throws SirixException {
+    final TransactionLogCache cache =
+      new TransactionLogCache(mResource, 1, "log", ETransactionLog.SPILL);
+    // One more page than the first cache holds.
+    CacheTestHelper.setUp(cache);
+    assertPages(cache);
+    cache.close();
+  }
+
+  @Test
+  public void testResource() throws SirixException {
+    final IDatabase database = TestHelper.getDatabase(PATHS.PATH1.getFile());
+    database.createResource(new ResourceConfiguration.Builder(RESOURCE,
+      PATHS.PATH1.getConfig()).setTransactionLog(ETransactionLog.SPILL).build());
+    assertEquals(ETransactionLog.SPILL, ResourceConfiguration.deserialize(
+      new File(mResource.getParentFile(), RESOURCE)).mTransactionLog);
+
+    final ISession session =
+      database.getSession(new SessionConfiguration.Builder(RESOURCE).build());
+    final INodeWriteTrx wtx = session.beginNodeWriteTrx();
+    wtx.insertElementAsFirstChild(new QName("root"));
+    wtx.insertElementAsFirstChild(new QName("e0"));
+    for (int i = 1; i < 1000; i++) {
+      wtx.insertElementAsRightSibling(new QName("e" + i));
+    }
+    wtx.commit();
+    wtx.close();
+    final INodeReadTrx rtx = session.beginNodeReadTrx();
+    assertTrue(rtx.moveTo(1000));
+    assertEquals(new QName("e998"), rtx.getQNameOfCurrentNode());
+    rtx.close();
+    session.close();
+  }
+
+  private static void assertPages(final ICache<Long, PageContainer> pCache) {
+    for (int i = 0; i < CacheTestHelper.PAGES.length; i++) {
+      final PageContainer cont = pCache.get((long) i);
+      assertEquals(CacheTestHelper.PAGES[i][0], cont.getComplete());
+    }
+  }
+}
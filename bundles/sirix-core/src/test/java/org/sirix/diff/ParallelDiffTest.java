@@ -0,0 +1,304 @@
+/**
+ * Copyright (c) 2011, University of Konstanz, Distributed Systems Group
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the University of Konstanz nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sirix.diff;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.sirix.settings.IConstants.NDP_NODE_COUNT_EXPONENT;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.xml.namespace.QName;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sirix.Holder;
+import org.sirix.TestHelper;
+import org.sirix.access.EHashKind;
+import org.sirix.api.INodeReadTrx;
+import org.sirix.api.INodeWriteTrx;
+import org.sirix.axis.DescendantAxis;
+import org.sirix.diff.DiffFactory.EDiff;
+import org.sirix.diff.DiffFactory.EDiffOptimized;
+import org.sirix.exception.SirixException;
+import org.sirix.node.interfaces.IStructNode;
+import org.sirix.utils.DocumentCreater;
+
+/**
+ * Test the {@link ParallelDiff} and the {@link ChangedPages}.
+ * 
+ * @author Johannes Lichtenberger, University of Konstanz
+ * 
+ */
+public final class ParallelDiffTest {
+
+  /** Number of subtrees. */
+  private static final int SUBTREES = 8;
+
+  /** Number of elements in each subtree. */
+  private static final int ELEMENTS = 300;
+
+  private Holder mHolder;
+
+  /** Keys of the elements in the subtrees. */
+  private long[][] mKeys;
+
+  /** Key of the updated text node. */
+  private long mUpdated;
+
+  /** Key of the inserted element. */
+  private long mInserted;
+
+  @Before
+  public void setUp() throws SirixException {
+    TestHelper.deleteEverything();
+    mHolder = Holder.generateWtx();
+  }
+
+  @After
+  public void tearDown() throws SirixException {
+    mHolder.close();
+    TestHelper.closeEverything();
+  }
+
+  @Test
+  public void testVersioned() throws SirixException {
+    DocumentCreater.createVersioned(mHolder.getWtx());
+    final List<Event> events = diff(EDiffOptimized.PARALLEL, EHashKind.Rolling);
+    assertEquals(EDiff.SAME, events.get(0).mDiff);
+    assertEquals(EDiff.INSERTED, events.get(1).mDiff);
+    assertEquals(EDiff.INSERTED, events.get(2).mDiff);
+    for (final Event event : events.subList(3, events.size())) {
+      assertEquals(EDiff.SAMEHASH, event.mDiff);
+    }
+  }
+
+  @Test
+  public void testChanges() throws SirixException {
+    createChanges();
+    final List<Event> events = diff(EDiffOptimized.PARALLEL, EHashKind.Rolling);
+    assertChanges(events);
+    // Unchanged subtrees are skipped.
+    assertTrue(events.size() < SUBTREES * ELEMENTS);
+
+    // Without hashes every node is compared, but the changes are the same.
+    final List<Event> all = diff(EDiffOptimized.PARALLEL, EHashKind.None);
+    assertChanges(all);
+    // All nodes of the old revision and the inserted node.
+    assertEquals(2 * SUBTREES * ELEMENTS + SUBTREES + 2, all.size());
+  }
+
+  @Test
+  public void testPages() throws SirixException {
+    createChanges();
+    final INodeReadTrx newRtx = mHolder.getSession().beginNodeReadTrx(1);
+    final INodeReadTrx oldRtx = mHolder.getSession().beginNodeReadTrx(0);
+    try {
+      assertTrue(ChangedPages.nodePageKeys(oldRtx.getPageTransaction(),
+        oldRtx.getPageTransaction()).isEmpty());
+      // The pages of the changed nodes and their ancestors.
+      final Set<Long> expected = new TreeSet<>();
+      for (final long key : new long[] { mKeys[1][100], mKeys[3][5], mInserted,
+        mKeys[5][299], mKeys[6][0] }) {
+        // The deleted element is only found in the old revision.
+        final INodeReadTrx rtx = newRtx.moveTo(key) ? newRtx : oldRtx;
+        rtx.moveTo(key);
+        do {
+          expected.add(rtx.getNode().getNodeKey() >> NDP_NODE_COUNT_EXPONENT);
+        } while (rtx.moveToParent());
+      }
+      assertEquals(new ArrayList<>(expected), ChangedPages.nodePageKeys(newRtx
+        .getPageTransaction(), oldRtx.getPageTransaction()));
+    } finally {
+      newRtx.close();
+      oldRtx.close();
+    }
+
+    final List<Event> events = diff(EDiffOptimized.PAGES, EHashKind.Rolling);
+    assertChanges(events);
+    assertTrue(events.size() < SUBTREES * ELEMENTS);
+  }
+
+  /**
+   * Create a document and a revision, in which a text node is updated, an
+   * element is inserted, an element is deleted and an element is renamed.
+   */
+  private void createChanges() throws SirixException {
+    final INodeWriteTrx wtx = mHolder.getWtx();
+    wtx.insertElementAsFirstChild(new QName("r"));
+    final long[][] keys = new long[SUBTREES][ELEMENTS];
+    for (int i = 0; i < SUBTREES; i++) {
+      if (i == 0) {
+        wtx.insertElementAsFirstChild(new QName("s"));
+      } else {
+        wtx.insertElementAsRightSibling(new QName("s"));
+      }
+      for (int j = 0; j < ELEMENTS; j++) {
+        if (j == 0) {
+          wtx.insertElementAsFirstChild(new QName("e"));
+        } else {
+          wtx.insertElementAsRightSibling(new QName("e"));
+        }
+        keys[i][j] = wtx.getNode().getNodeKey();
+        wtx.insertTextAsFirstChild("t" + j);
+        wtx.moveToParent();
+      }
+      wtx.moveToParent();
+    }
+    wtx.commit();
+
+    // Update a text node.
+    wtx.moveTo(keys[1][100]);
+    wtx.moveToFirstChild();
+    final long updated = wtx.getNode().getNodeKey();
+    wtx.setValue("changed");
+    // Insert an element.
+    wtx.moveTo(keys[3][5]);
+    wtx.insertElementAsFirstChild(new QName("i"));
+    final long inserted = wtx.getNode().getNodeKey();
+    // Delete an element with its text node.
+    wtx.moveTo(keys[5][299]);
+    wtx.remove();
+    // Rename an element.
+    wtx.moveTo(keys[6][0]);
+    wtx.setQName(new QName("f"));
+    wtx.commit();
+    mKeys = keys;
+    mUpdated = updated;
+    mInserted = inserted;
+  }
+
+  /**
+   * Assert that the changes made by {@link #createChanges()} are reported.
+   */
+  private void assertChanges(final List<Event> pEvents) throws SirixException {
+    final Map<EDiff, List<Long>> changes = changes(pEvents);
+    assertEquals(2, changes.size());
+    assertEquals(Collections.singletonList(mInserted), changes
+      .get(EDiff.INSERTED));
+    final List<Long> expected = new ArrayList<>();
+    expected.add(mUpdated);
+    expected.add(mKeys[6][0]);
+    assertEquals(expected, changes.get(EDiff.UPDATED));
+    // The deleted nodes are the old nodes.
+    int deleted = 0;
+    for (final Event event : pEvents) {
+      if (event.mDiff == EDiff.DELETED) {
+        assertEquals(mKeys[5][299] + deleted++, event.mOldKey);
+      }
+    }
+    assertEquals(2, deleted);
+    assertDocumentOrder(pEvents);
+  }
+
+  /**
+   * Assert that the nodes of the new revision are reported in document order.
+   */
+  private void assertDocumentOrder(final List<Event> pEvents)
+    throws SirixException {
+    final INodeReadTrx rtx = mHolder.getSession().beginNodeReadTrx(1);
+    try {
+      final Map<Long, Integer> order = new HashMap<>();
+      for (final long key : new DescendantAxis(rtx)) {
+        order.put(key, order.size());
+      }
+      int last = -1;
+      for (final Event event : pEvents) {
+        if (event.mDiff != EDiff.DELETED) {
+          final int position = order.get(event.mNewKey);
+          assertTrue(position > last);
+          last = position;
+        }
+      }
+    } finally {
+      rtx.close();
+    }
+  }
+
+  private List<Event> diff(final EDiffOptimized pOptimized,
+    final EHashKind pHashKind) throws SirixException {
+    final Recorder recorder = new Recorder();
+    DiffFactory.invokeStructuralDiff(new DiffFactory.Builder(mHolder
+      .getSession(), 1, 0, pOptimized, Collections
+      .<IDiffObserver> singleton(recorder)).setHashKind(pHashKind));
+    assertTrue(recorder.mDone);
+    return recorder.mEvents;
+  }
+
+  private static Map<EDiff, List<Long>> changes(final List<Event> pEvents) {
+    final Map<EDiff, List<Long>> changes = new HashMap<>();
+    for (final Event event : pEvents) {
+      if (event.mDiff == EDiff.INSERTED || event.mDiff == EDiff.UPDATED) {
+        if (!changes.containsKey(event.mDiff)) {
+          changes.put(event.mDiff, new ArrayList<Long>());
+        }
+        changes.get(event.mDiff).add(event.mNewKey);
+      }
+    }
+    return changes;
+  }
+
+  private static final class Event {
+    private final EDiff mDiff;
+
+    private final long mNewKey;
+
+    private final long mOldKey;
+
+    private Event(final EDiff pDiff, final long pNewKey, final long pOldKey) {
+      mDiff = pDiff;
+      mNewKey = pNewKey;
+      mOldKey = pOldKey;
+    }
+  }
+
+  private static final class Recorder implements IDiffObserver {
+    private final List<Event> mEvents = new ArrayList<>();
+
+    private boolean mDone;
+
+    @Override
+    public void diffListener(final EDiff pDiff, final IStructNode pNewNode,
+      final IStructNode pOldNode, final DiffDepth pDepth) {
+      mEvents.add(new Event(pDiff, pNewNode.getNodeKey(), pOldNode
+        .getNodeKey()));
+    }
+
+    @Override
+    public void diffDone() {
+      mDone = true;
+    }
+  }
+}
@@ -0,0 +1,400 @@
+/**
+ * Copyright (c) 2011, University of Konstanz, Distributed Systems Group
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the University of Konstanz nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sirix.index.cas;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.xml.namespace.QName;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sirix.TestHelper;
+import org.sirix.TestHelper.PATHS;
+import org.sirix.access.conf.ResourceConfiguration;
+import org.sirix.access.conf.ResourceConfiguration.EIndexes;
+import org.sirix.access.conf.SessionConfiguration;
+import org.sirix.api.IDatabase;
+import org.sirix.api.INodeReadTrx;
+import org.sirix.api.INodeWriteTrx;
+import org.sirix.api.ISession;
+import org.sirix.axis.DescendantAxis;
+import org.sirix.exception.SirixException;
+import org.sirix.node.EKind;
+import org.sirix.node.interfaces.INameNode;
+import org.sirix.service.xml.xpath.XPathAxis;
+import org.sirix.service.xml.xpath.types.Type;
+
+/**
+ * Test the {@link CASIndex} by comparing its range scans with the values of
+ * all nodes of a document.
+ * 
+ * @author Johannes Lichtenberger, University of Konstanz
+ * 
+ */
+public class CASIndexTest {
+
+  /** Name of the resource with CAS indexes. */
+  private static final String RESOURCE = "casindex";
+
+  /** Name of the resource without path summary. */
+  private static final String PLAIN = "casplain";
+
+  /** {@link ISession} on the resource with CAS indexes. */
+  private ISession mSession;
+
+  /** {@link ISession} on the resource without path summary. */
+  private ISession mPlain;
+
+  @Before
+  public void setUp() throws SirixException {
+    TestHelper.deleteEverything();
+    final IDatabase database = TestHelper.getDatabase(PATHS.PATH1.getFile());
+    database.createResource(new ResourceConfiguration.Builder(RESOURCE,
+      PATHS.PATH1.getConfig()).setIndexes(EnumSet.of(EIndexes.PATH))
+      .addCASIndex("//item/price", Type.DOUBLE).addCASIndex("//item/@id",
+        Type.INTEGER).addCASIndex("//item/qty", Type.INTEGER).build());
+    database.createResource(new ResourceConfiguration.Builder(PLAIN,
+      PATHS.PATH1.getConfig()).setIndexes(EnumSet.of(EIndexes.VALUE))
+      .build());
+    mSession = database.getSession(new SessionConfiguration.Builder(RESOURCE)
+      .build());
+    mPlain = database.getSession(new SessionConfiguration.Builder(PLAIN)
+      .build());
+  }
+
+  @After
+  public void tearDown() throws SirixException {
+    mSession.close();
+    mPlain.close();
+    TestHelper.closeEverything();
+  }
+
+  @Test
+  public void testMaintenance() throws SirixException {
+    final INodeWriteTrx wtx = mSession.beginNodeWriteTrx();
+    final List<Long> items = build(wtx, false);
+    assertRanges(wtx, CASIndex.getInstance(wtx.getPageTransaction(),
+      mSession));
+    wtx.commit();
+
+    // Update, remove and insert values.
+    wtx.moveTo(items.get(3));
+    wtx.moveToFirstChild();
+    wtx.moveToFirstChild();
+    wtx.setValue("99.5");
+    wtx.moveTo(items.get(5));
+    wtx.remove();
+    wtx.moveTo(items.get(6));
+    wtx.moveToFirstChild();
+    wtx.moveToFirstChild();
+    wtx.remove();
+    wtx.moveTo(items.get(7));
+    wtx.moveToFirstChild();
+    wtx.insertTextAsFirstChild("42");
+
+    // Rename a price and an item, whose price isn't on the path anymore.
+    wtx.moveTo(items.get(8));
+    wtx.moveToFirstChild();
+    wtx.setQName(new QName("cost"));
+    wtx.moveTo(items.get(10));
+    wtx.setQName(new QName("thing"));
+    assertRanges(wtx, CASIndex.getInstance(wtx.getPageTransaction(),
+      mSession));
+
+    // Move a text node to the root and to a price without text.
+    wtx.moveTo(items.get(11));
+    wtx.moveToFirstChild();
+    wtx.moveToFirstChild();
+    final long text = wtx.getNode().getNodeKey();
+    wtx.moveTo(items.get(11));
+    wtx.moveToParent();
+    wtx.moveSubtreeToFirstChild(text);
+    wtx.moveTo(items.get(14));
+    wtx.moveToFirstChild();
+    wtx.moveToFirstChild();
+    final long otherText = wtx.getNode().getNodeKey();
+    wtx.moveTo(items.get(6));
+    wtx.moveToFirstChild();
+    wtx.moveSubtreeToFirstChild(otherText);
+    assertRanges(wtx, CASIndex.getInstance(wtx.getPageTransaction(),
+      mSession));
+    wtx.commit();
+    wtx.close();
+
+    // Both revisions are indexed.
+    for (int revision = 0; revision <= 1; revision++) {
+      final INodeReadTrx rtx = mSession.beginNodeReadTrx(revision);
+      final CASIndex index = mSession.openCASIndex(revision);
+      assertRanges(rtx, index);
+      index.close();
+      rtx.close();
+    }
+  }
+
+  @Test
+  public void testAttributeRange() throws SirixException {
+    final INodeWriteTrx wtx = mSession.beginNodeWriteTrx();
+    build(wtx, false);
+    wtx.commit();
+    wtx.close();
+
+    final INodeReadTrx rtx = mSession.beginNodeReadTrx();
+    final CASIndex index = mSession.openCASIndex();
+    final Set<Long> pathNodeKeys = new TreeSet<>();
+    final List<Long> expected = new ArrayList<>();
+    for (final DescendantAxis axis = new DescendantAxis(rtx); axis.hasNext();) {
+      axis.next();
+      if (rtx.getNode().getKind() == EKind.ELEMENT
+        && rtx.getQNameOfCurrentNode().getLocalPart().equals("item")) {
+        rtx.moveToAttribute(0);
+        pathNodeKeys.add(((INameNode)rtx.getNode()).getPathNodeKey());
+        final int id = Integer.parseInt(rtx.getValueOfCurrentNode());
+        if (id >= 10 && id <= 20) {
+          expected.add(rtx.getNode().getNodeKey());
+        }
+        rtx.moveToParent();
+      }
+    }
+    assertEquals(11, expected.size());
+    Collections.sort(expected);
+    // Decimal bounds of an integer range are rounded.
+    assertEquals(expected.toString(), Arrays.toString(index.range(
+      pathNodeKeys, Type.INTEGER, "9.5", false, "20", true).toArray()));
+    assertEquals(0, index.range(pathNodeKeys, Type.DOUBLE, null, true, null,
+      true).size());
+    index.close();
+    rtx.close();
+  }
+
+  @Test
+  public void testRewrite() throws SirixException {
+    for (final ISession session : new ISession[] {
+      mSession, mPlain
+    }) {
+      final INodeWriteTrx wtx = session.beginNodeWriteTrx();
+      build(wtx, true);
+      wtx.commit();
+      wtx.close();
+    }
+    final INodeReadTrx rtx = mSession.beginNodeReadTrx();
+    final INodeReadTrx plainRtx = mPlain.beginNodeReadTrx();
+    for (final String query : new String[] {
+      "//item/price[text() > 30]", "/r/item/price[45 >= text()]",
+      "//item/price[text() <= 12.5]/text()"
+    }) {
+      final XPathAxis indexed = new XPathAxis(rtx, query);
+      assertTrue(indexed.explain(), indexed.explain().contains("=> CAS_INDEX"));
+      final List<Long> expected = keys(new XPathAxis(plainRtx, query));
+      final List<Long> actual = keys(indexed);
+      // The rewritten result is in document order.
+      assertEquals(query, expected.size(), actual.size());
+      Collections.sort(expected);
+      Collections.sort(actual);
+      assertEquals(query, expected, actual);
+      assertTrue(query, !actual.isEmpty());
+    }
+
+    // Integer indexes might miss decimal values and a string comparison is
+    // not answered by the CAS index.
+    for (final String query : new String[] {
+      "//item/qty[text() > 1]", "//item/price[text() = '3.0']"
+    }) {
+      final String explain = new XPathAxis(rtx, query).explain();
+      assertTrue(explain, explain.contains("=> PATH_SUMMARY"));
+    }
+    plainRtx.close();
+    rtx.close();
+  }
+
+  /**
+   * Compare several range scans with the values of the prices below an item.
+   * 
+   * @param pRtx
+   *          {@link INodeReadTrx} on the indexed revision
+   * @param pIndex
+   *          the CAS index
+   */
+  private static void assertRanges(final INodeReadTrx pRtx,
+    final CASIndex pIndex) throws SirixException {
+    final String[][] ranges = {
+      {
+        null, null
+      }, {
+        "10", "50.5"
+      }, {
+        "-INF", "0"
+      }, {
+        "42", "42"
+      }, {
+        "99.5", null
+      }
+    };
+    for (final String[] range : ranges) {
+      for (final boolean inclusive : new boolean[] {
+        true, false
+      }) {
+        final Set<Long> pathNodeKeys = new TreeSet<>();
+        final List<Long> expected =
+          prices(pRtx, pathNodeKeys, range[0], range[1], inclusive);
+        assertEquals(Arrays.toString(range), expected.toString(), Arrays
+          .toString(pIndex.range(pathNodeKeys, Type.DOUBLE, range[0],
+            inclusive, range[1], inclusive).toArray()));
+      }
+    }
+  }
+
+  /**
+   * Get the text nodes of the prices below an item, whose value is in a range.
+   * 
+   * @param pRtx
+   *          {@link INodeReadTrx} to traverse the document with
+   * @param pPathNodeKeys
+   *          collects the path node keys of the prices below an item
+   * @param pFrom
+   *          lower bound or {@code null}
+   * @param pTo
+   *          upper bound or {@code null}
+   * @param pInclusive
+   *          determines if the bounds are inclusive
+   * @return ascending keys of the text nodes
+   */
+  private static List<Long> prices(final INodeReadTrx pRtx,
+    final Set<Long> pPathNodeKeys, final String pFrom, final String pTo,
+    final boolean pInclusive) {
+    final double from =
+      pFrom == null ? Double.NEGATIVE_INFINITY : parse(pFrom);
+    final double to = pTo == null ? Double.POSITIVE_INFINITY : parse(pTo);
+    final List<Long> keys = new ArrayList<>();
+    for (final DescendantAxis axis = new DescendantAxis(pRtx); axis.hasNext();) {
+      axis.next();
+      if (pRtx.getNode().getKind() != EKind.TEXT) {
+        continue;
+      }
+      final long key = pRtx.getNode().getNodeKey();
+      final String value = pRtx.getValueOfCurrentNode();
+      pRtx.moveToParent();
+      final boolean isPrice =
+        pRtx.getQNameOfCurrentNode().getLocalPart().equals("price");
+      final long pathNodeKey = ((INameNode)pRtx.getNode()).getPathNodeKey();
+      pRtx.moveToParent();
+      if (isPrice && pRtx.getNode().getKind() == EKind.ELEMENT
+        && pRtx.getQNameOfCurrentNode().getLocalPart().equals("item")) {
+        pPathNodeKeys.add(pathNodeKey);
+        final double number;
+        try {
+          number = parse(value);
+        } catch (final NumberFormatException e) {
+          pRtx.moveTo(key);
+          continue;
+        }
+        if ((pInclusive ? number >= from : number > from)
+          && (pInclusive ? number <= to : number < to)) {
+          keys.add(key);
+        }
+      }
+      pRtx.moveTo(key);
+    }
+    Collections.sort(keys);
+    return keys;
+  }
+
+  /**
+   * Parse a double value.
+   * 
+   * @param pValue
+   *          the value
+   * @return the double value
+   */
+  private static double parse(final String pValue) {
+    return pValue.equals("-INF") ? Double.NEGATIVE_INFINITY : Double
+      .parseDouble(pValue);
+  }
+
+  /**
+   * Get the result of a query.
+   * 
+   * @param pAxis
+   *          the query
+   * @return node keys of the result
+   */
+  private static List<Long> keys(final XPathAxis pAxis) {
+    final List<Long> keys = new ArrayList<>();
+    while (pAxis.hasNext()) {
+      keys.add(pAxis.next());
+    }
+    return keys;
+  }
+
+  /**
+   * Build a document with items, which have an id, a price and a quantity.
+   * Some prices are not below an item.
+   * 
+   * @param pWtx
+   *          {@link INodeWriteTrx} to build with
+   * @param pNumeric
+   *          determines if all prices are numeric, as the navigational
+   *          evaluation fails on other values
+   * @return keys of the items
+   */
+  private static List<Long> build(final INodeWriteTrx pWtx,
+    final boolean pNumeric) throws SirixException {
+    final List<Long> items = new ArrayList<>();
+    pWtx.insertElementAsFirstChild(new QName("r"));
+    final long root = pWtx.getNode().getNodeKey();
+    for (int i = 0; i < 60; i++) {
+      pWtx.moveTo(root);
+      pWtx.insertElementAsFirstChild(new QName("item"));
+      items.add(pWtx.getNode().getNodeKey());
+      pWtx.insertAttribute(new QName("id"), String.valueOf(i));
+      pWtx.moveToParent();
+      pWtx.insertElementAsFirstChild(new QName("price"));
+      pWtx.insertTextAsFirstChild(i % 10 == 9 && !pNumeric ? "n/a" : String
+        .valueOf(i * 1.5));
+      pWtx.moveToParent();
+      pWtx.insertElementAsRightSibling(new QName("qty"));
+      pWtx.insertTextAsFirstChild(String.valueOf(i % 4));
+      if (i % 7 == 0) {
+        pWtx.moveTo(root);
+        pWtx.insertElementAsFirstChild(new QName("other"));
+        pWtx.insertElementAsFirstChild(new QName("price"));
+        pWtx.insertTextAsFirstChild(String.valueOf(i));
+      }
+    }
+    return items;
+  }
+}
@@ -0,0 +1,234 @@
+/**
+ * Copyright (c) 2011, University of Konstanz, Distributed Systems Group
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the University of Konstanz nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sirix.index.path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+import javax.xml.namespace.QName;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sirix.TestHelper;
+import org.sirix.TestHelper.PATHS;
+import org.sirix.access.conf.ResourceConfiguration;
+import org.sirix.access.conf.ResourceConfiguration.EIndexes;
+import org.sirix.access.conf.SessionConfiguration;
+import org.sirix.api.IAxis;
+import org.sirix.api.IDatabase;
+import org.sirix.api.INodeReadTrx;
+import org.sirix.api.INodeWriteTrx;
+import org.sirix.api.ISession;
+import org.sirix.axis.DescendantAxis;
+import org.sirix.exception.SirixException;
+import org.sirix.node.ElementNode;
+import org.sirix.node.EKind;
+import org.sirix.node.interfaces.INameNode;
+import org.sirix.utils.DocumentCreater;
+
+/**
+ * Test the {@link PathIndex} by comparing it with the path node keys of all
+ * nodes of a document.
+ * 
+ * @author Johannes Lichtenberger, University of Konstanz
+ * 
+ */
+public class PathIndexTest {
+
+  /** Name of the resource. */
+  private static final String RESOURCE = "pathindex";
+
+  /** {@link ISession} on a resource with the path class index. */
+  private ISession mSession;
+
+  @Before
+  public void setUp() throws SirixException {
+    TestHelper.deleteEverything();
+    final IDatabase database = TestHelper.getDatabase(PATHS.PATH1.getFile());
+    database.createResource(new ResourceConfiguration.Builder(
+      RESOURCE, PATHS.PATH1.getConfig()).setIndexes(
+      EnumSet.of(EIndexes.PATH, EIndexes.PATH_CLASS)).build());
+    mSession = database.getSession(new SessionConfiguration.Builder(
+      RESOURCE).build());
+  }
+
+  @After
+  public void tearDown() throws SirixException {
+    mSession.close();
+    TestHelper.closeEverything();
+  }
+
+  @Test
+  public void testMaintenance() throws SirixException {
+    final INodeWriteTrx wtx = mSession.beginNodeWriteTrx();
+    DocumentCreater.create(wtx);
+    assertIndex(wtx, wtx.getPathSummary(), PathIndex.getInstance(wtx
+      .getPageTransaction()), 3);
+    wtx.commit();
+
+    // Rename the first b, which is the only node on its new path.
+    wtx.moveTo(5);
+    wtx.setQName(new QName("d"));
+    assertIndex(wtx, wtx.getPathSummary(), PathIndex.getInstance(wtx
+      .getPageTransaction()), 2);
+
+    // Rename its child and move it below the second b.
+    wtx.moveTo(7);
+    wtx.setQName(new QName("e"));
+    assertIndex(wtx, wtx.getPathSummary(), PathIndex.getInstance(wtx
+      .getPageTransaction()), 2);
+    wtx.moveTo(9);
+    wtx.moveSubtreeToFirstChild(7);
+    assertIndex(wtx, wtx.getPathSummary(), PathIndex.getInstance(wtx
+      .getPageTransaction()), 2);
+
+    // Remove the second b including the attribute of the subtree root.
+    wtx.moveTo(9);
+    wtx.remove();
+    assertIndex(wtx, wtx.getPathSummary(), PathIndex.getInstance(wtx
+      .getPageTransaction()), 0);
+    wtx.commit();
+    wtx.close();
+
+    // Both revisions are indexed.
+    for (int revision = 0; revision <= 1; revision++) {
+      final INodeReadTrx rtx = mSession.beginNodeReadTrx(revision);
+      final PathSummary summary = mSession.openPathSummary(revision);
+      final PathIndex index = mSession.openPathIndex(revision);
+      assertIndex(rtx, summary, index, revision == 0 ? 3 : 0);
+      index.close();
+      summary.close();
+      rtx.close();
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testWithoutPathSummary() {
+    new ResourceConfiguration.Builder(RESOURCE,
+      PATHS.PATH1.getConfig()).setIndexes(EnumSet.of(EIndexes.PATH_CLASS));
+  }
+
+  /**
+   * Assert that the index holds exactly the nodes of each path.
+   * 
+   * @param pRtx
+   *          transaction to read the document
+   * @param pSummary
+   *          path summary of the revision
+   * @param pIndex
+   *          path index of the revision
+   * @param pBs
+   *          expected number of nodes on the path {@code /p:a/b} or
+   *          {@code /p:a/b/@p:x}
+   */
+  private void assertIndex(final @Nonnull INodeReadTrx pRtx,
+    final @Nonnull PathSummary pSummary, final @Nonnull PathIndex pIndex,
+    final int pBs) throws SirixException {
+    final Map<Long, List<Long>> expected = new HashMap<>();
+    pRtx.moveToDocumentRoot();
+    for (final IAxis axis = new DescendantAxis(pRtx); axis.hasNext();) {
+      axis.next();
+      if (pRtx.getNode().getKind() == EKind.ELEMENT) {
+        final ElementNode element = (ElementNode) pRtx.getNode();
+        add(expected, element);
+        for (final long key : element.getNamespaceKeys()) {
+          pRtx.moveTo(key);
+          add(expected, (INameNode) pRtx.getNode());
+        }
+        for (final long key : element.getAttributeKeys()) {
+          pRtx.moveTo(key);
+          add(expected, (INameNode) pRtx.getNode());
+        }
+        pRtx.moveTo(element.getNodeKey());
+      }
+    }
+
+    int paths = 0;
+    int bs = 0;
+    pSummary.moveToDocumentRoot();
+    for (final IAxis axis = new DescendantAxis(pSummary); axis.hasNext();) {
+      axis.next();
+      final long pathNodeKey = pSummary.getNode().getNodeKey();
+      final List<Long> keys = expected.containsKey(pathNodeKey) ? expected
+        .get(pathNodeKey) : new ArrayList<Long>();
+      final long[] expectedKeys = new long[keys.size()];
+      for (int i = 0; i < expectedKeys.length; i++) {
+        expectedKeys[i] = keys.get(i);
+      }
+      Arrays.sort(expectedKeys);
+      assertEquals(pSummary.getQNameOfCurrentNode().toString(), Arrays
+        .toString(expectedKeys), Arrays.toString(pIndex.get(pathNodeKey)
+        .toArray()));
+      if (keys.size() > 0) {
+        paths++;
+      }
+      if (pSummary.getQNameOfCurrentNode().getLocalPart().matches("b|x")
+        && pSummary.getPathNode().getLevel() <= 3) {
+        bs += keys.size();
+      }
+    }
+    assertEquals(expected.size(), paths);
+    assertEquals(pBs, bs);
+
+    // All paths at once.
+    final List<Long> pathNodeKeys = new ArrayList<>(expected.keySet());
+    int nodes = 0;
+    for (final List<Long> keys : expected.values()) {
+      nodes += keys.size();
+    }
+    assertEquals(nodes, pIndex.get(pathNodeKeys).size());
+    assertTrue(nodes > 0);
+  }
+
+  /**
+   * Add a node to the expected nodes of its path.
+   * 
+   * @param pExpected
+   *          expected nodes
+   * @param pNode
+   *          the node
+   */
+  private static void add(final @Nonnull Map<Long, List<Long>> pExpected,
+    final @Nonnull INameNode pNode) {
+    List<Long> keys = pExpected.get(pNode.getPathNodeKey());
+    if (keys == null) {
+      keys = new ArrayList<>();
+      pExpected.put(pNode.getPathNodeKey(), keys);
+    }
+    keys.add(pNode.getNodeKey());
+  }
+}
@@ -0,0 +1,376 @@
+/**
+ * Copyright (c) 2011, University of Konstanz, Distributed Systems Group
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the University of Konstanz nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sirix.index.value;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.sirix.index.value.BPlusTree.NODE_CAPACITY;
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import javax.xml.namespace.QName;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sirix.TestHelper;
+import org.sirix.TestHelper.PATHS;
+import org.sirix.access.IndexBuilder;
+import org.sirix.access.conf.ResourceConfiguration;
+import org.sirix.access.conf.ResourceConfiguration.EIndexes;
+import org.sirix.access.conf.SessionConfiguration;
+import org.sirix.api.IDatabase;
+import org.sirix.api.INodeWriteTrx;
+import org.sirix.api.IPageReadTrx;
+import org.sirix.api.IPageWriteTrx;
+import org.sirix.api.ISession;
+import org.sirix.exception.SirixException;
+import org.sirix.exception.SirixIOException;
+import org.sirix.node.DocumentRootNode;
+import org.sirix.node.TextReferences;
+import org.sirix.node.TextValue;
+import org.sirix.node.delegates.NodeDelegate;
+import org.sirix.node.interfaces.INodeBase;
+import org.sirix.page.EPage;
+import org.sirix.settings.EFixed;
+
+/**
+ * Test the {@link BPlusTree}.
+ * 
+ * @author Johannes Lichtenberger, University of Konstanz
+ * 
+ */
+public class BPlusTreeTest {
+
+  /** Name of the resource with a value index. */
+  private static final String RESOURCE = "valueindexed";
+
+  /** Number of keys. */
+  private static final int KEYS = 1000;
+
+  /** {@link ISession} on the resource. */
+  private ISession mSession;
+
+  @Before
+  public void setUp() throws SirixException {
+    TestHelper.deleteEverything();
+    final IDatabase database = TestHelper.getDatabase(PATHS.PATH1.getFile());
+    database.createResource(new ResourceConfiguration.Builder(RESOURCE,
+      PATHS.PATH1.getConfig()).setIndexes(
+      EnumSet.of(EIndexes.PATH, EIndexes.VALUE)).build());
+    mSession =
+      database.getSession(new SessionConfiguration.Builder(RESOURCE).build());
+  }
+
+  @After
+  public void tearDown() throws SirixException {
+    mSession.close();
+    TestHelper.closeEverything();
+  }
+
+  @Test
+  public void testIndex() throws SirixException {
+    final IPageWriteTrx pageWtx = mSession.beginPageWriteTrx();
+    final BPlusTree tree = BPlusTree.getInstance(pageWtx, 4);
+    final List<Integer> keys = new ArrayList<>(KEYS);
+    for (int i = 0; i < KEYS; i++) {
+      keys.add(i);
+    }
+    Collections.shuffle(keys, new Random(42));
+    for (final int key : keys) {
+      tree.index(key(key), references(key));
+    }
+    // Replace a value.
+    tree.index(key(7), references(1, 2, 3));
+
+    for (int i = 0; i < KEYS; i++) {
+      final TextReferences references = tree.get(key(i)).get();
+      assertEquals(i == 7 ? ImmutableSet.of(1L, 2L, 3L) : ImmutableSet
+        .of((long)i), references.getNodeKeys());
+    }
+    assertFalse(tree.get(key(KEYS)).isPresent());
+    assertRanges(tree);
+    pageWtx.close();
+  }
+
+  @Test
+  public void testBulkLoad() throws SirixException {
+    final IPageWriteTrx pageWtx = mSession.beginPageWriteTrx();
+    final BPlusTree tree = BPlusTree.getInstance(pageWtx, 4);
+    final List<Map.Entry<TextValue, TextReferences>> entries =
+      new ArrayList<>(KEYS);
+    for (int i = 0; i < KEYS; i++) {
+      entries.add(Maps.immutableEntry(key(i), references(i)));
+    }
+    tree.bulkLoad(entries.iterator());
+    for (int i = 0; i < KEYS; i++) {
+      assertEquals(ImmutableSet.of((long)i), tree.get(key(i)).get()
+        .getNodeKeys());
+    }
+    assertRanges(tree);
+
+    // Inserts after bulk loading split the full nodes.
+    tree.index(key(KEYS), references(KEYS));
+    tree.index(new TextValue(new byte[0], 0, 0), references(-1));
+    assertEquals(ImmutableSet.of((long)KEYS), tree.get(key(KEYS)).get()
+      .getNodeKeys());
+    assertEquals(ImmutableSet.of(-1L), tree.get(
+      new TextValue(new byte[0], 0, 0)).get().getNodeKeys());
+
+    try {
+      tree.bulkLoad(entries.iterator());
+      fail();
+    } catch (final IllegalStateException e) {
+      // Expected.
+    }
+    pageWtx.close();
+  }
+
+  @Test
+  public void testLeafBytes() throws SirixException {
+    final IPageWriteTrx pageWtx = mSession.beginPageWriteTrx();
+    final BPlusTree tree = BPlusTree.getInstance(pageWtx, NODE_CAPACITY, 64);
+    for (int i = 0; i < KEYS; i++) {
+      tree.index(key(i), references(i));
+    }
+    // A frequent value exceeds the leaf size on its own.
+    final long[] frequent = frequentNodeKeys();
+    tree.index(key(500), references(frequent));
+    for (int i = 0; i < KEYS; i++) {
+      assertEquals(i == 500 ? frequent.length : 1, tree.get(key(i)).get()
+        .getPostings().size());
+    }
+    assertRanges(tree);
+    assertLeafBytes(pageWtx, 64);
+    pageWtx.close();
+  }
+
+  @Test
+  public void testBulkLoadLeafBytes() throws SirixException {
+    final IPageWriteTrx pageWtx = mSession.beginPageWriteTrx();
+    final BPlusTree tree = BPlusTree.getInstance(pageWtx, NODE_CAPACITY, 64);
+    final long[] frequent = frequentNodeKeys();
+    final List<Map.Entry<TextValue, TextReferences>> entries =
+      new ArrayList<>(KEYS);
+    for (int i = 0; i < KEYS; i++) {
+      entries.add(Maps.immutableEntry(key(i), i == 500
+        ? references(frequent) : references(i)));
+    }
+    tree.bulkLoad(entries.iterator());
+    assertEquals(frequent.length, tree.get(key(500)).get().getPostings()
+      .size());
+    assertRanges(tree);
+    assertLeafBytes(pageWtx, 64);
+    pageWtx.close();
+  }
+
+  @Test
+  public void testValueIndex() throws SirixException {
+    final INodeWriteTrx wtx = mSession.beginNodeWriteTrx();
+    wtx.insertElementAsFirstChild(new QName("root"));
+    final long rootKey = wtx.getNode().getNodeKey();
+    final List<Long> fooKeys = new ArrayList<>();
+    for (int i = 0; i < 500; i++) {
+      wtx.insertElementAsFirstChild(new QName("a"));
+      wtx.insertTextAsFirstChild(i % 2 == 0 ? "foo" : "bar" + i);
+      if (i % 2 == 0) {
+        fooKeys.add(wtx.getNode().getNodeKey());
+      }
+      wtx.moveTo(rootKey);
+    }
+    wtx.commit();
+    wtx.close();
+
+    final IPageReadTrx pageRtx = mSession.beginPageReadTrx();
+    final BPlusTree tree = BPlusTree.getInstance(pageRtx);
+    assertEquals(new HashSet<>(fooKeys), tree.get(
+      new TextValue("foo".getBytes(), 0, 0)).get().getNodeKeys());
+    int count = 0;
+    for (final Iterator<Map.Entry<TextValue, TextReferences>> it =
+      tree.iterator(); it.hasNext(); it.next()) {
+      count++;
+    }
+    assertEquals(251, count);
+    pageRtx.close();
+  }
+
+  @Test
+  public void testFormerLayout() throws SirixException {
+    final INodeWriteTrx wtx = mSession.beginNodeWriteTrx();
+    wtx.insertElementAsFirstChild(new QName("root"));
+    wtx.insertTextAsFirstChild("foo");
+    final long textKey = wtx.getNode().getNodeKey();
+    wtx.commit();
+
+    // Replace the root of the value index by an AVL tree node.
+    final IPageWriteTrx pageWtx = (IPageWriteTrx) wtx.getPageTransaction();
+    final long avlKey =
+      pageWtx.getActualRevisionRootPage().getMaxValueNodeKey() + 1;
+    pageWtx.createNode(new AVLNode<>(new TextValue("foo".getBytes(), 0, 0),
+      references(textKey), new NodeDelegate(avlKey, 0, 0, 0)), EPage.VALUEPAGE);
+    final DocumentRootNode document =
+      (DocumentRootNode) pageWtx.prepareNodeForModification(
+        EFixed.DOCUMENT_NODE_KEY.getStandardProperty(), EPage.VALUEPAGE);
+    document.setFirstChildKey(avlKey);
+    pageWtx.finishNodeModification(document, EPage.VALUEPAGE);
+    wtx.commit();
+    wtx.close();
+
+    IPageReadTrx pageRtx = mSession.beginPageReadTrx();
+    try {
+      BPlusTree.getInstance(pageRtx).get(new TextValue("foo".getBytes(), 0, 0));
+      fail();
+    } catch (final SirixIOException e) {
+      assertTrue(e.getMessage().contains("IndexBuilder"));
+    }
+    pageRtx.close();
+
+    // The index is rebuilt in the new layout.
+    IndexBuilder.invoke(new IndexBuilder.Builder(mSession).setIndexes(EnumSet
+      .of(EIndexes.VALUE)));
+    pageRtx = mSession.beginPageReadTrx();
+    assertEquals(ImmutableSet.of(textKey), BPlusTree.getInstance(pageRtx).get(
+      new TextValue("foo".getBytes(), 0, 0)).get().getNodeKeys());
+    pageRtx.close();
+  }
+
+  /**
+   * Check full, bounded and empty range scans over the keys {@code 0} to
+   * {@code KEYS - 1}.
+   * 
+   * @param pTree
+   *          the tree
+   */
+  private static void assertRanges(final BPlusTree pTree)
+    throws SirixException {
+    int expected = 0;
+    for (final Map.Entry<TextValue, TextReferences> entry : pTree) {
+      assertEquals(key(expected++), entry.getKey());
+    }
+    assertEquals(KEYS, expected);
+
+    Iterator<Map.Entry<TextValue, TextReferences>> range =
+      pTree.range(key(100), true, key(200), false);
+    for (int i = 100; i < 200; i++) {
+      assertEquals(key(i), range.next().getKey());
+    }
+    assertFalse(range.hasNext());
+
+    range = pTree.range(key(100), false, key(200), true);
+    for (int i = 101; i <= 200; i++) {
+      assertEquals(key(i), range.next().getKey());
+    }
+    assertFalse(range.hasNext());
+
+    range = pTree.range(key(KEYS - 3), true, null, true);
+    for (int i = KEYS - 3; i < KEYS; i++) {
+      assertEquals(key(i), range.next().getKey());
+    }
+    assertFalse(range.hasNext());
+    assertFalse(pTree.range(key(KEYS), true, null, true).hasNext());
+    assertTrue(pTree.range(null, true, key(0), true).hasNext());
+  }
+
+  /**
+   * Check that the keys and postings of each leaf with more than one key don't
+   * exceed the given number of bytes.
+   * 
+   * @param pPageTrx
+   *          the page transaction
+   * @param pLeafBytes
+   *          maximum number of bytes
+   */
+  private static void assertLeafBytes(final IPageReadTrx pPageTrx,
+    final int pLeafBytes) throws SirixException {
+    final long maxNodeKey =
+      pPageTrx.getActualRevisionRootPage().getMaxValueNodeKey();
+    int leaves = 0;
+    for (long nodeKey = 1; nodeKey <= maxNodeKey; nodeKey++) {
+      final Optional<? extends INodeBase> node =
+        pPageTrx.getNode(nodeKey, EPage.VALUEPAGE);
+      if (node.isPresent() && node.get() instanceof BPlusNode
+        && ((BPlusNode)node.get()).isLeaf()) {
+        final BPlusNode leaf = (BPlusNode)node.get();
+        assertTrue(leaf.size() == 1 || leaf.getByteSize() <= pLeafBytes);
+        leaves++;
+      }
+    }
+    assertTrue(leaves > KEYS / NODE_CAPACITY);
+  }
+
+  /**
+   * Key, whose byte order corresponds to the number order.
+   * 
+   * @param pNumber
+   *          the number
+   * @return the key
+   */
+  private static TextValue key(final int pNumber) {
+    return new TextValue(String.format("%06d", pNumber).getBytes(), 0, 0);
+  }
+
+  /**
+   * Node keys of a frequent value, whose postings exceed a small leaf.
+   * 
+   * @return the node keys
+   */
+  private static long[] frequentNodeKeys() {
+    final long[] nodeKeys = new long[1000];
+    for (int i = 0; i < nodeKeys.length; i++) {
+      nodeKeys[i] = i * 3;
+    }
+    return nodeKeys;
+  }
+
+  /**
+   * References to the given node keys.
+   * 
+   * @param pNodeKeys
+   *          node keys
+   * @return the references
+   */
+  private static TextReferences references(final long... pNodeKeys) {
+    final HashSet<Long> nodeKeys = new HashSet<>();
+    for (final long nodeKey : pNodeKeys) {
+      nodeKeys.add(nodeKey);
+    }
+    return new TextReferences(nodeKeys, 0);
+  }
+}
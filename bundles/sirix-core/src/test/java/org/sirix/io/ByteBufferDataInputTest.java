@@ -0,0 +1,102 @@
+/**
+ * Copyright (c) 2011, University of Konstanz, Distributed Systems Group
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the University of Konstanz nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sirix.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+import com.google.common.io.ByteArrayDataOutput;
+import com.google.common.io.ByteStreams;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+import org.sirix.page.NamePage;
+import org.sirix.page.PagePersistenter;
+
+/**
+ * Test the {@link ByteBufferDataInput}.
+ * 
+ * @author Johannes Lichtenberger, University of Konstanz
+ * 
+ */
+public class ByteBufferDataInputTest {
+
+  @Test
+  public void testRead() {
+    final ByteArrayDataOutput out = ByteStreams.newDataOutput();
+    out.writeBoolean(true);
+    out.writeByte(-1);
+    out.writeShort(-2);
+    out.writeChar('c');
+    out.writeInt(Integer.MIN_VALUE);
+    out.writeLong(Long.MAX_VALUE);
+    out.writeFloat(1.5f);
+    out.writeDouble(-2.5);
+    out.writeUTF("sïrix");
+    final byte[] bytes = out.toByteArray();
+
+    // Heap buffer with an offset and a direct buffer.
+    final byte[] padded = new byte[bytes.length + 2];
+    System.arraycopy(bytes, 0, padded, 1, bytes.length);
+    final ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+    direct.put(bytes).flip();
+    for (final ByteBuffer buffer : new ByteBuffer[] {
+      ByteBuffer.wrap(padded, 1, bytes.length).slice(), direct
+    }) {
+      final ByteBufferDataInput in = new ByteBufferDataInput(buffer);
+      assertEquals(true, in.readBoolean());
+      assertEquals(0xFF, in.readUnsignedByte());
+      assertEquals(0xFFFE, in.readUnsignedShort());
+      assertEquals('c', in.readChar());
+      assertEquals(Integer.MIN_VALUE, in.readInt());
+      assertEquals(Long.MAX_VALUE, in.readLong());
+      assertEquals(1.5f, in.readFloat(), 0);
+      assertEquals(-2.5, in.readDouble(), 0);
+      assertEquals("sïrix", in.readUTF());
+      assertFalse(buffer.hasRemaining());
+      try {
+        in.readByte();
+        fail();
+      } catch (final IllegalStateException e) {
+        // Expected.
+      }
+    }
+  }
+
+  @Test
+  public void testDeserializePage() {
+    final NamePage page = new NamePage(0);
+    final ByteArrayDataOutput out = ByteStreams.newDataOutput();
+    PagePersistenter.serializePage(out, page);
+    final ByteBuffer buffer = ByteBuffer.wrap(out.toByteArray());
+    assertEquals(NamePage.class, PagePersistenter.deserializePage(buffer)
+      .getClass());
+    assertFalse(buffer.hasRemaining());
+  }
+}
@@ -44,6 +44,7 @@ import org.sirix.io.bytepipe.Encryptor;
 import org.sirix.io.bytepipe.IByteHandler;
 import org.sirix.io.bytepipe.SnappyCompressor;
 import org.sirix.io.file.FileStorage;
+import org.sirix.io.mapped.MappedFileStorage;
 import org.sirix.page.PageReference;
 import org.sirix.page.UberPage;
 import org.testng.annotations.AfterMethod;
@@ -128,7 +129,8 @@ public class IStorageTest {
           IStorage.class,
           new IStorage[] {
             new FileStorage(TestHelper.PATHS.PATH1.getFile(), byteHandler),
-            new BerkeleyStorage(TestHelper.PATHS.PATH1.getFile(), byteHandler)
+            new BerkeleyStorage(TestHelper.PATHS.PATH1.getFile(), byteHandler),
+            new MappedFileStorage(TestHelper.PATHS.PATH1.getFile(), byteHandler)
           }
         }
       };
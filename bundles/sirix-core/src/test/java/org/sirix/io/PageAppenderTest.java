@@ -0,0 +1,119 @@
+/**
+ * Copyright (c) 2011, University of Konstanz, Distributed Systems Group
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the University of Konstanz nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sirix.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sirix.TestHelper;
+import org.sirix.exception.SirixException;
+
+/**
+ * Test the {@link PageAppender}.
+ * 
+ * @author Johannes Lichtenberger, University of Konstanz
+ * 
+ */
+public class PageAppenderTest {
+
+  /** Data file. */
+  private RandomAccessFile mFile;
+
+  @Before
+  public void setUp() throws SirixException, IOException {
+    TestHelper.deleteEverything();
+    final File dir = TestHelper.PATHS.PATH1.getFile();
+    dir.mkdirs();
+    mFile = new RandomAccessFile(new File(dir, "appender.tnk"), "rw");
+  }
+
+  @After
+  public void tearDown() throws SirixException, IOException {
+    mFile.close();
+    TestHelper.deleteEverything();
+  }
+
+  @Test
+  public void testBatchedAppend() throws SirixException, IOException {
+    final PageAppender appender =
+      new PageAppender(mFile.getChannel(), 12, 100, false);
+    final long first = appender.append(new byte[3]);
+    final long second = appender.append(new byte[50]);
+    assertEquals(12, first);
+    assertEquals(19, second);
+    assertTrue(appender.isPending(second));
+    assertEquals(0, mFile.length());
+
+    // Exceeds the batch size.
+    final long third = appender.append(new byte[60]);
+    assertEquals(73, third);
+    assertFalse(appender.isPending(third));
+    assertEquals(137, mFile.length());
+    mFile.seek(third);
+    assertEquals(60, mFile.readInt());
+  }
+
+  @Test
+  public void testBeacon() throws SirixException, IOException {
+    PageAppender appender = new PageAppender(mFile.getChannel(), 12, 1024, true);
+    appender.append(new byte[10]);
+    final long uber = appender.append(new byte[20]);
+    appender.writeBeacon(uber);
+    mFile.seek(0);
+    assertEquals(uber, mFile.readLong());
+    assertEquals(uber + 24, mFile.length());
+
+    // New appender continues at the end of the data file.
+    appender = new PageAppender(mFile.getChannel(), 12, 0, false);
+    assertEquals(uber + 24, appender.append(new byte[1]));
+    assertEquals(uber + 29, mFile.length());
+  }
+
+  @Test
+  public void testSharedFile() throws SirixException, IOException {
+    final PageAppender first = new PageAppender(mFile.getChannel(), 12, 0, false);
+    final PageAppender second =
+      new PageAppender(mFile.getChannel(), 12, 1024, false);
+    assertEquals(12, first.append(new byte[4]));
+
+    // A new batch starts behind pages of the other appender.
+    assertEquals(20, second.append(new byte[2]));
+    assertEquals(26, second.append(new byte[2]));
+    second.flush();
+    assertEquals(32, first.append(new byte[1]));
+    assertEquals(37, mFile.length());
+  }
+}
@@ -3,6 +3,7 @@ package org.sirix.io.bytepipe;
 import static org.testng.AssertJUnit.assertFalse;
 import static org.testng.AssertJUnit.assertTrue;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 import javax.crypto.spec.SecretKeySpec;
@@ -38,6 +39,37 @@ public class IByteHandlerTest {
     }
   }
 
+  /**
+   * Test method for {@link IByteHandler#deserialize(ByteBuffer)} with heap and
+   * direct buffers, which are deserialized repeatedly by the same handler.
+   * 
+   * @throws SirixIOException
+   */
+  @Test(dataProvider = "instantiateByteHandler")
+  public void testDeserializeBuffer(Class<IByteHandler> clazz,
+    IByteHandler[] pHandlers) throws SirixIOException {
+    for (final IByteHandler handler : pHandlers) {
+      for (final int size : new int[] {
+        100000, 10, 10000
+      }) {
+        final byte[] bytes = TestHelper.generateRandomBytes(size);
+        final byte[] serialized = handler.serialize(bytes);
+        final ByteBuffer direct = ByteBuffer.allocateDirect(serialized.length);
+        direct.put(serialized).flip();
+        for (final ByteBuffer buffer : new ByteBuffer[] {
+          ByteBuffer.wrap(serialized), direct
+        }) {
+          final ByteBuffer deserialized = handler.deserialize(buffer);
+          final byte[] result = new byte[deserialized.remaining()];
+          deserialized.get(result);
+          assertTrue(new StringBuilder("Check for ").append(handler.getClass())
+            .append(" failed.").toString(), Arrays.equals(bytes, result));
+          assertFalse(buffer.hasRemaining());
+        }
+      }
+    }
+  }
+
   /**
    * Providing different implementations of the {@link IByteHandler} as Dataprovider to the test class.
    * 
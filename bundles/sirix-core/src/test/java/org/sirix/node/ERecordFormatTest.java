@@ -0,0 +1,146 @@
+/**
+ * Copyright (c) 2011, University of Konstanz, Distributed Systems Group
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the University of Konstanz nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sirix.node;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import com.google.common.collect.HashBiMap;
+import com.google.common.io.ByteArrayDataInput;
+import com.google.common.io.ByteArrayDataOutput;
+import com.google.common.io.ByteStreams;
+
+import java.util.ArrayList;
+
+import org.junit.Test;
+import org.sirix.node.delegates.NameNodeDelegate;
+import org.sirix.node.delegates.NodeDelegate;
+import org.sirix.node.delegates.StructNodeDelegate;
+import org.sirix.settings.EFixed;
+
+/**
+ * Test the {@link ERecordFormat}s.
+ * 
+ * @author Johannes Lichtenberger, University of Konstanz
+ * 
+ */
+public class ERecordFormatTest {
+
+  @Test
+  public void testVarint() {
+    final long nodeKey = 1L << 40;
+    final long[] keys =
+      {
+        nodeKey - 1, nodeKey + 1, 0, Long.MAX_VALUE,
+        EFixed.NULL_NODE_KEY.getStandardProperty()
+      };
+    final ByteArrayDataOutput out = ByteStreams.newDataOutput();
+    for (final long key : keys) {
+      ERecordFormat.VARINT.writeDelta(out, nodeKey, key);
+      ERecordFormat.VARINT.writeKey(out, nodeKey, key);
+    }
+    ERecordFormat.VARINT.writeInt(out, Integer.MIN_VALUE);
+    ERecordFormat.VARINT.writeLong(out, Long.MIN_VALUE);
+    final ByteArrayDataInput in = ByteStreams.newDataInput(out.toByteArray());
+    for (final long key : keys) {
+      assertEquals(key, ERecordFormat.VARINT.readDelta(in, nodeKey));
+      assertEquals(key, ERecordFormat.VARINT.readKey(in, nodeKey));
+    }
+    assertEquals(Integer.MIN_VALUE, ERecordFormat.VARINT.readInt(in));
+    assertEquals(Long.MIN_VALUE, ERecordFormat.VARINT.readLong(in));
+
+    // Adjacent and null keys take a single byte.
+    final ByteArrayDataOutput small = ByteStreams.newDataOutput();
+    ERecordFormat.VARINT.writeDelta(small, nodeKey, nodeKey + 1);
+    ERecordFormat.VARINT.writeDelta(small, nodeKey, EFixed.NULL_NODE_KEY
+      .getStandardProperty());
+    assertEquals(2, small.toByteArray().length);
+  }
+
+  @Test
+  public void testElementNode() {
+    final ElementNode node = element();
+    final int fixed = check(node, ERecordFormat.FIXED);
+    final int varint = check(node, ERecordFormat.VARINT);
+    assertTrue(varint < fixed);
+  }
+
+  /**
+   * Serialize and deserialize an element node in the given format.
+   * 
+   * @param pNode
+   *          the node
+   * @param pFormat
+   *          record format
+   * @return size of the record
+   */
+  private static int check(final ElementNode pNode,
+    final ERecordFormat pFormat) {
+    final ByteArrayDataOutput out = ByteStreams.newDataOutput();
+    EKind.ELEMENT.serialize(out, pNode, pFormat);
+    final byte[] bytes = out.toByteArray();
+    final ElementNode node =
+      (ElementNode)EKind.ELEMENT.deserialize(ByteStreams.newDataInput(bytes),
+        pFormat);
+    assertEquals(pNode.getNodeKey(), node.getNodeKey());
+    assertEquals(pNode.getParentKey(), node.getParentKey());
+    assertEquals(pNode.getFirstChildKey(), node.getFirstChildKey());
+    assertEquals(pNode.getLeftSiblingKey(), node.getLeftSiblingKey());
+    assertEquals(pNode.getRightSiblingKey(), node.getRightSiblingKey());
+    assertEquals(pNode.getChildCount(), node.getChildCount());
+    assertEquals(pNode.getDescendantCount(), node.getDescendantCount());
+    assertEquals(pNode.getHash(), node.getHash());
+    assertEquals(pNode.getNameKey(), node.getNameKey());
+    assertEquals(pNode.getURIKey(), node.getURIKey());
+    assertEquals(pNode.getAttributeCount(), node.getAttributeCount());
+    assertEquals(pNode.getAttributeKey(0), node.getAttributeKey(0));
+    assertEquals(pNode.getNamespaceCount(), node.getNamespaceCount());
+    assertEquals(pNode.getNamespaceKey(0), node.getNamespaceKey(0));
+    return bytes.length;
+  }
+
+  /**
+   * Create an element node, which is the last child of its parent and has a
+   * single attribute and namespace.
+   * 
+   * @return the element node
+   */
+  private static ElementNode element() {
+    final long nodeKey = 100000;
+    final NodeDelegate del = new NodeDelegate(nodeKey, 99990, 1234567L, 3);
+    final StructNodeDelegate strucDel =
+      new StructNodeDelegate(del, nodeKey + 3, EFixed.NULL_NODE_KEY
+        .getStandardProperty(), nodeKey - 7, 2, 12);
+    final NameNodeDelegate nameDel = new NameNodeDelegate(del, 18, 0, 4);
+    final ElementNode node =
+      new ElementNode(del, strucDel, nameDel, new ArrayList<Long>(), HashBiMap
+        .<Integer, Long> create(), new ArrayList<Long>());
+    node.insertAttribute(nodeKey + 1, 100);
+    node.insertNamespace(nodeKey + 2);
+    return node;
+  }
+}
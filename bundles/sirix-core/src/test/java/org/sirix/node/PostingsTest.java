@@ -0,0 +1,174 @@
+/**
+ * Copyright (c) 2011, University of Konstanz, Distributed Systems Group
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the University of Konstanz nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sirix.node;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import com.google.common.io.ByteArrayDataOutput;
+import com.google.common.io.ByteStreams;
+
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+/**
+ * Test the {@link Postings}.
+ * 
+ * @author Johannes Lichtenberger, University of Konstanz
+ * 
+ */
+public class PostingsTest {
+
+  @Test
+  public void testAdd() {
+    final Random random = new Random(42);
+    final Postings postings = new Postings();
+    final Set<Long> expected = new TreeSet<>();
+    assertTrue(postings.isEmpty());
+    // Ascending keys only append, random keys split blocks.
+    for (long key = 0; key < 1000; key += 3) {
+      assertEquals(expected.add(key), postings.add(key));
+    }
+    for (int i = 0; i < 5000; i++) {
+      final long key = random.nextInt(10000);
+      assertEquals(expected.add(key), postings.add(key));
+    }
+    assertEquals(expected.size(), postings.size());
+    assertArrayEquals(toArray(expected), postings.toArray());
+    for (long key = -1; key <= 10000; key++) {
+      assertEquals(expected.contains(key), postings.contains(key));
+    }
+    assertEquals(new Postings(expected), postings);
+    assertEquals(new Postings(expected).hashCode(), postings.hashCode());
+  }
+
+  @Test
+  public void testRemove() {
+    final Random random = new Random(13);
+    final Set<Long> expected = new TreeSet<>();
+    for (long key = 0; key < 2000; key++) {
+      expected.add(key);
+    }
+    final Postings postings = new Postings(expected);
+    // Empties whole blocks as well.
+    for (int i = 0; i < 3000; i++) {
+      final long key = random.nextInt(2100);
+      assertEquals(expected.remove(key), postings.remove(key));
+    }
+    assertEquals(expected.size(), postings.size());
+    assertArrayEquals(toArray(expected), postings.toArray());
+    assertEquals(new Postings(expected), postings);
+    for (final long key : toArray(expected)) {
+      assertTrue(postings.remove(key));
+    }
+    assertTrue(postings.isEmpty());
+    assertTrue(postings.add(5L));
+    assertArrayEquals(new long[] { 5L }, postings.toArray());
+  }
+
+  @Test
+  public void testUnionAndIntersection() {
+    final Random random = new Random(7);
+    final Set<Long> first = new TreeSet<>();
+    final Set<Long> second = new TreeSet<>();
+    for (int i = 0; i < 3000; i++) {
+      first.add((long) random.nextInt(20000));
+    }
+    // Dense range to skip blocks of the first postings.
+    for (long key = 15000; key < 15500; key++) {
+      second.add(key);
+    }
+    second.add(3L);
+    final Postings firstPostings = new Postings(first);
+    final Postings secondPostings = new Postings(second);
+
+    final Set<Long> union = new TreeSet<>(first);
+    union.addAll(second);
+    assertArrayEquals(toArray(union), Postings.union(firstPostings,
+      secondPostings).toArray());
+
+    final Set<Long> intersection = new TreeSet<>(first);
+    intersection.retainAll(second);
+    assertArrayEquals(toArray(intersection), Postings.intersection(
+      firstPostings, secondPostings).toArray());
+    assertArrayEquals(toArray(intersection), Postings.intersection(
+      secondPostings, firstPostings).toArray());
+    assertTrue(Postings.intersection(firstPostings, new Postings()).isEmpty());
+    assertEquals(firstPostings, Postings.union(new Postings(), firstPostings));
+  }
+
+  @Test
+  public void testCursor() {
+    final Postings postings = new Postings();
+    for (long key = 0; key < 1000; key += 2) {
+      postings.add(key);
+    }
+    final Postings.Cursor cursor = postings.cursor();
+    assertTrue(cursor.advance(501));
+    assertEquals(502, cursor.key());
+    assertTrue(cursor.advance(502));
+    assertEquals(502, cursor.key());
+    assertTrue(cursor.next());
+    assertEquals(504, cursor.key());
+    assertFalse(cursor.advance(999));
+  }
+
+  @Test
+  public void testSerialize() {
+    final Random random = new Random(1);
+    final Postings postings = new Postings();
+    for (int i = 0; i < 2000; i++) {
+      postings.add(random.nextInt(1 << 20));
+    }
+    postings.add(Long.MAX_VALUE);
+    final ByteArrayDataOutput out = ByteStreams.newDataOutput();
+    postings.serialize(out);
+    new Postings().serialize(out);
+    final byte[] bytes = out.toByteArray();
+    final Postings deserialized =
+      Postings.deserialize(ByteStreams.newDataInput(bytes));
+    assertEquals(postings, deserialized);
+    assertEquals(postings.size(), deserialized.size());
+    assertTrue(deserialized.contains(Long.MAX_VALUE));
+    // Ascending deltas need about two bytes per key.
+    assertTrue(bytes.length < postings.size() * 3);
+  }
+
+  private static long[] toArray(final Set<Long> pKeys) {
+    final long[] keys = new long[pKeys.size()];
+    int i = 0;
+    for (final long key : pKeys) {
+      keys[i++] = key;
+    }
+    return keys;
+  }
+}
@@ -0,0 +1,189 @@
+/**
+ * Copyright (c) 2011, University of Konstanz, Distributed Systems Group
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the University of Konstanz nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sirix.page;
+
+import com.google.common.io.ByteArrayDataOutput;
+import com.google.common.io.ByteStreams;
+
+import javax.xml.namespace.QName;
+
+import org.perfidix.annotation.AfterBenchClass;
+import org.perfidix.annotation.BeforeBenchClass;
+import org.perfidix.annotation.Bench;
+import org.sirix.TestHelper;
+import org.sirix.TestHelper.PATHS;
+import org.sirix.access.conf.ResourceConfiguration;
+import org.sirix.access.conf.SessionConfiguration;
+import org.sirix.api.IDatabase;
+import org.sirix.api.INodeReadTrx;
+import org.sirix.api.INodeWriteTrx;
+import org.sirix.api.ISession;
+import org.sirix.axis.DescendantAxis;
+import org.sirix.exception.SirixException;
+import org.sirix.node.DeletedNode;
+import org.sirix.node.delegates.NodeDelegate;
+import org.sirix.node.interfaces.INodeBase;
+import org.sirix.settings.ERevisioning;
+import org.sirix.settings.IConstants;
+
+/**
+ * Benchmarks the throughput of node page accesses, both directly on
+ * {@link NodePage}s and through {@code moveTo}-heavy traversals. Run with
+ * {@link NodePageBenchMain} to also measure the allocated memory.
+ * 
+ * @author Johannes Lichtenberger, University of Konstanz
+ * 
+ */
+public class NodePageBench {
+
+  /** Number of elements. */
+  private static final int ELEMENTS = 50000;
+
+  /** Number of node pages combined from fragments. */
+  private static final int FRAGMENTS = 4;
+
+  /** Database. */
+  private static IDatabase mDatabase;
+
+  /** Session on the benchmarked resource. */
+  private static ISession mSession;
+
+  /** Fragments of a node page, most recent first. */
+  private static NodePage[] mFragments;
+
+  /** A serialized node page. */
+  private static byte[] mSerialized;
+
+  @BeforeBenchClass
+  public static void setUp() throws SirixException {
+    TestHelper.deleteEverything();
+    mDatabase = TestHelper.getDatabase(PATHS.PATH1.getFile());
+    mDatabase.createResource(new ResourceConfiguration.Builder(
+      TestHelper.RESOURCE, PATHS.PATH1.getConfig()).build());
+    mSession =
+      mDatabase.getSession(new SessionConfiguration.Builder(TestHelper.RESOURCE)
+        .build());
+    final INodeWriteTrx wtx = mSession.beginNodeWriteTrx();
+    wtx.insertElementAsFirstChild(new QName("root"));
+    wtx.insertElementAsFirstChild(new QName("e"));
+    for (int i = 1; i < ELEMENTS; i++) {
+      wtx.insertElementAsRightSibling(new QName("e"));
+    }
+    wtx.commit();
+    wtx.close();
+
+    mFragments = new NodePage[FRAGMENTS];
+    for (int revision = 0; revision < FRAGMENTS; revision++) {
+      final NodePage page = new NodePage(0, FRAGMENTS - revision);
+      for (int key = revision; key < IConstants.NDP_NODE_COUNT; key +=
+        FRAGMENTS - revision) {
+        page.setNode(node(key, revision));
+      }
+      mFragments[revision] = page;
+    }
+
+    final ByteArrayDataOutput out = ByteStreams.newDataOutput();
+    PagePersistenter.serializePage(out, mFragments[FRAGMENTS - 1]);
+    mSerialized = out.toByteArray();
+  }
+
+  @AfterBenchClass
+  public static void tearDown() throws SirixException {
+    mSession.close();
+    TestHelper.closeEverything();
+    TestHelper.deleteEverything();
+  }
+
+  @Bench
+  public void benchSetNode() {
+    final NodePage page = new NodePage(0, 0);
+    for (int key = 0; key < IConstants.NDP_NODE_COUNT; key++) {
+      page.setNode(node(key, 0));
+    }
+  }
+
+  @Bench
+  public void benchGetNode() {
+    final NodePage page = mFragments[FRAGMENTS - 1];
+    for (int key = 0; key < IConstants.NDP_NODE_COUNT; key++) {
+      page.getNode(key);
+    }
+  }
+
+  @Bench
+  public void benchDeserializeGetNode() {
+    final NodePage page =
+      (NodePage)PagePersistenter.deserializePage(ByteStreams
+        .newDataInput(mSerialized));
+    page.getNode(IConstants.NDP_NODE_COUNT >> 1);
+  }
+
+  @Bench
+  public void benchCombineIncremental() {
+    ERevisioning.INCREMENTAL.combineNodePages(mFragments, FRAGMENTS + 1);
+  }
+
+  @Bench
+  public void benchCombineDifferential() {
+    ERevisioning.DIFFERENTIAL.combineNodePages(new NodePage[] {
+      mFragments[0], mFragments[FRAGMENTS - 1]
+    }, FRAGMENTS + 1);
+  }
+
+  @Bench
+  public void benchMoveTo() throws SirixException {
+    final INodeReadTrx rtx = mSession.beginNodeReadTrx();
+    for (long key = 1; key < ELEMENTS + 2; key++) {
+      rtx.moveTo(key);
+    }
+    rtx.close();
+  }
+
+  @Bench
+  public void benchDescendantAxis() throws SirixException {
+    final INodeReadTrx rtx = mSession.beginNodeReadTrx();
+    final DescendantAxis axis = new DescendantAxis(rtx);
+    while (axis.hasNext()) {
+      axis.next();
+    }
+    rtx.close();
+  }
+
+  /**
+   * Create a node.
+   * 
+   * @param pKey
+   *          node key
+   * @param pRevision
+   *          revision of the node
+   * @return a new node
+   */
+  private static INodeBase node(final long pKey, final int pRevision) {
+    return new DeletedNode(new NodeDelegate(pKey, 0, 0, pRevision));
+  }
+}
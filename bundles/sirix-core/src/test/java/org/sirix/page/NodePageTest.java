@@ -27,7 +27,11 @@
 
 package org.sirix.page;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import com.google.common.collect.HashBiMap;
 import com.google.common.io.ByteArrayDataInput;
 import com.google.common.io.ByteArrayDataOutput;
@@ -36,11 +40,15 @@ import com.google.common.io.ByteStreams;
 import java.util.ArrayList;
 
 import org.junit.Test;
+import org.sirix.node.DeletedNode;
+import org.sirix.node.ERecordFormat;
 import org.sirix.node.ElementNode;
 import org.sirix.node.delegates.NameNodeDelegate;
 import org.sirix.node.delegates.NodeDelegate;
 import org.sirix.node.delegates.StructNodeDelegate;
 import org.sirix.node.interfaces.INameNode;
+import org.sirix.node.interfaces.INodeBase;
+import org.sirix.settings.IConstants;
 import org.sirix.utils.NamePageHash;
 
 public class NodePageTest {
@@ -88,4 +96,138 @@ public class NodePageTest {
 				((ElementNode) page2.getNode(0)).getTypeKey());
 
 	}
+
+	@Test
+	public void testSlots() {
+		final long base = 3L * IConstants.NDP_NODE_COUNT;
+		final NodePage page = new NodePage(3L, 0);
+		assertEquals(-1, page.nextSlot(0));
+		for (final long key : new long[] { base + 130, base, base + 63, base + 64,
+				base + 511 }) {
+			page.setNode(new DeletedNode(new NodeDelegate(key, 0, 0, 0)));
+		}
+		page.setNode(new DeletedNode(new NodeDelegate(base + 64, 0, 0, 0)));
+		assertEquals(5, page.size());
+		assertEquals(5, page.values().size());
+		assertTrue(page.isSlotOccupied(63));
+		assertFalse(page.isSlotOccupied(65));
+		assertNull(page.getNode(base + 1));
+		assertNull(page.getNode(base + 64 + IConstants.NDP_NODE_COUNT));
+		assertEquals(base + 130, page.getNode(base + 130).getNodeKey());
+
+		final long[] expected = new long[] { base, base + 63, base + 64,
+				base + 130, base + 511 };
+		int i = 0;
+		for (int slot = page.nextSlot(0); slot >= 0; slot = page.nextSlot(slot + 1)) {
+			assertEquals(expected[i++], page.getNodeInSlot(slot).getNodeKey());
+		}
+		assertEquals(expected.length, i);
+		i = 0;
+		for (final INodeBase node : page.values()) {
+			assertEquals(expected[i++], node.getNodeKey());
+		}
+
+		final ByteArrayDataOutput out = ByteStreams.newDataOutput();
+		PagePersistenter.serializePage(out, page);
+		final NodePage copy = (NodePage) PagePersistenter
+				.deserializePage(ByteStreams.newDataInput(out.toByteArray()));
+		assertEquals(5, copy.size());
+		assertEquals(page, copy);
+	}
+
+	@Test
+	public void testLazyDeserialize() {
+		final NodePage page = new NodePage(0L, 3);
+		for (long key = 0; key < IConstants.NDP_NODE_COUNT; key += 3) {
+			page.setNode(new DeletedNode(new NodeDelegate(key, 0, 0, 3)));
+		}
+		final ByteArrayDataOutput out = ByteStreams.newDataOutput();
+		PagePersistenter.serializePage(out, page);
+		final byte[] bytes = out.toByteArray();
+
+		final NodePage copy = (NodePage) PagePersistenter.deserializePage(ByteStreams
+				.newDataInput(bytes));
+		assertEquals(page.size(), copy.size());
+		assertEquals(300L, copy.getNode(300).getNodeKey());
+		assertNull(copy.getNode(301));
+
+		// Records which haven't been decoded are written unchanged.
+		final ByteArrayDataOutput copyOut = ByteStreams.newDataOutput();
+		PagePersistenter.serializePage(copyOut, copy);
+		assertArrayEquals(bytes, copyOut.toByteArray());
+		assertEquals(page, copy);
+
+		// Nodes in slots between encoded records are written as well.
+		final DeletedNode added = new DeletedNode(new NodeDelegate(298, 0, 0, 4));
+		page.setNode(added);
+		final NodePage encoded = (NodePage) PagePersistenter
+				.deserializePage(ByteStreams.newDataInput(bytes));
+		encoded.setNode(added);
+		final ByteArrayDataOutput addedOut = ByteStreams.newDataOutput();
+		PagePersistenter.serializePage(addedOut, encoded);
+		final NodePage addedCopy = (NodePage) PagePersistenter
+				.deserializePage(ByteStreams.newDataInput(addedOut.toByteArray()));
+		assertEquals(page, addedCopy);
+		assertEquals(297L, addedCopy.getNode(297).getNodeKey());
+		assertEquals(298L, addedCopy.getNode(298).getNodeKey());
+	}
+
+	@Test
+	public void testDeserializeFormerFormat() {
+		final ByteArrayDataOutput out = ByteStreams.newDataOutput();
+		out.writeByte(1);
+		out.writeInt(5);
+		out.writeLong(0L);
+		out.writeInt(2);
+		for (final long key : new long[] { 7L, 3L }) {
+			final INodeBase node = new DeletedNode(new NodeDelegate(key, 1, 0, 5));
+			out.writeByte(node.getKind().getId());
+			node.getKind().serialize(out, node, ERecordFormat.FIXED);
+		}
+		final NodePage page = (NodePage) PagePersistenter.deserializePage(ByteStreams
+				.newDataInput(out.toByteArray()));
+		assertEquals(5, page.getRevision());
+		assertEquals(2, page.size());
+		assertEquals(3L, page.getNodeInSlot(page.nextSlot(0)).getNodeKey());
+		assertEquals(7L, page.getNode(7).getNodeKey());
+	}
+
+	@Test
+	public void testDeserializeSlottedFixedFormat() {
+		final long[] keys = new long[] { 3L, 70L };
+		final ByteArrayDataOutput records = ByteStreams.newDataOutput();
+		final int[] offsets = new int[keys.length + 1];
+		for (int i = 0; i < keys.length; i++) {
+			final INodeBase node = new DeletedNode(new NodeDelegate(keys[i], 1, 0, 5));
+			records.writeByte(node.getKind().getId());
+			node.getKind().serialize(records, node, ERecordFormat.FIXED);
+			offsets[i + 1] = records.toByteArray().length;
+		}
+		final ByteArrayDataOutput out = ByteStreams.newDataOutput();
+		out.writeByte(1);
+		out.writeInt(-1);
+		out.writeInt(5);
+		out.writeLong(0L);
+		out.writeLong(1L << 3);
+		out.writeLong(1L << 6);
+		for (int i = 2; i < IConstants.NDP_NODE_COUNT >> 6; i++) {
+			out.writeLong(0L);
+		}
+		for (final int offset : offsets) {
+			out.writeInt(offset);
+		}
+		out.write(records.toByteArray());
+		final NodePage page = (NodePage) PagePersistenter.deserializePage(ByteStreams
+				.newDataInput(out.toByteArray()));
+		assertEquals(5, page.getRevision());
+		assertEquals(2, page.size());
+		assertEquals(70L, page.getNode(70).getNodeKey());
+		assertEquals(3L, page.getNode(3).getNodeKey());
+
+		// Written again in the current format.
+		final ByteArrayDataOutput copyOut = ByteStreams.newDataOutput();
+		PagePersistenter.serializePage(copyOut, page);
+		assertEquals(page, PagePersistenter.deserializePage(ByteStreams
+				.newDataInput(copyOut.toByteArray())));
+	}
 }
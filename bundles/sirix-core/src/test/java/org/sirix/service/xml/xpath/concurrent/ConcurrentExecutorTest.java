@@ -0,0 +1,272 @@
+/**
+ * Copyright (c) 2011, University of Konstanz, Distributed Systems Group
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the University of Konstanz nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sirix.service.xml.xpath.concurrent;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.namespace.QName;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sirix.Holder;
+import org.sirix.TestHelper;
+import org.sirix.api.IAxis;
+import org.sirix.api.INodeReadTrx;
+import org.sirix.api.INodeWriteTrx;
+import org.sirix.axis.AbsAxis;
+import org.sirix.axis.AbsAxisTest;
+import org.sirix.axis.ChildAxis;
+import org.sirix.axis.DescendantAxis;
+import org.sirix.axis.EIncludeSelf;
+import org.sirix.axis.FilterAxis;
+import org.sirix.axis.NestedAxis;
+import org.sirix.axis.filter.NameFilter;
+import org.sirix.exception.SirixException;
+
+/**
+ * Test the {@link ConcurrentExecutor} with the {@link ConcurrentAxis} and the
+ * {@link ConcurrentSubtreeAxis}.
+ * 
+ * @author Johannes Lichtenberger, University of Konstanz
+ * 
+ */
+public class ConcurrentExecutorTest {
+
+  /** Number of subtrees. */
+  private static final int SUBTREES = 8;
+
+  /** Number of elements in each subtree. */
+  private static final int ELEMENTS = 200;
+
+  private Holder holder;
+
+  private ConcurrentExecutor executor;
+
+  private final List<INodeReadTrx> rtxs = new ArrayList<>();
+
+  @Before
+  public void setUp() throws SirixException {
+    TestHelper.deleteEverything();
+    holder = Holder.generateSession();
+    final INodeWriteTrx wtx = holder.getSession().beginNodeWriteTrx();
+    wtx.insertElementAsFirstChild(new QName("r"));
+    for (int i = 0; i < SUBTREES; i++) {
+      if (i == 0) {
+        wtx.insertElementAsFirstChild(new QName("s"));
+      } else {
+        wtx.insertElementAsRightSibling(new QName("s"));
+      }
+      for (int j = 0; j < ELEMENTS; j++) {
+        if (j == 0) {
+          wtx.insertElementAsFirstChild(new QName(j % 3 == 0 ? "x" : "e"));
+        } else {
+          wtx.insertElementAsRightSibling(new QName(j % 3 == 0 ? "x" : "e"));
+        }
+      }
+      wtx.moveToParent();
+    }
+    wtx.commit();
+    wtx.close();
+    executor = new ConcurrentExecutor(2);
+  }
+
+  @After
+  public void tearDown() throws SirixException {
+    executor.shutdown();
+    for (final INodeReadTrx rtx : rtxs) {
+      rtx.close();
+    }
+    holder.close();
+    TestHelper.closeEverything();
+  }
+
+  @Test
+  public void testHandOff() throws SirixException {
+    final INodeReadTrx rtx = rtx();
+    final long[] expected = keys(descendants(rtx, "x"));
+    assertEquals(SUBTREES * (ELEMENTS / 3 + 1), expected.length);
+
+    // More results than a batch.
+    final INodeReadTrx producer = rtx();
+    rtx.moveToDocumentRoot();
+    AbsAxisTest.testIAxisConventions(new ConcurrentAxis(rtx, descendants(
+      producer, "x"), executor), expected);
+
+    // Evaluated by the consumer, as the executor does not accept producers.
+    final ConcurrentExecutor shutdown = new ConcurrentExecutor(1);
+    shutdown.shutdown();
+    rtx.moveToDocumentRoot();
+    AbsAxisTest.testIAxisConventions(new ConcurrentAxis(rtx, descendants(
+      producer, "x"), shutdown), expected);
+  }
+
+  @Test
+  public void testNested() throws SirixException {
+    final INodeReadTrx rtx = rtx();
+    final long[] expected =
+      keys(new NestedAxis(new FilterAxis(new DescendantAxis(rtx),
+        new NameFilter(rtx, "s")), new FilterAxis(new ChildAxis(rtx),
+        new NameFilter(rtx, "x"))));
+
+    // The inner producer is cancelled and reset for each subtree, more
+    // producers than threads.
+    final ConcurrentExecutor single = new ConcurrentExecutor(1);
+    try {
+      final INodeReadTrx first = rtx();
+      final INodeReadTrx second = rtx();
+      rtx.moveToDocumentRoot();
+      assertArrayEquals(expected, keys(new NestedAxis(new ConcurrentAxis(rtx,
+        new FilterAxis(new DescendantAxis(first), new NameFilter(first, "s")),
+        single), new ConcurrentAxis(rtx, new FilterAxis(new ChildAxis(second),
+        new NameFilter(second, "x")), single))));
+    } finally {
+      single.shutdown();
+    }
+  }
+
+  @Test
+  public void testResetAndClose() throws SirixException {
+    final INodeReadTrx rtx = rtx();
+    final INodeReadTrx producer = rtx();
+    final ConcurrentAxis axis =
+      new ConcurrentAxis(rtx, descendants(producer, "e"), executor);
+    for (int i = 0; i < 10; i++) {
+      assertTrue(axis.hasNext());
+      axis.next();
+    }
+
+    // Cancel the producer, which waits for space.
+    rtx.moveToFirstChild();
+    rtx.moveToFirstChild();
+    final long subtree = rtx.getNode().getNodeKey();
+    axis.reset(subtree);
+    rtx.moveTo(subtree);
+    final long[] expected = keys(descendants(rtx(subtree), "e"));
+    assertArrayEquals(expected, keys(axis));
+
+    axis.reset(0);
+    assertTrue(axis.hasNext());
+    axis.close();
+    assertFalse(axis.hasNext());
+    assertTrue(axis.isFinished());
+  }
+
+  @Test
+  public void testSubtrees() throws SirixException {
+    final INodeReadTrx rtx = rtx();
+    rtx.moveToFirstChild();
+    final long root = rtx.getNode().getNodeKey();
+    final long[] expected =
+      keys(new FilterAxis(new DescendantAxis(rtx), new NameFilter(rtx, "x")));
+
+    final ConcurrentSubtreeAxis.IAxisFactory factory =
+      new ConcurrentSubtreeAxis.IAxisFactory() {
+        @Override
+        public IAxis create(final INodeReadTrx pRtx) {
+          return new FilterAxis(new DescendantAxis(pRtx, EIncludeSelf.YES),
+            new NameFilter(pRtx, "x"));
+        }
+      };
+    rtx.moveTo(root);
+    AbsAxisTest.testIAxisConventions(new ConcurrentSubtreeAxis(rtx, factory,
+      executor), expected);
+
+    // Close while subtrees are evaluated ahead.
+    rtx.moveTo(root);
+    final ConcurrentSubtreeAxis axis =
+      new ConcurrentSubtreeAxis(rtx, factory, executor);
+    assertTrue(axis.hasNext());
+    axis.close();
+    assertFalse(axis.hasNext());
+    axis.reset(root);
+    assertArrayEquals(expected, keys(axis));
+  }
+
+  @Test
+  public void testFailure() throws SirixException {
+    final INodeReadTrx rtx = rtx();
+    final INodeReadTrx producer = rtx();
+    final IAxis failing = new AbsAxis(producer) {
+      private int mCount;
+
+      @Override
+      public boolean hasNext() {
+        if (++mCount > 300) {
+          throw new IllegalStateException("failed");
+        }
+        mKey = 0;
+        return true;
+      }
+    };
+    final ConcurrentAxis axis = new ConcurrentAxis(rtx, failing, executor);
+    try {
+      while (axis.hasNext()) {
+        axis.next();
+      }
+      fail();
+    } catch (final IllegalStateException e) {
+      assertEquals("failed", e.getMessage());
+    }
+  }
+
+  private INodeReadTrx rtx() throws SirixException {
+    final INodeReadTrx rtx = holder.getSession().beginNodeReadTrx();
+    rtxs.add(rtx);
+    return rtx;
+  }
+
+  private INodeReadTrx rtx(final long pKey) throws SirixException {
+    final INodeReadTrx rtx = rtx();
+    rtx.moveTo(pKey);
+    return rtx;
+  }
+
+  private static IAxis descendants(final INodeReadTrx pRtx, final String pName) {
+    return new FilterAxis(new DescendantAxis(pRtx), new NameFilter(pRtx, pName));
+  }
+
+  private static long[] keys(final IAxis pAxis) {
+    final List<Long> keys = new ArrayList<>();
+    while (pAxis.hasNext()) {
+      keys.add(pAxis.next());
+    }
+    final long[] result = new long[keys.size()];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = keys.get(i);
+    }
+    return result;
+  }
+}
@@ -0,0 +1,254 @@
+/**
+ * Copyright (c) 2011, University of Konstanz, Distributed Systems Group
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * * Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * * Neither the name of the University of Konstanz nor the
+ * names of its contributors may be used to endorse or promote products
+ * derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.sirix.service.xml.xpath.rewrite;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+
+import javax.xml.namespace.QName;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sirix.TestHelper;
+import org.sirix.TestHelper.PATHS;
+import org.sirix.access.conf.ResourceConfiguration;
+import org.sirix.access.conf.ResourceConfiguration.EIndexes;
+import org.sirix.access.conf.SessionConfiguration;
+import org.sirix.api.IDatabase;
+import org.sirix.api.INodeReadTrx;
+import org.sirix.api.INodeWriteTrx;
+import org.sirix.api.ISession;
+import org.sirix.exception.SirixException;
+import org.sirix.service.xml.xpath.XPathAxis;
+
+/**
+ * Test the {@link IndexRewriter} by comparing the results of rewritten queries
+ * with the navigational results on a resource without a path summary.
+ * 
+ * @author Johannes Lichtenberger, University of Konstanz
+ * 
+ */
+public class IndexRewriterTest {
+
+  /** Queries and an expected part of their plan. */
+  private static final String[][] QUERIES = {
+    {
+      "//a/b", "//a/b => PATH_SUMMARY"
+    }, {
+      "/r/a/b", "/r/a/b => PATH_SUMMARY"
+    }, {
+      "//d//b", "//d//b => PATH_SUMMARY"
+    }, {
+      "//a", "//a => PATH_SUMMARY"
+    }, {
+      "/descendant::d/child::a", "//d/a => PATH_SUMMARY"
+    }, {
+      "//x", "//Q{"
+    }, {
+      "//a/b[text()='v1']", "//a/b[text()='v1'] => VALUE_INDEX"
+    }, {
+      "//d/a/b[text()='v3']", "//d/a/b[text()='v3'] => VALUE_INDEX"
+    }, {
+      "//a/b['v1'=text()]", "//a/b[text()='v1'] => VALUE_INDEX"
+    }, {
+      "//a/b[text()='none']", "//a/b[text()='none'] => VALUE_INDEX"
+    }, {
+      "//a/b/text()", "//a/b => PATH_SUMMARY"
+    }, {
+      "//a/b[text()='v2']/text()", "//a/b[text()='v2'] => VALUE_INDEX"
+    }, {
+      "//a[b/text()='v2']", "//a => PATH_SUMMARY"
+    }, {
+      "//a/b | //d", "//a/b => PATH_SUMMARY"
+    }
+  };
+
+  /** {@link ISession} on the resource with path summary and value index. */
+  private ISession mIndexed;
+
+  /** {@link ISession} on the resource without path summary. */
+  private ISession mPlain;
+
+  /** Key of a text node with value {@code v1}. */
+  private long mTextKey;
+
+  @Before
+  public void setUp() throws SirixException {
+    TestHelper.deleteEverything();
+    final IDatabase database = TestHelper.getDatabase(PATHS.PATH1.getFile());
+    database.createResource(new ResourceConfiguration.Builder("indexed", PATHS.PATH1.getConfig()).setIndexes(
+      EnumSet.of(EIndexes.PATH, EIndexes.VALUE)).build());
+    database.createResource(new ResourceConfiguration.Builder("plain", PATHS.PATH1.getConfig()).setIndexes(
+      EnumSet.of(EIndexes.VALUE)).build());
+    mIndexed = database.getSession(new SessionConfiguration.Builder("indexed").build());
+    mPlain = database.getSession(new SessionConfiguration.Builder("plain").build());
+  }
+
+  @After
+  public void tearDown() throws SirixException {
+    mIndexed.close();
+    mPlain.close();
+    TestHelper.closeEverything();
+  }
+
+  @Test
+  public void testRewrite() throws SirixException {
+    final INodeWriteTrx indexedWtx = mIndexed.beginNodeWriteTrx();
+    final INodeWriteTrx plainWtx = mPlain.beginNodeWriteTrx();
+    build(indexedWtx);
+    build(plainWtx);
+
+    // Uncommitted changes are visible to the rewritten queries.
+    assertQueries(indexedWtx, plainWtx);
+
+    // Stale entries of the value index are not returned.
+    for (final INodeWriteTrx wtx : new INodeWriteTrx[] {
+      indexedWtx, plainWtx
+    }) {
+      wtx.moveTo(mTextKey);
+      wtx.setValue("changed");
+      wtx.commit();
+      wtx.close();
+    }
+
+    final INodeReadTrx indexedRtx = mIndexed.beginNodeReadTrx();
+    final INodeReadTrx plainRtx = mPlain.beginNodeReadTrx();
+    assertQueries(indexedRtx, plainRtx);
+    indexedRtx.close();
+    plainRtx.close();
+  }
+
+  @Test
+  public void testExplain() throws SirixException {
+    for (final ISession session : new ISession[] {
+      mIndexed, mPlain
+    }) {
+      final INodeWriteTrx wtx = session.beginNodeWriteTrx();
+      build(wtx);
+      wtx.commit();
+      wtx.close();
+    }
+    final INodeReadTrx rtx = mIndexed.beginNodeReadTrx();
+    final String explain = new XPathAxis(rtx, "//a/b[text()='v1']/text() | /r/d").explain();
+    final String[] lines = explain.split("\n");
+    Arrays.sort(lines);
+    assertEquals(2, lines.length);
+    assertTrue(lines[0], lines[0].matches("//a/b\\[text\\(\\)='v1'\\] => VALUE_INDEX pathNodeKeys=\\[\\d+(, \\d+)*\\]"
+      + ", then 1 navigational step\\(s\\)"));
+    assertTrue(lines[1], lines[1].startsWith("/r/d => PATH_SUMMARY"));
+    rtx.close();
+
+    final INodeReadTrx plainRtx = mPlain.beginNodeReadTrx();
+    assertEquals("//a/b => NAVIGATION (path summary not enabled)", new XPathAxis(plainRtx, "//a/b").explain());
+    plainRtx.close();
+  }
+
+  /**
+   * Compare the results and check the plans of all queries.
+   * 
+   * @param pIndexed
+   *          transaction on the resource with indexes
+   * @param pPlain
+   *          transaction on the resource without path summary
+   */
+  private static void assertQueries(final INodeReadTrx pIndexed, final INodeReadTrx pPlain)
+    throws SirixException {
+    for (final String[] query : QUERIES) {
+      final XPathAxis indexed = new XPathAxis(pIndexed, query[0]);
+      final XPathAxis plain = new XPathAxis(pPlain, query[0]);
+      assertTrue(indexed.explain(), indexed.explain().contains(query[1]));
+      assertFalse(plain.explain(), plain.explain().contains("=> PATH_SUMMARY"));
+      // The navigational result is not sorted in document order, whereas the
+      // rewritten one is.
+      final List<Long> expected = keys(plain);
+      final List<Long> actual = keys(indexed);
+      assertEquals(query[0], expected.size(), actual.size());
+      Collections.sort(expected);
+      Collections.sort(actual);
+      assertEquals(query[0], expected, actual);
+      assertEquals(query[0], query[0].contains("none") || query[0].equals("//x"), expected.isEmpty());
+    }
+  }
+
+  /**
+   * Get the result of a query.
+   * 
+   * @param pAxis
+   *          the query
+   * @return node keys of the result
+   */
+  private static List<Long> keys(final XPathAxis pAxis) {
+    final List<Long> keys = new ArrayList<>();
+    while (pAxis.hasNext()) {
+      keys.add(pAxis.next());
+    }
+    return keys;
+  }
+
+  /**
+   * Build a document with nested {@code a} elements and {@code b} elements
+   * on different paths. Builds the same node keys for both resources.
+   * 
+   * @param pWtx
+   *          {@link INodeWriteTrx} to build with
+   */
+  private void build(final INodeWriteTrx pWtx) throws SirixException {
+    pWtx.insertElementAsFirstChild(new QName("r"));
+    final long root = pWtx.getNode().getNodeKey();
+    for (int i = 0; i < 100; i++) {
+      pWtx.moveTo(root);
+      if (i % 3 == 0) {
+        pWtx.insertElementAsFirstChild(new QName("d"));
+      }
+      pWtx.insertElementAsFirstChild(new QName("a"));
+      final long a = pWtx.getNode().getNodeKey();
+      pWtx.insertElementAsFirstChild(new QName("b"));
+      pWtx.insertTextAsFirstChild("v" + i % 5);
+      if (i == 1) {
+        mTextKey = pWtx.getNode().getNodeKey();
+      }
+      pWtx.moveTo(a);
+      pWtx.insertElementAsFirstChild(new QName(i % 2 == 0 ? "b" : "c"));
+      pWtx.insertTextAsFirstChild("v" + i % 7);
+      if (i % 4 == 0) {
+        pWtx.moveTo(a);
+        pWtx.insertElementAsFirstChild(new QName("a"));
+        pWtx.insertElementAsFirstChild(new QName("b"));
+        pWtx.insertTextAsFirstChild("v1");
+      }
+    }
+  }
+}
@@ -28,14 +28,32 @@
 package org.sirix.settings;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.sirix.TestHelper.getNodePage;
+
+import com.google.common.io.ByteArrayDataOutput;
+import com.google.common.io.ByteStreams;
+
+import javax.xml.namespace.QName;
+
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.sirix.TestHelper;
+import org.sirix.TestHelper.PATHS;
 import org.sirix.access.conf.ResourceConfiguration;
+import org.sirix.access.conf.SessionConfiguration;
+import org.sirix.api.IDatabase;
+import org.sirix.api.INodeReadTrx;
+import org.sirix.api.INodeWriteTrx;
+import org.sirix.api.ISession;
+import org.sirix.cache.PageContainer;
 import org.sirix.exception.SirixException;
+import org.sirix.node.DeletedNode;
+import org.sirix.node.delegates.NodeDelegate;
 import org.sirix.page.NodePage;
+import org.sirix.page.PagePersistenter;
 
 public class ERevisioningTest {
 
@@ -49,6 +67,164 @@ public class ERevisioningTest {
     TestHelper.closeEverything();
   }
 
+  @Test
+  public void testSlidingSnapshotCombinePages() {
+    final NodePage[] pages = new NodePage[3];
+    pages[2] = page(0, 0, 1, 2, 3);
+    pages[1] = page(1, 1);
+    pages[0] = page(2, 2);
+
+    final NodePage page =
+      ERevisioning.SLIDING_SNAPSHOT.combineNodePages(pages, 3);
+    assertSame(pages[2].getNode(0), page.getNode(0));
+    assertSame(pages[1].getNode(1), page.getNode(1));
+    assertSame(pages[0].getNode(2), page.getNode(2));
+    assertSame(pages[2].getNode(3), page.getNode(3));
+  }
+
+  @Test
+  public void testSlidingSnapshotWriteForward() {
+    final NodePage[] pages = new NodePage[3];
+    pages[2] = page(0, 0, 1, 2, 3);
+    pages[1] = page(1, 1);
+    pages[0] = page(2, 2);
+
+    // Window is full, thus unchanged nodes of the oldest fragment are written
+    // forward.
+    PageContainer cont =
+      ERevisioning.SLIDING_SNAPSHOT.combineNodePagesForModification(pages, 3);
+    assertEquals(4, cont.getComplete().values().size());
+    assertSame(pages[2].getNode(0), cont.getModified().getNode(0));
+    assertSame(pages[2].getNode(3), cont.getModified().getNode(3));
+    assertNull(cont.getModified().getNode(1));
+    assertNull(cont.getModified().getNode(2));
+
+    // Window isn't full.
+    cont =
+      ERevisioning.SLIDING_SNAPSHOT.combineNodePagesForModification(pages, 4);
+    assertEquals(4, cont.getComplete().values().size());
+    assertEquals(0, cont.getModified().values().size());
+  }
+
+  @Test
+  public void testIncrementalCombineEncodedPages() {
+    final NodePage[] pages = new NodePage[3];
+    pages[2] = encode(page(0, 0, 1, 2, 3));
+    pages[1] = encode(page(1, 1));
+    pages[0] = encode(page(2, 2));
+
+    final NodePage page = ERevisioning.INCREMENTAL.combineNodePages(pages, 3);
+    final PageContainer cont =
+      ERevisioning.INCREMENTAL.combineNodePagesForModification(pages, 3);
+    assertEquals(4, page.size());
+    assertEquals(4, cont.getModified().size());
+    assertEquals(0, page.decodedSize());
+    assertEquals(0, cont.getComplete().decodedSize());
+    for (final NodePage fragment : pages) {
+      assertEquals(0, fragment.decodedSize());
+    }
+
+    // Only the accessed record is decoded, once for all combined pages.
+    assertSame(pages[1].getNode(1), page.getNode(1));
+    assertSame(page.getNode(1), cont.getComplete().getNode(1));
+    assertSame(page.getNode(1), cont.getModified().getNode(1));
+    assertEquals(1, pages[1].decodedSize());
+    assertEquals(0, pages[2].decodedSize());
+
+    // Encoded records are copied from the fragments.
+    final NodePage copy = encode(cont.getModified());
+    assertEquals(1, pages[1].decodedSize());
+    assertEquals(0, pages[2].decodedSize());
+    assertEquals(page, copy);
+  }
+
+  @Test
+  public void testIncrementalResource() throws SirixException {
+    testResource(ERevisioning.INCREMENTAL);
+  }
+
+  @Test
+  public void testSlidingSnapshotResource() throws SirixException {
+    testResource(ERevisioning.SLIDING_SNAPSHOT);
+  }
+
+  /**
+   * Rename a node in each of several revisions and check all revisions.
+   * 
+   * @param pRevisioning
+   *          the revisioning of the resource
+   * @throws SirixException
+   *           if anything went wrong
+   */
+  private static void testResource(final ERevisioning pRevisioning)
+    throws SirixException {
+    final IDatabase database = TestHelper.getDatabase(PATHS.PATH1.getFile());
+    database.createResource(new ResourceConfiguration.Builder(
+      TestHelper.RESOURCE, PATHS.PATH1.getConfig()).setRevisionKind(
+      pRevisioning).setRevisionsToRestore(3).build());
+    final ISession session =
+      database.getSession(new SessionConfiguration.Builder(TestHelper.RESOURCE)
+        .build());
+    final INodeWriteTrx wtx = session.beginNodeWriteTrx();
+    wtx.insertElementAsFirstChild(new QName("root"));
+    for (int i = 0; i < 10; i++) {
+      wtx.insertElementAsFirstChild(new QName("e"));
+      wtx.moveToParent();
+    }
+    wtx.commit();
+    for (int revision = 1; revision < 8; revision++) {
+      wtx.moveTo(2 + revision);
+      wtx.setQName(new QName("r" + revision));
+      wtx.commit();
+    }
+    wtx.close();
+
+    for (int revision = 0; revision < 8; revision++) {
+      final INodeReadTrx rtx = session.beginNodeReadTrx(revision);
+      for (int key = 2; key < 12; key++) {
+        rtx.moveTo(key);
+        final int renamedIn = key - 2;
+        final String expected =
+          renamedIn > 0 && renamedIn <= revision ? "r" + renamedIn : "e";
+        assertEquals(new QName(expected), rtx.getQNameOfCurrentNode());
+      }
+      rtx.close();
+    }
+    session.close();
+  }
+
+  /**
+   * Create a node page.
+   * 
+   * @param pRevision
+   *          revision of the page
+   * @param pKeys
+   *          keys of the nodes in the page
+   * @return the node page
+   */
+  private static NodePage page(final int pRevision, final long... pKeys) {
+    final NodePage page = new NodePage(0, pRevision);
+    for (final long key : pKeys) {
+      page.setNode(new DeletedNode(new NodeDelegate(key, 0, 0, pRevision)));
+    }
+    return page;
+  }
+
+  /**
+   * Serialize and deserialize a node page, such that its records are decoded
+   * lazily.
+   * 
+   * @param pPage
+   *          the node page
+   * @return the deserialized node page
+   */
+  private static NodePage encode(final NodePage pPage) {
+    final ByteArrayDataOutput out = ByteStreams.newDataOutput();
+    PagePersistenter.serializePage(out, pPage);
+    return (NodePage) PagePersistenter.deserializePage(ByteStreams
+      .newDataInput(out.toByteArray()));
+  }
+
 ////  @Test(expected = AssertionError.class)
 //  @Test
 //  public void testFulldumpCombinePages() {